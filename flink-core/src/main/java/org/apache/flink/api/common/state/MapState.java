@@ -20,6 +20,8 @@ package org.apache.flink.api.common.state;
 
 import org.apache.flink.annotation.PublicEvolving;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -50,6 +52,28 @@ public interface MapState<UK, UV> extends State {
      */
     UV get(UK key) throws Exception;
 
+    /**
+     * Returns the current values associated with the given keys. Keys without an associated value
+     * or which are associated with {@code null} are not contained in the returned map.
+     *
+     * <p>State backends may implement this as a single batched lookup, which is considerably
+     * cheaper than looking up the keys one by one.
+     *
+     * @param keys The keys of the mappings
+     * @return The mappings of the given keys which exist in the state
+     * @throws Exception Thrown if the system cannot access the state.
+     */
+    default Map<UK, UV> getAll(Collection<UK> keys) throws Exception {
+        Map<UK, UV> result = new HashMap<>(keys.size());
+        for (UK key : keys) {
+            UV value = get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
     /**
      * Associates a new value with the given key.
      *
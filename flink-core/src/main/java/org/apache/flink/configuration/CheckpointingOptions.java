@@ -176,6 +176,20 @@ public class CheckpointingOptions {
                                     + " only represents the delta checkpoint size instead of full checkpoint size."
                                     + " Some state backends may not support incremental checkpoints and ignore this option.");
 
+    /**
+     * The maximum number of deltas that an incremental checkpoint of the HashMapStateBackend builds
+     * on a full snapshot. The next checkpoint writes a full snapshot again.
+     */
+    public static final ConfigOption<Integer> INCREMENTAL_CHECKPOINTS_MAX_DELTAS =
+            ConfigOptions.key("state.backend.incremental.max-deltas")
+                    .intType()
+                    .defaultValue(10)
+                    .withDescription(
+                            "The maximum number of deltas that an incremental checkpoint of the HashMapStateBackend"
+                                    + " builds on a full snapshot. Once reached, the next checkpoint writes a full snapshot,"
+                                    + " which replaces the chain of deltas. Longer chains write less per checkpoint, but"
+                                    + " take longer to restore.");
+
     /**
      * This option configures local recovery for this state backend. By default, local recovery is
      * deactivated.
@@ -241,6 +255,34 @@ public class CheckpointingOptions {
                                     + "in a Flink supported filesystem. The storage path must be accessible from all participating processes/nodes"
                                     + "(i.e. all TaskManagers and JobManagers).");
 
+    /**
+     * Whether the exclusive state streams of a task for one checkpoint are appended into shared
+     * files.
+     */
+    @Documentation.Section(Documentation.Sections.EXPERT_STATE_BACKENDS)
+    public static final ConfigOption<Boolean> FS_FILE_MERGING_ENABLED =
+            ConfigOptions.key("state.storage.fs.file-merging.enabled")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription(
+                            "Whether the checkpoint state streams of a task which are exclusive to one checkpoint are"
+                                    + " appended into a few shared files instead of one file per stream. This reduces the"
+                                    + " number of files created per checkpoint, which helps file systems that throttle the"
+                                    + " request rate such as object stores. Shared state of incremental checkpoints and"
+                                    + " savepoints are always written to separate files.");
+
+    /** The size after which a shared checkpoint file is not appended to anymore. */
+    @Documentation.Section(Documentation.Sections.EXPERT_STATE_BACKENDS)
+    public static final ConfigOption<MemorySize> FS_FILE_MERGING_MAX_FILE_SIZE =
+            ConfigOptions.key("state.storage.fs.file-merging.max-file-size")
+                    .memoryType()
+                    .defaultValue(MemorySize.parse("32mb"))
+                    .withDescription(
+                            String.format(
+                                    "The size after which a shared checkpoint file is not appended to anymore if '%s'"
+                                            + " is enabled. Streams are never split, so files may be larger.",
+                                    FS_FILE_MERGING_ENABLED.key()));
+
     /**
      * The minimum size of state data files. All state chunks smaller than that are stored inline in
      * the root checkpoint metadata file.
@@ -269,4 +311,55 @@ public class CheckpointingOptions {
                                             + "The actual write buffer size is determined to be the maximum of the value of this option and option '%s'.",
                                     FS_SMALL_FILE_THRESHOLD.key()))
                     .withDeprecatedKeys("state.backend.fs.write-buffer-size");
+
+    /** The number of threads which read the channel state of a task in parallel on recovery. */
+    @Documentation.Section(Documentation.Sections.EXPERT_FAULT_TOLERANCE)
+    public static final ConfigOption<Integer> CHANNEL_STATE_RECOVERY_NUM_THREADS =
+            ConfigOptions.key("state.channel-state.recovery.num-threads")
+                    .intType()
+                    .defaultValue(1)
+                    .withDescription(
+                            "The number of threads per task which read the in-flight data of unaligned checkpoints"
+                                    + " from the checkpoint storage on recovery. With more than one thread, the state"
+                                    + " files are read in parallel ahead of the recovery of the channels, which still"
+                                    + " receive their data in order. One thread reads the files sequentially.");
+
+    /** The maximum amount of channel state read ahead on recovery. */
+    @Documentation.Section(Documentation.Sections.EXPERT_FAULT_TOLERANCE)
+    public static final ConfigOption<MemorySize> CHANNEL_STATE_RECOVERY_READ_AHEAD =
+            ConfigOptions.key("state.channel-state.recovery.read-ahead")
+                    .memoryType()
+                    .defaultValue(MemorySize.parse("16mb"))
+                    .withDescription(
+                            String.format(
+                                    "The maximum amount of in-flight data per task which is read ahead on recovery"
+                                            + " and not yet recovered into the channels, if '%s' is larger than one.",
+                                    CHANNEL_STATE_RECOVERY_NUM_THREADS.key()));
+
+    /** The number of threads shared by all tasks of a TaskManager to write the channel state. */
+    @Documentation.Section(Documentation.Sections.EXPERT_FAULT_TOLERANCE)
+    public static final ConfigOption<Integer> CHANNEL_STATE_WRITER_NUM_THREADS =
+            ConfigOptions.key("state.channel-state.writer.num-threads")
+                    .intType()
+                    .defaultValue(0)
+                    .withDescription(
+                            "The number of threads shared by all tasks of a TaskManager which write the in-flight"
+                                    + " data of unaligned checkpoints. The requests of each task are always executed"
+                                    + " by the same thread in order, and a thread serves its tasks in turns. The tasks"
+                                    + " of a job bound to the same thread write the in-flight data of a checkpoint"
+                                    + " into a shared file. If set to 0, each task uses a dedicated thread and file.");
+
+    /** The maximum rate at which a TaskManager writes checkpoint data to the checkpoint storage. */
+    @Documentation.Section(Documentation.Sections.EXPERT_FAULT_TOLERANCE)
+    public static final ConfigOption<MemorySize> CHECKPOINT_IO_RATE_LIMIT =
+            ConfigOptions.key("state.checkpoints.io.rate-limit")
+                    .memoryType()
+                    .defaultValue(MemorySize.ZERO)
+                    .withDescription(
+                            "The maximum amount of checkpoint data per second which all tasks of a TaskManager"
+                                    + " write to the checkpoint storage together, including keyed, operator and"
+                                    + " channel state. While the limit is reached, the state of rescale snapshots is"
+                                    + " written before the state of periodic checkpoints, which in turn is written"
+                                    + " before the state of savepoints. Bursts of up to one second of data are"
+                                    + " allowed. If set to 0, the rate is not limited.");
 }
@@ -196,6 +196,23 @@ public class NettyShuffleEnvironmentOptions {
                                     + " help relieve back-pressure caused by unbalanced data distribution among the subpartitions. This value should be"
                                     + " increased in case of higher round trip times between nodes and/or larger number of machines in the cluster.");
 
+    /**
+     * Maximum number of exclusive network buffers of all input channels of an input gate. The
+     * exclusive buffers per channel are reduced if the limit is exceeded.
+     */
+    @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+    public static final ConfigOption<Integer> NETWORK_MAX_EXCLUSIVE_BUFFERS_PER_GATE =
+            key("taskmanager.network.memory.max-exclusive-buffers-per-gate")
+                    .intType()
+                    .defaultValue(Integer.MAX_VALUE)
+                    .withDescription(
+                            "Maximum number of exclusive network buffers of all the input channels of an input gate."
+                                    + " If the number of input channels multiplied by the buffers per channel exceeds this"
+                                    + " value, for example after the upstream vertex was rescaled to a large parallelism,"
+                                    + " the exclusive buffers per channel are reduced accordingly (at least one buffer per"
+                                    + " channel is kept) and the released buffers are added to the floating buffers of the"
+                                    + " gate instead. By default the number of exclusive buffers per gate is not limited.");
+
     /** Minimum number of network buffers required per sort-merge blocking result partition. */
     @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
     public static final ConfigOption<Integer> NETWORK_SORT_SHUFFLE_MIN_BUFFERS =
@@ -241,6 +258,19 @@ public class NettyShuffleEnvironmentOptions {
                                     // this raw value must be changed correspondingly
                                     "taskmanager.memory.framework.off-heap.batch-shuffle.size"));
 
+    /** The way in which the data files of sort-merge blocking shuffle are read. */
+    @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+    public static final ConfigOption<String> NETWORK_SORT_SHUFFLE_READ_MODE =
+            key("taskmanager.network.sort-shuffle.read-mode")
+                    .stringType()
+                    .defaultValue("buffered")
+                    .withDescription(
+                            "The way in which the data files of sort-merge blocking shuffle are read, either \"buffered\" or"
+                                    + " \"mmap\". The \"buffered\" mode reads data into the batch shuffle read memory. The \"mmap\""
+                                    + " mode maps the data files into memory and does not use the batch shuffle read memory, data is"
+                                    + " transferred to the network without being copied if neither SSL nor compression is enabled."
+                                    + " Note that the memory usage of mmap is not accounted by configured memory limits.");
+
     /** Number of max buffers can be used for each output subparition. */
     @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
     public static final ConfigOption<Integer> NETWORK_MAX_BUFFERS_PER_CHANNEL =
@@ -343,6 +373,46 @@ public class NettyShuffleEnvironmentOptions {
                                     + " based on the platform. Note that the \"epoll\" mode can get better performance, less GC and have more advanced features which are"
                                     + " only available on modern Linux.");
 
+    /** Whether co-located TaskManagers exchange data via unix domain sockets instead of TCP. */
+    @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+    public static final ConfigOption<Boolean> LOCAL_TRANSPORT_ENABLED =
+            key("taskmanager.network.netty.local-transport.enabled")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription(
+                            "Whether TaskManagers running on the same host exchange data via unix domain sockets"
+                                    + " created in the local transport directory instead of TCP loopback connections."
+                                    + " Every TaskManager creates a socket named after its resource ID, so TaskManagers"
+                                    + " are considered co-located if they share this directory, independent of their"
+                                    + " network addresses or namespaces. Note that this is not a shared memory transport:"
+                                    + " the data is still copied through the kernel, only the TCP/IP stack is bypassed."
+                                    + " Connections to other TaskManagers, or if a domain socket can not be used, fall"
+                                    + " back to TCP. This requires the \"epoll\" transport and is not used if SSL is"
+                                    + " enabled for the data exchange.");
+
+    /** The directory in which the unix domain sockets of the local transport are created. */
+    @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+    public static final ConfigOption<String> LOCAL_TRANSPORT_DIR =
+            key("taskmanager.network.netty.local-transport.dir")
+                    .stringType()
+                    .defaultValue("/dev/shm")
+                    .withDescription(
+                            "The directory in which the unix domain sockets of the local transport are created."
+                                    + " It must be shared by all the TaskManagers on a host which should exchange data"
+                                    + " via the local transport, a memory backed file system is preferable.");
+
+    /** The order in which a netty server channel serves the subpartitions with available data. */
+    @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+    public static final ConfigOption<String> SERVER_READER_SCHEDULING =
+            key("taskmanager.network.netty.server.reader-scheduling")
+                    .stringType()
+                    .defaultValue("round-robin")
+                    .withDescription(
+                            "The order in which a netty server connection serves the subpartitions with available data,"
+                                    + " either \"round-robin\" or \"credit-weighted\". The \"credit-weighted\" policy prefers"
+                                    + " the subpartitions whose consumers have more credits, i.e. are starving rather than"
+                                    + " backpressured, while still serving every subpartition eventually.");
+
     // ------------------------------------------------------------------------
     //  Partition Request Options
     // ------------------------------------------------------------------------
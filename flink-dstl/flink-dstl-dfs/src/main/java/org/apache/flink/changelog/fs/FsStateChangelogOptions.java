@@ -131,4 +131,36 @@ public class FsStateChangelogOptions {
                     .defaultValue(Duration.ofMillis(500))
                     .withDescription(
                             "Delay before the next attempt (if the failure was not caused by a timeout).");
+
+    public static final ConfigOption<Boolean> LOCAL_CACHE_ENABLED =
+            ConfigOptions.key("dstl.dfs.download.local-cache.enabled")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription(
+                            "Whether to keep local copies of the uploaded and downloaded changelog files in the "
+                                    + "task manager temporary directories. Allows recovery of sub-tasks restarted "
+                                    + "(or rescaled) on the same task manager to read changelog from local disk.");
+
+    public static final ConfigOption<Duration> LOCAL_CACHE_IDLE_TIMEOUT =
+            ConfigOptions.key("dstl.dfs.download.local-cache.idle-timeout")
+                    .durationType()
+                    .defaultValue(Duration.ofMinutes(10))
+                    .withDescription(
+                            "Time after the upload or the last read after which a locally cached changelog file "
+                                    + "that is not being read is deleted. "
+                                    + "Only takes effect if "
+                                    + LOCAL_CACHE_ENABLED.key()
+                                    + " is true.");
+
+    public static final ConfigOption<Integer> NUM_DOWNLOAD_THREADS =
+            ConfigOptions.key("dstl.dfs.download.num-threads")
+                    .intType()
+                    .defaultValue(5)
+                    .withDescription(
+                            "Number of threads to use for downloading changelog files on recovery. "
+                                    + "Files referenced by a changelog handle are downloaded concurrently "
+                                    + "while the changes are applied in order. "
+                                    + "Only takes effect if "
+                                    + LOCAL_CACHE_ENABLED.key()
+                                    + " is true.");
 }
@@ -26,16 +26,19 @@ import org.apache.flink.runtime.state.changelog.ChangelogStateHandleStreamImpl;
 import org.apache.flink.runtime.state.changelog.StateChangelogHandleReader;
 import org.apache.flink.runtime.state.changelog.StateChangelogHandleStreamHandleReader;
 import org.apache.flink.runtime.state.changelog.StateChangelogStorage;
+import org.apache.flink.util.IOUtils;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
 import java.io.IOException;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.apache.flink.changelog.fs.FsStateChangelogOptions.LOCAL_CACHE_ENABLED;
 import static org.apache.flink.changelog.fs.FsStateChangelogOptions.PREEMPTIVE_PERSIST_THRESHOLD;
 
 /** Filesystem-based implementation of {@link StateChangelogStorage}. */
@@ -48,6 +51,9 @@ public class FsStateChangelogStorage
     private final StateChangeUploader uploader;
     private final long preEmptivePersistThresholdInBytes;
 
+    /** Local copies of the uploaded and downloaded changelog files, {@code null} if disabled. */
+    @Nullable private final StateChangeIteratorWithLocalCache localCache;
+
     /**
      * The log id is only needed on write to separate changes from different backends (i.e.
      * operators) in the resulting file.
@@ -56,8 +62,20 @@ public class FsStateChangelogStorage
 
     public FsStateChangelogStorage(Configuration config) throws IOException {
         this(
-                StateChangeUploader.fromConfig(config),
-                config.get(PREEMPTIVE_PERSIST_THRESHOLD).getBytes());
+                config,
+                config.get(LOCAL_CACHE_ENABLED)
+                        ? StateChangeIteratorWithLocalCache.fromConfig(
+                                new StateChangeFormat(), config)
+                        : null);
+    }
+
+    private FsStateChangelogStorage(
+            Configuration config, @Nullable StateChangeIteratorWithLocalCache localCache)
+            throws IOException {
+        this(
+                StateChangeUploader.fromConfig(config, localCache),
+                config.get(PREEMPTIVE_PERSIST_THRESHOLD).getBytes(),
+                localCache);
     }
 
     @VisibleForTesting
@@ -66,13 +84,17 @@ public class FsStateChangelogStorage
         this(
                 new StateChangeFsUploader(
                         basePath, basePath.getFileSystem(), compression, bufferSize),
-                PREEMPTIVE_PERSIST_THRESHOLD.defaultValue().getBytes());
+                PREEMPTIVE_PERSIST_THRESHOLD.defaultValue().getBytes(),
+                null);
     }
 
     private FsStateChangelogStorage(
-            StateChangeUploader uploader, long preEmptivePersistThresholdInBytes) {
+            StateChangeUploader uploader,
+            long preEmptivePersistThresholdInBytes,
+            @Nullable StateChangeIteratorWithLocalCache localCache) {
         this.uploader = uploader;
         this.preEmptivePersistThresholdInBytes = preEmptivePersistThresholdInBytes;
+        this.localCache = localCache;
     }
 
     @Override
@@ -85,11 +107,13 @@ public class FsStateChangelogStorage
 
     @Override
     public StateChangelogHandleReader<ChangelogStateHandleStreamImpl> createReader() {
-        return new StateChangelogHandleStreamHandleReader(new StateChangeFormat());
+        return localCache == null
+                ? new StateChangelogHandleStreamHandleReader(new StateChangeFormat())
+                : localCache.createReader();
     }
 
     @Override
     public void close() throws Exception {
-        uploader.close();
+        IOUtils.closeAll(uploader, localCache);
     }
 }
@@ -25,13 +25,19 @@ import org.apache.flink.runtime.state.StreamCompressionDecorator;
 import org.apache.flink.runtime.state.StreamStateHandle;
 import org.apache.flink.runtime.state.UncompressedStreamCompressionDecorator;
 import org.apache.flink.runtime.state.filesystem.FileStateHandle;
+import org.apache.flink.util.IOUtils;
 
 import org.apache.flink.shaded.guava30.com.google.common.io.Closer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Collection;
@@ -46,7 +52,8 @@ import static org.apache.flink.core.fs.FileSystem.WriteMode.NO_OVERWRITE;
 
 /**
  * A synchronous {@link StateChangeUploader} implementation that uploads the changes using {@link
- * FileSystem}.
+ * FileSystem}. If a local cache is given, a local copy of each file is written while uploading it
+ * and added to the cache once the upload succeeded.
  */
 class StateChangeFsUploader implements StateChangeUploader {
     private static final Logger LOG = LoggerFactory.getLogger(StateChangeFsUploader.class);
@@ -57,13 +64,26 @@ class StateChangeFsUploader implements StateChangeUploader {
     private final boolean compression;
     private final int bufferSize;
 
+    /** The cache to keep the local copies of the uploaded files in, {@code null} if disabled. */
+    @Nullable private final StateChangeIteratorWithLocalCache localCache;
+
     public StateChangeFsUploader(
             Path basePath, FileSystem fileSystem, boolean compression, int bufferSize) {
+        this(basePath, fileSystem, compression, bufferSize, null);
+    }
+
+    public StateChangeFsUploader(
+            Path basePath,
+            FileSystem fileSystem,
+            boolean compression,
+            int bufferSize,
+            @Nullable StateChangeIteratorWithLocalCache localCache) {
         this.basePath = basePath;
         this.fileSystem = fileSystem;
         this.format = new StateChangeFormat();
         this.compression = compression;
         this.bufferSize = bufferSize;
+        this.localCache = localCache;
     }
 
     @Override
@@ -93,18 +113,99 @@ class StateChangeFsUploader implements StateChangeUploader {
     }
 
     private LocalResult upload(Path path, Collection<UploadTask> tasks) throws IOException {
-        try (FSDataOutputStream fsStream = fileSystem.create(path, NO_OVERWRITE)) {
-            fsStream.write(compression ? 1 : 0);
-            try (OutputStreamWithPos stream = wrap(fsStream); ) {
-                final Map<UploadTask, Map<StateChangeSet, Long>> tasksOffsets = new HashMap<>();
-                for (UploadTask task : tasks) {
-                    tasksOffsets.put(task, format.write(stream, task.changeSets));
+        final LocalCopy localCopy =
+                localCache == null ? null : new LocalCopy(localCache.createLocalFile());
+        try {
+            final LocalResult result;
+            try (FSDataOutputStream fsStream = fileSystem.create(path, NO_OVERWRITE)) {
+                OutputStream out = localCopy == null ? fsStream : localCopy.copying(fsStream);
+                out.write(compression ? 1 : 0);
+                try (OutputStreamWithPos stream = wrap(out); ) {
+                    final Map<UploadTask, Map<StateChangeSet, Long>> tasksOffsets = new HashMap<>();
+                    for (UploadTask task : tasks) {
+                        tasksOffsets.put(task, format.write(stream, task.changeSets));
+                    }
+                    FileStateHandle handle = new FileStateHandle(path, stream.getPos());
+                    // WARN: streams have to be closed before returning the results
+                    // otherwise JM may receive invalid handles
+                    result = new LocalResult(tasksOffsets, handle);
                 }
-                FileStateHandle handle = new FileStateHandle(path, stream.getPos());
-                // WARN: streams have to be closed before returning the results
-                // otherwise JM may receive invalid handles
-                return new LocalResult(tasksOffsets, handle);
             }
+            if (localCopy != null && localCopy.closeAndCheck()) {
+                localCache.putLocalCopy(path, localCopy.file);
+            }
+            return result;
+        } finally {
+            if (localCopy != null && !localCopy.complete) {
+                localCopy.discard();
+            }
+        }
+    }
+
+    /**
+     * A local copy of an uploaded file. Failing to write the copy doesn't fail the upload, the file
+     * is then read remotely on recovery.
+     */
+    private static final class LocalCopy {
+        private final File file;
+        @Nullable private OutputStream copyStream;
+        private boolean complete;
+
+        private LocalCopy(File file) {
+            this.file = file;
+            try {
+                this.copyStream = new FileOutputStream(file);
+            } catch (IOException e) {
+                LOG.warn("Unable to create local copy {} of changelog file", file, e);
+            }
+        }
+
+        /** Returns a stream that writes to the given stream and to the local copy. */
+        private OutputStream copying(OutputStream target) {
+            return new FilterOutputStream(target) {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    copy(new byte[] {(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    copy(b, off, len);
+                }
+            };
+        }
+
+        private void copy(byte[] b, int off, int len) {
+            if (copyStream == null) {
+                return;
+            }
+            try {
+                copyStream.write(b, off, len);
+            } catch (IOException e) {
+                LOG.warn("Unable to write local copy {} of changelog file", file, e);
+                discard();
+            }
+        }
+
+        /** Closes the local copy and returns whether it is complete. */
+        private boolean closeAndCheck() {
+            if (copyStream != null) {
+                try {
+                    copyStream.close();
+                    complete = true;
+                } catch (IOException e) {
+                    LOG.warn("Unable to write local copy {} of changelog file", file, e);
+                }
+            }
+            return complete;
+        }
+
+        private void discard() {
+            IOUtils.closeQuietly(copyStream);
+            copyStream = null;
+            StateChangeIteratorWithLocalCache.deleteQuietly(file);
         }
     }
 
@@ -119,7 +220,7 @@ class StateChangeFsUploader implements StateChangeUploader {
         }
     }
 
-    private OutputStreamWithPos wrap(FSDataOutputStream fsStream) throws IOException {
+    private OutputStreamWithPos wrap(OutputStream fsStream) throws IOException {
         StreamCompressionDecorator instance =
                 compression
                         ? SnappyStreamCompressionDecorator.INSTANCE
@@ -0,0 +1,366 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.changelog.fs;
+
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.ConfigurationUtils;
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.changelog.ChangelogStateHandleStreamImpl;
+import org.apache.flink.runtime.state.changelog.StateChange;
+import org.apache.flink.runtime.state.changelog.StateChangelogHandleReader;
+import org.apache.flink.runtime.state.changelog.StateChangelogHandleStreamHandleReader;
+import org.apache.flink.runtime.state.changelog.StateChangelogHandleStreamHandleReader.StateChangeIterator;
+import org.apache.flink.runtime.state.filesystem.FileStateHandle;
+import org.apache.flink.util.CloseableIterator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.apache.flink.changelog.fs.FsStateChangelogOptions.LOCAL_CACHE_IDLE_TIMEOUT;
+import static org.apache.flink.changelog.fs.FsStateChangelogOptions.NUM_DOWNLOAD_THREADS;
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * A {@link StateChangeIterator} that reads the changes from local copies of the changelog files.
+ * The {@link StateChangeFsUploader} writes a {@link #putLocalCopy local copy} of each file it
+ * uploads, similar to local recovery of the keyed state backends; files without a local copy are
+ * downloaded on recovery. The copies are shared by all the readers and writers of this storage
+ * (i.e. by all the sub-tasks of a job on this task manager) and are kept for {@link
+ * FsStateChangelogOptions#LOCAL_CACHE_IDLE_TIMEOUT} after the upload or the last read, so that a
+ * sub-task that is restarted or rescaled on the same task manager doesn't need to download them.
+ *
+ * <p>{@link #createReader() Readers} start downloading all the files referenced by a handle at
+ * once; the changes are still read (and applied) in order. A file whose download is still in
+ * progress when it is read is read remotely instead of waiting for the download.
+ */
+@ThreadSafe
+class StateChangeIteratorWithLocalCache implements StateChangeIterator, AutoCloseable {
+    private static final Logger LOG =
+            LoggerFactory.getLogger(StateChangeIteratorWithLocalCache.class);
+
+    private static final String CACHE_FILE_PREFIX = "dstl-";
+
+    private final StateChangeIterator delegate;
+    private final File[] cacheDirs;
+    private final AtomicInteger nextCacheDir = new AtomicInteger(0);
+    private final ScheduledExecutorService executor;
+    private final long idleTimeoutMs;
+
+    private final Object lock = new Object();
+
+    @GuardedBy("lock")
+    private final Map<Path, CachedFile> cachedFiles = new HashMap<>();
+
+    @GuardedBy("lock")
+    private boolean closed;
+
+    static StateChangeIteratorWithLocalCache fromConfig(
+            StateChangeIterator delegate, Configuration config) {
+        File[] cacheDirs =
+                Arrays.stream(ConfigurationUtils.parseTempDirectories(config))
+                        .map(File::new)
+                        .toArray(File[]::new);
+        return new StateChangeIteratorWithLocalCache(
+                delegate,
+                cacheDirs,
+                SchedulerFactory.create(
+                        config.get(NUM_DOWNLOAD_THREADS), "ChangelogDownloadScheduler", LOG),
+                config.get(LOCAL_CACHE_IDLE_TIMEOUT).toMillis());
+    }
+
+    StateChangeIteratorWithLocalCache(
+            StateChangeIterator delegate,
+            File[] cacheDirs,
+            ScheduledExecutorService executor,
+            long idleTimeoutMs) {
+        checkArgument(cacheDirs.length > 0, "No directories to cache changelog");
+        checkArgument(idleTimeoutMs >= 0);
+        this.delegate = delegate;
+        this.cacheDirs = cacheDirs;
+        this.executor = executor;
+        this.idleTimeoutMs = idleTimeoutMs;
+    }
+
+    /**
+     * Create a reader that downloads all the files of a handle concurrently before reading its
+     * changes.
+     */
+    StateChangelogHandleReader<ChangelogStateHandleStreamImpl> createReader() {
+        return new StateChangelogHandleStreamHandleReader(this) {
+            @Override
+            public CloseableIterator<StateChange> getChanges(ChangelogStateHandleStreamImpl handle)
+                    throws IOException {
+                prefetch(handle);
+                return super.getChanges(handle);
+            }
+        };
+    }
+
+    /** Start downloading all the files referenced by the given handle, unless already cached. */
+    void prefetch(ChangelogStateHandleStreamImpl handle) throws IOException {
+        synchronized (lock) {
+            checkNotClosed();
+            for (Tuple2<StreamStateHandle, Long> handleAndOffset : handle.getHandlesAndOffsets()) {
+                if (handleAndOffset.f0 instanceof FileStateHandle) {
+                    CachedFile cachedFile = getOrDownload((FileStateHandle) handleAndOffset.f0);
+                    if (cachedFile.refCount == 0) {
+                        scheduleExpiration(cachedFile);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public CloseableIterator<StateChange> read(StreamStateHandle handle, long offset)
+            throws IOException {
+        if (!(handle instanceof FileStateHandle)) {
+            return delegate.read(handle, offset);
+        }
+        CachedFile cachedFile = acquire((FileStateHandle) handle);
+        if (!cachedFile.download.isDone()) {
+            // don't wait for the whole file, it is still downloaded for the next readers
+            LOG.debug("read {} remotely, the download is in progress", handle);
+            release(cachedFile);
+            return delegate.read(handle, offset);
+        }
+        File localFile;
+        try {
+            localFile = cachedFile.download.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            release(cachedFile);
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            LOG.warn("Unable to download {}, reading it remotely", handle, e.getCause());
+            release(cachedFile);
+            return delegate.read(handle, offset);
+        }
+        LOG.debug("read {} from the local copy {}", handle, localFile);
+        CloseableIterator<StateChange> iterator;
+        try {
+            iterator =
+                    delegate.read(
+                            new FileStateHandle(Path.fromLocalFile(localFile), localFile.length()),
+                            offset);
+        } catch (Exception e) {
+            release(cachedFile);
+            throw e;
+        }
+        return new CloseableIterator<StateChange>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public StateChange next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() throws Exception {
+                try {
+                    iterator.close();
+                } finally {
+                    release(cachedFile);
+                }
+            }
+        };
+    }
+
+    private CachedFile acquire(FileStateHandle handle) throws IOException {
+        synchronized (lock) {
+            checkNotClosed();
+            CachedFile cachedFile = getOrDownload(handle);
+            cachedFile.refCount++;
+            return cachedFile;
+        }
+    }
+
+    private void release(CachedFile cachedFile) {
+        synchronized (lock) {
+            cachedFile.accessCount++;
+            if (--cachedFile.refCount == 0) {
+                if (cachedFile.download.isCompletedExceptionally()) {
+                    // let the next reader retry
+                    cachedFiles.remove(cachedFile.remotePath, cachedFile);
+                } else if (!closed) {
+                    scheduleExpiration(cachedFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Create a new file in one of the cache directories for a local copy of a changelog file, see
+     * {@link #putLocalCopy}.
+     */
+    File createLocalFile() {
+        return new File(
+                cacheDirs[(nextCacheDir.getAndIncrement() & Integer.MAX_VALUE) % cacheDirs.length],
+                CACHE_FILE_PREFIX + UUID.randomUUID());
+    }
+
+    /**
+     * Add a local copy of the given uploaded changelog file, so that it is read locally on
+     * recovery. The local file is deleted if the cache is closed or already has a copy.
+     */
+    void putLocalCopy(Path remotePath, File localFile) {
+        synchronized (lock) {
+            if (closed || cachedFiles.containsKey(remotePath)) {
+                deleteQuietly(localFile);
+                return;
+            }
+            CachedFile cachedFile =
+                    new CachedFile(remotePath, CompletableFuture.completedFuture(localFile));
+            cachedFiles.put(remotePath, cachedFile);
+            scheduleExpiration(cachedFile);
+        }
+        LOG.debug("keep local copy {} of {}", localFile, remotePath);
+    }
+
+    @GuardedBy("lock")
+    private void checkNotClosed() throws IOException {
+        if (closed) {
+            throw new IOException("The local changelog cache is closed.");
+        }
+    }
+
+    @GuardedBy("lock")
+    private CachedFile getOrDownload(FileStateHandle handle) {
+        CachedFile cachedFile = cachedFiles.get(handle.getFilePath());
+        if (cachedFile == null) {
+            CompletableFuture<File> download = new CompletableFuture<>();
+            executor.execute(
+                    () -> {
+                        try {
+                            File localFile = download(handle);
+                            if (!download.complete(localFile)) {
+                                // closed while downloading
+                                deleteQuietly(localFile);
+                            }
+                        } catch (Exception e) {
+                            download.completeExceptionally(e);
+                        }
+                    });
+            cachedFile = new CachedFile(handle.getFilePath(), download);
+            cachedFiles.put(cachedFile.remotePath, cachedFile);
+        }
+        cachedFile.accessCount++;
+        return cachedFile;
+    }
+
+    @GuardedBy("lock")
+    private void scheduleExpiration(CachedFile cachedFile) {
+        long accessCount = cachedFile.accessCount;
+        executor.schedule(
+                () -> {
+                    synchronized (lock) {
+                        if (cachedFile.refCount == 0
+                                && cachedFile.accessCount == accessCount
+                                && cachedFiles.remove(cachedFile.remotePath, cachedFile)) {
+                            LOG.debug("remove idle local copy of {}", cachedFile.remotePath);
+                            discard(cachedFile);
+                        }
+                    }
+                },
+                idleTimeoutMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    private File download(FileStateHandle handle) throws IOException {
+        File localFile = createLocalFile();
+        try (FSDataInputStream input = handle.openInputStream()) {
+            Files.copy(input, localFile.toPath());
+        } catch (IOException e) {
+            deleteQuietly(localFile);
+            throw e;
+        }
+        LOG.debug("downloaded {} to {}", handle.getFilePath(), localFile);
+        return localFile;
+    }
+
+    private static void discard(CachedFile cachedFile) {
+        // the download might still be in progress
+        cachedFile.download.thenAccept(StateChangeIteratorWithLocalCache::deleteQuietly);
+    }
+
+    static void deleteQuietly(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            LOG.warn("Unable to delete {}", file, e);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        LOG.debug("close");
+        synchronized (lock) {
+            closed = true;
+            for (CachedFile cachedFile : cachedFiles.values()) {
+                cachedFile.download.completeExceptionally(new IllegalStateException("closed"));
+                discard(cachedFile);
+            }
+            cachedFiles.clear();
+        }
+        executor.shutdownNow();
+        if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+            LOG.warn("Unable to cleanly shutdown executorService in 1s");
+        }
+    }
+
+    private static final class CachedFile {
+        private final Path remotePath;
+        private final CompletableFuture<File> download;
+
+        /** The number of readers of this file. */
+        @GuardedBy("lock")
+        private int refCount;
+
+        /** Incremented on each access to invalidate any previously scheduled expiration. */
+        @GuardedBy("lock")
+        private long accessCount;
+
+        private CachedFile(Path remotePath, CompletableFuture<File> download) {
+            this.remotePath = remotePath;
+            this.download = download;
+        }
+    }
+}
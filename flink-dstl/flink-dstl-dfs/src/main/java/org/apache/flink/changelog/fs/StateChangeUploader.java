@@ -21,6 +21,7 @@ import org.apache.flink.configuration.ReadableConfig;
 import org.apache.flink.core.fs.Path;
 import org.apache.flink.runtime.state.changelog.SequenceNumber;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
 import java.io.IOException;
@@ -67,7 +68,9 @@ interface StateChangeUploader extends AutoCloseable {
         }
     }
 
-    static StateChangeUploader fromConfig(ReadableConfig config) throws IOException {
+    static StateChangeUploader fromConfig(
+            ReadableConfig config, @Nullable StateChangeIteratorWithLocalCache localCache)
+            throws IOException {
         Path basePath = new Path(config.get(BASE_PATH));
         long bytes = config.get(UPLOAD_BUFFER_SIZE).getBytes();
         checkArgument(bytes <= Integer.MAX_VALUE);
@@ -77,7 +80,8 @@ interface StateChangeUploader extends AutoCloseable {
                         basePath,
                         basePath.getFileSystem(),
                         config.get(COMPRESSION_ENABLED),
-                        bufferSize);
+                        bufferSize,
+                        localCache);
         BatchingStateChangeUploader batchingStore =
                 new BatchingStateChangeUploader(
                         config.get(PERSIST_DELAY).toMillis(),
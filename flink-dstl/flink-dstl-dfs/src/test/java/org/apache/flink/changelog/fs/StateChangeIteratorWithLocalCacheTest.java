@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.changelog.fs;
+
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.core.testutils.ManuallyTriggeredScheduledExecutorService;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.changelog.ChangelogStateHandleStreamImpl;
+import org.apache.flink.runtime.state.changelog.StateChange;
+import org.apache.flink.runtime.state.changelog.StateChangelogHandleReader;
+import org.apache.flink.util.CloseableIterator;
+import org.apache.flink.util.FileUtils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/** {@link StateChangeIteratorWithLocalCache} test. */
+public class StateChangeIteratorWithLocalCacheTest {
+
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testReadFromLocalCopy() throws Exception {
+        File remoteDir = temporaryFolder.newFolder();
+        File cacheDir = temporaryFolder.newFolder();
+        List<byte[]> expected = generateChanges();
+        ChangelogStateHandleStreamImpl handle = write(remoteDir, expected);
+
+        ManuallyTriggeredScheduledExecutorService executor =
+                new ManuallyTriggeredScheduledExecutorService();
+        try (StateChangeIteratorWithLocalCache cache =
+                new StateChangeIteratorWithLocalCache(
+                        new StateChangeFormat(), new File[] {cacheDir}, executor, 0L)) {
+            StateChangelogHandleReader<ChangelogStateHandleStreamImpl> reader =
+                    cache.createReader();
+
+            assertChangesEqual(expected, read(reader, handle, executor));
+            assertEquals(1, listFiles(cacheDir).length);
+
+            // the remote file is no longer needed
+            FileUtils.deleteDirectory(remoteDir);
+            assertChangesEqual(expected, read(reader, handle, executor));
+
+            executor.triggerScheduledTasks();
+            assertEquals(0, listFiles(cacheDir).length);
+        }
+    }
+
+    @Test
+    public void testReadRemotelyIfDownloadFailed() throws Exception {
+        File remoteDir = temporaryFolder.newFolder();
+        File missingCacheDir = new File(temporaryFolder.getRoot(), "missing");
+        List<byte[]> expected = generateChanges();
+        ChangelogStateHandleStreamImpl handle = write(remoteDir, expected);
+
+        ManuallyTriggeredScheduledExecutorService executor =
+                new ManuallyTriggeredScheduledExecutorService();
+        try (StateChangeIteratorWithLocalCache cache =
+                new StateChangeIteratorWithLocalCache(
+                        new StateChangeFormat(), new File[] {missingCacheDir}, executor, 0L)) {
+            assertChangesEqual(expected, read(cache.createReader(), handle, executor));
+        }
+    }
+
+    @Test
+    public void testCloseDeletesLocalCopies() throws Exception {
+        File cacheDir = temporaryFolder.newFolder();
+        ChangelogStateHandleStreamImpl handle =
+                write(temporaryFolder.newFolder(), generateChanges());
+
+        ManuallyTriggeredScheduledExecutorService executor =
+                new ManuallyTriggeredScheduledExecutorService();
+        StateChangeIteratorWithLocalCache cache =
+                new StateChangeIteratorWithLocalCache(
+                        new StateChangeFormat(), new File[] {cacheDir}, executor, 0L);
+        cache.prefetch(handle);
+        executor.triggerAll();
+        assertEquals(1, listFiles(cacheDir).length);
+
+        cache.close();
+        assertEquals(0, listFiles(cacheDir).length);
+    }
+
+    @Test
+    public void testReadLocalCopyOfUpload() throws Exception {
+        File remoteDir = temporaryFolder.newFolder();
+        File cacheDir = temporaryFolder.newFolder();
+        List<byte[]> expected = generateChanges();
+
+        ManuallyTriggeredScheduledExecutorService executor =
+                new ManuallyTriggeredScheduledExecutorService();
+        try (StateChangeIteratorWithLocalCache cache =
+                new StateChangeIteratorWithLocalCache(
+                        new StateChangeFormat(), new File[] {cacheDir}, executor, 0L)) {
+            ChangelogStateHandleStreamImpl handle;
+            try (FsStateChangelogWriter writer =
+                    new FsStateChangelogWriter(
+                            UUID.randomUUID(),
+                            KeyGroupRange.of(0, 0),
+                            new StateChangeFsUploader(
+                                    Path.fromLocalFile(remoteDir),
+                                    Path.fromLocalFile(remoteDir).getFileSystem(),
+                                    false,
+                                    1024,
+                                    cache),
+                            Long.MAX_VALUE)) {
+                for (byte[] change : expected) {
+                    writer.append(0, change);
+                }
+                handle = writer.persist(writer.initialSequenceNumber()).get();
+            }
+            assertEquals(1, listFiles(cacheDir).length);
+
+            // the changes are read from the local copy without downloading it
+            FileUtils.deleteDirectory(remoteDir);
+            assertEquals(0, executor.numQueuedRunnables());
+            assertChangesEqual(expected, read(cache.createReader(), handle, executor));
+
+            executor.triggerScheduledTasks();
+            assertEquals(0, listFiles(cacheDir).length);
+        }
+    }
+
+    @Test
+    public void testReadRemotelyWhileDownloading() throws Exception {
+        File cacheDir = temporaryFolder.newFolder();
+        List<byte[]> expected = generateChanges();
+        ChangelogStateHandleStreamImpl handle = write(temporaryFolder.newFolder(), expected);
+
+        ManuallyTriggeredScheduledExecutorService executor =
+                new ManuallyTriggeredScheduledExecutorService();
+        try (StateChangeIteratorWithLocalCache cache =
+                new StateChangeIteratorWithLocalCache(
+                        new StateChangeFormat(), new File[] {cacheDir}, executor, 0L)) {
+            List<byte[]> changes = new ArrayList<>();
+            try (CloseableIterator<StateChange> iterator =
+                    cache.createReader().getChanges(handle)) {
+                // the download is not run, so reading must not wait for it
+                while (iterator.hasNext()) {
+                    changes.add(iterator.next().getChange());
+                }
+            }
+            assertChangesEqual(expected, changes);
+
+            executor.triggerAll();
+            assertEquals(1, listFiles(cacheDir).length);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testPrefetchFailsIfClosed() throws Exception {
+        ChangelogStateHandleStreamImpl handle =
+                write(temporaryFolder.newFolder(), generateChanges());
+        StateChangeIteratorWithLocalCache cache =
+                new StateChangeIteratorWithLocalCache(
+                        new StateChangeFormat(),
+                        new File[] {temporaryFolder.newFolder()},
+                        new ManuallyTriggeredScheduledExecutorService(),
+                        0L);
+        cache.close();
+        cache.prefetch(handle);
+    }
+
+    private static ChangelogStateHandleStreamImpl write(File dir, List<byte[]> changes)
+            throws Exception {
+        try (FsStateChangelogStorage storage =
+                        new FsStateChangelogStorage(Path.fromLocalFile(dir), false, 1024);
+                FsStateChangelogWriter writer =
+                        storage.createWriter("operator", KeyGroupRange.of(0, 0))) {
+            for (byte[] change : changes) {
+                writer.append(0, change);
+            }
+            return writer.persist(writer.initialSequenceNumber()).get();
+        }
+    }
+
+    private static List<byte[]> read(
+            StateChangelogHandleReader<ChangelogStateHandleStreamImpl> reader,
+            ChangelogStateHandleStreamImpl handle,
+            ManuallyTriggeredScheduledExecutorService executor)
+            throws Exception {
+        List<byte[]> changes = new ArrayList<>();
+        try (CloseableIterator<StateChange> iterator = reader.getChanges(handle)) {
+            executor.triggerAll(); // complete the downloads started by the reader
+            while (iterator.hasNext()) {
+                changes.add(iterator.next().getChange());
+            }
+        }
+        return changes;
+    }
+
+    private static List<byte[]> generateChanges() {
+        List<byte[]> changes = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            changes.add(new byte[] {(byte) i, (byte) (i >> 8)});
+        }
+        return changes;
+    }
+
+    private static void assertChangesEqual(List<byte[]> expected, List<byte[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+
+    private static File[] listFiles(File dir) {
+        return Objects.requireNonNull(dir.listFiles());
+    }
+}
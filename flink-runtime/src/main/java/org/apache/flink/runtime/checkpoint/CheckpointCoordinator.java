@@ -58,7 +58,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
-import javax.annotation.concurrent.GuardedBy;
 
 import java.io.IOException;
 import java.util.ArrayDeque;
@@ -67,15 +66,16 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Optional;
 import java.util.OptionalLong;
 import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
@@ -122,9 +122,12 @@ public class CheckpointCoordinator {
     /** The operator coordinators that need to be checkpointed. */
     private final Collection<OperatorCoordinatorCheckpointContext> coordinatorsToCheckpoint;
 
-    /** Map from checkpoint ID to the pending checkpoint. */
-    @GuardedBy("lock")
-    private final Map<Long, PendingCheckpoint> pendingCheckpoints;
+    /**
+     * Map from checkpoint ID to the pending checkpoint, ordered by checkpoint ID. Modifications
+     * happen under the coordinator-wide lock, but acknowledgements look up their pending checkpoint
+     * without it.
+     */
+    private final NavigableMap<Long, PendingCheckpoint> pendingCheckpoints;
 
     /**
      * Completed checkpoints. Implementations can be blocking. Make sure calls to methods accessing
@@ -303,7 +306,7 @@ public class CheckpointCoordinator {
         this.minPauseBetweenCheckpoints = minPauseBetweenCheckpoints;
         this.coordinatorsToCheckpoint =
                 Collections.unmodifiableCollection(coordinatorsToCheckpoint);
-        this.pendingCheckpoints = new LinkedHashMap<>();
+        this.pendingCheckpoints = new ConcurrentSkipListMap<>();
         this.checkpointIdCounter = checkNotNull(checkpointIDCounter);
         this.completedCheckpointStore = checkNotNull(completedCheckpointStore);
         this.executor = checkNotNull(executor);
@@ -993,6 +996,24 @@ public class CheckpointCoordinator {
         return true;
     }
 
+    /**
+     * Completes the given pending checkpoint after its last acknowledgement was ingested, unless a
+     * concurrent acknowledgement already completed it or it was aborted in the meantime.
+     */
+    private void maybeCompleteAcknowledgedCheckpoint(PendingCheckpoint checkpoint)
+            throws CheckpointException {
+        synchronized (lock) {
+            // we need to check inside the lock for being shutdown as well,
+            // otherwise we get races and invalid error log messages.
+            if (shutdown
+                    || pendingCheckpoints.get(checkpoint.getCheckpointId()) != checkpoint
+                    || !checkpoint.isFullyAcknowledged()) {
+                return;
+            }
+            completePendingCheckpoint(checkpoint);
+        }
+    }
+
     // --------------------------------------------------------------------------------------------
     //  Handling checkpoints and messages
     // --------------------------------------------------------------------------------------------
@@ -1102,6 +1123,75 @@ public class CheckpointCoordinator {
 
         final long checkpointId = message.getCheckpointId();
 
+        // the acknowledgement is ingested without holding the coordinator-wide lock, the pending
+        // checkpoint guards its own bookkeeping, so that many concurrent acknowledgements don't
+        // contend with each other and with the rest of the coordinator. Only the completion of
+        // the checkpoint and the handling of unknown checkpoints need the lock.
+        final PendingCheckpoint checkpoint = pendingCheckpoints.get(checkpointId);
+
+        if (checkpoint != null) {
+            switch (checkpoint.acknowledgeTask(
+                    message.getTaskExecutionId(),
+                    message.getSubtaskState(),
+                    message.getCheckpointMetrics(),
+                    getStatsCallback(checkpoint))) {
+                case SUCCESS:
+                    LOG.debug(
+                            "Received acknowledge message for checkpoint {} from task {} of job {} at {}.",
+                            checkpointId,
+                            message.getTaskExecutionId(),
+                            message.getJob(),
+                            taskManagerLocationInfo);
+
+                    if (checkpoint.isFullyAcknowledged()) {
+                        maybeCompleteAcknowledgedCheckpoint(checkpoint);
+                    }
+                    break;
+                case DUPLICATE:
+                    LOG.debug(
+                            "Received a duplicate acknowledge message for checkpoint {}, task {}, job {}, location {}.",
+                            message.getCheckpointId(),
+                            message.getTaskExecutionId(),
+                            message.getJob(),
+                            taskManagerLocationInfo);
+                    break;
+                case UNKNOWN:
+                    LOG.warn(
+                            "Could not acknowledge the checkpoint {} for task {} of job {} at {}, "
+                                    + "because the task's execution attempt id was unknown. Discarding "
+                                    + "the state handle to avoid lingering state.",
+                            message.getCheckpointId(),
+                            message.getTaskExecutionId(),
+                            message.getJob(),
+                            taskManagerLocationInfo);
+
+                    discardSubtaskState(
+                            message.getJob(),
+                            message.getTaskExecutionId(),
+                            message.getCheckpointId(),
+                            message.getSubtaskState());
+
+                    break;
+                case DISCARDED:
+                    LOG.warn(
+                            "Could not acknowledge the checkpoint {} for task {} of job {} at {}, "
+                                    + "because the pending checkpoint had been discarded. Discarding the "
+                                    + "state handle tp avoid lingering state.",
+                            message.getCheckpointId(),
+                            message.getTaskExecutionId(),
+                            message.getJob(),
+                            taskManagerLocationInfo);
+
+                    discardSubtaskState(
+                            message.getJob(),
+                            message.getTaskExecutionId(),
+                            message.getCheckpointId(),
+                            message.getSubtaskState());
+            }
+
+            return true;
+        }
+
         synchronized (lock) {
             // we need to check inside the lock for being shutdown as well, otherwise we
             // get races and invalid error log messages
@@ -1109,111 +1199,40 @@ public class CheckpointCoordinator {
                 return false;
             }
 
-            final PendingCheckpoint checkpoint = pendingCheckpoints.get(checkpointId);
-
-            if (checkpoint != null && !checkpoint.isDisposed()) {
+            reportStats(
+                    message.getCheckpointId(),
+                    message.getTaskExecutionId(),
+                    message.getCheckpointMetrics());
+            boolean wasPendingCheckpoint;
 
-                switch (checkpoint.acknowledgeTask(
+            // message is for an unknown checkpoint, or comes too late (checkpoint disposed)
+            if (recentPendingCheckpoints.contains(checkpointId)) {
+                wasPendingCheckpoint = true;
+                LOG.warn(
+                        "Received late message for now expired checkpoint attempt {} from task "
+                                + "{} of job {} at {}.",
+                        checkpointId,
                         message.getTaskExecutionId(),
-                        message.getSubtaskState(),
-                        message.getCheckpointMetrics(),
-                        getStatsCallback(checkpoint))) {
-                    case SUCCESS:
-                        LOG.debug(
-                                "Received acknowledge message for checkpoint {} from task {} of job {} at {}.",
-                                checkpointId,
-                                message.getTaskExecutionId(),
-                                message.getJob(),
-                                taskManagerLocationInfo);
-
-                        if (checkpoint.isFullyAcknowledged()) {
-                            completePendingCheckpoint(checkpoint);
-                        }
-                        break;
-                    case DUPLICATE:
-                        LOG.debug(
-                                "Received a duplicate acknowledge message for checkpoint {}, task {}, job {}, location {}.",
-                                message.getCheckpointId(),
-                                message.getTaskExecutionId(),
-                                message.getJob(),
-                                taskManagerLocationInfo);
-                        break;
-                    case UNKNOWN:
-                        LOG.warn(
-                                "Could not acknowledge the checkpoint {} for task {} of job {} at {}, "
-                                        + "because the task's execution attempt id was unknown. Discarding "
-                                        + "the state handle to avoid lingering state.",
-                                message.getCheckpointId(),
-                                message.getTaskExecutionId(),
-                                message.getJob(),
-                                taskManagerLocationInfo);
-
-                        discardSubtaskState(
-                                message.getJob(),
-                                message.getTaskExecutionId(),
-                                message.getCheckpointId(),
-                                message.getSubtaskState());
-
-                        break;
-                    case DISCARDED:
-                        LOG.warn(
-                                "Could not acknowledge the checkpoint {} for task {} of job {} at {}, "
-                                        + "because the pending checkpoint had been discarded. Discarding the "
-                                        + "state handle tp avoid lingering state.",
-                                message.getCheckpointId(),
-                                message.getTaskExecutionId(),
-                                message.getJob(),
-                                taskManagerLocationInfo);
-
-                        discardSubtaskState(
-                                message.getJob(),
-                                message.getTaskExecutionId(),
-                                message.getCheckpointId(),
-                                message.getSubtaskState());
-                }
-
-                return true;
-            } else if (checkpoint != null) {
-                // this should not happen
-                throw new IllegalStateException(
-                        "Received message for discarded but non-removed checkpoint "
-                                + checkpointId);
+                        message.getJob(),
+                        taskManagerLocationInfo);
             } else {
-                reportStats(
-                        message.getCheckpointId(),
+                LOG.debug(
+                        "Received message for an unknown checkpoint {} from task {} of job {} at {}.",
+                        checkpointId,
                         message.getTaskExecutionId(),
-                        message.getCheckpointMetrics());
-                boolean wasPendingCheckpoint;
-
-                // message is for an unknown checkpoint, or comes too late (checkpoint disposed)
-                if (recentPendingCheckpoints.contains(checkpointId)) {
-                    wasPendingCheckpoint = true;
-                    LOG.warn(
-                            "Received late message for now expired checkpoint attempt {} from task "
-                                    + "{} of job {} at {}.",
-                            checkpointId,
-                            message.getTaskExecutionId(),
-                            message.getJob(),
-                            taskManagerLocationInfo);
-                } else {
-                    LOG.debug(
-                            "Received message for an unknown checkpoint {} from task {} of job {} at {}.",
-                            checkpointId,
-                            message.getTaskExecutionId(),
-                            message.getJob(),
-                            taskManagerLocationInfo);
-                    wasPendingCheckpoint = false;
-                }
-
-                // try to discard the state so that we don't have lingering state lying around
-                discardSubtaskState(
                         message.getJob(),
-                        message.getTaskExecutionId(),
-                        message.getCheckpointId(),
-                        message.getSubtaskState());
-
-                return wasPendingCheckpoint;
+                        taskManagerLocationInfo);
+                wasPendingCheckpoint = false;
             }
+
+            // try to discard the state so that we don't have lingering state lying around
+            discardSubtaskState(
+                    message.getJob(),
+                    message.getTaskExecutionId(),
+                    message.getCheckpointId(),
+                    message.getSubtaskState());
+
+            return wasPendingCheckpoint;
         }
     }
 
@@ -102,15 +102,6 @@ public class CheckpointOptions implements Serializable {
                 alignedCheckpointTimeout);
     }
 
-    private static CheckpointOptions forceAligned(
-            CheckpointStorageLocationReference location, long alignedCheckpointTimeout) {
-        return new CheckpointOptions(
-                CheckpointType.CHECKPOINT,
-                location,
-                AlignmentType.FORCED_ALIGNED,
-                alignedCheckpointTimeout);
-    }
-
     public static CheckpointOptions forConfig(
             CheckpointType checkpointType,
             CheckpointStorageLocationReference locationReference,
@@ -141,6 +132,16 @@ public class CheckpointOptions implements Serializable {
         CheckpointOptions checkpointOptions;
         if (!isExactlyOnceMode) {
             checkpointOptions = notExactlyOnce(checkpointType, locationReference);
+        } else if (isUnalignedEnabled && isRescaling(snapshotGroup)) {
+            // rescale snapshots are only restored by the running job itself, so instead of
+            // blocking the upstream tasks until the barriers are aligned, the in-flight data can
+            // be persisted together with the operator state
+            return new CheckpointOptions(
+                    checkpointType,
+                    locationReference,
+                    AlignmentType.UNALIGNED,
+                    NO_ALIGNED_CHECKPOINT_TIME_OUT,
+                    snapshotGroup);
         } else if (checkpointType.isSavepoint()) {
             checkpointOptions = alignedNoTimeout(checkpointType, locationReference);
         } else if (!isUnalignedEnabled) {
@@ -178,7 +179,9 @@ public class CheckpointOptions implements Serializable {
             String snapshotGroup) {
 
         checkArgument(
-                alignmentType != AlignmentType.UNALIGNED || !checkpointType.isSavepoint(),
+                alignmentType != AlignmentType.UNALIGNED
+                        || !checkpointType.isSavepoint()
+                        || isRescaling(snapshotGroup),
                 "Savepoint can't be unaligned");
         checkArgument(
                 alignedCheckpointTimeout == NO_ALIGNED_CHECKPOINT_TIME_OUT
@@ -194,7 +197,8 @@ public class CheckpointOptions implements Serializable {
 
     public boolean needsAlignment() {
         return isExactlyOnceMode()
-                && (getCheckpointType().isSavepoint() || !isUnalignedCheckpoint());
+                && ((getCheckpointType().isSavepoint() && !isRescaling())
+                        || !isUnalignedCheckpoint());
     }
 
     public long getAlignedCheckpointTimeout() {
@@ -236,16 +240,26 @@ public class CheckpointOptions implements Serializable {
 
     public CheckpointOptions withUnalignedSupported() {
         if (alignmentType == AlignmentType.FORCED_ALIGNED) {
-            return alignedCheckpointTimeout != NO_ALIGNED_CHECKPOINT_TIME_OUT
-                    ? alignedWithTimeout(targetLocation, alignedCheckpointTimeout)
-                    : unaligned(targetLocation);
+            return new CheckpointOptions(
+                    checkpointType,
+                    targetLocation,
+                    alignedCheckpointTimeout != NO_ALIGNED_CHECKPOINT_TIME_OUT
+                            ? AlignmentType.ALIGNED
+                            : AlignmentType.UNALIGNED,
+                    alignedCheckpointTimeout,
+                    snapshotGroup);
         }
         return this;
     }
 
     public CheckpointOptions withUnalignedUnsupported() {
         if (isUnalignedCheckpoint() || isTimeoutable()) {
-            return forceAligned(targetLocation, alignedCheckpointTimeout);
+            return new CheckpointOptions(
+                    checkpointType,
+                    targetLocation,
+                    AlignmentType.FORCED_ALIGNED,
+                    alignedCheckpointTimeout,
+                    snapshotGroup);
         }
         return this;
     }
@@ -302,14 +316,20 @@ public class CheckpointOptions implements Serializable {
 
     public CheckpointOptions toUnaligned() {
         checkState(alignmentType == AlignmentType.ALIGNED);
-        return unaligned(targetLocation);
+        return new CheckpointOptions(
+                checkpointType,
+                targetLocation,
+                AlignmentType.UNALIGNED,
+                NO_ALIGNED_CHECKPOINT_TIME_OUT,
+                snapshotGroup);
     }
 
     public boolean isRescaling() {
-        if (getSnapshotGroup() != null) {
-            return getSnapshotGroup().startsWith("rescale-");
-        }
-        return false;
+        return isRescaling(getSnapshotGroup());
+    }
+
+    private static boolean isRescaling(@Nullable String snapshotGroup) {
+        return snapshotGroup != null && snapshotGroup.startsWith("rescale-");
     }
 
     public Set<String> getBlockedJobVertexIdsForRescaling() {
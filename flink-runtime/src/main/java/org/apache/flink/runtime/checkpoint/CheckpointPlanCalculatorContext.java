@@ -39,4 +39,12 @@ public interface CheckpointPlanCalculatorContext {
      * @return Whether there are finished tasks.
      */
     boolean hasFinishedTasks();
+
+    /**
+     * Returns the version of the execution topology. Checkpoint plans calculated for the same
+     * version are identical, so they are only recalculated once the version changes.
+     *
+     * @return The current version of the execution topology.
+     */
+    long getExecutionTopologyVersion();
 }
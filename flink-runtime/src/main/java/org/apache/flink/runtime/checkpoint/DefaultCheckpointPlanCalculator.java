@@ -30,6 +30,8 @@ import org.apache.flink.runtime.jobgraph.IntermediateResultPartitionID;
 import org.apache.flink.runtime.jobgraph.JobEdge;
 import org.apache.flink.runtime.jobgraph.JobVertexID;
 
+import javax.annotation.Nullable;
+
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
@@ -57,16 +59,31 @@ public class DefaultCheckpointPlanCalculator implements CheckpointPlanCalculator
 
     private final CheckpointPlanCalculatorContext context;
 
-    private final List<ExecutionJobVertex> jobVerticesInTopologyOrder = new ArrayList<>();
+    /*
+     * The job vertices and tasks of the current execution topology. The lists are replaced, never
+     * modified, when the topology changes, because cached plans and pending checkpoints keep
+     * referencing the lists of the topology they were calculated for.
+     */
+
+    private List<ExecutionJobVertex> jobVerticesInTopologyOrder = Collections.emptyList();
 
-    private final List<ExecutionVertex> allTasks = new ArrayList<>();
+    private List<ExecutionVertex> allTasks = Collections.emptyList();
 
-    private final List<ExecutionVertex> sourceTasks = new ArrayList<>();
+    private List<ExecutionVertex> sourceTasks = Collections.emptyList();
 
     private final boolean allowCheckpointsAfterTasksFinished;
 
     private final Iterable<ExecutionJobVertex> jobVerticesInTopologyOrderIterable;
 
+    /**
+     * The calculated plans by snapshot group, the plan of the whole job is stored with the {@code
+     * null} key. The plans are only valid for {@link #cachedPlansTopologyVersion}.
+     */
+    private final Map<String, DefaultCheckpointPlan> cachedPlans = new HashMap<>();
+
+    /** The execution topology version the cached plans and task lists were calculated for. */
+    private long cachedPlansTopologyVersion = -1L;
+
     public DefaultCheckpointPlanCalculator(
             JobID jobId,
             CheckpointPlanCalculatorContext context,
@@ -86,22 +103,7 @@ public class DefaultCheckpointPlanCalculator implements CheckpointPlanCalculator
         return CompletableFuture.supplyAsync(
                 () -> {
                     try {
-                        if (context.hasFinishedTasks() && !allowCheckpointsAfterTasksFinished) {
-                            throw new CheckpointException(
-                                    "Some tasks of the job have already finished and checkpointing with finished tasks is not enabled.",
-                                    CheckpointFailureReason.NOT_ALL_REQUIRED_TASKS_RUNNING);
-                        }
-
-                        checkAllTasksInitiated();
-
-                        CheckpointPlan result =
-                                context.hasFinishedTasks()
-                                        ? calculateAfterTasksFinished()
-                                        : calculateWithAllTasksRunning();
-
-                        checkTasksStarted(result.getTasksToWaitFor());
-
-                        return result;
+                        return getOrCalculatePlan(null);
                     } catch (Throwable throwable) {
                         throw new CompletionException(throwable);
                     }
@@ -111,31 +113,11 @@ public class DefaultCheckpointPlanCalculator implements CheckpointPlanCalculator
 
     @Override
     public CompletableFuture<CheckpointPlan> calculateCheckpointPlan(final String snapshotGroup) {
-        final boolean hasFinishedTasks;
-        if (snapshotGroup.startsWith("rescale-")) {
-            hasFinishedTasks = context.hasFinishedTasks();
-        } else {
-            hasFinishedTasks = hasFinishedTask(snapshotGroup);
-        }
+        checkNotNull(snapshotGroup);
         return CompletableFuture.supplyAsync(
                 () -> {
                     try {
-                        if (hasFinishedTasks && !allowCheckpointsAfterTasksFinished) {
-                            throw new CheckpointException(
-                                    "Some tasks of the job have already finished and checkpointing with finished tasks is not enabled.",
-                                    CheckpointFailureReason.NOT_ALL_REQUIRED_TASKS_RUNNING);
-                        }
-
-                        checkAllTasksInitiated();
-
-                        CheckpointPlan result =
-                                hasFinishedTasks
-                                        ? calculateAfterTasksFinished(snapshotGroup)
-                                        : calculateWithAllTasksRunning(snapshotGroup);
-
-                        checkTasksStarted(result.getTasksToWaitFor());
-
-                        return result;
+                        return getOrCalculatePlan(snapshotGroup);
                     } catch (Throwable throwable) {
                         throw new CompletionException(throwable);
                     }
@@ -144,23 +126,90 @@ public class DefaultCheckpointPlanCalculator implements CheckpointPlanCalculator
     }
 
     /**
-     * Checks if all tasks are attached with the current Execution already. This method should be
-     * called from JobMaster main thread executor.
-     *
-     * @throws CheckpointException if some tasks do not have attached Execution.
+     * Returns the plan for the given snapshot group, or for the whole job if it is {@code null}.
+     * The plan is only calculated if the execution topology changed since it was calculated the
+     * last time. This method should be called from JobMaster main thread executor.
      */
-    private void checkAllTasksInitiated() throws CheckpointException {
-        jobVerticesInTopologyOrder.clear();
-        sourceTasks.clear();
+    private CheckpointPlan getOrCalculatePlan(@Nullable String snapshotGroup)
+            throws CheckpointException {
+        final long topologyVersion = context.getExecutionTopologyVersion();
+        if (topologyVersion != cachedPlansTopologyVersion) {
+            cachedPlans.clear();
+            collectTasks();
+            cachedPlansTopologyVersion = topologyVersion;
+        }
+
+        DefaultCheckpointPlan plan = cachedPlans.get(snapshotGroup);
+        if (plan == null) {
+            plan = calculatePlan(snapshotGroup);
+            cachedPlans.put(snapshotGroup, plan);
+        }
+
+        // the state of the executions is not part of the topology version
+        checkTasksStarted(plan.getTasksToWaitFor());
+
+        // the plan is updated by the pending checkpoint, so each checkpoint gets its own copy
+        return new DefaultCheckpointPlan(
+                plan.getTasksToTrigger(),
+                plan.getTasksToWaitFor(),
+                plan.getTasksToCommitTo(),
+                plan.getFinishedTasks(),
+                new ArrayList<>(plan.getFullyFinishedJobVertex()),
+                plan.mayHaveFinishedTasks());
+    }
+
+    private DefaultCheckpointPlan calculatePlan(@Nullable String snapshotGroup)
+            throws CheckpointException {
+        final boolean hasFinishedTasks =
+                snapshotGroup == null || snapshotGroup.startsWith("rescale-")
+                        ? context.hasFinishedTasks()
+                        : hasFinishedTask(snapshotGroup);
+
+        if (hasFinishedTasks && !allowCheckpointsAfterTasksFinished) {
+            throw new CheckpointException(
+                    "Some tasks of the job have already finished and checkpointing with finished tasks is not enabled.",
+                    CheckpointFailureReason.NOT_ALL_REQUIRED_TASKS_RUNNING);
+        }
+
+        checkAllTasksInitiated();
+
+        if (snapshotGroup == null) {
+            return hasFinishedTasks
+                    ? calculateAfterTasksFinished()
+                    : calculateWithAllTasksRunning();
+        } else {
+            return hasFinishedTasks
+                    ? calculateAfterTasksFinished(snapshotGroup)
+                    : calculateWithAllTasksRunning(snapshotGroup);
+        }
+    }
+
+    /** Collects the job vertices and tasks of the current execution topology. */
+    private void collectTasks() {
+        final List<ExecutionJobVertex> newJobVertices = new ArrayList<>();
+        final List<ExecutionVertex> newAllTasks = new ArrayList<>();
+        final List<ExecutionVertex> newSourceTasks = new ArrayList<>();
         jobVerticesInTopologyOrderIterable.forEach(
                 jobVertex -> {
-                    jobVerticesInTopologyOrder.add(jobVertex);
-                    allTasks.addAll(Arrays.asList(jobVertex.getTaskVertices()));
+                    newJobVertices.add(jobVertex);
+                    newAllTasks.addAll(Arrays.asList(jobVertex.getTaskVertices()));
 
                     if (jobVertex.getJobVertex().isInputVertex()) {
-                        sourceTasks.addAll(Arrays.asList(jobVertex.getTaskVertices()));
+                        newSourceTasks.addAll(Arrays.asList(jobVertex.getTaskVertices()));
                     }
                 });
+        jobVerticesInTopologyOrder = Collections.unmodifiableList(newJobVertices);
+        allTasks = Collections.unmodifiableList(newAllTasks);
+        sourceTasks = Collections.unmodifiableList(newSourceTasks);
+    }
+
+    /**
+     * Checks if all tasks are attached with the current Execution already. This method should be
+     * called from JobMaster main thread executor.
+     *
+     * @throws CheckpointException if some tasks do not have attached Execution.
+     */
+    private void checkAllTasksInitiated() throws CheckpointException {
         for (ExecutionVertex task : allTasks) {
             if (task.getCurrentExecutionAttempt() == null) {
                 throw new CheckpointException(
@@ -197,7 +246,7 @@ public class DefaultCheckpointPlanCalculator implements CheckpointPlanCalculator
      *
      * @return The plan of this checkpoint.
      */
-    private CheckpointPlan calculateWithAllTasksRunning() {
+    private DefaultCheckpointPlan calculateWithAllTasksRunning() {
         List<Execution> executionsToTrigger =
                 sourceTasks.stream()
                         .map(ExecutionVertex::getCurrentExecutionAttempt)
@@ -208,7 +257,7 @@ public class DefaultCheckpointPlanCalculator implements CheckpointPlanCalculator
         return new DefaultCheckpointPlan(
                 Collections.unmodifiableList(executionsToTrigger),
                 Collections.unmodifiableList(tasksToWaitFor),
-                Collections.unmodifiableList(allTasks),
+                allTasks,
                 Collections.emptyList(),
                 Collections.emptyList(),
                 allowCheckpointsAfterTasksFinished);
@@ -222,7 +271,7 @@ public class DefaultCheckpointPlanCalculator implements CheckpointPlanCalculator
         return new HashSet<>(Arrays.asList(jobIdsStr));
     }
 
-    private CheckpointPlan calculateWithAllTasksRunning(final String snapshotGroup) {
+    private DefaultCheckpointPlan calculateWithAllTasksRunning(final String snapshotGroup) {
         List<ExecutionVertex> targetedTasks = new ArrayList<>();
         List<ExecutionVertex> targetedSourceTasks = new ArrayList<>();
         if (snapshotGroup.startsWith("rescale-")) {
@@ -298,7 +347,7 @@ public class DefaultCheckpointPlanCalculator implements CheckpointPlanCalculator
      *
      * @return The plan of this checkpoint.
      */
-    private CheckpointPlan calculateAfterTasksFinished() {
+    private DefaultCheckpointPlan calculateAfterTasksFinished() {
         // First collect the task running status into BitSet so that we could
         // do JobVertex level judgement for some vertices and avoid time-consuming
         // access to volatile isFinished flag of Execution.
@@ -360,7 +409,7 @@ public class DefaultCheckpointPlanCalculator implements CheckpointPlanCalculator
                 allowCheckpointsAfterTasksFinished);
     }
 
-    private CheckpointPlan calculateAfterTasksFinished(final String snapshotGroup) {
+    private DefaultCheckpointPlan calculateAfterTasksFinished(final String snapshotGroup) {
         if (snapshotGroup.startsWith("rescale-")) {
             return calculateAfterTasksFinished();
         }
@@ -27,6 +27,7 @@ import org.apache.flink.runtime.state.ResultSubpartitionStateHandle;
 import org.apache.flink.runtime.state.SharedStateRegistry;
 import org.apache.flink.runtime.state.StateObject;
 import org.apache.flink.runtime.state.StateUtil;
+import org.apache.flink.runtime.state.StreamStateHandle;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -208,6 +209,28 @@ public class OperatorSubtaskState implements CompositeStateHandle {
     public void registerSharedStates(SharedStateRegistry sharedStateRegistry) {
         registerSharedState(sharedStateRegistry, managedKeyedState);
         registerSharedState(sharedStateRegistry, rawKeyedState);
+        for (OperatorStateHandle stateHandle : managedOperatorState) {
+            registerSharedStreamState(sharedStateRegistry, stateHandle.getDelegateStateHandle());
+        }
+        for (OperatorStateHandle stateHandle : rawOperatorState) {
+            registerSharedStreamState(sharedStateRegistry, stateHandle.getDelegateStateHandle());
+        }
+        // the channel state handles of a subtask share their delegates
+        for (StreamStateHandle stateHandle :
+                collectUniqueDelegates(inputChannelState, resultSubpartitionState)) {
+            registerSharedStreamState(sharedStateRegistry, stateHandle);
+        }
+    }
+
+    /**
+     * Registers a stream state handle which references shared state itself, like a segment of a
+     * merged checkpoint file.
+     */
+    private static void registerSharedStreamState(
+            SharedStateRegistry sharedStateRegistry, StreamStateHandle stateHandle) {
+        if (stateHandle instanceof CompositeStateHandle) {
+            ((CompositeStateHandle) stateHandle).registerSharedStates(sharedStateRegistry);
+        }
     }
 
     private static void registerSharedState(
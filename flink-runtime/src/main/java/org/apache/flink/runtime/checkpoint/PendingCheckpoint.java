@@ -44,11 +44,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledFuture;
 
@@ -149,9 +149,9 @@ public class PendingCheckpoint implements Checkpoint {
     /** The promise to fulfill once the checkpoint has been completed. */
     private final CompletableFuture<CompletedCheckpoint> onCompletionPromise;
 
-    private int numAcknowledgedTasks;
+    private volatile int numAcknowledgedTasks;
 
-    private boolean disposed;
+    private volatile boolean disposed;
 
     private boolean discarded;
 
@@ -184,7 +184,10 @@ public class PendingCheckpoint implements Checkpoint {
         this.checkpointTimestamp = checkpointTimestamp;
         this.checkpointPlan = checkNotNull(checkpointPlan);
 
-        this.notYetAcknowledgedTasks = new HashMap<>(checkpointPlan.getTasksToWaitFor().size());
+        // the acknowledgement bookkeeping is concurrent, so that the acknowledgement status can
+        // be queried without holding any lock
+        this.notYetAcknowledgedTasks =
+                new ConcurrentHashMap<>(checkpointPlan.getTasksToWaitFor().size());
         for (Execution execution : checkpointPlan.getTasksToWaitFor()) {
             notYetAcknowledgedTasks.put(execution.getAttemptId(), execution.getVertex());
         }
@@ -197,16 +200,22 @@ public class PendingCheckpoint implements Checkpoint {
         this.notYetAcknowledgedMasterStates =
                 masterStateIdentifiers.isEmpty()
                         ? Collections.emptySet()
-                        : new HashSet<>(masterStateIdentifiers);
+                        : newConcurrentSet(masterStateIdentifiers);
         this.notYetAcknowledgedOperatorCoordinators =
                 operatorCoordinatorsToConfirm.isEmpty()
                         ? Collections.emptySet()
-                        : new HashSet<>(operatorCoordinatorsToConfirm);
-        this.acknowledgedTasks = new HashSet<>(checkpointPlan.getTasksToWaitFor().size());
+                        : newConcurrentSet(operatorCoordinatorsToConfirm);
+        this.acknowledgedTasks = ConcurrentHashMap.newKeySet();
         this.onCompletionPromise = checkNotNull(onCompletionPromise);
         this.snapshotGroup = snapshotGroup;
     }
 
+    private static <T> Set<T> newConcurrentSet(Collection<T> elements) {
+        Set<T> set = ConcurrentHashMap.newKeySet(elements.size());
+        set.addAll(elements);
+        return set;
+    }
+
     // --------------------------------------------------------------------------------------------
 
     // ------------------------------------------------------------------------
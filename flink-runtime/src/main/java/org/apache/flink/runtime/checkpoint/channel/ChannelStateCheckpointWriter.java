@@ -19,6 +19,7 @@ package org.apache.flink.runtime.checkpoint.channel;
 
 import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.runtime.checkpoint.channel.ChannelStateWriter.ChannelStateWriteResult;
+import org.apache.flink.runtime.checkpoint.channel.SharedChannelStateFiles.SharedStream;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.logger.NetworkActionsLogger;
 import org.apache.flink.runtime.state.AbstractChannelStateHandle;
@@ -35,6 +36,7 @@ import org.apache.flink.util.function.RunnableWithException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
 import java.io.DataOutputStream;
@@ -50,7 +52,6 @@ import java.util.concurrent.CompletableFuture;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static java.util.UUID.randomUUID;
-import static org.apache.flink.runtime.state.CheckpointedStateScope.EXCLUSIVE;
 import static org.apache.flink.util.ExceptionUtils.findThrowable;
 import static org.apache.flink.util.ExceptionUtils.rethrow;
 import static org.apache.flink.util.Preconditions.checkNotNull;
@@ -62,7 +63,7 @@ class ChannelStateCheckpointWriter {
     private static final Logger LOG = LoggerFactory.getLogger(ChannelStateCheckpointWriter.class);
 
     private final DataOutputStream dataStream;
-    private final CheckpointStateOutputStream checkpointStream;
+    private final ChannelStateStream checkpointStream;
     private final ChannelStateWriteResult result;
     private final Map<InputChannelInfo, StateContentMetaInfo> inputChannelOffsets = new HashMap<>();
     private final Map<ResultSubpartitionInfo, StateContentMetaInfo> resultSubpartitionOffsets =
@@ -74,23 +75,47 @@ class ChannelStateCheckpointWriter {
     private final RunnableWithException onComplete;
     private final int subtaskIndex;
     private String taskName;
+    /** The factory of the checkpoint stream, used to close the files it may share with others. */
+    @Nullable private final CheckpointStreamFactory streamFactory;
 
     ChannelStateCheckpointWriter(
             String taskName,
             int subtaskIndex,
             CheckpointStartRequest startCheckpointItem,
+            CheckpointStateOutputStream stream,
             CheckpointStreamFactory streamFactory,
             ChannelStateSerializer serializer,
-            RunnableWithException onComplete)
-            throws Exception {
+            RunnableWithException onComplete) {
         this(
                 taskName,
                 subtaskIndex,
                 startCheckpointItem.getCheckpointId(),
                 startCheckpointItem.getTargetResult(),
-                streamFactory.createCheckpointStateOutputStream(EXCLUSIVE),
                 serializer,
-                onComplete);
+                onComplete,
+                ChannelStateStream.of(stream),
+                new DataOutputStream(stream),
+                streamFactory);
+    }
+
+    ChannelStateCheckpointWriter(
+            String taskName,
+            int subtaskIndex,
+            CheckpointStartRequest startCheckpointItem,
+            SharedStream stream,
+            CheckpointStreamFactory streamFactory,
+            ChannelStateSerializer serializer,
+            RunnableWithException onComplete) {
+        this(
+                taskName,
+                subtaskIndex,
+                startCheckpointItem.getCheckpointId(),
+                startCheckpointItem.getTargetResult(),
+                serializer,
+                onComplete,
+                ChannelStateStream.of(stream),
+                new DataOutputStream(stream),
+                streamFactory);
     }
 
     @VisibleForTesting
@@ -123,14 +148,37 @@ class ChannelStateCheckpointWriter {
             RunnableWithException onComplete,
             CheckpointStateOutputStream checkpointStateOutputStream,
             DataOutputStream dataStream) {
+        this(
+                taskName,
+                subtaskIndex,
+                checkpointId,
+                result,
+                serializer,
+                onComplete,
+                ChannelStateStream.of(checkpointStateOutputStream),
+                dataStream,
+                null);
+    }
+
+    private ChannelStateCheckpointWriter(
+            String taskName,
+            int subtaskIndex,
+            long checkpointId,
+            ChannelStateWriteResult result,
+            ChannelStateSerializer serializer,
+            RunnableWithException onComplete,
+            ChannelStateStream checkpointStream,
+            DataOutputStream dataStream,
+            @Nullable CheckpointStreamFactory streamFactory) {
         this.taskName = taskName;
         this.subtaskIndex = subtaskIndex;
         this.checkpointId = checkpointId;
         this.result = checkNotNull(result);
-        this.checkpointStream = checkNotNull(checkpointStateOutputStream);
+        this.checkpointStream = checkNotNull(checkpointStream);
         this.serializer = checkNotNull(serializer);
         this.dataStream = checkNotNull(dataStream);
         this.onComplete = checkNotNull(onComplete);
+        this.streamFactory = streamFactory;
         runWithChecks(() -> serializer.writeHeader(dataStream));
     }
 
@@ -214,7 +262,32 @@ class ChannelStateCheckpointWriter {
             return;
         }
         dataStream.flush();
-        StreamStateHandle underlying = checkpointStream.closeAndGetHandle();
+        CompletableFuture<StreamStateHandle> handle = checkpointStream.closeAndGetHandle();
+        if (handle.isDone() && !handle.isCompletedExceptionally()) {
+            completeResult(handle.join());
+        } else {
+            // a shared file is closed once the other tasks writing into it have finished, which
+            // happens on the same thread
+            handle.whenComplete(
+                    (underlying, error) -> {
+                        try {
+                            if (error != null) {
+                                fail(error);
+                            } else {
+                                completeResult(underlying);
+                            }
+                        } catch (Exception e) {
+                            LOG.warn("Unable to complete the channel state of {}", taskName, e);
+                            result.fail(e);
+                        }
+                    });
+        }
+    }
+
+    private void completeResult(StreamStateHandle underlying) throws IOException {
+        // the handles must not be reported before the underlying file is closed, which is the
+        // case only afterwards if the file is shared with other state of the checkpoint
+        closeMergedFiles();
         complete(
                 underlying,
                 result.inputChannelStateHandles,
@@ -305,6 +378,9 @@ class ChannelStateCheckpointWriter {
         result.fail(e);
         try {
             checkpointStream.close();
+            if (streamFactory != null) {
+                streamFactory.abortMergedFiles();
+            }
         } catch (Exception closeException) {
             String message = "Unable to close checkpointStream after a failure";
             if (findThrowable(closeException, IOException.class).isPresent()) {
@@ -315,6 +391,69 @@ class ChannelStateCheckpointWriter {
         }
     }
 
+    private void closeMergedFiles() throws IOException {
+        if (streamFactory != null) {
+            streamFactory.closeMergedFiles();
+        }
+    }
+
+    /**
+     * The stream into which the channel state is written, either a checkpoint stream of its own or
+     * the segment of the subtask in a {@link SharedChannelStateFiles shared file}.
+     */
+    private interface ChannelStateStream {
+
+        long getPos() throws IOException;
+
+        /**
+         * Closes the stream. The returned future is completed with the handle of the written data
+         * once it is readable, which for a shared file is only the case once the other tasks
+         * writing into it have finished.
+         */
+        CompletableFuture<StreamStateHandle> closeAndGetHandle() throws IOException;
+
+        /** Closes the stream and discards the written data. */
+        void close() throws IOException;
+
+        static ChannelStateStream of(CheckpointStateOutputStream stream) {
+            return new ChannelStateStream() {
+                @Override
+                public long getPos() throws IOException {
+                    return stream.getPos();
+                }
+
+                @Override
+                public CompletableFuture<StreamStateHandle> closeAndGetHandle() throws IOException {
+                    return CompletableFuture.completedFuture(stream.closeAndGetHandle());
+                }
+
+                @Override
+                public void close() throws IOException {
+                    stream.close();
+                }
+            };
+        }
+
+        static ChannelStateStream of(SharedStream stream) {
+            return new ChannelStateStream() {
+                @Override
+                public long getPos() throws IOException {
+                    return stream.getPos();
+                }
+
+                @Override
+                public CompletableFuture<StreamStateHandle> closeAndGetHandle() throws IOException {
+                    return stream.closeAndGetSegmentHandle();
+                }
+
+                @Override
+                public void close() {
+                    stream.close();
+                }
+            };
+        }
+    }
+
     private interface HandleFactory<I, H extends AbstractChannelStateHandle<I>> {
         H create(
                 int subtaskIndex,
@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.checkpoint.channel;
+
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.runtime.checkpoint.channel.SequentialChannelStateReaderImpl.RescaledOffset;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.util.IOUtils;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Reads the chunks of channel state from several {@link StreamStateHandle delegates} in parallel
+ * and hands them to a single consumer in the same order as reading the delegates one after another
+ * would.
+ *
+ * <p>The chunks which are read but not yet consumed are limited by the read-ahead size. Only the
+ * delegate which is currently consumed may exceed this limit, so that the consumer always makes
+ * progress. As the delegates are submitted to the reading threads in consumption order, the
+ * currently consumed delegate is always being read or has been read already.
+ *
+ * <p>The reading threads are provided by the caller and may be reused for several fetchers, one
+ * after another.
+ */
+class ChannelStateChunkFetcher<Info> {
+
+    private final ChannelStateSerializer serializer;
+
+    private final List<Map.Entry<StreamStateHandle, List<RescaledOffset<Info>>>> delegates;
+
+    private final List<BlockingQueue<FetchedChunk<Info>>> fetchedChunks;
+
+    private final Executor executor;
+
+    private final long readAheadBytes;
+
+    private final Object lock = new Object();
+
+    /** The number of bytes which are read but not yet consumed. */
+    @GuardedBy("lock")
+    private long readAheadBytesInUse;
+
+    /** The index of the currently consumed delegate. */
+    @GuardedBy("lock")
+    private int consumedDelegateIndex;
+
+    @GuardedBy("lock")
+    private boolean closed;
+
+    ChannelStateChunkFetcher(
+            ChannelStateSerializer serializer,
+            List<Map.Entry<StreamStateHandle, List<RescaledOffset<Info>>>> delegates,
+            Executor executor,
+            long readAheadBytes) {
+        checkArgument(readAheadBytes > 0, "The read-ahead size must be positive.");
+        this.serializer = checkNotNull(serializer);
+        this.delegates = checkNotNull(delegates);
+        this.executor = checkNotNull(executor);
+        this.readAheadBytes = readAheadBytes;
+        this.fetchedChunks = new ArrayList<>(delegates.size());
+        for (int i = 0; i < delegates.size(); i++) {
+            fetchedChunks.add(new LinkedBlockingQueue<>());
+        }
+    }
+
+    /** Reads all chunks and passes them to the given consumer in order. */
+    void fetch(ChunkConsumer<Info> consumer) throws IOException, InterruptedException {
+        if (delegates.isEmpty()) {
+            return;
+        }
+
+        try {
+            for (int i = 0; i < delegates.size(); i++) {
+                final int delegateIndex = i;
+                executor.execute(() -> readDelegate(delegateIndex));
+            }
+
+            for (int i = 0; i < delegates.size(); i++) {
+                synchronized (lock) {
+                    consumedDelegateIndex = i;
+                    lock.notifyAll();
+                }
+                consumeDelegate(fetchedChunks.get(i), consumer);
+            }
+        } finally {
+            synchronized (lock) {
+                closed = true;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void consumeDelegate(
+            BlockingQueue<FetchedChunk<Info>> chunks, ChunkConsumer<Info> consumer)
+            throws IOException, InterruptedException {
+        while (true) {
+            FetchedChunk<Info> chunk = chunks.take();
+            if (chunk.failure != null) {
+                throw new IOException("Could not read channel state.", chunk.failure);
+            } else if (chunk.offset == null) {
+                return;
+            }
+
+            try {
+                consumer.accept(chunk.offset, chunk.data);
+            } finally {
+                synchronized (lock) {
+                    readAheadBytesInUse -= chunk.data.length;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void readDelegate(int delegateIndex) {
+        final Map.Entry<StreamStateHandle, List<RescaledOffset<Info>>> delegate =
+                delegates.get(delegateIndex);
+        final BlockingQueue<FetchedChunk<Info>> chunks = fetchedChunks.get(delegateIndex);
+        synchronized (lock) {
+            if (closed) {
+                // the consumer failed before this delegate was read
+                return;
+            }
+        }
+        try (FSDataInputStream is = delegate.getKey().openInputStream()) {
+            serializer.readHeader(is);
+            for (RescaledOffset<Info> offset : delegate.getValue()) {
+                if (is.getPos() != offset.offset) {
+                    is.seek(offset.offset);
+                }
+                int length = serializer.readLength(is);
+                if (!reserveReadAhead(delegateIndex, length)) {
+                    return;
+                }
+                byte[] data = new byte[length];
+                IOUtils.readFully(is, data, 0, length);
+                chunks.add(new FetchedChunk<>(offset, data, null));
+            }
+            chunks.add(new FetchedChunk<>(null, null, null));
+        } catch (Throwable t) {
+            chunks.add(new FetchedChunk<>(null, null, t));
+        }
+    }
+
+    /**
+     * Waits until the given number of bytes may be read ahead for the given delegate. Returns false
+     * if the fetcher is closed meanwhile.
+     */
+    private boolean reserveReadAhead(int delegateIndex, int bytes) throws InterruptedException {
+        synchronized (lock) {
+            while (!closed
+                    && delegateIndex != consumedDelegateIndex
+                    && readAheadBytesInUse > 0
+                    && readAheadBytesInUse + bytes > readAheadBytes) {
+                lock.wait();
+            }
+            if (closed) {
+                return false;
+            }
+            readAheadBytesInUse += bytes;
+            return true;
+        }
+    }
+
+    /** Consumer of the fetched chunks. */
+    interface ChunkConsumer<Info> {
+        void accept(RescaledOffset<Info> offset, byte[] data)
+                throws IOException, InterruptedException;
+    }
+
+    /** A chunk read from a delegate, the end of a delegate, or a failure. */
+    private static final class FetchedChunk<Info> {
+        @Nullable final RescaledOffset<Info> offset;
+        @Nullable final byte[] data;
+        @Nullable final Throwable failure;
+
+        FetchedChunk(
+                @Nullable RescaledOffset<Info> offset,
+                @Nullable byte[] data,
+                @Nullable Throwable failure) {
+            this.offset = offset;
+            this.data = data;
+            this.failure = failure;
+        }
+    }
+}
@@ -17,6 +17,8 @@
 
 package org.apache.flink.runtime.checkpoint.channel;
 
+import org.apache.flink.runtime.checkpoint.CheckpointOptions;
+import org.apache.flink.runtime.checkpoint.CheckpointType;
 import org.apache.flink.runtime.checkpoint.channel.ChannelStateWriter.ChannelStateWriteResult;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.state.CheckpointStorageLocationReference;
@@ -119,16 +121,26 @@ interface ChannelStateWriteRequest {
 
 final class CheckpointStartRequest implements ChannelStateWriteRequest {
     private final ChannelStateWriteResult targetResult;
-    private final CheckpointStorageLocationReference locationReference;
+    private final CheckpointOptions checkpointOptions;
     private final long checkpointId;
 
     CheckpointStartRequest(
             long checkpointId,
             ChannelStateWriteResult targetResult,
             CheckpointStorageLocationReference locationReference) {
+        this(
+                checkpointId,
+                targetResult,
+                new CheckpointOptions(CheckpointType.CHECKPOINT, checkNotNull(locationReference)));
+    }
+
+    CheckpointStartRequest(
+            long checkpointId,
+            ChannelStateWriteResult targetResult,
+            CheckpointOptions checkpointOptions) {
         this.checkpointId = checkpointId;
         this.targetResult = checkNotNull(targetResult);
-        this.locationReference = checkNotNull(locationReference);
+        this.checkpointOptions = checkNotNull(checkpointOptions);
     }
 
     @Override
@@ -141,7 +153,11 @@ final class CheckpointStartRequest implements ChannelStateWriteRequest {
     }
 
     public CheckpointStorageLocationReference getLocationReference() {
-        return locationReference;
+        return checkpointOptions.getTargetLocation();
+    }
+
+    public CheckpointOptions getCheckpointOptions() {
+        return checkpointOptions;
     }
 
     @Override
@@ -17,20 +17,28 @@
 
 package org.apache.flink.runtime.checkpoint.channel;
 
+import org.apache.flink.api.common.JobID;
 import org.apache.flink.runtime.state.CheckpointStorageWorkerView;
+import org.apache.flink.runtime.state.CheckpointStreamFactory;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import java.util.HashMap;
 import java.util.Map;
 
+import static org.apache.flink.runtime.state.CheckpointedStateScope.EXCLUSIVE;
+import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkNotNull;
 import static org.apache.flink.util.Preconditions.checkState;
 
 /**
  * Maintains a set of {@link ChannelStateCheckpointWriter writers} per checkpoint and translates
- * incoming {@link ChannelStateWriteRequest requests} to their corresponding methods.
+ * incoming {@link ChannelStateWriteRequest requests} to their corresponding methods. If given
+ * {@link SharedChannelStateFiles shared files}, the writers write into the files shared with the
+ * other tasks of the job whose requests are executed by the same thread.
  */
 final class ChannelStateWriteRequestDispatcherImpl implements ChannelStateWriteRequestDispatcher {
     private static final Logger LOG =
@@ -42,12 +50,28 @@ final class ChannelStateWriteRequestDispatcherImpl implements ChannelStateWriteR
     private final ChannelStateSerializer serializer;
     private final int subtaskIndex;
     private String taskName;
+    @Nullable private final JobID jobId;
+    @Nullable private final SharedChannelStateFiles sharedFiles;
 
     ChannelStateWriteRequestDispatcherImpl(
             String taskName,
             int subtaskIndex,
             CheckpointStorageWorkerView streamFactoryResolver,
             ChannelStateSerializer serializer) {
+        this(taskName, subtaskIndex, streamFactoryResolver, serializer, null, null);
+    }
+
+    ChannelStateWriteRequestDispatcherImpl(
+            String taskName,
+            int subtaskIndex,
+            CheckpointStorageWorkerView streamFactoryResolver,
+            ChannelStateSerializer serializer,
+            @Nullable JobID jobId,
+            @Nullable SharedChannelStateFiles sharedFiles) {
+        checkArgument(
+                (jobId == null) == (sharedFiles == null), "The job id is required to share files.");
+        this.jobId = jobId;
+        this.sharedFiles = sharedFiles;
         this.taskName = taskName;
         this.subtaskIndex = subtaskIndex;
         this.writers = new HashMap<>();
@@ -91,12 +115,29 @@ final class ChannelStateWriteRequestDispatcherImpl implements ChannelStateWriteR
 
     private ChannelStateCheckpointWriter buildWriter(CheckpointStartRequest request)
             throws Exception {
+        CheckpointStreamFactory streamFactory =
+                streamFactoryResolver.resolveCheckpointStorageLocation(
+                        request.getCheckpointId(), request.getCheckpointOptions());
+        if (sharedFiles != null) {
+            return new ChannelStateCheckpointWriter(
+                    taskName,
+                    subtaskIndex,
+                    request,
+                    sharedFiles.openStream(
+                            jobId,
+                            request.getCheckpointId(),
+                            request.getLocationReference(),
+                            streamFactory),
+                    streamFactory,
+                    serializer,
+                    () -> writers.remove(request.getCheckpointId()));
+        }
         return new ChannelStateCheckpointWriter(
                 taskName,
                 subtaskIndex,
                 request,
-                streamFactoryResolver.resolveCheckpointStorageLocation(
-                        request.getCheckpointId(), request.getLocationReference()),
+                streamFactory.createCheckpointStateOutputStream(EXCLUSIVE),
+                streamFactory,
                 serializer,
                 () -> writers.remove(request.getCheckpointId()));
     }
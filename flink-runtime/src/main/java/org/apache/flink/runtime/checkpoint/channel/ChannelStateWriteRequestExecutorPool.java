@@ -0,0 +1,515 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.checkpoint.channel;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.configuration.CheckpointingOptions;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.runtime.state.CheckpointIOScheduler;
+import org.apache.flink.util.ExceptionUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * A pool of threads shared by all tasks of a TaskManager which executes their {@link
+ * ChannelStateWriteRequest}s, instead of one {@link ChannelStateWriteRequestExecutorImpl dedicated
+ * thread} per task.
+ *
+ * <p>Each {@link #createExecutor created executor} is bound to one of the threads for its whole
+ * lifetime, so that the requests of a task are executed in the order of submission and the
+ * non-thread-safe {@link ChannelStateWriteRequestDispatcher} of the task is only accessed by that
+ * thread. New executors are bound to the thread with the fewest executors. A failure while
+ * executing a request only stops the executor of the failing task.
+ *
+ * <p>Each executor queues its requests separately and a thread executes one request of each of its
+ * executors with pending requests in turn, so a task with many pending requests delays the requests
+ * of other tasks by at most one request. The tasks bound to the same thread write the channel state
+ * of a checkpoint into {@link SharedChannelStateFiles shared files}.
+ *
+ * <p>If the checkpoint I/O of the TaskManager is rate limited, the thread does not wait for the
+ * limit. Instead, it defers the further requests of the task which exceeded the limit, see {@link
+ * CheckpointIOScheduler.Throttle}, and serves the other tasks in the meantime.
+ */
+@Internal
+@ThreadSafe
+public class ChannelStateWriteRequestExecutorPool implements Closeable {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(ChannelStateWriteRequestExecutorPool.class);
+
+    private final Worker[] workers;
+
+    private final Object lock = new Object();
+
+    @GuardedBy("lock")
+    private boolean closed;
+
+    public ChannelStateWriteRequestExecutorPool(int numThreads) {
+        checkArgument(numThreads > 0, "The number of threads must be positive.");
+        this.workers = new Worker[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            workers[i] = new Worker("Channel state writer pool thread " + i);
+            workers[i].thread.start();
+        }
+    }
+
+    /**
+     * Creates the pool configured by {@link CheckpointingOptions#CHANNEL_STATE_WRITER_NUM_THREADS},
+     * or returns null if each task should use a dedicated thread.
+     */
+    @Nullable
+    public static ChannelStateWriteRequestExecutorPool fromConfiguration(
+            Configuration configuration) {
+        int numThreads = configuration.get(CheckpointingOptions.CHANNEL_STATE_WRITER_NUM_THREADS);
+        return numThreads > 0 ? new ChannelStateWriteRequestExecutorPool(numThreads) : null;
+    }
+
+    ChannelStateWriteRequestExecutor createExecutor(
+            String taskName, ChannelStateWriteRequestDispatcher dispatcher) {
+        return createExecutor(taskName, unused -> dispatcher);
+    }
+
+    /**
+     * Creates an executor bound to one of the threads. The dispatcher is created with the shared
+     * channel state files of that thread.
+     */
+    ChannelStateWriteRequestExecutor createExecutor(
+            String taskName,
+            Function<SharedChannelStateFiles, ChannelStateWriteRequestDispatcher>
+                    dispatcherFactory) {
+        return createExecutor(taskName, dispatcherFactory, null);
+    }
+
+    /**
+     * Creates an executor bound to one of the threads. The dispatcher is created with the shared
+     * channel state files of that thread. The requests of the executor are deferred as long as
+     * requested by the given throttle of the task, if any.
+     */
+    ChannelStateWriteRequestExecutor createExecutor(
+            String taskName,
+            Function<SharedChannelStateFiles, ChannelStateWriteRequestDispatcher> dispatcherFactory,
+            @Nullable CheckpointIOScheduler.Throttle throttle) {
+        synchronized (lock) {
+            checkState(!closed, "The channel state writer pool is closed.");
+            Worker worker = workers[0];
+            for (Worker candidate : workers) {
+                if (candidate.executors.size() < worker.executors.size()) {
+                    worker = candidate;
+                }
+            }
+            PooledExecutor executor =
+                    new PooledExecutor(
+                            taskName,
+                            dispatcherFactory.apply(worker.sharedFiles),
+                            worker,
+                            throttle);
+            worker.executors.add(executor);
+            return executor;
+        }
+    }
+
+    @VisibleForTesting
+    int getNumExecutors() {
+        int numExecutors = 0;
+        for (Worker worker : workers) {
+            numExecutors += worker.executors.size();
+        }
+        return numExecutors;
+    }
+
+    /**
+     * Stops all threads. The pending requests are cancelled and the executors which are still open
+     * are stopped as if they were closed.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        for (Worker worker : workers) {
+            synchronized (worker) {
+                worker.closed = true;
+                worker.notifyAll();
+            }
+            while (worker.thread.isAlive()) {
+                worker.thread.interrupt();
+                try {
+                    worker.thread.join();
+                } catch (InterruptedException e) {
+                    if (!worker.thread.isAlive()) {
+                        Thread.currentThread().interrupt();
+                    }
+                    LOG.debug("Interrupted while waiting for the writer thread to die", e);
+                }
+            }
+        }
+    }
+
+    /** A thread of the pool executing the requests of the executors bound to it. */
+    private static final class Worker {
+        private final Set<PooledExecutor> executors = ConcurrentHashMap.newKeySet();
+
+        /** The executors with pending requests, in the order in which they are served. */
+        @GuardedBy("this")
+        private final Deque<PooledExecutor> readyExecutors = new ArrayDeque<>();
+
+        /** The executors whose requests are deferred because their task exceeded the rate limit. */
+        @GuardedBy("this")
+        private final List<PooledExecutor> deferredExecutors = new ArrayList<>();
+
+        /** Only accessed by the thread of this worker. */
+        private final SharedChannelStateFiles sharedFiles = new SharedChannelStateFiles();
+
+        private final Thread thread;
+
+        @GuardedBy("this")
+        private boolean closed;
+
+        private Worker(String threadName) {
+            this.thread = new Thread(this::run, threadName);
+            this.thread.setDaemon(true);
+        }
+
+        private void run() {
+            while (true) {
+                PooledExecutor executor;
+                PooledExecutor.Entry entry;
+                synchronized (this) {
+                    long waitMillis;
+                    while (!closed && (waitMillis = resumeDeferredExecutors()) > 0) {
+                        try {
+                            wait(waitMillis == Long.MAX_VALUE ? 0 : waitMillis);
+                        } catch (InterruptedException e) {
+                            if (!closed) {
+                                LOG.debug(
+                                        "{} interrupted while waiting for a request (continue waiting)",
+                                        thread.getName(),
+                                        e);
+                            }
+                        }
+                    }
+                    if (closed) {
+                        break;
+                    }
+                    executor = readyExecutors.poll();
+                    entry = executor.requests.poll();
+                    if (!executor.requests.isEmpty()) {
+                        readyExecutors.add(executor);
+                    }
+                }
+                if (entry != null) {
+                    entry.execute();
+                    long delayNanos = executor.getThrottleDelayNanos();
+                    if (delayNanos > 0) {
+                        defer(executor, delayNanos);
+                    }
+                }
+            }
+            for (PooledExecutor executor : executors) {
+                executor.cleanupRequests();
+                executor.stop();
+            }
+            LOG.debug("{} loop terminated", thread.getName());
+        }
+
+        /**
+         * Moves the deferred executors whose delay elapsed back to the ready executors.
+         *
+         * @return zero if an executor is ready, otherwise the milliseconds until the next deferred
+         *     executor is resumed, or {@link Long#MAX_VALUE} if no executor is deferred
+         */
+        @GuardedBy("this")
+        private long resumeDeferredExecutors() {
+            long now = System.nanoTime();
+            long nextResumeNanos = Long.MAX_VALUE;
+            for (Iterator<PooledExecutor> it = deferredExecutors.iterator(); it.hasNext(); ) {
+                PooledExecutor executor = it.next();
+                if (executor.resumeNanos - now <= 0) {
+                    it.remove();
+                    executor.deferred = false;
+                    if (!executor.requests.isEmpty()) {
+                        readyExecutors.add(executor);
+                    }
+                } else {
+                    nextResumeNanos = Math.min(nextResumeNanos, executor.resumeNanos - now);
+                }
+            }
+            if (!readyExecutors.isEmpty()) {
+                return 0;
+            }
+            return nextResumeNanos == Long.MAX_VALUE
+                    ? Long.MAX_VALUE
+                    : Math.max(1, TimeUnit.NANOSECONDS.toMillis(nextResumeNanos));
+        }
+
+        private synchronized void defer(PooledExecutor executor, long delayNanos) {
+            if (executor.deferred) {
+                return;
+            }
+            readyExecutors.remove(executor);
+            executor.deferred = true;
+            executor.resumeNanos = System.nanoTime() + delayNanos;
+            deferredExecutors.add(executor);
+        }
+
+        @GuardedBy("this")
+        private void resume(PooledExecutor executor) {
+            if (executor.deferred) {
+                executor.deferred = false;
+                deferredExecutors.remove(executor);
+            }
+        }
+
+        private synchronized void enqueue(
+                PooledExecutor executor, PooledExecutor.Entry entry, boolean atTheFront) {
+            boolean ready = !executor.requests.isEmpty();
+            if (atTheFront) {
+                executor.requests.addFirst(entry);
+                // serve the executor next, also if it is deferred
+                resume(executor);
+                readyExecutors.remove(executor);
+                readyExecutors.addFirst(executor);
+            } else {
+                executor.requests.add(entry);
+                if (!ready && !executor.deferred) {
+                    readyExecutors.add(executor);
+                }
+            }
+            notifyAll();
+        }
+
+        private synchronized List<PooledExecutor.Entry> drain(PooledExecutor executor) {
+            List<PooledExecutor.Entry> drained = new ArrayList<>(executor.requests);
+            executor.requests.clear();
+            readyExecutors.remove(executor);
+            resume(executor);
+            return drained;
+        }
+    }
+
+    /** The {@link ChannelStateWriteRequestExecutor} of a single task bound to a pool thread. */
+    private static final class PooledExecutor implements ChannelStateWriteRequestExecutor {
+        private final String taskName;
+        private final ChannelStateWriteRequestDispatcher dispatcher;
+        private final Worker worker;
+        @Nullable private final CheckpointIOScheduler.Throttle throttle;
+
+        /** The pending requests of this executor, guarded by the worker. */
+        private final Deque<Entry> requests = new ArrayDeque<>();
+
+        /** Whether the requests are deferred by the throttle, guarded by the worker. */
+        private boolean deferred;
+
+        /** The time at which deferred requests are served again, guarded by the worker. */
+        private long resumeNanos;
+
+        private final CompletableFuture<Void> stopFuture = new CompletableFuture<>();
+        private volatile Exception thrown = null;
+        private volatile boolean started = false;
+        private volatile boolean wasClosed = false;
+
+        /** Whether the dispatcher is stopped, only accessed by the pool thread. */
+        private boolean stopped = false;
+
+        private PooledExecutor(
+                String taskName,
+                ChannelStateWriteRequestDispatcher dispatcher,
+                Worker worker,
+                @Nullable CheckpointIOScheduler.Throttle throttle) {
+            this.taskName = checkNotNull(taskName);
+            this.dispatcher = checkNotNull(dispatcher);
+            this.worker = checkNotNull(worker);
+            this.throttle = throttle;
+        }
+
+        private long getThrottleDelayNanos() {
+            return throttle == null || stopped ? 0 : throttle.getDelayNanos();
+        }
+
+        /** Executes the given request, or stops this executor if the request is null. */
+        private void execute(@Nullable ChannelStateWriteRequest request) {
+            if (request == null) {
+                stop();
+            } else if (stopped || wasClosed || !started) {
+                // requests submitted before the executor was started are rejected by the submitter
+                cancel(request);
+            } else {
+                try {
+                    dispatcher.dispatch(request);
+                } catch (Exception e) {
+                    thrown = e;
+                    stop();
+                }
+            }
+        }
+
+        private void stop() {
+            if (!stopped) {
+                stopped = true;
+                try {
+                    dispatcher.fail(thrown == null ? new CancellationException() : thrown);
+                } catch (Exception e) {
+                    //noinspection NonAtomicOperationOnVolatileField
+                    thrown = ExceptionUtils.firstOrSuppressed(e, thrown);
+                }
+                LOG.debug("{} stopped", taskName);
+            }
+            worker.executors.remove(this);
+            stopFuture.complete(null);
+        }
+
+        private void cancel(ChannelStateWriteRequest request) {
+            try {
+                request.cancel(thrown == null ? new CancellationException() : thrown);
+            } catch (Exception e) {
+                LOG.warn("{} failed to cancel request {}", taskName, request, e);
+            }
+        }
+
+        private void cleanupRequests() {
+            List<Entry> drained = worker.drain(this);
+            LOG.debug("{} discarding {} drained requests", taskName, drained.size());
+            for (Entry entry : drained) {
+                if (entry.request != null) {
+                    cancel(entry.request);
+                }
+            }
+        }
+
+        @Override
+        public void start() throws IllegalStateException {
+            checkState(!started, "%s is already started.", taskName);
+            checkState(!wasClosed, "%s is already closed.", taskName);
+            started = true;
+        }
+
+        @Override
+        public void submit(ChannelStateWriteRequest request) throws Exception {
+            submitInternal(request, false);
+        }
+
+        @Override
+        public void submitPriority(ChannelStateWriteRequest request) throws Exception {
+            submitInternal(request, true);
+        }
+
+        private void submitInternal(ChannelStateWriteRequest request, boolean atTheFront)
+                throws Exception {
+            try {
+                worker.enqueue(this, new Entry(checkNotNull(request)), atTheFront);
+            } catch (Exception ex) {
+                request.cancel(ex);
+                throw ex;
+            }
+            ensureRunning();
+        }
+
+        private void ensureRunning() throws Exception {
+            // this check should be performed *at least after* enqueuing a request
+            // checking before is not enough because (check + enqueue) is not atomic
+            if (!started || wasClosed || stopFuture.isDone() || !worker.thread.isAlive()) {
+                cleanupRequests();
+                IllegalStateException exception = new IllegalStateException("not running");
+                if (thrown != null) {
+                    exception.addSuppressed(thrown);
+                }
+                throw exception;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            wasClosed = true;
+            if (started && worker.thread.isAlive()) {
+                // the pending requests are cancelled on the pool thread before the dispatcher is
+                // stopped, as the dispatcher must not be accessed concurrently
+                worker.enqueue(this, new Entry(null), true);
+                waitUntilStopped();
+            } else {
+                worker.executors.remove(this);
+            }
+            cleanupRequests();
+            if (thrown != null) {
+                throw new IOException(thrown);
+            }
+        }
+
+        private void waitUntilStopped() {
+            boolean interrupted = false;
+            // the pool thread may die without stopping this executor if the pool is closed
+            // concurrently
+            while (!stopFuture.isDone() && worker.thread.isAlive()) {
+                try {
+                    stopFuture.get(100, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    LOG.debug("{} interrupted while waiting for the executor to stop", taskName);
+                } catch (TimeoutException ignored) {
+                    // check again whether the pool thread is still alive
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /** A request of this executor, or the request to close the executor if it is null. */
+        private final class Entry {
+            @Nullable private final ChannelStateWriteRequest request;
+
+            private Entry(@Nullable ChannelStateWriteRequest request) {
+                this.request = request;
+            }
+
+            private void execute() {
+                PooledExecutor.this.execute(request);
+            }
+        }
+    }
+}
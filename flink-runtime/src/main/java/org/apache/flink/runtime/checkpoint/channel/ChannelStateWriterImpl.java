@@ -18,8 +18,10 @@
 package org.apache.flink.runtime.checkpoint.channel;
 
 import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.common.JobID;
 import org.apache.flink.runtime.checkpoint.CheckpointOptions;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.state.CheckpointIOScheduler;
 import org.apache.flink.runtime.state.CheckpointStorageWorkerView;
 import org.apache.flink.runtime.state.CheckpointStreamFactory;
 import org.apache.flink.util.CloseableIterator;
@@ -28,6 +30,7 @@ import org.apache.flink.util.Preconditions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
 import java.io.IOException;
@@ -53,6 +56,11 @@ import static org.apache.flink.runtime.checkpoint.channel.ChannelStateWriteReque
  * <p>Thread-safety: this class is thread-safe when used with a thread-safe {@link
  * ChannelStateWriteRequestExecutor executor} (e.g. default {@link
  * ChannelStateWriteRequestExecutorImpl}.
+ *
+ * <p>Instead of a dedicated thread per task, the requests of all tasks of a TaskManager can be
+ * executed by a {@link ChannelStateWriteRequestExecutorPool} with a limited number of threads. The
+ * tasks of a job bound to the same thread of the pool write the channel state of a checkpoint into
+ * a shared file.
  */
 @Internal
 @ThreadSafe
@@ -77,6 +85,76 @@ public class ChannelStateWriterImpl implements ChannelStateWriter {
         this(taskName, subtaskIndex, streamFactoryResolver, DEFAULT_MAX_CHECKPOINTS);
     }
 
+    /**
+     * Creates a {@link ChannelStateWriterImpl} with {@link #DEFAULT_MAX_CHECKPOINTS} as {@link
+     * #maxCheckpoints} which executes its requests in the given TaskManager-wide pool, or in a
+     * dedicated thread if the pool is null. In the pool, the channel state is written into files
+     * shared with the other tasks of the given job, unless the job is null.
+     */
+    public ChannelStateWriterImpl(
+            @Nullable JobID sharedFilesJobId,
+            String taskName,
+            int subtaskIndex,
+            CheckpointStorageWorkerView streamFactoryResolver,
+            @Nullable ChannelStateWriteRequestExecutorPool executorPool) {
+        this(sharedFilesJobId, taskName, subtaskIndex, streamFactoryResolver, executorPool, null);
+    }
+
+    /**
+     * Creates a {@link ChannelStateWriterImpl} like {@link #ChannelStateWriterImpl(JobID, String,
+     * int, CheckpointStorageWorkerView, ChannelStateWriteRequestExecutorPool)} whose writes are
+     * limited by the given scheduler, if any. A dedicated thread waits for the limit, whereas the
+     * pool defers the requests of this task only.
+     */
+    public ChannelStateWriterImpl(
+            @Nullable JobID sharedFilesJobId,
+            String taskName,
+            int subtaskIndex,
+            CheckpointStorageWorkerView streamFactoryResolver,
+            @Nullable ChannelStateWriteRequestExecutorPool executorPool,
+            @Nullable CheckpointIOScheduler ioScheduler) {
+        this(
+                taskName,
+                new ConcurrentHashMap<>(DEFAULT_MAX_CHECKPOINTS),
+                executorPool == null
+                        ? createExecutor(
+                                taskName,
+                                subtaskIndex,
+                                ioScheduler == null
+                                        ? streamFactoryResolver
+                                        : ioScheduler.wrap(streamFactoryResolver))
+                        : createPooledExecutor(
+                                sharedFilesJobId,
+                                taskName,
+                                subtaskIndex,
+                                streamFactoryResolver,
+                                executorPool,
+                                ioScheduler == null ? null : ioScheduler.createThrottle()),
+                DEFAULT_MAX_CHECKPOINTS);
+    }
+
+    private static ChannelStateWriteRequestExecutor createPooledExecutor(
+            @Nullable JobID sharedFilesJobId,
+            String taskName,
+            int subtaskIndex,
+            CheckpointStorageWorkerView streamFactoryResolver,
+            ChannelStateWriteRequestExecutorPool executorPool,
+            @Nullable CheckpointIOScheduler.Throttle throttle) {
+        CheckpointStorageWorkerView storage =
+                throttle == null ? streamFactoryResolver : throttle.wrap(streamFactoryResolver);
+        return executorPool.createExecutor(
+                taskName,
+                sharedFiles ->
+                        new ChannelStateWriteRequestDispatcherImpl(
+                                taskName,
+                                subtaskIndex,
+                                storage,
+                                new ChannelStateSerializerImpl(),
+                                sharedFilesJobId,
+                                sharedFilesJobId == null ? null : sharedFiles),
+                throttle);
+    }
+
     /**
      * Creates a {@link ChannelStateWriterImpl} with {@link ChannelStateSerializerImpl default}
      * {@link ChannelStateSerializer}, and a {@link ChannelStateWriteRequestExecutorImpl}.
@@ -94,16 +172,21 @@ public class ChannelStateWriterImpl implements ChannelStateWriter {
         this(
                 taskName,
                 new ConcurrentHashMap<>(maxCheckpoints),
-                new ChannelStateWriteRequestExecutorImpl(
-                        taskName,
-                        new ChannelStateWriteRequestDispatcherImpl(
-                                taskName,
-                                subtaskIndex,
-                                streamFactoryResolver,
-                                new ChannelStateSerializerImpl())),
+                createExecutor(taskName, subtaskIndex, streamFactoryResolver),
                 maxCheckpoints);
     }
 
+    private static ChannelStateWriteRequestExecutor createExecutor(
+            String taskName, int subtaskIndex, CheckpointStorageWorkerView streamFactoryResolver) {
+        return new ChannelStateWriteRequestExecutorImpl(
+                taskName,
+                new ChannelStateWriteRequestDispatcherImpl(
+                        taskName,
+                        subtaskIndex,
+                        streamFactoryResolver,
+                        new ChannelStateSerializerImpl()));
+    }
+
     ChannelStateWriterImpl(
             String taskName,
             ConcurrentMap<Long, ChannelStateWriteResult> results,
@@ -133,9 +216,7 @@ public class ChannelStateWriterImpl implements ChannelStateWriter {
                                             maxCheckpoints));
                             enqueue(
                                     new CheckpointStartRequest(
-                                            checkpointId,
-                                            result,
-                                            checkpointOptions.getTargetLocation()),
+                                            checkpointId, result, checkpointOptions),
                                     false);
                             return result;
                         });
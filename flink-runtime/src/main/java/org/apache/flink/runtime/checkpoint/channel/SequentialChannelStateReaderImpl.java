@@ -18,23 +18,43 @@
 package org.apache.flink.runtime.checkpoint.channel;
 
 import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.configuration.CheckpointingOptions;
 import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.Gauge;
+import org.apache.flink.metrics.MeterView;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.metrics.SimpleCounter;
+import org.apache.flink.metrics.groups.UnregisteredMetricsGroup;
 import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
 import org.apache.flink.runtime.checkpoint.StateObjectCollection;
 import org.apache.flink.runtime.checkpoint.TaskStateSnapshot;
 import org.apache.flink.runtime.io.network.api.writer.ResultPartitionWriter;
 import org.apache.flink.runtime.io.network.logger.NetworkActionsLogger;
 import org.apache.flink.runtime.io.network.partition.consumer.InputGate;
+import org.apache.flink.runtime.metrics.MetricNames;
 import org.apache.flink.runtime.state.AbstractChannelStateHandle;
 import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.util.concurrent.ExecutorThreadFactory;
 
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -42,18 +62,56 @@ import java.util.stream.Stream;
 import static java.util.Comparator.comparingLong;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
+import static org.apache.flink.util.Preconditions.checkArgument;
 
-/** {@link SequentialChannelStateReader} implementation. */
+/**
+ * {@link SequentialChannelStateReader} implementation. The state handles are either read one after
+ * another by the calling thread, or, if more than one read thread is configured, read ahead in
+ * parallel by a {@link ChannelStateChunkFetcher} and recovered by the calling thread in the same
+ * order. The reading threads are created on the first parallel read and reused by all further reads
+ * of this task, until the reader is closed.
+ */
 public class SequentialChannelStateReaderImpl implements SequentialChannelStateReader {
 
+    private static final long READ_THREAD_KEEP_ALIVE_SECONDS = 10L;
+
     private final TaskStateSnapshot taskStateSnapshot;
     private final ChannelStateSerializer serializer;
     private final ChannelStateChunkReader chunkReader;
+    private final int numReadThreads;
+    private final long readAheadBytes;
+    private final Counter recoveredBytes;
+    private volatile long recoveryTimeMillis;
+
+    @GuardedBy("this")
+    @Nullable
+    private ThreadPoolExecutor readExecutor;
 
     public SequentialChannelStateReaderImpl(TaskStateSnapshot taskStateSnapshot) {
+        this(
+                taskStateSnapshot,
+                CheckpointingOptions.CHANNEL_STATE_RECOVERY_NUM_THREADS.defaultValue(),
+                CheckpointingOptions.CHANNEL_STATE_RECOVERY_READ_AHEAD.defaultValue().getBytes(),
+                new UnregisteredMetricsGroup());
+    }
+
+    public SequentialChannelStateReaderImpl(
+            TaskStateSnapshot taskStateSnapshot,
+            int numReadThreads,
+            long readAheadBytes,
+            MetricGroup metricGroup) {
+        checkArgument(numReadThreads > 0, "The number of read threads must be positive.");
+        checkArgument(readAheadBytes > 0, "The read-ahead size must be positive.");
         this.taskStateSnapshot = taskStateSnapshot;
+        this.numReadThreads = numReadThreads;
+        this.readAheadBytes = readAheadBytes;
+        this.recoveredBytes = metricGroup.counter(MetricNames.CHANNEL_STATE_RECOVERED_BYTES);
+        metricGroup.meter(
+                MetricNames.CHANNEL_STATE_RECOVERED_BYTES_RATE, new MeterView(recoveredBytes));
+        metricGroup.<Long, Gauge<Long>>gauge(
+                MetricNames.CHANNEL_STATE_RECOVERY_TIME, () -> recoveryTimeMillis);
         serializer = new ChannelStateSerializerImpl();
-        chunkReader = new ChannelStateChunkReader(serializer);
+        chunkReader = new ChannelStateChunkReader(serializer, recoveredBytes);
     }
 
     @Override
@@ -88,11 +146,62 @@ public class SequentialChannelStateReaderImpl implements SequentialChannelStateR
             RecoveredChannelStateHandler<Info, Context> stateHandler,
             Map<StreamStateHandle, List<Handle>> streamStateHandleListMap)
             throws IOException, InterruptedException {
+        final long start = System.nanoTime();
+        try {
+            if (numReadThreads > 1) {
+                readInParallel(streamStateHandleListMap, stateHandler);
+            } else {
+                for (Map.Entry<StreamStateHandle, List<Handle>> delegateAndHandles :
+                        streamStateHandleListMap.entrySet()) {
+                    readSequentially(
+                            delegateAndHandles.getKey(),
+                            delegateAndHandles.getValue(),
+                            stateHandler);
+                }
+            }
+        } finally {
+            recoveryTimeMillis += (System.nanoTime() - start) / 1_000_000L;
+        }
+    }
+
+    private <Info, Context, Handle extends AbstractChannelStateHandle<Info>> void readInParallel(
+            Map<StreamStateHandle, List<Handle>> streamStateHandleListMap,
+            RecoveredChannelStateHandler<Info, Context> stateHandler)
+            throws IOException, InterruptedException {
+        List<Map.Entry<StreamStateHandle, List<RescaledOffset<Info>>>> delegates =
+                new ArrayList<>(streamStateHandleListMap.size());
         for (Map.Entry<StreamStateHandle, List<Handle>> delegateAndHandles :
                 streamStateHandleListMap.entrySet()) {
-            readSequentially(
-                    delegateAndHandles.getKey(), delegateAndHandles.getValue(), stateHandler);
+            delegates.add(
+                    new AbstractMap.SimpleImmutableEntry<>(
+                            delegateAndHandles.getKey(),
+                            extractOffsetsSorted(delegateAndHandles.getValue())));
+        }
+
+        new ChannelStateChunkFetcher<>(serializer, delegates, getReadExecutor(), readAheadBytes)
+                .fetch(
+                        (offset, data) ->
+                                chunkReader.recoverChunk(
+                                        data,
+                                        stateHandler,
+                                        offset.channelInfo,
+                                        offset.oldSubtaskIndex));
+    }
+
+    private synchronized Executor getReadExecutor() {
+        if (readExecutor == null) {
+            readExecutor =
+                    new ThreadPoolExecutor(
+                            numReadThreads,
+                            numReadThreads,
+                            READ_THREAD_KEEP_ALIVE_SECONDS,
+                            TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(),
+                            new ExecutorThreadFactory("channel-state-recovery-reader"));
+            // the threads are only needed while recovering
+            readExecutor.allowCoreThreadTimeOut(true);
         }
+        return readExecutor;
     }
 
     private <Info, Context, Handle extends AbstractChannelStateHandle<Info>> void readSequentially(
@@ -160,7 +269,13 @@ public class SequentialChannelStateReaderImpl implements SequentialChannelStateR
     }
 
     @Override
-    public void close() throws Exception {}
+    public void close() throws Exception {
+        synchronized (this) {
+            if (readExecutor != null) {
+                readExecutor.shutdownNow();
+            }
+        }
+    }
 
     static class RescaledOffset<Info> {
         final Long offset;
@@ -177,9 +292,15 @@ public class SequentialChannelStateReaderImpl implements SequentialChannelStateR
 
 class ChannelStateChunkReader {
     private final ChannelStateSerializer serializer;
+    private final Counter recoveredBytes;
 
     ChannelStateChunkReader(ChannelStateSerializer serializer) {
+        this(serializer, new SimpleCounter());
+    }
+
+    ChannelStateChunkReader(ChannelStateSerializer serializer, Counter recoveredBytes) {
         this.serializer = serializer;
+        this.recoveredBytes = recoveredBytes;
     }
 
     <Info, Context> void readChunk(
@@ -192,7 +313,33 @@ class ChannelStateChunkReader {
         if (source.getPos() != sourceOffset) {
             source.seek(sourceOffset);
         }
-        int length = serializer.readLength(source);
+        recoverData(
+                source, serializer.readLength(source), stateHandler, channelInfo, oldSubtaskIndex);
+    }
+
+    /** Recovers a chunk whose data was read ahead, without the length prefix. */
+    <Info, Context> void recoverChunk(
+            byte[] data,
+            RecoveredChannelStateHandler<Info, Context> stateHandler,
+            Info channelInfo,
+            int oldSubtaskIndex)
+            throws IOException, InterruptedException {
+        recoverData(
+                new ByteArrayInputStream(data),
+                data.length,
+                stateHandler,
+                channelInfo,
+                oldSubtaskIndex);
+    }
+
+    private <Info, Context> void recoverData(
+            InputStream source,
+            int length,
+            RecoveredChannelStateHandler<Info, Context> stateHandler,
+            Info channelInfo,
+            int oldSubtaskIndex)
+            throws IOException, InterruptedException {
+        recoveredBytes.inc(length);
         while (length > 0) {
             RecoveredChannelStateHandler.BufferWithContext<Context> bufferWithContext =
                     stateHandler.getBuffer(channelInfo);
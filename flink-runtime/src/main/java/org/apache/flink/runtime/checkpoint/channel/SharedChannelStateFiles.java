@@ -0,0 +1,355 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.checkpoint.channel;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.runtime.state.CheckpointStorageLocationReference;
+import org.apache.flink.runtime.state.CheckpointStreamFactory;
+import org.apache.flink.runtime.state.CheckpointStreamFactory.CheckpointStateOutputStream;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.filesystem.FileStateHandle;
+import org.apache.flink.runtime.state.filesystem.RelativeFileStateHandle;
+import org.apache.flink.runtime.state.filesystem.SegmentFileStateHandle;
+import org.apache.flink.runtime.state.memory.ByteStreamStateHandle;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.UUID.randomUUID;
+import static org.apache.flink.runtime.state.CheckpointedStateScope.EXCLUSIVE;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * The files into which the tasks bound to the same thread of a {@link
+ * ChannelStateWriteRequestExecutorPool} write their channel state. The tasks of a job which write
+ * the channel state of the same checkpoint at the same time share one file instead of writing one
+ * file each. Every task reports a {@link SegmentFileStateHandle segment} of that file, which starts
+ * with the header the task wrote first and ends with the last data it wrote. The segments of the
+ * tasks may overlap, because their writes are interleaved, and the file is only deleted once the
+ * segments of all tasks are discarded.
+ *
+ * <p>A file is closed once all tasks which joined it completed or aborted their channel state, so
+ * the handles of a task are only reported after the other tasks writing into the same file have
+ * finished. A task which starts writing the channel state of a checkpoint after its file was closed
+ * starts a new file.
+ *
+ * <p>This class is not thread-safe. It is only accessed by the pool thread which executes the
+ * requests of the tasks.
+ */
+@NotThreadSafe
+final class SharedChannelStateFiles {
+    private static final Logger LOG = LoggerFactory.getLogger(SharedChannelStateFiles.class);
+
+    private final Map<FileKey, SharedFile> openFiles = new HashMap<>();
+
+    /**
+     * Opens a stream which writes into the shared file of the given checkpoint, creating the file
+     * with the given factory if no other task is currently writing into it.
+     */
+    SharedStream openStream(
+            JobID jobId,
+            long checkpointId,
+            CheckpointStorageLocationReference locationReference,
+            CheckpointStreamFactory streamFactory)
+            throws IOException {
+        FileKey key = new FileKey(jobId, checkpointId, locationReference);
+        SharedFile file = openFiles.get(key);
+        if (file == null) {
+            file =
+                    new SharedFile(
+                            key,
+                            streamFactory.createCheckpointStateOutputStream(EXCLUSIVE),
+                            streamFactory);
+            openFiles.put(key, file);
+        }
+        return file.join();
+    }
+
+    @VisibleForTesting
+    int getNumberOfOpenFiles() {
+        return openFiles.size();
+    }
+
+    /** A file shared by the tasks which write the channel state of a checkpoint concurrently. */
+    private final class SharedFile {
+        private final FileKey key;
+        private final CheckpointStateOutputStream stream;
+        private final CheckpointStreamFactory streamFactory;
+
+        /** The writers which completed and wait for the file to be closed. */
+        private final List<SharedStream> waitingWriters = new ArrayList<>();
+
+        /** The number of writers which neither completed nor aborted yet. */
+        private int numActiveWriters;
+
+        @Nullable private IOException failure;
+
+        private SharedFile(
+                FileKey key,
+                CheckpointStateOutputStream stream,
+                CheckpointStreamFactory streamFactory) {
+            this.key = key;
+            this.stream = stream;
+            this.streamFactory = streamFactory;
+        }
+
+        private SharedStream join() throws IOException {
+            SharedStream writer = new SharedStream(this, stream.getPos());
+            numActiveWriters++;
+            return writer;
+        }
+
+        private void checkNotFailed() throws IOException {
+            if (failure != null) {
+                throw new IOException("A write into the shared channel state file failed", failure);
+            }
+        }
+
+        private void onWriteFailure(IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+
+        private void release(SharedStream writer, boolean completed) {
+            if (completed) {
+                waitingWriters.add(writer);
+            }
+            if (--numActiveWriters == 0) {
+                close();
+            }
+        }
+
+        private void close() {
+            openFiles.remove(key, this);
+            if (waitingWriters.isEmpty() || failure != null) {
+                discard();
+                return;
+            }
+
+            StreamStateHandle handle;
+            try {
+                handle = stream.closeAndGetHandle();
+                // the handle may only be reported once the data of the file is readable
+                streamFactory.closeMergedFiles();
+            } catch (IOException e) {
+                failure = e;
+                discard();
+                return;
+            }
+            for (SharedStream waitingWriter : waitingWriters) {
+                try {
+                    waitingWriter.result.complete(
+                            createSegmentHandle(
+                                    handle, waitingWriter.startPos, waitingWriter.endPos));
+                } catch (IOException e) {
+                    waitingWriter.result.completeExceptionally(e);
+                }
+            }
+        }
+
+        private void discard() {
+            try {
+                stream.close();
+                streamFactory.abortMergedFiles();
+            } catch (IOException e) {
+                LOG.warn("Unable to close the shared channel state file of {}", key, e);
+            }
+            IOException cause =
+                    failure != null
+                            ? failure
+                            : new IOException("The shared channel state file was discarded");
+            for (SharedStream waitingWriter : waitingWriters) {
+                waitingWriter.result.completeExceptionally(cause);
+            }
+        }
+    }
+
+    /**
+     * Creates the handle of the segment of a writer, given the handle of the whole shared file. A
+     * file which is kept in memory is small and its segments are copied.
+     */
+    @VisibleForTesting
+    static StreamStateHandle createSegmentHandle(
+            StreamStateHandle fileHandle, long startPos, long endPos) throws IOException {
+        long size = endPos - startPos;
+        if (fileHandle instanceof SegmentFileStateHandle) {
+            // the shared file is a segment of a merged checkpoint file itself
+            SegmentFileStateHandle segment = (SegmentFileStateHandle) fileHandle;
+            return new SegmentFileStateHandle(
+                    segment.getFilePath(),
+                    segment.getRelativePath(),
+                    segment.getStartPos() + startPos,
+                    size);
+        } else if (fileHandle instanceof RelativeFileStateHandle) {
+            RelativeFileStateHandle file = (RelativeFileStateHandle) fileHandle;
+            return new SegmentFileStateHandle(
+                    file.getFilePath(), file.getRelativePath(), startPos, size);
+        } else if (fileHandle instanceof FileStateHandle) {
+            return new SegmentFileStateHandle(
+                    ((FileStateHandle) fileHandle).getFilePath(), startPos, size);
+        }
+
+        Optional<byte[]> bytes = fileHandle.asBytesIfInMemory();
+        if (bytes.isPresent()) {
+            return new ByteStreamStateHandle(
+                    randomUUID().toString(),
+                    Arrays.copyOfRange(bytes.get(), (int) startPos, (int) endPos));
+        }
+        throw new IOException("Cannot create a segment of the channel state file " + fileHandle);
+    }
+
+    /**
+     * The writer of a single task into a shared file. Its positions are relative to the start of
+     * the segment of the task. {@link #close()} aborts the channel state of the task, {@link
+     * #closeAndGetSegmentHandle()} completes it.
+     */
+    static final class SharedStream extends OutputStream {
+        private final SharedFile file;
+
+        /** The position in the shared file at which the segment of the task starts. */
+        private final long startPos;
+
+        /** The position in the shared file at which the segment of the task ends, once known. */
+        private long endPos = -1L;
+
+        private final CompletableFuture<StreamStateHandle> result = new CompletableFuture<>();
+
+        private boolean released;
+
+        private SharedStream(SharedFile file, long startPos) {
+            this.file = checkNotNull(file);
+            this.startPos = startPos;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            checkWritable();
+            try {
+                file.stream.write(b);
+            } catch (IOException e) {
+                file.onWriteFailure(e);
+                throw e;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            checkWritable();
+            try {
+                file.stream.write(b, off, len);
+            } catch (IOException e) {
+                file.onWriteFailure(e);
+                throw e;
+            }
+        }
+
+        private void checkWritable() throws IOException {
+            checkState(!released, "The stream is already closed.");
+            file.checkNotFailed();
+        }
+
+        /** Returns the position relative to the start of the segment of the task. */
+        long getPos() throws IOException {
+            return file.stream.getPos() - startPos;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            checkWritable();
+            file.stream.flush();
+        }
+
+        /**
+         * Completes the writes of this task. The returned future is completed with the handle of
+         * the segment of this task once all other tasks writing into the shared file completed or
+         * aborted, or exceptionally if the file could not be written.
+         */
+        CompletableFuture<StreamStateHandle> closeAndGetSegmentHandle() throws IOException {
+            checkState(!released, "The stream is already closed.");
+            endPos = file.stream.getPos();
+            released = true;
+            file.release(this, true);
+            return result;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                file.release(this, false);
+            }
+        }
+    }
+
+    /** The key of the shared file of a checkpoint of a job. */
+    private static final class FileKey {
+        private final JobID jobId;
+        private final long checkpointId;
+        private final CheckpointStorageLocationReference locationReference;
+
+        private FileKey(
+                JobID jobId,
+                long checkpointId,
+                CheckpointStorageLocationReference locationReference) {
+            this.jobId = checkNotNull(jobId);
+            this.checkpointId = checkpointId;
+            this.locationReference = checkNotNull(locationReference);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            FileKey that = (FileKey) o;
+            return checkpointId == that.checkpointId
+                    && jobId.equals(that.jobId)
+                    && locationReference.equals(that.locationReference);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(jobId, checkpointId, locationReference);
+        }
+
+        @Override
+        public String toString() {
+            return "checkpoint " + checkpointId + " of job " + jobId;
+        }
+    }
+}
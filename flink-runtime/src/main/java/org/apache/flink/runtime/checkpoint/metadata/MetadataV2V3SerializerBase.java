@@ -46,6 +46,7 @@ import org.apache.flink.runtime.state.changelog.inmemory.InMemoryChangelogStateH
 import org.apache.flink.runtime.state.filesystem.AbstractFsCheckpointStorageAccess;
 import org.apache.flink.runtime.state.filesystem.FileStateHandle;
 import org.apache.flink.runtime.state.filesystem.RelativeFileStateHandle;
+import org.apache.flink.runtime.state.filesystem.SegmentFileStateHandle;
 import org.apache.flink.runtime.state.memory.ByteStreamStateHandle;
 import org.apache.flink.util.function.BiConsumerWithException;
 import org.apache.flink.util.function.BiFunctionWithException;
@@ -104,6 +105,8 @@ public abstract class MetadataV2V3SerializerBase {
     private static final byte CHANGELOG_HANDLE = 8;
     private static final byte CHANGELOG_BYTE_INCREMENT_HANDLE = 9;
     private static final byte CHANGELOG_FILE_INCREMENT_HANDLE = 10;
+    private static final byte SEGMENT_FILE_STREAM_STATE_HANDLE = 11;
+    private static final byte RELATIVE_SEGMENT_FILE_STREAM_STATE_HANDLE = 12;
 
     // ------------------------------------------------------------------------
     //  (De)serialization entry points
@@ -598,6 +601,19 @@ public abstract class MetadataV2V3SerializerBase {
             RelativeFileStateHandle relativeFileStateHandle = (RelativeFileStateHandle) stateHandle;
             dos.writeUTF(relativeFileStateHandle.getRelativePath());
             dos.writeLong(relativeFileStateHandle.getStateSize());
+        } else if (stateHandle instanceof SegmentFileStateHandle) {
+            SegmentFileStateHandle segmentFileStateHandle = (SegmentFileStateHandle) stateHandle;
+            if (segmentFileStateHandle.getRelativePath() != null) {
+                dos.writeByte(RELATIVE_SEGMENT_FILE_STREAM_STATE_HANDLE);
+                dos.writeLong(segmentFileStateHandle.getStartPos());
+                dos.writeLong(segmentFileStateHandle.getStateSize());
+                dos.writeUTF(segmentFileStateHandle.getRelativePath());
+            } else {
+                dos.writeByte(SEGMENT_FILE_STREAM_STATE_HANDLE);
+                dos.writeLong(segmentFileStateHandle.getStartPos());
+                dos.writeLong(segmentFileStateHandle.getStateSize());
+                dos.writeUTF(segmentFileStateHandle.getFilePath().toString());
+            }
         } else if (stateHandle instanceof FileStateHandle) {
             dos.writeByte(FILE_STREAM_STATE_HANDLE);
             FileStateHandle fileStateHandle = (FileStateHandle) stateHandle;
@@ -652,6 +668,21 @@ public abstract class MetadataV2V3SerializerBase {
             long size = dis.readLong();
             Path statePath = new Path(context.getExclusiveDirPath(), relativePath);
             return new RelativeFileStateHandle(statePath, relativePath, size);
+        } else if (SEGMENT_FILE_STREAM_STATE_HANDLE == type) {
+            long startPos = dis.readLong();
+            long size = dis.readLong();
+            String pathString = dis.readUTF();
+            return new SegmentFileStateHandle(new Path(pathString), startPos, size);
+        } else if (RELATIVE_SEGMENT_FILE_STREAM_STATE_HANDLE == type) {
+            if (context == null) {
+                throw new IOException(
+                        "Cannot deserialize a relative SegmentFileStateHandle without a context to make it relative to.");
+            }
+            long startPos = dis.readLong();
+            long size = dis.readLong();
+            String relativePath = dis.readUTF();
+            Path statePath = new Path(context.getExclusiveDirPath(), relativePath);
+            return new SegmentFileStateHandle(statePath, relativePath, startPos, size);
         } else if (KEY_GROUPS_HANDLE == type) {
 
             int startKeyGroup = dis.readInt();
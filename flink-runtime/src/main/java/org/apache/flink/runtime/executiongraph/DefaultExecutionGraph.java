@@ -205,6 +205,9 @@ public class DefaultExecutionGraph implements ExecutionGraph, InternalExecutionG
 
     private int numFinishedVertices;
 
+    /** Version of the execution topology, see {@link #getExecutionTopologyVersion()}. */
+    private long executionTopologyVersion;
+
     /** Current status of the job execution. */
     private volatile JobStatus state = JobStatus.CREATED;
 
@@ -592,6 +595,11 @@ public class DefaultExecutionGraph implements ExecutionGraph, InternalExecutionG
         return numFinishedVertices;
     }
 
+    @Override
+    public long getExecutionTopologyVersion() {
+        return executionTopologyVersion;
+    }
+
     @Override
     public ExecutionJobVertex getJobVertex(JobVertexID id) {
         return this.tasks.get(id);
@@ -836,6 +844,7 @@ public class DefaultExecutionGraph implements ExecutionGraph, InternalExecutionG
         // update parallelism and adjust the number of ExecutionVertex and
         // IntermediateResultPartitions
         List<ExecutionVertex> affectedVertices = rescaledJobVertex.changeParallelism(newParallelism);
+        executionTopologyVersion++;
 
         // rebuild connections to upstreams
         // 1. remove all previous connections to upstreams
@@ -1464,6 +1473,7 @@ public class DefaultExecutionGraph implements ExecutionGraph, InternalExecutionG
     @Override
     public void registerExecution(Execution exec) {
         assertRunningInJobMasterMainThread();
+        executionTopologyVersion++;
         Execution previous = currentExecutions.putIfAbsent(exec.getAttemptId(), exec);
         if (previous != null) {
             failGlobal(
@@ -1547,6 +1557,7 @@ public class DefaultExecutionGraph implements ExecutionGraph, InternalExecutionG
     @Override
     public void notifyExecutionChange(
             final Execution execution, final ExecutionState newExecutionState) {
+        executionTopologyVersion++;
         executionStateUpdateListener.onStateUpdate(execution.getAttemptId(), newExecutionState);
     }
 
@@ -210,6 +210,15 @@ public interface ExecutionGraph extends AccessExecutionGraph {
 
     int getNumFinishedVertices();
 
+    /**
+     * Returns the version of the execution topology. The version changes whenever an execution is
+     * registered or changes its state, and whenever the parallelism of a job vertex changes, so
+     * that information derived from the executions can be cached as long as it stays the same.
+     *
+     * @return The current version of the execution topology.
+     */
+    long getExecutionTopologyVersion();
+
     @Nonnull
     ComponentMainThreadExecutor getJobMasterMainThreadExecutor();
 }
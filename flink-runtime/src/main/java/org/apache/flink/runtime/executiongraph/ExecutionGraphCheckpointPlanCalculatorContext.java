@@ -45,4 +45,9 @@ public class ExecutionGraphCheckpointPlanCalculatorContext
     public boolean hasFinishedTasks() {
         return executionGraph.getNumFinishedVertices() > 0;
     }
+
+    @Override
+    public long getExecutionTopologyVersion() {
+        return executionGraph.getExecutionTopologyVersion();
+    }
 }
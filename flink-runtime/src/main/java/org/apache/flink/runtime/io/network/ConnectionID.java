@@ -18,11 +18,15 @@
 
 package org.apache.flink.runtime.io.network;
 
+import org.apache.flink.runtime.clusterframework.types.ResourceID;
 import org.apache.flink.runtime.executiongraph.IntermediateResult;
 import org.apache.flink.runtime.taskmanager.TaskManagerLocation;
 
+import javax.annotation.Nullable;
+
 import java.io.Serializable;
 import java.net.InetSocketAddress;
+import java.util.Objects;
 
 import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkNotNull;
@@ -34,6 +38,11 @@ import static org.apache.flink.util.Preconditions.checkNotNull;
  *
  * <p>The connection index is assigned by the {@link IntermediateResult} and ensures that it is safe
  * to multiplex multiple data transfers over the same physical TCP connection.
+ *
+ * <p>If known, the {@link ResourceID} of the remote task manager is kept as well. It is used to
+ * find the local transport of a co-located task manager. It takes part in equality, so that a
+ * connection to a co-located task manager is never reused for another task manager which is
+ * reachable under the same address, e.g. from another network namespace.
  */
 public class ConnectionID implements Serializable {
 
@@ -43,16 +52,31 @@ public class ConnectionID implements Serializable {
 
     private final int connectionIndex;
 
+    @Nullable private final ResourceID resourceID;
+
     public ConnectionID(TaskManagerLocation connectionInfo, int connectionIndex) {
         this(
+                connectionInfo.getResourceID(),
                 new InetSocketAddress(connectionInfo.address(), connectionInfo.dataPort()),
                 connectionIndex);
     }
 
     public ConnectionID(InetSocketAddress address, int connectionIndex) {
+        this(null, address, connectionIndex);
+    }
+
+    public ConnectionID(
+            @Nullable ResourceID resourceID, InetSocketAddress address, int connectionIndex) {
         this.address = checkNotNull(address);
         checkArgument(connectionIndex >= 0);
         this.connectionIndex = connectionIndex;
+        this.resourceID = resourceID;
+    }
+
+    /** Returns the {@link ResourceID} of the remote task manager or <tt>null</tt> if unknown. */
+    @Nullable
+    public ResourceID getResourceID() {
+        return resourceID;
     }
 
     public InetSocketAddress getAddress() {
@@ -65,7 +89,7 @@ public class ConnectionID implements Serializable {
 
     @Override
     public int hashCode() {
-        return address.hashCode() + (31 * connectionIndex);
+        return 31 * (address.hashCode() + (31 * connectionIndex)) + Objects.hashCode(resourceID);
     }
 
     @Override
@@ -75,7 +99,9 @@ public class ConnectionID implements Serializable {
         }
 
         final ConnectionID ra = (ConnectionID) other;
-        if (!ra.getAddress().equals(address) || ra.getConnectionIndex() != connectionIndex) {
+        if (!ra.getAddress().equals(address)
+                || ra.getConnectionIndex() != connectionIndex
+                || !Objects.equals(ra.getResourceID(), resourceID)) {
             return false;
         }
 
@@ -130,7 +130,10 @@ public class NettyShuffleServiceFactory
         ConnectionManager connectionManager =
                 nettyConfig != null
                         ? new NettyConnectionManager(
-                                resultPartitionManager, taskEventPublisher, nettyConfig)
+                                resultPartitionManager,
+                                taskEventPublisher,
+                                nettyConfig,
+                                taskExecutorResourceId)
                         : new LocalConnectionManager();
 
         NetworkBufferPool networkBufferPool =
@@ -176,6 +179,7 @@ public class NettyShuffleServiceFactory
                         config.getMaxBuffersPerChannel(),
                         config.sortShuffleMinBuffers(),
                         config.sortShuffleMinParallelism(),
+                        config.sortShuffleReadMode(),
                         config.isSSLEnabled());
 
         SingleInputGateFactory singleInputGateFactory =
@@ -53,6 +53,9 @@ public interface NetworkSequenceViewReader {
      */
     void addCredit(int creditDeltas);
 
+    /** Returns the number of credits announced by the consumer which are not used yet. */
+    int getNumCreditsAvailable();
+
     /** Resumes data consumption after an exactly once checkpoint. */
     void resumeConsumption();
 
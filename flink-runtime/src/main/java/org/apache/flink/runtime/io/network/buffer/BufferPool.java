@@ -64,6 +64,12 @@ public interface BufferPool extends BufferProvider, BufferRecycler {
      */
     void setNumBuffers(int numBuffers);
 
+    /**
+     * Sets the maximum number of memory segments this buffer pool should use. The number of
+     * required memory segments is not changed.
+     */
+    void setMaxNumberOfMemorySegments(int maxNumberOfMemorySegments) throws IOException;
+
     /** Returns the number memory segments, which are currently held by this buffer pool. */
     int getNumberOfAvailableMemorySegments();
 
@@ -71,8 +71,11 @@ class LocalBufferPool implements BufferPool {
     /** Global network buffer pool to get buffers from. */
     private final NetworkBufferPool networkBufferPool;
 
-    /** The minimum number of required segments for this pool. */
-    private final int numberOfRequiredMemorySegments;
+    /**
+     * The minimum number of required segments for this pool. Only changed by the {@link
+     * NetworkBufferPool} when the pool is resized, e.g. after the owning partition was rescaled.
+     */
+    private volatile int numberOfRequiredMemorySegments;
 
     /**
      * The currently available memory segments. These are segments, which have been requested from
@@ -94,7 +97,7 @@ class LocalBufferPool implements BufferPool {
     private final ArrayDeque<BufferListener> registeredListeners = new ArrayDeque<>();
 
     /** Maximum number of network buffers to allocate. */
-    private final int maxNumberOfMemorySegments;
+    private volatile int maxNumberOfMemorySegments;
 
     /** The current size of this pool. */
     @GuardedBy("availableMemorySegments")
@@ -269,6 +272,34 @@ class LocalBufferPool implements BufferPool {
         return maxNumberOfMemorySegments;
     }
 
+    @Override
+    public void setMaxNumberOfMemorySegments(int maxNumberOfMemorySegments) throws IOException {
+        networkBufferPool.updateBufferPoolSize(
+                this, numberOfRequiredMemorySegments, maxNumberOfMemorySegments);
+    }
+
+    /**
+     * Updates the minimum and maximum number of memory segments of this pool. The current pool size
+     * is adjusted afterwards by {@link NetworkBufferPool} via {@link #setNumBuffers(int)}.
+     */
+    void updateNumberOfMemorySegments(
+            int numberOfRequiredMemorySegments, int maxNumberOfMemorySegments) {
+        checkArgument(
+                numberOfRequiredMemorySegments > 0,
+                "Required number of memory segments (%s) should be larger than 0.",
+                numberOfRequiredMemorySegments);
+        checkArgument(
+                maxNumberOfMemorySegments >= numberOfRequiredMemorySegments,
+                "Maximum number of memory segments (%s) should not be smaller than minimum (%s).",
+                maxNumberOfMemorySegments,
+                numberOfRequiredMemorySegments);
+
+        synchronized (availableMemorySegments) {
+            this.numberOfRequiredMemorySegments = numberOfRequiredMemorySegments;
+            this.maxNumberOfMemorySegments = maxNumberOfMemorySegments;
+        }
+    }
+
     @Override
     public int getNumberOfAvailableMemorySegments() {
         synchronized (availableMemorySegments) {
@@ -426,6 +426,47 @@ public class NetworkBufferPool
         }
     }
 
+    /**
+     * Updates the minimum and maximum number of buffers of a buffer pool created by this network
+     * buffer pool, e.g. after the number of subpartitions of the owning result partition changed
+     * because of rescaling, and redistributes the non-required buffers among all buffer pools.
+     *
+     * @throws IOException if the increased number of required buffers cannot be satisfied
+     */
+    public void updateBufferPoolSize(
+            BufferPool bufferPool, int numRequiredBuffers, int maxUsedBuffers) throws IOException {
+        if (!(bufferPool instanceof LocalBufferPool)) {
+            throw new IllegalArgumentException("bufferPool is no LocalBufferPool");
+        }
+        LocalBufferPool localBufferPool = (LocalBufferPool) bufferPool;
+
+        synchronized (factoryLock) {
+            if (isDestroyed || !allBufferPools.contains(localBufferPool)) {
+                return;
+            }
+
+            int numAdditionalRequiredBuffers =
+                    numRequiredBuffers - localBufferPool.getNumberOfRequiredMemorySegments();
+            if (numTotalRequiredBuffers + numAdditionalRequiredBuffers
+                    > totalNumberOfMemorySegments) {
+                throw new IOException(
+                        String.format(
+                                "Insufficient number of network buffers: "
+                                        + "required %d, but only %d available. %s.",
+                                numAdditionalRequiredBuffers,
+                                totalNumberOfMemorySegments - numTotalRequiredBuffers,
+                                getConfigDescription()));
+            }
+
+            localBufferPool.updateNumberOfMemorySegments(numRequiredBuffers, maxUsedBuffers);
+            numTotalRequiredBuffers += numAdditionalRequiredBuffers;
+
+            // fixed size pools are skipped by the redistribution, so the size is reset first
+            localBufferPool.setNumBuffers(numRequiredBuffers);
+            redistributeBuffers();
+        }
+    }
+
     /**
      * Destroys all buffer pools that allocate their buffers from this buffer pool (created via
      * {@link #createBufferPool(int, int)}).
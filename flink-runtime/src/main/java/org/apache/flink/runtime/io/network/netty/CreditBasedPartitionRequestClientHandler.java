@@ -39,6 +39,8 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.net.SocketAddress;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicReference;
@@ -62,6 +64,9 @@ class CreditBasedPartitionRequestClientHandler extends ChannelInboundHandlerAdap
     /** Messages to be sent to the producers (credit announcement or resume consumption request). */
     private final ArrayDeque<ClientOutboundMessage> clientOutboundMessages = new ArrayDeque<>();
 
+    /** Maximum number of control messages which are coalesced into a single batched message. */
+    @VisibleForTesting static final int MAX_NUM_BATCHED_MESSAGES = 1024;
+
     private final AtomicReference<Throwable> channelError = new AtomicReference<>();
 
     private final ChannelFutureListener writeListener =
@@ -343,23 +348,30 @@ class CreditBasedPartitionRequestClientHandler extends ChannelInboundHandlerAdap
     }
 
     /**
-     * Tries to write&flush unannounced credits for the next input channel in queue.
+     * Tries to write&flush unannounced credits for the next input channels in queue.
      *
      * <p>This method may be called by the first input channel enqueuing, or the complete future's
      * callback in previous input channel, or the channel writability changed event.
+     *
+     * <p>All the messages which were queued up while the previous write was in flight are coalesced
+     * into a single {@link NettyMessage.BatchedControlMessages}, so that the number of control
+     * messages on a connection shared by many input channels is bounded by the write round trips
+     * rather than by the number of channels.
      */
     private void writeAndFlushNextMessageIfPossible(Channel channel) {
         if (channelError.get() != null || !channel.isWritable()) {
             return;
         }
 
-        while (true) {
+        List<NettyMessage> batchableMessages = new ArrayList<>();
+        Object nonBatchableMessage = null;
+        while (nonBatchableMessage == null && batchableMessages.size() < MAX_NUM_BATCHED_MESSAGES) {
             ClientOutboundMessage outboundMessage = clientOutboundMessages.poll();
 
             // The input channel may be null because of the write callbacks
             // that are executed after each write.
             if (outboundMessage == null) {
-                return;
+                break;
             }
 
             // It is no need to notify credit or resume data consumption for the released channel.
@@ -369,12 +381,35 @@ class CreditBasedPartitionRequestClientHandler extends ChannelInboundHandlerAdap
                     continue;
                 }
 
-                // Write and flush and wait until this is done before
-                // trying to continue with the next input channel.
-                channel.writeAndFlush(msg).addListener(writeListener);
+                if (NettyMessage.BatchedControlMessages.isBatchable(msg)) {
+                    batchableMessages.add((NettyMessage) msg);
+                } else {
+                    nonBatchableMessage = msg;
+                }
+            }
+        }
 
-                return;
+        Object batchedMessage;
+        if (batchableMessages.isEmpty()) {
+            batchedMessage = null;
+        } else if (batchableMessages.size() == 1) {
+            batchedMessage = batchableMessages.get(0);
+        } else {
+            batchedMessage = new NettyMessage.BatchedControlMessages(batchableMessages);
+        }
+
+        // Write and flush and wait until this is done before
+        // trying to continue with the next input channels.
+        if (nonBatchableMessage == null) {
+            if (batchedMessage != null) {
+                channel.writeAndFlush(batchedMessage).addListener(writeListener);
+            }
+        } else {
+            if (batchedMessage != null) {
+                channel.write(batchedMessage)
+                        .addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
             }
+            channel.writeAndFlush(nonBatchableMessage).addListener(writeListener);
         }
     }
 
@@ -177,8 +177,8 @@ class CreditBasedSequenceNumberingViewReader
         subpartitionView.notifyNewBufferSize(newBufferSize);
     }
 
-    @VisibleForTesting
-    int getNumCreditsAvailable() {
+    @Override
+    public int getNumCreditsAvailable() {
         return numCreditsAvailable;
     }
 
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.netty;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.runtime.io.network.NetworkSequenceViewReader;
+
+import javax.annotation.Nullable;
+
+import java.util.AbstractQueue;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * A queue of available readers which serves the readers whose consumers have more credits first.
+ * The credits of a consumer are the number of buffers it can accept right away, so a starving
+ * consumer is preferred over a backpressured one, which unlocks more downstream work per buffer
+ * sent.
+ *
+ * <p>To prevent starvation, the priority is aged: every enqueued reader advances a logical clock
+ * and readers are ordered by their enqueue time minus their weight, where the weight is the number
+ * of credits capped at {@link #MAX_WEIGHT}. A reader is thus overtaken by fewer than {@link
+ * #MAX_WEIGHT} readers enqueued after it.
+ *
+ * <p>The weight is captured when a reader is enqueued and raised by {@link #updateWeight} when the
+ * consumer announces more credits while the reader is waiting, so the priority follows the credits
+ * until the reader is polled. Credits only decrease when a buffer is sent, i.e. after polling.
+ * Raising the weight enqueues a new entry for the reader and leaves the old one behind to be
+ * skipped later, which keeps updates logarithmic.
+ *
+ * <p>A reader can be contained at most once. This class is not thread safe and must only be
+ * accessed by the netty thread.
+ */
+class CreditWeightedReaderQueue extends AbstractQueue<NetworkSequenceViewReader> {
+
+    @VisibleForTesting static final int MAX_WEIGHT = 32;
+
+    private final PriorityQueue<Entry> entries = new PriorityQueue<>();
+
+    /** The current entry of every contained reader, other entries in the heap are outdated. */
+    private final Map<NetworkSequenceViewReader, Entry> currentEntries = new IdentityHashMap<>();
+
+    /** Logical clock advanced by every enqueued reader. */
+    private long clock;
+
+    @Override
+    public boolean offer(NetworkSequenceViewReader reader) {
+        checkNotNull(reader);
+        checkState(!currentEntries.containsKey(reader), "Reader already enqueued.");
+
+        long sequenceNumber = clock++;
+        add(new Entry(reader, sequenceNumber - getWeight(reader), sequenceNumber));
+        return true;
+    }
+
+    /**
+     * Raises the priority of the given reader if its consumer announced more credits since it was
+     * enqueued. Does nothing if the reader is not contained.
+     */
+    void updateWeight(NetworkSequenceViewReader reader) {
+        Entry entry = currentEntries.get(reader);
+        if (entry == null) {
+            return;
+        }
+
+        long priority = entry.sequenceNumber - getWeight(reader);
+        if (priority < entry.priority) {
+            add(new Entry(reader, priority, entry.sequenceNumber));
+        }
+    }
+
+    @Nullable
+    @Override
+    public NetworkSequenceViewReader poll() {
+        Entry entry = pollOutdatedEntries();
+        if (entry == null) {
+            return null;
+        }
+        entries.poll();
+        currentEntries.remove(entry.reader);
+        return entry.reader;
+    }
+
+    @Nullable
+    @Override
+    public NetworkSequenceViewReader peek() {
+        Entry entry = pollOutdatedEntries();
+        return entry == null ? null : entry.reader;
+    }
+
+    @Override
+    public Iterator<NetworkSequenceViewReader> iterator() {
+        Iterator<Entry> iterator = entries.iterator();
+        return new Iterator<NetworkSequenceViewReader>() {
+            @Nullable private Entry next = advance();
+
+            @Nullable private Entry current;
+
+            @Nullable
+            private Entry advance() {
+                while (iterator.hasNext()) {
+                    Entry entry = iterator.next();
+                    if (isCurrent(entry)) {
+                        return entry;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public NetworkSequenceViewReader next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                current = next;
+                next = advance();
+                return current.reader;
+            }
+
+            @Override
+            public void remove() {
+                checkState(current != null);
+                // the outdated entries of the reader are skipped once they reach the head
+                currentEntries.remove(current.reader);
+                current = null;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return currentEntries.size();
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+        currentEntries.clear();
+    }
+
+    private void add(Entry entry) {
+        entries.add(entry);
+        currentEntries.put(entry.reader, entry);
+    }
+
+    private boolean isCurrent(Entry entry) {
+        return currentEntries.get(entry.reader) == entry;
+    }
+
+    /** Removes outdated entries from the head of the heap and returns the current head, if any. */
+    @Nullable
+    private Entry pollOutdatedEntries() {
+        Entry entry;
+        while ((entry = entries.peek()) != null && !isCurrent(entry)) {
+            entries.poll();
+        }
+        return entry;
+    }
+
+    private static int getWeight(NetworkSequenceViewReader reader) {
+        return Math.min(Math.max(reader.getNumCreditsAvailable(), 0), MAX_WEIGHT);
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+
+        private final NetworkSequenceViewReader reader;
+
+        private final long priority;
+
+        private final long sequenceNumber;
+
+        private Entry(NetworkSequenceViewReader reader, long priority, long sequenceNumber) {
+            this.reader = reader;
+            this.priority = priority;
+            this.sequenceNumber = sequenceNumber;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int result = Long.compare(priority, other.priority);
+            return result != 0 ? result : Long.compare(sequenceNumber, other.sequenceNumber);
+        }
+    }
+}
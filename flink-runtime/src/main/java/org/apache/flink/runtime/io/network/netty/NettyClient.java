@@ -18,17 +18,22 @@
 
 package org.apache.flink.runtime.io.network.netty;
 
+import org.apache.flink.runtime.io.network.ConnectionID;
+
 import org.apache.flink.shaded.netty4.io.netty.bootstrap.Bootstrap;
+import org.apache.flink.shaded.netty4.io.netty.channel.Channel;
 import org.apache.flink.shaded.netty4.io.netty.channel.ChannelException;
 import org.apache.flink.shaded.netty4.io.netty.channel.ChannelFuture;
 import org.apache.flink.shaded.netty4.io.netty.channel.ChannelInitializer;
 import org.apache.flink.shaded.netty4.io.netty.channel.ChannelOption;
 import org.apache.flink.shaded.netty4.io.netty.channel.epoll.Epoll;
+import org.apache.flink.shaded.netty4.io.netty.channel.epoll.EpollDomainSocketChannel;
 import org.apache.flink.shaded.netty4.io.netty.channel.epoll.EpollEventLoopGroup;
 import org.apache.flink.shaded.netty4.io.netty.channel.epoll.EpollSocketChannel;
 import org.apache.flink.shaded.netty4.io.netty.channel.nio.NioEventLoopGroup;
 import org.apache.flink.shaded.netty4.io.netty.channel.socket.SocketChannel;
 import org.apache.flink.shaded.netty4.io.netty.channel.socket.nio.NioSocketChannel;
+import org.apache.flink.shaded.netty4.io.netty.channel.unix.DomainSocketAddress;
 import org.apache.flink.shaded.netty4.io.netty.handler.ssl.SslHandler;
 
 import org.slf4j.Logger;
@@ -36,6 +41,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 
@@ -51,6 +57,9 @@ class NettyClient {
 
     private Bootstrap bootstrap;
 
+    /** Bootstrap for unix domain socket connections to co-located servers, if enabled. */
+    @Nullable private Bootstrap localBootstrap;
+
     @Nullable private SSLHandlerFactory clientSSLFactory;
 
     NettyClient(NettyConfig config) {
@@ -117,6 +126,10 @@ class NettyClient {
             throw new IOException("Failed to initialize SSL Context for the Netty client", e);
         }
 
+        if (config.isLocalTransportEnabled()) {
+            initLocalBootstrap(nettyBufferPool);
+        }
+
         final long duration = (System.nanoTime() - start) / 1_000_000;
         LOG.info("Successful initialization (took {} ms).", duration);
     }
@@ -129,9 +142,17 @@ class NettyClient {
         return bootstrap;
     }
 
+    @Nullable
+    Bootstrap getLocalBootstrap() {
+        return localBootstrap;
+    }
+
     void shutdown() {
         final long start = System.nanoTime();
 
+        // the local bootstrap shares the event loop group of the main bootstrap
+        localBootstrap = null;
+
         if (bootstrap != null) {
             if (bootstrap.group() != null) {
                 bootstrap.group().shutdownGracefully();
@@ -165,6 +186,30 @@ class NettyClient {
         bootstrap.group(epollGroup).channel(EpollSocketChannel.class);
     }
 
+    private void initLocalBootstrap(NettyBufferPool nettyBufferPool) {
+        if (!(bootstrap.config().group() instanceof EpollEventLoopGroup)) {
+            LOG.info("Local transport requires the EPOLL transport type, using TCP only.");
+            return;
+        }
+
+        localBootstrap =
+                new Bootstrap()
+                        .group(bootstrap.config().group())
+                        .channel(EpollDomainSocketChannel.class)
+                        .option(
+                                ChannelOption.CONNECT_TIMEOUT_MILLIS,
+                                config.getClientConnectTimeoutSeconds() * 1000)
+                        .option(ChannelOption.ALLOCATOR, nettyBufferPool)
+                        .handler(
+                                new ChannelInitializer<Channel>() {
+                                    @Override
+                                    public void initChannel(Channel channel) {
+                                        channel.pipeline()
+                                                .addLast(protocol.getClientChannelHandlers());
+                                    }
+                                });
+    }
+
     // ------------------------------------------------------------------------
     // Client connections
     // ------------------------------------------------------------------------
@@ -214,4 +259,24 @@ class NettyClient {
             }
         }
     }
+
+    /**
+     * Connects to the server of the given task manager via its unix domain socket if the server
+     * listens on the local transport and shares the local transport directory with this client.
+     *
+     * @return the connect future or <tt>null</tt> if the local transport can not be used
+     */
+    @Nullable
+    ChannelFuture connectLocally(final ConnectionID connectionId) {
+        if (localBootstrap == null || connectionId.getResourceID() == null) {
+            return null;
+        }
+
+        File socketFile = config.getLocalTransportSocketFile(connectionId.getResourceID());
+        if (!socketFile.exists()) {
+            return null;
+        }
+
+        return localBootstrap.connect(new DomainSocketAddress(socketFile));
+    }
 }
@@ -21,6 +21,7 @@ package org.apache.flink.runtime.io.network.netty;
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.configuration.NettyShuffleEnvironmentOptions;
 import org.apache.flink.configuration.SecurityOptions;
+import org.apache.flink.runtime.clusterframework.types.ResourceID;
 import org.apache.flink.runtime.net.SSLUtils;
 import org.apache.flink.util.NetUtils;
 
@@ -29,7 +30,10 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 
+import java.io.File;
 import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
 
 import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkNotNull;
@@ -142,6 +146,11 @@ public class NettyConfig {
         }
     }
 
+    public ReaderSchedulingPolicy getReaderSchedulingPolicy() {
+        return ReaderSchedulingPolicy.fromString(
+                config.getString(NettyShuffleEnvironmentOptions.SERVER_READER_SCHEDULING));
+    }
+
     @Nullable
     public SSLHandlerFactory createClientSSLEngineFactory() throws Exception {
         return getSSLEnabled() ? SSLUtils.createInternalClientSSLEngineFactory(config) : null;
@@ -157,6 +166,38 @@ public class NettyConfig {
                 && SecurityOptions.isInternalSSLEnabled(config);
     }
 
+    /**
+     * Returns whether connections between co-located TaskManagers should use unix domain sockets.
+     * The local transport requires the epoll transport and is never used together with SSL.
+     */
+    public boolean isLocalTransportEnabled() {
+        return config.getBoolean(NettyShuffleEnvironmentOptions.LOCAL_TRANSPORT_ENABLED)
+                && !getSSLEnabled();
+    }
+
+    public File getLocalTransportDirectory() {
+        return new File(config.getString(NettyShuffleEnvironmentOptions.LOCAL_TRANSPORT_DIR));
+    }
+
+    /**
+     * Returns the unix domain socket file of the server of the given task manager. The file name is
+     * derived from the {@link ResourceID} which the task manager registered with, so a client finds
+     * the socket only if the server shares the local transport directory with it, i.e. runs on the
+     * same host (or at least sees the same memory backed file system). Unlike the network address
+     * this is not ambiguous between containers or network namespaces on the same host.
+     */
+    public File getLocalTransportSocketFile(ResourceID taskManagerId) {
+        // hashed to stay within the length limit of socket paths
+        return new File(
+                getLocalTransportDirectory(),
+                "flink-netty-"
+                        + UUID.nameUUIDFromBytes(
+                                taskManagerId
+                                        .getResourceIdString()
+                                        .getBytes(StandardCharsets.UTF_8))
+                        + ".sock");
+    }
+
     public Configuration getConfig() {
         return config;
     }
@@ -170,6 +211,7 @@ public class NettyConfig {
                         + "ssl enabled: %s, "
                         + "memory segment size (bytes): %d, "
                         + "transport type: %s, "
+                        + "reader scheduling policy: %s, "
                         + "number of server threads: %d (%s), "
                         + "number of client threads: %d (%s), "
                         + "server connect backlog: %d (%s), "
@@ -186,6 +228,7 @@ public class NettyConfig {
                 getSSLEnabled() ? "true" : "false",
                 memorySegmentSize,
                 getTransportType(),
+                getReaderSchedulingPolicy(),
                 getServerNumThreads(),
                 getServerNumThreads() == 0 ? def : man,
                 getClientNumThreads(),
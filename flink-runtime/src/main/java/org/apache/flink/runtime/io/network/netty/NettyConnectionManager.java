@@ -18,12 +18,15 @@
 
 package org.apache.flink.runtime.io.network.netty;
 
+import org.apache.flink.runtime.clusterframework.types.ResourceID;
 import org.apache.flink.runtime.io.network.ConnectionID;
 import org.apache.flink.runtime.io.network.ConnectionManager;
 import org.apache.flink.runtime.io.network.PartitionRequestClient;
 import org.apache.flink.runtime.io.network.TaskEventPublisher;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionProvider;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
 
 import static org.apache.flink.util.Preconditions.checkNotNull;
@@ -44,8 +47,16 @@ public class NettyConnectionManager implements ConnectionManager {
             ResultPartitionProvider partitionProvider,
             TaskEventPublisher taskEventPublisher,
             NettyConfig nettyConfig) {
+        this(partitionProvider, taskEventPublisher, nettyConfig, null);
+    }
+
+    public NettyConnectionManager(
+            ResultPartitionProvider partitionProvider,
+            TaskEventPublisher taskEventPublisher,
+            NettyConfig nettyConfig,
+            @Nullable ResourceID taskManagerId) {
 
-        this.server = new NettyServer(nettyConfig);
+        this.server = new NettyServer(nettyConfig, taskManagerId);
         this.client = new NettyClient(nettyConfig);
         this.bufferPool = new NettyBufferPool(nettyConfig.getNumberOfArenas());
 
@@ -54,7 +65,9 @@ public class NettyConnectionManager implements ConnectionManager {
 
         this.nettyProtocol =
                 new NettyProtocol(
-                        checkNotNull(partitionProvider), checkNotNull(taskEventPublisher));
+                        checkNotNull(partitionProvider),
+                        checkNotNull(taskEventPublisher),
+                        nettyConfig.getReaderSchedulingPolicy());
     }
 
     @Override
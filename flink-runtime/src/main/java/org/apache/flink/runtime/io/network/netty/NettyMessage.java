@@ -48,6 +48,8 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.ProtocolException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Consumer;
 
 import static org.apache.flink.util.Preconditions.checkArgument;
@@ -239,6 +241,9 @@ public abstract class NettyMessage {
                     case NewBufferSize.ID:
                         decodedMsg = NewBufferSize.readFrom(msg);
                         break;
+                    case BatchedControlMessages.ID:
+                        decodedMsg = BatchedControlMessages.readFrom(msg);
+                        break;
                     default:
                         throw new ProtocolException(
                                 "Received unknown message from producer: " + msg);
@@ -890,6 +895,120 @@ public abstract class NettyMessage {
         }
     }
 
+    /**
+     * Control messages of several input channels which were coalesced by the client into a single
+     * frame. On connections with many input channels this replaces a flood of tiny credit and
+     * consumption control messages. Only {@link AddCredit}, {@link ResumeConsumption}, {@link
+     * AckAllUserRecordsProcessed} and {@link NewBufferSize} can be batched and the server handles
+     * them in the order they were added.
+     */
+    static class BatchedControlMessages extends NettyMessage {
+
+        private static final byte ID = 11;
+
+        final List<NettyMessage> messages;
+
+        BatchedControlMessages(List<NettyMessage> messages) {
+            checkArgument(!messages.isEmpty(), "Must contain at least one message.");
+            for (NettyMessage message : messages) {
+                checkArgument(isBatchable(message), "Message %s can not be batched.", message);
+            }
+            this.messages = messages;
+        }
+
+        static boolean isBatchable(Object message) {
+            Class<?> clazz = message.getClass();
+            return clazz == AddCredit.class
+                    || clazz == ResumeConsumption.class
+                    || clazz == AckAllUserRecordsProcessed.class
+                    || clazz == NewBufferSize.class;
+        }
+
+        @Override
+        void write(ChannelOutboundInvoker out, ChannelPromise promise, ByteBufAllocator allocator)
+                throws IOException {
+            ByteBuf result = null;
+
+            try {
+                int length = Integer.BYTES;
+                for (NettyMessage message : messages) {
+                    length += getEntryLength(message);
+                }
+
+                result = allocateBuffer(allocator, ID, length);
+                result.writeInt(messages.size());
+                for (NettyMessage message : messages) {
+                    writeEntry(message, result);
+                }
+
+                out.write(result, promise);
+            } catch (Throwable t) {
+                handleException(result, null, t);
+            }
+        }
+
+        private static int getEntryLength(NettyMessage message) {
+            int length = 1 + InputChannelID.getByteBufLength();
+            if (message instanceof AddCredit || message instanceof NewBufferSize) {
+                length += Integer.BYTES;
+            }
+            return length;
+        }
+
+        private static void writeEntry(NettyMessage message, ByteBuf buffer) {
+            if (message instanceof AddCredit) {
+                AddCredit addCredit = (AddCredit) message;
+                buffer.writeByte(AddCredit.ID);
+                addCredit.receiverId.writeTo(buffer);
+                buffer.writeInt(addCredit.credit);
+            } else if (message instanceof NewBufferSize) {
+                NewBufferSize newBufferSize = (NewBufferSize) message;
+                buffer.writeByte(NewBufferSize.ID);
+                newBufferSize.receiverId.writeTo(buffer);
+                buffer.writeInt(newBufferSize.bufferSize);
+            } else if (message instanceof ResumeConsumption) {
+                buffer.writeByte(ResumeConsumption.ID);
+                ((ResumeConsumption) message).receiverId.writeTo(buffer);
+            } else {
+                buffer.writeByte(AckAllUserRecordsProcessed.ID);
+                ((AckAllUserRecordsProcessed) message).receiverId.writeTo(buffer);
+            }
+        }
+
+        static BatchedControlMessages readFrom(ByteBuf buffer) throws ProtocolException {
+            int numMessages = buffer.readInt();
+            List<NettyMessage> messages = new ArrayList<>(numMessages);
+            for (int i = 0; i < numMessages; i++) {
+                byte id = buffer.readByte();
+                InputChannelID receiverId = InputChannelID.fromByteBuf(buffer);
+                switch (id) {
+                    case AddCredit.ID:
+                        messages.add(new AddCredit(buffer.readInt(), receiverId));
+                        break;
+                    case NewBufferSize.ID:
+                        messages.add(new NewBufferSize(buffer.readInt(), receiverId));
+                        break;
+                    case ResumeConsumption.ID:
+                        messages.add(new ResumeConsumption(receiverId));
+                        break;
+                    case AckAllUserRecordsProcessed.ID:
+                        messages.add(new AckAllUserRecordsProcessed(receiverId));
+                        break;
+                    default:
+                        throw new ProtocolException(
+                                "Received unknown batched message from consumer: " + id);
+                }
+            }
+
+            return new BatchedControlMessages(messages);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("BatchedControlMessages(%d messages)", messages.size());
+        }
+    }
+
     // ------------------------------------------------------------------------
 
     void writeToChannel(
@@ -32,11 +32,20 @@ public class NettyProtocol {
 
     private final ResultPartitionProvider partitionProvider;
     private final TaskEventPublisher taskEventPublisher;
+    private final ReaderSchedulingPolicy readerSchedulingPolicy;
 
     NettyProtocol(
             ResultPartitionProvider partitionProvider, TaskEventPublisher taskEventPublisher) {
+        this(partitionProvider, taskEventPublisher, ReaderSchedulingPolicy.ROUND_ROBIN);
+    }
+
+    NettyProtocol(
+            ResultPartitionProvider partitionProvider,
+            TaskEventPublisher taskEventPublisher,
+            ReaderSchedulingPolicy readerSchedulingPolicy) {
         this.partitionProvider = partitionProvider;
         this.taskEventPublisher = taskEventPublisher;
+        this.readerSchedulingPolicy = readerSchedulingPolicy;
     }
 
     /**
@@ -73,7 +82,8 @@ public class NettyProtocol {
      * @return channel handlers
      */
     public ChannelHandler[] getServerChannelHandlers() {
-        PartitionRequestQueue queueOfPartitionQueues = new PartitionRequestQueue();
+        PartitionRequestQueue queueOfPartitionQueues =
+                new PartitionRequestQueue(readerSchedulingPolicy);
         PartitionRequestServerHandler serverHandler =
                 new PartitionRequestServerHandler(
                         partitionProvider, taskEventPublisher, queueOfPartitionQueues);
@@ -19,25 +19,33 @@
 package org.apache.flink.runtime.io.network.netty;
 
 import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.runtime.clusterframework.types.ResourceID;
 import org.apache.flink.util.FatalExitExceptionHandler;
 
 import org.apache.flink.shaded.guava30.com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.flink.shaded.netty4.io.netty.bootstrap.ServerBootstrap;
+import org.apache.flink.shaded.netty4.io.netty.channel.Channel;
 import org.apache.flink.shaded.netty4.io.netty.channel.ChannelFuture;
 import org.apache.flink.shaded.netty4.io.netty.channel.ChannelInitializer;
 import org.apache.flink.shaded.netty4.io.netty.channel.ChannelOption;
 import org.apache.flink.shaded.netty4.io.netty.channel.epoll.Epoll;
 import org.apache.flink.shaded.netty4.io.netty.channel.epoll.EpollEventLoopGroup;
+import org.apache.flink.shaded.netty4.io.netty.channel.epoll.EpollServerDomainSocketChannel;
 import org.apache.flink.shaded.netty4.io.netty.channel.epoll.EpollServerSocketChannel;
 import org.apache.flink.shaded.netty4.io.netty.channel.nio.NioEventLoopGroup;
 import org.apache.flink.shaded.netty4.io.netty.channel.socket.SocketChannel;
 import org.apache.flink.shaded.netty4.io.netty.channel.socket.nio.NioServerSocketChannel;
+import org.apache.flink.shaded.netty4.io.netty.channel.unix.DomainSocketAddress;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
+import java.io.File;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.file.Files;
 import java.util.concurrent.ThreadFactory;
 import java.util.function.Function;
 
@@ -59,17 +67,79 @@ class NettyServer {
 
     private ChannelFuture bindFuture;
 
+    /** Bind future of the unix domain socket for co-located clients, if enabled. */
+    @Nullable private ChannelFuture localBindFuture;
+
     private InetSocketAddress localAddress;
 
+    /** The task manager this server belongs to, names the socket of the local transport. */
+    @Nullable private final ResourceID localTransportId;
+
     NettyServer(NettyConfig config) {
+        this(config, null);
+    }
+
+    NettyServer(NettyConfig config, @Nullable ResourceID localTransportId) {
         this.config = checkNotNull(config);
+        this.localTransportId = localTransportId;
         localAddress = null;
     }
 
     int init(final NettyProtocol protocol, NettyBufferPool nettyBufferPool) throws IOException {
-        return init(
-                nettyBufferPool,
-                sslHandlerFactory -> new ServerChannelInitializer(protocol, sslHandlerFactory));
+        int port =
+                init(
+                        nettyBufferPool,
+                        sslHandlerFactory ->
+                                new ServerChannelInitializer(protocol, sslHandlerFactory));
+
+        if (config.isLocalTransportEnabled() && localTransportId != null) {
+            initLocalTransport(protocol, nettyBufferPool);
+        }
+
+        return port;
+    }
+
+    /**
+     * Additionally listens on a unix domain socket so that clients of co-located TaskManagers can
+     * bypass the TCP/IP stack. Failing to do so is not fatal, these clients then use TCP.
+     *
+     * <p>Note that this is deliberately not a shared memory transport: a domain socket keeps the
+     * netty protocol, credit based flow control and buffer handling of TCP connections unchanged,
+     * at the cost of copying the data through the kernel.
+     */
+    private void initLocalTransport(final NettyProtocol protocol, NettyBufferPool nettyBufferPool) {
+        if (!(bootstrap.config().group() instanceof EpollEventLoopGroup)) {
+            LOG.info("Local transport requires the EPOLL transport type, using TCP only.");
+            return;
+        }
+
+        File socketFile = config.getLocalTransportSocketFile(localTransportId);
+        try {
+            // a file left behind by a killed process would make the bind fail
+            Files.deleteIfExists(socketFile.toPath());
+
+            localBindFuture =
+                    new ServerBootstrap()
+                            .group(bootstrap.config().group())
+                            .channel(EpollServerDomainSocketChannel.class)
+                            .localAddress(new DomainSocketAddress(socketFile))
+                            .option(ChannelOption.ALLOCATOR, nettyBufferPool)
+                            .childOption(ChannelOption.ALLOCATOR, nettyBufferPool)
+                            .childHandler(
+                                    new ChannelInitializer<Channel>() {
+                                        @Override
+                                        public void initChannel(Channel channel) {
+                                            channel.pipeline()
+                                                    .addLast(protocol.getServerChannelHandlers());
+                                        }
+                                    })
+                            .bind()
+                            .syncUninterruptibly();
+
+            LOG.info("Listening for co-located clients on {}.", socketFile);
+        } catch (Throwable t) {
+            LOG.warn("Failed to listen on {}, using TCP only.", socketFile, t);
+        }
     }
 
     int init(
@@ -166,8 +236,24 @@ class NettyServer {
         return bootstrap;
     }
 
+    @Nullable
+    ResourceID getLocalTransportId() {
+        return localTransportId;
+    }
+
+    @Nullable
+    ChannelFuture getLocalBindFuture() {
+        return localBindFuture;
+    }
+
     void shutdown() {
         final long start = System.nanoTime();
+        if (localBindFuture != null) {
+            // closing the channel also deletes the socket file
+            localBindFuture.channel().close().awaitUninterruptibly();
+            localBindFuture = null;
+        }
+
         if (bindFuture != null) {
             bindFuture.channel().close().awaitUninterruptibly();
             bindFuture = null;
@@ -26,10 +26,13 @@ import org.apache.flink.runtime.io.network.partition.consumer.RemoteInputChannel
 import org.apache.flink.util.ExceptionUtils;
 
 import org.apache.flink.shaded.netty4.io.netty.channel.Channel;
+import org.apache.flink.shaded.netty4.io.netty.channel.ChannelFuture;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
@@ -134,7 +137,10 @@ class PartitionRequestClientFactory {
             // It's important to use `sync` here because it waits for this future until it is
             // done, and rethrows the cause of the failure if this future failed. `await` only
             // waits for this future to be completed, without throwing the error.
-            Channel channel = nettyClient.connect(connectionId.getAddress()).sync().channel();
+            Channel channel = connectLocally(connectionId);
+            if (channel == null) {
+                channel = nettyClient.connect(connectionId.getAddress()).sync().channel();
+            }
             NetworkClientHandler clientHandler = channel.pipeline().get(NetworkClientHandler.class);
             return new NettyPartitionRequestClient(channel, clientHandler, connectionId, this);
         } catch (InterruptedException e) {
@@ -150,6 +156,31 @@ class PartitionRequestClientFactory {
         }
     }
 
+    /**
+     * Tries to connect to a co-located task manager via the local transport of the netty client.
+     * Returns <tt>null</tt> if the local transport is not available, in which case the caller falls
+     * back to TCP.
+     */
+    @Nullable
+    private Channel connectLocally(ConnectionID connectionId) throws InterruptedException {
+        ChannelFuture future = nettyClient.connectLocally(connectionId);
+        if (future == null) {
+            return null;
+        }
+
+        try {
+            return future.sync().channel();
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            LOG.debug(
+                    "Failed to connect to {} via the local transport, falling back to TCP.",
+                    connectionId.getAddress(),
+                    e);
+            return null;
+        }
+    }
+
     void closeOpenChannelConnections(ConnectionID connectionId) {
         CompletableFuture<NettyPartitionRequestClient> entry = clients.get(connectionId);
 
@@ -39,7 +39,7 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nullable;
 
 import java.io.IOException;
-import java.util.ArrayDeque;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.function.Consumer;
@@ -58,8 +58,11 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
     private final ChannelFutureListener writeListener =
             new WriteAndFlushNextMessageIfPossibleListener();
 
-    /** The readers which are already enqueued available for transferring data. */
-    private final ArrayDeque<NetworkSequenceViewReader> availableReaders = new ArrayDeque<>();
+    /**
+     * The readers which are already enqueued available for transferring data, ordered by the {@link
+     * ReaderSchedulingPolicy}.
+     */
+    private final Queue<NetworkSequenceViewReader> availableReaders;
 
     /** All the readers created for the consumers' partition requests. */
     private final ConcurrentMap<InputChannelID, NetworkSequenceViewReader> allReaders =
@@ -69,6 +72,14 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 
     private ChannelHandlerContext ctx;
 
+    PartitionRequestQueue() {
+        this(ReaderSchedulingPolicy.ROUND_ROBIN);
+    }
+
+    PartitionRequestQueue(ReaderSchedulingPolicy schedulingPolicy) {
+        this.availableReaders = schedulingPolicy.createAvailableReaderQueue();
+    }
+
     @Override
     public void channelRegistered(final ChannelHandlerContext ctx) throws Exception {
         if (this.ctx == null) {
@@ -132,7 +143,7 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
      * @return readers which are enqueued available for transferring data
      */
     @VisibleForTesting
-    ArrayDeque<NetworkSequenceViewReader> getAvailableReaders() {
+    Queue<NetworkSequenceViewReader> getAvailableReaders() {
         return availableReaders;
     }
 
@@ -169,6 +180,11 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
         NetworkSequenceViewReader reader = obtainReader(receiverId);
 
         operation.accept(reader);
+        if (reader.isRegisteredAsAvailable()
+                && availableReaders instanceof CreditWeightedReaderQueue) {
+            // the reader is already waiting, let it advance according to its new credits
+            ((CreditWeightedReaderQueue) availableReaders).updateWeight(reader);
+        }
         enqueueAvailableReader(reader);
     }
 
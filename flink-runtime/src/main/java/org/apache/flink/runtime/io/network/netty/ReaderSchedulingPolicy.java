@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.netty;
+
+import org.apache.flink.runtime.io.network.NetworkSequenceViewReader;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/** The order in which a {@link PartitionRequestQueue} serves its available readers. */
+enum ReaderSchedulingPolicy {
+
+    /** Available readers are served in the order in which they became available. */
+    ROUND_ROBIN {
+        @Override
+        Queue<NetworkSequenceViewReader> createAvailableReaderQueue() {
+            return new ArrayDeque<>();
+        }
+    },
+
+    /**
+     * Available readers whose consumers announced more credits are served first, see {@link
+     * CreditWeightedReaderQueue}.
+     */
+    CREDIT_WEIGHTED {
+        @Override
+        Queue<NetworkSequenceViewReader> createAvailableReaderQueue() {
+            return new CreditWeightedReaderQueue();
+        }
+    };
+
+    /** Creates the queue holding the available readers of a {@link PartitionRequestQueue}. */
+    abstract Queue<NetworkSequenceViewReader> createAvailableReaderQueue();
+
+    /** Parses the value of the corresponding configuration option. */
+    static ReaderSchedulingPolicy fromString(String policy) {
+        switch (policy) {
+            case "round-robin":
+                return ROUND_ROBIN;
+            case "credit-weighted":
+                return CREDIT_WEIGHTED;
+            default:
+                throw new IllegalArgumentException("Unknown reader scheduling policy: " + policy);
+        }
+    }
+}
@@ -99,6 +99,30 @@ public final class BufferReaderWriterUtil {
                 memorySegment, FreeingBufferRecycler.INSTANCE, dataType, isCompressed, size);
     }
 
+    /**
+     * Returns the size of the buffer whose header starts at the current position of the given
+     * memory without moving the position.
+     */
+    static int peekBufferSize(ByteBuffer memory) {
+        return memory.getInt(memory.position() + 4);
+    }
+
+    /**
+     * Reads the header at the current position of the given memory and returns a {@link
+     * FileRegionBuffer} pointing to the corresponding data in the given file channel. Only the
+     * header is consumed from the memory, the data is expected to start at the given file position.
+     */
+    static Buffer readFileRegionFromHeader(
+            ByteBuffer memory, FileChannel channel, long dataPosition) {
+        final boolean isEvent = memory.getShort() == HEADER_VALUE_IS_EVENT;
+        final boolean isCompressed = memory.getShort() == BUFFER_IS_COMPRESSED;
+        final int size = memory.getInt();
+
+        Buffer.DataType dataType =
+                isEvent ? Buffer.DataType.EVENT_BUFFER : Buffer.DataType.DATA_BUFFER;
+        return new FileRegionBuffer(channel, dataPosition, size, dataType, isCompressed);
+    }
+
     // ------------------------------------------------------------------------
     //  ByteChannel read / write
     // ------------------------------------------------------------------------
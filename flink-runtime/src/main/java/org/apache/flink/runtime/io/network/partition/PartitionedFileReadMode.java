@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+/** The way in which the data of a {@link PartitionedFile} is read by the subpartition readers. */
+public enum PartitionedFileReadMode {
+
+    /**
+     * Data is read by the {@link SortMergeResultPartitionReadScheduler} in file offset order into
+     * buffers requested from the batch shuffle read buffer pool.
+     */
+    BUFFERED,
+
+    /**
+     * Data regions of the {@link PartitionedFile} are memory mapped and every subpartition reader
+     * slices buffers directly from the mapped memory. If neither SSL nor compression is enabled,
+     * the data is handed to netty as {@link
+     * org.apache.flink.runtime.io.network.buffer.FileRegionBuffer} so that it can be transferred to
+     * the socket without being copied through user space. No read buffers are consumed in this
+     * mode.
+     */
+    MMAP;
+
+    /** Parses the value of the corresponding configuration option. */
+    public static PartitionedFileReadMode fromString(String readMode) {
+        switch (readMode) {
+            case "mmap":
+                return MMAP;
+            case "buffered":
+                return BUFFERED;
+            default:
+                throw new IllegalArgumentException(
+                        "Unknown sort-merge shuffle read mode: " + readMode);
+        }
+    }
+}
@@ -65,6 +65,8 @@ public class ResultPartitionBuilder {
 
     private int sortShuffleMinParallelism = Integer.MAX_VALUE;
 
+    private PartitionedFileReadMode sortShuffleReadMode = PartitionedFileReadMode.BUFFERED;
+
     private int maxBuffersPerChannel = Integer.MAX_VALUE;
 
     private int networkBufferSize = 1;
@@ -127,7 +129,8 @@ public class ResultPartitionBuilder {
                 .setBatchShuffleReadIOExecutor(environment.getBatchShuffleReadIOExecutor())
                 .setSortShuffleMinBuffers(environment.getConfiguration().sortShuffleMinBuffers())
                 .setSortShuffleMinParallelism(
-                        environment.getConfiguration().sortShuffleMinParallelism());
+                        environment.getConfiguration().sortShuffleMinParallelism())
+                .setSortShuffleReadMode(environment.getConfiguration().sortShuffleReadMode());
     }
 
     public ResultPartitionBuilder setNetworkBufferPool(NetworkBufferPool networkBufferPool) {
@@ -185,6 +188,12 @@ public class ResultPartitionBuilder {
         return this;
     }
 
+    public ResultPartitionBuilder setSortShuffleReadMode(
+            PartitionedFileReadMode sortShuffleReadMode) {
+        this.sortShuffleReadMode = sortShuffleReadMode;
+        return this;
+    }
+
     public ResultPartitionBuilder setCompressionCodec(String compressionCodec) {
         this.compressionCodec = compressionCodec;
         return this;
@@ -219,6 +228,7 @@ public class ResultPartitionBuilder {
                         maxBuffersPerChannel,
                         sortShuffleMinBuffers,
                         sortShuffleMinParallelism,
+                        sortShuffleReadMode,
                         sslEnabled);
 
         SupplierWithException<BufferPool, IOException> factory =
@@ -73,6 +73,8 @@ public class ResultPartitionFactory {
 
     private final int sortShuffleMinParallelism;
 
+    private final PartitionedFileReadMode sortShuffleReadMode;
+
     private final boolean sslEnabled;
 
     public ResultPartitionFactory(
@@ -90,6 +92,7 @@ public class ResultPartitionFactory {
             int maxBuffersPerChannel,
             int sortShuffleMinBuffers,
             int sortShuffleMinParallelism,
+            PartitionedFileReadMode sortShuffleReadMode,
             boolean sslEnabled) {
 
         this.partitionManager = partitionManager;
@@ -106,6 +109,7 @@ public class ResultPartitionFactory {
         this.maxBuffersPerChannel = maxBuffersPerChannel;
         this.sortShuffleMinBuffers = sortShuffleMinBuffers;
         this.sortShuffleMinParallelism = sortShuffleMinParallelism;
+        this.sortShuffleReadMode = sortShuffleReadMode;
         this.sslEnabled = sslEnabled;
     }
 
@@ -184,7 +188,9 @@ public class ResultPartitionFactory {
                                 partitionManager,
                                 channelManager.createChannel().getPath(),
                                 bufferCompressor,
-                                bufferPoolFactory);
+                                bufferPoolFactory,
+                                sortShuffleReadMode,
+                                sslEnabled);
             } else {
                 final BoundedBlockingResultPartition blockingPartition =
                         new BoundedBlockingResultPartition(
@@ -43,8 +43,10 @@ import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
@@ -95,8 +97,22 @@ public class SortMergeResultPartition extends ResultPartition {
 
     /**
      * Data read scheduler for this result partition which schedules data read of all subpartitions.
+     * Only available in {@link PartitionedFileReadMode#BUFFERED} read mode.
      */
-    private final SortMergeResultPartitionReadScheduler readScheduler;
+    @Nullable private final SortMergeResultPartitionReadScheduler readScheduler;
+
+    /** The way in which the produced {@link PartitionedFile} is read. */
+    private final PartitionedFileReadMode readMode;
+
+    /**
+     * Whether data can be handed to netty as file regions in {@link PartitionedFileReadMode#MMAP}
+     * read mode, which requires both SSL and compression to be disabled.
+     */
+    private final boolean useFileRegion;
+
+    /** All subpartition readers reading from memory mapped {@link PartitionedFile}. */
+    @GuardedBy("lock")
+    private final Set<SortMergeSubpartitionMappedReader> mappedReaders = new HashSet<>();
 
     /**
      * Number of guaranteed network buffers can be used by {@link #unicastSortBuffer} and {@link
@@ -122,7 +138,9 @@ public class SortMergeResultPartition extends ResultPartition {
             ResultPartitionManager partitionManager,
             String resultFileBasePath,
             @Nullable BufferCompressor bufferCompressor,
-            SupplierWithException<BufferPool, IOException> bufferPoolFactory) {
+            SupplierWithException<BufferPool, IOException> bufferPoolFactory,
+            PartitionedFileReadMode readMode,
+            boolean sslEnabled) {
 
         super(
                 owningTaskName,
@@ -141,8 +159,14 @@ public class SortMergeResultPartition extends ResultPartition {
         // reading the output of all upstream tasks in the same order, which is better for data
         // input balance of the downstream tasks
         this.subpartitionOrder = getRandomSubpartitionOrder(numSubpartitions);
+        this.readMode = checkNotNull(readMode);
+        this.useFileRegion = !sslEnabled && bufferCompressor == null;
+        // the read buffer pool is not touched in mmap mode to avoid allocating its memory
         this.readScheduler =
-                new SortMergeResultPartitionReadScheduler(readBufferPool, readIOExecutor, lock);
+                readMode == PartitionedFileReadMode.BUFFERED
+                        ? new SortMergeResultPartitionReadScheduler(
+                                readBufferPool, readIOExecutor, lock)
+                        : null;
 
         PartitionedFileWriter fileWriter = null;
         try {
@@ -199,18 +223,28 @@ public class SortMergeResultPartition extends ResultPartition {
                 fileWriter.releaseQuietly();
             }
 
+            List<SortMergeSubpartitionMappedReader> pendingMappedReaders =
+                    new ArrayList<>(mappedReaders);
+            mappedReaders.clear();
+            for (SortMergeSubpartitionMappedReader reader : pendingMappedReaders) {
+                reader.fail(new IllegalStateException("Result partition has been released."));
+            }
+
+            CompletableFuture<?> releaseFuture =
+                    readScheduler == null
+                            ? CompletableFuture.completedFuture(null)
+                            : readScheduler.release();
+
             // delete the produced file only when no reader is reading now
-            readScheduler
-                    .release()
-                    .thenRun(
-                            () -> {
-                                synchronized (lock) {
-                                    if (resultFile != null) {
-                                        resultFile.deleteQuietly();
-                                        resultFile = null;
-                                    }
-                                }
-                            });
+            releaseFuture.thenRun(
+                    () -> {
+                        synchronized (lock) {
+                            if (resultFile != null) {
+                                resultFile.deleteQuietly();
+                                resultFile = null;
+                            }
+                        }
+                    });
         }
     }
 
@@ -456,11 +490,38 @@ public class SortMergeResultPartition extends ResultPartition {
             checkState(!isReleased(), "Partition released.");
             checkState(isFinished(), "Trying to read unfinished blocking partition.");
 
+            if (readMode == PartitionedFileReadMode.MMAP) {
+                return createMappedSubpartitionReader(availabilityListener, subpartitionIndex);
+            }
+
             return readScheduler.crateSubpartitionReader(
                     availabilityListener, subpartitionIndex, resultFile);
         }
     }
 
+    private ResultSubpartitionView createMappedSubpartitionReader(
+            BufferAvailabilityListener availabilityListener, int subpartitionIndex)
+            throws IOException {
+        assert Thread.holdsLock(lock);
+
+        SortMergeSubpartitionMappedReader subpartitionReader =
+                new SortMergeSubpartitionMappedReader(
+                        availabilityListener, resultFile, subpartitionIndex, useFileRegion);
+        mappedReaders.add(subpartitionReader);
+        subpartitionReader
+                .getReleaseFuture()
+                .thenRun(
+                        () -> {
+                            synchronized (lock) {
+                                mappedReaders.remove(subpartitionReader);
+                            }
+                        });
+
+        // data is read on demand by the netty thread, so it is available immediately
+        subpartitionReader.notifyDataAvailable();
+        return subpartitionReader;
+    }
+
     @Override
     public void flushAll() {
         try {
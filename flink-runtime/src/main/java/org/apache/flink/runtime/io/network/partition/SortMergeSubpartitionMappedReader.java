@@ -0,0 +1,354 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.partition.ResultSubpartition.BufferAndBacklog;
+import org.apache.flink.util.IOUtils;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+import static org.apache.flink.runtime.io.network.partition.BufferReaderWriterUtil.HEADER_LENGTH;
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Subpartition data reader for {@link SortMergeResultPartition} in {@link
+ * PartitionedFileReadMode#MMAP} mode. Instead of reading data into buffers of the batch shuffle
+ * read buffer pool, the data regions of the target subpartition are memory mapped and buffers are
+ * sliced from the mapped memory, or, if zero-copy transfer is enabled, handed to netty as {@link
+ * org.apache.flink.runtime.io.network.buffer.FileRegionBuffer}s.
+ *
+ * <p>Data is read lazily by the netty thread, one buffer ahead, so that the data type of the next
+ * buffer is always known when reporting availability.
+ */
+class SortMergeSubpartitionMappedReader implements ResultSubpartitionView {
+
+    /**
+     * Size of the data file window which is mapped into memory at a time. A window is never
+     * explicitly unmapped because the sliced buffers may still be in flight, so the window should
+     * not be too small to avoid frequent remapping.
+     */
+    @VisibleForTesting static final int MAPPED_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final Object lock = new Object();
+
+    /** A {@link CompletableFuture} to be completed when this subpartition reader is released. */
+    private final CompletableFuture<?> releaseFuture = new CompletableFuture<>();
+
+    /** Listener to notify when data is available. */
+    private final BufferAvailabilityListener availabilityListener;
+
+    /** Data file channel of the target {@link PartitionedFile} owned by this reader. */
+    private final FileChannel dataFileChannel;
+
+    /** Size of the data file. */
+    private final long dataFileSize;
+
+    /** Whether to hand the data to netty as file regions instead of mapped memory slices. */
+    private final boolean useFileRegion;
+
+    /** File offsets of all non-empty data regions of the target subpartition. */
+    private final long[] regionOffsets;
+
+    /** Number of buffers in all non-empty data regions of the target subpartition. */
+    private final int[] regionNumBuffers;
+
+    /** Currently mapped window of the data file. */
+    @GuardedBy("lock")
+    private ByteBuffer mappedWindow;
+
+    /** File offset of the currently mapped window. */
+    @GuardedBy("lock")
+    private long mappedWindowOffset;
+
+    /** Next data region to be read. */
+    @GuardedBy("lock")
+    private int nextRegionToRead;
+
+    /** Next file offset to be read. */
+    @GuardedBy("lock")
+    private long nextOffsetToRead;
+
+    /** Number of remaining buffers in the current data region read. */
+    @GuardedBy("lock")
+    private int currentRegionRemainingBuffers;
+
+    /**
+     * Number of buffers (including events) not yet consumed. Events are counted as well because
+     * their number is unknown before reading, which only overestimates the backlog slightly.
+     */
+    @GuardedBy("lock")
+    private int numRemainingBuffers;
+
+    /** The buffer read ahead which will be returned by the next {@link #getNextBuffer()}. */
+    @GuardedBy("lock")
+    @Nullable
+    private Buffer nextBuffer;
+
+    /** Whether this reader is released or not. */
+    @GuardedBy("lock")
+    private boolean isReleased;
+
+    /** Cause of failure which should be propagated to the consumer. */
+    @GuardedBy("lock")
+    private Throwable failureCause;
+
+    /** Sequence number of the next buffer to be sent to the consumer. */
+    private int sequenceNumber;
+
+    SortMergeSubpartitionMappedReader(
+            BufferAvailabilityListener listener,
+            PartitionedFile partitionedFile,
+            int targetSubpartition,
+            boolean useFileRegion)
+            throws IOException {
+        this.availabilityListener = checkNotNull(listener);
+        this.useFileRegion = useFileRegion;
+        checkNotNull(partitionedFile);
+
+        int numRegions = partitionedFile.getNumRegions();
+        long[] offsets = new long[numRegions];
+        int[] numBuffers = new int[numRegions];
+        int numNonEmptyRegions = 0;
+
+        ByteBuffer indexEntryBuf = ByteBuffer.allocate(PartitionedFile.INDEX_ENTRY_SIZE);
+        BufferReaderWriterUtil.configureByteBuffer(indexEntryBuf);
+        try (FileChannel indexFileChannel =
+                FileChannel.open(partitionedFile.getIndexFilePath(), StandardOpenOption.READ)) {
+            for (int region = 0; region < numRegions; ++region) {
+                partitionedFile.getIndexEntry(
+                        indexFileChannel, indexEntryBuf, region, targetSubpartition);
+                long offset = indexEntryBuf.getLong();
+                int numBuffersInRegion = indexEntryBuf.getInt();
+                if (numBuffersInRegion > 0) {
+                    offsets[numNonEmptyRegions] = offset;
+                    numBuffers[numNonEmptyRegions] = numBuffersInRegion;
+                    numRemainingBuffers += numBuffersInRegion;
+                    ++numNonEmptyRegions;
+                }
+            }
+        }
+        this.regionOffsets = Arrays.copyOf(offsets, numNonEmptyRegions);
+        this.regionNumBuffers = Arrays.copyOf(numBuffers, numNonEmptyRegions);
+
+        this.dataFileChannel =
+                FileChannel.open(partitionedFile.getDataFilePath(), StandardOpenOption.READ);
+        try {
+            this.dataFileSize = dataFileChannel.size();
+            synchronized (lock) {
+                nextBuffer = readNextBuffer();
+            }
+        } catch (Throwable throwable) {
+            IOUtils.closeQuietly(dataFileChannel);
+            throw throwable;
+        }
+    }
+
+    @Nullable
+    @Override
+    public BufferAndBacklog getNextBuffer() throws IOException {
+        synchronized (lock) {
+            if (isReleased || nextBuffer == null) {
+                return null;
+            }
+
+            Buffer buffer = nextBuffer;
+            --numRemainingBuffers;
+            try {
+                nextBuffer = readNextBuffer();
+            } catch (Throwable throwable) {
+                buffer.recycleBuffer();
+                throw throwable;
+            }
+
+            return BufferAndBacklog.fromBufferAndLookahead(
+                    buffer,
+                    nextBuffer == null ? Buffer.DataType.NONE : nextBuffer.getDataType(),
+                    numRemainingBuffers,
+                    sequenceNumber++);
+        }
+    }
+
+    @GuardedBy("lock")
+    @Nullable
+    private Buffer readNextBuffer() throws IOException {
+        assert Thread.holdsLock(lock);
+
+        while (currentRegionRemainingBuffers == 0) {
+            if (nextRegionToRead >= regionOffsets.length) {
+                return null;
+            }
+            nextOffsetToRead = regionOffsets[nextRegionToRead];
+            currentRegionRemainingBuffers = regionNumBuffers[nextRegionToRead];
+            ++nextRegionToRead;
+        }
+
+        ByteBuffer memory = mapRange(nextOffsetToRead, HEADER_LENGTH);
+        final Buffer buffer;
+        if (useFileRegion) {
+            buffer =
+                    BufferReaderWriterUtil.readFileRegionFromHeader(
+                            memory, dataFileChannel, nextOffsetToRead + HEADER_LENGTH);
+        } else {
+            int size = BufferReaderWriterUtil.peekBufferSize(memory);
+            memory = mapRange(nextOffsetToRead, HEADER_LENGTH + size);
+            buffer = BufferReaderWriterUtil.sliceNextBuffer(memory);
+        }
+
+        nextOffsetToRead += HEADER_LENGTH + checkNotNull(buffer).getSize();
+        --currentRegionRemainingBuffers;
+        return buffer;
+    }
+
+    /**
+     * Returns a view of the mapped data file positioned at the given file offset which contains at
+     * least the given number of bytes, remapping the window if necessary.
+     */
+    @GuardedBy("lock")
+    private ByteBuffer mapRange(long offset, int length) throws IOException {
+        assert Thread.holdsLock(lock);
+
+        if (mappedWindow == null
+                || offset < mappedWindowOffset
+                || offset + length > mappedWindowOffset + mappedWindow.capacity()) {
+            checkArgument(offset + length <= dataFileSize, "Data file is corrupted.");
+            long size = Math.min(Math.max(MAPPED_WINDOW_SIZE, length), dataFileSize - offset);
+            mappedWindow = dataFileChannel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+            mappedWindowOffset = offset;
+        }
+
+        ByteBuffer memory = mappedWindow.duplicate();
+        BufferReaderWriterUtil.configureByteBuffer(memory);
+        memory.position((int) (offset - mappedWindowOffset));
+        memory.limit(memory.position() + length);
+        return memory.slice().order(memory.order());
+    }
+
+    CompletableFuture<?> getReleaseFuture() {
+        return releaseFuture;
+    }
+
+    void fail(Throwable throwable) {
+        checkArgument(throwable != null, "Must be not null.");
+
+        releaseInternal(throwable);
+        // notify the netty thread which will propagate the error to the consumer task
+        notifyDataAvailable();
+    }
+
+    @Override
+    public void notifyDataAvailable() {
+        availabilityListener.notifyDataAvailable();
+    }
+
+    @Override
+    public void releaseAllResources() {
+        releaseInternal(null);
+    }
+
+    private void releaseInternal(@Nullable Throwable throwable) {
+        synchronized (lock) {
+            if (isReleased) {
+                return;
+            }
+
+            isReleased = true;
+            if (failureCause == null) {
+                failureCause = throwable;
+            }
+
+            if (nextBuffer != null) {
+                nextBuffer.recycleBuffer();
+                nextBuffer = null;
+            }
+            numRemainingBuffers = 0;
+            // the mapped window is not unmapped explicitly, because slices of it may still be
+            // referenced by the netty thread, it will be unmapped once garbage collected
+            mappedWindow = null;
+            IOUtils.closeQuietly(dataFileChannel);
+        }
+
+        releaseFuture.complete(null);
+    }
+
+    @Override
+    public boolean isReleased() {
+        synchronized (lock) {
+            return isReleased;
+        }
+    }
+
+    @Override
+    public void resumeConsumption() {
+        throw new UnsupportedOperationException("Method should never be called.");
+    }
+
+    @Override
+    public void acknowledgeAllDataProcessed() {
+        // in case of bounded partitions there is no upstream to acknowledge, we simply ignore
+        // the ack, as there are no checkpoints
+    }
+
+    @Override
+    public Throwable getFailureCause() {
+        synchronized (lock) {
+            return failureCause;
+        }
+    }
+
+    @Override
+    public AvailabilityWithBacklog getAvailabilityAndBacklog(int numCreditsAvailable) {
+        synchronized (lock) {
+            boolean isAvailable;
+            if (isReleased) {
+                isAvailable = true;
+            } else if (nextBuffer == null) {
+                isAvailable = false;
+            } else {
+                isAvailable = numCreditsAvailable > 0 || !nextBuffer.isBuffer();
+            }
+            return new AvailabilityWithBacklog(isAvailable, numRemainingBuffers);
+        }
+    }
+
+    @Override
+    public int unsynchronizedGetNumberOfQueuedBuffers() {
+        return Math.max(0, numRemainingBuffers);
+    }
+
+    @Override
+    public int getNumberOfQueuedBuffers() {
+        synchronized (lock) {
+            return numRemainingBuffers;
+        }
+    }
+
+    @Override
+    public void notifyNewBufferSize(int newBufferSize) {}
+}
@@ -69,4 +69,11 @@ public abstract class IndexedInputGate extends InputGate implements Checkpointab
     public abstract int getBuffersInUseCount();
 
     public abstract void announceBufferSize(int bufferSize);
+
+    /**
+     * Announces the number of buffers (of the maximum size) this gate needs to sustain its current
+     * throughput. The gate adapts the size of its floating buffer pool, so that its exclusive and
+     * floating buffers together match the announced number within the configured bounds.
+     */
+    public abstract void announceDesiredBuffers(int numBuffers) throws IOException;
 }
@@ -175,6 +175,12 @@ public class SingleInputGate extends IndexedInputGate {
      */
     private BufferPool bufferPool;
 
+    /**
+     * The configured maximum number of floating buffers, the upper bound for {@link
+     * #announceDesiredBuffers(int)}.
+     */
+    private int maxFloatingBuffers;
+
     private boolean hasReceivedAllEndOfPartitionEvents;
 
     private boolean hasReceivedEndOfData;
@@ -391,6 +397,26 @@ public class SingleInputGate extends IndexedInputGate {
         }
     }
 
+    @Override
+    public void announceDesiredBuffers(int numBuffers) throws IOException {
+        if (bufferPool == null || bufferPool.isDestroyed() || maxFloatingBuffers < 0) {
+            return;
+        }
+        int numExclusiveBuffers = 0;
+        for (InputChannel channel : channels) {
+            if (channel instanceof RemoteInputChannel) {
+                numExclusiveBuffers += ((RemoteInputChannel) channel).getInitialCredit();
+            }
+        }
+        int numFloatingBuffers =
+                Math.max(
+                        bufferPool.getNumberOfRequiredMemorySegments(),
+                        Math.min(maxFloatingBuffers, numBuffers - numExclusiveBuffers));
+        if (numFloatingBuffers != bufferPool.getMaxNumberOfMemorySegments()) {
+            bufferPool.setMaxNumberOfMemorySegments(numFloatingBuffers);
+        }
+    }
+
     /**
      * Returns the type of this input channel's consumed result partition.
      *
@@ -454,6 +480,7 @@ public class SingleInputGate extends IndexedInputGate {
                         + "already been set for this input gate.");
 
         this.bufferPool = checkNotNull(bufferPool);
+        this.maxFloatingBuffers = bufferPool.getMaxNumberOfMemorySegments();
     }
 
     /** Assign the exclusive buffers to all remote input channels directly for credit-based mode. */
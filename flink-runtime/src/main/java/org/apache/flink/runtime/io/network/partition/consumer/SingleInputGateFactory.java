@@ -70,6 +70,9 @@ public class SingleInputGateFactory {
 
     private final int floatingNetworkBuffersPerGate;
 
+    /** Maximum number of exclusive buffers of all input channels of a gate. */
+    private final int maxExclusiveBuffersPerGate;
+
     private final boolean blockingShuffleCompressionEnabled;
 
     private final String compressionCodec;
@@ -90,6 +93,7 @@ public class SingleInputGateFactory {
                 NettyShuffleUtils.getNetworkBuffersPerInputChannel(
                         networkConfig.networkBuffersPerChannel());
         this.floatingNetworkBuffersPerGate = networkConfig.floatingNetworkBuffersPerGate();
+        this.maxExclusiveBuffersPerGate = networkConfig.maxExclusiveBuffersPerGate();
         this.blockingShuffleCompressionEnabled =
                 networkConfig.isBlockingShuffleCompressionEnabled();
         this.compressionCodec = networkConfig.getCompressionCodec();
@@ -108,7 +112,13 @@ public class SingleInputGateFactory {
             @Nonnull PartitionProducerStateProvider partitionProducerStateProvider,
             @Nonnull InputChannelMetrics metrics) {
         SupplierWithException<BufferPool, IOException> bufferPoolFactory =
-                createBufferPoolFactory(networkBufferPool, floatingNetworkBuffersPerGate);
+                createBufferPoolFactory(
+                        networkBufferPool,
+                        NettyShuffleUtils.getMinMaxFloatingBuffersPerInputGate(
+                                floatingNetworkBuffersPerGate,
+                                networkBuffersPerChannel,
+                                igdd.getShuffleDescriptors().length,
+                                maxExclusiveBuffersPerGate));
 
         BufferDecompressor bufferDecompressor = null;
         if (igdd.getConsumedPartitionType().isBlocking() && blockingShuffleCompressionEnabled) {
@@ -180,7 +190,7 @@ public class SingleInputGateFactory {
                             connectionManager,
                             partitionRequestInitialBackoff,
                             partitionRequestMaxBackoff,
-                            networkBuffersPerChannel,
+                            getNetworkBuffersPerChannel(inputGate),
                             metrics);
                 },
                 nettyShuffleDescriptor ->
@@ -211,7 +221,7 @@ public class SingleInputGateFactory {
                     taskEventPublisher,
                     partitionRequestInitialBackoff,
                     partitionRequestMaxBackoff,
-                    networkBuffersPerChannel,
+                    getNetworkBuffersPerChannel(inputGate),
                     metrics);
         } else {
             // Different instances => remote
@@ -224,18 +234,36 @@ public class SingleInputGateFactory {
                     connectionManager,
                     partitionRequestInitialBackoff,
                     partitionRequestMaxBackoff,
-                    networkBuffersPerChannel,
+                    getNetworkBuffersPerChannel(inputGate),
                     metrics);
         }
     }
 
+    /**
+     * Returns the number of exclusive buffers per input channel of the given gate, which is reduced
+     * if the gate has so many channels that the configured per-gate limit would be exceeded.
+     */
+    protected int getNetworkBuffersPerChannel(SingleInputGate inputGate) {
+        return NettyShuffleUtils.getNetworkBuffersPerInputChannel(
+                networkBuffersPerChannel,
+                inputGate.getNumberOfInputChannels(),
+                maxExclusiveBuffersPerGate);
+    }
+
     @VisibleForTesting
     static SupplierWithException<BufferPool, IOException> createBufferPoolFactory(
             BufferPoolFactory bufferPoolFactory, int floatingNetworkBuffersPerGate) {
-        Pair<Integer, Integer> pair =
+        return createBufferPoolFactory(
+                bufferPoolFactory,
                 NettyShuffleUtils.getMinMaxFloatingBuffersPerInputGate(
-                        floatingNetworkBuffersPerGate);
-        return () -> bufferPoolFactory.createBufferPool(pair.getLeft(), pair.getRight());
+                        floatingNetworkBuffersPerGate));
+    }
+
+    private static SupplierWithException<BufferPool, IOException> createBufferPoolFactory(
+            BufferPoolFactory bufferPoolFactory, Pair<Integer, Integer> minMaxFloatingBuffers) {
+        return () ->
+                bufferPoolFactory.createBufferPool(
+                        minMaxFloatingBuffers.getLeft(), minMaxFloatingBuffers.getRight());
     }
 
     /** Statistics of input channels. */
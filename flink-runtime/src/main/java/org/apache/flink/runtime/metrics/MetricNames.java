@@ -62,6 +62,17 @@ public class MetricNames {
     public static final String CHECKPOINT_ALIGNMENT_TIME = "checkpointAlignmentTime";
     public static final String CHECKPOINT_START_DELAY_TIME = "checkpointStartDelayNanos";
 
+    public static final String CHANNEL_STATE_RECOVERED_BYTES = "channelStateRecoveredBytes";
+    public static final String CHANNEL_STATE_RECOVERED_BYTES_RATE =
+            CHANNEL_STATE_RECOVERED_BYTES + SUFFIX_RATE;
+    public static final String CHANNEL_STATE_RECOVERY_TIME = "channelStateRecoveryTimeMs";
+
+    public static final String CHECKPOINT_IO = "checkpointIO";
+    public static final String CHECKPOINT_IO_WRITTEN_BYTES = "writtenBytes";
+    public static final String CHECKPOINT_IO_WRITTEN_BYTES_RATE =
+            CHECKPOINT_IO_WRITTEN_BYTES + SUFFIX_RATE;
+    public static final String CHECKPOINT_IO_THROTTLED_TIME = "throttledTimeMs";
+
     public static final String START_WORKER_FAILURE_RATE = "startWorkFailure" + SUFFIX_RATE;
 
     public static String currentInputWatermarkName(int index) {
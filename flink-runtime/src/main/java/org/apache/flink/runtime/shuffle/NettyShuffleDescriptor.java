@@ -98,7 +98,9 @@ public class NettyShuffleDescriptor implements ShuffleDescriptor {
             InetSocketAddress address =
                     new InetSocketAddress(
                             producerDescriptor.getAddress(), producerDescriptor.getDataPort());
-            return new NetworkPartitionConnectionInfo(new ConnectionID(address, connectionIndex));
+            return new NetworkPartitionConnectionInfo(
+                    new ConnectionID(
+                            producerDescriptor.getProducerLocation(), address, connectionIndex));
         }
     }
 
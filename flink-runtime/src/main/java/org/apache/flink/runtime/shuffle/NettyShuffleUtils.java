@@ -42,6 +42,30 @@ public class NettyShuffleUtils {
         return configuredNetworkBuffersPerChannel;
     }
 
+    /**
+     * Calculates and returns the number of required exclusive network buffers per input channel of
+     * an input gate with the given number of channels. If the configured exclusive buffers of all
+     * channels exceed the given per-gate limit, for example after the upstream was rescaled to a
+     * large parallelism, the number of exclusive buffers per channel is reduced so that the gate
+     * stays within the limit, but each channel keeps at least one exclusive buffer.
+     */
+    public static int getNetworkBuffersPerInputChannel(
+            final int configuredNetworkBuffersPerChannel,
+            final int numInputChannels,
+            final int maxExclusiveBuffersPerGate) {
+        checkArgument(numInputChannels >= 0, "Number of input channels must not be negative.");
+        if (numInputChannels == 0
+                || (long) configuredNetworkBuffersPerChannel * numInputChannels
+                        <= maxExclusiveBuffersPerGate) {
+            return configuredNetworkBuffersPerChannel;
+        }
+        return Math.max(
+                1,
+                Math.min(
+                        configuredNetworkBuffersPerChannel,
+                        maxExclusiveBuffersPerGate / numInputChannels));
+    }
+
     /**
      * Calculates and returns the floating network buffer pool size used by the input gate. The
      * left/right value of the returned pair represent the min/max buffers require by the pool.
@@ -52,6 +76,29 @@ public class NettyShuffleUtils {
         return Pair.of(1, numFloatingBuffersPerGate);
     }
 
+    /**
+     * Calculates and returns the floating network buffer pool size used by an input gate whose
+     * exclusive buffers per channel were reduced by {@link #getNetworkBuffersPerInputChannel(int,
+     * int, int)}. The exclusive buffers given up by the channels are added to the maximum of the
+     * floating pool, so that they are still available to the channels with the largest backlog.
+     */
+    public static Pair<Integer, Integer> getMinMaxFloatingBuffersPerInputGate(
+            final int numFloatingBuffersPerGate,
+            final int configuredNetworkBuffersPerChannel,
+            final int numInputChannels,
+            final int maxExclusiveBuffersPerGate) {
+        int effectiveBuffersPerChannel =
+                getNetworkBuffersPerInputChannel(
+                        configuredNetworkBuffersPerChannel,
+                        numInputChannels,
+                        maxExclusiveBuffersPerGate);
+        long released =
+                (long) (configuredNetworkBuffersPerChannel - effectiveBuffersPerChannel)
+                        * numInputChannels;
+        int max = (int) Math.min(Integer.MAX_VALUE, numFloatingBuffersPerGate + released);
+        return getMinMaxFloatingBuffersPerInputGate(max);
+    }
+
     /**
      * Calculates and returns local network buffer pool size used by the result partition. The
      * left/right value of the returned pair represent the min/max buffers require by the pool.
@@ -34,6 +34,18 @@ public interface BackendWritableBroadcastState<K, V> extends BroadcastState<K, V
 
     BackendWritableBroadcastState<K, V> deepCopy();
 
+    /**
+     * Returns a snapshot of the current content of this state for an asynchronous snapshot, which
+     * must be released with {@link #releaseSnapshot()} once it has been written. Implementations
+     * may share the content with this state until either is modified.
+     */
+    default BackendWritableBroadcastState<K, V> snapshot() {
+        return deepCopy();
+    }
+
+    /** Releases a state returned by {@link #snapshot()}. */
+    default void releaseSnapshot() {}
+
     long write(FSDataOutputStream out) throws IOException;
 
     void setStateMetaInfo(RegisteredBroadcastStateBackendMetaInfo<K, V> stateMetaInfo);
@@ -0,0 +1,467 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.configuration.CheckpointingOptions;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.MeterView;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.runtime.checkpoint.CheckpointOptions;
+import org.apache.flink.runtime.metrics.MetricNames;
+import org.apache.flink.runtime.state.CheckpointStreamFactory.CheckpointStateOutputStream;
+import org.apache.flink.util.clock.Clock;
+import org.apache.flink.util.clock.SystemClock;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Limits the rate at which all tasks of a TaskManager write checkpoint data to the checkpoint
+ * storage. The streams of the {@link #wrap(CheckpointStreamFactory, Priority) wrapped} stream
+ * factories take the written bytes from a token bucket which is refilled with the configured rate
+ * and holds at most one second of data.
+ *
+ * <p>When the bucket is empty, the waiting writers are served in the order of their {@link
+ * Priority}: a writer only gets tokens while no writer of a higher priority is waiting. The bucket
+ * may go into debt by a single write, so that writes larger than the bucket make progress.
+ *
+ * <p>Writers running in threads shared by several tasks must not wait for tokens, as they would
+ * delay the other tasks. They write through a {@link Throttle} of their task instead, which takes
+ * the tokens without waiting and tells the shared thread how long to defer the further writes of
+ * the task.
+ */
+@Internal
+@ThreadSafe
+public class CheckpointIOScheduler {
+
+    /** The priority classes of checkpoint data, in descending order of priority. */
+    public enum Priority {
+        RESCALE,
+        PERIODIC,
+        SAVEPOINT;
+
+        public static Priority of(CheckpointOptions checkpointOptions) {
+            if (checkpointOptions.isRescaling()) {
+                return RESCALE;
+            }
+            return checkpointOptions.getCheckpointType().isSavepoint() ? SAVEPOINT : PERIODIC;
+        }
+    }
+
+    /**
+     * The minimum number of bytes a stream takes from the bucket at once, so that small writes do
+     * not contend for the lock of the scheduler.
+     */
+    @VisibleForTesting static final int MIN_ACQUIRED_BYTES = 4 * 1024;
+
+    /** The maximum time a waiting writer sleeps before checking the bucket again. */
+    private static final long MAX_WAIT_MILLIS = 100;
+
+    private final Object lock = new Object();
+
+    private final long bytesPerSecond;
+
+    private final Clock clock;
+
+    private final Counter[] writtenBytes;
+
+    private final Counter[] throttledTimeMs;
+
+    @GuardedBy("lock")
+    private final int[] numWaiting;
+
+    @GuardedBy("lock")
+    private double availableBytes;
+
+    @GuardedBy("lock")
+    private long lastRefillNanos;
+
+    public CheckpointIOScheduler(long bytesPerSecond, MetricGroup metricGroup) {
+        this(bytesPerSecond, metricGroup, SystemClock.getInstance());
+    }
+
+    @VisibleForTesting
+    CheckpointIOScheduler(long bytesPerSecond, MetricGroup metricGroup, Clock clock) {
+        checkArgument(bytesPerSecond > 0, "The rate limit must be positive.");
+        this.bytesPerSecond = bytesPerSecond;
+        this.clock = checkNotNull(clock);
+
+        Priority[] priorities = Priority.values();
+        this.numWaiting = new int[priorities.length];
+        this.writtenBytes = new Counter[priorities.length];
+        this.throttledTimeMs = new Counter[priorities.length];
+        MetricGroup ioGroup = metricGroup.addGroup(MetricNames.CHECKPOINT_IO);
+        for (Priority priority : priorities) {
+            MetricGroup group = ioGroup.addGroup(priority.name().toLowerCase(Locale.ROOT));
+            writtenBytes[priority.ordinal()] =
+                    group.counter(MetricNames.CHECKPOINT_IO_WRITTEN_BYTES);
+            group.meter(
+                    MetricNames.CHECKPOINT_IO_WRITTEN_BYTES_RATE,
+                    new MeterView(writtenBytes[priority.ordinal()]));
+            throttledTimeMs[priority.ordinal()] =
+                    group.counter(MetricNames.CHECKPOINT_IO_THROTTLED_TIME);
+        }
+
+        this.availableBytes = bytesPerSecond;
+        this.lastRefillNanos = clock.relativeTimeNanos();
+    }
+
+    /**
+     * Creates the scheduler of a TaskManager, or returns null if the rate of checkpoint I/O is not
+     * limited.
+     */
+    @Nullable
+    public static CheckpointIOScheduler fromConfiguration(
+            Configuration configuration, MetricGroup metricGroup) {
+        long bytesPerSecond =
+                configuration.get(CheckpointingOptions.CHECKPOINT_IO_RATE_LIMIT).getBytes();
+        return bytesPerSecond > 0 ? new CheckpointIOScheduler(bytesPerSecond, metricGroup) : null;
+    }
+
+    /**
+     * Returns a stream factory whose streams write the data of the given priority at the rate
+     * granted by this scheduler.
+     */
+    public CheckpointStreamFactory wrap(CheckpointStreamFactory factory, Priority priority) {
+        return new RateLimitedCheckpointStreamFactory(factory, priority, null);
+    }
+
+    /**
+     * Returns a storage view which limits the rate of all streams created through it, using the
+     * priority of the checkpoint if the location is resolved with the checkpoint options.
+     */
+    public CheckpointStorageWorkerView wrap(CheckpointStorageWorkerView storage) {
+        return new RateLimitedCheckpointStorageWorkerView(storage, null);
+    }
+
+    /**
+     * Creates the throttle of a task whose checkpoint data is written by a thread shared with other
+     * tasks.
+     */
+    public Throttle createThrottle() {
+        return new Throttle();
+    }
+
+    /**
+     * Blocks until the given number of bytes of the given priority may be written.
+     *
+     * @throws InterruptedIOException Thrown, if the thread is interrupted while waiting.
+     */
+    public void acquire(Priority priority, int numBytes) throws InterruptedIOException {
+        long waitedNanos = 0;
+        synchronized (lock) {
+            numWaiting[priority.ordinal()]++;
+            try {
+                while (true) {
+                    refill();
+                    if (availableBytes > 0 && !isHigherPriorityWaiting(priority)) {
+                        availableBytes -= numBytes;
+                        break;
+                    }
+                    long waitStartNanos = clock.relativeTimeNanos();
+                    lock.wait(getWaitTimeMillis());
+                    waitedNanos += clock.relativeTimeNanos() - waitStartNanos;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(
+                        "Interrupted while waiting to write checkpoint data.");
+            } finally {
+                numWaiting[priority.ordinal()]--;
+                // a waiting writer of a lower priority may proceed now
+                lock.notifyAll();
+            }
+        }
+        writtenBytes[priority.ordinal()].inc(numBytes);
+        throttledTimeMs[priority.ordinal()].inc(TimeUnit.NANOSECONDS.toMillis(waitedNanos));
+    }
+
+    /** Takes the given number of bytes of the given priority without waiting for them. */
+    private void charge(Priority priority, int numBytes) {
+        synchronized (lock) {
+            refill();
+            availableBytes -= numBytes;
+        }
+        writtenBytes[priority.ordinal()].inc(numBytes);
+    }
+
+    /** Returns the time until the bucket holds tokens again, or zero if it holds tokens. */
+    private long getDebtNanos() {
+        synchronized (lock) {
+            refill();
+            if (availableBytes > 0) {
+                return 0;
+            }
+            return (long)
+                    Math.ceil((1 - availableBytes) * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond);
+        }
+    }
+
+    @VisibleForTesting
+    int getNumberOfWaitingWriters(Priority priority) {
+        synchronized (lock) {
+            return numWaiting[priority.ordinal()];
+        }
+    }
+
+    @GuardedBy("lock")
+    private void refill() {
+        long now = clock.relativeTimeNanos();
+        availableBytes =
+                Math.min(
+                        bytesPerSecond,
+                        availableBytes
+                                + (now - lastRefillNanos)
+                                        * (double) bytesPerSecond
+                                        / TimeUnit.SECONDS.toNanos(1));
+        lastRefillNanos = now;
+    }
+
+    @GuardedBy("lock")
+    private boolean isHigherPriorityWaiting(Priority priority) {
+        for (int i = 0; i < priority.ordinal(); i++) {
+            if (numWaiting[i] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @GuardedBy("lock")
+    private long getWaitTimeMillis() {
+        double missingBytes = Math.max(1, 1 - availableBytes);
+        long waitMillis = (long) Math.ceil(missingBytes * 1000 / bytesPerSecond);
+        return Math.min(MAX_WAIT_MILLIS, Math.max(1, waitMillis));
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+     * Limits the rate of the checkpoint data of a single task which is written by a thread shared
+     * with other tasks. The writes through {@link #wrap(CheckpointStorageWorkerView) its streams}
+     * take the tokens without waiting for them. Instead, the shared thread defers the further
+     * writes of the task by {@link #getDelayNanos()}, so that only this task is throttled.
+     */
+    @ThreadSafe
+    public final class Throttle {
+
+        private volatile Priority lastPriority = Priority.PERIODIC;
+
+        private Throttle() {}
+
+        /**
+         * Returns a storage view whose streams take the written bytes from the bucket without
+         * waiting for them.
+         */
+        public CheckpointStorageWorkerView wrap(CheckpointStorageWorkerView storage) {
+            return new RateLimitedCheckpointStorageWorkerView(storage, this);
+        }
+
+        /**
+         * Returns how long the further writes of the task have to be deferred to stay within the
+         * rate limit. The returned time is accounted as throttled time of the task.
+         */
+        public long getDelayNanos() {
+            long delayNanos = getDebtNanos();
+            throttledTimeMs[lastPriority.ordinal()].inc(TimeUnit.NANOSECONDS.toMillis(delayNanos));
+            return delayNanos;
+        }
+
+        private void charge(Priority priority, int numBytes) {
+            lastPriority = priority;
+            CheckpointIOScheduler.this.charge(priority, numBytes);
+        }
+    }
+
+    private class RateLimitedCheckpointStorageWorkerView implements CheckpointStorageWorkerView {
+
+        private final CheckpointStorageWorkerView delegate;
+
+        @Nullable private final Throttle throttle;
+
+        /**
+         * The priority of the checkpoint which the task took last, which is also used for the
+         * streams owned by the task, as these are written while taking a checkpoint.
+         */
+        private volatile Priority currentPriority = Priority.PERIODIC;
+
+        private volatile long currentCheckpointId = -1L;
+
+        private RateLimitedCheckpointStorageWorkerView(
+                CheckpointStorageWorkerView delegate, @Nullable Throttle throttle) {
+            this.delegate = checkNotNull(delegate);
+            this.throttle = throttle;
+        }
+
+        @Override
+        public CheckpointStreamFactory resolveCheckpointStorageLocation(
+                long checkpointId, CheckpointStorageLocationReference reference)
+                throws IOException {
+            Priority priority;
+            if (checkpointId == currentCheckpointId) {
+                priority = currentPriority;
+            } else {
+                // only savepoints are written to a location other than the default one
+                priority = reference.isDefaultReference() ? Priority.PERIODIC : Priority.SAVEPOINT;
+            }
+            return new RateLimitedCheckpointStreamFactory(
+                    delegate.resolveCheckpointStorageLocation(checkpointId, reference),
+                    priority,
+                    throttle);
+        }
+
+        @Override
+        public CheckpointStreamFactory resolveCheckpointStorageLocation(
+                long checkpointId, CheckpointOptions checkpointOptions) throws IOException {
+            Priority priority = Priority.of(checkpointOptions);
+            if (checkpointId >= currentCheckpointId) {
+                currentPriority = priority;
+                currentCheckpointId = checkpointId;
+            }
+            return new RateLimitedCheckpointStreamFactory(
+                    delegate.resolveCheckpointStorageLocation(checkpointId, checkpointOptions),
+                    priority,
+                    throttle);
+        }
+
+        @Override
+        public CheckpointStateOutputStream createTaskOwnedStateStream() throws IOException {
+            return new RateLimitedCheckpointStateOutputStream(
+                    delegate.createTaskOwnedStateStream(), currentPriority, throttle);
+        }
+    }
+
+    private class RateLimitedCheckpointStreamFactory implements CheckpointStreamFactory {
+
+        private final CheckpointStreamFactory delegate;
+
+        private final Priority priority;
+
+        @Nullable private final Throttle throttle;
+
+        private RateLimitedCheckpointStreamFactory(
+                CheckpointStreamFactory delegate, Priority priority, @Nullable Throttle throttle) {
+            this.delegate = checkNotNull(delegate);
+            this.priority = checkNotNull(priority);
+            this.throttle = throttle;
+        }
+
+        @Override
+        public CheckpointStateOutputStream createCheckpointStateOutputStream(
+                CheckpointedStateScope scope) throws IOException {
+            return new RateLimitedCheckpointStateOutputStream(
+                    delegate.createCheckpointStateOutputStream(scope), priority, throttle);
+        }
+
+        @Override
+        public void closeMergedFiles() throws IOException {
+            delegate.closeMergedFiles();
+        }
+
+        @Override
+        public void abortMergedFiles() throws IOException {
+            delegate.abortMergedFiles();
+        }
+    }
+
+    private class RateLimitedCheckpointStateOutputStream extends CheckpointStateOutputStream {
+
+        private final CheckpointStateOutputStream delegate;
+
+        private final Priority priority;
+
+        /** The throttle of the task, if the stream must not wait for tokens. */
+        @Nullable private final Throttle throttle;
+
+        /** Bytes taken from the bucket which have not been written yet. */
+        private int acquiredBytes;
+
+        private RateLimitedCheckpointStateOutputStream(
+                CheckpointStateOutputStream delegate,
+                Priority priority,
+                @Nullable Throttle throttle) {
+            this.delegate = checkNotNull(delegate);
+            this.priority = priority;
+            this.throttle = throttle;
+        }
+
+        private void acquireForWrite(int numBytes) throws IOException {
+            if (numBytes > acquiredBytes) {
+                int toAcquire = Math.max(numBytes - acquiredBytes, MIN_ACQUIRED_BYTES);
+                if (throttle == null) {
+                    acquire(priority, toAcquire);
+                } else {
+                    throttle.charge(priority, toAcquire);
+                }
+                acquiredBytes += toAcquire;
+            }
+            acquiredBytes -= numBytes;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            acquireForWrite(1);
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            acquireForWrite(len);
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public long getPos() throws IOException {
+            return delegate.getPos();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void sync() throws IOException {
+            delegate.sync();
+        }
+
+        @Nullable
+        @Override
+        public StreamStateHandle closeAndGetHandle() throws IOException {
+            return delegate.closeAndGetHandle();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -18,6 +18,8 @@
 
 package org.apache.flink.runtime.state;
 
+import org.apache.flink.runtime.checkpoint.CheckpointOptions;
+
 import java.io.IOException;
 
 /**
@@ -44,6 +46,23 @@ public interface CheckpointStorageWorkerView {
     CheckpointStreamFactory resolveCheckpointStorageLocation(
             long checkpointId, CheckpointStorageLocationReference reference) throws IOException;
 
+    /**
+     * Resolves the target location of the checkpoint with the given options into a
+     * CheckpointStreamFactory. Implementations may use the options to treat the data of different
+     * kinds of checkpoints differently, by default this is the same as resolving the {@link
+     * CheckpointOptions#getTargetLocation() target location reference}.
+     *
+     * @param checkpointId The ID of the checkpoint that the location is initialized for.
+     * @param checkpointOptions The options of the checkpoint.
+     * @return A checkpoint storage location reflecting the target location and checkpoint ID.
+     * @throws IOException Thrown, if the storage location cannot be initialized from the reference.
+     */
+    default CheckpointStreamFactory resolveCheckpointStorageLocation(
+            long checkpointId, CheckpointOptions checkpointOptions) throws IOException {
+        return resolveCheckpointStorageLocation(
+                checkpointId, checkpointOptions.getTargetLocation());
+    }
+
     /**
      * Opens a stream to persist checkpoint state data that is owned strictly by tasks and not
      * attached to the life cycle of a specific checkpoint.
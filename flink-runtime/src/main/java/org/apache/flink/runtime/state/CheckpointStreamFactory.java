@@ -45,6 +45,26 @@ public interface CheckpointStreamFactory {
     CheckpointStateOutputStream createCheckpointStateOutputStream(CheckpointedStateScope scope)
             throws IOException;
 
+    /**
+     * Closes the files which are shared by the streams of this factory, if the factory merges the
+     * state of several streams into one file. This must be called once all state of a checkpoint
+     * has been written and before the state handles are reported, because the data of shared files
+     * may only be readable after they are closed. Streams created afterwards write their own files.
+     *
+     * @throws IOException Thrown, if a shared file could not be closed.
+     */
+    default void closeMergedFiles() throws IOException {}
+
+    /**
+     * Gives up the files which are shared by the streams of this factory without waiting for the
+     * streams of other factories writing into the same files. This is called instead of {@link
+     * #closeMergedFiles()} if the checkpoint failed or was aborted, so the state written so far
+     * will not be reported.
+     *
+     * @throws IOException Thrown, if a shared file could not be released.
+     */
+    default void abortMergedFiles() throws IOException {}
+
     /**
      * A dedicated output stream that produces a {@link StreamStateHandle} when closed.
      *
@@ -66,15 +66,16 @@ class DefaultOperatorStateBackendSnapshotStrategy
         ClassLoader snapshotClassLoader = Thread.currentThread().getContextClassLoader();
         Thread.currentThread().setContextClassLoader(userClassLoader);
         try {
-            // eagerly create deep copies of the list and the broadcast states (if any)
-            // in the synchronous phase, so that we can use them in the async writing.
+            // take copy-on-write snapshots of the list and the broadcast states (if any) in the
+            // synchronous phase, so that we can use them in the async writing. The states are only
+            // copied if they are accessed before the async writing released the snapshots.
 
             if (!registeredOperatorStates.isEmpty()) {
                 for (Map.Entry<String, PartitionableListState<?>> entry :
                         registeredOperatorStates.entrySet()) {
                     PartitionableListState<?> listState = entry.getValue();
                     if (null != listState) {
-                        listState = listState.deepCopy();
+                        listState = listState.snapshot();
                     }
                     registeredOperatorStatesDeepCopies.put(entry.getKey(), listState);
                 }
@@ -85,7 +86,7 @@ class DefaultOperatorStateBackendSnapshotStrategy
                         registeredBroadcastStates.entrySet()) {
                     BackendWritableBroadcastState<?, ?> broadcastState = entry.getValue();
                     if (null != broadcastState) {
-                        broadcastState = broadcastState.deepCopy();
+                        broadcastState = broadcastState.snapshot();
                     }
                     registeredBroadcastStatesDeepCopies.put(entry.getKey(), broadcastState);
                 }
@@ -223,6 +224,19 @@ class DefaultOperatorStateBackendSnapshotStrategy
         }
 
         @Override
-        public void release() {}
+        public void release() {
+            for (PartitionableListState<?> listState :
+                    registeredOperatorStatesDeepCopies.values()) {
+                if (listState != null) {
+                    listState.releaseSnapshot();
+                }
+            }
+            for (BackendWritableBroadcastState<?, ?> broadcastState :
+                    registeredBroadcastStatesDeepCopies.values()) {
+                if (broadcastState != null) {
+                    broadcastState.releaseSnapshot();
+                }
+            }
+        }
     }
 }
@@ -30,10 +30,19 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A {@link BroadcastState Broadcast State} backed a heap-based {@link Map}.
  *
+ * <p>The backing map is copied on write: a {@link #snapshot()} only takes a reference to the
+ * current map, which is copied before the state is accessed in a way that could modify it, as long
+ * as a snapshot that holds the map has not been released. Modifications through {@link #put},
+ * {@link #putAll} and {@link #remove} only copy the map, the values stay shared with the snapshot
+ * until it is released, so reads that hand out mutable values copy them until then. Keys and values
+ * passed to the state must not be modified afterwards, because they may be shared with a running
+ * snapshot.
+ *
  * @param <K> The key type of the elements in the {@link BroadcastState Broadcast State}.
  * @param <V> The value type of the elements in the {@link BroadcastState Broadcast State}.
  */
@@ -43,7 +52,19 @@ public class HeapBroadcastState<K, V> implements BackendWritableBroadcastState<K
     private RegisteredBroadcastStateBackendMetaInfo<K, V> stateMetaInfo;
 
     /** The internal map the holds the elements of the state. */
-    private final Map<K, V> backingMap;
+    private Map<K, V> backingMap;
+
+    /**
+     * The number of unreleased snapshots which share the keys and values of the current backing
+     * map. It is replaced when the keys and values are copied or removed.
+     */
+    private AtomicInteger backingMapSnapshots;
+
+    /** Whether a snapshot has taken the current backing map itself, not only its contents. */
+    private boolean backingMapShared;
+
+    /** Whether this is a snapshot which has been released. */
+    private boolean released;
 
     /** A serializer that allows to perform deep copies of internal map state. */
     private final MapSerializer<K, V> internalMapCopySerializer;
@@ -55,9 +76,17 @@ public class HeapBroadcastState<K, V> implements BackendWritableBroadcastState<K
     private HeapBroadcastState(
             final RegisteredBroadcastStateBackendMetaInfo<K, V> stateMetaInfo,
             final Map<K, V> internalMap) {
+        this(stateMetaInfo, internalMap, new AtomicInteger());
+    }
+
+    private HeapBroadcastState(
+            final RegisteredBroadcastStateBackendMetaInfo<K, V> stateMetaInfo,
+            final Map<K, V> internalMap,
+            final AtomicInteger backingMapSnapshots) {
 
         this.stateMetaInfo = Preconditions.checkNotNull(stateMetaInfo);
         this.backingMap = Preconditions.checkNotNull(internalMap);
+        this.backingMapSnapshots = Preconditions.checkNotNull(backingMapSnapshots);
         this.internalMapCopySerializer =
                 new MapSerializer<>(
                         stateMetaInfo.getKeySerializer(), stateMetaInfo.getValueSerializer());
@@ -84,9 +113,61 @@ public class HeapBroadcastState<K, V> implements BackendWritableBroadcastState<K
         return new HeapBroadcastState<>(this);
     }
 
+    @Override
+    public HeapBroadcastState<K, V> snapshot() {
+        backingMapSnapshots.incrementAndGet();
+        backingMapShared = true;
+        return new HeapBroadcastState<>(stateMetaInfo.deepCopy(), backingMap, backingMapSnapshots);
+    }
+
+    @Override
+    public void releaseSnapshot() {
+        if (!released) {
+            released = true;
+            backingMapSnapshots.decrementAndGet();
+        }
+    }
+
+    /**
+     * Replaces the backing map with a copy if it is shared with an unreleased snapshot. If the
+     * values may be modified through the returned map, they are copied as well while they are
+     * shared, also if only the map has been copied before.
+     */
+    private Map<K, V> getUnsharedMap(boolean exposesValues) {
+        if (backingMapSnapshots.get() == 0) {
+            return backingMap;
+        }
+        if (exposesValues && !getStateMetaInfo().getValueSerializer().isImmutableType()) {
+            backingMap = internalMapCopySerializer.copy(backingMap);
+            backingMapSnapshots = new AtomicInteger();
+            backingMapShared = false;
+        } else if (backingMapShared) {
+            backingMap = new HashMap<>(backingMap);
+            backingMapShared = false;
+        }
+        return backingMap;
+    }
+
+    /** Returns the backing map for reading values, which may be modified by the caller. */
+    private Map<K, V> getMapForReading() {
+        return getStateMetaInfo().getValueSerializer().isImmutableType()
+                ? backingMap
+                : getUnsharedMap(true);
+    }
+
     @Override
     public void clear() {
-        backingMap.clear();
+        if (backingMapSnapshots.get() > 0) {
+            if (backingMapShared) {
+                backingMap = new HashMap<>();
+            } else {
+                backingMap.clear();
+            }
+            backingMapSnapshots = new AtomicInteger();
+            backingMapShared = false;
+        } else {
+            backingMap.clear();
+        }
     }
 
     @Override
@@ -117,22 +198,22 @@ public class HeapBroadcastState<K, V> implements BackendWritableBroadcastState<K
 
     @Override
     public V get(K key) {
-        return backingMap.get(key);
+        return getMapForReading().get(key);
     }
 
     @Override
     public void put(K key, V value) {
-        backingMap.put(key, value);
+        getUnsharedMap(false).put(key, value);
     }
 
     @Override
     public void putAll(Map<K, V> map) {
-        backingMap.putAll(map);
+        getUnsharedMap(false).putAll(map);
     }
 
     @Override
     public void remove(K key) {
-        backingMap.remove(key);
+        getUnsharedMap(false).remove(key);
     }
 
     @Override
@@ -142,16 +223,16 @@ public class HeapBroadcastState<K, V> implements BackendWritableBroadcastState<K
 
     @Override
     public Iterator<Map.Entry<K, V>> iterator() {
-        return backingMap.entrySet().iterator();
+        return getUnsharedMap(true).entrySet().iterator();
     }
 
     @Override
     public Iterable<Map.Entry<K, V>> entries() {
-        return backingMap.entrySet();
+        return getUnsharedMap(true).entrySet();
     }
 
     @Override
     public Iterable<Map.Entry<K, V>> immutableEntries() {
-        return Collections.unmodifiableSet(backingMap.entrySet());
+        return Collections.unmodifiableSet(getMapForReading().entrySet());
     }
 }
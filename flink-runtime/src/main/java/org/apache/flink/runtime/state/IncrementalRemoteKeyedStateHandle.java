@@ -261,6 +261,20 @@ public class IncrementalRemoteKeyedStateHandle implements IncrementalKeyedStateH
             // deduplication and returns the previous reference.
             sharedStateHandle.setValue(result.getReference());
         }
+
+        // the private state may be written to segments of merged files, which are shared with
+        // the state of other subtasks
+        registerSharedStreamState(stateRegistry, metaStateHandle);
+        for (StreamStateHandle privateStateHandle : privateState.values()) {
+            registerSharedStreamState(stateRegistry, privateStateHandle);
+        }
+    }
+
+    private static void registerSharedStreamState(
+            SharedStateRegistry stateRegistry, StreamStateHandle stateHandle) {
+        if (stateHandle instanceof CompositeStateHandle) {
+            ((CompositeStateHandle) stateHandle).registerSharedStates(stateRegistry);
+        }
     }
 
     /** Create a unique key to register one of our shared state handles. */
@@ -26,6 +26,8 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Interface for collection that gives in order access to elements w.r.t their priority.
@@ -54,6 +56,33 @@ public interface InternalPriorityQueue<T> {
     @Nullable
     T peek();
 
+    /**
+     * Retrieves and removes elements as long as the head element satisfies the given condition and
+     * hands each removed element to the given consumer.
+     *
+     * <p>The default implementation is equivalent to repeatedly calling {@link #peek()} and {@link
+     * #poll()}. Implementations that are partitioned (e.g. by key-group) may only drain the
+     * partition with the smallest head and return, so that a caller can process the elements of one
+     * partition before removing those of the next. Callers that want all qualifying elements call
+     * this method until it returns 0.
+     *
+     * @param condition the condition that a head element must satisfy to be removed.
+     * @param consumer the consumer for the removed elements.
+     * @return the number of removed elements, 0 iff the head element does not satisfy the condition
+     *     or the queue is empty.
+     */
+    default int pollWhile(
+            @Nonnull Predicate<? super T> condition, @Nonnull Consumer<? super T> consumer) {
+        int count = 0;
+        T head;
+        while ((head = peek()) != null && condition.test(head)) {
+            poll();
+            consumer.accept(head);
+            ++count;
+        }
+        return count;
+    }
+
     /**
      * Adds the given element to the set, if it is not already contained.
      *
@@ -93,7 +93,10 @@ public class KeyGroupsStateHandle implements StreamStateHandle, KeyedStateHandle
 
     @Override
     public void registerSharedStates(SharedStateRegistry stateRegistry) {
-        // No shared states
+        // the state stream itself may reference shared state, like a segment of a merged file
+        if (stateHandle instanceof CompositeStateHandle) {
+            ((CompositeStateHandle) stateHandle).registerSharedStates(stateRegistry);
+        }
     }
 
     @Override
@@ -27,10 +27,18 @@ import org.apache.flink.util.Preconditions;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Implementation of operator list state.
  *
+ * <p>The internal list is copied on write: a {@link #snapshot()} only takes a reference to the
+ * current list, which is copied before the state is accessed in a way that could modify it, as long
+ * as a snapshot that holds the list has not been released. Modifications through {@link #add} and
+ * {@link #addAll} only copy the list, the elements stay shared with the snapshot until it is
+ * released, so reads that hand out elements copy them until then. Elements passed to the state must
+ * not be modified afterwards, because they may be shared with a running snapshot.
+ *
  * @param <S> the type of an operator state partition.
  */
 public final class PartitionableListState<S> implements ListState<S> {
@@ -39,7 +47,19 @@ public final class PartitionableListState<S> implements ListState<S> {
     private RegisteredOperatorStateBackendMetaInfo<S> stateMetaInfo;
 
     /** The internal list the holds the elements of the state */
-    private final ArrayList<S> internalList;
+    private ArrayList<S> internalList;
+
+    /**
+     * The number of unreleased snapshots which share the elements of the current internal list. It
+     * is replaced when the elements are copied or removed.
+     */
+    private AtomicInteger internalListSnapshots;
+
+    /** Whether a snapshot has taken the current internal list itself, not only its elements. */
+    private boolean internalListShared;
+
+    /** Whether this is a snapshot which has been released. */
+    private boolean released;
 
     /** A typeSerializer that allows to perform deep copies of internalList */
     private final ArrayListSerializer<S> internalListCopySerializer;
@@ -50,9 +70,17 @@ public final class PartitionableListState<S> implements ListState<S> {
 
     private PartitionableListState(
             RegisteredOperatorStateBackendMetaInfo<S> stateMetaInfo, ArrayList<S> internalList) {
+        this(stateMetaInfo, internalList, new AtomicInteger());
+    }
+
+    private PartitionableListState(
+            RegisteredOperatorStateBackendMetaInfo<S> stateMetaInfo,
+            ArrayList<S> internalList,
+            AtomicInteger internalListSnapshots) {
 
         this.stateMetaInfo = Preconditions.checkNotNull(stateMetaInfo);
         this.internalList = Preconditions.checkNotNull(internalList);
+        this.internalListSnapshots = Preconditions.checkNotNull(internalListSnapshots);
         this.internalListCopySerializer =
                 new ArrayListSerializer<>(stateMetaInfo.getPartitionStateSerializer());
     }
@@ -76,20 +104,71 @@ public final class PartitionableListState<S> implements ListState<S> {
         return new PartitionableListState<>(this);
     }
 
+    /**
+     * Returns a snapshot of the current content of this state, which shares the internal list with
+     * this state until either is modified. The snapshot must be released with {@link
+     * #releaseSnapshot()} once it has been written.
+     */
+    public PartitionableListState<S> snapshot() {
+        internalListSnapshots.incrementAndGet();
+        internalListShared = true;
+        return new PartitionableListState<>(
+                stateMetaInfo.deepCopy(), internalList, internalListSnapshots);
+    }
+
+    /** Releases a state returned by {@link #snapshot()}. */
+    public void releaseSnapshot() {
+        if (!released) {
+            released = true;
+            internalListSnapshots.decrementAndGet();
+        }
+    }
+
+    /**
+     * Replaces the internal list with a copy if it is shared with an unreleased snapshot. If the
+     * elements may be modified through the returned list, they are copied as well while they are
+     * shared, also if only the list has been copied before.
+     */
+    private ArrayList<S> getUnsharedList(boolean exposesElements) {
+        if (internalListSnapshots.get() == 0) {
+            return internalList;
+        }
+        if (exposesElements
+                && !getStateMetaInfo().getPartitionStateSerializer().isImmutableType()) {
+            internalList = internalListCopySerializer.copy(internalList);
+            internalListSnapshots = new AtomicInteger();
+            internalListShared = false;
+        } else if (internalListShared) {
+            internalList = new ArrayList<>(internalList);
+            internalListShared = false;
+        }
+        return internalList;
+    }
+
     @Override
     public void clear() {
-        internalList.clear();
+        if (internalListSnapshots.get() > 0) {
+            if (internalListShared) {
+                internalList = new ArrayList<>();
+            } else {
+                internalList.clear();
+            }
+            internalListSnapshots = new AtomicInteger();
+            internalListShared = false;
+        } else {
+            internalList.clear();
+        }
     }
 
     @Override
     public Iterable<S> get() {
-        return internalList;
+        return getUnsharedList(true);
     }
 
     @Override
     public void add(S value) {
         Preconditions.checkNotNull(value, "You cannot add null to a ListState.");
-        internalList.add(value);
+        getUnsharedList(false).add(value);
     }
 
     @Override
@@ -119,7 +198,7 @@ public final class PartitionableListState<S> implements ListState<S> {
 
     @Override
     public void update(List<S> values) {
-        internalList.clear();
+        clear();
 
         addAll(values);
     }
@@ -127,7 +206,7 @@ public final class PartitionableListState<S> implements ListState<S> {
     @Override
     public void addAll(List<S> values) {
         if (values != null && !values.isEmpty()) {
-            internalList.addAll(values);
+            getUnsharedList(false).addAll(values);
         }
     }
 }
@@ -37,6 +37,10 @@ import java.util.concurrent.RejectedExecutionException;
  * <p>A {@code SharedStateRegistry} will be deployed in the {@link
  * org.apache.flink.runtime.checkpoint.CheckpointCoordinator} to maintain the reference count of
  * {@link StreamStateHandle}s by a key that (logically) identifies them.
+ *
+ * <p>The same physical state handle may be registered under several keys, e.g. when backends of
+ * different subtasks reference a single deduplicated upload. Such a handle is only deleted once it
+ * is no longer referenced under any key.
  */
 public class SharedStateRegistry implements AutoCloseable {
 
@@ -49,6 +53,9 @@ public class SharedStateRegistry implements AutoCloseable {
     private final Map<SharedStateRegistryKey, SharedStateRegistry.SharedStateEntry>
             registeredStates;
 
+    /** Number of registration keys under which each registered state handle is referenced. */
+    private final Map<StreamStateHandle, Integer> registrationKeysPerHandle;
+
     /** This flag indicates whether or not the registry is open or if close() was called */
     private boolean open;
 
@@ -62,6 +69,7 @@ public class SharedStateRegistry implements AutoCloseable {
 
     public SharedStateRegistry(Executor asyncDisposalExecutor) {
         this.registeredStates = new HashMap<>();
+        this.registrationKeysPerHandle = new HashMap<>();
         this.asyncDisposalExecutor = Preconditions.checkNotNull(asyncDisposalExecutor);
         this.open = true;
     }
@@ -106,9 +114,11 @@ public class SharedStateRegistry implements AutoCloseable {
 
                 entry = new SharedStateRegistry.SharedStateEntry(state);
                 registeredStates.put(registrationKey, entry);
+                registrationKeysPerHandle.merge(state, 1, Integer::sum);
             } else {
-                // delete if this is a real duplicate
-                if (!Objects.equals(state, entry.stateHandle)) {
+                // delete if this is a real duplicate that is not registered under another key
+                if (!Objects.equals(state, entry.stateHandle)
+                        && !registrationKeysPerHandle.containsKey(state)) {
                     scheduledStateDeletion = state;
                     LOG.trace(
                             "Identified duplicate state registration under key {}. New state {} was determined to "
@@ -156,7 +166,10 @@ public class SharedStateRegistry implements AutoCloseable {
             // Remove the state from the registry when it's not referenced any more.
             if (entry.getReferenceCount() <= 0) {
                 registeredStates.remove(registrationKey);
-                scheduledStateDeletion = entry.getStateHandle();
+                scheduledStateDeletion =
+                        releaseRegistrationKey(entry.getStateHandle())
+                                ? entry.getStateHandle()
+                                : null;
                 result = new Result(null, 0);
             } else {
                 scheduledStateDeletion = null;
@@ -194,6 +207,26 @@ public class SharedStateRegistry implements AutoCloseable {
         }
     }
 
+    /**
+     * Releases one registration key of the given state handle and returns true if the handle is no
+     * longer registered under any key and can be deleted.
+     */
+    private boolean releaseRegistrationKey(StreamStateHandle stateHandle) {
+        assert Thread.holdsLock(registeredStates);
+
+        Integer remainingKeys =
+                registrationKeysPerHandle.computeIfPresent(
+                        stateHandle, (handle, numKeys) -> numKeys > 1 ? numKeys - 1 : null);
+        if (remainingKeys != null) {
+            LOG.trace(
+                    "Shared state {} is still registered under {} other key(s).",
+                    stateHandle,
+                    remainingKeys);
+            return false;
+        }
+        return true;
+    }
+
     private void scheduleAsyncDelete(StreamStateHandle streamStateHandle) {
         // We do the small optimization to not issue discards for placeholders, which are NOPs.
         if (streamStateHandle != null && !isPlaceholder(streamStateHandle)) {
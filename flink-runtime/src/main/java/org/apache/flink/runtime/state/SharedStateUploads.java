@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.util.concurrent.ExecutorThreadFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * The uploads of shared state files which the keyed state backends of the tasks of a TaskManager
+ * share within a checkpoint, and the threads which run them. A backend which creates a file with
+ * the same content as a file of another subtask of the same job can reference the upload of that
+ * file instead of uploading it again.
+ *
+ * <p>An upload is only shared within a job and checkpoint. If one of the backends fails to complete
+ * the checkpoint, the whole checkpoint fails, so backends never reference a shared upload which
+ * another backend has discarded in a completed checkpoint. The uploads of a job are forgotten when
+ * its checkpoints complete or are aborted, and when the job is released from the TaskManager.
+ */
+@ThreadSafe
+public class SharedStateUploads implements AutoCloseable {
+
+    private final Object lock = new Object();
+
+    /** The upload threads shared by all backends, created on first use. */
+    @GuardedBy("lock")
+    @Nullable
+    private ThreadPoolExecutor executor;
+
+    /** The number of backends currently using the upload threads. */
+    @GuardedBy("lock")
+    private int numExecutorLeases;
+
+    @GuardedBy("lock")
+    private boolean closed;
+
+    /** The uploads of the in-flight checkpoints by job, checkpoint and file key. */
+    private final ConcurrentHashMap<UploadKey, CompletableFuture<Upload>> uploads =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Acquires the shared upload threads, growing the pool to at least the given number of threads.
+     * Every call must be matched by a call to {@link #releaseExecutor()}.
+     */
+    public ExecutorService acquireExecutor(int threadNum) {
+        checkArgument(threadNum > 0, "The number of upload threads must be positive.");
+        synchronized (lock) {
+            checkState(!closed, "The shared state uploads are closed.");
+            if (executor == null) {
+                executor =
+                        new ThreadPoolExecutor(
+                                threadNum,
+                                threadNum,
+                                0L,
+                                TimeUnit.MILLISECONDS,
+                                new LinkedBlockingQueue<>(),
+                                new ExecutorThreadFactory("Flink-SharedStateUpload"));
+            } else if (executor.getMaximumPoolSize() < threadNum) {
+                executor.setMaximumPoolSize(threadNum);
+                executor.setCorePoolSize(threadNum);
+            }
+            ++numExecutorLeases;
+            return executor;
+        }
+    }
+
+    /** Releases the shared upload threads, shutting them down once no backend uses them. */
+    public void releaseExecutor() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            checkState(numExecutorLeases > 0, "The shared upload threads are not acquired.");
+            if (--numExecutorLeases == 0) {
+                executor.shutdownNow();
+                executor = null;
+            }
+        }
+    }
+
+    /**
+     * Registers the upload of a file with the given key in the given checkpoint, unless an upload
+     * of a file with the same key has been registered before.
+     *
+     * @return the upload registered before, or null if the given upload has been registered.
+     */
+    @Nullable
+    public CompletableFuture<Upload> registerUpload(
+            JobID jobId, long checkpointId, String fileKey, CompletableFuture<Upload> upload) {
+        return uploads.putIfAbsent(new UploadKey(jobId, checkpointId, fileKey), upload);
+    }
+
+    /** Forgets the uploads of the given job for all checkpoints up to the given checkpoint. */
+    public void releaseUploadsUpTo(JobID jobId, long checkpointId) {
+        uploads.keySet()
+                .removeIf(key -> key.jobId.equals(jobId) && key.checkpointId <= checkpointId);
+    }
+
+    /** Forgets the uploads of the given job for the given checkpoint. */
+    public void releaseUploads(JobID jobId, long checkpointId) {
+        uploads.keySet()
+                .removeIf(key -> key.jobId.equals(jobId) && key.checkpointId == checkpointId);
+    }
+
+    /** Forgets all uploads of the given job. */
+    public void releaseJob(JobID jobId) {
+        uploads.keySet().removeIf(key -> key.jobId.equals(jobId));
+    }
+
+    @VisibleForTesting
+    public int getNumUploads() {
+        return uploads.size();
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+        }
+        uploads.clear();
+    }
+
+    /** An uploaded file and the digest of its content. */
+    public static final class Upload {
+
+        private final StreamStateHandle handle;
+
+        private final byte[] contentDigest;
+
+        public Upload(StreamStateHandle handle, byte[] contentDigest) {
+            this.handle = checkNotNull(handle);
+            this.contentDigest = checkNotNull(contentDigest);
+        }
+
+        public StreamStateHandle getHandle() {
+            return handle;
+        }
+
+        public byte[] getContentDigest() {
+            return contentDigest;
+        }
+    }
+
+    /** Identifies an upload by job, checkpoint and file key. */
+    private static final class UploadKey {
+
+        private final JobID jobId;
+
+        private final long checkpointId;
+
+        private final String fileKey;
+
+        private UploadKey(JobID jobId, long checkpointId, String fileKey) {
+            this.jobId = checkNotNull(jobId);
+            this.checkpointId = checkpointId;
+            this.fileKey = checkNotNull(fileKey);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            UploadKey that = (UploadKey) o;
+            return checkpointId == that.checkpointId
+                    && jobId.equals(that.jobId)
+                    && fileKey.equals(that.fileKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(jobId, checkpointId, fileKey);
+        }
+    }
+}
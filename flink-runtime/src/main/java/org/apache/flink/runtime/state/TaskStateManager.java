@@ -24,9 +24,11 @@ import org.apache.flink.runtime.checkpoint.CheckpointMetrics;
 import org.apache.flink.runtime.checkpoint.InflightDataRescalingDescriptor;
 import org.apache.flink.runtime.checkpoint.PrioritizedOperatorSubtaskState;
 import org.apache.flink.runtime.checkpoint.TaskStateSnapshot;
+import org.apache.flink.runtime.checkpoint.channel.ChannelStateWriteRequestExecutorPool;
 import org.apache.flink.runtime.checkpoint.channel.SequentialChannelStateReader;
 import org.apache.flink.runtime.jobgraph.OperatorID;
 import org.apache.flink.runtime.state.changelog.StateChangelogStorage;
+import org.apache.flink.runtime.state.filesystem.MergingCheckpointFilePools;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -98,6 +100,42 @@ public interface TaskStateManager extends CheckpointListener, AutoCloseable {
 
     SequentialChannelStateReader getSequentialChannelStateReader();
 
+    /**
+     * Returns the TaskManager-wide pool which writes the channel state of unaligned checkpoints, or
+     * null if the task should write it with a dedicated thread.
+     */
+    @Nullable
+    default ChannelStateWriteRequestExecutorPool getChannelStateWriterPool() {
+        return null;
+    }
+
+    /**
+     * Returns the TaskManager-wide scheduler which limits the rate of checkpoint I/O, or null if
+     * the rate is not limited.
+     */
+    @Nullable
+    default CheckpointIOScheduler getCheckpointIOScheduler() {
+        return null;
+    }
+
+    /**
+     * Returns the TaskManager-wide pools of files into which the exclusive checkpoint state of all
+     * tasks is merged, or null if each task merges its own state only.
+     */
+    @Nullable
+    default MergingCheckpointFilePools getCheckpointFilePools() {
+        return null;
+    }
+
+    /**
+     * Returns the TaskManager-wide uploads of shared state files, through which the backends of the
+     * subtasks of a job can share the upload of identical files, or null if files are not shared.
+     */
+    @Nullable
+    default SharedStateUploads getSharedStateUploads() {
+        return null;
+    }
+
     /** Returns the configured state changelog storage for this task. */
     @Nullable
     StateChangelogStorage<?> getStateChangelogStorage();
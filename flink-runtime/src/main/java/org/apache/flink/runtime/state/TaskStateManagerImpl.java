@@ -26,11 +26,13 @@ import org.apache.flink.runtime.checkpoint.JobManagerTaskRestore;
 import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
 import org.apache.flink.runtime.checkpoint.PrioritizedOperatorSubtaskState;
 import org.apache.flink.runtime.checkpoint.TaskStateSnapshot;
+import org.apache.flink.runtime.checkpoint.channel.ChannelStateWriteRequestExecutorPool;
 import org.apache.flink.runtime.checkpoint.channel.SequentialChannelStateReader;
 import org.apache.flink.runtime.checkpoint.channel.SequentialChannelStateReaderImpl;
 import org.apache.flink.runtime.executiongraph.ExecutionAttemptID;
 import org.apache.flink.runtime.jobgraph.OperatorID;
 import org.apache.flink.runtime.state.changelog.StateChangelogStorage;
+import org.apache.flink.runtime.state.filesystem.MergingCheckpointFilePools;
 import org.apache.flink.runtime.taskmanager.CheckpointResponder;
 
 import org.slf4j.Logger;
@@ -80,6 +82,14 @@ public class TaskStateManagerImpl implements TaskStateManager {
 
     private final SequentialChannelStateReader sequentialChannelStateReader;
 
+    @Nullable private final ChannelStateWriteRequestExecutorPool channelStateWriterPool;
+
+    @Nullable private final CheckpointIOScheduler checkpointIOScheduler;
+
+    @Nullable private final MergingCheckpointFilePools checkpointFilePools;
+
+    @Nullable private final SharedStateUploads sharedStateUploads;
+
     public TaskStateManagerImpl(
             @Nonnull JobID jobId,
             @Nonnull ExecutionAttemptID executionAttemptID,
@@ -108,6 +118,98 @@ public class TaskStateManagerImpl implements TaskStateManager {
             @Nullable JobManagerTaskRestore jobManagerTaskRestore,
             @Nonnull CheckpointResponder checkpointResponder,
             @Nonnull SequentialChannelStateReaderImpl sequentialChannelStateReader) {
+        this(
+                jobId,
+                executionAttemptID,
+                localStateStore,
+                stateChangelogStorage,
+                jobManagerTaskRestore,
+                checkpointResponder,
+                sequentialChannelStateReader,
+                null);
+    }
+
+    public TaskStateManagerImpl(
+            @Nonnull JobID jobId,
+            @Nonnull ExecutionAttemptID executionAttemptID,
+            @Nonnull TaskLocalStateStore localStateStore,
+            @Nullable StateChangelogStorage<?> stateChangelogStorage,
+            @Nullable JobManagerTaskRestore jobManagerTaskRestore,
+            @Nonnull CheckpointResponder checkpointResponder,
+            @Nonnull SequentialChannelStateReaderImpl sequentialChannelStateReader,
+            @Nullable ChannelStateWriteRequestExecutorPool channelStateWriterPool) {
+        this(
+                jobId,
+                executionAttemptID,
+                localStateStore,
+                stateChangelogStorage,
+                jobManagerTaskRestore,
+                checkpointResponder,
+                sequentialChannelStateReader,
+                channelStateWriterPool,
+                null);
+    }
+
+    public TaskStateManagerImpl(
+            @Nonnull JobID jobId,
+            @Nonnull ExecutionAttemptID executionAttemptID,
+            @Nonnull TaskLocalStateStore localStateStore,
+            @Nullable StateChangelogStorage<?> stateChangelogStorage,
+            @Nullable JobManagerTaskRestore jobManagerTaskRestore,
+            @Nonnull CheckpointResponder checkpointResponder,
+            @Nonnull SequentialChannelStateReaderImpl sequentialChannelStateReader,
+            @Nullable ChannelStateWriteRequestExecutorPool channelStateWriterPool,
+            @Nullable CheckpointIOScheduler checkpointIOScheduler) {
+        this(
+                jobId,
+                executionAttemptID,
+                localStateStore,
+                stateChangelogStorage,
+                jobManagerTaskRestore,
+                checkpointResponder,
+                sequentialChannelStateReader,
+                channelStateWriterPool,
+                checkpointIOScheduler,
+                null);
+    }
+
+    public TaskStateManagerImpl(
+            @Nonnull JobID jobId,
+            @Nonnull ExecutionAttemptID executionAttemptID,
+            @Nonnull TaskLocalStateStore localStateStore,
+            @Nullable StateChangelogStorage<?> stateChangelogStorage,
+            @Nullable JobManagerTaskRestore jobManagerTaskRestore,
+            @Nonnull CheckpointResponder checkpointResponder,
+            @Nonnull SequentialChannelStateReaderImpl sequentialChannelStateReader,
+            @Nullable ChannelStateWriteRequestExecutorPool channelStateWriterPool,
+            @Nullable CheckpointIOScheduler checkpointIOScheduler,
+            @Nullable MergingCheckpointFilePools checkpointFilePools) {
+        this(
+                jobId,
+                executionAttemptID,
+                localStateStore,
+                stateChangelogStorage,
+                jobManagerTaskRestore,
+                checkpointResponder,
+                sequentialChannelStateReader,
+                channelStateWriterPool,
+                checkpointIOScheduler,
+                checkpointFilePools,
+                null);
+    }
+
+    public TaskStateManagerImpl(
+            @Nonnull JobID jobId,
+            @Nonnull ExecutionAttemptID executionAttemptID,
+            @Nonnull TaskLocalStateStore localStateStore,
+            @Nullable StateChangelogStorage<?> stateChangelogStorage,
+            @Nullable JobManagerTaskRestore jobManagerTaskRestore,
+            @Nonnull CheckpointResponder checkpointResponder,
+            @Nonnull SequentialChannelStateReaderImpl sequentialChannelStateReader,
+            @Nullable ChannelStateWriteRequestExecutorPool channelStateWriterPool,
+            @Nullable CheckpointIOScheduler checkpointIOScheduler,
+            @Nullable MergingCheckpointFilePools checkpointFilePools,
+            @Nullable SharedStateUploads sharedStateUploads) {
         this.jobId = jobId;
         this.localStateStore = localStateStore;
         this.stateChangelogStorage = stateChangelogStorage;
@@ -115,6 +217,10 @@ public class TaskStateManagerImpl implements TaskStateManager {
         this.executionAttemptID = executionAttemptID;
         this.checkpointResponder = checkpointResponder;
         this.sequentialChannelStateReader = sequentialChannelStateReader;
+        this.channelStateWriterPool = channelStateWriterPool;
+        this.checkpointIOScheduler = checkpointIOScheduler;
+        this.checkpointFilePools = checkpointFilePools;
+        this.sharedStateUploads = sharedStateUploads;
     }
 
     @Override
@@ -238,6 +344,30 @@ public class TaskStateManagerImpl implements TaskStateManager {
         return sequentialChannelStateReader;
     }
 
+    @Nullable
+    @Override
+    public ChannelStateWriteRequestExecutorPool getChannelStateWriterPool() {
+        return channelStateWriterPool;
+    }
+
+    @Nullable
+    @Override
+    public CheckpointIOScheduler getCheckpointIOScheduler() {
+        return checkpointIOScheduler;
+    }
+
+    @Nullable
+    @Override
+    public MergingCheckpointFilePools getCheckpointFilePools() {
+        return checkpointFilePools;
+    }
+
+    @Nullable
+    @Override
+    public SharedStateUploads getSharedStateUploads() {
+        return sharedStateUploads;
+    }
+
     @Nullable
     @Override
     public StateChangelogStorage<?> getStateChangelogStorage() {
@@ -20,6 +20,7 @@ package org.apache.flink.runtime.state;
 
 import org.apache.flink.api.common.state.MapState;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
@@ -47,6 +48,11 @@ class UserFacingMapState<K, V> implements MapState<K, V> {
         return originalState.get(key);
     }
 
+    @Override
+    public Map<K, V> getAll(Collection<K> keys) throws Exception {
+        return originalState.getAll(keys);
+    }
+
     @Override
     public void put(K key, V value) throws Exception {
         originalState.put(key, value);
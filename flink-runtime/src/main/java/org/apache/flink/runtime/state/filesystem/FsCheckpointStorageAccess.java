@@ -50,6 +50,15 @@ public class FsCheckpointStorageAccess extends AbstractFsCheckpointStorageAccess
 
     private final int writeBufferSize;
 
+    /** Maximum size of merged files of exclusive checkpoint state, zero if merging is disabled. */
+    private final long fileMergingMaxFileSize;
+
+    /**
+     * The pools of merged files shared by all the tasks of the task manager, null if every
+     * checkpoint location merges the state of its own task only.
+     */
+    @Nullable private MergingCheckpointFilePools mergingFilePools;
+
     private boolean baseLocationsInitialized = false;
 
     public FsCheckpointStorageAccess(
@@ -78,10 +87,31 @@ public class FsCheckpointStorageAccess extends AbstractFsCheckpointStorageAccess
             int writeBufferSize)
             throws IOException {
 
+        this(
+                fs,
+                checkpointBaseDirectory,
+                defaultSavepointDirectory,
+                jobId,
+                fileSizeThreshold,
+                writeBufferSize,
+                0L);
+    }
+
+    public FsCheckpointStorageAccess(
+            FileSystem fs,
+            Path checkpointBaseDirectory,
+            @Nullable Path defaultSavepointDirectory,
+            JobID jobId,
+            int fileSizeThreshold,
+            int writeBufferSize,
+            long fileMergingMaxFileSize)
+            throws IOException {
+
         super(jobId, defaultSavepointDirectory);
 
         checkArgument(fileSizeThreshold >= 0);
         checkArgument(writeBufferSize >= 0);
+        checkArgument(fileMergingMaxFileSize >= 0);
 
         this.fileSystem = checkNotNull(fs);
         this.checkpointsDirectory = getCheckpointDirectoryForJob(checkpointBaseDirectory, jobId);
@@ -90,6 +120,7 @@ public class FsCheckpointStorageAccess extends AbstractFsCheckpointStorageAccess
                 new Path(checkpointsDirectory, CHECKPOINT_TASK_OWNED_STATE_DIR);
         this.fileSizeThreshold = fileSizeThreshold;
         this.writeBufferSize = writeBufferSize;
+        this.fileMergingMaxFileSize = fileMergingMaxFileSize;
     }
 
     // ------------------------------------------------------------------------
@@ -143,7 +174,9 @@ public class FsCheckpointStorageAccess extends AbstractFsCheckpointStorageAccess
             long checkpointId, CheckpointStorageLocationReference reference) throws IOException {
 
         if (reference.isDefaultReference()) {
-            // default reference, construct the default location for that particular checkpoint
+            // default reference, construct the default location for that particular checkpoint.
+            // only the exclusive state of such checkpoints is merged, because savepoints must
+            // stay self-contained and relocatable
             final Path checkpointDir =
                     createCheckpointDirectory(checkpointsDirectory, checkpointId);
 
@@ -154,7 +187,9 @@ public class FsCheckpointStorageAccess extends AbstractFsCheckpointStorageAccess
                     taskOwnedStateDirectory,
                     reference,
                     fileSizeThreshold,
-                    writeBufferSize);
+                    writeBufferSize,
+                    fileMergingMaxFileSize,
+                    mergingFilePools);
         } else {
             // location encoded in the reference
             final Path path = decodePathFromReference(reference);
@@ -170,6 +205,14 @@ public class FsCheckpointStorageAccess extends AbstractFsCheckpointStorageAccess
         }
     }
 
+    /**
+     * Sets the pools of merged files shared by the tasks of a task manager, so that the exclusive
+     * state of the tasks which write into the same checkpoint directory ends up in the same files.
+     */
+    public void setMergingFilePools(@Nullable MergingCheckpointFilePools mergingFilePools) {
+        this.mergingFilePools = mergingFilePools;
+    }
+
     @Override
     public CheckpointStateOutputStream createTaskOwnedStateStream() {
         // as the comment of CheckpointStorageWorkerView#createTaskOwnedStateStream said we may
@@ -33,6 +33,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
 
 import java.io.IOException;
 import java.util.Arrays;
@@ -49,6 +50,13 @@ import static org.apache.flink.util.Preconditions.checkNotNull;
  * are written, but the state is returned inline in the state handle instead. This reduces the
  * problem of many small files that have only few bytes.
  *
+ * <p>If a maximum merged file size is configured, the streams for exclusive state append their
+ * state as segments to a few shared files instead of writing one file each, see {@link
+ * SegmentFileStateHandle}. If the factory is given the {@link MergingCheckpointFilePools} of the
+ * TaskManager, the files are shared with the factories of the other tasks writing into the same
+ * checkpoint directory. The files holding the state of this factory are closed by {@link
+ * #closeMergedFiles()}.
+ *
  * <h2>Note on directory creation</h2>
  *
  * <p>The given target directory must already exist, this factory does not ensure that the directory
@@ -86,6 +94,23 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
     /** Whether the file system dynamically injects entropy into the file paths. */
     private final boolean entropyInjecting;
 
+    /** Maximum size of the files shared by exclusive state streams, zero to disable merging. */
+    private final long fileMergingMaxFileSize;
+
+    /**
+     * The pools of merged files of the TaskManager, null to merge the files of this factory only.
+     */
+    @Nullable private final MergingCheckpointFilePools filePools;
+
+    /** The pool of files shared by exclusive state streams, acquired on first use. */
+    @GuardedBy("this")
+    @Nullable
+    private MergingCheckpointFilePool exclusiveFilePool;
+
+    /** Whether the merged files were closed, streams created afterwards write their own files. */
+    @GuardedBy("this")
+    private boolean mergedFilesClosed;
+
     /**
      * Creates a new stream factory that stores its checkpoint data in the file system and location
      * defined by the given Path.
@@ -107,6 +132,69 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
             Path sharedStateDirectory,
             int fileStateSizeThreshold,
             int writeBufferSize) {
+        this(
+                fileSystem,
+                checkpointDirectory,
+                sharedStateDirectory,
+                fileStateSizeThreshold,
+                writeBufferSize,
+                0L);
+    }
+
+    /**
+     * Creates a new stream factory that stores its checkpoint data in the file system and location
+     * defined by the given Path, merging the files of exclusive state up to the given size.
+     *
+     * @param fileSystem The filesystem to write to.
+     * @param checkpointDirectory The directory for checkpoint exclusive state data.
+     * @param sharedStateDirectory The directory for shared checkpoint data.
+     * @param fileStateSizeThreshold State up to this size will be stored as part of the metadata,
+     *     rather than in files
+     * @param writeBufferSize The write buffer size.
+     * @param fileMergingMaxFileSize The maximum size of files shared by exclusive state, or zero to
+     *     write one file per state.
+     */
+    public FsCheckpointStreamFactory(
+            FileSystem fileSystem,
+            Path checkpointDirectory,
+            Path sharedStateDirectory,
+            int fileStateSizeThreshold,
+            int writeBufferSize,
+            long fileMergingMaxFileSize) {
+        this(
+                fileSystem,
+                checkpointDirectory,
+                sharedStateDirectory,
+                fileStateSizeThreshold,
+                writeBufferSize,
+                fileMergingMaxFileSize,
+                null);
+    }
+
+    /**
+     * Creates a new stream factory that stores its checkpoint data in the file system and location
+     * defined by the given Path, merging the files of exclusive state up to the given size with the
+     * other factories of the TaskManager that write into the same checkpoint directory.
+     *
+     * @param fileSystem The filesystem to write to.
+     * @param checkpointDirectory The directory for checkpoint exclusive state data.
+     * @param sharedStateDirectory The directory for shared checkpoint data.
+     * @param fileStateSizeThreshold State up to this size will be stored as part of the metadata,
+     *     rather than in files
+     * @param writeBufferSize The write buffer size.
+     * @param fileMergingMaxFileSize The maximum size of files shared by exclusive state, or zero to
+     *     write one file per state.
+     * @param filePools The pools of merged files of the TaskManager, or null to only merge the
+     *     files of this factory.
+     */
+    public FsCheckpointStreamFactory(
+            FileSystem fileSystem,
+            Path checkpointDirectory,
+            Path sharedStateDirectory,
+            int fileStateSizeThreshold,
+            int writeBufferSize,
+            long fileMergingMaxFileSize,
+            @Nullable MergingCheckpointFilePools filePools) {
 
         if (fileStateSizeThreshold < 0) {
             throw new IllegalArgumentException(
@@ -123,12 +211,19 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
                             + MAX_FILE_STATE_THRESHOLD);
         }
 
+        if (fileMergingMaxFileSize < 0) {
+            throw new IllegalArgumentException(
+                    "The maximum merged file size must be zero or larger.");
+        }
+
         this.filesystem = checkNotNull(fileSystem);
         this.checkpointDirectory = checkNotNull(checkpointDirectory);
         this.sharedStateDirectory = checkNotNull(sharedStateDirectory);
         this.fileStateThreshold = fileStateSizeThreshold;
         this.writeBufferSize = writeBufferSize;
         this.entropyInjecting = EntropyInjector.isEntropyInjecting(fileSystem);
+        this.fileMergingMaxFileSize = fileMergingMaxFileSize;
+        this.filePools = filePools;
     }
 
     // ------------------------------------------------------------------------
@@ -143,8 +238,62 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
         int bufferSize = Math.max(writeBufferSize, fileStateThreshold);
 
         final boolean absolutePath = entropyInjecting || scope == CheckpointedStateScope.SHARED;
+        final MergingCheckpointFilePool filePool =
+                scope == CheckpointedStateScope.EXCLUSIVE && fileMergingMaxFileSize > 0
+                        ? getOrAcquireExclusiveFilePool()
+                        : null;
         return new FsCheckpointStateOutputStream(
-                target, filesystem, bufferSize, fileStateThreshold, !absolutePath);
+                target, filesystem, bufferSize, fileStateThreshold, !absolutePath, filePool, this);
+    }
+
+    @Override
+    public void closeMergedFiles() throws IOException {
+        final MergingCheckpointFilePool filePool = stopMerging();
+        if (filePool != null) {
+            try {
+                filePool.closeFilesOf(this);
+            } finally {
+                releaseExclusiveFilePool(filePool);
+            }
+        }
+    }
+
+    @Override
+    public void abortMergedFiles() throws IOException {
+        final MergingCheckpointFilePool filePool = stopMerging();
+        if (filePool != null) {
+            releaseExclusiveFilePool(filePool);
+        }
+    }
+
+    /** Makes streams created from now on write their own files and returns the pool in use. */
+    @Nullable
+    private synchronized MergingCheckpointFilePool stopMerging() {
+        final MergingCheckpointFilePool filePool = exclusiveFilePool;
+        mergedFilesClosed = true;
+        exclusiveFilePool = null;
+        return filePool;
+    }
+
+    @Nullable
+    private synchronized MergingCheckpointFilePool getOrAcquireExclusiveFilePool() {
+        if (exclusiveFilePool == null && !mergedFilesClosed) {
+            exclusiveFilePool =
+                    filePools != null
+                            ? filePools.acquirePool(
+                                    filesystem, checkpointDirectory, fileMergingMaxFileSize)
+                            : new MergingCheckpointFilePool(
+                                    filesystem, checkpointDirectory, fileMergingMaxFileSize);
+        }
+        return exclusiveFilePool;
+    }
+
+    private void releaseExclusiveFilePool(MergingCheckpointFilePool filePool) throws IOException {
+        if (filePools != null) {
+            filePools.releasePool(filePool);
+        } else {
+            filePool.close();
+        }
     }
 
     // ------------------------------------------------------------------------
@@ -187,6 +336,20 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
 
         private final boolean allowRelativePaths;
 
+        /** The pool of files to append the state to, null if every stream writes its own file. */
+        @Nullable private final MergingCheckpointFilePool filePool;
+
+        /**
+         * The owner of the segments written by this stream, see {@link MergingCheckpointFilePool}.
+         */
+        @Nullable private final Object filePoolOwner;
+
+        /** The pooled file the state is appended to, null if not (yet) written to a pooled file. */
+        @Nullable private MergingCheckpointFilePool.PhysicalFile physicalFile;
+
+        /** The offset in the pooled file at which the state of this stream starts. */
+        private long segmentStartPos;
+
         public FsCheckpointStateOutputStream(
                 Path basePath, FileSystem fs, int bufferSize, int localStateThreshold) {
             this(basePath, fs, bufferSize, localStateThreshold, false);
@@ -198,6 +361,17 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
                 int bufferSize,
                 int localStateThreshold,
                 boolean allowRelativePaths) {
+            this(basePath, fs, bufferSize, localStateThreshold, allowRelativePaths, null, null);
+        }
+
+        FsCheckpointStateOutputStream(
+                Path basePath,
+                FileSystem fs,
+                int bufferSize,
+                int localStateThreshold,
+                boolean allowRelativePaths,
+                @Nullable MergingCheckpointFilePool filePool,
+                @Nullable Object filePoolOwner) {
 
             if (bufferSize < localStateThreshold) {
                 throw new IllegalArgumentException();
@@ -208,6 +382,8 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
             this.writeBuffer = new byte[bufferSize];
             this.localStateThreshold = localStateThreshold;
             this.allowRelativePaths = allowRelativePaths;
+            this.filePool = filePool;
+            this.filePoolOwner = filePoolOwner;
         }
 
         @Override
@@ -247,7 +423,7 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
 
         @Override
         public long getPos() throws IOException {
-            return pos + (outStream == null ? 0 : outStream.getPos());
+            return pos + (outStream == null ? 0 : outStream.getPos() - segmentStartPos);
         }
 
         public void flushToFile() throws IOException {
@@ -292,7 +468,8 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
         /**
          * If the stream is only closed, we remove the produced file (cleanup through the auto close
          * feature, for example). This method throws no exception if the deletion fails, but only
-         * logs the error.
+         * logs the error. A pooled file is only closed but not removed, because it may contain the
+         * state of other streams.
          */
         @Override
         public void close() {
@@ -303,7 +480,9 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
                 // that the stream is closed
                 pos = writeBuffer.length;
 
-                if (outStream != null) {
+                if (physicalFile != null) {
+                    releasePhysicalFile(true);
+                } else if (outStream != null) {
                     try {
                         outStream.close();
                     } catch (Throwable throwable) {
@@ -343,6 +522,22 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
 
                             pos = writeBuffer.length;
 
+                            if (physicalFile != null) {
+                                long segmentSize = outStream.getPos() - segmentStartPos;
+                                StreamStateHandle handle =
+                                        allowRelativePaths
+                                                ? new SegmentFileStateHandle(
+                                                        statePath,
+                                                        physicalFile.relativePath,
+                                                        segmentStartPos,
+                                                        segmentSize)
+                                                : new SegmentFileStateHandle(
+                                                        statePath, segmentStartPos, segmentSize);
+                                filePool.release(physicalFile, false, filePoolOwner);
+                                physicalFile = null;
+                                return handle;
+                            }
+
                             long size = -1L;
 
                             // make a best effort attempt to figure out the size
@@ -359,7 +554,9 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
                                     : new FileStateHandle(statePath, size);
                         } catch (Exception exception) {
                             try {
-                                if (statePath != null) {
+                                if (physicalFile != null) {
+                                    releasePhysicalFile(true);
+                                } else if (statePath != null) {
                                     fs.delete(statePath, false);
                                 }
 
@@ -393,7 +590,27 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
             return new Path(basePath, fileName);
         }
 
+        private void releasePhysicalFile(boolean broken) {
+            try {
+                filePool.release(physicalFile, broken, filePoolOwner);
+            } catch (Throwable throwable) {
+                LOG.warn("Could not close the merged state file {}.", statePath, throwable);
+            } finally {
+                physicalFile = null;
+            }
+        }
+
         private void createStream() throws IOException {
+            if (filePool != null) {
+                physicalFile = filePool.acquire();
+                if (physicalFile != null) {
+                    this.outStream = physicalFile.stream;
+                    this.statePath = physicalFile.path;
+                    this.segmentStartPos = outStream.getPos();
+                    return;
+                }
+            }
+
             Exception latestException = null;
             for (int attempt = 0; attempt < 10; attempt++) {
                 try {
@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.filesystem;
+
+import org.apache.flink.core.fs.EntropyInjector;
+import org.apache.flink.core.fs.FSDataOutputStream;
+import org.apache.flink.core.fs.FileSystem;
+import org.apache.flink.core.fs.FileSystem.WriteMode;
+import org.apache.flink.core.fs.OutputStreamAndPath;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.util.ExceptionUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * A pool of physical files which are shared by the checkpoint streams writing exclusive state into
+ * the same checkpoint directory, i.e. by the streams of all the tasks of a TaskManager which take
+ * part in the same checkpoint, see {@link MergingCheckpointFilePools}. Each stream writes its state
+ * as one contiguous segment into a file acquired from the pool and returns the file once it is
+ * done, so that the next stream, possibly of another task, appends its segment to the same file. A
+ * file is not handed out concurrently and is closed once it reaches the maximum file size.
+ *
+ * <p>The streams are grouped by owners, which are the stream factories of the tasks. Before a task
+ * reports its state, {@link #closeFilesOf} closes all the files that contain segments of its
+ * streams, waiting for a stream of another owner to finish its segment if necessary. Once the pool
+ * is closed, all idle files are closed, files in use are closed when released, and no files are
+ * handed out anymore.
+ */
+class MergingCheckpointFilePool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MergingCheckpointFilePool.class);
+
+    private final FileSystem fileSystem;
+
+    private final Path basePath;
+
+    private final long maxFileSize;
+
+    private final Object lock = new Object();
+
+    /** Files which are open and can be appended to. */
+    @GuardedBy("lock")
+    private final ArrayDeque<PhysicalFile> idleFiles = new ArrayDeque<>();
+
+    /** Files which are currently written by a stream. */
+    @GuardedBy("lock")
+    private final Set<PhysicalFile> filesInUse = new HashSet<>();
+
+    @GuardedBy("lock")
+    private boolean closed;
+
+    /**
+     * The number of stream factories using this pool, guarded by the owning {@link
+     * MergingCheckpointFilePools}.
+     */
+    int referenceCount;
+
+    MergingCheckpointFilePool(FileSystem fileSystem, Path basePath, long maxFileSize) {
+        checkArgument(maxFileSize > 0, "The maximum file size must be positive.");
+        this.fileSystem = checkNotNull(fileSystem);
+        this.basePath = checkNotNull(basePath);
+        this.maxFileSize = maxFileSize;
+    }
+
+    Path getBasePath() {
+        return basePath;
+    }
+
+    /**
+     * Acquires a file to append a segment to, or returns null if the pool is closed already and the
+     * stream should write its own file instead.
+     */
+    @Nullable
+    PhysicalFile acquire() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return null;
+            }
+            PhysicalFile file = idleFiles.pollFirst();
+            if (file != null) {
+                filesInUse.add(file);
+                return file;
+            }
+        }
+
+        PhysicalFile file = createFile();
+        synchronized (lock) {
+            if (closed) {
+                // closed while creating the file, no segments must be written to it anymore
+                file.close();
+                return null;
+            }
+            filesInUse.add(file);
+        }
+        return file;
+    }
+
+    /**
+     * Returns the given file to the pool after a segment of the given owner was written to it. The
+     * file is closed instead if it was broken by the writing stream, if it exceeds the maximum file
+     * size, if an owner of one of its segments asked for it to be closed, or if the pool is closed.
+     */
+    void release(PhysicalFile file, boolean broken, Object owner) throws IOException {
+        boolean closeFile;
+        synchronized (lock) {
+            checkState(filesInUse.remove(file), "The file is not in use.");
+            if (!broken) {
+                file.owners.add(owner);
+            }
+            closeFile =
+                    broken || closed || file.closeOnRelease || file.stream.getPos() >= maxFileSize;
+            if (!closeFile) {
+                idleFiles.addLast(file);
+            }
+        }
+        if (closeFile) {
+            file.close();
+        }
+    }
+
+    /**
+     * Closes all the files that contain segments of the given owner, so that their state is
+     * readable. Files which are currently written by a stream are closed once that stream is done.
+     */
+    void closeFilesOf(Object owner) throws IOException {
+        List<PhysicalFile> filesToClose = new ArrayList<>();
+        List<PhysicalFile> filesToAwait = new ArrayList<>();
+        synchronized (lock) {
+            idleFiles.removeIf(
+                    file -> {
+                        if (file.owners.contains(owner)) {
+                            filesToClose.add(file);
+                            return true;
+                        }
+                        return false;
+                    });
+            for (PhysicalFile file : filesInUse) {
+                if (file.owners.contains(owner)) {
+                    file.closeOnRelease = true;
+                    filesToAwait.add(file);
+                }
+            }
+        }
+
+        IOException exception = closeAll(filesToClose);
+        for (PhysicalFile file : filesToAwait) {
+            try {
+                file.closeFuture.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(
+                        "Interrupted while waiting for the merged file "
+                                + file.path
+                                + " to close.");
+            } catch (ExecutionException e) {
+                exception =
+                        ExceptionUtils.firstOrSuppressed(
+                                new IOException(
+                                        "Could not close the merged file " + file.path,
+                                        e.getCause()),
+                                exception);
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /** Closes all idle files and stops handing out files. */
+    void close() throws IOException {
+        List<PhysicalFile> filesToClose;
+        synchronized (lock) {
+            closed = true;
+            filesToClose = new ArrayList<>(idleFiles);
+            idleFiles.clear();
+        }
+
+        IOException exception = closeAll(filesToClose);
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    @Nullable
+    private static IOException closeAll(List<PhysicalFile> files) {
+        IOException exception = null;
+        for (PhysicalFile file : files) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                exception = ExceptionUtils.firstOrSuppressed(e, exception);
+            }
+        }
+        return exception;
+    }
+
+    private PhysicalFile createFile() throws IOException {
+        Exception latestException = null;
+        for (int attempt = 0; attempt < 10; attempt++) {
+            try {
+                String fileName = UUID.randomUUID().toString();
+                OutputStreamAndPath streamAndPath =
+                        EntropyInjector.createEntropyAware(
+                                fileSystem, new Path(basePath, fileName), WriteMode.NO_OVERWRITE);
+                LOG.debug("Opened merged checkpoint file {}.", streamAndPath.path());
+                return new PhysicalFile(streamAndPath.stream(), streamAndPath.path(), fileName);
+            } catch (Exception e) {
+                latestException = e;
+            }
+        }
+
+        throw new IOException("Could not open output stream for state backend", latestException);
+    }
+
+    /** An open physical file of the pool. */
+    static final class PhysicalFile {
+
+        final FSDataOutputStream stream;
+
+        final Path path;
+
+        /** The path relative to the base path of the pool, used for relative state handles. */
+        final String relativePath;
+
+        /** The owners of the segments in this file. */
+        @GuardedBy("MergingCheckpointFilePool.this.lock")
+        private final Set<Object> owners = new HashSet<>();
+
+        /** Whether an owner waits for the file to be closed once the current segment is done. */
+        @GuardedBy("MergingCheckpointFilePool.this.lock")
+        private boolean closeOnRelease;
+
+        private final CompletableFuture<Void> closeFuture = new CompletableFuture<>();
+
+        PhysicalFile(FSDataOutputStream stream, Path path, String relativePath) {
+            this.stream = checkNotNull(stream);
+            this.path = checkNotNull(path);
+            this.relativePath = checkNotNull(relativePath);
+        }
+
+        private void close() throws IOException {
+            try {
+                stream.close();
+                closeFuture.complete(null);
+            } catch (IOException e) {
+                closeFuture.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.filesystem;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.core.fs.FileSystem;
+import org.apache.flink.core.fs.Path;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The {@link MergingCheckpointFilePool pools of merged checkpoint files} of a TaskManager. The
+ * stream factories of all tasks which write the exclusive state of the same checkpoint into the
+ * same directory share one pool, so that their small state files are merged across the tasks of the
+ * TaskManager. A pool is created by the first factory which acquires it and closed once the last
+ * factory released it.
+ *
+ * <p>All segments of a file belong to the same checkpoint, so the file is still discarded together
+ * with that checkpoint.
+ */
+@ThreadSafe
+public class MergingCheckpointFilePools {
+
+    /** The pools in use, by their checkpoint directory. */
+    @GuardedBy("this")
+    private final Map<Path, MergingCheckpointFilePool> pools = new HashMap<>();
+
+    synchronized MergingCheckpointFilePool acquirePool(
+            FileSystem fileSystem, Path checkpointDirectory, long maxFileSize) {
+        MergingCheckpointFilePool pool =
+                pools.computeIfAbsent(
+                        checkpointDirectory,
+                        dir -> new MergingCheckpointFilePool(fileSystem, dir, maxFileSize));
+        pool.referenceCount++;
+        return pool;
+    }
+
+    void releasePool(MergingCheckpointFilePool pool) throws IOException {
+        synchronized (this) {
+            if (--pool.referenceCount > 0) {
+                return;
+            }
+            pools.remove(pool.getBasePath(), pool);
+        }
+        pool.close();
+    }
+
+    @VisibleForTesting
+    synchronized int getNumberOfPools() {
+        return pools.size();
+    }
+}
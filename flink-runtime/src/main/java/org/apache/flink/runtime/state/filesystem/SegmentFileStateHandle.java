@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.filesystem;
+
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.core.fs.FSDataInputStreamWrapper;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.state.CompositeStateHandle;
+import org.apache.flink.runtime.state.SharedStateRegistry;
+import org.apache.flink.runtime.state.SharedStateRegistryKey;
+import org.apache.flink.runtime.state.StreamStateHandle;
+
+import javax.annotation.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * A {@link StreamStateHandle} for state that was written to a segment of a file which is shared
+ * with the state of other streams, see {@link FsCheckpointStreamFactory}. The segment is identified
+ * by the file path, its start offset and its size. Like a {@link RelativeFileStateHandle}, the
+ * handle can also keep the path of the file relative to the exclusive checkpoint directory, so that
+ * the checkpoint stays relocatable.
+ *
+ * <p>A file holds segments of many subtasks, and the segments may be referenced by more than one
+ * checkpoint. Once the handle is registered in a {@link SharedStateRegistry}, it references the
+ * physical file under a key derived from the file path, and discarding the handle only releases
+ * that reference, so the file is deleted when the last segment in it is discarded. Before the
+ * registration, e.g. when the checkpoint is aborted, discarding the handle deletes the file, whose
+ * segments all belong to the checkpoint that is discarded.
+ */
+public class SegmentFileStateHandle extends FileStateHandle implements CompositeStateHandle {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The offset of the segment in the file. */
+    private final long startPos;
+
+    /** The path of the file relative to the exclusive checkpoint directory, if known. */
+    @Nullable private final String relativePath;
+
+    /** The registry in which the file is referenced, or null if the segment is not registered. */
+    @Nullable private transient SharedStateRegistry sharedStateRegistry;
+
+    public SegmentFileStateHandle(Path filePath, long startPos, long stateSize) {
+        this(filePath, null, startPos, stateSize);
+    }
+
+    public SegmentFileStateHandle(
+            Path filePath, @Nullable String relativePath, long startPos, long stateSize) {
+        super(filePath, stateSize);
+        checkArgument(startPos >= 0);
+        checkArgument(stateSize >= 0);
+        this.relativePath = relativePath;
+        this.startPos = startPos;
+    }
+
+    /**
+     * Gets the path of the file relative to the exclusive checkpoint directory, or null if the file
+     * is referenced by its absolute path only.
+     */
+    @Nullable
+    public String getRelativePath() {
+        return relativePath;
+    }
+
+    /** Gets the offset of the segment in the file. */
+    public long getStartPos() {
+        return startPos;
+    }
+
+    /**
+     * Registers a reference to the file of this segment in the given registry. From then on, the
+     * file is deleted by the registry once all segments in it are discarded.
+     */
+    @Override
+    public void registerSharedStates(SharedStateRegistry stateRegistry) {
+        // like for the shared state of incremental checkpoints, a new registry only takes over
+        // after a restore, and the old one is not used anymore
+        checkState(
+                sharedStateRegistry != stateRegistry,
+                "The segment has already been registered in the given registry.");
+        sharedStateRegistry = checkNotNull(stateRegistry);
+        stateRegistry.registerReference(
+                getFileRegistryKey(), new FileStateHandle(getFilePath(), 0L));
+    }
+
+    /**
+     * Releases the reference to the file if the segment is registered, and deletes the file
+     * otherwise.
+     */
+    @Override
+    public void discardState() throws Exception {
+        SharedStateRegistry registry = sharedStateRegistry;
+        if (registry != null) {
+            registry.unregisterReference(getFileRegistryKey());
+        } else {
+            super.discardState();
+        }
+    }
+
+    private SharedStateRegistryKey getFileRegistryKey() {
+        return new SharedStateRegistryKey(getFilePath().toString());
+    }
+
+    /**
+     * Opens an input stream over the segment. Positions of the returned stream are relative to the
+     * start of the segment and the stream ends with the segment.
+     */
+    @Override
+    public FSDataInputStream openInputStream() throws IOException {
+        FSDataInputStream inputStream = super.openInputStream();
+        try {
+            inputStream.seek(startPos);
+        } catch (Throwable t) {
+            inputStream.close();
+            throw t;
+        }
+        return new SegmentInputStream(inputStream, startPos, getStateSize());
+    }
+
+    // ------------------------------------------------------------------------
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+
+        if (!(o instanceof SegmentFileStateHandle)) {
+            return false;
+        }
+
+        SegmentFileStateHandle other = (SegmentFileStateHandle) o;
+        return super.equals(o)
+                && startPos == other.startPos
+                && getStateSize() == other.getStateSize();
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + Long.hashCode(startPos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "SegmentFileStateHandle State: %s @ %d [%d bytes]",
+                getFilePath(), startPos, getStateSize());
+    }
+
+    // ------------------------------------------------------------------------
+
+    /** An input stream over a segment of the wrapped file input stream. */
+    private static final class SegmentInputStream extends FSDataInputStreamWrapper {
+
+        private final long startPos;
+
+        private final long endPos;
+
+        private long markedPos = -1L;
+
+        SegmentInputStream(FSDataInputStream inputStream, long startPos, long length) {
+            super(inputStream);
+            this.startPos = startPos;
+            this.endPos = startPos + length;
+        }
+
+        @Override
+        public void seek(long desired) throws IOException {
+            if (desired < 0 || startPos + desired > endPos) {
+                throw new EOFException(
+                        "Cannot seek to " + desired + " in a segment of " + (endPos - startPos));
+            }
+            inputStream.seek(startPos + desired);
+        }
+
+        @Override
+        public long getPos() throws IOException {
+            return inputStream.getPos() - startPos;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return remaining() > 0 ? inputStream.read() : -1;
+        }
+
+        @Override
+        public int read(byte[] b) throws IOException {
+            return read(b, 0, b.length);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            long remaining = remaining();
+            if (remaining <= 0) {
+                return -1;
+            }
+            return inputStream.read(b, off, (int) Math.min(len, remaining));
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return inputStream.skip(Math.min(n, Math.max(0L, remaining())));
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(inputStream.available(), Math.max(0L, remaining()));
+        }
+
+        @Override
+        public void mark(int readlimit) {
+            try {
+                markedPos = inputStream.getPos();
+            } catch (IOException e) {
+                markedPos = -1L;
+            }
+        }
+
+        @Override
+        public void reset() throws IOException {
+            if (markedPos < 0) {
+                throw new IOException("Mark has not been set.");
+            }
+            inputStream.seek(markedPos);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        private long remaining() throws IOException {
+            return endPos - inputStream.getPos();
+        }
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.flink.runtime.state.hashmap;
 import org.apache.flink.annotation.PublicEvolving;
 import org.apache.flink.api.common.JobID;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.configuration.CheckpointingOptions;
 import org.apache.flink.configuration.IllegalConfigurationException;
 import org.apache.flink.configuration.ReadableConfig;
 import org.apache.flink.core.fs.CloseableRegistry;
@@ -42,6 +43,8 @@ import org.apache.flink.runtime.state.heap.HeapKeyedStateBackendBuilder;
 import org.apache.flink.runtime.state.heap.HeapPriorityQueueSetFactory;
 import org.apache.flink.runtime.state.metrics.LatencyTrackingStateConfig;
 import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+import org.apache.flink.util.Preconditions;
+import org.apache.flink.util.TernaryBoolean;
 
 import javax.annotation.Nonnull;
 
@@ -75,14 +78,84 @@ public class HashMapStateBackend extends AbstractStateBackend implements Configu
 
     private static final long serialVersionUID = 1L;
 
+    /** Value to indicate that the maximum number of deltas was not set. */
+    private static final int UNDEFINED_MAX_INCREMENTAL_CHECKPOINT_DELTAS = -1;
+
     // -----------------------------------------------------------------------
 
+    /** This determines if incremental checkpointing is enabled. */
+    private final TernaryBoolean enableIncrementalCheckpointing;
+
+    /** The maximum number of deltas that an incremental checkpoint builds on a full snapshot. */
+    private int maxIncrementalCheckpointDeltas;
+
     /** Creates a new state backend. */
-    public HashMapStateBackend() {}
+    public HashMapStateBackend() {
+        this(TernaryBoolean.UNDEFINED);
+    }
+
+    /**
+     * Creates a new state backend.
+     *
+     * @param enableIncrementalCheckpointing True if incremental checkpointing is enabled.
+     */
+    public HashMapStateBackend(boolean enableIncrementalCheckpointing) {
+        this(TernaryBoolean.fromBoolean(enableIncrementalCheckpointing));
+    }
+
+    /**
+     * Creates a new state backend.
+     *
+     * @param enableIncrementalCheckpointing True if incremental checkpointing is enabled.
+     */
+    public HashMapStateBackend(TernaryBoolean enableIncrementalCheckpointing) {
+        this.enableIncrementalCheckpointing = enableIncrementalCheckpointing;
+        this.maxIncrementalCheckpointDeltas = UNDEFINED_MAX_INCREMENTAL_CHECKPOINT_DELTAS;
+    }
 
     private HashMapStateBackend(HashMapStateBackend original, ReadableConfig config) {
         // configure latency tracking
         latencyTrackingConfigBuilder = original.latencyTrackingConfigBuilder.configure(config);
+
+        this.enableIncrementalCheckpointing =
+                original.enableIncrementalCheckpointing.resolveUndefined(
+                        config.get(CheckpointingOptions.INCREMENTAL_CHECKPOINTS));
+        this.maxIncrementalCheckpointDeltas =
+                original.maxIncrementalCheckpointDeltas
+                                == UNDEFINED_MAX_INCREMENTAL_CHECKPOINT_DELTAS
+                        ? config.get(CheckpointingOptions.INCREMENTAL_CHECKPOINTS_MAX_DELTAS)
+                        : original.maxIncrementalCheckpointDeltas;
+    }
+
+    /**
+     * Gets whether incremental checkpoints are enabled for this state backend. Incremental
+     * checkpoints only write the state that changed since the last completed checkpoint.
+     */
+    public boolean isIncrementalCheckpointsEnabled() {
+        return enableIncrementalCheckpointing.getOrDefault(
+                CheckpointingOptions.INCREMENTAL_CHECKPOINTS.defaultValue());
+    }
+
+    /**
+     * Gets the maximum number of deltas that an incremental checkpoint builds on a full snapshot.
+     */
+    public int getMaxIncrementalCheckpointDeltas() {
+        return maxIncrementalCheckpointDeltas == UNDEFINED_MAX_INCREMENTAL_CHECKPOINT_DELTAS
+                ? CheckpointingOptions.INCREMENTAL_CHECKPOINTS_MAX_DELTAS.defaultValue()
+                : maxIncrementalCheckpointDeltas;
+    }
+
+    /**
+     * Sets the maximum number of deltas that an incremental checkpoint builds on a full snapshot.
+     * Once reached, the next checkpoint writes a full snapshot.
+     *
+     * @param maxIncrementalCheckpointDeltas The maximum number of deltas.
+     */
+    public void setMaxIncrementalCheckpointDeltas(int maxIncrementalCheckpointDeltas) {
+        Preconditions.checkArgument(
+                maxIncrementalCheckpointDeltas >= 0,
+                "The maximum number of deltas must not be negative.");
+        this.maxIncrementalCheckpointDeltas = maxIncrementalCheckpointDeltas;
     }
 
     @Override
@@ -128,6 +201,8 @@ public class HashMapStateBackend extends AbstractStateBackend implements Configu
                         priorityQueueSetFactory,
                         true,
                         cancelStreamRegistry)
+                .setEnableIncrementalCheckpointing(isIncrementalCheckpointsEnabled())
+                .setMaxIncrementalCheckpointDeltas(getMaxIncrementalCheckpointDeltas())
                 .build();
     }
 
@@ -36,6 +36,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
@@ -198,6 +199,21 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
      */
     private int modCount;
 
+    /**
+     * Whether changes are tracked for incremental snapshots. If true, state objects handed out by
+     * {@link #getForUpdate(Object, Object)} count as modified, and removed mappings are logged.
+     */
+    private boolean trackingChanges;
+
+    /**
+     * The version of the last snapshot that is part of a completed checkpoint. Incremental
+     * snapshots contain the mappings that changed in this or a later version.
+     */
+    private int confirmedSnapshotVersion;
+
+    /** The mappings removed since the confirmed snapshot, in the order of removal. */
+    private final ArrayList<RemovedMapping<K, N>> removedMappings;
+
     /**
      * Constructs a new {@code StateMap} with default capacity of {@code DEFAULT_CAPACITY}.
      *
@@ -230,6 +246,9 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
         this.stateMapVersion = 0;
         this.highestRequiredSnapshotVersion = 0;
         this.snapshotVersions = new TreeSet<>();
+        this.trackingChanges = false;
+        this.confirmedSnapshotVersion = 0;
+        this.removedMappings = new ArrayList<>();
 
         if (capacity < 0) {
             throw new IllegalArgumentException("Capacity: " + capacity);
@@ -266,6 +285,15 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
 
     @Override
     public S get(K key, N namespace) {
+        return getState(key, namespace, false);
+    }
+
+    @Override
+    public S getForUpdate(K key, N namespace) {
+        return getState(key, namespace, true);
+    }
+
+    private S getState(K key, N namespace, boolean forUpdate) {
 
         final int hash = computeHashForOperationAndDoIncrementalRehash(key, namespace);
         final int requiredVersion = highestRequiredSnapshotVersion;
@@ -284,7 +312,10 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
                         e = handleChainedEntryCopyOnWrite(tab, hash & (tab.length - 1), e);
                     }
                     e.stateVersion = stateMapVersion;
-                    e.state = getStateSerializer().copy(e.state);
+                    e.state = copyState(e.state);
+                } else if (forUpdate && trackingChanges && e.stateVersion < stateMapVersion) {
+                    // the caller modifies the returned state object in place
+                    e.stateVersion = stateMapVersion;
                 }
 
                 return e.state;
@@ -325,9 +356,7 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
 
         // copy-on-write check for state
         S oldState =
-                (e.stateVersion < highestRequiredSnapshotVersion)
-                        ? getStateSerializer().copy(e.state)
-                        : e.state;
+                (e.stateVersion < highestRequiredSnapshotVersion) ? copyState(e.state) : e.state;
 
         e.state = state;
         e.stateVersion = stateMapVersion;
@@ -348,9 +377,7 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
         return e != null
                 ?
                 // copy-on-write check for state
-                (e.stateVersion < highestRequiredSnapshotVersion
-                        ? getStateSerializer().copy(e.state)
-                        : e.state)
+                (e.stateVersion < highestRequiredSnapshotVersion ? copyState(e.state) : e.state)
                 : null;
     }
 
@@ -372,7 +399,7 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
         entry.state =
                 transformation.apply(
                         (entry.stateVersion < highestRequiredSnapshotVersion)
-                                ? getStateSerializer().copy(entry.state)
+                                ? copyState(entry.state)
                                 : entry.state,
                         value);
         entry.stateVersion = stateMapVersion;
@@ -432,6 +459,9 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
                 } else {
                     --incrementalRehashTableSize;
                 }
+                if (trackingChanges) {
+                    removedMappings.add(new RemovedMapping<>(e.key, e.namespace, stateMapVersion));
+                }
                 return e;
             }
         }
@@ -537,6 +567,51 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
         return stateMapVersion;
     }
 
+    // Change tracking for incremental snapshots
+    // ---------------------------------------------------------------
+
+    /**
+     * Starts to track the changes of this map for incremental snapshots. Changes made before are
+     * not tracked, so the first snapshot after this call must be a full snapshot.
+     */
+    void startTrackingChanges() {
+        trackingChanges = true;
+    }
+
+    boolean isTrackingChanges() {
+        return trackingChanges;
+    }
+
+    /**
+     * Marks the snapshot with the given version as part of a completed checkpoint. Following
+     * incremental snapshots only contain the changes since that snapshot.
+     */
+    void confirmSnapshot(int snapshotVersion) {
+        if (snapshotVersion <= confirmedSnapshotVersion) {
+            return;
+        }
+        confirmedSnapshotVersion = snapshotVersion;
+
+        int numOutdated = 0;
+        while (numOutdated < removedMappings.size()
+                && removedMappings.get(numOutdated).version < snapshotVersion) {
+            ++numOutdated;
+        }
+        removedMappings.subList(0, numOutdated).clear();
+    }
+
+    int getConfirmedSnapshotVersion() {
+        return confirmedSnapshotVersion;
+    }
+
+    /**
+     * Returns a copy of the mappings that were removed since the confirmed snapshot. This method
+     * must be called by the same Thread that does modifications to the {@link CopyOnWriteStateMap}.
+     */
+    List<RemovedMapping<K, N>> getRemovedMappingsSinceConfirmedSnapshot() {
+        return new ArrayList<>(removedMappings);
+    }
+
     /**
      * Allocate a table of the given capacity and set the threshold accordingly.
      *
@@ -794,6 +869,11 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
         return stateSerializer;
     }
 
+    /** Copies a state before it is modified, so that the snapshots keep the previous state. */
+    S copyState(S state) {
+        return getStateSerializer().copy(state);
+    }
+
     // StateMapEntry
     // -------------------------------------------------------------------------------------------------
 
@@ -921,6 +1001,31 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
         }
     }
 
+    /**
+     * A mapping that was removed from the {@link CopyOnWriteStateMap}, logged for incremental
+     * snapshots.
+     *
+     * @param <K> type of key.
+     * @param <N> type of namespace.
+     */
+    static final class RemovedMapping<K, N> {
+
+        /** The key of the removed mapping. */
+        @Nonnull final K key;
+
+        /** The namespace of the removed mapping. */
+        @Nonnull final N namespace;
+
+        /** The version of the map when the mapping was removed. */
+        final int version;
+
+        RemovedMapping(@Nonnull K key, @Nonnull N namespace, int version) {
+            this.key = key;
+            this.namespace = namespace;
+            this.version = version;
+        }
+    }
+
     // For testing
     // ----------------------------------------------------------------------------------------------------
 
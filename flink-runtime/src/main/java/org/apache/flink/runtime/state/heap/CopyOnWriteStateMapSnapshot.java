@@ -29,9 +29,11 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 
@@ -71,6 +73,18 @@ public class CopyOnWriteStateMapSnapshot<K, N, S>
     /** The number of (non-null) entries in snapshotData. */
     @Nonnegative private final int numberOfEntriesInSnapshotData;
 
+    /**
+     * The version of the last snapshot of the {@link CopyOnWriteStateMap} that is part of a
+     * completed checkpoint, as by the time this snapshot was created.
+     */
+    private final int confirmedSnapshotVersion;
+
+    /**
+     * The mappings removed since the confirmed snapshot, or null if the {@link CopyOnWriteStateMap}
+     * does not track changes.
+     */
+    @Nullable private final List<CopyOnWriteStateMap.RemovedMapping<K, N>> removedMappings;
+
     /** Whether this snapshot has been released. */
     private boolean released;
 
@@ -86,6 +100,11 @@ public class CopyOnWriteStateMapSnapshot<K, N, S>
         this.snapshotData = owningStateMap.snapshotMapArrays();
         this.snapshotVersion = owningStateMap.getStateMapVersion();
         this.numberOfEntriesInSnapshotData = owningStateMap.size();
+        this.confirmedSnapshotVersion = owningStateMap.getConfirmedSnapshotVersion();
+        this.removedMappings =
+                owningStateMap.isTrackingChanges()
+                        ? owningStateMap.getRemovedMappingsSinceConfirmedSnapshot()
+                        : null;
         this.released = false;
     }
 
@@ -148,6 +167,77 @@ public class CopyOnWriteStateMapSnapshot<K, N, S>
         }
     }
 
+    /** Returns true iff the changes since the confirmed snapshot can be written. */
+    boolean isDeltaAvailable() {
+        return removedMappings != null;
+    }
+
+    /**
+     * Writes the changes since the confirmed snapshot of the {@link CopyOnWriteStateMap} to output:
+     * first the removed mappings, then the added or modified mappings. Mappings that the
+     * transformer filters out are written as removed.
+     *
+     * @param keySerializer the key serializer.
+     * @param namespaceSerializer the namespace serializer.
+     * @param stateSerializer the state serializer.
+     * @param dov the output.
+     * @param stateSnapshotTransformer state transformer, and can be null.
+     * @throws IOException on write-related problems.
+     */
+    void writeStateDelta(
+            TypeSerializer<K> keySerializer,
+            TypeSerializer<N> namespaceSerializer,
+            TypeSerializer<S> stateSerializer,
+            @Nonnull DataOutputView dov,
+            @Nullable StateSnapshotTransformer<S> stateSnapshotTransformer)
+            throws IOException {
+        Preconditions.checkState(isDeltaAvailable(), "The state map does not track changes.");
+
+        final List<CopyOnWriteStateMap.StateMapEntry<K, N, S>> changedEntries = new ArrayList<>();
+        final List<CopyOnWriteStateMap.StateMapEntry<K, N, S>> filteredEntries = new ArrayList<>();
+        for (CopyOnWriteStateMap.StateMapEntry<K, N, S> chain : snapshotData) {
+            for (CopyOnWriteStateMap.StateMapEntry<K, N, S> entry = chain;
+                    entry != null;
+                    entry = entry.next) {
+                if (entry.stateVersion < confirmedSnapshotVersion) {
+                    continue;
+                }
+                if (stateSnapshotTransformer == null) {
+                    changedEntries.add(entry);
+                    continue;
+                }
+                S transformedValue = stateSnapshotTransformer.filterOrTransform(entry.state);
+                if (transformedValue == null) {
+                    filteredEntries.add(entry);
+                } else if (transformedValue != entry.state) {
+                    CopyOnWriteStateMap.StateMapEntry<K, N, S> transformedEntry =
+                            new CopyOnWriteStateMap.StateMapEntry<>(entry, entry.entryVersion);
+                    transformedEntry.state = transformedValue;
+                    changedEntries.add(transformedEntry);
+                } else {
+                    changedEntries.add(entry);
+                }
+            }
+        }
+
+        dov.writeInt(removedMappings.size() + filteredEntries.size());
+        for (CopyOnWriteStateMap.RemovedMapping<K, N> removedMapping : removedMappings) {
+            namespaceSerializer.serialize(removedMapping.namespace, dov);
+            keySerializer.serialize(removedMapping.key, dov);
+        }
+        for (CopyOnWriteStateMap.StateMapEntry<K, N, S> entry : filteredEntries) {
+            namespaceSerializer.serialize(entry.namespace, dov);
+            keySerializer.serialize(entry.key, dov);
+        }
+
+        dov.writeInt(changedEntries.size());
+        for (CopyOnWriteStateMap.StateMapEntry<K, N, S> entry : changedEntries) {
+            namespaceSerializer.serialize(entry.namespace, dov);
+            keySerializer.serialize(entry.key, dov);
+            stateSerializer.serialize(entry.state, dov);
+        }
+    }
+
     /** Iterator over state entries in a {@link CopyOnWriteStateMapSnapshot}. */
     abstract static class SnapshotIterator<K, N, S> implements Iterator<StateEntry<K, N, S>> {
 
@@ -36,6 +36,9 @@ import java.util.List;
  */
 public class CopyOnWriteStateTable<K, N, S> extends StateTable<K, N, S> {
 
+    /** Whether the state maps track their changes for incremental snapshots. */
+    private boolean trackingChanges;
+
     /**
      * Constructs a new {@code CopyOnWriteStateTable}.
      *
@@ -77,6 +80,38 @@ public class CopyOnWriteStateTable<K, N, S> extends StateTable<K, N, S> {
                         .orElse(null));
     }
 
+    /**
+     * Starts to track the changes of all state maps for incremental snapshots, see {@link
+     * CopyOnWriteStateMap#startTrackingChanges()}.
+     */
+    @SuppressWarnings("unchecked")
+    void startTrackingChanges() {
+        for (StateMap<K, N, S> stateMap : keyGroupedStateMaps) {
+            ((CopyOnWriteStateMap<K, N, S>) stateMap).startTrackingChanges();
+        }
+        trackingChanges = true;
+    }
+
+    @Override
+    boolean isTrackingChanges() {
+        return trackingChanges;
+    }
+
+    /**
+     * Marks the state map snapshots with the given versions as part of a completed checkpoint, see
+     * {@link CopyOnWriteStateMap#confirmSnapshot(int)}.
+     *
+     * @param snapshotVersions the versions of the state map snapshots, indexed by key group
+     *     relative to the offset.
+     */
+    @SuppressWarnings("unchecked")
+    void confirmSnapshot(int[] snapshotVersions) {
+        for (int i = 0; i < keyGroupedStateMaps.length; i++) {
+            ((CopyOnWriteStateMap<K, N, S>) keyGroupedStateMaps[i])
+                    .confirmSnapshot(snapshotVersions[i]);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     List<CopyOnWriteStateMapSnapshot<K, N, S>> getStateMapSnapshotList() {
         List<CopyOnWriteStateMapSnapshot<K, N, S>> snapshotList =
@@ -20,10 +20,12 @@ package org.apache.flink.runtime.state.heap;
 
 import org.apache.flink.annotation.Internal;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataOutputView;
 import org.apache.flink.runtime.state.StateSnapshotTransformer;
 
 import javax.annotation.Nonnull;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -79,6 +81,44 @@ public class CopyOnWriteStateTableSnapshot<K, N, S> extends AbstractStateTableSn
         return stateMapSnapshot;
     }
 
+    /**
+     * Returns true iff all state maps of this snapshot can write the changes since their confirmed
+     * snapshot.
+     */
+    boolean isDeltaAvailable() {
+        for (CopyOnWriteStateMapSnapshot<K, N, S> snapshot : stateMapSnapshots) {
+            if (!snapshot.isDeltaAvailable()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns the versions of the state maps, indexed by key group relative to the offset. */
+    int[] getStateMapSnapshotVersions() {
+        int[] versions = new int[stateMapSnapshots.size()];
+        for (int i = 0; i < versions.length; i++) {
+            versions[i] = stateMapSnapshots.get(i).getSnapshotVersion();
+        }
+        return versions;
+    }
+
+    /**
+     * Writes the changes of the given key group since the confirmed snapshot of its state map, see
+     * {@link CopyOnWriteStateMapSnapshot#writeStateDelta}.
+     */
+    void writeStateDeltaInKeyGroup(@Nonnull DataOutputView dov, int keyGroupId) throws IOException {
+        CopyOnWriteStateMapSnapshot<K, N, S> stateMapSnapshot =
+                (CopyOnWriteStateMapSnapshot<K, N, S>) getStateMapSnapshotForKeyGroup(keyGroupId);
+        stateMapSnapshot.writeStateDelta(
+                localKeySerializer,
+                localNamespaceSerializer,
+                localStateSerializer,
+                dov,
+                stateSnapshotTransformer);
+        stateMapSnapshot.release();
+    }
+
     @Override
     public void release() {
         for (CopyOnWriteStateMapSnapshot snapshot : stateMapSnapshots) {
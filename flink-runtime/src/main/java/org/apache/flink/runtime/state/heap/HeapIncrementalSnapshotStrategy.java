@@ -0,0 +1,532 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.runtime.checkpoint.CheckpointOptions;
+import org.apache.flink.runtime.state.CheckpointStreamFactory;
+import org.apache.flink.runtime.state.CheckpointStreamWithResultProvider;
+import org.apache.flink.runtime.state.CheckpointedStateScope;
+import org.apache.flink.runtime.state.IncrementalRemoteKeyedStateHandle;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupRangeOffsets;
+import org.apache.flink.runtime.state.KeyedBackendSerializationProxy;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.LocalRecoveryConfig;
+import org.apache.flink.runtime.state.PlaceholderStreamStateHandle;
+import org.apache.flink.runtime.state.SnapshotResult;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.runtime.state.StateSerializerProvider;
+import org.apache.flink.runtime.state.StateSnapshot;
+import org.apache.flink.runtime.state.StreamCompressionDecorator;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.UncompressedStreamCompressionDecorator;
+import org.apache.flink.runtime.state.metainfo.StateMetaInfoSnapshot;
+import org.apache.flink.util.Preconditions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * A strategy how to perform incremental snapshots of a {@link HeapKeyedStateBackend}.
+ *
+ * <p>A checkpoint consists of a chain of snapshot files: a full snapshot, followed by the deltas of
+ * the subsequent checkpoints. A delta contains the mappings of each {@link CopyOnWriteStateMap}
+ * that were added, modified or removed since the snapshot of the last completed checkpoint, which
+ * the maps track through their versions. State that is not kept in {@link CopyOnWriteStateMap}s,
+ * i.e. priority queues, is written in full to every file. Once the chain holds the configured
+ * maximum number of deltas, the next checkpoint writes a full snapshot and starts a new chain.
+ *
+ * <p>The files are shared between the checkpoints of a chain, and registered with the {@link
+ * org.apache.flink.runtime.state.SharedStateRegistry} through an {@link
+ * IncrementalRemoteKeyedStateHandle}. Its meta data lists the files of the chain in order, with
+ * their key-group offsets. Savepoints are always written as full snapshots.
+ *
+ * <p>A delta references the files of the last completed checkpoint through placeholders. Once a
+ * snapshot that does not build on these files completes, e.g. a savepoint or the full snapshot of a
+ * new chain, the files are discarded, possibly before this backend is notified. Therefore no delta
+ * is written while such a snapshot is pending; checkpoints write full snapshots instead.
+ */
+class HeapIncrementalSnapshotStrategy<K> extends HeapSnapshotStrategy<K> {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(HeapIncrementalSnapshotStrategy.class);
+
+    /** Magic number at the start of the meta data of an incremental heap snapshot. */
+    private static final int META_DATA_MAGIC_NUMBER = 0x48494e43;
+
+    /** Version of the format of the meta data. */
+    private static final int META_DATA_VERSION = 1;
+
+    /** Marks a state in a delta file that is written in full. */
+    static final byte FULL_STATE = 0;
+
+    /** Marks a state in a delta file of which only the changes are written. */
+    static final byte STATE_DELTA = 1;
+
+    /** The maximum number of deltas in a chain before a full snapshot is written. */
+    @Nonnegative private final int maxDeltas;
+
+    /** The id that is used to register the shared files of this backend. */
+    @Nonnull private final UUID backendUID;
+
+    /**
+     * The chains of the snapshots whose checkpoints are not confirmed yet, together with the
+     * versions of the state maps, by checkpoint id.
+     */
+    @Nonnull private final SortedMap<Long, PendingSnapshot> pendingSnapshots;
+
+    /**
+     * The ids of the pending snapshots that do not build on the {@link #confirmedChain}, i.e. full
+     * snapshots. Guarded by {@link #pendingSnapshots}.
+     */
+    @Nonnull private final SortedSet<Long> pendingFullSnapshots;
+
+    /** The chain of the last completed checkpoint. Empty if there is none. */
+    @Nonnull private List<ChainElement> confirmedChain;
+
+    /** The id of the last completed checkpoint. */
+    private long lastCompletedCheckpointId;
+
+    HeapIncrementalSnapshotStrategy(
+            Map<String, StateTable<K, ?, ?>> registeredKVStates,
+            Map<String, HeapPriorityQueueSnapshotRestoreWrapper<?>> registeredPQStates,
+            StreamCompressionDecorator keyGroupCompressionDecorator,
+            LocalRecoveryConfig localRecoveryConfig,
+            KeyGroupRange keyGroupRange,
+            StateSerializerProvider<K> keySerializerProvider,
+            int totalKeyGroups,
+            @Nonnegative int maxDeltas) {
+        super(
+                registeredKVStates,
+                registeredPQStates,
+                keyGroupCompressionDecorator,
+                localRecoveryConfig,
+                keyGroupRange,
+                keySerializerProvider,
+                totalKeyGroups);
+        Preconditions.checkArgument(maxDeltas >= 0, "The maximum number of deltas is negative.");
+        this.maxDeltas = maxDeltas;
+        this.backendUID = UUID.randomUUID();
+        this.pendingSnapshots = new TreeMap<>();
+        this.pendingFullSnapshots = new TreeSet<>();
+        this.confirmedChain = Collections.emptyList();
+        this.lastCompletedCheckpointId = -1L;
+    }
+
+    @Override
+    public HeapSnapshotResources<K> syncPrepareResources(long checkpointId) {
+        for (StateTable<K, ?, ?> stateTable : registeredKVStates.values()) {
+            if (stateTable instanceof CopyOnWriteStateTable) {
+                ((CopyOnWriteStateTable<K, ?, ?>) stateTable).startTrackingChanges();
+            }
+        }
+        return super.syncPrepareResources(checkpointId);
+    }
+
+    @Override
+    public SnapshotResultSupplier<KeyedStateHandle> asyncSnapshot(
+            HeapSnapshotResources<K> syncPartResource,
+            long checkpointId,
+            long timestamp,
+            @Nonnull CheckpointStreamFactory streamFactory,
+            @Nonnull CheckpointOptions checkpointOptions) {
+
+        final List<StateMetaInfoSnapshot> metaInfoSnapshots =
+                syncPartResource.getMetaInfoSnapshots();
+        if (metaInfoSnapshots.isEmpty()
+                || checkpointOptions.getCheckpointType().isSavepoint()
+                || !isDeltaAvailable(syncPartResource)) {
+            synchronized (pendingSnapshots) {
+                pendingFullSnapshots.add(checkpointId);
+            }
+            return super.asyncSnapshot(
+                    syncPartResource, checkpointId, timestamp, streamFactory, checkpointOptions);
+        }
+
+        final List<ChainElement> baseChain;
+        final boolean delta;
+        synchronized (pendingSnapshots) {
+            baseChain = confirmedChain;
+            delta =
+                    !baseChain.isEmpty()
+                            && baseChain.size() <= maxDeltas
+                            && pendingFullSnapshots.isEmpty();
+            if (!delta) {
+                pendingFullSnapshots.add(checkpointId);
+            }
+        }
+
+        final Map<String, int[]> stateMapVersions = new HashMap<>();
+        for (Map.Entry<StateUID, StateSnapshot> stateSnapshot :
+                syncPartResource.getCowStateStableSnapshots().entrySet()) {
+            if (stateSnapshot.getValue() instanceof CopyOnWriteStateTableSnapshot) {
+                stateMapVersions.put(
+                        stateSnapshot.getKey().getStateName(),
+                        ((CopyOnWriteStateTableSnapshot<?, ?, ?>) stateSnapshot.getValue())
+                                .getStateMapSnapshotVersions());
+            }
+        }
+
+        final KeyedBackendSerializationProxy<K> serializationProxy =
+                new KeyedBackendSerializationProxy<>(
+                        syncPartResource.getKeySerializer(),
+                        metaInfoSnapshots,
+                        !Objects.equals(
+                                UncompressedStreamCompressionDecorator.INSTANCE,
+                                keyGroupCompressionDecorator));
+
+        final StateHandleID stateHandleID = new StateHandleID("heap-chk-" + checkpointId);
+
+        return (snapshotCloseableRegistry) -> {
+            StreamStateHandle snapshotFileHandle = null;
+            StreamStateHandle metaStateHandle = null;
+            boolean completed = false;
+            try {
+                final CheckpointStreamWithResultProvider fileStream =
+                        CheckpointStreamWithResultProvider.createSimpleStream(
+                                CheckpointedStateScope.SHARED, streamFactory);
+                final KeyGroupRangeOffsets keyGroupRangeOffsets =
+                        writeSnapshotFile(
+                                fileStream,
+                                snapshotCloseableRegistry,
+                                serializationProxy,
+                                syncPartResource,
+                                delta);
+                snapshotFileHandle = closeAndGetHandle(fileStream, snapshotCloseableRegistry);
+
+                final List<ChainElement> chain = new ArrayList<>(baseChain.size() + 1);
+                final Map<StateHandleID, StreamStateHandle> sharedState = new HashMap<>();
+                if (delta) {
+                    for (ChainElement chainElement : baseChain) {
+                        chain.add(chainElement);
+                        // the files of a completed checkpoint are already registered
+                        sharedState.put(
+                                chainElement.getStateHandleID(),
+                                new PlaceholderStreamStateHandle());
+                    }
+                }
+                chain.add(new ChainElement(stateHandleID, delta, keyGroupRangeOffsets));
+                sharedState.put(stateHandleID, snapshotFileHandle);
+
+                final CheckpointStreamWithResultProvider metaStream =
+                        CheckpointStreamWithResultProvider.createSimpleStream(
+                                CheckpointedStateScope.EXCLUSIVE, streamFactory);
+                snapshotCloseableRegistry.registerCloseable(metaStream);
+                writeChain(
+                        new DataOutputViewStreamWrapper(metaStream.getCheckpointOutputStream()),
+                        chain);
+                metaStateHandle = closeAndGetHandle(metaStream, snapshotCloseableRegistry);
+
+                synchronized (pendingSnapshots) {
+                    pendingSnapshots.put(
+                            checkpointId, new PendingSnapshot(chain, stateMapVersions));
+                }
+
+                completed = true;
+                return SnapshotResult.of(
+                        new IncrementalRemoteKeyedStateHandle(
+                                backendUID,
+                                keyGroupRange,
+                                checkpointId,
+                                sharedState,
+                                Collections.emptyMap(),
+                                metaStateHandle));
+            } finally {
+                if (!completed) {
+                    discardQuietly(snapshotFileHandle);
+                    discardQuietly(metaStateHandle);
+                }
+            }
+        };
+    }
+
+    private KeyGroupRangeOffsets writeSnapshotFile(
+            CheckpointStreamWithResultProvider streamWithResultProvider,
+            CloseableRegistry snapshotCloseableRegistry,
+            KeyedBackendSerializationProxy<K> serializationProxy,
+            HeapSnapshotResources<K> syncPartResource,
+            boolean delta)
+            throws IOException {
+
+        snapshotCloseableRegistry.registerCloseable(streamWithResultProvider);
+
+        final Map<StateUID, Integer> stateNamesToId = syncPartResource.getStateNamesToId();
+        final Map<StateUID, StateSnapshot> cowStateStableSnapshots =
+                syncPartResource.getCowStateStableSnapshots();
+
+        final CheckpointStreamFactory.CheckpointStateOutputStream localStream =
+                streamWithResultProvider.getCheckpointOutputStream();
+
+        final DataOutputViewStreamWrapper outView = new DataOutputViewStreamWrapper(localStream);
+        serializationProxy.write(outView);
+
+        final long[] keyGroupRangeOffsets = new long[keyGroupRange.getNumberOfKeyGroups()];
+
+        for (int keyGroupPos = 0;
+                keyGroupPos < keyGroupRange.getNumberOfKeyGroups();
+                ++keyGroupPos) {
+            int keyGroupId = keyGroupRange.getKeyGroupId(keyGroupPos);
+            keyGroupRangeOffsets[keyGroupPos] = localStream.getPos();
+            outView.writeInt(keyGroupId);
+
+            for (Map.Entry<StateUID, StateSnapshot> stateSnapshot :
+                    cowStateStableSnapshots.entrySet()) {
+                try (OutputStream kgCompressionOut =
+                        keyGroupCompressionDecorator.decorateWithCompression(localStream)) {
+                    DataOutputViewStreamWrapper kgCompressionView =
+                            new DataOutputViewStreamWrapper(kgCompressionOut);
+                    kgCompressionView.writeShort(stateNamesToId.get(stateSnapshot.getKey()));
+                    if (delta
+                            && stateSnapshot.getValue() instanceof CopyOnWriteStateTableSnapshot) {
+                        kgCompressionView.writeByte(STATE_DELTA);
+                        ((CopyOnWriteStateTableSnapshot<?, ?, ?>) stateSnapshot.getValue())
+                                .writeStateDeltaInKeyGroup(kgCompressionView, keyGroupId);
+                    } else {
+                        if (delta) {
+                            kgCompressionView.writeByte(FULL_STATE);
+                        }
+                        stateSnapshot
+                                .getValue()
+                                .getKeyGroupWriter()
+                                .writeStateInKeyGroup(kgCompressionView, keyGroupId);
+                    }
+                } // this will just close the outer compression stream
+            }
+        }
+
+        return new KeyGroupRangeOffsets(keyGroupRange, keyGroupRangeOffsets);
+    }
+
+    private static StreamStateHandle closeAndGetHandle(
+            CheckpointStreamWithResultProvider streamWithResultProvider,
+            CloseableRegistry snapshotCloseableRegistry)
+            throws IOException {
+        if (snapshotCloseableRegistry.unregisterCloseable(streamWithResultProvider)) {
+            return streamWithResultProvider
+                    .closeAndFinalizeCheckpointStreamResult()
+                    .getJobManagerOwnedSnapshot();
+        } else {
+            throw new IOException("Stream already unregistered.");
+        }
+    }
+
+    private static void discardQuietly(StreamStateHandle stateHandle) {
+        if (stateHandle != null) {
+            try {
+                stateHandle.discardState();
+            } catch (Exception e) {
+                LOG.warn("Could not discard the state of an incomplete snapshot.", e);
+            }
+        }
+    }
+
+    /**
+     * Returns true iff the changes of all key/value states can be written, i.e. they are kept in
+     * {@link CopyOnWriteStateMap}s that track their changes.
+     */
+    private static boolean isDeltaAvailable(HeapSnapshotResources<?> syncPartResource) {
+        for (Map.Entry<StateUID, StateSnapshot> stateSnapshot :
+                syncPartResource.getCowStateStableSnapshots().entrySet()) {
+            if (stateSnapshot.getKey().getStateType()
+                            == StateMetaInfoSnapshot.BackendStateType.KEY_VALUE
+                    && !(stateSnapshot.getValue() instanceof CopyOnWriteStateTableSnapshot
+                            && ((CopyOnWriteStateTableSnapshot<?, ?, ?>) stateSnapshot.getValue())
+                                    .isDeltaAvailable())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void notifyCheckpointComplete(long completedCheckpointId) {
+        final PendingSnapshot completedSnapshot;
+        synchronized (pendingSnapshots) {
+            if (completedCheckpointId <= lastCompletedCheckpointId) {
+                return;
+            }
+            final boolean full = pendingFullSnapshots.contains(completedCheckpointId);
+            pendingFullSnapshots.headSet(completedCheckpointId + 1).clear();
+            completedSnapshot = pendingSnapshots.remove(completedCheckpointId);
+            pendingSnapshots.headMap(completedCheckpointId).clear();
+            if (completedSnapshot == null) {
+                if (full) {
+                    // a savepoint or a full snapshot of another kind discards the confirmed chain
+                    confirmedChain = Collections.emptyList();
+                    lastCompletedCheckpointId = completedCheckpointId;
+                }
+                return;
+            }
+            confirmedChain = completedSnapshot.chain;
+            lastCompletedCheckpointId = completedCheckpointId;
+        }
+
+        for (Map.Entry<String, int[]> stateMapVersions :
+                completedSnapshot.stateMapVersions.entrySet()) {
+            StateTable<K, ?, ?> stateTable = registeredKVStates.get(stateMapVersions.getKey());
+            if (stateTable instanceof CopyOnWriteStateTable) {
+                ((CopyOnWriteStateTable<K, ?, ?>) stateTable)
+                        .confirmSnapshot(stateMapVersions.getValue());
+            }
+        }
+    }
+
+    @Override
+    public void notifyCheckpointAborted(long abortedCheckpointId) {
+        synchronized (pendingSnapshots) {
+            pendingSnapshots.remove(abortedCheckpointId);
+            pendingFullSnapshots.remove(abortedCheckpointId);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //  meta data
+    // ------------------------------------------------------------------------
+
+    private static void writeChain(DataOutputView out, List<ChainElement> chain)
+            throws IOException {
+        out.writeInt(META_DATA_MAGIC_NUMBER);
+        out.writeInt(META_DATA_VERSION);
+        out.writeInt(chain.size());
+        for (ChainElement chainElement : chain) {
+            out.writeUTF(chainElement.getStateHandleID().getKeyString());
+            out.writeBoolean(chainElement.isDelta());
+            KeyGroupRange keyGroupRange = chainElement.getKeyGroupRangeOffsets().getKeyGroupRange();
+            out.writeInt(keyGroupRange.getStartKeyGroup());
+            out.writeInt(keyGroupRange.getNumberOfKeyGroups());
+            for (Tuple2<Integer, Long> keyGroupOffset : chainElement.getKeyGroupRangeOffsets()) {
+                out.writeLong(keyGroupOffset.f1);
+            }
+        }
+    }
+
+    /**
+     * Reads the chain of snapshot files from the meta data of an incremental heap snapshot.
+     *
+     * @param in the meta data of the snapshot.
+     * @return the files of the chain, starting with the full snapshot.
+     * @throws IOException if the meta data cannot be read or is not of an incremental heap
+     *     snapshot.
+     */
+    static List<ChainElement> readChain(DataInputView in) throws IOException {
+        if (in.readInt() != META_DATA_MAGIC_NUMBER) {
+            throw new IOException(
+                    "The state handle is not an incremental snapshot of a heap keyed state backend.");
+        }
+        int version = in.readInt();
+        if (version != META_DATA_VERSION) {
+            throw new IOException(
+                    "Unsupported version of incremental heap snapshot meta data: " + version);
+        }
+
+        int chainLength = in.readInt();
+        List<ChainElement> chain = new ArrayList<>(chainLength);
+        for (int i = 0; i < chainLength; i++) {
+            StateHandleID stateHandleID = new StateHandleID(in.readUTF());
+            boolean delta = in.readBoolean();
+            int startKeyGroup = in.readInt();
+            int numberOfKeyGroups = in.readInt();
+            long[] offsets = new long[numberOfKeyGroups];
+            for (int j = 0; j < numberOfKeyGroups; j++) {
+                offsets[j] = in.readLong();
+            }
+            chain.add(
+                    new ChainElement(
+                            stateHandleID,
+                            delta,
+                            new KeyGroupRangeOffsets(
+                                    startKeyGroup,
+                                    startKeyGroup + numberOfKeyGroups - 1,
+                                    offsets)));
+        }
+        return chain;
+    }
+
+    /** A file in the chain of an incremental heap snapshot. */
+    static final class ChainElement {
+
+        /** The id of the file in the shared state of the snapshot. */
+        @Nonnull private final StateHandleID stateHandleID;
+
+        /** Whether the file holds a delta or a full snapshot. */
+        private final boolean delta;
+
+        /** The offsets of the key groups in the file. */
+        @Nonnull private final KeyGroupRangeOffsets keyGroupRangeOffsets;
+
+        ChainElement(
+                @Nonnull StateHandleID stateHandleID,
+                boolean delta,
+                @Nonnull KeyGroupRangeOffsets keyGroupRangeOffsets) {
+            this.stateHandleID = stateHandleID;
+            this.delta = delta;
+            this.keyGroupRangeOffsets = keyGroupRangeOffsets;
+        }
+
+        @Nonnull
+        StateHandleID getStateHandleID() {
+            return stateHandleID;
+        }
+
+        boolean isDelta() {
+            return delta;
+        }
+
+        @Nonnull
+        KeyGroupRangeOffsets getKeyGroupRangeOffsets() {
+            return keyGroupRangeOffsets;
+        }
+    }
+
+    /** The chain and state map versions of a snapshot whose checkpoint is not confirmed yet. */
+    private static final class PendingSnapshot {
+
+        private final List<ChainElement> chain;
+
+        /** The versions of the state maps by state name, see {@link CopyOnWriteStateTable}. */
+        private final Map<String, int[]> stateMapVersions;
+
+        private PendingSnapshot(List<ChainElement> chain, Map<String, int[]> stateMapVersions) {
+            this.chain = Collections.unmodifiableList(chain);
+            this.stateMapVersions = stateMapVersions;
+        }
+    }
+}
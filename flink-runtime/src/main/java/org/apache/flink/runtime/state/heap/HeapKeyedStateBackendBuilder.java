@@ -20,6 +20,7 @@ package org.apache.flink.runtime.state.heap;
 
 import org.apache.flink.api.common.ExecutionConfig;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.configuration.CheckpointingOptions;
 import org.apache.flink.core.fs.CloseableRegistry;
 import org.apache.flink.runtime.query.TaskKvStateRegistry;
 import org.apache.flink.runtime.state.AbstractKeyedStateBackendBuilder;
@@ -27,11 +28,13 @@ import org.apache.flink.runtime.state.BackendBuildingException;
 import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.KeyedStateHandle;
 import org.apache.flink.runtime.state.LocalRecoveryConfig;
+import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
 import org.apache.flink.runtime.state.RestoreOperation;
 import org.apache.flink.runtime.state.SavepointKeyedStateHandle;
 import org.apache.flink.runtime.state.StreamCompressionDecorator;
 import org.apache.flink.runtime.state.metrics.LatencyTrackingStateConfig;
 import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+import org.apache.flink.util.Preconditions;
 
 import javax.annotation.Nonnull;
 
@@ -55,6 +58,10 @@ public class HeapKeyedStateBackendBuilder<K> extends AbstractKeyedStateBackendBu
     private final HeapPriorityQueueSetFactory priorityQueueSetFactory;
     /** Whether asynchronous snapshot is enabled. */
     private final boolean asynchronousSnapshots;
+    /** Whether incremental checkpointing is enabled. */
+    private boolean enableIncrementalCheckpointing;
+    /** The maximum number of deltas that an incremental checkpoint builds on a full snapshot. */
+    private int maxIncrementalCheckpointDeltas;
 
     public HeapKeyedStateBackendBuilder(
             TaskKvStateRegistry kvStateRegistry,
@@ -86,6 +93,31 @@ public class HeapKeyedStateBackendBuilder<K> extends AbstractKeyedStateBackendBu
         this.localRecoveryConfig = localRecoveryConfig;
         this.priorityQueueSetFactory = priorityQueueSetFactory;
         this.asynchronousSnapshots = asynchronousSnapshots;
+        this.enableIncrementalCheckpointing = false;
+        this.maxIncrementalCheckpointDeltas =
+                CheckpointingOptions.INCREMENTAL_CHECKPOINTS_MAX_DELTAS.defaultValue();
+    }
+
+    /**
+     * Sets whether checkpoints only write the changes since the last completed checkpoint. This
+     * requires asynchronous snapshots, i.e. copy-on-write state tables.
+     */
+    public HeapKeyedStateBackendBuilder<K> setEnableIncrementalCheckpointing(
+            boolean enableIncrementalCheckpointing) {
+        this.enableIncrementalCheckpointing = enableIncrementalCheckpointing;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of deltas that an incremental checkpoint builds on a full snapshot.
+     */
+    public HeapKeyedStateBackendBuilder<K> setMaxIncrementalCheckpointDeltas(
+            int maxIncrementalCheckpointDeltas) {
+        Preconditions.checkArgument(
+                maxIncrementalCheckpointDeltas >= 0,
+                "The maximum number of deltas must not be negative.");
+        this.maxIncrementalCheckpointDeltas = maxIncrementalCheckpointDeltas;
+        return this;
     }
 
     @Override
@@ -101,12 +133,8 @@ public class HeapKeyedStateBackendBuilder<K> extends AbstractKeyedStateBackendBu
         InternalKeyContext<K> keyContext =
                 new InternalKeyContextImpl<>(keyGroupRange, numberOfKeyGroups);
 
-        final StateTableFactory<K> stateTableFactory;
-        if (asynchronousSnapshots) {
-            stateTableFactory = CopyOnWriteStateTable::new;
-        } else {
-            stateTableFactory = NestedMapsStateTable::new;
-        }
+        final StateTableFactory<K> stateTableFactory =
+                createStateTableFactory(cancelStreamRegistryForBackend);
 
         restoreState(registeredKVStates, registeredPQStates, keyContext, stateTableFactory);
         return new HeapKeyedStateBackend<>(
@@ -128,6 +156,50 @@ public class HeapKeyedStateBackendBuilder<K> extends AbstractKeyedStateBackendBu
                 keyContext);
     }
 
+    /**
+     * Creates the factory for the {@link StateTable StateTables} of the backend. Resources shared
+     * by the tables can be registered with the given registry, which is closed when the backend is
+     * disposed.
+     */
+    protected StateTableFactory<K> createStateTableFactory(
+            CloseableRegistry cancelStreamRegistryForBackend) throws BackendBuildingException {
+        if (asynchronousSnapshots) {
+            // incremental checkpoints need the change tracking of the copy-on-write state maps,
+            // which the primitive state tables of value states do not have
+            return enableIncrementalCheckpointing
+                    ? HeapKeyedStateBackendBuilder::newCopyOnWriteStateTable
+                    : HeapKeyedStateBackendBuilder::newPrimitiveOrCopyOnWriteStateTable;
+        } else {
+            return NestedMapsStateTable::new;
+        }
+    }
+
+    /**
+     * Creates a {@link PrimitiveMapStateTable} for the map states that it supports, and a {@link
+     * CopyOnWriteStateTable} otherwise.
+     */
+    private static <K, N, V> StateTable<K, N, V> newCopyOnWriteStateTable(
+            InternalKeyContext<K> keyContext,
+            RegisteredKeyValueStateBackendMetaInfo<N, V> metaInfo,
+            TypeSerializer<K> keySerializer) {
+        return PrimitiveMapStateTable.isSupported(metaInfo)
+                ? new PrimitiveMapStateTable<>(keyContext, metaInfo, keySerializer)
+                : new CopyOnWriteStateTable<>(keyContext, metaInfo, keySerializer);
+    }
+
+    /**
+     * Creates a {@link PrimitiveStateTable} for the states that it supports, and a state table of
+     * {@link #newCopyOnWriteStateTable} otherwise.
+     */
+    private static <K, N, V> StateTable<K, N, V> newPrimitiveOrCopyOnWriteStateTable(
+            InternalKeyContext<K> keyContext,
+            RegisteredKeyValueStateBackendMetaInfo<N, V> metaInfo,
+            TypeSerializer<K> keySerializer) {
+        return PrimitiveStateTable.isSupported(keySerializer, metaInfo)
+                ? new PrimitiveStateTable<>(keyContext, metaInfo, keySerializer)
+                : newCopyOnWriteStateTable(keyContext, metaInfo, keySerializer);
+    }
+
     private void restoreState(
             Map<String, StateTable<K, ?, ?>> registeredKVStates,
             Map<String, HeapPriorityQueueSnapshotRestoreWrapper<?>> registeredPQStates,
@@ -181,6 +253,17 @@ public class HeapKeyedStateBackendBuilder<K> extends AbstractKeyedStateBackendBu
     private HeapSnapshotStrategy<K> initSnapshotStrategy(
             Map<String, StateTable<K, ?, ?>> registeredKVStates,
             Map<String, HeapPriorityQueueSnapshotRestoreWrapper<?>> registeredPQStates) {
+        if (enableIncrementalCheckpointing && asynchronousSnapshots) {
+            return new HeapIncrementalSnapshotStrategy<>(
+                    registeredKVStates,
+                    registeredPQStates,
+                    keyGroupCompressionDecorator,
+                    localRecoveryConfig,
+                    keyGroupRange,
+                    keySerializerProvider,
+                    numberOfKeyGroups,
+                    maxIncrementalCheckpointDeltas);
+        }
         return new HeapSnapshotStrategy<>(
                 registeredKVStates,
                 registeredPQStates,
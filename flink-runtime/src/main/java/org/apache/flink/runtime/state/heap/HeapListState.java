@@ -91,7 +91,7 @@ class HeapListState<K, N, V> extends AbstractHeapMergingState<K, N, V, List<V>,
         final N namespace = currentNamespace;
 
         final StateTable<K, N, List<V>> map = stateTable;
-        List<V> list = map.get(namespace);
+        List<V> list = map.getForUpdate(namespace);
 
         if (list == null) {
             list = new ArrayList<>();
@@ -28,8 +28,8 @@ import org.apache.flink.queryablestate.client.state.serialization.KvStateSeriali
 import org.apache.flink.runtime.state.internal.InternalMapState;
 import org.apache.flink.util.Preconditions;
 
+import java.util.AbstractMap;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -95,9 +95,9 @@ class HeapMapState<K, N, UK, UV> extends AbstractHeapState<K, N, Map<UK, UV>>
     @Override
     public void put(UK userKey, UV userValue) {
 
-        Map<UK, UV> userMap = stateTable.get(currentNamespace);
+        Map<UK, UV> userMap = stateTable.getForUpdate(currentNamespace);
         if (userMap == null) {
-            userMap = new HashMap<>();
+            userMap = PrimitiveMapStateTable.createUserMap(stateTable);
             stateTable.put(currentNamespace, userMap);
         }
 
@@ -107,10 +107,10 @@ class HeapMapState<K, N, UK, UV> extends AbstractHeapState<K, N, Map<UK, UV>>
     @Override
     public void putAll(Map<UK, UV> value) {
 
-        Map<UK, UV> userMap = stateTable.get(currentNamespace);
+        Map<UK, UV> userMap = stateTable.getForUpdate(currentNamespace);
 
         if (userMap == null) {
-            userMap = new HashMap<>();
+            userMap = PrimitiveMapStateTable.createUserMap(stateTable);
             stateTable.put(currentNamespace, userMap);
         }
 
@@ -120,7 +120,7 @@ class HeapMapState<K, N, UK, UV> extends AbstractHeapState<K, N, Map<UK, UV>>
     @Override
     public void remove(UK userKey) {
 
-        Map<UK, UV> userMap = stateTable.get(currentNamespace);
+        Map<UK, UV> userMap = stateTable.getForUpdate(currentNamespace);
         if (userMap == null) {
             return;
         }
@@ -141,25 +141,45 @@ class HeapMapState<K, N, UK, UV> extends AbstractHeapState<K, N, Map<UK, UV>>
     @Override
     public Iterable<Map.Entry<UK, UV>> entries() {
         Map<UK, UV> userMap = stateTable.get(currentNamespace);
-        return userMap == null ? Collections.emptySet() : userMap.entrySet();
+        if (userMap == null) {
+            return Collections.emptySet();
+        }
+        return stateTable.isTrackingChanges()
+                ? () -> new UpdateTrackingEntryIterator(userMap.entrySet().iterator())
+                : userMap.entrySet();
     }
 
     @Override
     public Iterable<UK> keys() {
         Map<UK, UV> userMap = stateTable.get(currentNamespace);
-        return userMap == null ? Collections.emptySet() : userMap.keySet();
+        if (userMap == null) {
+            return Collections.emptySet();
+        }
+        return stateTable.isTrackingChanges()
+                ? () -> new UpdateTrackingIterator<>(userMap.keySet().iterator())
+                : userMap.keySet();
     }
 
     @Override
     public Iterable<UV> values() {
         Map<UK, UV> userMap = stateTable.get(currentNamespace);
-        return userMap == null ? Collections.emptySet() : userMap.values();
+        if (userMap == null) {
+            return Collections.emptySet();
+        }
+        return stateTable.isTrackingChanges()
+                ? () -> new UpdateTrackingIterator<>(userMap.values().iterator())
+                : userMap.values();
     }
 
     @Override
     public Iterator<Map.Entry<UK, UV>> iterator() {
         Map<UK, UV> userMap = stateTable.get(currentNamespace);
-        return userMap == null ? Collections.emptyIterator() : userMap.entrySet().iterator();
+        if (userMap == null) {
+            return Collections.emptyIterator();
+        }
+        return stateTable.isTrackingChanges()
+                ? new UpdateTrackingEntryIterator(userMap.entrySet().iterator())
+                : userMap.entrySet().iterator();
     }
 
     @Override
@@ -200,6 +220,69 @@ class HeapMapState<K, N, UK, UV> extends AbstractHeapState<K, N, Map<UK, UV>>
                 result.entrySet(), dupUserKeySerializer, dupUserValueSerializer);
     }
 
+    /**
+     * An iterator over the user map of the current key and namespace, which marks the mapping as
+     * modified in the state table when the user map is modified through the iterator.
+     */
+    private class UpdateTrackingIterator<T> implements Iterator<T> {
+
+        private final Iterator<T> iterator;
+
+        private final K key;
+
+        private final N namespace;
+
+        UpdateTrackingIterator(Iterator<T> iterator) {
+            this.iterator = iterator;
+            this.key = stateTable.keyContext.getCurrentKey();
+            this.namespace = currentNamespace;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public T next() {
+            return iterator.next();
+        }
+
+        @Override
+        public void remove() {
+            markUpdated();
+            iterator.remove();
+        }
+
+        void markUpdated() {
+            stateTable.getForUpdate(key, namespace);
+        }
+    }
+
+    /** An {@link UpdateTrackingIterator} whose entries also track updates of their values. */
+    private final class UpdateTrackingEntryIterator
+            extends UpdateTrackingIterator<Map.Entry<UK, UV>> {
+
+        UpdateTrackingEntryIterator(Iterator<Map.Entry<UK, UV>> iterator) {
+            super(iterator);
+        }
+
+        @Override
+        public Map.Entry<UK, UV> next() {
+            final Map.Entry<UK, UV> entry = super.next();
+            return new AbstractMap.SimpleEntry<UK, UV>(entry) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public UV setValue(UV value) {
+                    markUpdated();
+                    entry.setValue(value);
+                    return super.setValue(value);
+                }
+            };
+        }
+    }
+
     @SuppressWarnings("unchecked")
     static <UK, UV, K, N, SV, S extends State, IS extends S> IS create(
             StateDescriptor<S, SV> stateDesc,
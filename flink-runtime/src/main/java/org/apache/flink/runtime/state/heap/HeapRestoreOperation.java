@@ -24,6 +24,8 @@ import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.core.fs.CloseableRegistry;
 import org.apache.flink.core.fs.FSDataInputStream;
 import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.runtime.state.IncrementalRemoteKeyedStateHandle;
+import org.apache.flink.runtime.state.KeyGroupPartitioner;
 import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.KeyGroupRangeOffsets;
 import org.apache.flink.runtime.state.KeyGroupsStateHandle;
@@ -33,8 +35,8 @@ import org.apache.flink.runtime.state.RestoreOperation;
 import org.apache.flink.runtime.state.SnappyStreamCompressionDecorator;
 import org.apache.flink.runtime.state.StateSerializerProvider;
 import org.apache.flink.runtime.state.StateSnapshotKeyGroupReader;
-import org.apache.flink.runtime.state.StateSnapshotRestore;
 import org.apache.flink.runtime.state.StreamCompressionDecorator;
+import org.apache.flink.runtime.state.StreamStateHandle;
 import org.apache.flink.runtime.state.UncompressedStreamCompressionDecorator;
 import org.apache.flink.runtime.state.metainfo.StateMetaInfoSnapshot;
 import org.apache.flink.util.Preconditions;
@@ -70,6 +72,7 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
     private final CloseableRegistry cancelStreamRegistry;
     @Nonnull private final KeyGroupRange keyGroupRange;
     private final HeapMetaInfoRestoreOperation<K> heapMetaInfoRestoreOperation;
+    private boolean keySerializerRestored;
 
     HeapRestoreOperation(
             @Nonnull Collection<KeyedStateHandle> restoreStateHandles,
@@ -106,7 +109,7 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
         registeredKVStates.clear();
         registeredPQStates.clear();
 
-        boolean keySerializerRestored = false;
+        keySerializerRestored = false;
 
         for (KeyedStateHandle keyedStateHandle : restoreStateHandles) {
 
@@ -114,71 +117,126 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
                 continue;
             }
 
+            if (keyedStateHandle instanceof IncrementalRemoteKeyedStateHandle) {
+                restoreIncrementalStateHandle((IncrementalRemoteKeyedStateHandle) keyedStateHandle);
+                continue;
+            }
+
             if (!(keyedStateHandle instanceof KeyGroupsStateHandle)) {
                 throw unexpectedStateHandleException(
                         KeyGroupsStateHandle.class, keyedStateHandle.getClass());
             }
 
             LOG.info("Starting to restore from state handle: {}.", keyedStateHandle);
-            KeyGroupsStateHandle keyGroupsStateHandle = (KeyGroupsStateHandle) keyedStateHandle;
-            FSDataInputStream fsDataInputStream = keyGroupsStateHandle.openInputStream();
-            cancelStreamRegistry.registerCloseable(fsDataInputStream);
-
-            try {
-                DataInputViewStreamWrapper inView =
-                        new DataInputViewStreamWrapper(fsDataInputStream);
-
-                KeyedBackendSerializationProxy<K> serializationProxy =
-                        new KeyedBackendSerializationProxy<>(userCodeClassLoader);
-
-                serializationProxy.read(inView);
-
-                if (!keySerializerRestored) {
-                    // fetch current serializer now because if it is incompatible, we can't access
-                    // it anymore to improve the error message
-                    TypeSerializer<K> currentSerializer =
-                            keySerializerProvider.currentSchemaSerializer();
-                    // check for key serializer compatibility; this also reconfigures the
-                    // key serializer to be compatible, if it is required and is possible
-                    TypeSerializerSchemaCompatibility<K> keySerializerSchemaCompat =
-                            keySerializerProvider.setPreviousSerializerSnapshotForRestoredState(
-                                    serializationProxy.getKeySerializerSnapshot());
-                    if (keySerializerSchemaCompat.isCompatibleAfterMigration()
-                            || keySerializerSchemaCompat.isIncompatible()) {
-                        throw new StateMigrationException(
-                                "The new key serializer ("
-                                        + currentSerializer
-                                        + ") must be compatible with the previous key serializer ("
-                                        + keySerializerProvider.previousSchemaSerializer()
-                                        + ").");
-                    }
-
-                    keySerializerRestored = true;
-                }
+            restoreKeyGroupsStateHandle((KeyGroupsStateHandle) keyedStateHandle, false, true);
+            LOG.info("Finished restoring from state handle: {}.", keyedStateHandle);
+        }
+        return null;
+    }
 
-                List<StateMetaInfoSnapshot> restoredMetaInfos =
-                        serializationProxy.getStateMetaInfoSnapshots();
+    /**
+     * Restores the chain of snapshot files of an incremental snapshot, see {@link
+     * HeapIncrementalSnapshotStrategy}. The full snapshot and the deltas are applied in order.
+     * Priority queues are written in full to every file, so they are only restored from the last
+     * file of the chain.
+     */
+    private void restoreIncrementalStateHandle(IncrementalRemoteKeyedStateHandle stateHandle)
+            throws Exception {
+
+        LOG.info("Starting to restore from incremental state handle: {}.", stateHandle);
+
+        final List<HeapIncrementalSnapshotStrategy.ChainElement> chain;
+        FSDataInputStream metaInputStream = stateHandle.getMetaStateHandle().openInputStream();
+        cancelStreamRegistry.registerCloseable(metaInputStream);
+        try {
+            chain =
+                    HeapIncrementalSnapshotStrategy.readChain(
+                            new DataInputViewStreamWrapper(metaInputStream));
+        } finally {
+            if (cancelStreamRegistry.unregisterCloseable(metaInputStream)) {
+                IOUtils.closeQuietly(metaInputStream);
+            }
+        }
 
-                final Map<Integer, StateMetaInfoSnapshot> kvStatesById =
-                        this.heapMetaInfoRestoreOperation.createOrCheckStateForMetaInfo(
-                                restoredMetaInfos, registeredKVStates, registeredPQStates);
+        for (int i = 0; i < chain.size(); i++) {
+            HeapIncrementalSnapshotStrategy.ChainElement chainElement = chain.get(i);
+            StreamStateHandle snapshotFile =
+                    stateHandle.getSharedState().get(chainElement.getStateHandleID());
+            Preconditions.checkState(
+                    snapshotFile != null,
+                    "Missing snapshot file %s of incremental state handle.",
+                    chainElement.getStateHandleID());
+            restoreKeyGroupsStateHandle(
+                    new KeyGroupsStateHandle(chainElement.getKeyGroupRangeOffsets(), snapshotFile),
+                    chainElement.isDelta(),
+                    i == chain.size() - 1);
+        }
 
-                readStateHandleStateData(
-                        fsDataInputStream,
-                        inView,
-                        keyGroupsStateHandle.getGroupRangeOffsets(),
-                        kvStatesById,
-                        restoredMetaInfos.size(),
-                        serializationProxy.getReadVersion(),
-                        serializationProxy.isUsingKeyGroupCompression());
-                LOG.info("Finished restoring from state handle: {}.", keyedStateHandle);
-            } finally {
-                if (cancelStreamRegistry.unregisterCloseable(fsDataInputStream)) {
-                    IOUtils.closeQuietly(fsDataInputStream);
+        LOG.info("Finished restoring from incremental state handle: {}.", stateHandle);
+    }
+
+    private void restoreKeyGroupsStateHandle(
+            KeyGroupsStateHandle keyGroupsStateHandle,
+            boolean isDelta,
+            boolean restorePriorityQueues)
+            throws Exception {
+
+        FSDataInputStream fsDataInputStream = keyGroupsStateHandle.openInputStream();
+        cancelStreamRegistry.registerCloseable(fsDataInputStream);
+
+        try {
+            DataInputViewStreamWrapper inView = new DataInputViewStreamWrapper(fsDataInputStream);
+
+            KeyedBackendSerializationProxy<K> serializationProxy =
+                    new KeyedBackendSerializationProxy<>(userCodeClassLoader);
+
+            serializationProxy.read(inView);
+
+            if (!keySerializerRestored) {
+                // fetch current serializer now because if it is incompatible, we can't access
+                // it anymore to improve the error message
+                TypeSerializer<K> currentSerializer =
+                        keySerializerProvider.currentSchemaSerializer();
+                // check for key serializer compatibility; this also reconfigures the
+                // key serializer to be compatible, if it is required and is possible
+                TypeSerializerSchemaCompatibility<K> keySerializerSchemaCompat =
+                        keySerializerProvider.setPreviousSerializerSnapshotForRestoredState(
+                                serializationProxy.getKeySerializerSnapshot());
+                if (keySerializerSchemaCompat.isCompatibleAfterMigration()
+                        || keySerializerSchemaCompat.isIncompatible()) {
+                    throw new StateMigrationException(
+                            "The new key serializer ("
+                                    + currentSerializer
+                                    + ") must be compatible with the previous key serializer ("
+                                    + keySerializerProvider.previousSchemaSerializer()
+                                    + ").");
                 }
+
+                keySerializerRestored = true;
+            }
+
+            List<StateMetaInfoSnapshot> restoredMetaInfos =
+                    serializationProxy.getStateMetaInfoSnapshots();
+
+            final Map<Integer, StateMetaInfoSnapshot> kvStatesById =
+                    this.heapMetaInfoRestoreOperation.createOrCheckStateForMetaInfo(
+                            restoredMetaInfos, registeredKVStates, registeredPQStates);
+
+            readStateHandleStateData(
+                    fsDataInputStream,
+                    inView,
+                    keyGroupsStateHandle.getGroupRangeOffsets(),
+                    kvStatesById,
+                    restoredMetaInfos.size(),
+                    serializationProxy.getReadVersion(),
+                    serializationProxy.isUsingKeyGroupCompression(),
+                    isDelta,
+                    restorePriorityQueues);
+        } finally {
+            if (cancelStreamRegistry.unregisterCloseable(fsDataInputStream)) {
+                IOUtils.closeQuietly(fsDataInputStream);
             }
         }
-        return null;
     }
 
     private void readStateHandleStateData(
@@ -188,7 +246,9 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
             Map<Integer, StateMetaInfoSnapshot> kvStatesById,
             int numStates,
             int readVersion,
-            boolean isCompressed)
+            boolean isCompressed,
+            boolean isDelta,
+            boolean restorePriorityQueues)
             throws IOException {
 
         final StreamCompressionDecorator streamCompressionDecorator =
@@ -218,7 +278,13 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
                     streamCompressionDecorator.decorateWithCompression(fsDataInputStream)) {
 
                 readKeyGroupStateData(
-                        kgCompressionInStream, kvStatesById, keyGroupIndex, numStates, readVersion);
+                        kgCompressionInStream,
+                        kvStatesById,
+                        keyGroupIndex,
+                        numStates,
+                        readVersion,
+                        isDelta,
+                        restorePriorityQueues);
             }
         }
     }
@@ -228,7 +294,9 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
             Map<Integer, StateMetaInfoSnapshot> kvStatesById,
             int keyGroupIndex,
             int numStates,
-            int readVersion)
+            int readVersion,
+            boolean isDelta,
+            boolean restorePriorityQueues)
             throws IOException {
 
         DataInputViewStreamWrapper inView = new DataInputViewStreamWrapper(inputStream);
@@ -236,15 +304,30 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
         for (int i = 0; i < numStates; i++) {
 
             final int kvStateId = inView.readShort();
+            final boolean isStateDelta =
+                    isDelta && inView.readByte() == HeapIncrementalSnapshotStrategy.STATE_DELTA;
             final StateMetaInfoSnapshot stateMetaInfoSnapshot = kvStatesById.get(kvStateId);
-            final StateSnapshotRestore registeredState;
+            final StateSnapshotKeyGroupReader keyGroupReader;
 
             switch (stateMetaInfoSnapshot.getBackendStateType()) {
                 case KEY_VALUE:
-                    registeredState = registeredKVStates.get(stateMetaInfoSnapshot.getName());
+                    StateTable<K, ?, ?> stateTable =
+                            registeredKVStates.get(stateMetaInfoSnapshot.getName());
+                    keyGroupReader =
+                            isStateDelta
+                                    ? StateTableByKeyGroupReaders.deltaReader(stateTable)
+                                    : stateTable.keyGroupReader(readVersion);
                     break;
                 case PRIORITY_QUEUE:
-                    registeredState = registeredPQStates.get(stateMetaInfoSnapshot.getName());
+                    HeapPriorityQueueSnapshotRestoreWrapper<?> priorityQueue =
+                            registeredPQStates.get(stateMetaInfoSnapshot.getName());
+                    keyGroupReader =
+                            restorePriorityQueues
+                                    ? priorityQueue.keyGroupReader(readVersion)
+                                    : KeyGroupPartitioner.createKeyGroupPartitionReader(
+                                            priorityQueue.getMetaInfo().getElementSerializer()
+                                                    ::deserialize,
+                                            (element, keyGroupId) -> {});
                     break;
                 default:
                     throw new IllegalStateException(
@@ -253,8 +336,6 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
                                     + ".");
             }
 
-            StateSnapshotKeyGroupReader keyGroupReader =
-                    registeredState.keyGroupReader(readVersion);
             keyGroupReader.readMappingsInKeyGroup(inView, keyGroupIndex);
         }
     }
@@ -39,7 +39,6 @@ import javax.annotation.Nonnull;
 
 import java.io.IOException;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -251,7 +250,7 @@ public class HeapSavepointRestoreOperation<K> implements RestoreOperation<Void>
 
         Map<Object, Object> userMap = stateTable.get(key, namespace);
         if (userMap == null) {
-            userMap = new HashMap<>();
+            userMap = PrimitiveMapStateTable.createUserMap(stateTable);
             stateTable.put(key, keyGroup, namespace, userMap);
         }
         userMap.put(mapEntryKey, mapEntryValue);
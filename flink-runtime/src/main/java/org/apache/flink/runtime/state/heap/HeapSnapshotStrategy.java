@@ -18,6 +18,7 @@
 
 package org.apache.flink.runtime.state.heap;
 
+import org.apache.flink.api.common.state.CheckpointListener;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
 import org.apache.flink.runtime.checkpoint.CheckpointOptions;
@@ -54,13 +55,14 @@ import static org.apache.flink.runtime.state.CheckpointStreamWithResultProvider.
 
 /** A strategy how to perform a snapshot of a {@link HeapKeyedStateBackend}. */
 class HeapSnapshotStrategy<K>
-        implements SnapshotStrategy<KeyedStateHandle, HeapSnapshotResources<K>> {
+        implements SnapshotStrategy<KeyedStateHandle, HeapSnapshotResources<K>>,
+                CheckpointListener {
 
-    private final Map<String, StateTable<K, ?, ?>> registeredKVStates;
+    protected final Map<String, StateTable<K, ?, ?>> registeredKVStates;
     private final Map<String, HeapPriorityQueueSnapshotRestoreWrapper<?>> registeredPQStates;
-    private final StreamCompressionDecorator keyGroupCompressionDecorator;
+    protected final StreamCompressionDecorator keyGroupCompressionDecorator;
     private final LocalRecoveryConfig localRecoveryConfig;
-    private final KeyGroupRange keyGroupRange;
+    protected final KeyGroupRange keyGroupRange;
     private final StateSerializerProvider<K> keySerializerProvider;
     private final int totalKeyGroups;
 
@@ -182,6 +184,11 @@ class HeapSnapshotStrategy<K>
         };
     }
 
+    @Override
+    public void notifyCheckpointComplete(long checkpointId) {
+        // nothing to do
+    }
+
     public TypeSerializer<K> getKeySerializer() {
         return keySerializerProvider.currentSchemaSerializer();
     }
@@ -24,6 +24,10 @@ import org.apache.flink.api.common.state.ValueState;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.runtime.state.internal.InternalValueState;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Heap-backed partitioned {@link ValueState} that is snapshotted into files.
  *
@@ -78,6 +82,18 @@ class HeapValueState<K, N, V> extends AbstractHeapState<K, N, V>
         return result;
     }
 
+    @Override
+    public Map<K, V> getAll(Collection<K> keys) {
+        Map<K, V> result = new HashMap<>(keys.size());
+        for (K key : keys) {
+            V value = stateTable.get(key, currentNamespace);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
     @Override
     public void update(V value) {
 
@@ -35,6 +35,8 @@ import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import static org.apache.flink.util.Preconditions.checkArgument;
 
@@ -103,6 +105,25 @@ public class KeyGroupPartitionedPriorityQueue<
         return head;
     }
 
+    /**
+     * Drains the qualifying elements of one key-group: the sub-queue with the smallest head is
+     * emptied up to the first element that does not satisfy the condition, and the heap of
+     * sub-queues is only adjusted once instead of once per element. The other key-groups are left
+     * untouched until the next call.
+     */
+    @Override
+    public int pollWhile(
+            @Nonnull Predicate<? super T> condition, @Nonnull Consumer<? super T> consumer) {
+        final PQ headList = heapOfKeyGroupedHeaps.peek();
+        final T head = headList.peek();
+        if (head == null || !condition.test(head)) {
+            return 0;
+        }
+        final int count = headList.pollWhile(condition, consumer);
+        heapOfKeyGroupedHeaps.adjustModifiedElement(headList);
+        return count;
+    }
+
     @Nullable
     @Override
     public T peek() {
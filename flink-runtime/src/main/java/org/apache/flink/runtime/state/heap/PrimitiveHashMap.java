@@ -0,0 +1,390 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.runtime.state.heap.PrimitiveStateMap.PrimitiveType;
+import org.apache.flink.util.Preconditions;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A {@link Map} with {@code int} or {@code long} keys and values, which the heap keyed state
+ * backend uses as the user map of a map state such as a {@code MapState<Long, Long>}, see {@link
+ * PrimitiveMapStateTable}. Keys and values are kept unboxed in flat arrays, and the buckets of the
+ * hash table chain their entries by index, so an entry takes about 27 bytes instead of the three
+ * objects of a {@link java.util.HashMap} entry.
+ *
+ * <p>The keys are hashed and iterated like the keys of a {@link java.util.HashMap}, so replacing
+ * one by the other does not change the iteration order of a map state. Like the iterators of a
+ * {@link java.util.HashMap}, the iterators fail fast if the map is structurally modified other than
+ * through the iterator. Keys must not be {@code null}, values may be.
+ *
+ * @param <K> type of key, {@link Integer} or {@link Long}.
+ * @param <V> type of value, {@link Integer} or {@link Long}.
+ */
+final class PrimitiveHashMap<K, V> extends AbstractMap<K, V> {
+
+    /** Number of buckets on the first insertion. Must be a power of two. */
+    private static final int MINIMUM_CAPACITY = 4;
+
+    /** Max number of buckets. Must be a power of two >= MINIMUM_CAPACITY. */
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /** Marks the end of a chain of entries and an empty bucket. */
+    private static final int NO_ENTRY = -1;
+
+    private static final int[] EMPTY_INTS = new int[0];
+
+    private static final long[] EMPTY_LONGS = new long[0];
+
+    private static final boolean[] EMPTY_BOOLEANS = new boolean[0];
+
+    private final PrimitiveType keyType;
+
+    private final PrimitiveType valueType;
+
+    /** The first entry of each bucket, or {@link #NO_ENTRY}. */
+    private int[] buckets;
+
+    private long[] keys;
+
+    private long[] values;
+
+    /** Whether the entry at an index maps its key to {@code null}. */
+    private boolean[] nullValues;
+
+    /**
+     * The next entry in the chain of the entry at an index. For removed entries, the next entry in
+     * the list of free indexes.
+     */
+    private int[] next;
+
+    /** The number of entry indexes that have been used since the table was built. */
+    private int numUsedEntries;
+
+    /** The first entry index in the list of free indexes, or {@link #NO_ENTRY}. */
+    private int firstFreeEntry;
+
+    /** The number of mappings in this map. */
+    private int size;
+
+    /** The number of structural modifications, to let the iterators fail fast. */
+    private int modCount;
+
+    PrimitiveHashMap(PrimitiveType keyType, PrimitiveType valueType) {
+        this.keyType = Preconditions.checkNotNull(keyType);
+        this.valueType = Preconditions.checkNotNull(valueType);
+        this.buckets = EMPTY_INTS;
+        this.keys = EMPTY_LONGS;
+        this.values = EMPTY_LONGS;
+        this.nullValues = EMPTY_BOOLEANS;
+        this.next = EMPTY_INTS;
+        this.firstFreeEntry = NO_ENTRY;
+    }
+
+    private PrimitiveHashMap(PrimitiveHashMap<K, V> other) {
+        this.keyType = other.keyType;
+        this.valueType = other.valueType;
+        this.buckets = other.buckets.clone();
+        this.keys = other.keys.clone();
+        this.values = other.values.clone();
+        this.nullValues = other.nullValues.clone();
+        this.next = other.next.clone();
+        this.numUsedEntries = other.numUsedEntries;
+        this.firstFreeEntry = other.firstFreeEntry;
+        this.size = other.size;
+    }
+
+    /** Returns a copy of this map. Keys and values are immutable, so the copy is deep. */
+    PrimitiveHashMap<K, V> copy() {
+        return new PrimitiveHashMap<>(this);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return keyType.isInstance(key) && indexOf(keyType.toLong(key)) != NO_ENTRY;
+    }
+
+    @Override
+    public V get(Object key) {
+        if (!keyType.isInstance(key)) {
+            return null;
+        }
+        final int entry = indexOf(keyType.toLong(key));
+        return entry != NO_ENTRY ? valueAt(entry) : null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        Preconditions.checkNotNull(key, "The keys of a PrimitiveHashMap must not be null.");
+        final long primitiveKey = keyType.toLong(key);
+        final int entry = indexOf(primitiveKey);
+        if (entry != NO_ENTRY) {
+            final V oldValue = valueAt(entry);
+            setValueAt(entry, value);
+            return oldValue;
+        }
+
+        if (size == keys.length) {
+            rebuild(buckets.length == 0 ? MINIMUM_CAPACITY : buckets.length << 1);
+        }
+        final int newEntry;
+        if (firstFreeEntry != NO_ENTRY) {
+            newEntry = firstFreeEntry;
+            firstFreeEntry = next[newEntry];
+        } else {
+            newEntry = numUsedEntries++;
+        }
+        keys[newEntry] = primitiveKey;
+        setValueAt(newEntry, value);
+        appendToBucket(buckets, next, bucketOf(primitiveKey, buckets.length - 1), newEntry);
+        ++size;
+        ++modCount;
+        return null;
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (!keyType.isInstance(key) || size == 0) {
+            return null;
+        }
+        final long primitiveKey = keyType.toLong(key);
+        final int bucket = bucketOf(primitiveKey, buckets.length - 1);
+        int previous = NO_ENTRY;
+        for (int entry = buckets[bucket]; entry != NO_ENTRY; entry = next[entry]) {
+            if (keys[entry] == primitiveKey) {
+                final V oldValue = valueAt(entry);
+                if (previous == NO_ENTRY) {
+                    buckets[bucket] = next[entry];
+                } else {
+                    next[previous] = next[entry];
+                }
+                next[entry] = firstFreeEntry;
+                firstFreeEntry = entry;
+                --size;
+                ++modCount;
+                return oldValue;
+            }
+            previous = entry;
+        }
+        return null;
+    }
+
+    @Override
+    public void clear() {
+        buckets = EMPTY_INTS;
+        keys = EMPTY_LONGS;
+        values = EMPTY_LONGS;
+        nullValues = EMPTY_BOOLEANS;
+        next = EMPTY_INTS;
+        numUsedEntries = 0;
+        firstFreeEntry = NO_ENTRY;
+        size = 0;
+        ++modCount;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public void clear() {
+                PrimitiveHashMap.this.clear();
+            }
+        };
+    }
+
+    /** Returns the index of the entry of the given key, or {@link #NO_ENTRY}. */
+    private int indexOf(long key) {
+        if (size == 0) {
+            return NO_ENTRY;
+        }
+        int entry = buckets[bucketOf(key, buckets.length - 1)];
+        while (entry != NO_ENTRY && keys[entry] != key) {
+            entry = next[entry];
+        }
+        return entry;
+    }
+
+    private V valueAt(int entry) {
+        return nullValues[entry] ? null : valueType.fromLong(values[entry]);
+    }
+
+    private void setValueAt(int entry, V value) {
+        nullValues[entry] = value == null;
+        values[entry] = value == null ? 0L : valueType.toLong(value);
+    }
+
+    /**
+     * Rebuilds the table with the given number of buckets, keeping the order of the entries in each
+     * bucket and dropping the indexes of removed entries.
+     */
+    private void rebuild(int newCapacity) {
+        Preconditions.checkState(
+                newCapacity > 0 && newCapacity <= MAXIMUM_CAPACITY,
+                "Maximum capacity of PrimitiveHashMap reached.");
+        // the load factor of a HashMap
+        final int newLength = (newCapacity >> 2) * 3;
+        final int[] newBuckets = new int[newCapacity];
+        Arrays.fill(newBuckets, NO_ENTRY);
+        final long[] newKeys = new long[newLength];
+        final long[] newValues = new long[newLength];
+        final boolean[] newNullValues = new boolean[newLength];
+        final int[] newNext = new int[newLength];
+
+        final int mask = newCapacity - 1;
+        int newEntry = 0;
+        for (int firstEntry : buckets) {
+            for (int entry = firstEntry; entry != NO_ENTRY; entry = next[entry]) {
+                newKeys[newEntry] = keys[entry];
+                newValues[newEntry] = values[entry];
+                newNullValues[newEntry] = nullValues[entry];
+                appendToBucket(newBuckets, newNext, bucketOf(keys[entry], mask), newEntry);
+                ++newEntry;
+            }
+        }
+
+        buckets = newBuckets;
+        keys = newKeys;
+        values = newValues;
+        nullValues = newNullValues;
+        next = newNext;
+        numUsedEntries = newEntry;
+        firstFreeEntry = NO_ENTRY;
+    }
+
+    private static void appendToBucket(int[] buckets, int[] next, int bucket, int entry) {
+        next[entry] = NO_ENTRY;
+        if (buckets[bucket] == NO_ENTRY) {
+            buckets[bucket] = entry;
+        } else {
+            int last = buckets[bucket];
+            while (next[last] != NO_ENTRY) {
+                last = next[last];
+            }
+            next[last] = entry;
+        }
+    }
+
+    /** Returns the bucket of the given key, which is the bucket of a {@link java.util.HashMap}. */
+    private int bucketOf(long key, int mask) {
+        final int hashCode = keyType == PrimitiveType.INT ? (int) key : Long.hashCode(key);
+        return (hashCode ^ (hashCode >>> 16)) & mask;
+    }
+
+    /**
+     * Iterator over the mappings of the map, in the order of the buckets. Updates through the
+     * returned entries are written to the map.
+     */
+    private final class EntryIterator implements Iterator<Entry<K, V>> {
+
+        private int expectedModCount = modCount;
+
+        /** The bucket of the next entry. */
+        private int nextBucket;
+
+        private int nextEntry = NO_ENTRY;
+
+        private K lastKey;
+
+        private EntryIterator() {
+            advanceToBucket(0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextEntry != NO_ENTRY;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final int entry = nextEntry;
+            lastKey = keyType.fromLong(keys[entry]);
+            final V value = valueAt(entry);
+            nextEntry = next[entry];
+            if (nextEntry == NO_ENTRY) {
+                advanceToBucket(nextBucket + 1);
+            }
+            return new MapEntry(lastKey, value);
+        }
+
+        @Override
+        public void remove() {
+            Preconditions.checkState(lastKey != null, "next() has not been called.");
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            // removing an entry does not change the chain from the next entry on
+            PrimitiveHashMap.this.remove(lastKey);
+            expectedModCount = modCount;
+            lastKey = null;
+        }
+
+        private void advanceToBucket(int bucket) {
+            while (bucket < buckets.length && buckets[bucket] == NO_ENTRY) {
+                ++bucket;
+            }
+            nextBucket = bucket;
+            nextEntry = bucket < buckets.length ? buckets[bucket] : NO_ENTRY;
+        }
+    }
+
+    /** A mapping of the map, whose value is written to the map when it is set. */
+    private final class MapEntry extends SimpleEntry<K, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        private MapEntry(K key, V value) {
+            super(key, value);
+        }
+
+        @Override
+        public V setValue(V value) {
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
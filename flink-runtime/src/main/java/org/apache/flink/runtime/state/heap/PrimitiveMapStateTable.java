@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.base.MapSerializer;
+import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
+import org.apache.flink.runtime.state.heap.PrimitiveStateMap.PrimitiveType;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link CopyOnWriteStateTable} for map states whose user keys and values are serialized by an
+ * {@link org.apache.flink.api.common.typeutils.base.IntSerializer} or {@link
+ * org.apache.flink.api.common.typeutils.base.LongSerializer}, e.g. a {@code MapState<Long, Long>}.
+ * The user maps are {@link PrimitiveHashMap}s instead of {@link HashMap}s, also after they are
+ * copied for a snapshot or restored, see {@link #isSupported}.
+ *
+ * @param <K> type of key.
+ * @param <N> type of namespace.
+ * @param <S> type of state, a {@link Map} of the user keys and values.
+ */
+public class PrimitiveMapStateTable<K, N, S> extends CopyOnWriteStateTable<K, N, S> {
+
+    private final PrimitiveType userKeyType;
+
+    private final PrimitiveType userValueType;
+
+    /**
+     * Constructs a new {@code PrimitiveMapStateTable}.
+     *
+     * @param keyContext the key context.
+     * @param metaInfo the meta information, including the type serializer for state copy-on-write.
+     * @param keySerializer the serializer of the key.
+     */
+    PrimitiveMapStateTable(
+            InternalKeyContext<K> keyContext,
+            RegisteredKeyValueStateBackendMetaInfo<N, S> metaInfo,
+            TypeSerializer<K> keySerializer) {
+        super(keyContext, metaInfo, keySerializer);
+        if (!isSupported(metaInfo)) {
+            throw new IllegalArgumentException(
+                    "State "
+                            + metaInfo.getName()
+                            + " cannot be kept in a PrimitiveMapStateTable, it needs a map with int or long keys and values.");
+        }
+        MapSerializer<?, ?> mapSerializer = (MapSerializer<?, ?>) metaInfo.getStateSerializer();
+        this.userKeyType = PrimitiveType.of(mapSerializer.getKeySerializer());
+        this.userValueType = PrimitiveType.of(mapSerializer.getValueSerializer());
+    }
+
+    /**
+     * Returns true iff a state with the given meta info can be kept in a {@link
+     * PrimitiveMapStateTable}.
+     */
+    static boolean isSupported(RegisteredKeyValueStateBackendMetaInfo<?, ?> metaInfo) {
+        if (!(metaInfo.getStateSerializer() instanceof MapSerializer)) {
+            return false;
+        }
+        MapSerializer<?, ?> mapSerializer = (MapSerializer<?, ?>) metaInfo.getStateSerializer();
+        return PrimitiveType.of(mapSerializer.getKeySerializer()) != null
+                && PrimitiveType.of(mapSerializer.getValueSerializer()) != null;
+    }
+
+    /**
+     * Creates an empty user map for a map state kept in the given table: a {@link PrimitiveHashMap}
+     * if the table is a {@link PrimitiveMapStateTable}, and a {@link HashMap} otherwise.
+     */
+    @SuppressWarnings("unchecked")
+    static <UK, UV> Map<UK, UV> createUserMap(StateTable<?, ?, ? extends Map<UK, UV>> stateTable) {
+        if (stateTable instanceof PrimitiveMapStateTable) {
+            PrimitiveMapStateTable<?, ?, ?> table = (PrimitiveMapStateTable<?, ?, ?>) stateTable;
+            return new PrimitiveHashMap<>(table.userKeyType, table.userValueType);
+        }
+        return new HashMap<>();
+    }
+
+    @Override
+    protected CopyOnWriteStateMap<K, N, S> createStateMap() {
+        return new PrimitiveMapStateMap<>(getStateSerializer());
+    }
+
+    /** Restores a user map, converting it to a {@link PrimitiveHashMap} if it is none. */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void put(K key, int keyGroup, N namespace, S state) {
+        if (state != null && !(state instanceof PrimitiveHashMap)) {
+            Map<Object, Object> userMap = new PrimitiveHashMap<>(userKeyType, userValueType);
+            userMap.putAll((Map<?, ?>) state);
+            state = (S) userMap;
+        }
+        super.put(key, keyGroup, namespace, state);
+    }
+
+    /**
+     * A {@link CopyOnWriteStateMap} that copies its {@link PrimitiveHashMap}s without converting
+     * them to {@link HashMap}s.
+     */
+    private static final class PrimitiveMapStateMap<K, N, S> extends CopyOnWriteStateMap<K, N, S> {
+
+        private PrimitiveMapStateMap(TypeSerializer<S> stateSerializer) {
+            super(stateSerializer);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        S copyState(S state) {
+            return state instanceof PrimitiveHashMap
+                    ? (S) ((PrimitiveHashMap<?, ?>) state).copy()
+                    : super.copyState(state);
+        }
+    }
+}
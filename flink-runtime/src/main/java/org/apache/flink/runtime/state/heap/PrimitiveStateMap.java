@@ -0,0 +1,711 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.LongSerializer;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.state.StateEntry;
+import org.apache.flink.runtime.state.StateTransformationFunction;
+import org.apache.flink.runtime.state.internal.InternalKvState;
+import org.apache.flink.util.Preconditions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of {@link StateMap} for states with {@code int} or {@code long} keys and values,
+ * e.g. a {@code ValueState<Long>} keyed by a {@code Long} id. Keys and values are kept unboxed in
+ * flat arrays of an open addressing hash table with linear probing, so an entry takes about 20
+ * bytes instead of the four objects of a {@link CopyOnWriteStateMap} entry.
+ *
+ * <p>Namespaces, e.g. windows, are kept once in a dictionary that assigns an id to every namespace
+ * with at least one mapping. The table only holds the ids, so states of many keys in few windows
+ * hardly add to the size of an entry.
+ *
+ * <p>The slots of the table are split into segments of {@link #SEGMENT_SIZE} slots. Snapshots are
+ * copy-on-write on the granularity of these segments: a snapshot shares the segments of the map,
+ * and the first modification of a segment after the snapshot copies only that segment. Because the
+ * state objects are immutable boxed numbers that are created on each access, there is no need to
+ * copy individual states.
+ *
+ * <p>A {@code null} state is not stored; putting {@code null} removes the mapping.
+ *
+ * @param <K> type of key, {@link Integer} or {@link Long}.
+ * @param <N> type of namespace.
+ * @param <S> type of state, {@link Integer} or {@link Long}.
+ */
+public class PrimitiveStateMap<K, N, S> extends StateMap<K, N, S> {
+
+    /** Capacity of the table on the first insertion. Must be a power of two. */
+    private static final int MINIMUM_CAPACITY = 8;
+
+    /** Max capacity of the table. Must be a power of two >= MINIMUM_CAPACITY. */
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /** The number of slots of a segment, the unit of copy-on-write. Must be a power of two. */
+    @VisibleForTesting static final int SEGMENT_SIZE = 1 << 10;
+
+    private static final int SEGMENT_SHIFT = Integer.numberOfTrailingZeros(SEGMENT_SIZE);
+
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    /** Multiplier of the Fibonacci hashing, 2^64 divided by the golden ratio. */
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    /** Multiplier that spreads the namespace ids before they are combined with the keys. */
+    private static final long NAMESPACE_MULTIPLIER = 0xC2B2AE3D27D4EB4FL;
+
+    private static final long[][] EMPTY_LONG_SEGMENTS = new long[0][];
+
+    private static final int[][] EMPTY_INT_SEGMENTS = new int[0][];
+
+    private static final boolean[] EMPTY_FLAGS = new boolean[0];
+
+    /** The type of the keys. */
+    private final PrimitiveType keyType;
+
+    /** The type of the states. */
+    private final PrimitiveType stateType;
+
+    /** The keys of the table by segment, valid where {@link #namespaceSegments} is set. */
+    private long[][] keySegments;
+
+    /** The states of the table by segment, valid where {@link #namespaceSegments} is set. */
+    private long[][] valueSegments;
+
+    /**
+     * The namespaces of the table by segment: the id of the namespace of the mapping in a slot plus
+     * one, or zero if the slot is free.
+     */
+    private int[][] namespaceSegments;
+
+    /**
+     * Flags for the segments that are shared with a snapshot or iterator, so that they have to be
+     * copied before the next modification.
+     */
+    private boolean[] sharedSegments;
+
+    /** The number of slots of the table, zero or a power of two. */
+    private int capacity;
+
+    /** The number of mappings in this map. */
+    private int size;
+
+    /** The number of mappings after which the table is doubled. */
+    private int threshold;
+
+    /** The ids of the namespaces that have at least one mapping. */
+    private final Map<N, Integer> namespaceIds;
+
+    /** The namespaces by id, {@code null} for unused ids. */
+    private Object[] namespaces;
+
+    /** The number of mappings of each namespace by id. */
+    private int[] namespaceSizes;
+
+    /** The ids below {@link #numNamespaceIds} that are not assigned to a namespace. */
+    private final ArrayDeque<Integer> freeNamespaceIds;
+
+    /** The number of namespace ids that were handed out so far. */
+    private int numNamespaceIds;
+
+    /**
+     * Constructs a new, empty {@code PrimitiveStateMap}.
+     *
+     * @param keyType the type of the keys.
+     * @param stateType the type of the states.
+     */
+    PrimitiveStateMap(PrimitiveType keyType, PrimitiveType stateType) {
+        this.keyType = Preconditions.checkNotNull(keyType);
+        this.stateType = Preconditions.checkNotNull(stateType);
+        this.keySegments = EMPTY_LONG_SEGMENTS;
+        this.valueSegments = EMPTY_LONG_SEGMENTS;
+        this.namespaceSegments = EMPTY_INT_SEGMENTS;
+        this.sharedSegments = EMPTY_FLAGS;
+        this.namespaceIds = new HashMap<>();
+        this.namespaces = new Object[1];
+        this.namespaceSizes = new int[1];
+        this.freeNamespaceIds = new ArrayDeque<>();
+    }
+
+    // Public API from StateMap
+    // ------------------------------------------------------------------------------
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public S get(K key, N namespace) {
+        final int pos = indexOf(keyType.toLong(key), namespace);
+        return pos >= 0 ? stateType.fromLong(valueAt(pos)) : null;
+    }
+
+    @Override
+    public boolean containsKey(K key, N namespace) {
+        return indexOf(keyType.toLong(key), namespace) >= 0;
+    }
+
+    @Override
+    public void put(K key, N namespace, S state) {
+        if (state == null) {
+            remove(key, namespace);
+        } else {
+            putValue(keyType.toLong(key), namespace, stateType.toLong(state));
+        }
+    }
+
+    @Override
+    public S putAndGetOld(K key, N namespace, S state) {
+        final long primitiveKey = keyType.toLong(key);
+        final int pos = indexOf(primitiveKey, namespace);
+        final S oldState = pos >= 0 ? stateType.fromLong(valueAt(pos)) : null;
+        if (state == null) {
+            if (pos >= 0) {
+                removeAt(pos);
+            }
+        } else {
+            putValue(primitiveKey, namespace, stateType.toLong(state));
+        }
+        return oldState;
+    }
+
+    @Override
+    public void remove(K key, N namespace) {
+        final int pos = indexOf(keyType.toLong(key), namespace);
+        if (pos >= 0) {
+            removeAt(pos);
+        }
+    }
+
+    @Override
+    public S removeAndGetOld(K key, N namespace) {
+        final int pos = indexOf(keyType.toLong(key), namespace);
+        if (pos < 0) {
+            return null;
+        }
+        final S oldState = stateType.fromLong(valueAt(pos));
+        removeAt(pos);
+        return oldState;
+    }
+
+    @Override
+    public <T> void transform(
+            K key, N namespace, T value, StateTransformationFunction<S, T> transformation)
+            throws Exception {
+        final long primitiveKey = keyType.toLong(key);
+        final int pos = indexOf(primitiveKey, namespace);
+        final S newState =
+                transformation.apply(pos >= 0 ? stateType.fromLong(valueAt(pos)) : null, value);
+        if (newState != null) {
+            putValue(primitiveKey, namespace, stateType.toLong(newState));
+        } else if (pos >= 0) {
+            removeAt(pos);
+        }
+    }
+
+    @Override
+    public Iterator<StateEntry<K, N, S>> iterator() {
+        // the iterator works on the current segments, which the map copies before modifying them
+        markSegmentsShared();
+        return new StateEntryIterator<>(
+                keyType,
+                stateType,
+                keySegments.clone(),
+                valueSegments.clone(),
+                namespaceSegments.clone(),
+                copyNamespaces(),
+                size);
+    }
+
+    @Override
+    public Stream<K> getKeys(N namespace) {
+        final Integer namespaceId = namespaceIds.get(namespace);
+        if (namespaceId == null) {
+            return Stream.empty();
+        }
+        final long[] keysCopy = new long[namespaceSizes[namespaceId]];
+        int count = 0;
+        for (int pos = 0; pos < capacity; pos++) {
+            if (namespaceSlotAt(pos) == namespaceId + 1) {
+                keysCopy[count++] = keyAt(pos);
+            }
+        }
+        return IntStream.range(0, keysCopy.length).mapToObj(i -> keyType.fromLong(keysCopy[i]));
+    }
+
+    @Override
+    public InternalKvState.StateIncrementalVisitor<K, N, S> getStateIncrementalVisitor(
+            int recommendedMaxNumberOfReturnedRecords) {
+        return new StateEntryVisitor(recommendedMaxNumberOfReturnedRecords);
+    }
+
+    @Override
+    public int sizeOfNamespace(Object namespace) {
+        final Integer namespaceId = namespaceIds.get(namespace);
+        return namespaceId != null ? namespaceSizes[namespaceId] : 0;
+    }
+
+    @Nonnull
+    @Override
+    public PrimitiveStateMapSnapshot<K, N, S> stateSnapshot() {
+        markSegmentsShared();
+        return new PrimitiveStateMapSnapshot<>(
+                this,
+                keySegments.clone(),
+                valueSegments.clone(),
+                namespaceSegments.clone(),
+                copyNamespaces(),
+                size);
+    }
+
+    // Private implementation details of the API methods
+    // ---------------------------------------------------------------
+
+    PrimitiveType getKeyType() {
+        return keyType;
+    }
+
+    PrimitiveType getStateType() {
+        return stateType;
+    }
+
+    @VisibleForTesting
+    int getNumberOfSharedSegments() {
+        int count = 0;
+        for (boolean shared : sharedSegments) {
+            if (shared) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Marks all segments as shared, so that the current segments stay valid for a snapshot or
+     * iterator that holds a copy of the arrays of segments.
+     */
+    private void markSegmentsShared() {
+        Arrays.fill(sharedSegments, true);
+    }
+
+    /** Returns a copy of the namespaces by id, for snapshots and iterators. */
+    private Object[] copyNamespaces() {
+        return Arrays.copyOf(namespaces, numNamespaceIds);
+    }
+
+    private long keyAt(int pos) {
+        return keySegments[pos >>> SEGMENT_SHIFT][pos & SEGMENT_MASK];
+    }
+
+    private long valueAt(int pos) {
+        return valueSegments[pos >>> SEGMENT_SHIFT][pos & SEGMENT_MASK];
+    }
+
+    /** Returns the id of the namespace of the mapping in the given slot plus one, or zero. */
+    private int namespaceSlotAt(int pos) {
+        return namespaceSegments[pos >>> SEGMENT_SHIFT][pos & SEGMENT_MASK];
+    }
+
+    /** Sets the given slot, copying its segment first if it is shared. */
+    private void setSlot(int pos, long key, long value, int namespaceSlot) {
+        final int segment = pos >>> SEGMENT_SHIFT;
+        final int offset = pos & SEGMENT_MASK;
+        ensureExclusiveSegment(segment);
+        keySegments[segment][offset] = key;
+        valueSegments[segment][offset] = value;
+        namespaceSegments[segment][offset] = namespaceSlot;
+    }
+
+    /** Copies the given segment if it is shared with a snapshot or iterator. */
+    private void ensureExclusiveSegment(int segment) {
+        if (sharedSegments[segment]) {
+            keySegments[segment] = keySegments[segment].clone();
+            valueSegments[segment] = valueSegments[segment].clone();
+            namespaceSegments[segment] = namespaceSegments[segment].clone();
+            sharedSegments[segment] = false;
+        }
+    }
+
+    /** Returns the slot of the given key and namespace, or -1 if it is not contained. */
+    private int indexOf(long key, N namespace) {
+        if (size == 0) {
+            return -1;
+        }
+        final Integer namespaceId = namespaceIds.get(namespace);
+        return namespaceId != null ? indexOf(key, namespaceId + 1) : -1;
+    }
+
+    private int indexOf(long key, int namespaceSlot) {
+        final int mask = capacity - 1;
+        int pos = slot(key, namespaceSlot, mask);
+        int currentSlot;
+        while ((currentSlot = namespaceSlotAt(pos)) != 0) {
+            if (currentSlot == namespaceSlot && keyAt(pos) == key) {
+                return pos;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void putValue(long key, N namespace, long value) {
+        final Integer namespaceId = namespaceIds.get(namespace);
+        if (namespaceId != null) {
+            final int pos = indexOf(key, namespaceId + 1);
+            if (pos >= 0) {
+                setSlot(pos, key, value, namespaceId + 1);
+                return;
+            }
+        }
+
+        if (capacity == 0) {
+            resize();
+        }
+        final int id = namespaceId != null ? namespaceId : acquireNamespaceId(namespace);
+        final int mask = capacity - 1;
+        int pos = slot(key, id + 1, mask);
+        while (namespaceSlotAt(pos) != 0) {
+            pos = (pos + 1) & mask;
+        }
+        setSlot(pos, key, value, id + 1);
+        ++namespaceSizes[id];
+        if (++size > threshold) {
+            resize();
+        }
+    }
+
+    /**
+     * Removes the mapping in the given slot. The following mappings of the probe sequence are
+     * shifted back, so that lookups never have to skip deleted slots.
+     */
+    private void removeAt(int pos) {
+        releaseNamespaceMapping(namespaceSlotAt(pos) - 1);
+        final int mask = capacity - 1;
+        int free = pos;
+        int next = pos;
+        while (true) {
+            next = (next + 1) & mask;
+            final int namespaceSlot = namespaceSlotAt(next);
+            if (namespaceSlot == 0) {
+                break;
+            }
+            final long key = keyAt(next);
+            final int home = slot(key, namespaceSlot, mask);
+            // the mapping can fill the free slot iff its home slot is not in (free, next]
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                setSlot(free, key, valueAt(next), namespaceSlot);
+                free = next;
+            }
+        }
+        setSlot(free, 0L, 0L, 0);
+        --size;
+    }
+
+    private int acquireNamespaceId(N namespace) {
+        final int id;
+        if (freeNamespaceIds.isEmpty()) {
+            id = numNamespaceIds++;
+            if (id == namespaces.length) {
+                namespaces = Arrays.copyOf(namespaces, id << 1);
+                namespaceSizes = Arrays.copyOf(namespaceSizes, id << 1);
+            }
+        } else {
+            id = freeNamespaceIds.pop();
+        }
+        namespaces[id] = namespace;
+        namespaceIds.put(namespace, id);
+        return id;
+    }
+
+    /** Releases a mapping of the namespace with the given id, and the id with its last mapping. */
+    private void releaseNamespaceMapping(int namespaceId) {
+        if (--namespaceSizes[namespaceId] == 0) {
+            namespaceIds.remove(namespaces[namespaceId]);
+            namespaces[namespaceId] = null;
+            freeNamespaceIds.push(namespaceId);
+        }
+    }
+
+    /** Doubles the capacity of the table, or allocates the initial table. */
+    private void resize() {
+        final long[][] oldKeySegments = keySegments;
+        final long[][] oldValueSegments = valueSegments;
+        final int[][] oldNamespaceSegments = namespaceSegments;
+        final int oldCapacity = capacity;
+        final int newCapacity = oldCapacity == 0 ? MINIMUM_CAPACITY : oldCapacity << 1;
+        Preconditions.checkState(
+                newCapacity <= MAXIMUM_CAPACITY, "Maximum capacity of PrimitiveStateMap reached.");
+
+        final int segmentLength = Math.min(newCapacity, SEGMENT_SIZE);
+        final int numSegments = newCapacity / segmentLength;
+        keySegments = new long[numSegments][segmentLength];
+        valueSegments = new long[numSegments][segmentLength];
+        namespaceSegments = new int[numSegments][segmentLength];
+        sharedSegments = new boolean[numSegments];
+        capacity = newCapacity;
+        threshold = newCapacity == MAXIMUM_CAPACITY ? Integer.MAX_VALUE : (newCapacity >> 2) * 3;
+
+        final int mask = newCapacity - 1;
+        for (int i = 0; i < oldCapacity; i++) {
+            final int segment = i >>> SEGMENT_SHIFT;
+            final int offset = i & SEGMENT_MASK;
+            final int namespaceSlot = oldNamespaceSegments[segment][offset];
+            if (namespaceSlot != 0) {
+                final long key = oldKeySegments[segment][offset];
+                int pos = slot(key, namespaceSlot, mask);
+                while (namespaceSlotAt(pos) != 0) {
+                    pos = (pos + 1) & mask;
+                }
+                setSlot(pos, key, oldValueSegments[segment][offset], namespaceSlot);
+            }
+        }
+    }
+
+    private static int slot(long key, int namespaceSlot, int mask) {
+        final long hash = (key + namespaceSlot * NAMESPACE_MULTIPLIER) * HASH_MULTIPLIER;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    // Primitive types
+    // -----------------------------------------------------------------------------------------------
+
+    /** The primitive types that a {@link PrimitiveStateMap} can hold as keys and states. */
+    enum PrimitiveType {
+        INT {
+            @Override
+            long toLong(Object boxed) {
+                return (Integer) boxed;
+            }
+
+            @Override
+            boolean isInstance(Object boxed) {
+                return boxed instanceof Integer;
+            }
+
+            @Override
+            Object box(long value) {
+                return (int) value;
+            }
+
+            @Override
+            void write(long value, DataOutputView out) throws IOException {
+                out.writeInt((int) value);
+            }
+        },
+        LONG {
+            @Override
+            long toLong(Object boxed) {
+                return (Long) boxed;
+            }
+
+            @Override
+            boolean isInstance(Object boxed) {
+                return boxed instanceof Long;
+            }
+
+            @Override
+            Object box(long value) {
+                return value;
+            }
+
+            @Override
+            void write(long value, DataOutputView out) throws IOException {
+                out.writeLong(value);
+            }
+        };
+
+        abstract long toLong(Object boxed);
+
+        /** Returns true iff the given object is a boxed value of this type. */
+        abstract boolean isInstance(Object boxed);
+
+        abstract Object box(long value);
+
+        /** Writes the value in the format of the serializer of this type. */
+        abstract void write(long value, DataOutputView out) throws IOException;
+
+        @SuppressWarnings("unchecked")
+        <T> T fromLong(long value) {
+            return (T) box(value);
+        }
+
+        /**
+         * Returns the type whose values the given serializer writes, or {@code null} if the
+         * serializer is not a primitive serializer.
+         */
+        @Nullable
+        static PrimitiveType of(TypeSerializer<?> serializer) {
+            if (serializer instanceof LongSerializer) {
+                return LONG;
+            } else if (serializer instanceof IntSerializer) {
+                return INT;
+            } else {
+                return null;
+            }
+        }
+    }
+
+    // Iteration
+    // ------------------------------------------------------------------------------------
+
+    /** Iterator over the mappings in a set of segments of a {@link PrimitiveStateMap}. */
+    static class StateEntryIterator<K, N, S> implements Iterator<StateEntry<K, N, S>> {
+
+        private final PrimitiveType keyType;
+        private final PrimitiveType stateType;
+        private final long[][] keySegments;
+        private final long[][] valueSegments;
+        private final int[][] namespaceSegments;
+        private final Object[] namespaces;
+        private int remaining;
+        private int nextSegment;
+        private int nextOffset;
+
+        StateEntryIterator(
+                PrimitiveType keyType,
+                PrimitiveType stateType,
+                long[][] keySegments,
+                long[][] valueSegments,
+                int[][] namespaceSegments,
+                Object[] namespaces,
+                int size) {
+            this.keyType = keyType;
+            this.stateType = stateType;
+            this.keySegments = keySegments;
+            this.valueSegments = valueSegments;
+            this.namespaceSegments = namespaceSegments;
+            this.namespaces = namespaces;
+            this.remaining = size;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public StateEntry<K, N, S> next() {
+            if (remaining == 0) {
+                throw new NoSuchElementException();
+            }
+            while (namespaceSegments[nextSegment][nextOffset] == 0) {
+                advance();
+            }
+            final int segment = nextSegment;
+            final int offset = nextOffset;
+            advance();
+            --remaining;
+            return new StateEntry.SimpleStateEntry<>(
+                    keyType.fromLong(keySegments[segment][offset]),
+                    (N) namespaces[namespaceSegments[segment][offset] - 1],
+                    stateType.fromLong(valueSegments[segment][offset]));
+        }
+
+        private void advance() {
+            if (++nextOffset == namespaceSegments[nextSegment].length) {
+                nextOffset = 0;
+                ++nextSegment;
+            }
+        }
+    }
+
+    /**
+     * Incremental visitor over the mappings of a {@link PrimitiveStateMap}. The visitor works on a
+     * copy of the keys and namespaces taken when it is created and returns the current states of
+     * the mappings that are still contained.
+     */
+    class StateEntryVisitor implements InternalKvState.StateIncrementalVisitor<K, N, S> {
+
+        private final long[] visitedKeys;
+        private final List<N> visitedNamespaces;
+        private final int maxEntriesPerCall;
+        private int nextIndex;
+
+        @SuppressWarnings("unchecked")
+        StateEntryVisitor(int recommendedMaxNumberOfReturnedRecords) {
+            this.visitedKeys = new long[size];
+            this.visitedNamespaces = new ArrayList<>(size);
+            for (int pos = 0, count = 0; pos < capacity; pos++) {
+                final int namespaceSlot = namespaceSlotAt(pos);
+                if (namespaceSlot != 0) {
+                    visitedKeys[count++] = keyAt(pos);
+                    visitedNamespaces.add((N) namespaces[namespaceSlot - 1]);
+                }
+            }
+            this.maxEntriesPerCall = Math.max(1, recommendedMaxNumberOfReturnedRecords);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < visitedKeys.length;
+        }
+
+        @Override
+        public Collection<StateEntry<K, N, S>> nextEntries() {
+            if (!hasNext()) {
+                return Collections.emptyList();
+            }
+            final List<StateEntry<K, N, S>> entries = new ArrayList<>();
+            while (nextIndex < visitedKeys.length && entries.size() < maxEntriesPerCall) {
+                final long key = visitedKeys[nextIndex];
+                final N namespace = visitedNamespaces.get(nextIndex);
+                ++nextIndex;
+                final int pos = indexOf(key, namespace);
+                if (pos >= 0) {
+                    entries.add(
+                            new StateEntry.SimpleStateEntry<>(
+                                    keyType.fromLong(key),
+                                    namespace,
+                                    stateType.fromLong(valueAt(pos))));
+                }
+            }
+            return entries;
+        }
+
+        @Override
+        public void remove(StateEntry<K, N, S> stateEntry) {
+            PrimitiveStateMap.this.remove(stateEntry.getKey(), stateEntry.getNamespace());
+        }
+
+        @Override
+        public void update(StateEntry<K, N, S> stateEntry, S newValue) {
+            PrimitiveStateMap.this.put(stateEntry.getKey(), stateEntry.getNamespace(), newValue);
+        }
+    }
+}
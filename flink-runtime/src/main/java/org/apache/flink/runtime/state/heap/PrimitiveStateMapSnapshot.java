@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.state.StateEntry;
+import org.apache.flink.runtime.state.StateSnapshotTransformer;
+import org.apache.flink.runtime.state.heap.PrimitiveStateMap.PrimitiveType;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterators;
+import java.util.stream.StreamSupport;
+
+/**
+ * This class represents the snapshot of a {@link PrimitiveStateMap}. It holds the segments of the
+ * map at the time of the snapshot, which the map copies before modifying them, and the namespaces
+ * of the map at that time. The snapshot is written in the same format as a {@link
+ * CopyOnWriteStateMapSnapshot}.
+ *
+ * @param <K> type of key
+ * @param <N> type of namespace
+ * @param <S> type of state
+ */
+public class PrimitiveStateMapSnapshot<K, N, S>
+        extends StateMapSnapshot<K, N, S, PrimitiveStateMap<K, N, S>> {
+
+    private final long[][] keySegments;
+
+    private final long[][] valueSegments;
+
+    private final int[][] namespaceSegments;
+
+    private final Object[] namespaces;
+
+    private final int size;
+
+    PrimitiveStateMapSnapshot(
+            PrimitiveStateMap<K, N, S> owningStateMap,
+            long[][] keySegments,
+            long[][] valueSegments,
+            int[][] namespaceSegments,
+            Object[] namespaces,
+            int size) {
+        super(owningStateMap);
+        this.keySegments = keySegments;
+        this.valueSegments = valueSegments;
+        this.namespaceSegments = namespaceSegments;
+        this.namespaces = namespaces;
+        this.size = size;
+    }
+
+    @Override
+    public Iterator<StateEntry<K, N, S>> getIterator(
+            @Nonnull TypeSerializer<K> keySerializer,
+            @Nonnull TypeSerializer<N> namespaceSerializer,
+            @Nonnull TypeSerializer<S> stateSerializer,
+            @Nullable StateSnapshotTransformer<S> stateSnapshotTransformer) {
+        Iterator<StateEntry<K, N, S>> iterator = entryIterator();
+        if (stateSnapshotTransformer == null) {
+            return iterator;
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, 0), false)
+                .map(entry -> entry.filterOrTransform(stateSnapshotTransformer))
+                .filter(Objects::nonNull)
+                .iterator();
+    }
+
+    @Override
+    public void writeState(
+            TypeSerializer<K> keySerializer,
+            TypeSerializer<N> namespaceSerializer,
+            TypeSerializer<S> stateSerializer,
+            @Nonnull DataOutputView dov,
+            @Nullable StateSnapshotTransformer<S> stateSnapshotTransformer)
+            throws IOException {
+        if (stateSnapshotTransformer != null
+                || PrimitiveType.of(keySerializer) != owningStateMap.getKeyType()
+                || PrimitiveType.of(stateSerializer) != owningStateMap.getStateType()) {
+            writeStateEntries(
+                    keySerializer,
+                    namespaceSerializer,
+                    stateSerializer,
+                    dov,
+                    stateSnapshotTransformer);
+            return;
+        }
+
+        final PrimitiveType keyType = owningStateMap.getKeyType();
+        final PrimitiveType stateType = owningStateMap.getStateType();
+        dov.writeInt(size);
+        for (int segment = 0; segment < namespaceSegments.length; segment++) {
+            final long[] keys = keySegments[segment];
+            final long[] values = valueSegments[segment];
+            final int[] namespaceSlots = namespaceSegments[segment];
+            for (int i = 0; i < namespaceSlots.length; i++) {
+                if (namespaceSlots[i] != 0) {
+                    @SuppressWarnings("unchecked")
+                    final N namespace = (N) namespaces[namespaceSlots[i] - 1];
+                    namespaceSerializer.serialize(namespace, dov);
+                    keyType.write(keys[i], dov);
+                    stateType.write(values[i], dov);
+                }
+            }
+        }
+    }
+
+    /** Writes the entries with the given serializers, after filtering them if needed. */
+    private void writeStateEntries(
+            TypeSerializer<K> keySerializer,
+            TypeSerializer<N> namespaceSerializer,
+            TypeSerializer<S> stateSerializer,
+            @Nonnull DataOutputView dov,
+            @Nullable StateSnapshotTransformer<S> stateSnapshotTransformer)
+            throws IOException {
+        final List<StateEntry<K, N, S>> entries = new ArrayList<>(size);
+        getIterator(keySerializer, namespaceSerializer, stateSerializer, stateSnapshotTransformer)
+                .forEachRemaining(entries::add);
+
+        dov.writeInt(entries.size());
+        for (StateEntry<K, N, S> entry : entries) {
+            namespaceSerializer.serialize(entry.getNamespace(), dov);
+            keySerializer.serialize(entry.getKey(), dov);
+            stateSerializer.serialize(entry.getState(), dov);
+        }
+    }
+
+    private Iterator<StateEntry<K, N, S>> entryIterator() {
+        return new PrimitiveStateMap.StateEntryIterator<>(
+                owningStateMap.getKeyType(),
+                owningStateMap.getStateType(),
+                keySegments,
+                valueSegments,
+                namespaceSegments,
+                namespaces,
+                size);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
+import org.apache.flink.runtime.state.StateSnapshotTransformer;
+import org.apache.flink.runtime.state.heap.PrimitiveStateMap.PrimitiveType;
+
+import javax.annotation.Nonnull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This implementation of {@link StateTable} uses {@link PrimitiveStateMap}. Like the {@link
+ * CopyOnWriteStateTable}, it supports asynchronous snapshots. It can only hold states whose keys
+ * and values are serialized by an {@link org.apache.flink.api.common.typeutils.base.IntSerializer}
+ * or {@link org.apache.flink.api.common.typeutils.base.LongSerializer}, in any namespace, see
+ * {@link #isSupported}.
+ *
+ * @param <K> type of key.
+ * @param <N> type of namespace.
+ * @param <S> type of state.
+ */
+public class PrimitiveStateTable<K, N, S> extends StateTable<K, N, S> {
+
+    /**
+     * Constructs a new {@code PrimitiveStateTable}.
+     *
+     * @param keyContext the key context.
+     * @param metaInfo the meta information, including the type serializer for state copy-on-write.
+     * @param keySerializer the serializer of the key.
+     */
+    PrimitiveStateTable(
+            InternalKeyContext<K> keyContext,
+            RegisteredKeyValueStateBackendMetaInfo<N, S> metaInfo,
+            TypeSerializer<K> keySerializer) {
+        super(keyContext, metaInfo, keySerializer);
+        checkSupported(keySerializer, metaInfo);
+    }
+
+    /**
+     * Returns true iff a state with the given meta info and key serializer can be kept in a {@link
+     * PrimitiveStateTable}.
+     */
+    static boolean isSupported(
+            TypeSerializer<?> keySerializer,
+            RegisteredKeyValueStateBackendMetaInfo<?, ?> metaInfo) {
+        return PrimitiveType.of(keySerializer) != null
+                && PrimitiveType.of(metaInfo.getStateSerializer()) != null;
+    }
+
+    private static void checkSupported(
+            TypeSerializer<?> keySerializer,
+            RegisteredKeyValueStateBackendMetaInfo<?, ?> metaInfo) {
+        if (!isSupported(keySerializer, metaInfo)) {
+            throw new IllegalArgumentException(
+                    "State "
+                            + metaInfo.getName()
+                            + " cannot be kept in a PrimitiveStateTable, it needs int or long keys and values.");
+        }
+    }
+
+    @Override
+    protected PrimitiveStateMap<K, N, S> createStateMap() {
+        return new PrimitiveStateMap<>(
+                PrimitiveType.of(getKeySerializer()), PrimitiveType.of(getStateSerializer()));
+    }
+
+    // Snapshotting
+    // ----------------------------------------------------------------------------------------------------
+
+    @Nonnull
+    @Override
+    public PrimitiveStateTableSnapshot<K, N, S> stateSnapshot() {
+        return new PrimitiveStateTableSnapshot<>(
+                this,
+                getKeySerializer().duplicate(),
+                getNamespaceSerializer().duplicate(),
+                getStateSerializer().duplicate(),
+                getMetaInfo()
+                        .getStateSnapshotTransformFactory()
+                        .createForDeserializedState()
+                        .orElse(null));
+    }
+
+    @SuppressWarnings("unchecked")
+    List<PrimitiveStateMapSnapshot<K, N, S>> getStateMapSnapshotList() {
+        List<PrimitiveStateMapSnapshot<K, N, S>> snapshotList =
+                new ArrayList<>(keyGroupedStateMaps.length);
+        for (StateMap<K, N, S> stateMap : keyGroupedStateMaps) {
+            snapshotList.add(((PrimitiveStateMap<K, N, S>) stateMap).stateSnapshot());
+        }
+        return snapshotList;
+    }
+
+    /**
+     * This class represents the snapshot of a {@link PrimitiveStateTable}. The snapshots of the
+     * state maps are taken when it is created, i.e. in the synchronous part of the checkpoint.
+     *
+     * @param <K> type of key.
+     * @param <N> type of namespace.
+     * @param <S> type of state.
+     */
+    static class PrimitiveStateTableSnapshot<K, N, S> extends AbstractStateTableSnapshot<K, N, S> {
+
+        /** The offset to the contiguous key groups. */
+        private final int keyGroupOffset;
+
+        /** Snapshots of state partitioned by key-group. */
+        private final List<PrimitiveStateMapSnapshot<K, N, S>> stateMapSnapshots;
+
+        PrimitiveStateTableSnapshot(
+                PrimitiveStateTable<K, N, S> owningTable,
+                TypeSerializer<K> localKeySerializer,
+                TypeSerializer<N> localNamespaceSerializer,
+                TypeSerializer<S> localStateSerializer,
+                StateSnapshotTransformer<S> stateSnapshotTransformer) {
+            super(
+                    owningTable,
+                    localKeySerializer,
+                    localNamespaceSerializer,
+                    localStateSerializer,
+                    stateSnapshotTransformer);
+            this.keyGroupOffset = owningTable.getKeyGroupOffset();
+            this.stateMapSnapshots = owningTable.getStateMapSnapshotList();
+        }
+
+        @Override
+        protected StateMapSnapshot<K, N, S, ? extends StateMap<K, N, S>>
+                getStateMapSnapshotForKeyGroup(int keyGroup) {
+            int indexOffset = keyGroup - keyGroupOffset;
+            return indexOffset >= 0 && indexOffset < stateMapSnapshots.size()
+                    ? stateMapSnapshots.get(indexOffset)
+                    : null;
+        }
+
+        @Override
+        public void release() {}
+    }
+}
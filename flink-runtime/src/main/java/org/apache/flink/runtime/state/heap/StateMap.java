@@ -65,6 +65,20 @@ public abstract class StateMap<K, N, S> implements Iterable<StateEntry<K, N, S>>
      */
     public abstract S get(K key, N namespace);
 
+    /**
+     * Returns the state for the composite of active key and given namespace, which the caller
+     * modifies in place. Unlike {@link #get(Object, Object)}, this counts as a modification of the
+     * mapping, e.g. for incremental snapshots.
+     *
+     * @param key the key. Not null.
+     * @param namespace the namespace. Not null.
+     * @return the state of the mapping with the specified key/namespace composite key, or {@code
+     *     null} if no mapping for the specified key is found.
+     */
+    public S getForUpdate(K key, N namespace) {
+        return get(key, namespace);
+    }
+
     /**
      * Returns whether this map contains the specified key/namespace composite key.
      *
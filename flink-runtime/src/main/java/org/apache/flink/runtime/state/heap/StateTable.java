@@ -143,6 +143,42 @@ public abstract class StateTable<K, N, S>
         return get(keyContext.getCurrentKey(), keyContext.getCurrentKeyGroupIndex(), namespace);
     }
 
+    /**
+     * Returns whether the changes of the state maps are tracked, i.e. whether modifying a state in
+     * place requires {@link #getForUpdate(Object)} instead of {@link #get(Object)}.
+     */
+    boolean isTrackingChanges() {
+        return false;
+    }
+
+    /**
+     * Returns the state of the mapping for the composite of active key and given namespace, which
+     * the caller modifies in place, see {@link StateMap#getForUpdate(Object, Object)}.
+     *
+     * @param namespace the namespace. Not null.
+     * @return the states of the mapping with the specified key/namespace composite key, or {@code
+     *     null} if no mapping for the specified key is found.
+     */
+    public S getForUpdate(N namespace) {
+        return getForUpdate(
+                keyContext.getCurrentKey(), keyContext.getCurrentKeyGroupIndex(), namespace);
+    }
+
+    /**
+     * Returns the state of the mapping for the composite of the given key and namespace, which the
+     * caller modifies in place, see {@link StateMap#getForUpdate(Object, Object)}.
+     *
+     * @param key the key. Not null.
+     * @param namespace the namespace. Not null.
+     * @return the states of the mapping with the specified key/namespace composite key, or {@code
+     *     null} if no mapping for the specified key is found.
+     */
+    public S getForUpdate(K key, N namespace) {
+        int keyGroup =
+                KeyGroupRangeAssignment.assignToKeyGroup(key, keyContext.getNumberOfKeyGroups());
+        return getForUpdate(key, keyGroup, namespace);
+    }
+
     /**
      * Returns whether this table contains a mapping for the composite of active key and given
      * namespace.
@@ -261,6 +297,11 @@ public abstract class StateTable<K, N, S>
         return getMapForKeyGroup(keyGroupIndex).get(key, namespace);
     }
 
+    private S getForUpdate(K key, int keyGroupIndex, N namespace) {
+        checkKeyNamespacePreconditions(key, namespace);
+        return getMapForKeyGroup(keyGroupIndex).getForUpdate(key, namespace);
+    }
+
     private boolean containsKey(K key, int keyGroupIndex, N namespace) {
         checkKeyNamespacePreconditions(key, namespace);
         return getMapForKeyGroup(keyGroupIndex).containsKey(key, namespace);
@@ -272,11 +313,6 @@ public abstract class StateTable<K, N, S>
         Preconditions.checkNotNull(namespace, "Provided namespace is null.");
     }
 
-    private void remove(K key, int keyGroupIndex, N namespace) {
-        checkKeyNamespacePreconditions(key, namespace);
-        getMapForKeyGroup(keyGroupIndex).remove(key, namespace);
-    }
-
     private S removeAndGetOld(K key, int keyGroupIndex, N namespace) {
         checkKeyNamespacePreconditions(key, namespace);
         return getMapForKeyGroup(keyGroupIndex).removeAndGetOld(key, namespace);
@@ -340,6 +376,11 @@ public abstract class StateTable<K, N, S>
         getMapForKeyGroup(keyGroup).put(key, namespace, state);
     }
 
+    public void remove(K key, int keyGroup, N namespace) {
+        checkKeyNamespacePreconditions(key, namespace);
+        getMapForKeyGroup(keyGroup).remove(key, namespace);
+    }
+
     @Override
     public Iterator<StateEntry<K, N, S>> iterator() {
         return Arrays.stream(keyGroupedStateMaps)
@@ -66,6 +66,40 @@ public class StateTableByKeyGroupReaders {
         }
     }
 
+    /**
+     * Creates a new StateSnapshotKeyGroupReader that applies the changes of an incremental
+     * snapshot, as written by {@link CopyOnWriteStateMapSnapshot#writeStateDelta}, to the given
+     * table.
+     *
+     * @param <K> type of key.
+     * @param <N> type of namespace.
+     * @param <S> type of state.
+     * @param stateTable the {@link StateTable} to which the changes are applied.
+     * @return the reader.
+     */
+    static <K, N, S> StateSnapshotKeyGroupReader deltaReader(StateTable<K, N, S> stateTable) {
+        return (inView, keyGroupId) -> {
+            final TypeSerializer<N> namespaceSerializer = stateTable.getNamespaceSerializer();
+            final TypeSerializer<S> stateSerializer = stateTable.getStateSerializer();
+            final TypeSerializer<K> keySerializer = stateTable.keySerializer;
+
+            int numRemovedMappings = inView.readInt();
+            for (int i = 0; i < numRemovedMappings; i++) {
+                N namespace = namespaceSerializer.deserialize(inView);
+                K key = keySerializer.deserialize(inView);
+                stateTable.remove(key, keyGroupId, namespace);
+            }
+
+            int numChangedMappings = inView.readInt();
+            for (int i = 0; i < numChangedMappings; i++) {
+                N namespace = namespaceSerializer.deserialize(inView);
+                K key = keySerializer.deserialize(inView);
+                S state = stateSerializer.deserialize(inView);
+                stateTable.put(key, keyGroupId, namespace, state);
+            }
+        };
+    }
+
     private static <K, N, S> StateSnapshotKeyGroupReader createV2PlusReader(
             StateTable<K, N, S> stateTable) {
         final TypeSerializer<N> namespaceSerializer = stateTable.getNamespaceSerializer();
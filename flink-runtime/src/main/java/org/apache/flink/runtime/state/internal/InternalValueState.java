@@ -20,6 +20,9 @@ package org.apache.flink.runtime.state.internal;
 
 import org.apache.flink.api.common.state.ValueState;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * The peer to the {@link ValueState} in the internal state type hierarchy.
  *
@@ -29,4 +32,17 @@ import org.apache.flink.api.common.state.ValueState;
  * @param <N> The type of the namespace
  * @param <T> The type of elements in the list
  */
-public interface InternalValueState<K, N, T> extends InternalKvState<K, N, T>, ValueState<T> {}
+public interface InternalValueState<K, N, T> extends InternalKvState<K, N, T>, ValueState<T> {
+
+    /**
+     * Looks up the values of the given keys in the current namespace, with a single batched access
+     * to the backend if the backend supports it. The current key of the backend is not changed.
+     * Keys without a value are not contained in the returned map. Default values of the state
+     * descriptor are not returned.
+     *
+     * @param keys The keys to look up
+     * @return The existing values of the given keys
+     * @throws Exception Thrown if the system cannot access the state.
+     */
+    Map<K, T> getAll(Collection<K> keys) throws Exception;
+}
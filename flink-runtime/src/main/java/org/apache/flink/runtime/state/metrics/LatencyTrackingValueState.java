@@ -22,6 +22,8 @@ import org.apache.flink.metrics.MetricGroup;
 import org.apache.flink.runtime.state.internal.InternalValueState;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
 
 /**
  * This class wraps value state with latency tracking logic.
@@ -63,6 +65,11 @@ class LatencyTrackingValueState<K, N, T>
         }
     }
 
+    @Override
+    public Map<K, T> getAll(Collection<K> keys) throws Exception {
+        return original.getAll(keys);
+    }
+
     @Override
     public void update(T value) throws IOException {
         if (latencyTrackingStateMetric.trackLatencyOnUpdate()) {
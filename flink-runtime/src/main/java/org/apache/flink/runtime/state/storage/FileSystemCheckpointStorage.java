@@ -105,6 +105,12 @@ public class FileSystemCheckpointStorage
      */
     private final int writeBufferSize;
 
+    /**
+     * The maximum size of files into which the exclusive state of a task's checkpoint is merged.
+     * Zero means that merging is disabled, which is the case until configured.
+     */
+    private final long fileMergingMaxFileSize;
+
     /**
      * Creates a new checkpoint storage that stores its checkpoint data in the file system and
      * location defined by the given URI.
@@ -211,6 +217,7 @@ public class FileSystemCheckpointStorage
 
         this.fileStateThreshold = fileStateSizeThreshold;
         this.writeBufferSize = writeBufferSize;
+        this.fileMergingMaxFileSize = 0L;
         this.location =
                 ExternalizedSnapshotLocation.newBuilder()
                         .withCheckpointPath(checkpointDirectory)
@@ -256,6 +263,12 @@ public class FileSystemCheckpointStorage
                         : configuration.get(CheckpointingOptions.FS_WRITE_BUFFER_SIZE);
 
         this.writeBufferSize = Math.max(bufferSize, this.fileStateThreshold);
+        this.fileMergingMaxFileSize =
+                configuration.get(CheckpointingOptions.FS_FILE_MERGING_ENABLED)
+                        ? configuration
+                                .get(CheckpointingOptions.FS_FILE_MERGING_MAX_FILE_SIZE)
+                                .getBytes()
+                        : 0L;
         this.location =
                 ExternalizedSnapshotLocation.newBuilder()
                         .withCheckpointPath(original.location.getBaseCheckpointPath())
@@ -315,12 +328,15 @@ public class FileSystemCheckpointStorage
     @Override
     public CheckpointStorageAccess createCheckpointStorage(JobID jobId) throws IOException {
         checkNotNull(jobId, "jobId");
+        final Path checkpointPath = location.getBaseCheckpointPath();
         return new FsCheckpointStorageAccess(
-                location.getBaseCheckpointPath(),
+                checkpointPath.getFileSystem(),
+                checkpointPath,
                 location.getBaseSavepointPath(),
                 jobId,
                 getMinFileSizeThreshold(),
-                getWriteBufferSize());
+                getWriteBufferSize(),
+                fileMergingMaxFileSize);
     }
 
     /**
@@ -371,4 +387,14 @@ public class FileSystemCheckpointStorage
                 ? writeBufferSize
                 : CheckpointingOptions.FS_WRITE_BUFFER_SIZE.defaultValue();
     }
+
+    /**
+     * Gets the maximum size of files into which the exclusive state of a task's checkpoint is
+     * merged, see {@link CheckpointingOptions#FS_FILE_MERGING_ENABLED}.
+     *
+     * @return The maximum merged file size in bytes, or zero if merging is disabled.
+     */
+    public long getFileMergingMaxFileSize() {
+        return fileMergingMaxFileSize;
+    }
 }
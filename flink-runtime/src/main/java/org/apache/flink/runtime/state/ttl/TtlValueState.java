@@ -24,6 +24,9 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * This class wraps value state with TTL logic.
@@ -45,6 +48,25 @@ class TtlValueState<K, N, T>
         return getWithTtlCheckAndUpdate(original::value, original::update);
     }
 
+    /**
+     * Omits the expired values like {@link #value()}. As the values do not belong to the current
+     * key, the expired values are not cleared and the timestamps of the returned values are not
+     * renewed.
+     */
+    @Override
+    public Map<K, T> getAll(Collection<K> keys) throws Exception {
+        accessCallback.run();
+        Map<K, TtlValue<T>> ttlValues = original.getAll(keys);
+        Map<K, T> result = new HashMap<>(ttlValues.size());
+        for (Map.Entry<K, TtlValue<T>> entry : ttlValues.entrySet()) {
+            T value = getUnexpired(entry.getValue());
+            if (value != null) {
+                result.put(entry.getKey(), value);
+            }
+        }
+        return result;
+    }
+
     @Override
     public void update(T value) throws IOException {
         accessCallback.run();
@@ -21,6 +21,7 @@ package org.apache.flink.runtime.taskexecutor;
 import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.api.common.JobID;
 import org.apache.flink.api.common.time.Time;
+import org.apache.flink.configuration.CheckpointingOptions;
 import org.apache.flink.management.jmx.JMXService;
 import org.apache.flink.runtime.accumulators.AccumulatorSnapshot;
 import org.apache.flink.runtime.blob.BlobCacheService;
@@ -33,6 +34,8 @@ import org.apache.flink.runtime.checkpoint.CheckpointOptions;
 import org.apache.flink.runtime.checkpoint.CheckpointType;
 import org.apache.flink.runtime.checkpoint.CheckpointType.PostCheckpointAction;
 import org.apache.flink.runtime.checkpoint.JobManagerTaskRestore;
+import org.apache.flink.runtime.checkpoint.TaskStateSnapshot;
+import org.apache.flink.runtime.checkpoint.channel.SequentialChannelStateReaderImpl;
 import org.apache.flink.runtime.clusterframework.types.AllocationID;
 import org.apache.flink.runtime.clusterframework.types.ResourceID;
 import org.apache.flink.runtime.clusterframework.types.ResourceProfile;
@@ -691,6 +694,20 @@ public class TaskExecutor extends RpcEndpoint implements TaskExecutorGateway {
 
             final JobManagerTaskRestore taskRestore = tdd.getTaskRestore();
 
+            final SequentialChannelStateReaderImpl channelStateReader =
+                    new SequentialChannelStateReaderImpl(
+                            taskRestore == null
+                                    ? new TaskStateSnapshot()
+                                    : taskRestore.getTaskStateSnapshot(),
+                            taskManagerConfiguration
+                                    .getConfiguration()
+                                    .get(CheckpointingOptions.CHANNEL_STATE_RECOVERY_NUM_THREADS),
+                            taskManagerConfiguration
+                                    .getConfiguration()
+                                    .get(CheckpointingOptions.CHANNEL_STATE_RECOVERY_READ_AHEAD)
+                                    .getBytes(),
+                            taskMetricGroup);
+
             final TaskStateManager taskStateManager =
                     new TaskStateManagerImpl(
                             jobId,
@@ -698,7 +715,12 @@ public class TaskExecutor extends RpcEndpoint implements TaskExecutorGateway {
                             localStateStore,
                             changelogStorage,
                             taskRestore,
-                            checkpointResponder);
+                            checkpointResponder,
+                            channelStateReader,
+                            taskExecutorServices.getChannelStateWriterPool(),
+                            taskExecutorServices.getCheckpointIOScheduler(),
+                            taskExecutorServices.getCheckpointFilePools(),
+                            taskExecutorServices.getSharedStateUploads());
 
             MemoryManager memoryManager;
             try {
@@ -1871,6 +1893,9 @@ public class TaskExecutor extends RpcEndpoint implements TaskExecutorGateway {
                             closeJob(job, cause);
                         });
         changelogStoragesManager.releaseStateChangelogStorageForJob(jobId);
+        if (taskExecutorServices.getSharedStateUploads() != null) {
+            taskExecutorServices.getSharedStateUploads().releaseJob(jobId);
+        }
         currentSlotOfferPerJob.remove(jobId);
     }
 
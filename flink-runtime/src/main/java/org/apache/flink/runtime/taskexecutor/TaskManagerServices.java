@@ -23,6 +23,7 @@ import org.apache.flink.configuration.CoreOptions;
 import org.apache.flink.metrics.MetricGroup;
 import org.apache.flink.runtime.blob.PermanentBlobService;
 import org.apache.flink.runtime.broadcast.BroadcastVariableManager;
+import org.apache.flink.runtime.checkpoint.channel.ChannelStateWriteRequestExecutorPool;
 import org.apache.flink.runtime.clusterframework.types.AllocationID;
 import org.apache.flink.runtime.execution.librarycache.BlobLibraryCacheManager;
 import org.apache.flink.runtime.execution.librarycache.LibraryCacheManager;
@@ -34,8 +35,11 @@ import org.apache.flink.runtime.rpc.FatalErrorHandler;
 import org.apache.flink.runtime.shuffle.ShuffleEnvironment;
 import org.apache.flink.runtime.shuffle.ShuffleEnvironmentContext;
 import org.apache.flink.runtime.shuffle.ShuffleServiceLoader;
+import org.apache.flink.runtime.state.CheckpointIOScheduler;
+import org.apache.flink.runtime.state.SharedStateUploads;
 import org.apache.flink.runtime.state.TaskExecutorLocalStateStoresManager;
 import org.apache.flink.runtime.state.TaskExecutorStateChangelogStoragesManager;
+import org.apache.flink.runtime.state.filesystem.MergingCheckpointFilePools;
 import org.apache.flink.runtime.taskexecutor.slot.DefaultTimerService;
 import org.apache.flink.runtime.taskexecutor.slot.TaskSlotTable;
 import org.apache.flink.runtime.taskexecutor.slot.TaskSlotTableImpl;
@@ -49,6 +53,8 @@ import org.apache.flink.util.Preconditions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import java.io.File;
 import java.io.IOException;
 import java.util.concurrent.Executor;
@@ -81,6 +87,10 @@ public class TaskManagerServices {
     private final TaskEventDispatcher taskEventDispatcher;
     private final ExecutorService ioExecutor;
     private final LibraryCacheManager libraryCacheManager;
+    @Nullable private final ChannelStateWriteRequestExecutorPool channelStateWriterPool;
+    @Nullable private final CheckpointIOScheduler checkpointIOScheduler;
+    @Nullable private final MergingCheckpointFilePools checkpointFilePools;
+    @Nullable private final SharedStateUploads sharedStateUploads;
 
     TaskManagerServices(
             UnresolvedTaskManagerLocation unresolvedTaskManagerLocation,
@@ -96,7 +106,11 @@ public class TaskManagerServices {
             TaskExecutorStateChangelogStoragesManager taskManagerChangelogManager,
             TaskEventDispatcher taskEventDispatcher,
             ExecutorService ioExecutor,
-            LibraryCacheManager libraryCacheManager) {
+            LibraryCacheManager libraryCacheManager,
+            @Nullable ChannelStateWriteRequestExecutorPool channelStateWriterPool,
+            @Nullable CheckpointIOScheduler checkpointIOScheduler,
+            @Nullable MergingCheckpointFilePools checkpointFilePools,
+            @Nullable SharedStateUploads sharedStateUploads) {
 
         this.unresolvedTaskManagerLocation =
                 Preconditions.checkNotNull(unresolvedTaskManagerLocation);
@@ -113,6 +127,10 @@ public class TaskManagerServices {
         this.taskEventDispatcher = Preconditions.checkNotNull(taskEventDispatcher);
         this.ioExecutor = Preconditions.checkNotNull(ioExecutor);
         this.libraryCacheManager = Preconditions.checkNotNull(libraryCacheManager);
+        this.channelStateWriterPool = channelStateWriterPool;
+        this.checkpointIOScheduler = checkpointIOScheduler;
+        this.checkpointFilePools = checkpointFilePools;
+        this.sharedStateUploads = sharedStateUploads;
     }
 
     // --------------------------------------------------------------------------------------------
@@ -175,6 +193,26 @@ public class TaskManagerServices {
         return libraryCacheManager;
     }
 
+    @Nullable
+    public ChannelStateWriteRequestExecutorPool getChannelStateWriterPool() {
+        return channelStateWriterPool;
+    }
+
+    @Nullable
+    public CheckpointIOScheduler getCheckpointIOScheduler() {
+        return checkpointIOScheduler;
+    }
+
+    @Nullable
+    public MergingCheckpointFilePools getCheckpointFilePools() {
+        return checkpointFilePools;
+    }
+
+    @Nullable
+    public SharedStateUploads getSharedStateUploads() {
+        return sharedStateUploads;
+    }
+
     // --------------------------------------------------------------------------------------------
     //  Shut down method
     // --------------------------------------------------------------------------------------------
@@ -238,6 +276,22 @@ public class TaskManagerServices {
             exception = ExceptionUtils.firstOrSuppressed(e, exception);
         }
 
+        if (channelStateWriterPool != null) {
+            try {
+                channelStateWriterPool.close();
+            } catch (Exception e) {
+                exception = ExceptionUtils.firstOrSuppressed(e, exception);
+            }
+        }
+
+        if (sharedStateUploads != null) {
+            try {
+                sharedStateUploads.close();
+            } catch (Exception e) {
+                exception = ExceptionUtils.firstOrSuppressed(e, exception);
+            }
+        }
+
         taskEventDispatcher.clearAll();
 
         if (exception != null) {
@@ -368,7 +422,14 @@ public class TaskManagerServices {
                 changelogStoragesManager,
                 taskEventDispatcher,
                 ioExecutor,
-                libraryCacheManager);
+                libraryCacheManager,
+                ChannelStateWriteRequestExecutorPool.fromConfiguration(
+                        taskManagerServicesConfiguration.getConfiguration()),
+                CheckpointIOScheduler.fromConfiguration(
+                        taskManagerServicesConfiguration.getConfiguration(),
+                        taskManagerMetricGroup),
+                new MergingCheckpointFilePools(),
+                new SharedStateUploads());
     }
 
     private static TaskSlotTable<Task> createTaskSlotTable(
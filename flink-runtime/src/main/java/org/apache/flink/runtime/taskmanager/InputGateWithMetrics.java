@@ -102,6 +102,11 @@ public class InputGateWithMetrics extends IndexedInputGate {
         inputGate.announceBufferSize(bufferSize);
     }
 
+    @Override
+    public void announceDesiredBuffers(int numBuffers) throws IOException {
+        inputGate.announceDesiredBuffers(numBuffers);
+    }
+
     @Override
     public boolean isFinished() {
         return inputGate.isFinished();
@@ -25,6 +25,7 @@ import org.apache.flink.configuration.NettyShuffleEnvironmentOptions;
 import org.apache.flink.configuration.TaskManagerOptions;
 import org.apache.flink.runtime.io.network.netty.NettyConfig;
 import org.apache.flink.runtime.io.network.partition.BoundedBlockingSubpartitionType;
+import org.apache.flink.runtime.io.network.partition.PartitionedFileReadMode;
 import org.apache.flink.runtime.util.ConfigurationParserUtils;
 import org.apache.flink.util.Preconditions;
 
@@ -64,10 +65,15 @@ public class NettyShuffleEnvironmentConfiguration {
      */
     private final int floatingNetworkBuffersPerGate;
 
+    /** Maximum number of exclusive network buffers of all input channels of an input gate. */
+    private final int maxExclusiveBuffersPerGate;
+
     private final int sortShuffleMinBuffers;
 
     private final int sortShuffleMinParallelism;
 
+    private final PartitionedFileReadMode sortShuffleReadMode;
+
     /** Size of direct memory to be allocated for blocking shuffle data read. */
     private final long batchShuffleReadMemoryBytes;
 
@@ -104,7 +110,9 @@ public class NettyShuffleEnvironmentConfiguration {
             int maxBuffersPerChannel,
             long batchShuffleReadMemoryBytes,
             int sortShuffleMinBuffers,
-            int sortShuffleMinParallelism) {
+            int sortShuffleMinParallelism,
+            PartitionedFileReadMode sortShuffleReadMode,
+            int maxExclusiveBuffersPerGate) {
 
         this.numNetworkBuffers = numNetworkBuffers;
         this.networkBufferSize = networkBufferSize;
@@ -123,6 +131,8 @@ public class NettyShuffleEnvironmentConfiguration {
         this.batchShuffleReadMemoryBytes = batchShuffleReadMemoryBytes;
         this.sortShuffleMinBuffers = sortShuffleMinBuffers;
         this.sortShuffleMinParallelism = sortShuffleMinParallelism;
+        this.sortShuffleReadMode = Preconditions.checkNotNull(sortShuffleReadMode);
+        this.maxExclusiveBuffersPerGate = maxExclusiveBuffersPerGate;
     }
 
     // ------------------------------------------------------------------------
@@ -151,6 +161,10 @@ public class NettyShuffleEnvironmentConfiguration {
         return floatingNetworkBuffersPerGate;
     }
 
+    public int maxExclusiveBuffersPerGate() {
+        return maxExclusiveBuffersPerGate;
+    }
+
     public long batchShuffleReadMemoryBytes() {
         return batchShuffleReadMemoryBytes;
     }
@@ -163,6 +177,10 @@ public class NettyShuffleEnvironmentConfiguration {
         return sortShuffleMinParallelism;
     }
 
+    public PartitionedFileReadMode sortShuffleReadMode() {
+        return sortShuffleReadMode;
+    }
+
     public Duration getRequestSegmentsTimeout() {
         return requestSegmentsTimeout;
     }
@@ -250,6 +268,10 @@ public class NettyShuffleEnvironmentConfiguration {
                 configuration.getInteger(
                         NettyShuffleEnvironmentOptions.NETWORK_MAX_BUFFERS_PER_CHANNEL);
 
+        int maxExclusiveBuffersPerGate =
+                configuration.getInteger(
+                        NettyShuffleEnvironmentOptions.NETWORK_MAX_EXCLUSIVE_BUFFERS_PER_GATE);
+
         long batchShuffleReadMemoryBytes =
                 configuration.get(TaskManagerOptions.NETWORK_BATCH_SHUFFLE_READ_MEMORY).getBytes();
 
@@ -259,6 +281,10 @@ public class NettyShuffleEnvironmentConfiguration {
         int sortShuffleMinParallelism =
                 configuration.getInteger(
                         NettyShuffleEnvironmentOptions.NETWORK_SORT_SHUFFLE_MIN_PARALLELISM);
+        PartitionedFileReadMode sortShuffleReadMode =
+                PartitionedFileReadMode.fromString(
+                        configuration.getString(
+                                NettyShuffleEnvironmentOptions.NETWORK_SORT_SHUFFLE_READ_MODE));
 
         boolean isNetworkDetailedMetrics =
                 configuration.getBoolean(NettyShuffleEnvironmentOptions.NETWORK_DETAILED_METRICS);
@@ -297,7 +323,9 @@ public class NettyShuffleEnvironmentConfiguration {
                 maxBuffersPerChannel,
                 batchShuffleReadMemoryBytes,
                 sortShuffleMinBuffers,
-                sortShuffleMinParallelism);
+                sortShuffleMinParallelism,
+                sortShuffleReadMode,
+                maxExclusiveBuffersPerGate);
     }
 
     /**
@@ -434,6 +462,8 @@ public class NettyShuffleEnvironmentConfiguration {
         result = 31 * result + Objects.hashCode(batchShuffleReadMemoryBytes);
         result = 31 * result + sortShuffleMinBuffers;
         result = 31 * result + sortShuffleMinParallelism;
+        result = 31 * result + sortShuffleReadMode.hashCode();
+        result = 31 * result + maxExclusiveBuffersPerGate;
         return result;
     }
 
@@ -456,6 +486,8 @@ public class NettyShuffleEnvironmentConfiguration {
                     && this.batchShuffleReadMemoryBytes == that.batchShuffleReadMemoryBytes
                     && this.sortShuffleMinBuffers == that.sortShuffleMinBuffers
                     && this.sortShuffleMinParallelism == that.sortShuffleMinParallelism
+                    && this.sortShuffleReadMode == that.sortShuffleReadMode
+                    && this.maxExclusiveBuffersPerGate == that.maxExclusiveBuffersPerGate
                     && this.requestSegmentsTimeout.equals(that.requestSegmentsTimeout)
                     && (nettyConfig != null
                             ? nettyConfig.equals(that.nettyConfig)
@@ -501,6 +533,10 @@ public class NettyShuffleEnvironmentConfiguration {
                 + sortShuffleMinBuffers
                 + ", sortShuffleMinParallelism="
                 + sortShuffleMinParallelism
+                + ", sortShuffleReadMode="
+                + sortShuffleReadMode
+                + ", maxExclusiveBuffersPerGate="
+                + maxExclusiveBuffersPerGate
                 + '}';
     }
 }
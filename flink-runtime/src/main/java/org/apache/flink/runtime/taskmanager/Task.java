@@ -24,6 +24,7 @@ import org.apache.flink.api.common.JobID;
 import org.apache.flink.api.common.TaskInfo;
 import org.apache.flink.api.common.cache.DistributedCache;
 import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.NettyShuffleEnvironmentOptions;
 import org.apache.flink.configuration.TaskManagerOptions;
 import org.apache.flink.core.fs.FileSystemSafetyNet;
 import org.apache.flink.core.fs.Path;
@@ -51,6 +52,7 @@ import org.apache.flink.runtime.io.disk.iomanager.IOManager;
 import org.apache.flink.runtime.io.network.NettyShuffleEnvironment;
 import org.apache.flink.runtime.io.network.TaskEventDispatcher;
 import org.apache.flink.runtime.io.network.api.writer.ResultPartitionWriter;
+import org.apache.flink.runtime.io.network.buffer.BufferPool;
 import org.apache.flink.runtime.io.network.partition.PartitionProducerStateProvider;
 import org.apache.flink.runtime.io.network.partition.PipelinedResultPartition;
 import org.apache.flink.runtime.io.network.partition.PipelinedSubpartition;
@@ -74,6 +76,7 @@ import org.apache.flink.runtime.metrics.groups.TaskMetricGroup;
 import org.apache.flink.runtime.operators.coordination.OperatorEvent;
 import org.apache.flink.runtime.operators.coordination.TaskNotRunningException;
 import org.apache.flink.runtime.query.TaskKvStateRegistry;
+import org.apache.flink.runtime.shuffle.NettyShuffleUtils;
 import org.apache.flink.runtime.shuffle.ShuffleEnvironment;
 import org.apache.flink.runtime.shuffle.ShuffleIOOwnerContext;
 import org.apache.flink.runtime.state.TaskStateManager;
@@ -96,6 +99,7 @@ import org.apache.flink.util.clock.SystemClock;
 import org.apache.flink.util.concurrent.FutureUtils;
 import org.apache.flink.util.function.RunnableWithException;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -461,7 +465,8 @@ public class Task
 
     public void updateSubpartitionParallelism(
             final Map<IntermediateResultPartitionID, Integer>
-                    partitionDescriptors) { // the upstreams of the scaled task
+                    partitionDescriptors) // the upstreams of the scaled task
+            throws IOException {
         // adjust partition writer
         for (ResultPartitionWriter partitionWriter : consumableNotifyingPartitionWriters) {
             if (partitionWriter instanceof PipelinedResultPartition) {
@@ -483,7 +488,9 @@ public class Task
                     if (i < partition.subpartitions.length) {
                         newSubpartitions[i] = partition.subpartitions[i];
                     } else {
-                        newSubpartitions[i] = new PipelinedSubpartition(i, 2, partition);
+                        newSubpartitions[i] =
+                                new PipelinedSubpartition(
+                                        i, getConfiguredNetworkBuffersPerChannel(), partition);
                     }
                 }
                 if (partition.subpartitions.length < newSubpartitions.length) {
@@ -507,6 +514,14 @@ public class Task
                 partition.unicastBufferBuilders =
                         Arrays.copyOf(partition.unicastBufferBuilders, numOfSubpartitions);
                 partition.numSubpartitions = numOfSubpartitions;
+
+                try {
+                    resizePartitionBufferPool(partition);
+                } catch (IOException e) {
+                    // the partition already has the new subpartitions but no buffers for them
+                    failExternally(e);
+                    throw e;
+                }
             }
         }
 
@@ -514,6 +529,44 @@ public class Task
         invokable.reloadRecordWriters();
     }
 
+    /**
+     * Returns the configured number of exclusive buffers per channel which new subpartitions
+     * announce to their receivers, falling back to the default if no netty shuffle is used.
+     */
+    private int getConfiguredNetworkBuffersPerChannel() {
+        return shuffleEnvironment != null
+                ? shuffleEnvironment.getConfiguration().networkBuffersPerChannel()
+                : NettyShuffleEnvironmentOptions.NETWORK_BUFFERS_PER_CHANNEL.defaultValue();
+    }
+
+    /**
+     * Adapts the minimum and maximum size of the buffer pool of a rescaled partition to its new
+     * number of subpartitions, so that a scaled-out partition is not starved of buffers and a
+     * scaled-in partition returns the buffers it does not need any longer.
+     *
+     * @throws IOException if not enough network buffers are left for the scaled-out partition
+     */
+    private void resizePartitionBufferPool(PipelinedResultPartition partition) throws IOException {
+        BufferPool bufferPool = partition.getBufferPool();
+        if (shuffleEnvironment == null || bufferPool == null) {
+            return;
+        }
+
+        NettyShuffleEnvironmentConfiguration config = shuffleEnvironment.getConfiguration();
+        Pair<Integer, Integer> minMaxBuffers =
+                NettyShuffleUtils.getMinMaxNetworkBuffersPerResultPartition(
+                        config.networkBuffersPerChannel(),
+                        config.floatingNetworkBuffersPerGate(),
+                        config.sortShuffleMinParallelism(),
+                        config.sortShuffleMinBuffers(),
+                        partition.getNumberOfSubpartitions(),
+                        partition.getPartitionType());
+        shuffleEnvironment
+                .getNetworkBufferPool()
+                .updateBufferPoolSize(
+                        bufferPool, minMaxBuffers.getLeft(), minMaxBuffers.getRight());
+    }
+
     public CompletableFuture<Void> updateInputChannels(
             List<InputGateDeploymentDescriptor>
                     inputGateDeploymentDescriptors) { // the second downstreams of the scaled task
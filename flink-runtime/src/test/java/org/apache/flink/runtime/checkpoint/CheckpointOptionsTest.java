@@ -140,6 +140,32 @@ public class CheckpointOptionsTest {
         assertReversable(CheckpointOptions.notExactlyOnce(SAVEPOINT, location), false);
     }
 
+    @Test
+    public void testRescaleSavepointIsUnalignedIfEnabled() {
+        CheckpointStorageLocationReference location =
+                CheckpointStorageLocationReference.getDefault();
+        String snapshotGroup = "rescale-0a1b=2:3c4d,5e6f";
+
+        CheckpointOptions unaligned =
+                CheckpointOptions.forConfig(SAVEPOINT, location, true, true, 10, snapshotGroup);
+        assertTimeoutable(unaligned, true, false, NO_ALIGNED_CHECKPOINT_TIME_OUT);
+        assertEquals(SAVEPOINT, unaligned.getCheckpointType());
+        assertTrue(unaligned.isRescaling());
+        assertReversable(unaligned, true);
+        assertEquals(snapshotGroup, unaligned.withUnalignedUnsupported().getSnapshotGroup());
+
+        CheckpointOptions aligned =
+                CheckpointOptions.forConfig(SAVEPOINT, location, true, false, 10, snapshotGroup);
+        assertTimeoutable(aligned, false, false, NO_ALIGNED_CHECKPOINT_TIME_OUT);
+        assertTrue(aligned.isRescaling());
+
+        assertTimeoutable(
+                CheckpointOptions.forConfig(SAVEPOINT, location, true, true, 10, "group"),
+                false,
+                false,
+                NO_ALIGNED_CHECKPOINT_TIME_OUT);
+    }
+
     private void assertReversable(CheckpointOptions options, boolean forceHasEffect) {
         assertEquals(
                 "all non-forced options support unaligned mode",
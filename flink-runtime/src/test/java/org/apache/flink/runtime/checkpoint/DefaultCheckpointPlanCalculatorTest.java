@@ -53,6 +53,8 @@ import static java.util.EnumSet.complementOf;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
@@ -198,6 +200,43 @@ public class DefaultCheckpointPlanCalculatorTest {
         }
     }
 
+    @Test
+    public void testPlanIsRecalculatedOnlyAfterTopologyChanges() throws Exception {
+        ExecutionGraph graph =
+                createExecutionGraph(
+                        Arrays.asList(
+                                new VertexDeclaration(2, Collections.emptySet()),
+                                new VertexDeclaration(2, Collections.emptySet())),
+                        Collections.singletonList(
+                                new EdgeDeclaration(0, 1, DistributionPattern.POINTWISE)));
+        DefaultCheckpointPlanCalculator planCalculator = createCheckpointPlanCalculator(graph);
+
+        CheckpointPlan first = planCalculator.calculateCheckpointPlan().get();
+        CheckpointPlan second = planCalculator.calculateCheckpointPlan().get();
+
+        // each checkpoint gets its own plan, but the task lists are reused
+        assertNotSame(first, second);
+        assertSame(first.getTasksToTrigger(), second.getTasksToTrigger());
+        assertSame(first.getTasksToWaitFor(), second.getTasksToWaitFor());
+        assertSame(first.getTasksToCommitTo(), second.getTasksToCommitTo());
+
+        List<Execution> tasksToTrigger = new ArrayList<>(first.getTasksToTrigger());
+        List<Execution> tasksToWaitFor = new ArrayList<>(first.getTasksToWaitFor());
+        List<ExecutionVertex> tasksToCommitTo = new ArrayList<>(first.getTasksToCommitTo());
+
+        chooseJobVertex(graph, 0).getTaskVertices()[0].getCurrentExecutionAttempt().markFinished();
+
+        CheckpointPlan afterFinish = planCalculator.calculateCheckpointPlan().get();
+        assertEquals(3, afterFinish.getTasksToWaitFor().size());
+        assertEquals(1, afterFinish.getFinishedTasks().size());
+
+        // the plans of earlier checkpoints are not changed by the recalculation
+        assertEquals(tasksToTrigger, first.getTasksToTrigger());
+        assertEquals(tasksToWaitFor, first.getTasksToWaitFor());
+        assertEquals(tasksToCommitTo, first.getTasksToCommitTo());
+        assertEquals(4, first.getTasksToCommitTo().size());
+    }
+
     private void transitVertexToState(
             ExecutionGraph graph, JobVertexID jobVertexID, ExecutionState state) {
         Arrays.stream(graph.getJobVertex(jobVertexID).getTaskVertices())
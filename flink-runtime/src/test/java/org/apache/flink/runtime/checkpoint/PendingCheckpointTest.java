@@ -22,6 +22,7 @@ import org.apache.flink.api.common.JobID;
 import org.apache.flink.core.fs.Path;
 import org.apache.flink.core.fs.local.LocalFileSystem;
 import org.apache.flink.core.io.SimpleVersionedSerializer;
+import org.apache.flink.core.testutils.CheckedThread;
 import org.apache.flink.runtime.OperatorIDPair;
 import org.apache.flink.runtime.checkpoint.CheckpointCoordinatorTestingUtils.StringSerializer;
 import org.apache.flink.runtime.checkpoint.PendingCheckpoint.TaskAcknowledgeResult;
@@ -578,6 +579,66 @@ public class PendingCheckpointTest {
                 contains(ACK_TASKS.get(0).getVertex()));
     }
 
+    /** Tests that tasks can acknowledge the same checkpoint concurrently. */
+    @Test
+    public void testConcurrentAcknowledgements() throws Exception {
+        final int numTasks = 16;
+        final ExecutionJobVertex jobVertex = mock(ExecutionJobVertex.class);
+        when(jobVertex.getOperatorIDs())
+                .thenReturn(Collections.singletonList(OperatorIDPair.generatedIDOnly(OPERATOR_ID)));
+
+        final List<Execution> ackTasks = new ArrayList<>();
+        for (int i = 0; i < numTasks; i++) {
+            ExecutionVertex vertex = mock(ExecutionVertex.class);
+            when(vertex.getMaxParallelism()).thenReturn(MAX_PARALLELISM);
+            when(vertex.getTotalNumberOfParallelSubtasks()).thenReturn(numTasks);
+            when(vertex.getParallelSubtaskIndex()).thenReturn(i);
+            when(vertex.getJobVertex()).thenReturn(jobVertex);
+
+            Execution execution = mock(Execution.class);
+            when(execution.getAttemptId()).thenReturn(new ExecutionAttemptID());
+            when(execution.getVertex()).thenReturn(vertex);
+            ackTasks.add(execution);
+        }
+
+        final PendingCheckpoint pending =
+                createPendingCheckpoint(new RecordCheckpointPlan(new ArrayList<>(ackTasks)));
+
+        final List<CheckedThread> threads = new ArrayList<>();
+        for (Execution execution : ackTasks) {
+            threads.add(
+                    new CheckedThread() {
+                        @Override
+                        public void go() {
+                            TaskStateSnapshot snapshot = new TaskStateSnapshot();
+                            snapshot.putSubtaskStateByOperatorID(
+                                    OPERATOR_ID, OperatorSubtaskState.builder().build());
+                            assertEquals(
+                                    TaskAcknowledgeResult.SUCCESS,
+                                    pending.acknowledgeTask(
+                                            execution.getAttemptId(),
+                                            snapshot,
+                                            new CheckpointMetrics(),
+                                            null));
+                        }
+                    });
+        }
+        for (CheckedThread thread : threads) {
+            thread.start();
+        }
+        for (CheckedThread thread : threads) {
+            thread.sync();
+        }
+
+        assertTrue(pending.isFullyAcknowledged());
+        assertEquals(numTasks, pending.getNumberOfAcknowledgedTasks());
+        assertEquals(numTasks, pending.getOperatorStates().get(OPERATOR_ID).getStates().size());
+        assertEquals(
+                TaskAcknowledgeResult.DUPLICATE,
+                pending.acknowledgeTask(
+                        ackTasks.get(0).getAttemptId(), null, new CheckpointMetrics(), null));
+    }
+
     // ------------------------------------------------------------------------
 
     private PendingCheckpoint createPendingCheckpoint(CheckpointProperties props)
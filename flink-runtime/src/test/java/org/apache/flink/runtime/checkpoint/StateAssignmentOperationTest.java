@@ -737,6 +737,68 @@ public class StateAssignmentOperationTest extends TestLogger {
                         .getInputRescalingDescriptor());
     }
 
+    /**
+     * The upstream tasks of a rescaled task send the barrier of an unaligned rescale snapshot in
+     * order, so only the rescaled task persists in-flight data, which is redistributed on restore.
+     */
+    @Test
+    public void testChannelStateAssignmentOfUnalignedRescaleSnapshot()
+            throws JobException, JobExecutionException {
+        List<OperatorID> operatorIds = buildOperatorIds(2);
+        Map<OperatorID, OperatorState> states = buildOperatorStates(operatorIds, 2);
+        OperatorState upstreamState = states.get(operatorIds.get(0));
+        for (int i = 0; i < 2; i++) {
+            upstreamState.putState(
+                    i,
+                    upstreamState
+                            .getState(i)
+                            .toBuilder()
+                            .setResultSubpartitionState(StateObjectCollection.empty())
+                            .build());
+        }
+
+        Map<OperatorID, ExecutionJobVertex> vertices =
+                buildVertices(operatorIds, 3, RANGE, ROUND_ROBIN);
+
+        new StateAssignmentOperation(0, new HashSet<>(vertices.values()), states, false)
+                .assignStates();
+
+        for (int i = 0; i < 3; i++) {
+            assertState(
+                    vertices,
+                    operatorIds.get(0),
+                    states,
+                    i,
+                    OperatorSubtaskState::getResultSubpartitionState);
+        }
+        assertState(
+                vertices,
+                operatorIds.get(1),
+                states,
+                0,
+                OperatorSubtaskState::getInputChannelState,
+                0);
+        assertState(
+                vertices,
+                operatorIds.get(1),
+                states,
+                1,
+                OperatorSubtaskState::getInputChannelState,
+                0,
+                1);
+        assertState(
+                vertices,
+                operatorIds.get(1),
+                states,
+                2,
+                OperatorSubtaskState::getInputChannelState,
+                1);
+        assertEquals(
+                rescalingDescriptor(to(0, 1), array(mappings(to(0), to(1), to())), set(0, 1)),
+                getAssignedState(vertices.get(operatorIds.get(1)), operatorIds.get(1), 1)
+                        .getInputRescalingDescriptor());
+    }
+
     @Test
     public void testStateWithFullyFinishedOperators() throws JobException, JobExecutionException {
         List<OperatorID> operatorIds = buildOperatorIds(2);
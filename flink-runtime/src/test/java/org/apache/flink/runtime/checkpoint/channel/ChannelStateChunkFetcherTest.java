@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.checkpoint.channel;
+
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.runtime.checkpoint.channel.SequentialChannelStateReaderImpl.RescaledOffset;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.memory.ByteStreamStateHandle;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/** Tests for {@link ChannelStateChunkFetcher}. */
+public class ChannelStateChunkFetcherTest extends TestLogger {
+
+    private final ChannelStateSerializer serializer = new ChannelStateSerializerImpl();
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(3);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testChunksAreConsumedInDelegateOrder() throws Exception {
+        List<Map.Entry<StreamStateHandle, List<RescaledOffset<String>>>> delegates =
+                new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int delegate = 0; delegate < 5; delegate++) {
+            List<String> chunks = new ArrayList<>();
+            for (int chunk = 0; chunk < 10; chunk++) {
+                chunks.add(delegate + "-" + chunk);
+            }
+            delegates.add(createDelegate(chunks));
+            expected.addAll(chunks);
+        }
+
+        // a read-ahead smaller than a chunk lets the threads wait for the consumer
+        List<String> consumed = new ArrayList<>();
+        new ChannelStateChunkFetcher<>(serializer, delegates, executor, 1)
+                .fetch(
+                        (offset, data) -> {
+                            assertEquals(offset.channelInfo, new String(data));
+                            consumed.add(offset.channelInfo);
+                        });
+
+        assertThat(consumed, contains(expected.toArray()));
+    }
+
+    @Test
+    public void testReadFailureIsForwarded() throws Exception {
+        IOException failure = new IOException("expected");
+        List<Map.Entry<StreamStateHandle, List<RescaledOffset<String>>>> delegates =
+                new ArrayList<>();
+        delegates.add(createDelegate(Collections.singletonList("a")));
+        delegates.add(
+                new AbstractMap.SimpleImmutableEntry<>(
+                        new FailingStreamStateHandle(failure),
+                        Collections.singletonList(new RescaledOffset<>(4L, "b", 0))));
+
+        List<String> consumed = new ArrayList<>();
+        try {
+            new ChannelStateChunkFetcher<>(serializer, delegates, executor, 1024)
+                    .fetch((offset, data) -> consumed.add(offset.channelInfo));
+            fail("The read failure should be forwarded.");
+        } catch (IOException e) {
+            assertThat(consumed, contains("a"));
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    @Test
+    public void testReadThreadsAreReusedByFetchers() throws Exception {
+        for (int fetch = 0; fetch < 3; fetch++) {
+            List<Map.Entry<StreamStateHandle, List<RescaledOffset<String>>>> delegates =
+                    new ArrayList<>();
+            delegates.add(createDelegate(Arrays.asList("a", "b")));
+            delegates.add(createDelegate(Collections.singletonList("c")));
+
+            List<String> consumed = new ArrayList<>();
+            new ChannelStateChunkFetcher<>(serializer, delegates, executor, 1024)
+                    .fetch((offset, data) -> consumed.add(offset.channelInfo));
+
+            assertThat(consumed, contains("a", "b", "c"));
+        }
+        assertFalse(executor.isShutdown());
+    }
+
+    private Map.Entry<StreamStateHandle, List<RescaledOffset<String>>> createDelegate(
+            List<String> chunks) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream dataStream = new DataOutputStream(out);
+        serializer.writeHeader(dataStream);
+        List<RescaledOffset<String>> offsets = new ArrayList<>();
+        for (String chunk : chunks) {
+            offsets.add(new RescaledOffset<>((long) dataStream.size(), chunk, 0));
+            byte[] bytes = chunk.getBytes();
+            dataStream.writeInt(bytes.length);
+            dataStream.write(bytes);
+        }
+        return new AbstractMap.SimpleImmutableEntry<>(
+                new ByteStreamStateHandle("delegate", out.toByteArray()), offsets);
+    }
+
+    private static class FailingStreamStateHandle implements StreamStateHandle {
+
+        private static final long serialVersionUID = 1L;
+
+        private final IOException failure;
+
+        FailingStreamStateHandle(IOException failure) {
+            this.failure = failure;
+        }
+
+        @Override
+        public FSDataInputStream openInputStream() throws IOException {
+            throw failure;
+        }
+
+        @Override
+        public Optional<byte[]> asBytesIfInMemory() {
+            return Optional.empty();
+        }
+
+        @Override
+        public void discardState() {}
+
+        @Override
+        public long getStateSize() {
+            return 0;
+        }
+    }
+}
@@ -18,24 +18,40 @@
 package org.apache.flink.runtime.checkpoint.channel;
 
 import org.apache.flink.api.common.JobID;
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.core.fs.Path;
 import org.apache.flink.core.memory.MemorySegmentFactory;
 import org.apache.flink.runtime.checkpoint.channel.ChannelStateWriter.ChannelStateWriteResult;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
 import org.apache.flink.runtime.io.network.buffer.NetworkBuffer;
 import org.apache.flink.runtime.state.CheckpointStorageLocationReference;
+import org.apache.flink.runtime.state.InputChannelStateHandle;
+import org.apache.flink.runtime.state.filesystem.FsCheckpointStorageAccess;
+import org.apache.flink.runtime.state.filesystem.SegmentFileStateHandle;
 import org.apache.flink.runtime.state.memory.MemoryBackendCheckpointStorageAccess;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.IOException;
+import java.util.Collection;
 import java.util.function.Function;
 
 import static org.apache.flink.util.CloseableIterator.ofElements;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
 /** {@link ChannelStateWriteRequestDispatcherImpl} test. */
 public class ChannelStateWriteRequestDispatcherImplTest {
 
+    private static final int BUFFER_SIZE = 10;
+
+    @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void testPartialInputChannelStateWrite() throws Exception {
         testBuffersRecycled(
@@ -77,8 +93,103 @@ public class ChannelStateWriteRequestDispatcherImplTest {
         }
     }
 
+    @Test
+    public void testTasksWriteIntoSharedFile() throws Exception {
+        SharedChannelStateFiles sharedFiles = new SharedChannelStateFiles();
+        JobID jobId = new JobID();
+        ChannelStateWriteRequestDispatcher first = createSharingDispatcher(jobId, sharedFiles);
+        ChannelStateWriteRequestDispatcher second = createSharingDispatcher(jobId, sharedFiles);
+        ChannelStateWriteResult firstResult = start(first);
+        ChannelStateWriteResult secondResult = start(second);
+        assertEquals(1, sharedFiles.getNumberOfOpenFiles());
+
+        writeInputAndComplete(first);
+        // the shared file is only closed once the other task completed as well
+        assertFalse(firstResult.isDone());
+
+        writeInputAndComplete(second);
+        assertEquals(0, sharedFiles.getNumberOfOpenFiles());
+        // each task reports its own segment of the shared file, which starts with its header
+        SegmentFileStateHandle firstSegment = getSegmentAndCheckData(firstResult);
+        SegmentFileStateHandle secondSegment = getSegmentAndCheckData(secondResult);
+        assertEquals(firstSegment.getFilePath(), secondSegment.getFilePath());
+        assertNotEquals(firstSegment.getStartPos(), secondSegment.getStartPos());
+    }
+
+    @Test
+    public void testAbortedTaskDoesNotBlockSharedFile() throws Exception {
+        SharedChannelStateFiles sharedFiles = new SharedChannelStateFiles();
+        JobID jobId = new JobID();
+        ChannelStateWriteRequestDispatcher first = createSharingDispatcher(jobId, sharedFiles);
+        ChannelStateWriteRequestDispatcher second = createSharingDispatcher(jobId, sharedFiles);
+        ChannelStateWriteResult firstResult = start(first);
+        ChannelStateWriteResult secondResult = start(second);
+
+        writeInputAndComplete(first);
+        second.dispatch(ChannelStateWriteRequest.abort(1L, new TestException()));
+
+        assertEquals(0, sharedFiles.getNumberOfOpenFiles());
+        getInputHandle(firstResult);
+        assertTrue(secondResult.getInputChannelStateHandles().isCompletedExceptionally());
+    }
+
+    private ChannelStateWriteRequestDispatcher createSharingDispatcher(
+            JobID jobId, SharedChannelStateFiles sharedFiles) throws IOException {
+        return new ChannelStateWriteRequestDispatcherImpl(
+                "dummy task",
+                0,
+                new FsCheckpointStorageAccess(
+                        Path.fromLocalFile(temporaryFolder.getRoot()), null, jobId, 0, 1024),
+                new ChannelStateSerializerImpl(),
+                jobId,
+                sharedFiles);
+    }
+
+    private static ChannelStateWriteResult start(ChannelStateWriteRequestDispatcher dispatcher)
+            throws Exception {
+        ChannelStateWriteResult result = new ChannelStateWriteResult();
+        dispatcher.dispatch(
+                ChannelStateWriteRequest.start(
+                        1L, result, CheckpointStorageLocationReference.getDefault()));
+        return result;
+    }
+
+    private void writeInputAndComplete(ChannelStateWriteRequestDispatcher dispatcher)
+            throws Exception {
+        NetworkBuffer buffer = buffer();
+        buffer.setSize(BUFFER_SIZE);
+        dispatcher.dispatch(
+                ChannelStateWriteRequest.write(
+                        1L, new InputChannelInfo(0, 0), ofElements(Buffer::recycleBuffer, buffer)));
+        dispatcher.dispatch(ChannelStateWriteRequest.completeInput(1L));
+        dispatcher.dispatch(ChannelStateWriteRequest.completeOutput(1L));
+    }
+
+    private static InputChannelStateHandle getInputHandle(ChannelStateWriteResult result)
+            throws Exception {
+        assertTrue(result.isDone());
+        Collection<InputChannelStateHandle> handles = result.getInputChannelStateHandles().get();
+        assertEquals(1, handles.size());
+        return handles.iterator().next();
+    }
+
+    private static SegmentFileStateHandle getSegmentAndCheckData(ChannelStateWriteResult result)
+            throws Exception {
+        InputChannelStateHandle handle = getInputHandle(result);
+        assertTrue(handle.getDelegate() instanceof SegmentFileStateHandle);
+        ChannelStateSerializer serializer = new ChannelStateSerializerImpl();
+        try (FSDataInputStream stream = handle.getDelegate().openInputStream()) {
+            serializer.readHeader(stream);
+            assertEquals(1, handle.getOffsets().size());
+            stream.seek(handle.getOffsets().get(0));
+            assertEquals(BUFFER_SIZE, serializer.readLength(stream));
+        }
+        return (SegmentFileStateHandle) handle.getDelegate();
+    }
+
     private NetworkBuffer buffer() {
         return new NetworkBuffer(
-                MemorySegmentFactory.allocateUnpooledSegment(10), FreeingBufferRecycler.INSTANCE);
+                MemorySegmentFactory.allocateUnpooledSegment(BUFFER_SIZE),
+                FreeingBufferRecycler.INSTANCE);
     }
 }
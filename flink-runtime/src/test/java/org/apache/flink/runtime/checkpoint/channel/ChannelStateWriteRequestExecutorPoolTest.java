@@ -0,0 +1,360 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.checkpoint.channel;
+
+import org.apache.flink.configuration.CheckpointingOptions;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.core.testutils.OneShotLatch;
+import org.apache.flink.metrics.groups.UnregisteredMetricsGroup;
+import org.apache.flink.runtime.state.CheckpointIOScheduler;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.apache.flink.util.ExceptionUtils.findThrowable;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/** {@link ChannelStateWriteRequestExecutorPool} test. */
+public class ChannelStateWriteRequestExecutorPoolTest {
+
+    @Test
+    public void testFromConfiguration() throws IOException {
+        Configuration configuration = new Configuration();
+        assertNull(ChannelStateWriteRequestExecutorPool.fromConfiguration(configuration));
+
+        configuration.set(CheckpointingOptions.CHANNEL_STATE_WRITER_NUM_THREADS, 2);
+        try (ChannelStateWriteRequestExecutorPool pool =
+                ChannelStateWriteRequestExecutorPool.fromConfiguration(configuration)) {
+            assertNotNull(pool);
+        }
+    }
+
+    @Test
+    public void testRequestsOfEachTaskAreExecutedInOrder() throws Exception {
+        int numTasks = 5;
+        int numRequests = 100;
+        try (ChannelStateWriteRequestExecutorPool pool =
+                new ChannelStateWriteRequestExecutorPool(2)) {
+            List<RecordingDispatcher> dispatchers = new ArrayList<>();
+            List<ChannelStateWriteRequestExecutor> executors = new ArrayList<>();
+            for (int task = 0; task < numTasks; task++) {
+                RecordingDispatcher dispatcher = new RecordingDispatcher();
+                ChannelStateWriteRequestExecutor executor =
+                        pool.createExecutor("task " + task, dispatcher);
+                executor.start();
+                dispatchers.add(dispatcher);
+                executors.add(executor);
+            }
+
+            List<Long> expected = new ArrayList<>();
+            for (long request = 0; request < numRequests; request++) {
+                for (ChannelStateWriteRequestExecutor executor : executors) {
+                    executor.submit(new TestWriteRequest(request));
+                }
+                expected.add(request);
+            }
+            // closing an executor discards its pending requests
+            for (RecordingDispatcher dispatcher : dispatchers) {
+                waitUntilDispatched(dispatcher, numRequests);
+            }
+            for (ChannelStateWriteRequestExecutor executor : executors) {
+                executor.close();
+            }
+
+            for (RecordingDispatcher dispatcher : dispatchers) {
+                assertThat(dispatcher.dispatched, contains(expected.toArray()));
+                assertThat(dispatcher.failure, instanceOf(CancellationException.class));
+            }
+            assertEquals(0, pool.getNumExecutors());
+        }
+    }
+
+    @Test
+    public void testBacklogOfTaskDoesNotDelayOtherTasks() throws Exception {
+        int backlog = 10;
+        OneShotLatch blockLatch = new OneShotLatch();
+        OneShotLatch dispatchLatch = new OneShotLatch();
+        try (ChannelStateWriteRequestExecutorPool pool =
+                new ChannelStateWriteRequestExecutorPool(1)) {
+            RecordingDispatcher busyDispatcher =
+                    new RecordingDispatcher() {
+                        @Override
+                        public void dispatch(ChannelStateWriteRequest request) throws Exception {
+                            dispatchLatch.trigger();
+                            blockLatch.await();
+                            super.dispatch(request);
+                        }
+                    };
+            List<Integer> busyDispatchedBefore = new CopyOnWriteArrayList<>();
+            RecordingDispatcher dispatcher =
+                    new RecordingDispatcher() {
+                        @Override
+                        public void dispatch(ChannelStateWriteRequest request) throws Exception {
+                            busyDispatchedBefore.add(busyDispatcher.dispatched.size());
+                            super.dispatch(request);
+                        }
+                    };
+            ChannelStateWriteRequestExecutor busy = pool.createExecutor("busy", busyDispatcher);
+            ChannelStateWriteRequestExecutor executor = pool.createExecutor("task", dispatcher);
+            busy.start();
+            executor.start();
+
+            for (long request = 0; request < backlog; request++) {
+                busy.submit(new TestWriteRequest(request));
+            }
+            dispatchLatch.await();
+            executor.submit(new TestWriteRequest(backlog));
+            blockLatch.trigger();
+            waitUntilDispatched(dispatcher, 1);
+            waitUntilDispatched(busyDispatcher, backlog);
+            busy.close();
+            executor.close();
+
+            // the pool thread serves the tasks in turns instead of draining the busy task first
+            assertEquals(1, busyDispatchedBefore.size());
+            assertTrue(busyDispatchedBefore.get(0) <= 2);
+        }
+    }
+
+    @Test
+    public void testThrottledTaskDoesNotDelayOtherTasks() throws Exception {
+        CheckpointIOScheduler ioScheduler =
+                new CheckpointIOScheduler(1, new UnregisteredMetricsGroup());
+        // exceed the rate limit for the next 1000 seconds
+        ioScheduler.acquire(CheckpointIOScheduler.Priority.PERIODIC, 1000);
+        try (ChannelStateWriteRequestExecutorPool pool =
+                new ChannelStateWriteRequestExecutorPool(1)) {
+            RecordingDispatcher throttledDispatcher = new RecordingDispatcher();
+            RecordingDispatcher dispatcher = new RecordingDispatcher();
+            ChannelStateWriteRequestExecutor throttled =
+                    pool.createExecutor(
+                            "throttled",
+                            unused -> throttledDispatcher,
+                            ioScheduler.createThrottle());
+            ChannelStateWriteRequestExecutor executor = pool.createExecutor("task", dispatcher);
+            throttled.start();
+            executor.start();
+
+            throttled.submit(new TestWriteRequest(0));
+            throttled.submit(new TestWriteRequest(1));
+            waitUntilDispatched(throttledDispatcher, 1);
+            executor.submit(new TestWriteRequest(2));
+            waitUntilDispatched(dispatcher, 1);
+            // only the further requests of the throttled task are deferred
+            assertThat(throttledDispatcher.dispatched, contains(0L));
+
+            // requests at the front, e.g. aborts, are not deferred
+            throttled.submitPriority(new TestWriteRequest(3));
+            waitUntilDispatched(throttledDispatcher, 2);
+            assertThat(throttledDispatcher.dispatched, contains(0L, 3L));
+
+            throttled.close();
+            executor.close();
+        }
+    }
+
+    @Test
+    public void testFailureOnlyStopsFailingExecutor() throws Exception {
+        TestException testException = new TestException();
+        try (ChannelStateWriteRequestExecutorPool pool =
+                new ChannelStateWriteRequestExecutorPool(1)) {
+            RecordingDispatcher failingDispatcher =
+                    new RecordingDispatcher() {
+                        @Override
+                        public void dispatch(ChannelStateWriteRequest request) {
+                            throw testException;
+                        }
+                    };
+            ChannelStateWriteRequestExecutor failing =
+                    pool.createExecutor("failing", failingDispatcher);
+            RecordingDispatcher dispatcher = new RecordingDispatcher();
+            ChannelStateWriteRequestExecutor executor = pool.createExecutor("task", dispatcher);
+            failing.start();
+            executor.start();
+
+            try {
+                failing.submit(new TestWriteRequest(0));
+            } catch (IllegalStateException e) {
+                // the request may already have failed
+            }
+            executor.submit(new TestWriteRequest(1));
+            waitUntilDispatched(dispatcher, 1);
+            executor.close();
+
+            assertThat(dispatcher.dispatched, contains(1L));
+            assertSame(testException, failingDispatcher.failure);
+
+            TestWriteRequest rejected = new TestWriteRequest(2);
+            try {
+                failing.submit(rejected);
+                fail("The failed executor should not accept requests.");
+            } catch (IllegalStateException e) {
+                assertTrue(rejected.cancelled);
+            }
+            try {
+                failing.close();
+                fail("The failure should be re-thrown on close.");
+            } catch (IOException e) {
+                assertTrue(findThrowable(e, TestException.class).isPresent());
+            }
+        }
+    }
+
+    @Test
+    public void testCloseCancelsPendingRequests() throws Exception {
+        OneShotLatch blockLatch = new OneShotLatch();
+        OneShotLatch dispatchLatch = new OneShotLatch();
+        try (ChannelStateWriteRequestExecutorPool pool =
+                new ChannelStateWriteRequestExecutorPool(1)) {
+            RecordingDispatcher blockingDispatcher =
+                    new RecordingDispatcher() {
+                        @Override
+                        public void dispatch(ChannelStateWriteRequest request)
+                                throws InterruptedException {
+                            dispatchLatch.trigger();
+                            blockLatch.await();
+                        }
+                    };
+            ChannelStateWriteRequestExecutor blocking =
+                    pool.createExecutor("blocking", blockingDispatcher);
+            RecordingDispatcher dispatcher = new RecordingDispatcher();
+            ChannelStateWriteRequestExecutor executor = pool.createExecutor("task", dispatcher);
+            blocking.start();
+            executor.start();
+
+            blocking.submit(new TestWriteRequest(0));
+            dispatchLatch.await();
+            TestWriteRequest pending = new TestWriteRequest(1);
+            executor.submit(pending);
+
+            Thread closingThread =
+                    new Thread(
+                            () -> {
+                                try {
+                                    executor.close();
+                                } catch (IOException e) {
+                                    throw new RuntimeException(e);
+                                }
+                            });
+            closingThread.start();
+            // the executor is closed while the pool thread is still busy with the other executor
+            while (closingThread.getState() != Thread.State.TIMED_WAITING) {
+                Thread.sleep(10);
+            }
+            blockLatch.trigger();
+            closingThread.join();
+            blocking.close();
+
+            assertTrue(pending.cancelled);
+            assertTrue(dispatcher.dispatched.isEmpty());
+            assertThat(dispatcher.failure, instanceOf(CancellationException.class));
+        }
+    }
+
+    @Test
+    public void testClosingPoolStopsExecutors() throws Exception {
+        RecordingDispatcher dispatcher = new RecordingDispatcher();
+        ChannelStateWriteRequestExecutor executor;
+        try (ChannelStateWriteRequestExecutorPool pool =
+                new ChannelStateWriteRequestExecutorPool(1)) {
+            executor = pool.createExecutor("task", dispatcher);
+            executor.start();
+        }
+
+        assertThat(dispatcher.failure, instanceOf(CancellationException.class));
+        TestWriteRequest rejected = new TestWriteRequest(0);
+        try {
+            executor.submit(rejected);
+            fail("The executor of a closed pool should not accept requests.");
+        } catch (IllegalStateException e) {
+            assertTrue(rejected.cancelled);
+        }
+        executor.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSubmitBeforeStart() throws Exception {
+        try (ChannelStateWriteRequestExecutorPool pool =
+                new ChannelStateWriteRequestExecutorPool(1)) {
+            TestWriteRequest request = new TestWriteRequest(0);
+            try {
+                pool.createExecutor("task", new RecordingDispatcher()).submit(request);
+            } finally {
+                assertTrue(request.cancelled);
+                assertFalse(request.dispatched);
+            }
+        }
+    }
+
+    private static void waitUntilDispatched(RecordingDispatcher dispatcher, int numRequests)
+            throws InterruptedException {
+        while (dispatcher.dispatched.size() < numRequests) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static class TestWriteRequest implements ChannelStateWriteRequest {
+        private final long checkpointId;
+        private volatile boolean cancelled = false;
+        private volatile boolean dispatched = false;
+
+        private TestWriteRequest(long checkpointId) {
+            this.checkpointId = checkpointId;
+        }
+
+        @Override
+        public long getCheckpointId() {
+            return checkpointId;
+        }
+
+        @Override
+        public void cancel(Throwable cause) {
+            cancelled = true;
+        }
+    }
+
+    private static class RecordingDispatcher implements ChannelStateWriteRequestDispatcher {
+        private final List<Long> dispatched = new CopyOnWriteArrayList<>();
+        private volatile Throwable failure;
+
+        @Override
+        public void dispatch(ChannelStateWriteRequest request) throws Exception {
+            ((TestWriteRequest) request).dispatched = true;
+            dispatched.add(request.getCheckpointId());
+        }
+
+        @Override
+        public void fail(Throwable cause) {
+            failure = cause;
+        }
+    }
+}
@@ -19,6 +19,7 @@ package org.apache.flink.runtime.checkpoint.channel;
 
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.metrics.Counter;
 import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
 import org.apache.flink.runtime.checkpoint.StateObjectCollection;
 import org.apache.flink.runtime.checkpoint.TaskStateSnapshot;
@@ -37,6 +38,8 @@ import org.apache.flink.runtime.io.network.partition.consumer.InputGate;
 import org.apache.flink.runtime.io.network.partition.consumer.SingleInputGate;
 import org.apache.flink.runtime.io.network.partition.consumer.SingleInputGateBuilder;
 import org.apache.flink.runtime.jobgraph.OperatorID;
+import org.apache.flink.runtime.metrics.MetricNames;
+import org.apache.flink.runtime.metrics.util.InterceptingTaskMetricGroup;
 import org.apache.flink.runtime.state.InputChannelStateHandle;
 import org.apache.flink.runtime.state.ResultSubpartitionStateHandle;
 import org.apache.flink.runtime.state.memory.ByteStreamStateHandle;
@@ -120,13 +123,33 @@ public class SequentialChannelStateReaderImplTest {
 
     @Test
     public void testReadPermutedState() throws Exception {
+        testReadPermutedState(SequentialChannelStateReaderImpl::new);
+    }
+
+    @Test
+    public void testReadPermutedStateInParallel() throws Exception {
+        InterceptingTaskMetricGroup metricGroup = new InterceptingTaskMetricGroup();
+        // a small read-ahead lets the read threads wait for the recovery
+        testReadPermutedState(
+                snapshot -> new SequentialChannelStateReaderImpl(snapshot, 3, 16, metricGroup));
+
+        long expectedBytes =
+                2L * stateParLevel * stateParLevel * statePartsPerChannel * stateBytesPerPart;
+        assertEquals(
+                expectedBytes,
+                ((Counter) metricGroup.get(MetricNames.CHANNEL_STATE_RECOVERED_BYTES)).getCount());
+    }
+
+    private void testReadPermutedState(
+            Function<TaskStateSnapshot, SequentialChannelStateReader> readerFactory)
+            throws Exception {
         Map<InputChannelInfo, List<byte[]>> inputChannelsData =
                 generateState(InputChannelInfo::new);
         Map<ResultSubpartitionInfo, List<byte[]>> resultPartitionsData =
                 generateState(ResultSubpartitionInfo::new);
 
         SequentialChannelStateReader reader =
-                new SequentialChannelStateReaderImpl(
+                readerFactory.apply(
                         buildSnapshot(writePermuted(inputChannelsData, resultPartitionsData)));
 
         withResultPartitions(
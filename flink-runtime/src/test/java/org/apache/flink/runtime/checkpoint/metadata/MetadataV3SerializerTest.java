@@ -30,6 +30,8 @@ import org.apache.flink.runtime.checkpoint.OperatorState;
 import org.apache.flink.runtime.state.KeyGroupRangeOffsets;
 import org.apache.flink.runtime.state.KeyGroupsStateHandle;
 import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.filesystem.AbstractFsCheckpointStorageAccess;
+import org.apache.flink.runtime.state.filesystem.SegmentFileStateHandle;
 import org.apache.flink.runtime.state.memory.ByteStreamStateHandle;
 
 import org.junit.Rule;
@@ -41,6 +43,7 @@ import javax.annotation.Nullable;
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
@@ -281,4 +284,51 @@ public class MetadataV3SerializerTest {
             }
         }
     }
+
+    @Test
+    public void testSerializeSegmentFileStateHandle() throws IOException {
+        SegmentFileStateHandle segmentHandle =
+                new SegmentFileStateHandle(new Path("file:///checkpoint/merged"), 123L, 45L);
+        try (ByteArrayOutputStreamWithPos out = new ByteArrayOutputStreamWithPos()) {
+            MetadataV2V3SerializerBase.serializeStreamStateHandle(
+                    segmentHandle, new DataOutputStream(out));
+            try (ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray())) {
+                StreamStateHandle handle =
+                        MetadataV2V3SerializerBase.deserializeStreamStateHandle(
+                                new DataInputStream(in), null);
+                assertEquals(segmentHandle, handle);
+                assertEquals(123L, ((SegmentFileStateHandle) handle).getStartPos());
+                assertEquals(45L, handle.getStateSize());
+            }
+        }
+    }
+
+    @Test
+    public void testRelativeSegmentFileStateHandleIsRelocatable() throws IOException {
+        SegmentFileStateHandle segmentHandle =
+                new SegmentFileStateHandle(
+                        new Path("file:///checkpoint/chk-1/merged"), "merged", 123L, 45L);
+        // the checkpoint directory after it was moved
+        File movedDir = temporaryFolder.newFolder("chk-1");
+        assertTrue(
+                new File(movedDir, AbstractFsCheckpointStorageAccess.METADATA_FILE_NAME)
+                        .createNewFile());
+        try (ByteArrayOutputStreamWithPos out = new ByteArrayOutputStreamWithPos()) {
+            MetadataV2V3SerializerBase.serializeStreamStateHandle(
+                    segmentHandle, new DataOutputStream(out));
+            try (ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray())) {
+                StreamStateHandle handle =
+                        MetadataV2V3SerializerBase.deserializeStreamStateHandle(
+                                new DataInputStream(in),
+                                new MetadataV2V3SerializerBase.DeserializationContext(
+                                        movedDir.toURI().toString()));
+                SegmentFileStateHandle relocated = (SegmentFileStateHandle) handle;
+                assertEquals(
+                        new Path(Path.fromLocalFile(movedDir), "merged"), relocated.getFilePath());
+                assertEquals("merged", relocated.getRelativePath());
+                assertEquals(123L, relocated.getStartPos());
+                assertEquals(45L, relocated.getStateSize());
+            }
+        }
+    }
 }
@@ -22,6 +22,7 @@ import org.apache.flink.metrics.MetricGroup;
 import org.apache.flink.runtime.clusterframework.types.ResourceID;
 import org.apache.flink.runtime.io.network.netty.NettyConfig;
 import org.apache.flink.runtime.io.network.partition.BoundedBlockingSubpartitionType;
+import org.apache.flink.runtime.io.network.partition.PartitionedFileReadMode;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionManager;
 import org.apache.flink.runtime.metrics.groups.UnregisteredMetricGroups;
 import org.apache.flink.runtime.taskmanager.NettyShuffleEnvironmentConfiguration;
@@ -58,6 +59,10 @@ public class NettyShuffleEnvironmentBuilder {
 
     private int sortShuffleMinParallelism = Integer.MAX_VALUE;
 
+    private PartitionedFileReadMode sortShuffleReadMode = PartitionedFileReadMode.BUFFERED;
+
+    private int maxExclusiveBuffersPerGate = Integer.MAX_VALUE;
+
     private long batchShuffleReadMemoryBytes = 64 * DEFAULT_NETWORK_BUFFER_SIZE;
 
     private int maxBuffersPerChannel = Integer.MAX_VALUE;
@@ -132,6 +137,18 @@ public class NettyShuffleEnvironmentBuilder {
         return this;
     }
 
+    public NettyShuffleEnvironmentBuilder setSortShuffleReadMode(
+            PartitionedFileReadMode sortShuffleReadMode) {
+        this.sortShuffleReadMode = sortShuffleReadMode;
+        return this;
+    }
+
+    public NettyShuffleEnvironmentBuilder setMaxExclusiveBuffersPerGate(
+            int maxExclusiveBuffersPerGate) {
+        this.maxExclusiveBuffersPerGate = maxExclusiveBuffersPerGate;
+        return this;
+    }
+
     public NettyShuffleEnvironmentBuilder setBatchShuffleReadMemoryBytes(
             long batchShuffleReadMemoryBytes) {
         this.batchShuffleReadMemoryBytes = batchShuffleReadMemoryBytes;
@@ -189,7 +206,9 @@ public class NettyShuffleEnvironmentBuilder {
                         maxBuffersPerChannel,
                         batchShuffleReadMemoryBytes,
                         sortShuffleMinBuffers,
-                        sortShuffleMinParallelism),
+                        sortShuffleMinParallelism,
+                        sortShuffleReadMode,
+                        maxExclusiveBuffersPerGate),
                 taskManagerLocation,
                 new TaskEventDispatcher(),
                 resultPartitionManager,
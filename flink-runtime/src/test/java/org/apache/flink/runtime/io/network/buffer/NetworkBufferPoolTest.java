@@ -158,6 +158,41 @@ public class NetworkBufferPoolTest extends TestLogger {
         assertThat(globalPool.getUsedMemory(), is(0L));
     }
 
+    @Test
+    public void testUpdateBufferPoolSize() throws IOException {
+        NetworkBufferPool globalPool = new NetworkBufferPool(10, 128);
+
+        try {
+            BufferPool pool1 = globalPool.createBufferPool(2, 4);
+            BufferPool pool2 = globalPool.createBufferPool(2, Integer.MAX_VALUE);
+            assertEquals(10, pool1.getNumBuffers() + pool2.getNumBuffers());
+
+            // grow the bounded pool, e.g. after its partition was scaled out
+            globalPool.updateBufferPoolSize(pool1, 4, 8);
+            assertEquals(4, pool1.getNumberOfRequiredMemorySegments());
+            assertEquals(8, pool1.getMaxNumberOfMemorySegments());
+            assertTrue(pool1.getNumBuffers() >= 4);
+            assertTrue(pool2.getNumBuffers() >= 2);
+            assertEquals(10, pool1.getNumBuffers() + pool2.getNumBuffers());
+
+            // shrink it again
+            globalPool.updateBufferPoolSize(pool1, 1, 1);
+            assertEquals(1, pool1.getNumBuffers());
+            assertEquals(9, pool2.getNumBuffers());
+
+            // required buffers exceeding the global pool are rejected
+            try {
+                globalPool.updateBufferPoolSize(pool1, 9, 9);
+                fail("Should have thrown an IOException");
+            } catch (IOException e) {
+                assertEquals(1, pool1.getNumberOfRequiredMemorySegments());
+            }
+        } finally {
+            globalPool.destroyAllBufferPools();
+            globalPool.destroy();
+        }
+    }
+
     @Test
     public void testDestroyAll() throws IOException {
         NetworkBufferPool globalPool = new NetworkBufferPool(10, 128);
@@ -99,6 +99,11 @@ public class NoOpBufferPool implements BufferPool {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void setMaxNumberOfMemorySegments(int maxNumberOfMemorySegments) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public int getNumberOfAvailableMemorySegments() {
         throw new UnsupportedOperationException();
@@ -100,6 +100,11 @@ public class UnpooledBufferPool implements BufferPool {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void setMaxNumberOfMemorySegments(int maxNumberOfMemorySegments) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public int getNumberOfAvailableMemorySegments() {
         return Integer.MAX_VALUE;
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.netty;
+
+import org.apache.flink.runtime.io.network.ConnectionID;
+import org.apache.flink.runtime.io.network.PartitionRequestClient;
+import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
+import org.apache.flink.runtime.io.network.partition.consumer.InputChannelBuilder;
+import org.apache.flink.runtime.io.network.partition.consumer.RemoteInputChannel;
+import org.apache.flink.runtime.io.network.partition.consumer.SingleInputGate;
+
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
+import org.apache.flink.shaded.netty4.io.netty.channel.embedded.EmbeddedChannel;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.apache.flink.runtime.io.network.netty.PartitionRequestQueueTest.blockChannel;
+import static org.apache.flink.runtime.io.network.partition.InputChannelTestUtils.createSingleInputGate;
+import static org.apache.flink.runtime.io.network.partition.InputChannelTestUtils.mockConnectionManagerWithPartitionRequestClient;
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Benchmark of the control messages sent by {@link CreditBasedPartitionRequestClientHandler} over a
+ * connection shared by many input channels. Every round each input channel announces a new buffer
+ * size and resumes consumption while a previous write is still in flight, as it happens after a
+ * checkpoint or a buffer debloating step. The frames and bytes written to the connection (after
+ * encoding) and the CPU time of the client thread are accumulated, so that the control message rate
+ * can be compared with the number of per-channel messages.
+ */
+public class ControlMessageCoalescingBenchmark {
+
+    private final int numberOfChannels;
+
+    private EmbeddedChannel channel;
+
+    private NetworkBufferPool networkBufferPool;
+
+    private SingleInputGate inputGate;
+
+    private RemoteInputChannel[] inputChannels;
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    private int bufferSize = 1024;
+
+    private long messagesSent;
+
+    private long framesWritten;
+
+    private long bytesWritten;
+
+    private long cpuTimeNanos;
+
+    public ControlMessageCoalescingBenchmark(int numberOfChannels) {
+        checkArgument(numberOfChannels > 0);
+        this.numberOfChannels = numberOfChannels;
+    }
+
+    public void setup() throws Exception {
+        CreditBasedPartitionRequestClientHandler handler =
+                new CreditBasedPartitionRequestClientHandler();
+        channel = new EmbeddedChannel(new NettyMessage.NettyMessageEncoder(), handler);
+        PartitionRequestClient client =
+                new NettyPartitionRequestClient(
+                        channel,
+                        handler,
+                        mock(ConnectionID.class),
+                        mock(PartitionRequestClientFactory.class));
+
+        networkBufferPool = new NetworkBufferPool(numberOfChannels + 8, 32);
+        inputGate = createSingleInputGate(numberOfChannels, networkBufferPool);
+        inputChannels = new RemoteInputChannel[numberOfChannels];
+        for (int i = 0; i < numberOfChannels; i++) {
+            inputChannels[i] =
+                    InputChannelBuilder.newBuilder()
+                            .setChannelIndex(i)
+                            .setNetworkBuffersPerChannel(1)
+                            .setConnectionManager(
+                                    mockConnectionManagerWithPartitionRequestClient(client))
+                            .buildRemoteChannel(inputGate);
+        }
+        inputGate.setInputChannels(inputChannels);
+        inputGate.setBufferPool(networkBufferPool.createBufferPool(1, 8));
+        inputGate.setupChannels();
+
+        for (RemoteInputChannel inputChannel : inputChannels) {
+            inputChannel.requestSubpartition(0);
+        }
+        drainOutbound();
+    }
+
+    /**
+     * All the input channels announce a new buffer size and resume consumption while the connection
+     * is blocked by a previous write.
+     *
+     * @return the number of frames written to the connection in this round
+     */
+    public long announceToAllChannels() throws Exception {
+        long cpuTimeBefore = threadMXBean.getCurrentThreadCpuTime();
+        long framesBefore = framesWritten;
+
+        ByteBuf channelBlockingBuffer = blockChannel(channel);
+        bufferSize = bufferSize == 1024 ? 2048 : 1024;
+        inputGate.announceBufferSize(bufferSize);
+        for (RemoteInputChannel inputChannel : inputChannels) {
+            inputChannel.resumeConsumption();
+        }
+        channel.runPendingTasks();
+        messagesSent += 2L * numberOfChannels;
+
+        channel.flush();
+        Object blockingBuffer = channel.readOutbound();
+        checkArgument(blockingBuffer == channelBlockingBuffer);
+        channelBlockingBuffer.release();
+        drainOutbound();
+
+        cpuTimeNanos += threadMXBean.getCurrentThreadCpuTime() - cpuTimeBefore;
+        return framesWritten - framesBefore;
+    }
+
+    private void drainOutbound() {
+        Object msg;
+        while ((msg = channel.readOutbound()) != null) {
+            framesWritten++;
+            if (msg instanceof ByteBuf) {
+                bytesWritten += ((ByteBuf) msg).readableBytes();
+                ((ByteBuf) msg).release();
+            }
+        }
+    }
+
+    public void resetStatistics() {
+        messagesSent = 0;
+        framesWritten = 0;
+        bytesWritten = 0;
+        cpuTimeNanos = 0;
+    }
+
+    public long getMessagesSent() {
+        return messagesSent;
+    }
+
+    public long getFramesWritten() {
+        return framesWritten;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public long getCpuTimeNanos() {
+        return cpuTimeNanos;
+    }
+
+    public void teardown() throws Exception {
+        inputGate.close();
+        networkBufferPool.destroyAllBufferPools();
+        networkBufferPool.destroy();
+        channel.close();
+    }
+}
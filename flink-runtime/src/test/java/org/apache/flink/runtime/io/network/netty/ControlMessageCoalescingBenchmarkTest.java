@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.netty;
+
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import static org.apache.flink.runtime.io.network.netty.CreditBasedPartitionRequestClientHandler.MAX_NUM_BATCHED_MESSAGES;
+import static org.junit.Assert.assertEquals;
+
+/** Test for {@link ControlMessageCoalescingBenchmark}. */
+public class ControlMessageCoalescingBenchmarkTest extends TestLogger {
+
+    @Test
+    public void testControlMessagesAreCoalesced() throws Exception {
+        int numberOfChannels = 2000;
+        ControlMessageCoalescingBenchmark benchmark =
+                new ControlMessageCoalescingBenchmark(numberOfChannels);
+        benchmark.setup();
+        try {
+            for (int i = 0; i < 3; i++) {
+                long messages = 2L * numberOfChannels;
+                assertEquals(
+                        (messages + MAX_NUM_BATCHED_MESSAGES - 1) / MAX_NUM_BATCHED_MESSAGES,
+                        benchmark.announceToAllChannels());
+            }
+            assertEquals(3 * 2L * numberOfChannels, benchmark.getMessagesSent());
+        } finally {
+            benchmark.teardown();
+        }
+    }
+}
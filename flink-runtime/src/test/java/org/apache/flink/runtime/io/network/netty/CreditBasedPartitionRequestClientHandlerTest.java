@@ -723,6 +723,78 @@ public class CreditBasedPartitionRequestClientHandlerTest {
         }
     }
 
+    /**
+     * Verifies that the control messages of several input channels which are enqueued while the
+     * channel is not writable are coalesced into a single {@link
+     * NettyMessage.BatchedControlMessages}.
+     */
+    @Test
+    public void testCoalesceControlMessages() throws Exception {
+        final CreditBasedPartitionRequestClientHandler handler =
+                new CreditBasedPartitionRequestClientHandler();
+        final EmbeddedChannel channel = new EmbeddedChannel(handler);
+        final PartitionRequestClient client =
+                new NettyPartitionRequestClient(
+                        channel,
+                        handler,
+                        mock(ConnectionID.class),
+                        mock(PartitionRequestClientFactory.class));
+
+        final NetworkBufferPool networkBufferPool = new NetworkBufferPool(10, 32);
+        final SingleInputGate inputGate = createSingleInputGate(2, networkBufferPool);
+        final RemoteInputChannel[] inputChannels = new RemoteInputChannel[2];
+        inputChannels[0] = createRemoteInputChannel(inputGate, client);
+        inputChannels[1] = createRemoteInputChannel(inputGate, client);
+        try {
+            inputGate.setInputChannels(inputChannels);
+            final BufferPool bufferPool = networkBufferPool.createBufferPool(6, 6);
+            inputGate.setBufferPool(bufferPool);
+            inputGate.setupChannels();
+
+            inputChannels[0].requestSubpartition(0);
+            inputChannels[1].requestSubpartition(0);
+            channel.readOutbound();
+            channel.readOutbound();
+
+            ByteBuf channelBlockingBuffer = blockChannel(channel);
+
+            inputGate.announceBufferSize(333);
+            client.resumeConsumption(inputChannels[1]);
+            channel.runPendingTasks();
+
+            // No message is sent via the un-writable channel
+            assertNull(channel.readOutbound());
+
+            // Flush the buffer to make the channel writable again
+            channel.flush();
+            assertSame(channelBlockingBuffer, channel.readOutbound());
+
+            // All the queued messages are sent as a single batched message in order
+            NettyMessage.BatchedControlMessages readOutbound = channel.readOutbound();
+            assertThat(readOutbound, instanceOf(NettyMessage.BatchedControlMessages.class));
+            assertEquals(3, readOutbound.messages.size());
+
+            NettyMessage.NewBufferSize newBufferSize =
+                    (NettyMessage.NewBufferSize) readOutbound.messages.get(0);
+            assertThat(newBufferSize.receiverId, is(inputChannels[0].getInputChannelId()));
+            assertThat(newBufferSize.bufferSize, is(333));
+
+            newBufferSize = (NettyMessage.NewBufferSize) readOutbound.messages.get(1);
+            assertThat(newBufferSize.receiverId, is(inputChannels[1].getInputChannelId()));
+            assertThat(newBufferSize.bufferSize, is(333));
+
+            assertThat(
+                    ((NettyMessage.ResumeConsumption) readOutbound.messages.get(2)).receiverId,
+                    is(inputChannels[1].getInputChannelId()));
+
+            // no more messages
+            assertNull(channel.readOutbound());
+        } finally {
+            releaseResource(inputGate, networkBufferPool);
+            channel.close();
+        }
+    }
+
     private void testReadBufferResponseWithReleasingOrRemovingChannel(
             boolean isRemoved, boolean readBeforeReleasingOrRemoving) throws Exception {
 
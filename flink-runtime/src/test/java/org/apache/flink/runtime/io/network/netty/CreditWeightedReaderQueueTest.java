@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.netty;
+
+import org.apache.flink.runtime.io.network.NetworkSequenceViewReader;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import java.util.Queue;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/** Tests for {@link CreditWeightedReaderQueue}. */
+public class CreditWeightedReaderQueueTest extends TestLogger {
+
+    @Test
+    public void testReadersWithMoreCreditsFirst() {
+        NetworkSequenceViewReader backpressured = createReader(0);
+        NetworkSequenceViewReader slow = createReader(2);
+        NetworkSequenceViewReader starving = createReader(10);
+
+        Queue<NetworkSequenceViewReader> queue = new CreditWeightedReaderQueue();
+        queue.add(backpressured);
+        queue.add(slow);
+        queue.add(starving);
+
+        assertEquals(3, queue.size());
+        assertSame(starving, queue.poll());
+        assertSame(slow, queue.poll());
+        assertSame(backpressured, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testReadersWithEqualCreditsInFifoOrder() {
+        NetworkSequenceViewReader first = createReader(2);
+        NetworkSequenceViewReader second = createReader(2);
+
+        Queue<NetworkSequenceViewReader> queue = new CreditWeightedReaderQueue();
+        queue.add(first);
+        queue.add(second);
+
+        assertThat(queue, contains(first, second));
+        assertSame(first, queue.poll());
+        assertSame(second, queue.poll());
+    }
+
+    @Test
+    public void testNoStarvation() {
+        NetworkSequenceViewReader backpressured = createReader(0);
+        NetworkSequenceViewReader starving = createReader(Integer.MAX_VALUE);
+
+        Queue<NetworkSequenceViewReader> queue = new CreditWeightedReaderQueue();
+        queue.add(backpressured);
+
+        // the starving reader is re-enqueued after every buffer sent, but can only overtake the
+        // backpressured reader for a bounded number of times
+        int numOvertakes = 0;
+        queue.add(starving);
+        while (queue.poll() == starving) {
+            ++numOvertakes;
+            queue.add(starving);
+        }
+
+        assertEquals(CreditWeightedReaderQueue.MAX_WEIGHT - 1, numOvertakes);
+    }
+
+    @Test
+    public void testUpdateWeightOnNewCredits() {
+        NetworkSequenceViewReader first = createReader(2);
+        NetworkSequenceViewReader second = createReader(2);
+        NetworkSequenceViewReader third = createReader(2);
+
+        CreditWeightedReaderQueue queue = new CreditWeightedReaderQueue();
+        queue.add(first);
+        queue.add(second);
+        queue.add(third);
+
+        // credits announced while waiting let the reader overtake the others
+        when(third.getNumCreditsAvailable()).thenReturn(10);
+        queue.updateWeight(third);
+        // fewer credits never lower the priority captured before
+        when(first.getNumCreditsAvailable()).thenReturn(0);
+        queue.updateWeight(first);
+
+        assertEquals(3, queue.size());
+        assertThat(queue, containsInAnyOrder(first, second, third));
+        assertSame(third, queue.poll());
+        assertSame(first, queue.poll());
+        assertSame(second, queue.poll());
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+
+        // readers which are not enqueued are ignored
+        queue.updateWeight(third);
+        assertNull(queue.peek());
+    }
+
+    @Test
+    public void testRemoveIf() {
+        NetworkSequenceViewReader toRemove = createReader(1);
+        NetworkSequenceViewReader toKeep = createReader(2);
+
+        Queue<NetworkSequenceViewReader> queue = new CreditWeightedReaderQueue();
+        queue.add(toRemove);
+        queue.add(toKeep);
+
+        assertTrue(queue.removeIf(reader -> reader == toRemove));
+        assertThat(queue, contains(toKeep));
+
+        queue.clear();
+        assertTrue(queue.isEmpty());
+    }
+
+    private static NetworkSequenceViewReader createReader(int numCreditsAvailable) {
+        NetworkSequenceViewReader reader = mock(NetworkSequenceViewReader.class);
+        when(reader.getNumCreditsAvailable()).thenReturn(numCreditsAvailable);
+        return reader;
+    }
+}
@@ -29,6 +29,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.Random;
 
 import static org.apache.flink.runtime.io.network.netty.NettyTestUtil.encodeAndDecode;
@@ -146,4 +147,45 @@ public class NettyMessageServerSideSerializationTest extends TestLogger {
         assertEquals(expected.bufferSize, actual.bufferSize);
         assertEquals(expected.receiverId, actual.receiverId);
     }
+
+    @Test
+    public void testBatchedControlMessages() {
+        NettyMessage.AddCredit addCredit =
+                new NettyMessage.AddCredit(
+                        random.nextInt(Integer.MAX_VALUE) + 1, new InputChannelID());
+        NettyMessage.ResumeConsumption resumeConsumption =
+                new NettyMessage.ResumeConsumption(new InputChannelID());
+        NettyMessage.AckAllUserRecordsProcessed ackAllUserRecordsProcessed =
+                new NettyMessage.AckAllUserRecordsProcessed(new InputChannelID());
+        NettyMessage.NewBufferSize newBufferSize =
+                new NettyMessage.NewBufferSize(
+                        random.nextInt(Integer.MAX_VALUE) + 1, new InputChannelID());
+
+        NettyMessage.BatchedControlMessages expected =
+                new NettyMessage.BatchedControlMessages(
+                        Arrays.asList(
+                                addCredit,
+                                resumeConsumption,
+                                ackAllUserRecordsProcessed,
+                                newBufferSize));
+        NettyMessage.BatchedControlMessages actual = encodeAndDecode(expected, channel);
+
+        assertEquals(4, actual.messages.size());
+
+        NettyMessage.AddCredit actualAddCredit = (NettyMessage.AddCredit) actual.messages.get(0);
+        assertEquals(addCredit.credit, actualAddCredit.credit);
+        assertEquals(addCredit.receiverId, actualAddCredit.receiverId);
+
+        assertEquals(
+                resumeConsumption.receiverId,
+                ((NettyMessage.ResumeConsumption) actual.messages.get(1)).receiverId);
+        assertEquals(
+                ackAllUserRecordsProcessed.receiverId,
+                ((NettyMessage.AckAllUserRecordsProcessed) actual.messages.get(2)).receiverId);
+
+        NettyMessage.NewBufferSize actualNewBufferSize =
+                (NettyMessage.NewBufferSize) actual.messages.get(3);
+        assertEquals(newBufferSize.bufferSize, actualNewBufferSize.bufferSize);
+        assertEquals(newBufferSize.receiverId, actualNewBufferSize.receiverId);
+    }
 }
@@ -19,6 +19,7 @@
 package org.apache.flink.runtime.io.network.netty;
 
 import org.apache.flink.configuration.Configuration;
+import org.apache.flink.runtime.clusterframework.types.ResourceID;
 import org.apache.flink.runtime.io.network.ConnectionID;
 import org.apache.flink.util.NetUtils;
 
@@ -50,7 +51,7 @@ public class NettyTestUtil {
     static NettyServer initServer(
             NettyConfig config, NettyProtocol protocol, NettyBufferPool bufferPool)
             throws Exception {
-        final NettyServer server = new NettyServer(config);
+        final NettyServer server = new NettyServer(config, ResourceID.generate());
 
         try {
             server.init(protocol, bufferPool);
@@ -224,6 +225,7 @@ public class NettyTestUtil {
 
         ConnectionID getConnectionID(int connectionIndex) {
             return new ConnectionID(
+                    server.getLocalTransportId(),
                     new InetSocketAddress(
                             server.getConfig().getServerAddress(),
                             server.getConfig().getServerPort()),
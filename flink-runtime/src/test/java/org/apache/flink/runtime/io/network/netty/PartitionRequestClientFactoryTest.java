@@ -18,6 +18,9 @@
 
 package org.apache.flink.runtime.io.network.netty;
 
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.NettyShuffleEnvironmentOptions;
+import org.apache.flink.runtime.clusterframework.types.ResourceID;
 import org.apache.flink.runtime.io.network.ConnectionID;
 import org.apache.flink.runtime.io.network.NetworkClientHandler;
 import org.apache.flink.runtime.io.network.netty.exception.RemoteTransportException;
@@ -27,9 +30,13 @@ import org.apache.flink.util.TestLogger;
 import org.apache.flink.shaded.netty4.io.netty.channel.ChannelException;
 import org.apache.flink.shaded.netty4.io.netty.channel.ChannelFuture;
 import org.apache.flink.shaded.netty4.io.netty.channel.ChannelHandler;
+import org.apache.flink.shaded.netty4.io.netty.channel.epoll.Epoll;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -40,8 +47,12 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 import static org.mockito.Mockito.mock;
 
 /** {@link PartitionRequestClientFactory} test. */
@@ -49,6 +60,8 @@ public class PartitionRequestClientFactoryTest extends TestLogger {
 
     private static final int SERVER_PORT = NetUtils.getAvailablePort();
 
+    @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void testInterruptsNotCached() throws Exception {
         NettyTestUtil.NettyServerAndClient nettyServerAndClient = createNettyServerAndClient();
@@ -210,7 +223,80 @@ public class PartitionRequestClientFactoryTest extends TestLogger {
         serverAndClient.server().shutdown();
     }
 
+    @Test
+    public void testConnectViaLocalTransport() throws Exception {
+        assumeTrue(Epoll.isAvailable());
+
+        Configuration config = new Configuration();
+        config.setString(NettyShuffleEnvironmentOptions.TRANSPORT_TYPE, "epoll");
+        config.setBoolean(NettyShuffleEnvironmentOptions.LOCAL_TRANSPORT_ENABLED, true);
+        config.setString(
+                NettyShuffleEnvironmentOptions.LOCAL_TRANSPORT_DIR,
+                temporaryFolder.getRoot().getAbsolutePath());
+
+        NettyTestUtil.NettyServerAndClient serverAndClient =
+                createNettyServerAndClient(NettyTestUtil.createConfig(config));
+        ConnectionID connectionID = serverAndClient.getConnectionID(0);
+        File socketFile =
+                serverAndClient
+                        .server()
+                        .getConfig()
+                        .getLocalTransportSocketFile(connectionID.getResourceID());
+        try {
+            assertNotNull(serverAndClient.server().getLocalBindFuture());
+            assertTrue(socketFile.exists());
+
+            // TCP connections fail, so the client can only be created via the local transport
+            PartitionRequestClientFactory factory =
+                    new PartitionRequestClientFactory(
+                            new LocalOnlyNettyClient(serverAndClient.client()), 0);
+            assertNotNull(factory.createPartitionRequestClient(connectionID));
+
+            // the local client is not reused for another task manager under the same address
+            try {
+                factory.createPartitionRequestClient(
+                        new ConnectionID(ResourceID.generate(), connectionID.getAddress(), 0));
+                fail("The client of another task manager should have been created via TCP.");
+            } catch (IOException expected) {
+            }
+
+            // the same address does not imply co-location, only the task manager id does
+            assertNull(
+                    serverAndClient
+                            .client()
+                            .connectLocally(
+                                    new ConnectionID(
+                                            ResourceID.generate(), connectionID.getAddress(), 0)));
+            assertNull(
+                    serverAndClient
+                            .client()
+                            .connectLocally(new ConnectionID(connectionID.getAddress(), 0)));
+        } finally {
+            serverAndClient.client().shutdown();
+            serverAndClient.server().shutdown();
+        }
+
+        assertFalse(socketFile.exists());
+    }
+
+    @Test
+    public void testLocalTransportDisabledByDefault() throws Exception {
+        NettyTestUtil.NettyServerAndClient serverAndClient = createNettyServerAndClient();
+        try {
+            assertNull(serverAndClient.server().getLocalBindFuture());
+            assertNull(serverAndClient.client().connectLocally(serverAndClient.getConnectionID(0)));
+        } finally {
+            serverAndClient.client().shutdown();
+            serverAndClient.server().shutdown();
+        }
+    }
+
     private NettyTestUtil.NettyServerAndClient createNettyServerAndClient() throws Exception {
+        return createNettyServerAndClient(NettyTestUtil.createConfig());
+    }
+
+    private NettyTestUtil.NettyServerAndClient createNettyServerAndClient(NettyConfig config)
+            throws Exception {
         return NettyTestUtil.initServerAndClient(
                 new NettyProtocol(null, null) {
 
@@ -223,7 +309,28 @@ public class PartitionRequestClientFactoryTest extends TestLogger {
                     public ChannelHandler[] getClientChannelHandlers() {
                         return new ChannelHandler[] {mock(NetworkClientHandler.class)};
                     }
-                });
+                },
+                config);
+    }
+
+    private static class LocalOnlyNettyClient extends NettyClient {
+
+        private final NettyClient nettyClient;
+
+        LocalOnlyNettyClient(NettyClient nettyClient) {
+            super(null);
+            this.nettyClient = nettyClient;
+        }
+
+        @Override
+        ChannelFuture connect(final InetSocketAddress serverSocketAddress) {
+            throw new ChannelException("Simulate connect failure");
+        }
+
+        @Override
+        ChannelFuture connectLocally(final ConnectionID connectionId) {
+            return nettyClient.connectLocally(connectionId);
+        }
     }
 
     private static class UnstableNettyClient extends NettyClient {
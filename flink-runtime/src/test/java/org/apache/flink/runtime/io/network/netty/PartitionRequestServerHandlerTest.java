@@ -38,6 +38,7 @@ import org.apache.flink.shaded.netty4.io.netty.channel.embedded.EmbeddedChannel;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
 
 import static org.hamcrest.Matchers.instanceOf;
@@ -160,6 +161,38 @@ public class PartitionRequestServerHandlerTest extends TestLogger {
         assertEquals(666, testViewReader.bufferSize);
     }
 
+    @Test
+    public void testBatchedControlMessages() {
+        final InputChannelID inputChannelID1 = new InputChannelID();
+        final InputChannelID inputChannelID2 = new InputChannelID();
+        final PartitionRequestQueue partitionRequestQueue = new PartitionRequestQueue();
+        final TestViewReader testViewReader1 =
+                new TestViewReader(inputChannelID1, 2, partitionRequestQueue);
+        final TestViewReader testViewReader2 =
+                new TestViewReader(inputChannelID2, 2, partitionRequestQueue);
+        final PartitionRequestServerHandler serverHandler =
+                new PartitionRequestServerHandler(
+                        new ResultPartitionManager(),
+                        new TaskEventDispatcher(),
+                        partitionRequestQueue);
+        final EmbeddedChannel channel = new EmbeddedChannel(serverHandler);
+        partitionRequestQueue.notifyReaderCreated(testViewReader1);
+        partitionRequestQueue.notifyReaderCreated(testViewReader2);
+
+        // Write the batched messages of both channels to server
+        channel.writeInbound(
+                new NettyMessage.BatchedControlMessages(
+                        Arrays.asList(
+                                new ResumeConsumption(inputChannelID1),
+                                new NettyMessage.NewBufferSize(666, inputChannelID2))));
+        channel.runPendingTasks();
+
+        assertTrue(testViewReader1.consumptionResumed);
+        assertEquals(-1, testViewReader1.bufferSize);
+        assertFalse(testViewReader2.consumptionResumed);
+        assertEquals(666, testViewReader2.bufferSize);
+    }
+
     @Test
     public void testReceivingNewBufferSizeBeforeReaderIsCreated() {
         final InputChannelID inputChannelID = new InputChannelID();
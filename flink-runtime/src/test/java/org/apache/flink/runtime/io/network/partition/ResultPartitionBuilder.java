@@ -66,6 +66,8 @@ public class ResultPartitionBuilder {
 
     private int sortShuffleMinParallelism = Integer.MAX_VALUE;
 
+    private PartitionedFileReadMode sortShuffleReadMode = PartitionedFileReadMode.BUFFERED;
+
     private int maxBuffersPerChannel = Integer.MAX_VALUE;
 
     private int networkBufferSize = 1;
@@ -128,7 +130,8 @@ public class ResultPartitionBuilder {
                 .setBatchShuffleReadIOExecutor(environment.getBatchShuffleReadIOExecutor())
                 .setSortShuffleMinBuffers(environment.getConfiguration().sortShuffleMinBuffers())
                 .setSortShuffleMinParallelism(
-                        environment.getConfiguration().sortShuffleMinParallelism());
+                        environment.getConfiguration().sortShuffleMinParallelism())
+                .setSortShuffleReadMode(environment.getConfiguration().sortShuffleReadMode());
     }
 
     public ResultPartitionBuilder setNetworkBufferPool(NetworkBufferPool networkBufferPool) {
@@ -186,6 +189,12 @@ public class ResultPartitionBuilder {
         return this;
     }
 
+    public ResultPartitionBuilder setSortShuffleReadMode(
+            PartitionedFileReadMode sortShuffleReadMode) {
+        this.sortShuffleReadMode = sortShuffleReadMode;
+        return this;
+    }
+
     public ResultPartitionBuilder setCompressionCodec(String compressionCodec) {
         this.compressionCodec = compressionCodec;
         return this;
@@ -220,6 +229,7 @@ public class ResultPartitionBuilder {
                         maxBuffersPerChannel,
                         sortShuffleMinBuffers,
                         sortShuffleMinParallelism,
+                        sortShuffleReadMode,
                         sslEnabled);
 
         SupplierWithException<BufferPool, IOException> factory =
@@ -125,6 +125,7 @@ public class ResultPartitionFactoryTest extends TestLogger {
                         Integer.MAX_VALUE,
                         10,
                         sortShuffleMinParallelism,
+                        PartitionedFileReadMode.BUFFERED,
                         false);
 
         final ResultPartitionDeploymentDescriptor descriptor =
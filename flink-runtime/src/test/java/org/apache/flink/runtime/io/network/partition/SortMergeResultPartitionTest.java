@@ -102,6 +102,21 @@ public class SortMergeResultPartitionTest extends TestLogger {
 
     @Test
     public void testWriteAndRead() throws Exception {
+        testWriteAndRead(PartitionedFileReadMode.BUFFERED, false);
+    }
+
+    @Test
+    public void testWriteAndReadMemoryMapped() throws Exception {
+        testWriteAndRead(PartitionedFileReadMode.MMAP, true);
+    }
+
+    @Test
+    public void testWriteAndReadMemoryMappedWithFileRegion() throws Exception {
+        testWriteAndRead(PartitionedFileReadMode.MMAP, false);
+    }
+
+    private void testWriteAndRead(PartitionedFileReadMode readMode, boolean sslEnabled)
+            throws Exception {
         int numSubpartitions = 10;
         int numBuffers = 100;
         int numRecords = 1000;
@@ -109,7 +124,8 @@ public class SortMergeResultPartitionTest extends TestLogger {
 
         BufferPool bufferPool = globalPool.createBufferPool(numBuffers, numBuffers);
         SortMergeResultPartition partition =
-                createSortMergedPartition(numSubpartitions, bufferPool);
+                createSortMergedPartition(
+                        numSubpartitions, bufferPool, readBufferPool, readMode, sslEnabled);
 
         Queue<PartitionSortedBufferTest.DataAndType>[] dataWritten = new Queue[numSubpartitions];
         Queue<Buffer>[] buffersRead = new Queue[numSubpartitions];
@@ -431,6 +447,21 @@ public class SortMergeResultPartitionTest extends TestLogger {
     private SortMergeResultPartition createSortMergedPartition(
             int numSubpartitions, BufferPool bufferPool, BatchShuffleReadBufferPool readBufferPool)
             throws IOException {
+        return createSortMergedPartition(
+                numSubpartitions,
+                bufferPool,
+                readBufferPool,
+                PartitionedFileReadMode.BUFFERED,
+                false);
+    }
+
+    private SortMergeResultPartition createSortMergedPartition(
+            int numSubpartitions,
+            BufferPool bufferPool,
+            BatchShuffleReadBufferPool readBufferPool,
+            PartitionedFileReadMode readMode,
+            boolean sslEnabled)
+            throws IOException {
         SortMergeResultPartition sortMergedResultPartition =
                 new SortMergeResultPartition(
                         "SortMergedResultPartitionTest",
@@ -444,7 +475,9 @@ public class SortMergeResultPartitionTest extends TestLogger {
                         new ResultPartitionManager(),
                         fileChannelManager.createChannel().getPath(),
                         null,
-                        () -> bufferPool);
+                        () -> bufferPool,
+                        readMode,
+                        sslEnabled);
         sortMergedResultPartition.setup();
         return sortMergedResultPartition;
     }
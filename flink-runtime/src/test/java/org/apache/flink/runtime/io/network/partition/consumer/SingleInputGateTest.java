@@ -651,6 +651,46 @@ public class SingleInputGateTest extends InputGateTestBase {
         }
     }
 
+    /**
+     * Tests that the floating buffers of the input gate are sized from the announced number of
+     * desired buffers, within the configured bounds.
+     */
+    @Test
+    public void testAnnounceDesiredBuffers() throws Exception {
+        final NettyShuffleEnvironment network = createNettyShuffleEnvironment();
+        final SingleInputGate inputGate =
+                createInputGate(network, 1, ResultPartitionType.PIPELINED_BOUNDED);
+        int buffersPerChannel = 2;
+        int extraNetworkBuffersPerGate = 8;
+
+        try (Closer closer = Closer.create()) {
+            closer.register(network::close);
+            closer.register(inputGate::close);
+
+            RemoteInputChannel remote =
+                    InputChannelBuilder.newBuilder()
+                            .setupFromNettyShuffleEnvironment(network)
+                            .setConnectionManager(new TestingConnectionManager())
+                            .buildRemoteChannel(inputGate);
+            inputGate.setInputChannels(remote);
+            inputGate.setup();
+            BufferPool bufferPool = inputGate.getBufferPool();
+
+            inputGate.announceDesiredBuffers(buffersPerChannel + 3);
+            assertEquals(3, bufferPool.getMaxNumberOfMemorySegments());
+
+            // at least the required floating buffers are kept
+            inputGate.announceDesiredBuffers(1);
+            assertEquals(
+                    bufferPool.getNumberOfRequiredMemorySegments(),
+                    bufferPool.getMaxNumberOfMemorySegments());
+
+            // not more than the configured floating buffers are used
+            inputGate.announceDesiredBuffers(1000);
+            assertEquals(extraNetworkBuffersPerGate, bufferPool.getMaxNumberOfMemorySegments());
+        }
+    }
+
     /**
      * Tests that input gate requests and assigns network buffers when unknown input channel updates
      * to remote input channel.
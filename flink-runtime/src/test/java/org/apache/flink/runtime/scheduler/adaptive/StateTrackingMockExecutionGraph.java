@@ -359,6 +359,11 @@ class StateTrackingMockExecutionGraph implements ExecutionGraph {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public long getExecutionTopologyVersion() {
+        throw new UnsupportedOperationException();
+    }
+
     @Nonnull
     @Override
     public ComponentMainThreadExecutor getJobMasterMainThreadExecutor() {
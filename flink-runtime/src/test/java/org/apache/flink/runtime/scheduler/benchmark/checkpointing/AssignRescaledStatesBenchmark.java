@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.scheduler.benchmark.checkpointing;
+
+import org.apache.flink.runtime.checkpoint.CompletedCheckpoint;
+import org.apache.flink.runtime.checkpoint.StateAssignmentOperation;
+import org.apache.flink.runtime.executiongraph.ExecutionGraph;
+import org.apache.flink.runtime.scheduler.benchmark.JobConfiguration;
+
+import java.util.HashSet;
+
+import static org.apache.flink.runtime.scheduler.benchmark.SchedulerBenchmarkUtils.createAndInitExecutionGraph;
+
+/**
+ * The benchmark of assigning the states of a completed checkpoint to a job whose keyed vertex is
+ * rescaled, which redistributes the key groups and the operator state partitions.
+ */
+public class AssignRescaledStatesBenchmark extends CheckpointingBenchmarkBase {
+
+    private CompletedCheckpoint completedCheckpoint;
+    private ExecutionGraph rescaledExecutionGraph;
+
+    @Override
+    public void setup(JobConfiguration jobConfiguration) throws Exception {
+        super.setup(jobConfiguration);
+
+        completedCheckpoint = completeCheckpoint();
+        rescaledExecutionGraph =
+                createAndInitExecutionGraph(
+                        createJobVertices(getRescaledParallelism()),
+                        jobConfiguration,
+                        scheduledExecutorService);
+    }
+
+    public void assignRescaledStates() {
+        new StateAssignmentOperation(
+                        completedCheckpoint.getCheckpointID(),
+                        new HashSet<>(rescaledExecutionGraph.getAllVertices().values()),
+                        completedCheckpoint.getOperatorStates(),
+                        false)
+                .assignStates();
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.scheduler.benchmark.checkpointing;
+
+import org.apache.flink.runtime.checkpoint.CheckpointPlan;
+import org.apache.flink.runtime.checkpoint.DefaultCheckpointPlanCalculator;
+import org.apache.flink.runtime.executiongraph.ExecutionGraphCheckpointPlanCalculatorContext;
+import org.apache.flink.runtime.scheduler.benchmark.JobConfiguration;
+
+/**
+ * The benchmark of calculating the checkpoint plan of the snapshot group which rescales the keyed
+ * vertex. A new calculator is used for each invocation, because the calculated plans are cached
+ * until the execution topology changes.
+ */
+public class CalculateRescalePlanBenchmark extends CheckpointingBenchmarkBase {
+
+    private String snapshotGroup;
+
+    @Override
+    public void setup(JobConfiguration jobConfiguration) throws Exception {
+        super.setup(jobConfiguration);
+
+        snapshotGroup =
+                "rescale-"
+                        + keyedVertexId.toHexString()
+                        + "="
+                        + getRescaledParallelism()
+                        + ":"
+                        + sourceVertexId.toHexString();
+    }
+
+    public CheckpointPlan calculateRescalePlan() throws Exception {
+        return new DefaultCheckpointPlanCalculator(
+                        executionGraph.getJobID(),
+                        new ExecutionGraphCheckpointPlanCalculatorContext(executionGraph),
+                        executionGraph.getVerticesTopologically(),
+                        false)
+                .calculateCheckpointPlan(snapshotGroup)
+                .get();
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.scheduler.benchmark.checkpointing;
+
+import org.apache.flink.runtime.checkpoint.CheckpointCoordinator;
+import org.apache.flink.runtime.checkpoint.CheckpointCoordinatorTestingUtils.CheckpointCoordinatorBuilder;
+import org.apache.flink.runtime.checkpoint.CheckpointMetrics;
+import org.apache.flink.runtime.checkpoint.CompletedCheckpoint;
+import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
+import org.apache.flink.runtime.checkpoint.StandaloneCheckpointIDCounter;
+import org.apache.flink.runtime.checkpoint.StateAssignmentOperation;
+import org.apache.flink.runtime.checkpoint.TaskStateSnapshot;
+import org.apache.flink.runtime.concurrent.ManuallyTriggeredScheduledExecutor;
+import org.apache.flink.runtime.execution.ExecutionState;
+import org.apache.flink.runtime.executiongraph.ExecutionAttemptID;
+import org.apache.flink.runtime.executiongraph.ExecutionGraph;
+import org.apache.flink.runtime.executiongraph.ExecutionJobVertex;
+import org.apache.flink.runtime.executiongraph.ExecutionVertex;
+import org.apache.flink.runtime.jobgraph.JobVertex;
+import org.apache.flink.runtime.jobgraph.JobVertexID;
+import org.apache.flink.runtime.jobgraph.OperatorID;
+import org.apache.flink.runtime.jobmaster.TestingLogicalSlotBuilder;
+import org.apache.flink.runtime.messages.checkpoint.AcknowledgeCheckpoint;
+import org.apache.flink.runtime.scheduler.benchmark.JobConfiguration;
+import org.apache.flink.runtime.scheduler.benchmark.SchedulerBenchmarkBase;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.runtime.state.storage.FileSystemCheckpointStorage;
+import org.apache.flink.runtime.testtasks.NoOpInvokable;
+import org.apache.flink.util.FileUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.flink.runtime.checkpoint.CheckpointCoordinatorTestingUtils.generateKeyGroupState;
+import static org.apache.flink.runtime.checkpoint.CheckpointCoordinatorTestingUtils.generatePartitionableStateHandle;
+import static org.apache.flink.runtime.scheduler.benchmark.SchedulerBenchmarkUtils.createAndInitExecutionGraph;
+import static org.apache.flink.runtime.scheduler.benchmark.SchedulerBenchmarkUtils.deployAllTasks;
+import static org.apache.flink.runtime.scheduler.benchmark.SchedulerBenchmarkUtils.transitionTaskStatus;
+
+/**
+ * Base class of the checkpointing benchmarks. It builds a running source -> keyed map -> sink job
+ * and a {@link CheckpointCoordinator} which writes its checkpoints to a temporary directory. Every
+ * task acknowledges checkpoints with a prepared snapshot of operator state, the keyed map also with
+ * keyed state for its key groups.
+ */
+public class CheckpointingBenchmarkBase extends SchedulerBenchmarkBase {
+
+    static final int NUM_NAMED_OPERATOR_STATES = 2;
+
+    static final int NUM_PARTITIONS_PER_OPERATOR_STATE = 8;
+
+    private static final String TASK_MANAGER_LOCATION_INFO = "localhost";
+
+    final JobVertexID sourceVertexId = new JobVertexID();
+
+    final JobVertexID keyedVertexId = new JobVertexID();
+
+    final JobVertexID sinkVertexId = new JobVertexID();
+
+    JobConfiguration jobConfiguration;
+    ExecutionGraph executionGraph;
+    ManuallyTriggeredScheduledExecutor timer;
+    StandaloneCheckpointIDCounter checkpointIdCounter;
+    CheckpointCoordinator checkpointCoordinator;
+    Map<ExecutionAttemptID, TaskStateSnapshot> taskStateSnapshots;
+
+    private File checkpointDirectory;
+
+    public void setup(JobConfiguration jobConfiguration) throws Exception {
+        super.setup();
+
+        this.jobConfiguration = jobConfiguration;
+        checkpointDirectory = Files.createTempDirectory("checkpointing-benchmark").toFile();
+
+        executionGraph =
+                createAndInitExecutionGraph(
+                        createJobVertices(jobConfiguration.getParallelism()),
+                        jobConfiguration,
+                        scheduledExecutorService);
+
+        deployAllTasks(executionGraph, new TestingLogicalSlotBuilder());
+        for (JobVertexID jobVertexId : executionGraph.getAllVertices().keySet()) {
+            transitionTaskStatus(executionGraph, jobVertexId, ExecutionState.INITIALIZING);
+            transitionTaskStatus(executionGraph, jobVertexId, ExecutionState.RUNNING);
+        }
+
+        timer = new ManuallyTriggeredScheduledExecutor();
+        checkpointIdCounter = new StandaloneCheckpointIDCounter();
+        checkpointCoordinator =
+                new CheckpointCoordinatorBuilder()
+                        .setExecutionGraph(executionGraph)
+                        .setCheckpointStorage(
+                                new FileSystemCheckpointStorage(checkpointDirectory.toURI()))
+                        .setTimer(timer)
+                        .setCheckpointIDCounter(checkpointIdCounter)
+                        .build();
+
+        taskStateSnapshots = createTaskStateSnapshots();
+    }
+
+    @Override
+    public void teardown() {
+        try {
+            if (checkpointCoordinator != null) {
+                checkpointCoordinator.shutdown();
+            }
+            if (checkpointDirectory != null) {
+                FileUtils.deleteDirectory(checkpointDirectory);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Error when tearing down the benchmark.", e);
+        } finally {
+            super.teardown();
+        }
+    }
+
+    /**
+     * Creates the job vertices of the benchmark job. The keyed vertex is created with the given
+     * parallelism, while the max parallelism is derived from the configured parallelism, so that
+     * the vertices of a rescaled job can restore the state of the original job.
+     */
+    List<JobVertex> createJobVertices(int keyedVertexParallelism) {
+        final List<JobVertex> jobVertices = new ArrayList<>();
+
+        final JobVertex source = new JobVertex("source", sourceVertexId);
+        source.setInvokableClass(NoOpInvokable.class);
+        source.setParallelism(jobConfiguration.getParallelism());
+        jobVertices.add(source);
+
+        final JobVertex keyed = new JobVertex("keyed", keyedVertexId);
+        keyed.setInvokableClass(NoOpInvokable.class);
+        keyed.setParallelism(keyedVertexParallelism);
+        keyed.setMaxParallelism(
+                KeyGroupRangeAssignment.computeDefaultMaxParallelism(
+                        jobConfiguration.getParallelism()));
+        jobVertices.add(keyed);
+
+        final JobVertex sink = new JobVertex("sink", sinkVertexId);
+        sink.setInvokableClass(NoOpInvokable.class);
+        sink.setParallelism(jobConfiguration.getParallelism());
+        jobVertices.add(sink);
+
+        keyed.connectNewDataSetAsInput(
+                source,
+                jobConfiguration.getDistributionPattern(),
+                jobConfiguration.getResultPartitionType());
+        sink.connectNewDataSetAsInput(
+                keyed,
+                jobConfiguration.getDistributionPattern(),
+                jobConfiguration.getResultPartitionType());
+
+        return jobVertices;
+    }
+
+    /** Returns the parallelism the keyed vertex is rescaled to by the rescaling benchmarks. */
+    int getRescaledParallelism() {
+        return Math.max(1, jobConfiguration.getParallelism() / 2);
+    }
+
+    /** Triggers a checkpoint and returns the id of the resulting pending checkpoint. */
+    long triggerPendingCheckpoint() {
+        final long checkpointId = checkpointIdCounter.get();
+        checkpointCoordinator.triggerCheckpoint(false);
+        timer.triggerAll();
+        if (!checkpointCoordinator.getPendingCheckpoints().containsKey(checkpointId)) {
+            throw new IllegalStateException("Checkpoint " + checkpointId + " was not triggered.");
+        }
+        return checkpointId;
+    }
+
+    /** Acknowledges the given checkpoint for all tasks, which completes the checkpoint. */
+    void acknowledgeAllTasks(long checkpointId) throws Exception {
+        for (Map.Entry<ExecutionAttemptID, TaskStateSnapshot> taskStateSnapshot :
+                taskStateSnapshots.entrySet()) {
+            checkpointCoordinator.receiveAcknowledgeMessage(
+                    new AcknowledgeCheckpoint(
+                            executionGraph.getJobID(),
+                            taskStateSnapshot.getKey(),
+                            checkpointId,
+                            new CheckpointMetrics(),
+                            taskStateSnapshot.getValue()),
+                    TASK_MANAGER_LOCATION_INFO);
+        }
+    }
+
+    /** Triggers and acknowledges a checkpoint and returns the completed checkpoint. */
+    CompletedCheckpoint completeCheckpoint() throws Exception {
+        final long checkpointId = triggerPendingCheckpoint();
+        acknowledgeAllTasks(checkpointId);
+
+        final CompletedCheckpoint completedCheckpoint =
+                checkpointCoordinator.getCheckpointStore().getLatestCheckpoint();
+        if (completedCheckpoint == null || completedCheckpoint.getCheckpointID() != checkpointId) {
+            throw new IllegalStateException("Checkpoint " + checkpointId + " was not completed.");
+        }
+        return completedCheckpoint;
+    }
+
+    private Map<ExecutionAttemptID, TaskStateSnapshot> createTaskStateSnapshots() throws Exception {
+        final Map<ExecutionAttemptID, TaskStateSnapshot> snapshots = new HashMap<>();
+
+        for (ExecutionJobVertex ejv : executionGraph.getVerticesTopologically()) {
+            final OperatorID operatorId = ejv.getOperatorIDs().get(0).getGeneratedOperatorID();
+            final List<KeyGroupRange> keyGroupRanges =
+                    StateAssignmentOperation.createKeyGroupPartitions(
+                            ejv.getMaxParallelism(), ejv.getParallelism());
+
+            for (ExecutionVertex ev : ejv.getTaskVertices()) {
+                final int subtaskIndex = ev.getParallelSubtaskIndex();
+                final OperatorSubtaskState.Builder subtaskState =
+                        OperatorSubtaskState.builder()
+                                .setManagedOperatorState(
+                                        generatePartitionableStateHandle(
+                                                ejv.getJobVertexId(),
+                                                subtaskIndex,
+                                                NUM_NAMED_OPERATOR_STATES,
+                                                NUM_PARTITIONS_PER_OPERATOR_STATE,
+                                                false));
+                if (ejv.getJobVertexId().equals(keyedVertexId)) {
+                    subtaskState.setManagedKeyedState(
+                            generateKeyGroupState(
+                                    ejv.getJobVertexId(), keyGroupRanges.get(subtaskIndex), false));
+                }
+
+                final TaskStateSnapshot snapshot = new TaskStateSnapshot();
+                snapshot.putSubtaskStateByOperatorID(operatorId, subtaskState.build());
+                snapshots.put(ev.getCurrentExecutionAttempt().getAttemptId(), snapshot);
+            }
+        }
+
+        return snapshots;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.scheduler.benchmark.checkpointing;
+
+import org.apache.flink.runtime.checkpoint.Checkpoints;
+import org.apache.flink.runtime.checkpoint.CompletedCheckpoint;
+import org.apache.flink.runtime.checkpoint.metadata.CheckpointMetadata;
+import org.apache.flink.runtime.scheduler.benchmark.JobConfiguration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/** The benchmark of serializing the metadata of a completed checkpoint. */
+public class WriteCheckpointMetadataBenchmark extends CheckpointingBenchmarkBase {
+
+    private CheckpointMetadata checkpointMetadata;
+
+    @Override
+    public void setup(JobConfiguration jobConfiguration) throws Exception {
+        super.setup(jobConfiguration);
+
+        final CompletedCheckpoint completedCheckpoint = completeCheckpoint();
+        checkpointMetadata =
+                new CheckpointMetadata(
+                        completedCheckpoint.getCheckpointID(),
+                        completedCheckpoint.getOperatorStates().values(),
+                        completedCheckpoint.getMasterHookStates());
+    }
+
+    public int writeCheckpointMetadata() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Checkpoints.storeCheckpointMetadata(checkpointMetadata, out);
+        return out.size();
+    }
+}
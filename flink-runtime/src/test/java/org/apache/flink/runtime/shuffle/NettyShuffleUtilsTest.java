@@ -38,6 +38,7 @@ import org.apache.flink.util.TestLogger;
 
 import org.apache.flink.shaded.guava30.com.google.common.collect.ImmutableMap;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.junit.Test;
 
 import java.io.IOException;
@@ -129,6 +130,57 @@ public class NettyShuffleUtilsTest extends TestLogger {
         resultPartition3.close();
     }
 
+    @Test
+    public void testNetworkBuffersPerInputChannelWithinGateLimit() {
+        assertEquals(2, NettyShuffleUtils.getNetworkBuffersPerInputChannel(2, 100, 200));
+        assertEquals(2, NettyShuffleUtils.getNetworkBuffersPerInputChannel(2, 0, 10));
+        assertEquals(
+                2, NettyShuffleUtils.getNetworkBuffersPerInputChannel(2, 1000, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testNetworkBuffersPerInputChannelExceedingGateLimit() {
+        assertEquals(1, NettyShuffleUtils.getNetworkBuffersPerInputChannel(2, 101, 200));
+        assertEquals(3, NettyShuffleUtils.getNetworkBuffersPerInputChannel(5, 100, 350));
+        // at least one exclusive buffer per channel is kept
+        assertEquals(1, NettyShuffleUtils.getNetworkBuffersPerInputChannel(2, 1000, 200));
+    }
+
+    @Test
+    public void testFloatingBuffersIncludeReducedExclusiveBuffers() {
+        assertEquals(
+                Pair.of(1, 8),
+                NettyShuffleUtils.getMinMaxFloatingBuffersPerInputGate(8, 2, 100, 200));
+        // 100 channels give up 2 of their 5 exclusive buffers each
+        assertEquals(
+                Pair.of(1, 208),
+                NettyShuffleUtils.getMinMaxFloatingBuffersPerInputGate(8, 5, 100, 350));
+    }
+
+    @Test
+    public void testInputGateRespectsMaxExclusiveBuffersPerGate() throws Exception {
+        int numChannels = 10;
+        NettyShuffleEnvironment sEnv =
+                new NettyShuffleEnvironmentBuilder()
+                        .setNumNetworkBuffers(100)
+                        .setNetworkBuffersPerChannel(2)
+                        .setFloatingNetworkBuffersPerGate(8)
+                        .setMaxExclusiveBuffersPerGate(numChannels)
+                        .build();
+
+        SingleInputGate inputGate = createInputGate(sEnv, PIPELINED_BOUNDED, numChannels);
+        inputGate.setup();
+
+        // each channel keeps one of its two exclusive buffers, the other one becomes floating
+        assertEquals(numChannels + 8 + numChannels, calculateBuffersConsumption(inputGate));
+        for (InputChannel inputChannel : inputGate.getInputChannels().values()) {
+            assertEquals(1, ((RemoteInputChannel) inputChannel).getInitialCredit());
+        }
+
+        inputGate.close();
+        sEnv.close();
+    }
+
     private SingleInputGate createInputGate(
             NettyShuffleEnvironment network,
             ResultPartitionType resultPartitionType,
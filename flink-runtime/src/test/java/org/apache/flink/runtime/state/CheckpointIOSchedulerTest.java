@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state;
+
+import org.apache.flink.core.testutils.CheckedThread;
+import org.apache.flink.metrics.groups.UnregisteredMetricsGroup;
+import org.apache.flink.runtime.checkpoint.CheckpointOptions;
+import org.apache.flink.runtime.checkpoint.CheckpointType;
+import org.apache.flink.runtime.state.CheckpointIOScheduler.Priority;
+import org.apache.flink.runtime.state.CheckpointStreamFactory.CheckpointStateOutputStream;
+import org.apache.flink.runtime.state.memory.MemCheckpointStreamFactory;
+import org.apache.flink.util.clock.ManualClock;
+
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for the {@link CheckpointIOScheduler}. */
+public class CheckpointIOSchedulerTest {
+
+    private static final int BYTES_PER_SECOND = 1000;
+
+    private static final CheckpointOptions CHECKPOINT_OPTIONS =
+            CheckpointOptions.alignedNoTimeout(
+                    CheckpointType.CHECKPOINT, CheckpointStorageLocationReference.getDefault());
+
+    @Test
+    public void testPriorityOfCheckpointOptions() {
+        CheckpointStorageLocationReference location =
+                CheckpointStorageLocationReference.getDefault();
+        assertEquals(
+                Priority.PERIODIC,
+                Priority.of(
+                        CheckpointOptions.alignedNoTimeout(CheckpointType.CHECKPOINT, location)));
+        assertEquals(
+                Priority.SAVEPOINT,
+                Priority.of(
+                        CheckpointOptions.alignedNoTimeout(CheckpointType.SAVEPOINT, location)));
+        assertEquals(
+                Priority.RESCALE,
+                Priority.of(
+                        CheckpointOptions.forConfig(
+                                CheckpointType.SAVEPOINT,
+                                location,
+                                true,
+                                false,
+                                0,
+                                "rescale-0a1b=2:3c4d")));
+    }
+
+    @Test
+    public void testWaitingWritersAreServedByPriority() throws Exception {
+        ManualClock clock = new ManualClock();
+        CheckpointIOScheduler scheduler = createScheduler(clock);
+
+        // drain the bucket
+        scheduler.acquire(Priority.SAVEPOINT, BYTES_PER_SECOND);
+
+        CheckedThread periodic = acquireInThread(scheduler, Priority.PERIODIC, 500);
+        waitUntilWaiting(scheduler, Priority.PERIODIC);
+        CheckedThread rescale = acquireInThread(scheduler, Priority.RESCALE, 500);
+        waitUntilWaiting(scheduler, Priority.RESCALE);
+
+        // enough for one of the writers, which must be the one with the higher priority
+        clock.advanceTime(500, TimeUnit.MILLISECONDS);
+        rescale.sync();
+        assertEquals(1, scheduler.getNumberOfWaitingWriters(Priority.PERIODIC));
+
+        clock.advanceTime(500, TimeUnit.MILLISECONDS);
+        periodic.sync();
+        assertEquals(0, scheduler.getNumberOfWaitingWriters(Priority.PERIODIC));
+    }
+
+    @Test
+    public void testWritesLargerThanTheBucketProceed() throws Exception {
+        ManualClock clock = new ManualClock();
+        CheckpointIOScheduler scheduler = createScheduler(clock);
+
+        scheduler.acquire(Priority.PERIODIC, 10 * BYTES_PER_SECOND);
+
+        CheckedThread next = acquireInThread(scheduler, Priority.PERIODIC, 1);
+        waitUntilWaiting(scheduler, Priority.PERIODIC);
+
+        // the debt of the large write is paid off first
+        clock.advanceTime(9, TimeUnit.SECONDS);
+        Thread.sleep(10);
+        assertTrue(next.isAlive());
+
+        clock.advanceTime(1, TimeUnit.SECONDS);
+        next.sync();
+    }
+
+    @Test
+    public void testThrottleDefersInsteadOfWaiting() throws Exception {
+        ManualClock clock = new ManualClock();
+        CheckpointIOScheduler scheduler = createScheduler(clock);
+        CheckpointIOScheduler.Throttle throttle = scheduler.createThrottle();
+        CheckpointStorageWorkerView storage =
+                throttle.wrap(new TestCheckpointStorageWorkerView(1024 * 1024));
+        assertEquals(0, throttle.getDelayNanos());
+
+        // the writes exceed the rate limit without waiting
+        try (CheckpointStateOutputStream out =
+                storage.resolveCheckpointStorageLocation(1, CHECKPOINT_OPTIONS)
+                        .createCheckpointStateOutputStream(CheckpointedStateScope.EXCLUSIVE)) {
+            out.write(new byte[2 * BYTES_PER_SECOND]);
+        }
+        long delayNanos = throttle.getDelayNanos();
+        assertTrue(delayNanos > TimeUnit.SECONDS.toNanos(1));
+
+        clock.advanceTime(delayNanos, TimeUnit.NANOSECONDS);
+        assertEquals(0, throttle.getDelayNanos());
+    }
+
+    @Test
+    public void testTaskOwnedStreamsUseThePriorityOfTheCurrentCheckpoint() throws Exception {
+        ManualClock clock = new ManualClock();
+        CheckpointIOScheduler scheduler = createScheduler(clock);
+        CheckpointStorageWorkerView storage =
+                scheduler.wrap(new TestCheckpointStorageWorkerView(1024 * 1024));
+        storage.resolveCheckpointStorageLocation(
+                1,
+                CheckpointOptions.forConfig(
+                        CheckpointType.SAVEPOINT,
+                        CheckpointStorageLocationReference.getDefault(),
+                        true,
+                        false,
+                        0,
+                        "rescale-0a1b=2:3c4d"));
+
+        // drain the bucket
+        scheduler.acquire(Priority.PERIODIC, BYTES_PER_SECOND);
+
+        CheckedThread writer =
+                new CheckedThread() {
+                    @Override
+                    public void go() throws Exception {
+                        try (CheckpointStateOutputStream out =
+                                storage.createTaskOwnedStateStream()) {
+                            out.write(1);
+                        }
+                    }
+                };
+        writer.start();
+        waitUntilWaiting(scheduler, Priority.RESCALE);
+
+        clock.advanceTime(10, TimeUnit.SECONDS);
+        writer.sync();
+    }
+
+    @Test
+    public void testWrappedStreamsWriteAllData() throws Exception {
+        CheckpointIOScheduler scheduler =
+                new CheckpointIOScheduler(
+                        Long.MAX_VALUE, new UnregisteredMetricsGroup(), new ManualClock());
+        CheckpointStreamFactory factory =
+                scheduler.wrap(new MemCheckpointStreamFactory(1024 * 1024), Priority.PERIODIC);
+
+        byte[] data = new byte[10_000];
+        new Random(42).nextBytes(data);
+
+        StreamStateHandle handle;
+        try (CheckpointStateOutputStream out =
+                factory.createCheckpointStateOutputStream(CheckpointedStateScope.EXCLUSIVE)) {
+            out.write(data[0]);
+            out.write(data, 1, data.length - 1);
+            assertEquals(data.length, out.getPos());
+            handle = out.closeAndGetHandle();
+        }
+
+        byte[] read = new byte[data.length];
+        try (DataInputStream in = new DataInputStream(handle.openInputStream())) {
+            in.readFully(read);
+        }
+        assertArrayEquals(data, read);
+    }
+
+    private static CheckpointIOScheduler createScheduler(ManualClock clock) {
+        return new CheckpointIOScheduler(BYTES_PER_SECOND, new UnregisteredMetricsGroup(), clock);
+    }
+
+    private static CheckedThread acquireInThread(
+            CheckpointIOScheduler scheduler, Priority priority, int numBytes) {
+        CheckedThread thread =
+                new CheckedThread() {
+                    @Override
+                    public void go() throws Exception {
+                        scheduler.acquire(priority, numBytes);
+                    }
+                };
+        thread.start();
+        return thread;
+    }
+
+    private static void waitUntilWaiting(CheckpointIOScheduler scheduler, Priority priority)
+            throws InterruptedException {
+        while (scheduler.getNumberOfWaitingWriters(priority) == 0) {
+            Thread.sleep(1);
+        }
+    }
+}
@@ -18,9 +18,20 @@
 
 package org.apache.flink.runtime.state;
 
+import org.apache.flink.api.common.state.CheckpointListener;
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.LongSerializer;
+import org.apache.flink.runtime.checkpoint.CheckpointOptions;
+import org.apache.flink.runtime.checkpoint.CheckpointType;
 import org.apache.flink.runtime.state.hashmap.HashMapStateBackend;
+import org.apache.flink.runtime.state.internal.InternalKvState;
 import org.apache.flink.runtime.state.storage.FileSystemCheckpointStorage;
 import org.apache.flink.runtime.state.storage.JobManagerCheckpointStorage;
+import org.apache.flink.util.IOUtils;
 import org.apache.flink.util.function.SupplierWithException;
 
 import org.junit.ClassRule;
@@ -31,8 +42,15 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
 import java.io.IOException;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
 /**
  * Tests for the keyed state backend and operator state backend, as created by the {@link
@@ -43,31 +61,39 @@ public class HashMapStateBackendTest extends StateBackendTestBase<HashMapStateBa
 
     @ClassRule public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
 
-    @Parameterized.Parameters
+    @Parameterized.Parameters(name = "Incremental checkpointing: {1}")
     public static List<Object[]> modes() {
-        return Arrays.asList(
-                new Object[][] {
-                    {
+        List<Object[]> modes = new ArrayList<>();
+        for (boolean incremental : new boolean[] {false, true}) {
+            modes.add(
+                    new Object[] {
                         (SupplierWithException<CheckpointStorage, IOException>)
-                                JobManagerCheckpointStorage::new
-                    },
-                    {
+                                JobManagerCheckpointStorage::new,
+                        incremental
+                    });
+            modes.add(
+                    new Object[] {
                         (SupplierWithException<CheckpointStorage, IOException>)
                                 () -> {
                                     String checkpointPath =
                                             TEMP_FOLDER.newFolder().toURI().toString();
                                     return new FileSystemCheckpointStorage(checkpointPath);
-                                }
-                    }
-                });
+                                },
+                        incremental
+                    });
+        }
+        return modes;
     }
 
     @Parameterized.Parameter
     public SupplierWithException<CheckpointStorage, IOException> storageSupplier;
 
+    @Parameterized.Parameter(1)
+    public boolean enableIncrementalCheckpointing;
+
     @Override
     protected ConfigurableStateBackend getStateBackend() {
-        return new HashMapStateBackend();
+        return new HashMapStateBackend(enableIncrementalCheckpointing);
     }
 
     @Override
@@ -107,4 +133,365 @@ public class HashMapStateBackendTest extends StateBackendTestBase<HashMapStateBa
     public void testConcurrentMapIfQueryable() throws Exception {
         super.testConcurrentMapIfQueryable();
     }
+
+    /**
+     * Checks that value and map states of longs in several namespaces, which are kept in primitive
+     * state tables, are restored as they were when the snapshot was taken.
+     */
+    @Test
+    public void testPrimitiveStatesInNamespacesSnapshotAndRestore() throws Exception {
+        CheckpointStreamFactory streamFactory = createStreamFactory();
+        SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+
+        ValueStateDescriptor<Long> valueId = new ValueStateDescriptor<>("value", Long.class);
+        MapStateDescriptor<Long, Long> mapId =
+                new MapStateDescriptor<>("map", Long.class, Long.class);
+
+        CheckpointableKeyedStateBackend<Long> backend = createKeyedBackend(LongSerializer.INSTANCE);
+        try {
+            ValueState<Long> valueState =
+                    backend.getPartitionedState(0L, LongSerializer.INSTANCE, valueId);
+            MapState<Long, Long> mapState =
+                    backend.getPartitionedState(0L, LongSerializer.INSTANCE, mapId);
+            InternalKvState<Long, Long, ?> internalValueState =
+                    (InternalKvState<Long, Long, ?>) valueState;
+            InternalKvState<Long, Long, ?> internalMapState =
+                    (InternalKvState<Long, Long, ?>) mapState;
+
+            for (long key = 0; key < 100; key++) {
+                backend.setCurrentKey(key);
+                for (long window = 0; window < 3; window++) {
+                    internalValueState.setCurrentNamespace(window);
+                    internalMapState.setCurrentNamespace(window);
+                    valueState.update(key * window);
+                    mapState.put(window, key);
+                    mapState.put(-window - 1, null);
+                }
+            }
+
+            KeyedStateHandle snapshot =
+                    runSnapshot(
+                            backend.snapshot(
+                                    1L,
+                                    1L,
+                                    streamFactory,
+                                    CheckpointOptions.forCheckpointWithDefaultLocation()),
+                            sharedStateRegistry);
+
+            for (long key = 0; key < 100; key++) {
+                backend.setCurrentKey(key);
+                internalValueState.setCurrentNamespace(1L);
+                internalMapState.setCurrentNamespace(1L);
+                valueState.clear();
+                mapState.put(1L, -1L);
+                mapState.put(100L, 100L);
+            }
+
+            backend.dispose();
+            backend = restoreKeyedBackend(LongSerializer.INSTANCE, snapshot);
+
+            valueState = backend.getPartitionedState(0L, LongSerializer.INSTANCE, valueId);
+            mapState = backend.getPartitionedState(0L, LongSerializer.INSTANCE, mapId);
+            internalValueState = (InternalKvState<Long, Long, ?>) valueState;
+            internalMapState = (InternalKvState<Long, Long, ?>) mapState;
+
+            for (long key = 0; key < 100; key++) {
+                backend.setCurrentKey(key);
+                for (long window = 0; window < 3; window++) {
+                    internalValueState.setCurrentNamespace(window);
+                    internalMapState.setCurrentNamespace(window);
+                    assertEquals(Long.valueOf(key * window), valueState.value());
+                    assertEquals(Long.valueOf(key), mapState.get(window));
+                    assertTrue(mapState.contains(-window - 1));
+                    assertNull(mapState.get(-window - 1));
+                    assertFalse(mapState.contains(100L));
+                }
+                // the restored maps can be modified
+                mapState.put(100L, 100L);
+                assertEquals(Long.valueOf(100L), mapState.get(100L));
+            }
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+    }
+
+    /**
+     * Checks that a checkpoint taken after a confirmed one only carries the changed entries and
+     * that restoring the resulting chain reproduces updates, removals and untouched entries.
+     */
+    @Test
+    public void testIncrementalCheckpointRestoresDeltaChain() throws Exception {
+        assumeTrue(enableIncrementalCheckpointing);
+
+        CheckpointStreamFactory streamFactory = createStreamFactory();
+        SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+
+        ValueStateDescriptor<String> valueId = new ValueStateDescriptor<>("value", String.class);
+        MapStateDescriptor<Integer, String> mapId =
+                new MapStateDescriptor<>("map", Integer.class, String.class);
+
+        CheckpointableKeyedStateBackend<Integer> backend =
+                createKeyedBackend(IntSerializer.INSTANCE);
+        try {
+            ValueState<String> valueState =
+                    backend.getPartitionedState(
+                            VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, valueId);
+            MapState<Integer, String> mapState =
+                    backend.getPartitionedState(
+                            VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, mapId);
+
+            for (int key = 0; key < 100; key++) {
+                backend.setCurrentKey(key);
+                valueState.update("v" + key);
+                mapState.put(key, "m" + key);
+            }
+
+            KeyedStateHandle fullSnapshot =
+                    runSnapshot(
+                            backend.snapshot(
+                                    1L,
+                                    1L,
+                                    streamFactory,
+                                    CheckpointOptions.forCheckpointWithDefaultLocation()),
+                            sharedStateRegistry);
+            ((CheckpointListener) backend).notifyCheckpointComplete(1L);
+
+            // update, remove and add some keys; the map state is mutated in place
+            backend.setCurrentKey(3);
+            valueState.update("u3");
+            mapState.put(1000, "new");
+            backend.setCurrentKey(5);
+            valueState.clear();
+            mapState.clear();
+            backend.setCurrentKey(200);
+            valueState.update("v200");
+
+            KeyedStateHandle firstDelta =
+                    runSnapshot(
+                            backend.snapshot(
+                                    2L,
+                                    2L,
+                                    streamFactory,
+                                    CheckpointOptions.forCheckpointWithDefaultLocation()),
+                            sharedStateRegistry);
+            ((CheckpointListener) backend).notifyCheckpointComplete(2L);
+
+            backend.setCurrentKey(7);
+            valueState.clear();
+            backend.setCurrentKey(5);
+            valueState.update("back");
+
+            KeyedStateHandle secondDelta =
+                    runSnapshot(
+                            backend.snapshot(
+                                    3L,
+                                    3L,
+                                    streamFactory,
+                                    CheckpointOptions.forCheckpointWithDefaultLocation()),
+                            sharedStateRegistry);
+
+            assertTrue(fullSnapshot instanceof IncrementalRemoteKeyedStateHandle);
+            assertTrue(secondDelta instanceof IncrementalRemoteKeyedStateHandle);
+            assertEquals(
+                    1, ((IncrementalRemoteKeyedStateHandle) fullSnapshot).getSharedState().size());
+            assertEquals(
+                    3, ((IncrementalRemoteKeyedStateHandle) secondDelta).getSharedState().size());
+            // the first delta references the full snapshot and only adds the few changed entries
+            assertTrue(
+                    firstDelta.getStateSize() - fullSnapshot.getStateSize()
+                            < fullSnapshot.getStateSize() / 2);
+
+            backend.dispose();
+            backend = restoreKeyedBackend(IntSerializer.INSTANCE, secondDelta);
+
+            valueState =
+                    backend.getPartitionedState(
+                            VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, valueId);
+            mapState =
+                    backend.getPartitionedState(
+                            VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, mapId);
+
+            for (int key = 0; key < 100; key++) {
+                backend.setCurrentKey(key);
+                if (key == 3) {
+                    assertEquals("u3", valueState.value());
+                    assertEquals("new", mapState.get(1000));
+                    assertEquals("m3", mapState.get(3));
+                } else if (key == 5) {
+                    assertEquals("back", valueState.value());
+                    assertTrue(mapState.isEmpty());
+                } else if (key == 7) {
+                    assertNull(valueState.value());
+                    assertEquals("m7", mapState.get(7));
+                } else {
+                    assertEquals("v" + key, valueState.value());
+                    assertEquals("m" + key, mapState.get(key));
+                }
+            }
+            backend.setCurrentKey(200);
+            assertEquals("v200", valueState.value());
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+    }
+
+    /** Checks that reading state does not add the read entries to the next delta. */
+    @Test
+    public void testIncrementalCheckpointExcludesReadEntries() throws Exception {
+        assumeTrue(enableIncrementalCheckpointing);
+
+        CheckpointStreamFactory streamFactory = createStreamFactory();
+        SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+
+        ValueStateDescriptor<String> valueId = new ValueStateDescriptor<>("value", String.class);
+        MapStateDescriptor<Integer, String> mapId =
+                new MapStateDescriptor<>("map", Integer.class, String.class);
+
+        CheckpointableKeyedStateBackend<Integer> backend =
+                createKeyedBackend(IntSerializer.INSTANCE);
+        try {
+            ValueState<String> valueState =
+                    backend.getPartitionedState(
+                            VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, valueId);
+            MapState<Integer, String> mapState =
+                    backend.getPartitionedState(
+                            VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, mapId);
+
+            for (int key = 0; key < 100; key++) {
+                backend.setCurrentKey(key);
+                valueState.update("v" + key);
+                for (int userKey = 0; userKey < 10; userKey++) {
+                    mapState.put(userKey, "m" + key + "/" + userKey);
+                }
+            }
+
+            KeyedStateHandle fullSnapshot =
+                    runSnapshot(
+                            backend.snapshot(
+                                    1L,
+                                    1L,
+                                    streamFactory,
+                                    CheckpointOptions.forCheckpointWithDefaultLocation()),
+                            sharedStateRegistry);
+            ((CheckpointListener) backend).notifyCheckpointComplete(1L);
+
+            for (int key = 0; key < 100; key++) {
+                backend.setCurrentKey(key);
+                assertEquals("v" + key, valueState.value());
+                assertEquals("m" + key + "/0", mapState.get(0));
+                int numEntries = 0;
+                for (Map.Entry<Integer, String> ignored : mapState.entries()) {
+                    numEntries++;
+                }
+                assertEquals(10, numEntries);
+            }
+
+            KeyedStateHandle delta =
+                    runSnapshot(
+                            backend.snapshot(
+                                    2L,
+                                    2L,
+                                    streamFactory,
+                                    CheckpointOptions.forCheckpointWithDefaultLocation()),
+                            sharedStateRegistry);
+
+            assertEquals(2, ((IncrementalRemoteKeyedStateHandle) delta).getSharedState().size());
+            assertTrue(
+                    delta.getStateSize() - fullSnapshot.getStateSize()
+                            < fullSnapshot.getStateSize() / 10);
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+    }
+
+    /**
+     * Checks that no delta is written while a savepoint is pending, because the files of the
+     * confirmed chain may be discarded once the savepoint completes.
+     */
+    @Test
+    public void testIncrementalCheckpointIsFullWhileSavepointIsPending() throws Exception {
+        assumeTrue(enableIncrementalCheckpointing);
+
+        CheckpointStreamFactory streamFactory = createStreamFactory();
+        SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+
+        ValueStateDescriptor<String> valueId = new ValueStateDescriptor<>("value", String.class);
+
+        CheckpointableKeyedStateBackend<Integer> backend =
+                createKeyedBackend(IntSerializer.INSTANCE);
+        try {
+            ValueState<String> valueState =
+                    backend.getPartitionedState(
+                            VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, valueId);
+            for (int key = 0; key < 10; key++) {
+                backend.setCurrentKey(key);
+                valueState.update("v" + key);
+            }
+
+            runSnapshot(
+                    backend.snapshot(
+                            1L,
+                            1L,
+                            streamFactory,
+                            CheckpointOptions.forCheckpointWithDefaultLocation()),
+                    sharedStateRegistry);
+            ((CheckpointListener) backend).notifyCheckpointComplete(1L);
+
+            runSnapshot(
+                    backend.snapshot(
+                            2L,
+                            2L,
+                            streamFactory,
+                            CheckpointOptions.alignedNoTimeout(
+                                    CheckpointType.SAVEPOINT,
+                                    CheckpointStorageLocationReference.getDefault())),
+                    sharedStateRegistry);
+
+            backend.setCurrentKey(3);
+            valueState.update("u3");
+            KeyedStateHandle whileSavepointPending =
+                    runSnapshot(
+                            backend.snapshot(
+                                    3L,
+                                    3L,
+                                    streamFactory,
+                                    CheckpointOptions.forCheckpointWithDefaultLocation()),
+                            sharedStateRegistry);
+            assertEquals(
+                    1,
+                    ((IncrementalRemoteKeyedStateHandle) whileSavepointPending)
+                            .getSharedState()
+                            .size());
+
+            ((CheckpointListener) backend).notifyCheckpointComplete(2L);
+            KeyedStateHandle afterSavepoint =
+                    runSnapshot(
+                            backend.snapshot(
+                                    4L,
+                                    4L,
+                                    streamFactory,
+                                    CheckpointOptions.forCheckpointWithDefaultLocation()),
+                            sharedStateRegistry);
+            assertEquals(
+                    1,
+                    ((IncrementalRemoteKeyedStateHandle) afterSavepoint).getSharedState().size());
+
+            ((CheckpointListener) backend).notifyCheckpointComplete(4L);
+            KeyedStateHandle delta =
+                    runSnapshot(
+                            backend.snapshot(
+                                    5L,
+                                    5L,
+                                    streamFactory,
+                                    CheckpointOptions.forCheckpointWithDefaultLocation()),
+                            sharedStateRegistry);
+            assertEquals(2, ((IncrementalRemoteKeyedStateHandle) delta).getSharedState().size());
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+    }
 }
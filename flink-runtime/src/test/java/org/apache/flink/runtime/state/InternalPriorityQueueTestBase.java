@@ -223,6 +223,41 @@ public abstract class InternalPriorityQueueTestBase extends TestLogger {
         Assert.assertNull(priorityQueue.poll());
     }
 
+    @Test
+    public void testPollWhile() {
+        InternalPriorityQueue<TestElement> priorityQueue = newPriorityQueue(3);
+        final Comparator<Long> comparator = getTestElementPriorityComparator();
+
+        Assert.assertEquals(0, priorityQueue.pollWhile(element -> true, element -> {}));
+
+        final int testSize = 345;
+        HashSet<TestElement> checkSet = new HashSet<>(testSize);
+        insertRandomElements(priorityQueue, checkSet, testSize);
+
+        final long bound = ThreadLocalRandom.current().nextLong();
+        List<TestElement> polled = new ArrayList<>();
+        int count = 0;
+        int polledInCall;
+        // partitioned queues may return after each partition
+        while ((polledInCall =
+                        priorityQueue.pollWhile(
+                                element -> comparator.compare(element.getPriority(), bound) <= 0,
+                                polled::add))
+                > 0) {
+            count += polledInCall;
+        }
+
+        Assert.assertEquals(polled.size(), count);
+        for (TestElement element : polled) {
+            Assert.assertTrue(comparator.compare(element.getPriority(), bound) <= 0);
+            Assert.assertTrue(checkSet.remove(element));
+        }
+        for (TestElement element : checkSet) {
+            Assert.assertTrue(comparator.compare(element.getPriority(), bound) > 0);
+        }
+        Assert.assertEquals(checkSet.size(), priorityQueue.size());
+    }
+
     @Test
     public void testIsEmpty() {
         InternalPriorityQueue<TestElement> priorityQueue = newPriorityQueue(1);
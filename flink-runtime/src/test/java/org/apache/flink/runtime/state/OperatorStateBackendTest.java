@@ -65,7 +65,9 @@ import java.util.concurrent.atomic.AtomicInteger;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
@@ -291,6 +293,18 @@ public class OperatorStateBackendTest {
         RunnableFuture<SnapshotResult<OperatorStateHandle>> runnableFuture =
                 operatorStateBackend.snapshot(
                         1, 1, streamFactory, CheckpointOptions.forCheckpointWithDefaultLocation());
+
+        // the states are copied on write, i.e. when they are accessed by the task thread, which
+        // runs with the user code class loader, while the snapshot is running
+        assertEquals(0, copyCounter.get());
+        ClassLoader taskClassLoader = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(env.getUserCodeClassLoader().asClassLoader());
+        try {
+            assertEquals(Integer.valueOf(42), listState.get().iterator().next());
+            assertEquals(Integer.valueOf(2), broadcastState.get(1));
+        } finally {
+            Thread.currentThread().setContextClassLoader(taskClassLoader);
+        }
         FutureUtils.runIfNotDoneAndGet(runnableFuture);
 
         // make sure that the copy method has been called
@@ -299,6 +313,108 @@ public class OperatorStateBackendTest {
         assertTrue(valueCopyCounter.get() > 0);
     }
 
+    @Test
+    public void testStatesAreOnlyCopiedWhileSnapshotIsRunning() throws Exception {
+        final Environment env = createMockEnvironment();
+        OperatorStateBackend operatorStateBackend =
+                new MemoryStateBackend(4096)
+                        .createOperatorStateBackend(
+                                env, "test-op-name", emptyStateHandles, new CloseableRegistry());
+
+        ListState<MutableType> listState =
+                operatorStateBackend.getListState(
+                        new ListStateDescriptor<>("test", new JavaSerializer<MutableType>()));
+        listState.add(MutableType.of(1));
+        Iterable<MutableType> listBeforeSnapshot = listState.get();
+
+        RunnableFuture<SnapshotResult<OperatorStateHandle>> runnableFuture =
+                operatorStateBackend.snapshot(
+                        1,
+                        1,
+                        new MemCheckpointStreamFactory(4096),
+                        CheckpointOptions.forCheckpointWithDefaultLocation());
+
+        // the list is shared with the running snapshot, so it is copied on access
+        Iterable<MutableType> listDuringSnapshot = listState.get();
+        assertNotSame(listBeforeSnapshot, listDuringSnapshot);
+        assertNotSame(listBeforeSnapshot.iterator().next(), listDuringSnapshot.iterator().next());
+        assertSame(listDuringSnapshot, listState.get());
+
+        listState.add(MutableType.of(2));
+        FutureUtils.runIfNotDoneAndGet(runnableFuture);
+        listState.add(MutableType.of(3));
+
+        // once the snapshot is released the list is modified in place again
+        assertSame(listDuringSnapshot, listState.get());
+        Iterator<MutableType> it = listState.get().iterator();
+        assertEquals(1, it.next().value);
+        assertEquals(2, it.next().value);
+        assertEquals(3, it.next().value);
+        assertFalse(it.hasNext());
+
+        operatorStateBackend.close();
+        operatorStateBackend.dispose();
+    }
+
+    @Test
+    public void testElementsReadAfterWriteWhileSnapshotIsRunningAreCopied() throws Exception {
+        final MemoryStateBackend abstractStateBackend = new MemoryStateBackend(4096);
+        OperatorStateBackend operatorStateBackend =
+                abstractStateBackend.createOperatorStateBackend(
+                        createMockEnvironment(),
+                        "test-op-name",
+                        emptyStateHandles,
+                        new CloseableRegistry());
+
+        ListStateDescriptor<MutableType> listStateDesc =
+                new ListStateDescriptor<>("test-list", new JavaSerializer<MutableType>());
+        MapStateDescriptor<Integer, MutableType> broadcastStateDesc =
+                new MapStateDescriptor<>(
+                        "test-broadcast", IntSerializer.INSTANCE, new JavaSerializer<>());
+        ListState<MutableType> listState = operatorStateBackend.getListState(listStateDesc);
+        BroadcastState<Integer, MutableType> broadcastState =
+                operatorStateBackend.getBroadcastState(broadcastStateDesc);
+        listState.add(MutableType.of(1));
+        broadcastState.put(1, MutableType.of(1));
+
+        RunnableFuture<SnapshotResult<OperatorStateHandle>> runnableFuture =
+                operatorStateBackend.snapshot(
+                        1,
+                        1,
+                        new MemCheckpointStreamFactory(4096),
+                        CheckpointOptions.forCheckpointWithDefaultLocation());
+
+        // the writes only copy the list and the map, the elements read afterwards must still not
+        // be the ones the running snapshot writes
+        listState.add(MutableType.of(2));
+        broadcastState.put(2, MutableType.of(2));
+        listState.get().iterator().next().setValue(-1);
+        broadcastState.get(1).setValue(-1);
+
+        OperatorStateHandle stateHandle =
+                FutureUtils.runIfNotDoneAndGet(runnableFuture).getJobManagerOwnedSnapshot();
+        assertNotNull(stateHandle);
+
+        try {
+            operatorStateBackend =
+                    recreateOperatorStateBackend(
+                            operatorStateBackend,
+                            abstractStateBackend,
+                            StateObjectCollection.singleton(stateHandle));
+            Iterator<MutableType> it =
+                    operatorStateBackend.getListState(listStateDesc).get().iterator();
+            assertEquals(1, it.next().value);
+            assertFalse(it.hasNext());
+            broadcastState = operatorStateBackend.getBroadcastState(broadcastStateDesc);
+            assertEquals(MutableType.of(1), broadcastState.get(1));
+            assertFalse(broadcastState.contains(2));
+        } finally {
+            operatorStateBackend.close();
+            operatorStateBackend.dispose();
+            stateHandle.discardState();
+        }
+    }
+
     /** Int serializer which verifies that the given classloader is set for the copy operation */
     private static final class VerifyingIntSerializer extends TypeSerializer<Integer> {
 
@@ -86,6 +86,44 @@ public class SharedStateRegistryTest {
         assertFalse(firstState.isDiscarded());
     }
 
+    /**
+     * Validate that a state handle registered under several keys is only discarded once it is no
+     * longer referenced under any of them.
+     */
+    @Test
+    public void testRegistryWithSameStateUnderDifferentKeys() {
+
+        SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+
+        TestSharedState sharedState = new TestSharedState("shared");
+        SharedStateRegistryKey firstKey = new SharedStateRegistryKey("first");
+        SharedStateRegistryKey secondKey = new SharedStateRegistryKey("second");
+
+        sharedStateRegistry.registerReference(firstKey, sharedState);
+        SharedStateRegistry.Result result =
+                sharedStateRegistry.registerReference(secondKey, sharedState);
+        assertEquals(1, result.getReferenceCount());
+        assertTrue(sharedState == result.getReference());
+
+        // a handle registered under another key is not a duplicate to be dropped
+        TestSharedState otherState = new TestSharedState("other");
+        sharedStateRegistry.registerReference(new SharedStateRegistryKey("other"), otherState);
+        result = sharedStateRegistry.registerReference(firstKey, otherState);
+        assertTrue(sharedState == result.getReference());
+        assertFalse(otherState.isDiscarded());
+        sharedStateRegistry.unregisterReference(firstKey);
+
+        // unregister the first key
+        result = sharedStateRegistry.unregisterReference(firstKey);
+        assertEquals(0, result.getReferenceCount());
+        assertFalse(sharedState.isDiscarded());
+
+        // unregister the second key
+        result = sharedStateRegistry.unregisterReference(secondKey);
+        assertEquals(0, result.getReferenceCount());
+        assertTrue(sharedState.isDiscarded());
+    }
+
     /** Validate that unregister a nonexistent key will throw exception */
     @Test(expected = IllegalStateException.class)
     public void testUnregisterWithUnexistedKey() {
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state;
+
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/** {@link SharedStateUploads} test. */
+public class SharedStateUploadsTest extends TestLogger {
+
+    @Test
+    public void testUploadsAreSharedWithinJobAndCheckpoint() {
+        try (SharedStateUploads uploads = new SharedStateUploads()) {
+            JobID jobId = new JobID();
+            CompletableFuture<SharedStateUploads.Upload> upload = new CompletableFuture<>();
+
+            assertNull(uploads.registerUpload(jobId, 1L, "file", upload));
+            assertSame(
+                    upload, uploads.registerUpload(jobId, 1L, "file", new CompletableFuture<>()));
+            assertNull(uploads.registerUpload(jobId, 2L, "file", new CompletableFuture<>()));
+            assertNull(uploads.registerUpload(new JobID(), 1L, "file", new CompletableFuture<>()));
+            assertEquals(3, uploads.getNumUploads());
+
+            uploads.releaseUploads(jobId, 2L);
+            assertEquals(2, uploads.getNumUploads());
+            uploads.releaseUploadsUpTo(jobId, 1L);
+            assertEquals(1, uploads.getNumUploads());
+        }
+    }
+
+    @Test
+    public void testReleaseJobForgetsItsUploads() {
+        try (SharedStateUploads uploads = new SharedStateUploads()) {
+            JobID jobId = new JobID();
+            uploads.registerUpload(jobId, 1L, "file", new CompletableFuture<>());
+            uploads.registerUpload(jobId, 2L, "file", new CompletableFuture<>());
+            uploads.registerUpload(new JobID(), 1L, "file", new CompletableFuture<>());
+
+            uploads.releaseJob(jobId);
+            assertEquals(1, uploads.getNumUploads());
+        }
+    }
+
+    @Test
+    public void testExecutorIsShutDownWhenNoLongerUsed() {
+        try (SharedStateUploads uploads = new SharedStateUploads()) {
+            ExecutorService executor = uploads.acquireExecutor(1);
+            assertSame(executor, uploads.acquireExecutor(2));
+
+            uploads.releaseExecutor();
+            assertFalse(executor.isShutdown());
+            uploads.releaseExecutor();
+            assertTrue(executor.isShutdown());
+        }
+    }
+
+    @Test
+    public void testCloseShutsDownExecutor() {
+        SharedStateUploads uploads = new SharedStateUploads();
+        ExecutorService executor = uploads.acquireExecutor(1);
+        uploads.registerUpload(new JobID(), 1L, "file", new CompletableFuture<>());
+
+        uploads.close();
+        assertTrue(executor.isShutdown());
+        assertEquals(0, uploads.getNumUploads());
+        // backends released after the TaskManager services are closed must not fail
+        uploads.releaseExecutor();
+    }
+}
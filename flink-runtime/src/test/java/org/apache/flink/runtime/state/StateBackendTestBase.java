@@ -3156,6 +3156,78 @@ public abstract class StateBackendTestBase<B extends AbstractStateBackend> exten
         }
     }
 
+    @Test
+    public void testValueStateGetAll() throws Exception {
+        ValueStateDescriptor<String> kvId = new ValueStateDescriptor<>("id", String.class);
+
+        CheckpointableKeyedStateBackend<Integer> backend =
+                createKeyedBackend(IntSerializer.INSTANCE);
+        try {
+            @SuppressWarnings("unchecked")
+            InternalValueState<Integer, VoidNamespace, String> state =
+                    (InternalValueState<Integer, VoidNamespace, String>)
+                            backend.getPartitionedState(
+                                    VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+
+            for (int key = 0; key < 10; key += 2) {
+                backend.setCurrentKey(key);
+                state.update(String.valueOf(key));
+            }
+
+            backend.setCurrentKey(3);
+            Map<Integer, String> values = state.getAll(Arrays.asList(0, 1, 2, 3, 8, 11));
+
+            Map<Integer, String> expected = new HashMap<>();
+            expected.put(0, "0");
+            expected.put(2, "2");
+            expected.put(8, "8");
+            assertEquals(expected, values);
+            assertEquals(Integer.valueOf(3), backend.getCurrentKey());
+            assertTrue(state.getAll(Collections.emptyList()).isEmpty());
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+    }
+
+    @Test
+    public void testMapStateGetAll() throws Exception {
+        MapStateDescriptor<Integer, String> kvId =
+                new MapStateDescriptor<>("id", Integer.class, String.class);
+
+        CheckpointableKeyedStateBackend<String> backend =
+                createKeyedBackend(StringSerializer.INSTANCE);
+        try {
+            MapState<Integer, String> state =
+                    backend.getPartitionedState(
+                            VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+
+            backend.setCurrentKey("1");
+            state.put(1, "one");
+            state.put(2, "two");
+            state.put(3, "three");
+            // null values are omitted like absent keys
+            state.put(4, null);
+            backend.setCurrentKey("2");
+            state.put(1, "eins");
+
+            backend.setCurrentKey("1");
+            Map<Integer, String> expected = new HashMap<>();
+            expected.put(1, "one");
+            expected.put(3, "three");
+            assertEquals(expected, state.getAll(Arrays.asList(1, 3, 4, 5)));
+
+            backend.setCurrentKey("2");
+            assertEquals(Collections.singletonMap(1, "eins"), state.getAll(Arrays.asList(1, 2, 3)));
+
+            backend.setCurrentKey("3");
+            assertTrue(state.getAll(Arrays.asList(1, 2, 3)).isEmpty());
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+    }
+
     @Test
     @SuppressWarnings("unchecked,rawtypes")
     public void testMapState() throws Exception {
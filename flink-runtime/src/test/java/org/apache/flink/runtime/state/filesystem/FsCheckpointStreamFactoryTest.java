@@ -18,22 +18,28 @@
 
 package org.apache.flink.runtime.state.filesystem;
 
+import org.apache.flink.core.fs.FSDataInputStream;
 import org.apache.flink.core.fs.FileSystem;
 import org.apache.flink.core.fs.Path;
 import org.apache.flink.runtime.state.CheckpointedStateScope;
 import org.apache.flink.runtime.state.StreamStateHandle;
 
+import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import javax.annotation.Nullable;
+
 import java.io.File;
 import java.io.IOException;
 
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertThat;
 
 /** Unit tests for the {@link FsCheckpointStreamFactory}. */
@@ -137,10 +143,189 @@ public class FsCheckpointStreamFactoryTest {
         assertEquals(expectEmpty ? 0 : 1, new File(exclusiveStateDir.toUri()).listFiles().length);
     }
 
+    @Test
+    public void testExclusiveStateIsMergedIntoSharedFile() throws Exception {
+        final FsCheckpointStreamFactory factory =
+                createMergingFactory(FileSystem.getLocalFileSystem(), 1024 * 1024);
+
+        final SegmentFileStateHandle first = writeSegment(factory, new byte[] {1, 2, 3});
+        final SegmentFileStateHandle second = writeSegment(factory, new byte[] {4, 5});
+        final SegmentFileStateHandle third = writeSegment(factory, new byte[] {6});
+        factory.closeMergedFiles();
+
+        assertEquals(1, new File(exclusiveStateDir.toUri()).listFiles().length);
+        assertEquals(first.getFilePath(), second.getFilePath());
+        assertEquals(first.getFilePath(), third.getFilePath());
+        assertEquals(0L, first.getStartPos());
+        assertEquals(3L, second.getStartPos());
+        assertEquals(5L, third.getStartPos());
+
+        assertArrayEquals(new byte[] {1, 2, 3}, readFully(first));
+        assertArrayEquals(new byte[] {4, 5}, readFully(second));
+        assertArrayEquals(new byte[] {6}, readFully(third));
+
+        try (FSDataInputStream in = second.openInputStream()) {
+            assertEquals(0L, in.getPos());
+            in.seek(1L);
+            assertEquals(5, in.read());
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void testMergedFileIsNotAppendedBeyondMaxFileSize() throws Exception {
+        final FsCheckpointStreamFactory factory =
+                createMergingFactory(FileSystem.getLocalFileSystem(), 4);
+
+        final SegmentFileStateHandle first = writeSegment(factory, new byte[] {1, 2, 3, 4});
+        final SegmentFileStateHandle second = writeSegment(factory, new byte[] {5});
+        factory.closeMergedFiles();
+
+        assertEquals(2, new File(exclusiveStateDir.toUri()).listFiles().length);
+        assertNotEquals(first.getFilePath(), second.getFilePath());
+        assertArrayEquals(new byte[] {5}, readFully(second));
+    }
+
+    @Test
+    public void testConcurrentStreamsWriteSeparateFiles() throws Exception {
+        final FsCheckpointStreamFactory factory =
+                createMergingFactory(FileSystem.getLocalFileSystem(), 1024 * 1024);
+
+        final FsCheckpointStreamFactory.FsCheckpointStateOutputStream first =
+                factory.createCheckpointStateOutputStream(CheckpointedStateScope.EXCLUSIVE);
+        final FsCheckpointStreamFactory.FsCheckpointStateOutputStream second =
+                factory.createCheckpointStateOutputStream(CheckpointedStateScope.EXCLUSIVE);
+        first.write(1);
+        first.flushToFile();
+        second.write(2);
+        second.flushToFile();
+        final StreamStateHandle firstHandle = first.closeAndGetHandle();
+        final StreamStateHandle secondHandle = second.closeAndGetHandle();
+        final SegmentFileStateHandle third = writeSegment(factory, new byte[] {3});
+        factory.closeMergedFiles();
+
+        assertEquals(2, new File(exclusiveStateDir.toUri()).listFiles().length);
+        assertArrayEquals(new byte[] {1}, readFully(firstHandle));
+        assertArrayEquals(new byte[] {2}, readFully(secondHandle));
+        assertArrayEquals(new byte[] {3}, readFully(third));
+        assertEquals(1L, third.getStartPos());
+    }
+
+    @Test
+    public void testDiscardedStreamKeepsMergedFile() throws Exception {
+        final FsCheckpointStreamFactory factory =
+                createMergingFactory(FileSystem.getLocalFileSystem(), 1024 * 1024);
+
+        final SegmentFileStateHandle handle = writeSegment(factory, new byte[] {1, 2});
+        final FsCheckpointStreamFactory.FsCheckpointStateOutputStream discarded =
+                factory.createCheckpointStateOutputStream(CheckpointedStateScope.EXCLUSIVE);
+        discarded.write(3);
+        discarded.flushToFile();
+        discarded.close();
+        factory.closeMergedFiles();
+
+        assertArrayEquals(new byte[] {1, 2}, readFully(handle));
+    }
+
+    @Test
+    public void testStreamsAreNotMergedAfterClosingMergedFiles() throws Exception {
+        final FsCheckpointStreamFactory factory =
+                createMergingFactory(FileSystem.getLocalFileSystem(), 1024 * 1024);
+        factory.closeMergedFiles();
+
+        final FsCheckpointStreamFactory.FsCheckpointStateOutputStream stream =
+                factory.createCheckpointStateOutputStream(CheckpointedStateScope.EXCLUSIVE);
+        stream.write(1);
+
+        assertThat(stream.closeAndGetHandle(), instanceOf(RelativeFileStateHandle.class));
+    }
+
+    @Test
+    public void testSharedStateIsNotMerged() throws Exception {
+        final FsCheckpointStreamFactory factory =
+                createMergingFactory(FileSystem.getLocalFileSystem(), 1024 * 1024);
+
+        final FsCheckpointStreamFactory.FsCheckpointStateOutputStream stream =
+                factory.createCheckpointStateOutputStream(CheckpointedStateScope.SHARED);
+        stream.write(1);
+
+        assertThat(stream.closeAndGetHandle(), not(instanceOf(SegmentFileStateHandle.class)));
+    }
+
+    @Test
+    public void testFactoriesOfTaskManagerShareMergedFiles() throws Exception {
+        final MergingCheckpointFilePools filePools = new MergingCheckpointFilePools();
+        final FsCheckpointStreamFactory first =
+                createMergingFactory(FileSystem.getLocalFileSystem(), 1024 * 1024, filePools);
+        final FsCheckpointStreamFactory second =
+                createMergingFactory(FileSystem.getLocalFileSystem(), 1024 * 1024, filePools);
+
+        final SegmentFileStateHandle firstHandle = writeSegment(first, new byte[] {1, 2});
+        final SegmentFileStateHandle secondHandle = writeSegment(second, new byte[] {3});
+        assertEquals(1, filePools.getNumberOfPools());
+
+        first.closeMergedFiles();
+        assertEquals(1, filePools.getNumberOfPools());
+        second.closeMergedFiles();
+        assertEquals(0, filePools.getNumberOfPools());
+
+        assertEquals(1, new File(exclusiveStateDir.toUri()).listFiles().length);
+        assertEquals(firstHandle.getFilePath(), secondHandle.getFilePath());
+        assertEquals(2L, secondHandle.getStartPos());
+        assertArrayEquals(new byte[] {1, 2}, readFully(firstHandle));
+        assertArrayEquals(new byte[] {3}, readFully(secondHandle));
+    }
+
+    @Test
+    public void testMergedSegmentsHaveRelativePaths() throws Exception {
+        final FsCheckpointStreamFactory factory =
+                createMergingFactory(FileSystem.getLocalFileSystem(), 1024 * 1024);
+
+        final SegmentFileStateHandle handle = writeSegment(factory, new byte[] {1});
+        factory.closeMergedFiles();
+
+        assertEquals(handle.getFilePath().getName(), handle.getRelativePath());
+    }
+
+    @Test
+    public void testAbortMergedFilesReleasesSharedPool() throws Exception {
+        final MergingCheckpointFilePools filePools = new MergingCheckpointFilePools();
+        final FsCheckpointStreamFactory factory =
+                createMergingFactory(FileSystem.getLocalFileSystem(), 1024 * 1024, filePools);
+
+        final FsCheckpointStreamFactory.FsCheckpointStateOutputStream stream =
+                factory.createCheckpointStateOutputStream(CheckpointedStateScope.EXCLUSIVE);
+        stream.write(1);
+        stream.flushToFile();
+        stream.close();
+        assertEquals(1, filePools.getNumberOfPools());
+
+        factory.abortMergedFiles();
+        assertEquals(0, filePools.getNumberOfPools());
+    }
+
     // ------------------------------------------------------------------------
     //  test utils
     // ------------------------------------------------------------------------
 
+    private static SegmentFileStateHandle writeSegment(
+            FsCheckpointStreamFactory factory, byte[] data) throws IOException {
+        final FsCheckpointStreamFactory.FsCheckpointStateOutputStream stream =
+                factory.createCheckpointStateOutputStream(CheckpointedStateScope.EXCLUSIVE);
+        stream.write(data);
+        assertEquals(data.length, stream.getPos());
+        final StreamStateHandle handle = stream.closeAndGetHandle();
+        assertThat(handle, instanceOf(SegmentFileStateHandle.class));
+        assertEquals(data.length, handle.getStateSize());
+        return (SegmentFileStateHandle) handle;
+    }
+
+    private static byte[] readFully(StreamStateHandle handle) throws IOException {
+        try (FSDataInputStream in = handle.openInputStream()) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
     private static void assertPathsEqual(Path expected, Path actual) {
         final Path reNormalizedExpected = new Path(expected.toString());
         final Path reNormalizedActual = new Path(actual.toString());
@@ -151,6 +336,16 @@ public class FsCheckpointStreamFactoryTest {
         return createFactory(fs, fileSizeThreshold, 4096);
     }
 
+    private FsCheckpointStreamFactory createMergingFactory(FileSystem fs, long maxFileSize) {
+        return createMergingFactory(fs, maxFileSize, null);
+    }
+
+    private FsCheckpointStreamFactory createMergingFactory(
+            FileSystem fs, long maxFileSize, @Nullable MergingCheckpointFilePools filePools) {
+        return new FsCheckpointStreamFactory(
+                fs, exclusiveStateDir, sharedStateDir, 0, 4096, maxFileSize, filePools);
+    }
+
     private FsCheckpointStreamFactory createFactory(
             FileSystem fs, int fileSizeThreshold, int bufferSize) {
         return new FsCheckpointStreamFactory(
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.filesystem;
+
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
+import org.apache.flink.runtime.checkpoint.StateObjectCollection;
+import org.apache.flink.runtime.checkpoint.channel.InputChannelInfo;
+import org.apache.flink.runtime.state.InputChannelStateHandle;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupRangeOffsets;
+import org.apache.flink.runtime.state.KeyGroupsStateHandle;
+import org.apache.flink.runtime.state.OperatorStreamStateHandle;
+import org.apache.flink.runtime.state.SharedStateRegistry;
+import org.apache.flink.runtime.state.StreamStateHandle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for the {@link SegmentFileStateHandle}. */
+public class SegmentFileStateHandleTest {
+
+    @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testDiscardOfUnregisteredSegmentDeletesFile() throws Exception {
+        File file = createMergedFile();
+
+        new SegmentFileStateHandle(Path.fromLocalFile(file), 10L, 10L).discardState();
+        assertFalse(file.exists());
+    }
+
+    /**
+     * Tests that a merged file outlives a subsumed checkpoint as long as a later checkpoint still
+     * references one of its segments, and that the segments of one subtask are counted once.
+     */
+    @Test
+    public void testFileIsDeletedWithLastReferencingCheckpoint() throws Exception {
+        File file = createMergedFile();
+        Path filePath = Path.fromLocalFile(file);
+        SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+
+        OperatorSubtaskState firstCheckpoint =
+                OperatorSubtaskState.builder()
+                        .setManagedOperatorState(
+                                new OperatorStreamStateHandle(
+                                        Collections.emptyMap(),
+                                        new SegmentFileStateHandle(filePath, 0L, 10L)))
+                        .setManagedKeyedState(
+                                createKeyGroupsStateHandle(
+                                        new SegmentFileStateHandle(filePath, 10L, 10L)))
+                        .build();
+        sharedStateRegistry.registerAll(Collections.singleton(firstCheckpoint));
+
+        // the later checkpoint references the keyed state of the first one again
+        StreamStateHandle channelStateSegment = new SegmentFileStateHandle(filePath, 20L, 10L);
+        OperatorSubtaskState secondCheckpoint =
+                OperatorSubtaskState.builder()
+                        .setManagedKeyedState(
+                                createKeyGroupsStateHandle(
+                                        new SegmentFileStateHandle(filePath, 10L, 10L)))
+                        .setInputChannelState(
+                                createInputChannelStateHandles(channelStateSegment, 2))
+                        .build();
+        sharedStateRegistry.registerAll(Collections.singleton(secondCheckpoint));
+
+        firstCheckpoint.discardState();
+        assertTrue(file.exists());
+
+        secondCheckpoint.discardState();
+        assertFalse(file.exists());
+    }
+
+    private static KeyGroupsStateHandle createKeyGroupsStateHandle(StreamStateHandle delegate) {
+        return new KeyGroupsStateHandle(
+                new KeyGroupRangeOffsets(KeyGroupRange.of(0, 0), new long[] {0L}), delegate);
+    }
+
+    private static StateObjectCollection<InputChannelStateHandle> createInputChannelStateHandles(
+            StreamStateHandle delegate, int numChannels) {
+        InputChannelStateHandle[] handles = new InputChannelStateHandle[numChannels];
+        for (int i = 0; i < numChannels; i++) {
+            handles[i] =
+                    new InputChannelStateHandle(
+                            new InputChannelInfo(0, i), delegate, Collections.singletonList(0L));
+        }
+        return new StateObjectCollection<>(Arrays.asList(handles));
+    }
+
+    private File createMergedFile() throws IOException {
+        File file = tempFolder.newFile();
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[30]);
+        }
+        return file;
+    }
+}
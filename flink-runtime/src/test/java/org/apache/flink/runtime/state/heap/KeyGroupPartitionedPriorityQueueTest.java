@@ -21,10 +21,19 @@ import org.apache.flink.runtime.state.InternalPriorityQueue;
 import org.apache.flink.runtime.state.InternalPriorityQueueTestBase;
 import org.apache.flink.runtime.state.KeyExtractorFunction;
 import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
 import org.apache.flink.runtime.state.PriorityComparator;
 
+import org.junit.Assert;
+import org.junit.Test;
+
 import javax.annotation.Nonnull;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 /** Test for {@link KeyGroupPartitionedPriorityQueue}. */
 public class KeyGroupPartitionedPriorityQueueTest extends InternalPriorityQueueTestBase {
 
@@ -56,6 +65,35 @@ public class KeyGroupPartitionedPriorityQueueTest extends InternalPriorityQueueT
         return true;
     }
 
+    @Test
+    public void testPollWhileDrainsOneKeyGroupAtATime() {
+        InternalPriorityQueue<TestElement> priorityQueue = newPriorityQueue(1);
+        final int totalKeyGroups = KEY_GROUP_RANGE.getNumberOfKeyGroups();
+
+        // find two keys in different key-groups
+        long firstKey = 0L;
+        long secondKey = 1L;
+        while (KeyGroupRangeAssignment.assignToKeyGroup(secondKey, totalKeyGroups)
+                == KeyGroupRangeAssignment.assignToKeyGroup(firstKey, totalKeyGroups)) {
+            secondKey++;
+        }
+
+        priorityQueue.add(new TestElement(firstKey, 1L));
+        priorityQueue.add(new TestElement(secondKey, 2L));
+        priorityQueue.add(new TestElement(firstKey, 3L));
+
+        List<TestElement> polled = new ArrayList<>();
+        Assert.assertEquals(2, priorityQueue.pollWhile(element -> true, polled::add));
+        Assert.assertEquals(
+                Arrays.asList(new TestElement(firstKey, 1L), new TestElement(firstKey, 3L)),
+                polled);
+
+        polled.clear();
+        Assert.assertEquals(1, priorityQueue.pollWhile(element -> true, polled::add));
+        Assert.assertEquals(Collections.singletonList(new TestElement(secondKey, 2L)), polled);
+        Assert.assertEquals(0, priorityQueue.pollWhile(element -> true, polled::add));
+    }
+
     private static class KeyGroupHeapPQSet<T extends HeapPriorityQueueElement>
             extends HeapPriorityQueueSet<T> implements HeapPriorityQueueElement {
 
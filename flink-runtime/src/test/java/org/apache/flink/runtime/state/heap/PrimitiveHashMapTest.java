@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.runtime.state.heap.PrimitiveStateMap.PrimitiveType;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+/** Test for {@link PrimitiveHashMap}. */
+public class PrimitiveHashMapTest extends TestLogger {
+
+    /** Applies random modifications to a map and a reference map and compares them. */
+    @Test
+    public void testRandomModifications() {
+        final PrimitiveHashMap<Long, Long> map =
+                new PrimitiveHashMap<>(PrimitiveType.LONG, PrimitiveType.LONG);
+        final Map<Long, Long> referenceMap = new HashMap<>();
+        final Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            final long key = random.nextInt(1_000) * 1024L;
+            final Long value = random.nextInt(10) == 0 ? null : random.nextLong();
+            switch (random.nextInt(4)) {
+                case 0:
+                case 1:
+                    Assert.assertEquals(referenceMap.put(key, value), map.put(key, value));
+                    break;
+                case 2:
+                    Assert.assertEquals(referenceMap.remove(key), map.remove(key));
+                    break;
+                default:
+                    Assert.assertEquals(referenceMap.containsKey(key), map.containsKey(key));
+            }
+            Assert.assertEquals(referenceMap.size(), map.size());
+            Assert.assertEquals(referenceMap.get(key), map.get(key));
+        }
+
+        Assert.assertEquals(referenceMap, map);
+        Assert.assertEquals(referenceMap.keySet(), map.keySet());
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertNull(map.get(0L));
+    }
+
+    /** Tests that keys of another type are not contained. */
+    @Test
+    public void testKeysOfOtherType() {
+        final PrimitiveHashMap<Integer, Integer> map =
+                new PrimitiveHashMap<>(PrimitiveType.INT, PrimitiveType.INT);
+        map.put(1, 2);
+        Assert.assertTrue(map.containsKey(1));
+        Assert.assertFalse(map.containsKey(1L));
+        Assert.assertNull(map.get("1"));
+        Assert.assertNull(map.remove(1L));
+        Assert.assertEquals(1, map.size());
+    }
+
+    /** Tests that removals and updates through the iterator are written to the map. */
+    @Test
+    public void testIteratorRemoveAndSetValue() {
+        final PrimitiveHashMap<Integer, Long> map =
+                new PrimitiveHashMap<>(PrimitiveType.INT, PrimitiveType.LONG);
+        for (int i = 0; i < 100; i++) {
+            map.put(i, (long) i);
+        }
+
+        Iterator<Map.Entry<Integer, Long>> iterator = map.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, Long> entry = iterator.next();
+            if (entry.getKey() % 2 == 0) {
+                iterator.remove();
+            } else {
+                entry.setValue(-entry.getValue());
+            }
+        }
+
+        Assert.assertEquals(50, map.size());
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(i % 2 == 0 ? null : Long.valueOf(-i), map.get(i));
+        }
+    }
+
+    /** Tests that the keys are iterated in the order of a {@link HashMap}. */
+    @Test
+    public void testIterationOrderOfHashMap() {
+        final PrimitiveHashMap<Integer, Integer> map =
+                new PrimitiveHashMap<>(PrimitiveType.INT, PrimitiveType.INT);
+        final Map<Integer, Integer> referenceMap = new HashMap<>();
+        final Random random = new Random(42);
+        for (int i = 0; i < 1_000; i++) {
+            final int key = random.nextInt(100_000) - 50_000;
+            map.put(key, i);
+            referenceMap.put(key, i);
+        }
+
+        Assert.assertEquals(new ArrayList<>(referenceMap.keySet()), new ArrayList<>(map.keySet()));
+    }
+
+    /** Tests that an iterator fails if the map is modified other than through the iterator. */
+    @Test(expected = ConcurrentModificationException.class)
+    public void testIteratorFailsFast() {
+        final PrimitiveHashMap<Long, Long> map =
+                new PrimitiveHashMap<>(PrimitiveType.LONG, PrimitiveType.LONG);
+        map.put(1L, 1L);
+        map.put(2L, 2L);
+
+        Iterator<Map.Entry<Long, Long>> iterator = map.entrySet().iterator();
+        iterator.next();
+        map.put(3L, 3L);
+        iterator.next();
+    }
+
+    /** Tests that a copy is not affected by modifications of the map, and vice versa. */
+    @Test
+    public void testCopyIsolation() {
+        final PrimitiveHashMap<Long, Long> map =
+                new PrimitiveHashMap<>(PrimitiveType.LONG, PrimitiveType.LONG);
+        for (long i = 0; i < 100; i++) {
+            map.put(i, i);
+        }
+        final Map<Long, Long> expected = new HashMap<>(map);
+
+        PrimitiveHashMap<Long, Long> copy = map.copy();
+        map.put(1L, -1L);
+        map.remove(2L);
+        map.put(1_000L, 1_000L);
+        copy.put(3L, null);
+
+        Assert.assertEquals(Long.valueOf(1L), copy.get(1L));
+        Assert.assertEquals(Long.valueOf(2L), copy.get(2L));
+        Assert.assertFalse(copy.containsKey(1_000L));
+        Assert.assertEquals(Long.valueOf(3L), map.get(3L));
+        expected.put(3L, null);
+        Assert.assertEquals(expected, copy);
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.LongSerializer;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.runtime.state.StateEntry;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+import org.apache.flink.runtime.state.heap.PrimitiveStateMap.PrimitiveType;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/** Test for {@link PrimitiveStateMap}. */
+public class PrimitiveStateMapTest extends TestLogger {
+
+    /** Testing the basic map operations. */
+    @Test
+    public void testPutGetRemoveContainsTransform() throws Exception {
+        final PrimitiveStateMap<Integer, VoidNamespace, Long> stateMap =
+                new PrimitiveStateMap<>(PrimitiveType.INT, PrimitiveType.LONG);
+        final VoidNamespace ns = VoidNamespace.INSTANCE;
+
+        Assert.assertNull(stateMap.get(1, ns));
+        Assert.assertNull(stateMap.putAndGetOld(1, ns, 41L));
+        Assert.assertEquals(Long.valueOf(41L), stateMap.get(1, ns));
+        Assert.assertEquals(1, stateMap.size());
+
+        stateMap.put(-2, ns, 42L);
+        Assert.assertEquals(Long.valueOf(42L), stateMap.putAndGetOld(-2, ns, 43L));
+        Assert.assertTrue(stateMap.containsKey(-2, ns));
+        Assert.assertEquals(2, stateMap.size());
+
+        stateMap.transform(1, ns, 10L, (previous, value) -> previous + value);
+        Assert.assertEquals(Long.valueOf(51L), stateMap.get(1, ns));
+        stateMap.transform(3, ns, 10L, (previous, value) -> previous == null ? value : null);
+        Assert.assertEquals(Long.valueOf(10L), stateMap.get(3, ns));
+        stateMap.transform(3, ns, 10L, (previous, value) -> null);
+        Assert.assertFalse(stateMap.containsKey(3, ns));
+
+        Assert.assertEquals(Long.valueOf(43L), stateMap.removeAndGetOld(-2, ns));
+        Assert.assertNull(stateMap.removeAndGetOld(-2, ns));
+        stateMap.put(1, ns, null);
+        Assert.assertFalse(stateMap.containsKey(1, ns));
+        Assert.assertTrue(stateMap.isEmpty());
+    }
+
+    /**
+     * Applies random modifications to a map and a reference map, and checks that snapshots keep the
+     * content of the time they were taken.
+     */
+    @Test
+    public void testRandomModificationsAndCopyOnWriteIsolation() throws Exception {
+        final PrimitiveStateMap<Long, VoidNamespace, Long> stateMap =
+                new PrimitiveStateMap<>(PrimitiveType.LONG, PrimitiveType.LONG);
+        final Map<Long, Long> referenceMap = new HashMap<>();
+        final VoidNamespace ns = VoidNamespace.INSTANCE;
+        final Random random = new Random(42);
+
+        PrimitiveStateMapSnapshot<Long, VoidNamespace, Long> snapshot = null;
+        Map<Long, Long> referenceSnapshot = null;
+
+        for (int i = 0; i < 100_000; i++) {
+            // a small key range leads to many collisions, removals and updates
+            final long key = random.nextInt(2_000) * 1024L;
+            final long value = random.nextLong();
+            switch (random.nextInt(6)) {
+                case 0:
+                case 1:
+                    stateMap.put(key, ns, value);
+                    referenceMap.put(key, value);
+                    break;
+                case 2:
+                    Assert.assertEquals(
+                            referenceMap.put(key, value), stateMap.putAndGetOld(key, ns, value));
+                    break;
+                case 3:
+                    stateMap.remove(key, ns);
+                    referenceMap.remove(key);
+                    break;
+                case 4:
+                    Assert.assertEquals(
+                            referenceMap.remove(key), stateMap.removeAndGetOld(key, ns));
+                    break;
+                default:
+                    stateMap.transform(
+                            key, ns, value, (previous, v) -> previous == null ? v : previous + v);
+                    referenceMap.merge(key, value, Long::sum);
+            }
+
+            Assert.assertEquals(referenceMap.size(), stateMap.size());
+            Assert.assertEquals(referenceMap.get(key), stateMap.get(key, ns));
+
+            if (i % 10_000 == 0) {
+                if (snapshot != null) {
+                    Assert.assertEquals(referenceSnapshot, toMap(snapshot));
+                    assertWrittenState(referenceSnapshot, snapshot);
+                }
+                snapshot = stateMap.stateSnapshot();
+                referenceSnapshot = new HashMap<>(referenceMap);
+            }
+        }
+
+        Assert.assertEquals(referenceMap, toMap(stateMap.stateSnapshot()));
+        Assert.assertEquals(
+                referenceMap.keySet(), stateMap.getKeys(ns).collect(Collectors.toSet()));
+    }
+
+    /** Tests that an iterator is not affected by modifications of the map. */
+    @Test
+    public void testIteratorIsolation() {
+        final PrimitiveStateMap<Integer, VoidNamespace, Integer> stateMap =
+                new PrimitiveStateMap<>(PrimitiveType.INT, PrimitiveType.INT);
+        final VoidNamespace ns = VoidNamespace.INSTANCE;
+        for (int i = 0; i < 100; i++) {
+            stateMap.put(i, ns, i);
+        }
+
+        Iterator<StateEntry<Integer, VoidNamespace, Integer>> iterator = stateMap.iterator();
+        for (int i = 0; i < 100; i += 2) {
+            stateMap.remove(i, ns);
+            stateMap.put(i + 1, ns, -1);
+        }
+
+        int count = 0;
+        while (iterator.hasNext()) {
+            StateEntry<Integer, VoidNamespace, Integer> entry = iterator.next();
+            Assert.assertEquals(entry.getKey(), entry.getState());
+            Assert.assertEquals(VoidNamespace.INSTANCE, entry.getNamespace());
+            ++count;
+        }
+        Assert.assertEquals(100, count);
+        Assert.assertEquals(50, stateMap.size());
+    }
+
+    /** Tests that the same keys in different namespaces are different entries. */
+    @Test
+    public void testNamespaces() {
+        final PrimitiveStateMap<Long, String, Long> stateMap =
+                new PrimitiveStateMap<>(PrimitiveType.LONG, PrimitiveType.LONG);
+        for (long key = 0; key < 100; key++) {
+            stateMap.put(key, "a", key);
+            if (key % 2 == 0) {
+                stateMap.put(key, "b", -key);
+            }
+        }
+
+        Assert.assertEquals(150, stateMap.size());
+        Assert.assertEquals(100, stateMap.sizeOfNamespace("a"));
+        Assert.assertEquals(50, stateMap.sizeOfNamespace("b"));
+        Assert.assertEquals(Long.valueOf(4L), stateMap.get(4L, "a"));
+        Assert.assertEquals(Long.valueOf(-4L), stateMap.get(4L, "b"));
+        Assert.assertNull(stateMap.get(5L, "b"));
+        Assert.assertNull(stateMap.get(4L, "c"));
+        Assert.assertEquals(50, stateMap.getKeys("b").count());
+
+        PrimitiveStateMapSnapshot<Long, String, Long> snapshot = stateMap.stateSnapshot();
+        for (long key = 0; key < 100; key += 2) {
+            stateMap.remove(key, "b");
+        }
+        Assert.assertEquals(0, stateMap.sizeOfNamespace("b"));
+        Assert.assertFalse(stateMap.containsKey(0L, "b"));
+        // the id of the released namespace is reused
+        stateMap.put(1L, "c", 1L);
+        Assert.assertEquals(Long.valueOf(1L), stateMap.get(1L, "c"));
+        Assert.assertEquals(101, stateMap.size());
+
+        int numEntriesOfB = 0;
+        Iterator<StateEntry<Long, String, Long>> iterator =
+                snapshot.getIterator(
+                        LongSerializer.INSTANCE,
+                        StringSerializer.INSTANCE,
+                        LongSerializer.INSTANCE,
+                        null);
+        while (iterator.hasNext()) {
+            StateEntry<Long, String, Long> entry = iterator.next();
+            Assert.assertNotEquals("c", entry.getNamespace());
+            if ("b".equals(entry.getNamespace())) {
+                Assert.assertEquals(-entry.getKey(), (long) entry.getState());
+                ++numEntriesOfB;
+            }
+        }
+        Assert.assertEquals(50, numEntriesOfB);
+    }
+
+    /** Tests that a write after a snapshot only copies the segment that it modifies. */
+    @Test
+    public void testWriteAfterSnapshotCopiesOneSegment() {
+        final PrimitiveStateMap<Long, VoidNamespace, Long> stateMap =
+                new PrimitiveStateMap<>(PrimitiveType.LONG, PrimitiveType.LONG);
+        final VoidNamespace ns = VoidNamespace.INSTANCE;
+        final int numEntries = PrimitiveStateMap.SEGMENT_SIZE * 8;
+        for (long key = 0; key < numEntries; key++) {
+            stateMap.put(key, ns, key);
+        }
+        Assert.assertEquals(0, stateMap.getNumberOfSharedSegments());
+
+        PrimitiveStateMapSnapshot<Long, VoidNamespace, Long> snapshot = stateMap.stateSnapshot();
+        final int numSegments = stateMap.getNumberOfSharedSegments();
+        Assert.assertTrue(numSegments > 8);
+
+        stateMap.put(7L, ns, -7L);
+        Assert.assertEquals(numSegments - 1, stateMap.getNumberOfSharedSegments());
+        stateMap.put(7L, ns, -8L);
+        Assert.assertEquals(numSegments - 1, stateMap.getNumberOfSharedSegments());
+
+        Map<Long, Long> snapshotted = toMap(snapshot);
+        Assert.assertEquals(numEntries, snapshotted.size());
+        Assert.assertEquals(Long.valueOf(7L), snapshotted.get(7L));
+        Assert.assertEquals(Long.valueOf(-8L), stateMap.get(7L, ns));
+    }
+
+    /** Checks that the primitive serializers are recognized. */
+    @Test
+    public void testPrimitiveTypeOfSerializer() {
+        Assert.assertEquals(PrimitiveType.INT, PrimitiveType.of(IntSerializer.INSTANCE));
+        Assert.assertEquals(PrimitiveType.LONG, PrimitiveType.of(LongSerializer.INSTANCE));
+        Assert.assertNull(PrimitiveType.of(VoidNamespaceSerializer.INSTANCE));
+    }
+
+    private static Map<Long, Long> toMap(
+            PrimitiveStateMapSnapshot<Long, VoidNamespace, Long> snapshot) {
+        Map<Long, Long> result = new HashMap<>();
+        snapshot.getIterator(
+                        LongSerializer.INSTANCE,
+                        VoidNamespaceSerializer.INSTANCE,
+                        LongSerializer.INSTANCE,
+                        null)
+                .forEachRemaining(entry -> result.put(entry.getKey(), entry.getState()));
+        return result;
+    }
+
+    /** Checks that the snapshot is written in the format of the serializers. */
+    private static void assertWrittenState(
+            Map<Long, Long> expected, PrimitiveStateMapSnapshot<Long, VoidNamespace, Long> snapshot)
+            throws Exception {
+        DataOutputSerializer out = new DataOutputSerializer(1024);
+        snapshot.writeState(
+                LongSerializer.INSTANCE,
+                VoidNamespaceSerializer.INSTANCE,
+                LongSerializer.INSTANCE,
+                out,
+                null);
+
+        DataInputDeserializer in = new DataInputDeserializer(out.getCopyOfBuffer());
+        int numEntries = in.readInt();
+        List<Long> keys = new ArrayList<>(numEntries);
+        Map<Long, Long> written = new HashMap<>();
+        for (int i = 0; i < numEntries; i++) {
+            Assert.assertEquals(
+                    VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE.deserialize(in));
+            long key = LongSerializer.INSTANCE.deserialize(in);
+            keys.add(key);
+            written.put(key, LongSerializer.INSTANCE.deserialize(in));
+        }
+        Assert.assertEquals(0, in.available());
+        Assert.assertEquals(keys.size(), written.size());
+        Assert.assertEquals(expected, written);
+    }
+}
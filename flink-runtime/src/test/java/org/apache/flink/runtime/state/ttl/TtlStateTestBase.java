@@ -28,6 +28,7 @@ import org.apache.flink.runtime.state.SnapshotResult;
 import org.apache.flink.runtime.state.heap.AbstractHeapState;
 import org.apache.flink.runtime.state.heap.CopyOnWriteStateMap;
 import org.apache.flink.runtime.state.internal.InternalKvState;
+import org.apache.flink.runtime.state.internal.InternalValueState;
 import org.apache.flink.util.Preconditions;
 import org.apache.flink.util.StateMigrationException;
 
@@ -38,6 +39,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.RunnableFuture;
 import java.util.function.Consumer;
@@ -312,6 +314,30 @@ public abstract class TtlStateTestBase {
         assertEquals(UNEXPIRED_AVAIL, ctx().getUpdateEmpty, ctx().get());
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testValueStateGetAll() throws Exception {
+        assumeTrue(ctx instanceof TtlValueStateTestContext);
+        initTest();
+        InternalValueState<String, String, String> state =
+                (InternalValueState<String, String, String>) ctx().ttlState;
+
+        timeProvider.time = 0;
+        sbetc.setCurrentKey("expired");
+        state.update("value1");
+
+        timeProvider.time = 50;
+        sbetc.setCurrentKey("unexpired");
+        state.update("value2");
+
+        timeProvider.time = 120;
+        sbetc.setCurrentKey("defaultKey");
+        assertEquals(
+                EXPIRED_UNAVAIL,
+                Collections.singletonMap("unexpired", "value2"),
+                state.getAll(Arrays.asList("expired", "unexpired", "absent")));
+    }
+
     @Test
     public void testMergeNamespaces() throws Exception {
         assumeThat(ctx, instanceOf(TtlMergingStateTestContext.class));
@@ -22,11 +22,13 @@ import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.runtime.state.internal.InternalKvState;
 
 import java.util.Map;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 /** In memory mock internal state base class. */
 abstract class MockInternalKvState<K, N, T> implements InternalKvState<K, N, T> {
     Supplier<Map<Object, Object>> values;
+    Function<K, Map<Object, Object>> valuesOfKey;
     private N currentNamespace;
     private final Supplier<T> emptyValue;
 
@@ -67,6 +69,10 @@ abstract class MockInternalKvState<K, N, T> implements InternalKvState<K, N, T>
         return null;
     }
 
+    N getCurrentNamespace() {
+        return currentNamespace;
+    }
+
     @Override
     public void clear() {
         getCurrentKeyValues().remove(currentNamespace);
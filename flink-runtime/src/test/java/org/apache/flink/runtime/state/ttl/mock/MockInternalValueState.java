@@ -23,6 +23,10 @@ import org.apache.flink.api.common.state.StateDescriptor;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.runtime.state.internal.InternalValueState;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 /** In memory mock internal value state. */
 class MockInternalValueState<K, N, T> extends MockInternalKvState<K, N, T>
         implements InternalValueState<K, N, T> {
@@ -32,6 +36,19 @@ class MockInternalValueState<K, N, T> extends MockInternalKvState<K, N, T>
         return getInternal();
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<K, T> getAll(Collection<K> keys) {
+        Map<K, T> result = new HashMap<>();
+        for (K key : keys) {
+            T value = (T) valuesOfKey.apply(key).get(getCurrentNamespace());
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
     @Override
     public void update(T value) {
         updateInternal(value);
@@ -54,6 +54,7 @@ import org.apache.flink.util.FlinkRuntimeException;
 import javax.annotation.Nonnull;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -145,6 +146,11 @@ public class MockKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
                         stateValues
                                 .computeIfAbsent(stateDesc.getName(), n -> new HashMap<>())
                                 .computeIfAbsent(getCurrentKey(), k -> new HashMap<>());
+        ((MockInternalKvState<K, N, SV>) state).valuesOfKey =
+                key ->
+                        stateValues
+                                .computeIfAbsent(stateDesc.getName(), n -> new HashMap<>())
+                                .getOrDefault(key, Collections.emptyMap());
         return state;
     }
 
@@ -170,6 +170,10 @@ public class TaskManagerServicesBuilder {
                 taskChangelogStoragesManager,
                 taskEventDispatcher,
                 ioExecutor,
-                libraryCacheManager);
+                libraryCacheManager,
+                null,
+                null,
+                null,
+                null);
     }
 }
@@ -29,6 +29,8 @@ import org.apache.flink.state.changelog.restore.StateChangeApplier;
 import org.apache.flink.util.ExceptionUtils;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
 
 /**
  * Delegated partitioned {@link ValueState} that forwards changes to {@link StateChange} upon {@link
@@ -57,6 +59,11 @@ class ChangelogValueState<K, N, V>
         return delegatedState.value();
     }
 
+    @Override
+    public Map<K, V> getAll(Collection<K> keys) throws Exception {
+        return delegatedState.getAll(keys);
+    }
+
     @Override
     public void update(V value) throws IOException {
         delegatedState.update(value);
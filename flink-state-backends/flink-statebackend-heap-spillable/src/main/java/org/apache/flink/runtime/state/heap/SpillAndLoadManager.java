@@ -0,0 +1,302 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.operators.MailboxExecutor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
+import org.apache.flink.runtime.state.heap.space.SpaceAllocator;
+import org.apache.flink.util.Preconditions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Decides which key groups of the {@link SpillableStateTable SpillableStateTables} of a backend are
+ * kept on heap. The heap status is checked periodically. If the heap occupied after the last
+ * garbage collection exceeds the spill threshold, the least accessed key groups are spilled until
+ * the configured ratio of the on-heap entries has been moved off heap. Spilled key groups are
+ * loaded back by the tables when they are accessed.
+ *
+ * <p>A check is due after a number of state accesses, but it is not run by the state access itself:
+ * the caller might still hold the heap objects of a key group, e.g. iterate over a map state, and
+ * the objects would be detached from the table by a spill. Instead, the check is submitted to the
+ * main mailbox of the task, whose mails are only run between records. Without a mailbox, key groups
+ * are only spilled by {@link #checkHeapStatus()} explicitly.
+ *
+ * <p>The heap usage is only reevaluated after another garbage collection happened, because the
+ * effect of a spill becomes visible only then.
+ *
+ * <p>This class is not thread safe, it is only used by the task thread.
+ */
+public class SpillAndLoadManager implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SpillAndLoadManager.class);
+
+    /** The heap status is checked once every this many state accesses (plus one). */
+    private static final int ACCESS_CHECK_MASK = (1 << 12) - 1;
+
+    private final SpaceAllocator spaceAllocator;
+
+    /** The main mailbox of the task, which runs the checks between records. */
+    @Nullable private final MailboxExecutor mailboxExecutor;
+
+    private final long checkIntervalNanos;
+
+    private final float spillThreshold;
+
+    private final float spillSizeRatio;
+
+    private final List<SpillableStateTable<?, ?, ?>> stateTables;
+
+    private final MemoryMXBean memoryMXBean;
+
+    private final List<MemoryPoolMXBean> heapMemoryPools;
+
+    private final List<GarbageCollectorMXBean> garbageCollectors;
+
+    private int accessCount;
+
+    private long lastCheckNanos;
+
+    /** The number of garbage collections when key groups were spilled last. */
+    private long gcCountAtLastSpill;
+
+    /** Whether a check has been submitted to the mailbox and has not run yet. */
+    private boolean checkPending;
+
+    private boolean closed;
+
+    public SpillAndLoadManager(
+            SpaceAllocator spaceAllocator,
+            @Nullable MailboxExecutor mailboxExecutor,
+            Duration checkInterval,
+            float spillThreshold,
+            float spillSizeRatio) {
+        Preconditions.checkArgument(
+                spillThreshold > 0 && spillThreshold <= 1,
+                "Spill threshold must be in (0, 1], but is %s.",
+                spillThreshold);
+        Preconditions.checkArgument(
+                spillSizeRatio > 0 && spillSizeRatio <= 1,
+                "Spill size ratio must be in (0, 1], but is %s.",
+                spillSizeRatio);
+        this.spaceAllocator = Preconditions.checkNotNull(spaceAllocator);
+        this.mailboxExecutor = mailboxExecutor;
+        this.checkIntervalNanos = checkInterval.toNanos();
+        this.spillThreshold = spillThreshold;
+        this.spillSizeRatio = spillSizeRatio;
+        this.stateTables = new ArrayList<>();
+        this.memoryMXBean = ManagementFactory.getMemoryMXBean();
+        this.heapMemoryPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported()) {
+                heapMemoryPools.add(pool);
+            }
+        }
+        this.garbageCollectors = ManagementFactory.getGarbageCollectorMXBeans();
+        this.lastCheckNanos = System.nanoTime();
+        this.gcCountAtLastSpill = -1L;
+    }
+
+    /** Creates a new {@link SpillableStateTable} managed by this manager. */
+    <K, N, S> SpillableStateTable<K, N, S> newStateTable(
+            InternalKeyContext<K> keyContext,
+            RegisteredKeyValueStateBackendMetaInfo<N, S> metaInfo,
+            TypeSerializer<K> keySerializer) {
+        Preconditions.checkState(!closed, "SpillAndLoadManager has been closed.");
+        SpillableStateTable<K, N, S> stateTable =
+                new SpillableStateTable<>(keyContext, metaInfo, keySerializer, this);
+        stateTables.add(stateTable);
+        return stateTable;
+    }
+
+    /**
+     * Called by the tables on each access to a key group. Submits a check of the heap status to the
+     * mailbox if one is due, see the class comment.
+     */
+    void onStateAccess() {
+        if ((++accessCount & ACCESS_CHECK_MASK) != 0 || checkPending || mailboxExecutor == null) {
+            return;
+        }
+        if (System.nanoTime() - lastCheckNanos < checkIntervalNanos) {
+            return;
+        }
+        checkPending = true;
+        mailboxExecutor.execute(this::checkHeapStatus, "check heap status of spillable state");
+    }
+
+    /**
+     * Spills key groups if the heap usage exceeds the spill threshold. Must only be called while no
+     * heap state objects of the tables are in use, i.e. not from within a state access.
+     */
+    @VisibleForTesting
+    void checkHeapStatus() {
+        checkPending = false;
+        if (closed) {
+            return;
+        }
+        lastCheckNanos = System.nanoTime();
+
+        for (SpillableStateTable<?, ?, ?> stateTable : stateTables) {
+            stateTable.closeReplacedStateMaps();
+        }
+
+        long gcCount = getGarbageCollectionCount();
+        if (gcCount == gcCountAtLastSpill) {
+            return;
+        }
+
+        long maxHeap = memoryMXBean.getHeapMemoryUsage().getMax();
+        long usedHeapAfterGc = getHeapUsageAfterGarbageCollection();
+        if (maxHeap > 0 && usedHeapAfterGc > spillThreshold * maxHeap) {
+            LOG.debug(
+                    "Heap usage after garbage collection {} exceeds {} of the maximum heap {}.",
+                    usedHeapAfterGc,
+                    spillThreshold,
+                    maxHeap);
+            spillKeyGroups();
+            gcCountAtLastSpill = gcCount;
+        }
+    }
+
+    /**
+     * Spills the least accessed on-heap key groups, until the configured ratio of the on-heap
+     * entries has been spilled.
+     */
+    @VisibleForTesting
+    void spillKeyGroups() {
+        List<SpillCandidate> candidates = new ArrayList<>();
+        long numHeapEntries = 0L;
+        for (SpillableStateTable<?, ?, ?> stateTable : stateTables) {
+            StateMap<?, ?, ?>[] stateMaps = stateTable.getState();
+            for (int pos = 0; pos < stateMaps.length; pos++) {
+                StateMap<?, ?, ?> stateMap = stateMaps[pos];
+                if (stateMap instanceof CopyOnWriteStateMap && stateMap.size() > 0) {
+                    candidates.add(
+                            new SpillCandidate(
+                                    stateTable,
+                                    pos,
+                                    stateMap.size(),
+                                    stateTable.getAccessCount(pos)));
+                    numHeapEntries += stateMap.size();
+                }
+            }
+        }
+
+        // prefer cold and, among those, large key groups
+        candidates.sort(
+                Comparator.comparingInt((SpillCandidate candidate) -> candidate.accessCount)
+                        .thenComparing(
+                                Comparator.comparingInt(
+                                                (SpillCandidate candidate) -> candidate.size)
+                                        .reversed()));
+
+        long numEntriesToSpill = (long) Math.ceil(numHeapEntries * (double) spillSizeRatio);
+        long numSpilledEntries = 0L;
+        int numSpilledKeyGroups = 0;
+        for (SpillCandidate candidate : candidates) {
+            if (numSpilledEntries >= numEntriesToSpill) {
+                break;
+            }
+            numSpilledEntries += candidate.stateTable.spillKeyGroup(candidate.pos, spaceAllocator);
+            numSpilledKeyGroups++;
+        }
+
+        for (SpillableStateTable<?, ?, ?> stateTable : stateTables) {
+            stateTable.decayAccessCounts();
+        }
+
+        LOG.info(
+                "Spilled {} entries of {} key groups off heap, {} entries remain on heap.",
+                numSpilledEntries,
+                numSpilledKeyGroups,
+                numHeapEntries - numSpilledEntries);
+    }
+
+    private long getGarbageCollectionCount() {
+        long count = 0L;
+        for (GarbageCollectorMXBean garbageCollector : garbageCollectors) {
+            count += Math.max(0L, garbageCollector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private long getHeapUsageAfterGarbageCollection() {
+        if (heapMemoryPools.isEmpty()) {
+            return memoryMXBean.getHeapMemoryUsage().getUsed();
+        }
+        long used = 0L;
+        for (MemoryPoolMXBean pool : heapMemoryPools) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (usage != null) {
+                used += usage.getUsed();
+            }
+        }
+        return used;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (SpillableStateTable<?, ?, ?> stateTable : stateTables) {
+            stateTable.closeSpilledStateMaps();
+        }
+        stateTables.clear();
+        spaceAllocator.close();
+    }
+
+    private static final class SpillCandidate {
+
+        private final SpillableStateTable<?, ?, ?> stateTable;
+
+        private final int pos;
+
+        private final int size;
+
+        private final int accessCount;
+
+        private SpillCandidate(
+                SpillableStateTable<?, ?, ?> stateTable, int pos, int size, int accessCount) {
+            this.stateTable = stateTable;
+            this.pos = pos;
+            this.size = size;
+            this.accessCount = accessCount;
+        }
+    }
+}
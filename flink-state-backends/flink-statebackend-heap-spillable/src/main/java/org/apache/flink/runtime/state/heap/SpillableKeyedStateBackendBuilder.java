@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.operators.MailboxExecutor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.runtime.memory.MemoryManager;
+import org.apache.flink.runtime.query.TaskKvStateRegistry;
+import org.apache.flink.runtime.state.BackendBuildingException;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.LocalRecoveryConfig;
+import org.apache.flink.runtime.state.StreamCompressionDecorator;
+import org.apache.flink.runtime.state.heap.space.ChunkMemoryProvider;
+import org.apache.flink.runtime.state.heap.space.SpaceAllocator;
+import org.apache.flink.runtime.state.metrics.LatencyTrackingStateConfig;
+import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+import org.apache.flink.util.IOUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+
+/**
+ * Builder class for a {@link HeapKeyedStateBackend} whose key/value states are stored in {@link
+ * SpillableStateTable SpillableStateTables}. Snapshots are always asynchronous.
+ *
+ * @param <K> The data type that the key serializer serializes.
+ */
+public class SpillableKeyedStateBackendBuilder<K> extends HeapKeyedStateBackendBuilder<K> {
+
+    /** The memory manager to take the off-heap memory from, if managed memory is used. */
+    @Nullable private final MemoryManager memoryManager;
+    /** The amount of managed memory which may be used for spilled key groups. */
+    private final long managedMemoryBudget;
+    /** The local directory of the memory-mapped files beyond the managed memory budget. */
+    private final File spillDirectory;
+
+    private final int chunkSize;
+    private final Duration heapStatusCheckInterval;
+    private final float spillThreshold;
+    private final float spillSizeRatio;
+
+    @Nullable private final MailboxExecutor mailboxExecutor;
+
+    @Nullable private SpillAndLoadManager spillAndLoadManager;
+
+    public SpillableKeyedStateBackendBuilder(
+            TaskKvStateRegistry kvStateRegistry,
+            TypeSerializer<K> keySerializer,
+            ClassLoader userCodeClassLoader,
+            int numberOfKeyGroups,
+            KeyGroupRange keyGroupRange,
+            ExecutionConfig executionConfig,
+            TtlTimeProvider ttlTimeProvider,
+            LatencyTrackingStateConfig latencyTrackingStateConfig,
+            @Nonnull Collection<KeyedStateHandle> stateHandles,
+            StreamCompressionDecorator keyGroupCompressionDecorator,
+            LocalRecoveryConfig localRecoveryConfig,
+            HeapPriorityQueueSetFactory priorityQueueSetFactory,
+            CloseableRegistry cancelStreamRegistry,
+            @Nullable MailboxExecutor mailboxExecutor,
+            @Nullable MemoryManager memoryManager,
+            long managedMemoryBudget,
+            File spillDirectory,
+            int chunkSize,
+            Duration heapStatusCheckInterval,
+            float spillThreshold,
+            float spillSizeRatio) {
+        super(
+                kvStateRegistry,
+                keySerializer,
+                userCodeClassLoader,
+                numberOfKeyGroups,
+                keyGroupRange,
+                executionConfig,
+                ttlTimeProvider,
+                latencyTrackingStateConfig,
+                stateHandles,
+                keyGroupCompressionDecorator,
+                localRecoveryConfig,
+                priorityQueueSetFactory,
+                true,
+                cancelStreamRegistry);
+        this.mailboxExecutor = mailboxExecutor;
+        this.memoryManager = memoryManager;
+        this.managedMemoryBudget = managedMemoryBudget;
+        this.spillDirectory = spillDirectory;
+        this.chunkSize = chunkSize;
+        this.heapStatusCheckInterval = heapStatusCheckInterval;
+        this.spillThreshold = spillThreshold;
+        this.spillSizeRatio = spillSizeRatio;
+    }
+
+    @Override
+    public HeapKeyedStateBackend<K> build() throws BackendBuildingException {
+        try {
+            return super.build();
+        } catch (BackendBuildingException | RuntimeException e) {
+            IOUtils.closeQuietly(spillAndLoadManager);
+            throw e;
+        }
+    }
+
+    @Override
+    protected StateTableFactory<K> createStateTableFactory(
+            CloseableRegistry cancelStreamRegistryForBackend) throws BackendBuildingException {
+        SpaceAllocator spaceAllocator =
+                new SpaceAllocator(
+                        new ChunkMemoryProvider(memoryManager, managedMemoryBudget, spillDirectory),
+                        chunkSize);
+        SpillAndLoadManager manager =
+                new SpillAndLoadManager(
+                        spaceAllocator,
+                        mailboxExecutor,
+                        heapStatusCheckInterval,
+                        spillThreshold,
+                        spillSizeRatio);
+        spillAndLoadManager = manager;
+        try {
+            // the backend closes the registry when it is disposed
+            cancelStreamRegistryForBackend.registerCloseable(manager);
+        } catch (IOException e) {
+            throw new BackendBuildingException("Failed to register the spill and load manager.", e);
+        }
+        return manager::newStateTable;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.annotation.PublicEvolving;
+import org.apache.flink.configuration.ConfigOption;
+import org.apache.flink.configuration.ConfigOptions;
+import org.apache.flink.configuration.MemorySize;
+
+import java.time.Duration;
+
+/** Configuration options for the {@link SpillableStateBackend}. */
+@PublicEvolving
+public class SpillableOptions {
+
+    /** The interval in which the heap status is checked. */
+    public static final ConfigOption<Duration> HEAP_STATUS_CHECK_INTERVAL =
+            ConfigOptions.key("state.backend.spillable.heap-status.check-interval")
+                    .durationType()
+                    .defaultValue(Duration.ofSeconds(1))
+                    .withDescription(
+                            "The minimum interval in which the spillable state backend checks the heap usage to decide whether key groups have to be spilled.");
+
+    /** The fraction of the heap above which key groups are spilled. */
+    public static final ConfigOption<Float> SPILL_THRESHOLD =
+            ConfigOptions.key("state.backend.spillable.spill-threshold")
+                    .floatType()
+                    .defaultValue(0.7f)
+                    .withDescription(
+                            "The fraction of the maximum heap size which may be occupied after a garbage collection. "
+                                    + "Above this threshold, the least accessed key groups are spilled off heap.");
+
+    /** The fraction of the on-heap state entries which is spilled at once. */
+    public static final ConfigOption<Float> SPILL_SIZE_RATIO =
+            ConfigOptions.key("state.backend.spillable.spill-size-ratio")
+                    .floatType()
+                    .defaultValue(0.2f)
+                    .withDescription(
+                            "The fraction of the on-heap state entries which is spilled off heap when the spill threshold is exceeded.");
+
+    /**
+     * The size of the chunks in which off-heap memory is allocated, from managed memory first and
+     * from memory-mapped files in the local spilling directories beyond.
+     */
+    public static final ConfigOption<MemorySize> CHUNK_SIZE =
+            ConfigOptions.key("state.backend.spillable.chunk-size")
+                    .memoryType()
+                    .defaultValue(MemorySize.parse("1mb"))
+                    .withDescription(
+                            "The size of the chunks in which the memory of spilled key groups is allocated. "
+                                    + "Chunks are taken from the managed memory of the slot first, and are backed by "
+                                    + "memory-mapped files in the local spilling directories once the managed memory is used up. "
+                                    + "The size must be a power of two.");
+}
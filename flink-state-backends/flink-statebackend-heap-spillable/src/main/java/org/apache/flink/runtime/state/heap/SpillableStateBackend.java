@@ -0,0 +1,302 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.annotation.PublicEvolving;
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.configuration.IllegalConfigurationException;
+import org.apache.flink.configuration.MemorySize;
+import org.apache.flink.configuration.ReadableConfig;
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.runtime.execution.Environment;
+import org.apache.flink.runtime.memory.MemoryManager;
+import org.apache.flink.runtime.query.TaskKvStateRegistry;
+import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
+import org.apache.flink.runtime.state.AbstractStateBackend;
+import org.apache.flink.runtime.state.BackendBuildingException;
+import org.apache.flink.runtime.state.ConfigurableStateBackend;
+import org.apache.flink.runtime.state.DefaultOperatorStateBackendBuilder;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.LocalRecoveryConfig;
+import org.apache.flink.runtime.state.OperatorStateBackend;
+import org.apache.flink.runtime.state.OperatorStateHandle;
+import org.apache.flink.runtime.state.metrics.LatencyTrackingStateConfig;
+import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+import org.apache.flink.util.MathUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * A state backend which holds the working state on the JVM heap of the TaskManagers, like the
+ * {@link org.apache.flink.runtime.state.hashmap.HashMapStateBackend}, but spills cold key groups
+ * off heap when the heap runs full. Spilled key groups are stored serialized in {@link
+ * CopyOnWriteSkipListStateMap CopyOnWriteSkipListStateMaps}, whose memory is taken from the managed
+ * memory of the slot and, once that is used up, from memory-mapped files in the local spilling
+ * directories. A spilled key group is loaded back to heap when it is accessed.
+ *
+ * <h1>State Access</h1>
+ *
+ * <p>As with RocksDB, objects obtained from the state must not be modified without writing them
+ * back to the state, because the key group may have been spilled in between.
+ *
+ * <h1>Configuration</h1>
+ *
+ * <p>The backend picks up the {@link SpillableOptions} from the Flink configuration via the {@link
+ * #configure(ReadableConfig, ClassLoader)} method.
+ */
+@PublicEvolving
+public class SpillableStateBackend extends AbstractStateBackend
+        implements ConfigurableStateBackend {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The interval in which the heap status is checked, null if not configured. */
+    @Nullable private final Duration heapStatusCheckInterval;
+
+    /** The heap fraction above which key groups are spilled, null if not configured. */
+    @Nullable private final Float spillThreshold;
+
+    /** The fraction of the on-heap entries spilled at once, null if not configured. */
+    @Nullable private final Float spillSizeRatio;
+
+    /** The size of the chunks of off-heap memory, null if not configured. */
+    @Nullable private final MemorySize chunkSize;
+
+    // -----------------------------------------------------------------------
+
+    /** Creates a new state backend. */
+    public SpillableStateBackend() {
+        this.heapStatusCheckInterval = null;
+        this.spillThreshold = null;
+        this.spillSizeRatio = null;
+        this.chunkSize = null;
+    }
+
+    private SpillableStateBackend(SpillableStateBackend original, ReadableConfig config) {
+        // configure latency tracking
+        latencyTrackingConfigBuilder = original.latencyTrackingConfigBuilder.configure(config);
+
+        this.heapStatusCheckInterval =
+                original.heapStatusCheckInterval != null
+                        ? original.heapStatusCheckInterval
+                        : config.get(SpillableOptions.HEAP_STATUS_CHECK_INTERVAL);
+        this.spillThreshold =
+                original.spillThreshold != null
+                        ? original.spillThreshold
+                        : config.get(SpillableOptions.SPILL_THRESHOLD);
+        this.spillSizeRatio =
+                original.spillSizeRatio != null
+                        ? original.spillSizeRatio
+                        : config.get(SpillableOptions.SPILL_SIZE_RATIO);
+        this.chunkSize =
+                original.chunkSize != null
+                        ? original.chunkSize
+                        : config.get(SpillableOptions.CHUNK_SIZE);
+
+        checkArgument(
+                spillThreshold > 0 && spillThreshold <= 1,
+                "%s must be in (0, 1], but is %s.",
+                SpillableOptions.SPILL_THRESHOLD.key(),
+                spillThreshold);
+        checkArgument(
+                spillSizeRatio > 0 && spillSizeRatio <= 1,
+                "%s must be in (0, 1], but is %s.",
+                SpillableOptions.SPILL_SIZE_RATIO.key(),
+                spillSizeRatio);
+        checkArgument(
+                chunkSize.getBytes() <= Integer.MAX_VALUE
+                        && MathUtils.isPowerOf2(chunkSize.getBytes()),
+                "%s must be a power of two, but is %s.",
+                SpillableOptions.CHUNK_SIZE.key(),
+                chunkSize);
+    }
+
+    // ------------------------------------------------------------------------
+    //  Parameters
+    // ------------------------------------------------------------------------
+
+    /** Gets the interval in which the heap status is checked. */
+    public Duration getHeapStatusCheckInterval() {
+        return heapStatusCheckInterval != null
+                ? heapStatusCheckInterval
+                : SpillableOptions.HEAP_STATUS_CHECK_INTERVAL.defaultValue();
+    }
+
+    /** Gets the fraction of the maximum heap above which key groups are spilled. */
+    public float getSpillThreshold() {
+        return spillThreshold != null
+                ? spillThreshold
+                : SpillableOptions.SPILL_THRESHOLD.defaultValue();
+    }
+
+    /** Gets the fraction of the on-heap state entries which is spilled at once. */
+    public float getSpillSizeRatio() {
+        return spillSizeRatio != null
+                ? spillSizeRatio
+                : SpillableOptions.SPILL_SIZE_RATIO.defaultValue();
+    }
+
+    /** Gets the size of the chunks in which off-heap memory is allocated. */
+    public MemorySize getChunkSize() {
+        return chunkSize != null ? chunkSize : SpillableOptions.CHUNK_SIZE.defaultValue();
+    }
+
+    // ------------------------------------------------------------------------
+    //  State backend methods
+    // ------------------------------------------------------------------------
+
+    @Override
+    public SpillableStateBackend configure(ReadableConfig config, ClassLoader classLoader)
+            throws IllegalConfigurationException {
+        return new SpillableStateBackend(this, config);
+    }
+
+    @Override
+    public boolean useManagedMemory() {
+        return true;
+    }
+
+    @Override
+    public <K> AbstractKeyedStateBackend<K> createKeyedStateBackend(
+            Environment env,
+            JobID jobID,
+            String operatorIdentifier,
+            TypeSerializer<K> keySerializer,
+            int numberOfKeyGroups,
+            KeyGroupRange keyGroupRange,
+            TaskKvStateRegistry kvStateRegistry,
+            TtlTimeProvider ttlTimeProvider,
+            MetricGroup metricGroup,
+            @Nonnull Collection<KeyedStateHandle> stateHandles,
+            CloseableRegistry cancelStreamRegistry)
+            throws IOException {
+        // without managed memory, all spilled key groups are backed by memory-mapped files
+        return createKeyedStateBackend(
+                env,
+                jobID,
+                operatorIdentifier,
+                keySerializer,
+                numberOfKeyGroups,
+                keyGroupRange,
+                kvStateRegistry,
+                ttlTimeProvider,
+                metricGroup,
+                stateHandles,
+                cancelStreamRegistry,
+                0.0);
+    }
+
+    @Override
+    public <K> AbstractKeyedStateBackend<K> createKeyedStateBackend(
+            Environment env,
+            JobID jobID,
+            String operatorIdentifier,
+            TypeSerializer<K> keySerializer,
+            int numberOfKeyGroups,
+            KeyGroupRange keyGroupRange,
+            TaskKvStateRegistry kvStateRegistry,
+            TtlTimeProvider ttlTimeProvider,
+            MetricGroup metricGroup,
+            @Nonnull Collection<KeyedStateHandle> stateHandles,
+            CloseableRegistry cancelStreamRegistry,
+            double managedMemoryFraction)
+            throws IOException {
+
+        // replace all characters that are not legal for filenames with underscore
+        String fileCompatibleIdentifier = operatorIdentifier.replaceAll("[^a-zA-Z0-9\\-]", "_");
+        File[] spillingDirectories = env.getIOManager().getSpillingDirectories();
+        File spillDirectory =
+                new File(
+                        spillingDirectories[
+                                ThreadLocalRandom.current().nextInt(spillingDirectories.length)],
+                        "spillable_job_"
+                                + jobID
+                                + "_op_"
+                                + fileCompatibleIdentifier
+                                + "_uuid_"
+                                + UUID.randomUUID());
+
+        MemoryManager memoryManager = env.getMemoryManager();
+        long managedMemoryBudget =
+                managedMemoryFraction > 0
+                        ? memoryManager.computeMemorySize(managedMemoryFraction)
+                        : 0L;
+
+        LocalRecoveryConfig localRecoveryConfig =
+                env.getTaskStateManager().createLocalRecoveryConfig();
+        HeapPriorityQueueSetFactory priorityQueueSetFactory =
+                new HeapPriorityQueueSetFactory(keyGroupRange, numberOfKeyGroups, 128);
+
+        LatencyTrackingStateConfig latencyTrackingStateConfig =
+                latencyTrackingConfigBuilder.setMetricGroup(metricGroup).build();
+        return new SpillableKeyedStateBackendBuilder<>(
+                        kvStateRegistry,
+                        keySerializer,
+                        env.getUserCodeClassLoader().asClassLoader(),
+                        numberOfKeyGroups,
+                        keyGroupRange,
+                        env.getExecutionConfig(),
+                        ttlTimeProvider,
+                        latencyTrackingStateConfig,
+                        stateHandles,
+                        getCompressionDecorator(env.getExecutionConfig()),
+                        localRecoveryConfig,
+                        priorityQueueSetFactory,
+                        cancelStreamRegistry,
+                        env.getMainMailboxExecutor(),
+                        memoryManager,
+                        managedMemoryBudget,
+                        spillDirectory,
+                        (int) getChunkSize().getBytes(),
+                        getHeapStatusCheckInterval(),
+                        getSpillThreshold(),
+                        getSpillSizeRatio())
+                .build();
+    }
+
+    @Override
+    public OperatorStateBackend createOperatorStateBackend(
+            Environment env,
+            String operatorIdentifier,
+            @Nonnull Collection<OperatorStateHandle> stateHandles,
+            CloseableRegistry cancelStreamRegistry)
+            throws BackendBuildingException {
+
+        return new DefaultOperatorStateBackendBuilder(
+                        env.getUserCodeClassLoader().asClassLoader(),
+                        env.getExecutionConfig(),
+                        true,
+                        stateHandles,
+                        cancelStreamRegistry)
+                .build();
+    }
+}
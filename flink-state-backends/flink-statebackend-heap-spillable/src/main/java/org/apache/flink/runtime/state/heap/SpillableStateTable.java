@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.runtime.state.KeyGroupRangeOffsets;
+import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
+import org.apache.flink.runtime.state.StateEntry;
+import org.apache.flink.runtime.state.heap.space.Allocator;
+
+import javax.annotation.Nonnull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.apache.flink.runtime.state.heap.CopyOnWriteSkipListStateMap.DEFAULT_LOGICAL_REMOVED_KEYS_RATIO;
+import static org.apache.flink.runtime.state.heap.CopyOnWriteSkipListStateMap.DEFAULT_MAX_KEYS_TO_DELETE_ONE_TIME;
+
+/**
+ * A {@link StateTable} which keeps hot key groups in {@link CopyOnWriteStateMap
+ * CopyOnWriteStateMaps} on heap and cold key groups serialized in {@link
+ * CopyOnWriteSkipListStateMap CopyOnWriteSkipListStateMaps} outside of the heap. Which key groups
+ * are spilled is decided by the {@link SpillAndLoadManager}, based on the number of accesses to
+ * each key group.
+ *
+ * <p>The heap state objects, e.g. the lists of a list state, are modified in place by the state
+ * implementations, so a spilled key group is loaded back to heap when it is accessed. Iterating
+ * over the table does not load key groups, their entries are copied instead.
+ *
+ * @param <K> type of key.
+ * @param <N> type of namespace.
+ * @param <S> type of state.
+ */
+public class SpillableStateTable<K, N, S> extends StateTable<K, N, S> {
+
+    private final SpillAndLoadManager spillAndLoadManager;
+
+    /** Number of accesses per key group, decayed on each spill. */
+    private final int[] accessCounts;
+
+    /** Number of snapshots of this table which have not been released yet. */
+    private final AtomicInteger numRunningSnapshots;
+
+    /**
+     * Off-heap maps which were loaded to heap while a snapshot was running. They are closed once
+     * all snapshots have been released, because closing waits for the snapshots of the map.
+     */
+    private final List<CopyOnWriteSkipListStateMap<K, N, S>> replacedStateMaps;
+
+    SpillableStateTable(
+            InternalKeyContext<K> keyContext,
+            RegisteredKeyValueStateBackendMetaInfo<N, S> metaInfo,
+            TypeSerializer<K> keySerializer,
+            SpillAndLoadManager spillAndLoadManager) {
+        super(keyContext, metaInfo, keySerializer);
+        this.spillAndLoadManager = spillAndLoadManager;
+        this.accessCounts = new int[keyGroupedStateMaps.length];
+        this.numRunningSnapshots = new AtomicInteger();
+        this.replacedStateMaps = new ArrayList<>();
+    }
+
+    @Override
+    protected CopyOnWriteStateMap<K, N, S> createStateMap() {
+        return new CopyOnWriteStateMap<>(getStateSerializer());
+    }
+
+    @Override
+    public StateMap<K, N, S> getMapForKeyGroup(int keyGroupIndex) {
+        final int pos = keyGroupIndex - getKeyGroupOffset();
+        if (pos < 0 || pos >= keyGroupedStateMaps.length) {
+            throw KeyGroupRangeOffsets.newIllegalKeyGroupException(keyGroupIndex, keyGroupRange);
+        }
+
+        accessCounts[pos]++;
+        spillAndLoadManager.onStateAccess();
+
+        StateMap<K, N, S> stateMap = keyGroupedStateMaps[pos];
+        return isSpilled(stateMap) ? loadKeyGroup(pos) : stateMap;
+    }
+
+    // Spill / load -------------------------------------------------------------------------------
+
+    /**
+     * Moves the key group at the given array offset to an off-heap map.
+     *
+     * @return the number of moved entries.
+     */
+    int spillKeyGroup(int pos, Allocator spaceAllocator) {
+        StateMap<K, N, S> heapMap = keyGroupedStateMaps[pos];
+        if (isSpilled(heapMap)) {
+            return 0;
+        }
+
+        CopyOnWriteSkipListStateMap<K, N, S> offHeapMap =
+                new CopyOnWriteSkipListStateMap<>(
+                        getKeySerializer(),
+                        getNamespaceSerializer(),
+                        getStateSerializer(),
+                        spaceAllocator,
+                        DEFAULT_MAX_KEYS_TO_DELETE_ONE_TIME,
+                        DEFAULT_LOGICAL_REMOVED_KEYS_RATIO);
+        try {
+            for (StateEntry<K, N, S> entry : heapMap) {
+                offHeapMap.put(entry.getKey(), entry.getNamespace(), entry.getState());
+            }
+        } catch (RuntimeException e) {
+            offHeapMap.close();
+            throw e;
+        }
+
+        // running snapshots keep referencing the snapshot of the heap map
+        keyGroupedStateMaps[pos] = offHeapMap;
+        return offHeapMap.size();
+    }
+
+    private StateMap<K, N, S> loadKeyGroup(int pos) {
+        CopyOnWriteSkipListStateMap<K, N, S> offHeapMap =
+                (CopyOnWriteSkipListStateMap<K, N, S>) keyGroupedStateMaps[pos];
+        CopyOnWriteStateMap<K, N, S> heapMap = createStateMap();
+        for (StateEntry<K, N, S> entry : offHeapMap) {
+            heapMap.put(entry.getKey(), entry.getNamespace(), entry.getState());
+        }
+
+        keyGroupedStateMaps[pos] = heapMap;
+        if (numRunningSnapshots.get() == 0) {
+            offHeapMap.close();
+        } else {
+            replacedStateMaps.add(offHeapMap);
+        }
+        return heapMap;
+    }
+
+    /** Closes the off-heap maps replaced during snapshots, if no snapshot is running anymore. */
+    void closeReplacedStateMaps() {
+        if (!replacedStateMaps.isEmpty() && numRunningSnapshots.get() == 0) {
+            for (CopyOnWriteSkipListStateMap<K, N, S> stateMap : replacedStateMaps) {
+                stateMap.close();
+            }
+            replacedStateMaps.clear();
+        }
+    }
+
+    /** Closes all off-heap maps of this table. */
+    void closeSpilledStateMaps() {
+        for (StateMap<K, N, S> stateMap : keyGroupedStateMaps) {
+            if (isSpilled(stateMap)) {
+                ((CopyOnWriteSkipListStateMap<K, N, S>) stateMap).close();
+            }
+        }
+        for (CopyOnWriteSkipListStateMap<K, N, S> stateMap : replacedStateMaps) {
+            stateMap.close();
+        }
+        replacedStateMaps.clear();
+    }
+
+    int getAccessCount(int pos) {
+        return accessCounts[pos];
+    }
+
+    /** Halves the access counts, so that old accesses lose weight over time. */
+    void decayAccessCounts() {
+        for (int i = 0; i < accessCounts.length; i++) {
+            accessCounts[i] >>>= 1;
+        }
+    }
+
+    @VisibleForTesting
+    boolean isKeyGroupSpilled(int keyGroupIndex) {
+        return isSpilled(keyGroupedStateMaps[keyGroupIndex - getKeyGroupOffset()]);
+    }
+
+    private static boolean isSpilled(StateMap<?, ?, ?> stateMap) {
+        return stateMap instanceof CopyOnWriteSkipListStateMap;
+    }
+
+    // Iteration ----------------------------------------------------------------------------------
+
+    @Override
+    public Stream<K> getKeys(N namespace) {
+        return streamEntries()
+                .filter(entry -> entry.getNamespace().equals(namespace))
+                .map(StateEntry::getKey);
+    }
+
+    @Override
+    public Stream<Tuple2<K, N>> getKeysAndNamespaces() {
+        return streamEntries().map(entry -> Tuple2.of(entry.getKey(), entry.getNamespace()));
+    }
+
+    @Override
+    public Iterator<StateEntry<K, N, S>> iterator() {
+        return streamEntries().iterator();
+    }
+
+    /**
+     * Streams the entries of all key groups. The entries of an off-heap map are copied when the
+     * stream reaches its key group, because the map is closed if the key group is loaded while the
+     * stream is consumed.
+     */
+    private Stream<StateEntry<K, N, S>> streamEntries() {
+        return Arrays.stream(keyGroupedStateMaps)
+                .flatMap(
+                        stateMap -> {
+                            Iterator<StateEntry<K, N, S>> iterator = stateMap.iterator();
+                            if (isSpilled(stateMap)) {
+                                List<StateEntry<K, N, S>> entries = new ArrayList<>();
+                                iterator.forEachRemaining(entries::add);
+                                iterator = entries.iterator();
+                            }
+                            return StreamSupport.stream(
+                                    Spliterators.spliteratorUnknownSize(iterator, 0), false);
+                        });
+    }
+
+    // Snapshotting -------------------------------------------------------------------------------
+
+    @Nonnull
+    @Override
+    public SpillableStateTableSnapshot<K, N, S> stateSnapshot() {
+        closeReplacedStateMaps();
+        numRunningSnapshots.incrementAndGet();
+        return new SpillableStateTableSnapshot<>(
+                this,
+                getKeySerializer().duplicate(),
+                getNamespaceSerializer().duplicate(),
+                getStateSerializer().duplicate(),
+                getMetaInfo()
+                        .getStateSnapshotTransformFactory()
+                        .createForDeserializedState()
+                        .orElse(null));
+    }
+
+    List<StateMapSnapshot<K, N, S, ? extends StateMap<K, N, S>>> getStateMapSnapshotList() {
+        List<StateMapSnapshot<K, N, S, ? extends StateMap<K, N, S>>> snapshotList =
+                new ArrayList<>(keyGroupedStateMaps.length);
+        for (StateMap<K, N, S> stateMap : keyGroupedStateMaps) {
+            snapshotList.add(stateMap.stateSnapshot());
+        }
+        return snapshotList;
+    }
+
+    /** Called by a {@link SpillableStateTableSnapshot} once all its map snapshots are released. */
+    void onSnapshotReleased() {
+        numRunningSnapshots.decrementAndGet();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap.space;
+
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.util.Preconditions;
+
+/**
+ * A {@link Chunk} which is divided into buckets of the same size. Each allocation occupies a whole
+ * bucket, so the chunk only serves allocations not larger than its bucket size. A chunk with a
+ * single bucket is used for allocations larger than the regular chunk size.
+ *
+ * <p>This class is not thread safe, the owning {@link SpaceAllocator} synchronizes the access.
+ */
+class BucketChunk implements Chunk {
+
+    private final int chunkId;
+
+    private final MemorySegment segment;
+
+    private final int bucketSize;
+
+    private final int numBuckets;
+
+    /** Stack of the indices of free buckets. */
+    private final int[] freeBuckets;
+
+    private int numFreeBuckets;
+
+    BucketChunk(int chunkId, MemorySegment segment, int bucketSize) {
+        Preconditions.checkArgument(bucketSize > 0, "Bucket size must be positive.");
+        Preconditions.checkArgument(
+                segment.size() >= bucketSize, "Chunk is smaller than its bucket size.");
+        this.chunkId = chunkId;
+        this.segment = segment;
+        this.bucketSize = bucketSize;
+        this.numBuckets = segment.size() / bucketSize;
+        this.freeBuckets = new int[numBuckets];
+        // hand out the buckets in address order
+        for (int i = 0; i < numBuckets; i++) {
+            freeBuckets[i] = numBuckets - 1 - i;
+        }
+        this.numFreeBuckets = numBuckets;
+    }
+
+    @Override
+    public int allocate(int len) {
+        if (len > bucketSize || numFreeBuckets == 0) {
+            return Constants.NO_SPACE;
+        }
+        return freeBuckets[--numFreeBuckets] * bucketSize;
+    }
+
+    @Override
+    public void free(int interChunkOffset) {
+        Preconditions.checkArgument(
+                interChunkOffset % bucketSize == 0 && interChunkOffset < numBuckets * bucketSize,
+                "Offset %s is not the start of a bucket in chunk %s.",
+                interChunkOffset,
+                chunkId);
+        Preconditions.checkState(
+                numFreeBuckets < numBuckets, "All buckets of chunk %s are free.", chunkId);
+        freeBuckets[numFreeBuckets++] = interChunkOffset / bucketSize;
+    }
+
+    @Override
+    public int getChunkId() {
+        return chunkId;
+    }
+
+    @Override
+    public int getChunkCapacity() {
+        return segment.size();
+    }
+
+    @Override
+    public MemorySegment getMemorySegment(int chunkOffset) {
+        return segment;
+    }
+
+    @Override
+    public int getOffsetInSegment(int offsetInChunk) {
+        return offsetInChunk;
+    }
+
+    int getBucketSize() {
+        return bucketSize;
+    }
+
+    MemorySegment getSegment() {
+        return segment;
+    }
+
+    boolean isEmpty() {
+        return numFreeBuckets == numBuckets;
+    }
+
+    boolean isFull() {
+        return numFreeBuckets == 0;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap.space;
+
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.memory.MemoryManager;
+import org.apache.flink.runtime.memory.MemoryReservationException;
+import org.apache.flink.util.FileUtils;
+import org.apache.flink.util.Preconditions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Provides the memory of chunks. Memory is taken from Flink's managed memory as long as the given
+ * budget allows, beyond that chunks are backed by memory-mapped files in a local directory, so that
+ * the operating system pages them out to disk under memory pressure.
+ *
+ * <p>This class is not thread safe, the owning {@link SpaceAllocator} synchronizes the access.
+ */
+public class ChunkMemoryProvider implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChunkMemoryProvider.class);
+
+    @Nullable private final MemoryManager memoryManager;
+
+    /** Number of bytes which may be reserved from the memory manager. */
+    private final long managedMemoryBudget;
+
+    /** Directory of the memory-mapped files. */
+    private final File spillDirectory;
+
+    /** Files backing the memory-mapped segments. */
+    private final Map<MemorySegment, File> mappedFiles = new IdentityHashMap<>();
+
+    private long reservedManagedMemory;
+
+    private long mappedFileMemory;
+
+    private int fileCounter;
+
+    private boolean closed;
+
+    public ChunkMemoryProvider(
+            @Nullable MemoryManager memoryManager, long managedMemoryBudget, File spillDirectory) {
+        Preconditions.checkArgument(
+                managedMemoryBudget >= 0, "Managed memory budget must not be negative.");
+        this.memoryManager = memoryManager;
+        this.managedMemoryBudget = memoryManager == null ? 0L : managedMemoryBudget;
+        this.spillDirectory = Preconditions.checkNotNull(spillDirectory);
+    }
+
+    /** Returns a new segment of the given size, from managed memory if the budget allows. */
+    MemorySegment allocate(int size) throws IOException {
+        Preconditions.checkState(!closed, "Chunk memory provider has been closed.");
+        if (memoryManager != null && reservedManagedMemory + size <= managedMemoryBudget) {
+            try {
+                memoryManager.reserveMemory(this, size);
+                reservedManagedMemory += size;
+                return MemorySegmentFactory.allocateOffHeapUnsafeMemory(size);
+            } catch (MemoryReservationException e) {
+                LOG.debug("Managed memory exhausted, falling back to memory-mapped files.", e);
+            }
+        }
+        return allocateMappedFile(size);
+    }
+
+    /** Releases the memory of a segment returned by {@link #allocate(int)}. */
+    void release(MemorySegment segment) {
+        int size = segment.size();
+        File file = mappedFiles.remove(segment);
+        segment.free();
+        if (file != null) {
+            // the mapping itself is released once the buffer is garbage collected
+            mappedFileMemory -= size;
+            if (!file.delete()) {
+                LOG.warn("Failed to delete memory-mapped chunk file {}.", file);
+            }
+        } else {
+            reservedManagedMemory -= size;
+            memoryManager.releaseMemory(this, size);
+        }
+    }
+
+    private MemorySegment allocateMappedFile(int size) throws IOException {
+        if (!spillDirectory.exists() && !spillDirectory.mkdirs()) {
+            throw new IOException("Could not create spill directory " + spillDirectory);
+        }
+        File file = new File(spillDirectory, "chunk-" + fileCounter++);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+                FileChannel channel = randomAccessFile.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            MemorySegment segment = MemorySegmentFactory.wrapOffHeapMemory(buffer);
+            mappedFiles.put(segment, file);
+            mappedFileMemory += size;
+            return segment;
+        } catch (IOException e) {
+            if (!file.delete()) {
+                LOG.warn("Failed to delete memory-mapped chunk file {}.", file);
+            }
+            throw e;
+        }
+    }
+
+    long getReservedManagedMemory() {
+        return reservedManagedMemory;
+    }
+
+    long getMappedFileMemory() {
+        return mappedFileMemory;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (MemorySegment segment : mappedFiles.keySet()) {
+            segment.free();
+        }
+        mappedFiles.clear();
+        mappedFileMemory = 0L;
+        if (memoryManager != null && reservedManagedMemory > 0) {
+            memoryManager.releaseMemory(this, reservedManagedMemory);
+        }
+        reservedManagedMemory = 0L;
+        FileUtils.deleteDirectory(spillDirectory);
+    }
+}
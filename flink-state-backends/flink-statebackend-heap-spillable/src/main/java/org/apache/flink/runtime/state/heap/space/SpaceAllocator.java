@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap.space;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.util.MathUtils;
+import org.apache.flink.util.Preconditions;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import static org.apache.flink.runtime.state.heap.space.Constants.FOUR_BYTES_BITS;
+import static org.apache.flink.runtime.state.heap.space.Constants.FOUR_BYTES_MARK;
+import static org.apache.flink.runtime.state.heap.space.Constants.NO_SPACE;
+
+/**
+ * An {@link Allocator} which serves allocations from fixed-size chunks. Each chunk is split into
+ * buckets of one power-of-two size class, and an allocation takes a bucket of the smallest size
+ * class which fits. Allocations larger than the chunk size get a dedicated chunk. A chunk is
+ * returned to the {@link ChunkMemoryProvider} once all its buckets are free again.
+ *
+ * <p>Allocation and free may be called from different threads, e.g. when asynchronous snapshots
+ * prune old values, so they are synchronized. Lookups of chunks are not synchronized, because a
+ * chunk is only looked up for addresses which were handed out before.
+ */
+public class SpaceAllocator implements Allocator {
+
+    /** Size of the smallest size class. */
+    @VisibleForTesting static final int MIN_BUCKET_SIZE = 16;
+
+    /** Dedicated chunks are rounded up to a multiple of this size. */
+    private static final int DEDICATED_CHUNK_ALIGNMENT = 4096;
+
+    private final ChunkMemoryProvider memoryProvider;
+
+    private final int chunkSize;
+
+    /** Chunks with free buckets, per size class. */
+    private final ArrayDeque<BucketChunk>[] availableChunks;
+
+    /** Chunks by id. */
+    private volatile BucketChunk[] chunks;
+
+    /** Ids of released chunks which can be reused. */
+    private final ArrayDeque<Integer> freeChunkIds;
+
+    private int nextChunkId;
+
+    private boolean closed;
+
+    @SuppressWarnings("unchecked")
+    public SpaceAllocator(ChunkMemoryProvider memoryProvider, int chunkSize) {
+        Preconditions.checkArgument(
+                MathUtils.isPowerOf2(chunkSize) && chunkSize >= MIN_BUCKET_SIZE,
+                "Chunk size must be a power of two not smaller than %s, but is %s.",
+                MIN_BUCKET_SIZE,
+                chunkSize);
+        this.memoryProvider = Preconditions.checkNotNull(memoryProvider);
+        this.chunkSize = chunkSize;
+        int numSizeClasses = sizeClassOf(chunkSize) + 1;
+        this.availableChunks = new ArrayDeque[numSizeClasses];
+        for (int i = 0; i < numSizeClasses; i++) {
+            availableChunks[i] = new ArrayDeque<>();
+        }
+        this.chunks = new BucketChunk[16];
+        this.freeChunkIds = new ArrayDeque<>();
+    }
+
+    @Override
+    public synchronized long allocate(int size) throws Exception {
+        Preconditions.checkState(!closed, "Allocator has been closed.");
+        Preconditions.checkArgument(size > 0, "Size must be positive, but is %s.", size);
+
+        final BucketChunk chunk;
+        if (size > chunkSize) {
+            long alignedSize =
+                    ((long) size + DEDICATED_CHUNK_ALIGNMENT - 1)
+                            / DEDICATED_CHUNK_ALIGNMENT
+                            * DEDICATED_CHUNK_ALIGNMENT;
+            chunk = newChunk((int) Math.min(alignedSize, Integer.MAX_VALUE), size);
+        } else {
+            int sizeClass = sizeClassOf(size);
+            ArrayDeque<BucketChunk> candidates = availableChunks[sizeClass];
+            if (candidates.isEmpty()) {
+                candidates.add(newChunk(chunkSize, MIN_BUCKET_SIZE << sizeClass));
+            }
+            chunk = candidates.peek();
+        }
+
+        int offset = chunk.allocate(size);
+        Preconditions.checkState(offset != NO_SPACE, "Chunk has no space for %s bytes.", size);
+        if (chunk.isFull() && size <= chunkSize) {
+            availableChunks[sizeClassOf(size)].poll();
+        }
+        return ((chunk.getChunkId() & FOUR_BYTES_MARK) << FOUR_BYTES_BITS)
+                | (offset & FOUR_BYTES_MARK);
+    }
+
+    @Override
+    public synchronized void free(long address) {
+        if (closed) {
+            // all chunks have been released already
+            return;
+        }
+        int chunkId = SpaceUtils.getChunkIdByAddress(address);
+        BucketChunk chunk = getChunkById(chunkId);
+        boolean wasFull = chunk.isFull();
+        chunk.free(SpaceUtils.getChunkOffsetByAddress(address));
+
+        if (chunk.getBucketSize() > chunkSize) {
+            releaseChunk(chunk);
+            return;
+        }
+
+        ArrayDeque<BucketChunk> candidates = availableChunks[sizeClassOf(chunk.getBucketSize())];
+        if (wasFull) {
+            candidates.add(chunk);
+        }
+        // keep one chunk per size class to not release and allocate chunks over and over again
+        if (chunk.isEmpty() && candidates.size() > 1) {
+            candidates.remove(chunk);
+            releaseChunk(chunk);
+        }
+    }
+
+    @Override
+    public BucketChunk getChunkById(int chunkId) {
+        BucketChunk[] currentChunks = chunks;
+        BucketChunk chunk = chunkId < currentChunks.length ? currentChunks[chunkId] : null;
+        Preconditions.checkNotNull(chunk, "Chunk %s does not exist.", chunkId);
+        return chunk;
+    }
+
+    private BucketChunk newChunk(int segmentSize, int bucketSize) throws IOException {
+        MemorySegment segment = memoryProvider.allocate(segmentSize);
+        int chunkId = freeChunkIds.isEmpty() ? nextChunkId++ : freeChunkIds.poll();
+        BucketChunk chunk = new BucketChunk(chunkId, segment, bucketSize);
+        if (chunkId >= chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        chunks[chunkId] = chunk;
+        return chunk;
+    }
+
+    private void releaseChunk(BucketChunk chunk) {
+        chunks[chunk.getChunkId()] = null;
+        freeChunkIds.add(chunk.getChunkId());
+        memoryProvider.release(chunk.getSegment());
+    }
+
+    /** Returns the index of the smallest size class which fits the given size. */
+    private static int sizeClassOf(int size) {
+        if (size <= MIN_BUCKET_SIZE) {
+            return 0;
+        }
+        return MathUtils.log2strict(MathUtils.roundUpToPowerOfTwo(size))
+                - MathUtils.log2strict(MIN_BUCKET_SIZE);
+    }
+
+    @VisibleForTesting
+    synchronized int getNumberOfChunks() {
+        int count = 0;
+        for (BucketChunk chunk : chunks) {
+            if (chunk != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (BucketChunk chunk : chunks) {
+            if (chunk != null) {
+                memoryProvider.release(chunk.getSegment());
+            }
+        }
+        Arrays.fill(chunks, null);
+        for (ArrayDeque<BucketChunk> candidates : availableChunks) {
+            candidates.clear();
+        }
+        memoryProvider.close();
+    }
+}
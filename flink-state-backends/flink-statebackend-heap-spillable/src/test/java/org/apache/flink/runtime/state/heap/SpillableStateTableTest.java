@@ -0,0 +1,316 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.operators.MailboxExecutor;
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.core.memory.ByteArrayInputStreamWithPos;
+import org.apache.flink.core.memory.ByteArrayOutputStreamWithPos;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.runtime.state.KeyedBackendSerializationProxy;
+import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
+import org.apache.flink.runtime.state.StateEntry;
+import org.apache.flink.runtime.state.StateSnapshot;
+import org.apache.flink.runtime.state.StateSnapshotKeyGroupReader;
+import org.apache.flink.runtime.state.heap.space.ChunkMemoryProvider;
+import org.apache.flink.runtime.state.heap.space.SpaceAllocator;
+import org.apache.flink.util.TestLogger;
+import org.apache.flink.util.function.ThrowingRunnable;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for {@link SpillableStateTable} and {@link SpillAndLoadManager}. */
+public class SpillableStateTableTest extends TestLogger {
+
+    private static final int NUMBER_OF_KEY_GROUPS = 10;
+
+    private static final int NUMBER_OF_KEYS = 100;
+
+    private static final int NAMESPACE = 1;
+
+    @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final MockInternalKeyContext<Integer> keyContext =
+            new MockInternalKeyContext<>(0, NUMBER_OF_KEY_GROUPS - 1, NUMBER_OF_KEY_GROUPS);
+
+    private final RegisteredKeyValueStateBackendMetaInfo<Integer, String> metaInfo =
+            new RegisteredKeyValueStateBackendMetaInfo<>(
+                    StateDescriptor.Type.VALUE,
+                    "test",
+                    IntSerializer.INSTANCE,
+                    StringSerializer.INSTANCE);
+
+    private SpillAndLoadManager spillAndLoadManager;
+
+    @After
+    public void closeManager() throws IOException {
+        if (spillAndLoadManager != null) {
+            spillAndLoadManager.close();
+        }
+    }
+
+    @Test
+    public void testSpilledKeyGroupIsLoadedOnAccess() throws Exception {
+        SpillableStateTable<Integer, Integer, String> table = createStateTable(1.0f);
+        fillStateTable(table);
+
+        spillAndLoadManager.spillKeyGroups();
+        for (int keyGroup = 0; keyGroup < NUMBER_OF_KEY_GROUPS; keyGroup++) {
+            assertTrue(table.isKeyGroupSpilled(keyGroup));
+        }
+
+        // iterating does not load the key groups
+        assertEquals(NUMBER_OF_KEYS, table.size());
+        assertEquals(NUMBER_OF_KEYS, table.getKeys(NAMESPACE).count());
+        for (StateEntry<Integer, Integer, String> entry : table) {
+            assertEquals("value-" + entry.getKey(), entry.getState());
+        }
+        for (int keyGroup = 0; keyGroup < NUMBER_OF_KEY_GROUPS; keyGroup++) {
+            assertTrue(table.isKeyGroupSpilled(keyGroup));
+        }
+
+        keyContext.setCurrentKeyAndKeyGroup(42);
+        assertEquals("value-42", table.get(NAMESPACE));
+        int keyGroupOf42 = keyGroupOf(42);
+        for (int keyGroup = 0; keyGroup < NUMBER_OF_KEY_GROUPS; keyGroup++) {
+            assertEquals(keyGroup != keyGroupOf42, table.isKeyGroupSpilled(keyGroup));
+        }
+
+        // modifications of loaded key groups survive the next spill
+        table.put(NAMESPACE, "changed");
+        spillAndLoadManager.spillKeyGroups();
+        assertTrue(table.isKeyGroupSpilled(keyGroupOf42));
+        assertEquals("changed", table.get(NAMESPACE));
+        assertEquals(NUMBER_OF_KEYS, table.size());
+    }
+
+    @Test
+    public void testLeastAccessedKeyGroupsAreSpilled() {
+        SpillableStateTable<Integer, Integer, String> table = createStateTable(0.5f);
+        fillStateTable(table);
+
+        int hotKeyGroup = keyGroupOf(7);
+        for (int i = 0; i < 1000; i++) {
+            keyContext.setCurrentKeyAndKeyGroup(7);
+            table.get(NAMESPACE);
+        }
+
+        spillAndLoadManager.spillKeyGroups();
+
+        assertFalse(table.isKeyGroupSpilled(hotKeyGroup));
+        int numSpilledEntries = 0;
+        for (int keyGroup = 0; keyGroup < NUMBER_OF_KEY_GROUPS; keyGroup++) {
+            if (table.isKeyGroupSpilled(keyGroup)) {
+                numSpilledEntries += table.getState()[keyGroup].size();
+            }
+        }
+        assertTrue(numSpilledEntries >= NUMBER_OF_KEYS / 2);
+        assertTrue(numSpilledEntries < NUMBER_OF_KEYS);
+    }
+
+    @Test
+    public void testSnapshotIsNotAffectedBySpillAndLoad() throws Exception {
+        SpillableStateTable<Integer, Integer, String> table = createStateTable(1.0f);
+        fillStateTable(table);
+
+        int heapKey = 1;
+        int offHeapKey = 2;
+        while (keyGroupOf(offHeapKey) == keyGroupOf(heapKey)) {
+            offHeapKey++;
+        }
+
+        // key group of the first key is on heap in the snapshot, all others are spilled
+        spillAndLoadManager.spillKeyGroups();
+        keyContext.setCurrentKeyAndKeyGroup(heapKey);
+        table.get(NAMESPACE);
+        CopyOnWriteSkipListStateMap<?, ?, ?> replacedOffHeapMap =
+                (CopyOnWriteSkipListStateMap<?, ?, ?>) table.getState()[keyGroupOf(offHeapKey)];
+
+        SpillableStateTableSnapshot<Integer, Integer, String> snapshot = table.stateSnapshot();
+
+        // modify both key groups while the snapshot is running
+        keyContext.setCurrentKeyAndKeyGroup(heapKey);
+        table.put(NAMESPACE, "changed");
+        spillAndLoadManager.spillKeyGroups();
+        keyContext.setCurrentKeyAndKeyGroup(offHeapKey);
+        table.put(NAMESPACE, "changed");
+        assertTrue(table.isKeyGroupSpilled(keyGroupOf(heapKey)));
+        assertFalse(table.isKeyGroupSpilled(keyGroupOf(offHeapKey)));
+
+        // the replaced off-heap map is kept until the snapshot is released
+        table.closeReplacedStateMaps();
+        assertFalse(replacedOffHeapMap.isClosed());
+
+        Map<Integer, String> restored = restoreFromSnapshot(snapshot);
+        snapshot.release();
+        table.closeReplacedStateMaps();
+        assertTrue(replacedOffHeapMap.isClosed());
+
+        assertEquals(NUMBER_OF_KEYS, restored.size());
+        for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+            assertEquals("value-" + key, restored.get(key));
+        }
+    }
+
+    @Test
+    public void testSnapshotCanBeReleasedPartiallyWritten() throws Exception {
+        SpillableStateTable<Integer, Integer, String> table = createStateTable(1.0f);
+        fillStateTable(table);
+        spillAndLoadManager.spillKeyGroups();
+
+        SpillableStateTableSnapshot<Integer, Integer, String> snapshot = table.stateSnapshot();
+        DataOutputViewStreamWrapper dov =
+                new DataOutputViewStreamWrapper(new ByteArrayOutputStreamWithPos());
+        for (int keyGroup = 0; keyGroup < NUMBER_OF_KEY_GROUPS / 2; keyGroup++) {
+            snapshot.writeStateInKeyGroup(dov, keyGroup);
+        }
+        snapshot.release();
+
+        for (int keyGroup = 0; keyGroup < NUMBER_OF_KEY_GROUPS; keyGroup++) {
+            CopyOnWriteSkipListStateMap<?, ?, ?> stateMap =
+                    (CopyOnWriteSkipListStateMap<?, ?, ?>) table.getState()[keyGroup];
+            assertEquals(0, stateMap.getResourceGuard().getLeaseCount());
+        }
+    }
+
+    @Test
+    public void testKeyGroupsAreOnlySpilledByTheMailbox() throws Exception {
+        Queue<ThrowingRunnable<? extends Exception>> mails = new ArrayDeque<>();
+        MailboxExecutor mailboxExecutor =
+                new MailboxExecutor() {
+                    @Override
+                    public void execute(
+                            ThrowingRunnable<? extends Exception> command,
+                            String descriptionFormat,
+                            Object... descriptionArgs) {
+                        mails.add(command);
+                    }
+
+                    @Override
+                    public void yield() {
+                        throw new UnsupportedOperationException();
+                    }
+
+                    @Override
+                    public boolean tryYield() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+        // any heap usage exceeds the threshold
+        SpillableStateTable<Integer, Integer, String> table =
+                createStateTable(1.0f, mailboxExecutor, Duration.ZERO, Float.MIN_VALUE);
+        fillStateTable(table);
+        for (int i = 0; i < 10_000; i++) {
+            keyContext.setCurrentKeyAndKeyGroup(i % NUMBER_OF_KEYS);
+            table.get(NAMESPACE);
+        }
+
+        // the accesses only requested a check, once
+        assertEquals(1, mails.size());
+        for (int keyGroup = 0; keyGroup < NUMBER_OF_KEY_GROUPS; keyGroup++) {
+            assertFalse(table.isKeyGroupSpilled(keyGroup));
+        }
+
+        // make the heap usage after garbage collection available
+        System.gc();
+        mails.remove().run();
+        for (int keyGroup = 0; keyGroup < NUMBER_OF_KEY_GROUPS; keyGroup++) {
+            assertTrue(table.isKeyGroupSpilled(keyGroup));
+        }
+    }
+
+    private SpillableStateTable<Integer, Integer, String> createStateTable(float spillSizeRatio) {
+        return createStateTable(spillSizeRatio, null, Duration.ofSeconds(1), 0.7f);
+    }
+
+    private SpillableStateTable<Integer, Integer, String> createStateTable(
+            float spillSizeRatio,
+            @Nullable MailboxExecutor mailboxExecutor,
+            Duration checkInterval,
+            float spillThreshold) {
+        SpaceAllocator spaceAllocator =
+                new SpaceAllocator(
+                        new ChunkMemoryProvider(null, 0L, temporaryFolder.getRoot()), 64 * 1024);
+        spillAndLoadManager =
+                new SpillAndLoadManager(
+                        spaceAllocator,
+                        mailboxExecutor,
+                        checkInterval,
+                        spillThreshold,
+                        spillSizeRatio);
+        return spillAndLoadManager.newStateTable(keyContext, metaInfo, IntSerializer.INSTANCE);
+    }
+
+    private void fillStateTable(SpillableStateTable<Integer, Integer, String> table) {
+        for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+            keyContext.setCurrentKeyAndKeyGroup(key);
+            table.put(NAMESPACE, "value-" + key);
+        }
+    }
+
+    private Map<Integer, String> restoreFromSnapshot(StateSnapshot snapshot) throws IOException {
+        ByteArrayOutputStreamWithPos out = new ByteArrayOutputStreamWithPos();
+        DataOutputViewStreamWrapper dov = new DataOutputViewStreamWrapper(out);
+        StateSnapshot.StateKeyGroupWriter keyGroupWriter = snapshot.getKeyGroupWriter();
+        for (int keyGroup = 0; keyGroup < NUMBER_OF_KEY_GROUPS; keyGroup++) {
+            keyGroupWriter.writeStateInKeyGroup(dov, keyGroup);
+        }
+
+        CopyOnWriteStateTable<Integer, Integer, String> restoredTable =
+                new CopyOnWriteStateTable<>(keyContext, metaInfo, IntSerializer.INSTANCE);
+        StateSnapshotKeyGroupReader keyGroupReader =
+                StateTableByKeyGroupReaders.readerForVersion(
+                        restoredTable, KeyedBackendSerializationProxy.VERSION);
+        DataInputViewStreamWrapper div =
+                new DataInputViewStreamWrapper(new ByteArrayInputStreamWithPos(out.getBuf()));
+        for (int keyGroup = 0; keyGroup < NUMBER_OF_KEY_GROUPS; keyGroup++) {
+            keyGroupReader.readMappingsInKeyGroup(div, keyGroup);
+        }
+
+        Map<Integer, String> restored = new HashMap<>();
+        for (StateEntry<Integer, Integer, String> entry : restoredTable) {
+            restored.put(entry.getKey(), entry.getState());
+        }
+        return restored;
+    }
+
+    private static int keyGroupOf(int key) {
+        return KeyGroupRangeAssignment.assignToKeyGroup(key, NUMBER_OF_KEY_GROUPS);
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap.space;
+
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.runtime.memory.MemoryManager;
+import org.apache.flink.runtime.memory.MemoryManagerBuilder;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for {@link SpaceAllocator} and {@link ChunkMemoryProvider}. */
+public class SpaceAllocatorTest extends TestLogger {
+
+    private static final int CHUNK_SIZE = 4096;
+
+    @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private MemoryManager memoryManager;
+
+    private File spillDirectory;
+
+    @Before
+    public void setup() throws Exception {
+        memoryManager = MemoryManagerBuilder.newBuilder().setMemorySize(1024 * 1024).build();
+        spillDirectory = new File(temporaryFolder.getRoot(), "spill");
+    }
+
+    @After
+    public void shutdown() {
+        memoryManager.shutdown();
+    }
+
+    @Test
+    public void testAllocationsOfSameSizeClassShareChunk() throws Exception {
+        try (SpaceAllocator allocator = createAllocator(CHUNK_SIZE)) {
+            Set<Long> addresses = new HashSet<>();
+            for (int i = 0; i < CHUNK_SIZE / 64; i++) {
+                addresses.add(allocator.allocate(33 + i % 32));
+            }
+            assertEquals(CHUNK_SIZE / 64, addresses.size());
+            assertEquals(1, allocator.getNumberOfChunks());
+
+            // the chunk is full, the next allocation needs another chunk
+            long address = allocator.allocate(64);
+            assertEquals(2, allocator.getNumberOfChunks());
+            assertNotEquals(
+                    SpaceUtils.getChunkIdByAddress(addresses.iterator().next()),
+                    SpaceUtils.getChunkIdByAddress(address));
+        }
+    }
+
+    @Test
+    public void testAllocatedSpaceIsWritable() throws Exception {
+        try (SpaceAllocator allocator = createAllocator(CHUNK_SIZE)) {
+            long first = allocator.allocate(100);
+            long second = allocator.allocate(100);
+            write(allocator, first, 100, (byte) 1);
+            write(allocator, second, 100, (byte) 2);
+            assertRead(allocator, first, 100, (byte) 1);
+            assertRead(allocator, second, 100, (byte) 2);
+
+            long large = allocator.allocate(3 * CHUNK_SIZE + 1);
+            write(allocator, large, 3 * CHUNK_SIZE + 1, (byte) 3);
+            assertRead(allocator, large, 3 * CHUNK_SIZE + 1, (byte) 3);
+            assertRead(allocator, first, 100, (byte) 1);
+        }
+    }
+
+    @Test
+    public void testEmptyChunksAreReleased() throws Exception {
+        try (SpaceAllocator allocator = createAllocator(CHUNK_SIZE)) {
+            long[] addresses = new long[3 * CHUNK_SIZE / 1024];
+            for (int i = 0; i < addresses.length; i++) {
+                addresses[i] = allocator.allocate(1024);
+            }
+            long large = allocator.allocate(2 * CHUNK_SIZE);
+            assertEquals(4, allocator.getNumberOfChunks());
+
+            allocator.free(large);
+            assertEquals(3, allocator.getNumberOfChunks());
+
+            for (long address : addresses) {
+                allocator.free(address);
+            }
+            // one chunk is kept for the size class
+            assertEquals(1, allocator.getNumberOfChunks());
+
+            // freed buckets are reused
+            allocator.allocate(1000);
+            assertEquals(1, allocator.getNumberOfChunks());
+        }
+    }
+
+    @Test
+    public void testChunksBeyondManagedMemoryBudgetAreMemoryMapped() throws Exception {
+        ChunkMemoryProvider memoryProvider =
+                new ChunkMemoryProvider(memoryManager, 2 * CHUNK_SIZE, spillDirectory);
+        try (SpaceAllocator allocator = new SpaceAllocator(memoryProvider, CHUNK_SIZE)) {
+            long first = allocator.allocate(CHUNK_SIZE);
+            long second = allocator.allocate(CHUNK_SIZE);
+            assertEquals(2 * CHUNK_SIZE, memoryProvider.getReservedManagedMemory());
+            assertEquals(0, memoryProvider.getMappedFileMemory());
+            assertEquals(
+                    memoryManager.getMemorySize() - 2 * CHUNK_SIZE,
+                    memoryManager.availableMemory());
+
+            long third = allocator.allocate(CHUNK_SIZE);
+            assertEquals(2 * CHUNK_SIZE, memoryProvider.getReservedManagedMemory());
+            assertEquals(CHUNK_SIZE, memoryProvider.getMappedFileMemory());
+            assertEquals(1, countFiles(spillDirectory));
+
+            write(allocator, third, CHUNK_SIZE, (byte) 7);
+            assertRead(allocator, third, CHUNK_SIZE, (byte) 7);
+
+            // the chunk freed first is kept for reuse, the memory-mapped one is released
+            allocator.free(first);
+            allocator.free(third);
+            assertEquals(0, countFiles(spillDirectory));
+            assertEquals(2 * CHUNK_SIZE, memoryProvider.getReservedManagedMemory());
+
+            allocator.allocate(CHUNK_SIZE);
+            assertEquals(2 * CHUNK_SIZE, memoryProvider.getReservedManagedMemory());
+            assertEquals(0, countFiles(spillDirectory));
+            allocator.free(second);
+        }
+
+        assertEquals(memoryManager.getMemorySize(), memoryManager.availableMemory());
+        assertFalse(spillDirectory.exists());
+    }
+
+    @Test
+    public void testCloseReleasesAllMemory() throws Exception {
+        ChunkMemoryProvider memoryProvider =
+                new ChunkMemoryProvider(memoryManager, CHUNK_SIZE, spillDirectory);
+        SpaceAllocator allocator = new SpaceAllocator(memoryProvider, CHUNK_SIZE);
+        for (int i = 0; i < 10; i++) {
+            allocator.allocate(CHUNK_SIZE / 2);
+        }
+        assertTrue(spillDirectory.exists());
+
+        allocator.close();
+
+        assertEquals(0, allocator.getNumberOfChunks());
+        assertEquals(0, memoryProvider.getReservedManagedMemory());
+        assertEquals(0, memoryProvider.getMappedFileMemory());
+        assertEquals(memoryManager.getMemorySize(), memoryManager.availableMemory());
+        assertFalse(spillDirectory.exists());
+    }
+
+    private SpaceAllocator createAllocator(int chunkSize) {
+        return new SpaceAllocator(
+                new ChunkMemoryProvider(
+                        memoryManager, memoryManager.getMemorySize(), spillDirectory),
+                chunkSize);
+    }
+
+    private static void write(SpaceAllocator allocator, long address, int length, byte value) {
+        Chunk chunk = allocator.getChunkById(SpaceUtils.getChunkIdByAddress(address));
+        int offsetInChunk = SpaceUtils.getChunkOffsetByAddress(address);
+        MemorySegment segment = chunk.getMemorySegment(offsetInChunk);
+        int offset = chunk.getOffsetInSegment(offsetInChunk);
+        for (int i = 0; i < length; i++) {
+            segment.put(offset + i, value);
+        }
+    }
+
+    private static void assertRead(SpaceAllocator allocator, long address, int length, byte value) {
+        Chunk chunk = allocator.getChunkById(SpaceUtils.getChunkIdByAddress(address));
+        int offsetInChunk = SpaceUtils.getChunkOffsetByAddress(address);
+        MemorySegment segment = chunk.getMemorySegment(offsetInChunk);
+        int offset = chunk.getOffsetInSegment(offsetInChunk);
+        for (int i = 0; i < length; i++) {
+            assertEquals(value, segment.get(offset + i));
+        }
+    }
+
+    private static int countFiles(File directory) {
+        String[] files = directory.list();
+        return files == null ? 0 : files.length;
+    }
+}
@@ -159,6 +159,18 @@ public abstract class AbstractRocksDBState<K, N, V> implements InternalKvState<K
         return dataOutputView.getCopyOfBuffer();
     }
 
+    /**
+     * Serializes the given key with its key-group and the current namespace into a composite
+     * RocksDB key, using the given builder instead of the shared one so that the current key of the
+     * backend stays untouched.
+     */
+    byte[] serializeKeyWithGroupAndCurrentNamespace(
+            K key, SerializedCompositeKeyBuilder<K> keyBuilder) {
+        keyBuilder.setKeyAndKeyGroup(
+                key, KeyGroupRangeAssignment.assignToKeyGroup(key, backend.getNumberOfKeyGroups()));
+        return keyBuilder.buildCompositeKeyNamespace(currentNamespace, namespaceSerializer);
+    }
+
     byte[] serializeCurrentKeyWithGroupAndNamespace() {
         return sharedKeyNamespaceSerializer.buildCompositeKeyNamespace(
                 currentNamespace, namespaceSerializer);
@@ -75,6 +75,7 @@ import java.util.UUID;
 import static org.apache.flink.configuration.description.TextElement.text;
 import static org.apache.flink.contrib.streaming.state.RocksDBConfigurableOptions.WRITE_BATCH_SIZE;
 import static org.apache.flink.contrib.streaming.state.RocksDBOptions.CHECKPOINT_TRANSFER_THREAD_NUM;
+import static org.apache.flink.contrib.streaming.state.RocksDBOptions.STATE_CACHE_MAX_ENTRIES;
 import static org.apache.flink.contrib.streaming.state.RocksDBOptions.TIMER_SERVICE_FACTORY;
 import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkNotNull;
@@ -108,6 +109,8 @@ public class EmbeddedRocksDBStateBackend extends AbstractManagedMemoryStateBacke
 
     private static final long UNDEFINED_WRITE_BATCH_SIZE = -1;
 
+    private static final int UNDEFINED_STATE_CACHE_MAX_ENTRIES = -1;
+
     // ------------------------------------------------------------------------
 
     // -- configuration values, set in the application / configuration
@@ -160,6 +163,15 @@ public class EmbeddedRocksDBStateBackend extends AbstractManagedMemoryStateBacke
      */
     private long writeBatchSize;
 
+    /** Max number of values cached in front of RocksDB per keyed backend, 0 disables the cache. */
+    private int stateCacheMaxEntries;
+
+    /**
+     * Whether the backends of a TaskManager share the upload threads and deduplicate uploads of
+     * identical sst files.
+     */
+    private TernaryBoolean checkpointTransferDeduplication;
+
     // ------------------------------------------------------------------------
 
     /** Creates a new {@code EmbeddedRocksDBStateBackend} for storing local state. */
@@ -187,6 +199,8 @@ public class EmbeddedRocksDBStateBackend extends AbstractManagedMemoryStateBacke
         this.defaultMetricOptions = new RocksDBNativeMetricOptions();
         this.memoryConfiguration = new RocksDBMemoryConfiguration();
         this.writeBatchSize = UNDEFINED_WRITE_BATCH_SIZE;
+        this.stateCacheMaxEntries = UNDEFINED_STATE_CACHE_MAX_ENTRIES;
+        this.checkpointTransferDeduplication = TernaryBoolean.UNDEFINED;
     }
 
     /**
@@ -215,6 +229,16 @@ public class EmbeddedRocksDBStateBackend extends AbstractManagedMemoryStateBacke
             this.writeBatchSize = original.writeBatchSize;
         }
 
+        if (original.stateCacheMaxEntries == UNDEFINED_STATE_CACHE_MAX_ENTRIES) {
+            this.stateCacheMaxEntries = config.get(STATE_CACHE_MAX_ENTRIES);
+        } else {
+            this.stateCacheMaxEntries = original.stateCacheMaxEntries;
+        }
+
+        this.checkpointTransferDeduplication =
+                original.checkpointTransferDeduplication.resolveUndefined(
+                        config.get(RocksDBOptions.CHECKPOINT_TRANSFER_DEDUPLICATION));
+
         this.memoryConfiguration =
                 RocksDBMemoryConfiguration.fromOtherAndConfiguration(
                         original.memoryConfiguration, config);
@@ -458,7 +482,13 @@ public class EmbeddedRocksDBStateBackend extends AbstractManagedMemoryStateBacke
                         .setNumberOfTransferingThreads(getNumberOfTransferThreads())
                         .setNativeMetricOptions(
                                 resourceContainer.getMemoryWatcherOptions(defaultMetricOptions))
-                        .setWriteBatchSize(getWriteBatchSize());
+                        .setWriteBatchSize(getWriteBatchSize())
+                        .setStateCacheMaxEntries(getStateCacheMaxEntries())
+                        .setSharedStateUploads(
+                                isCheckpointTransferDeduplicationEnabled()
+                                        ? env.getTaskStateManager().getSharedStateUploads()
+                                        : null,
+                                jobID);
         return builder.build();
     }
 
@@ -778,6 +808,44 @@ public class EmbeddedRocksDBStateBackend extends AbstractManagedMemoryStateBacke
         this.writeBatchSize = writeBatchSize;
     }
 
+    /** Gets the max number of values cached in front of RocksDB per keyed state backend. */
+    public int getStateCacheMaxEntries() {
+        return stateCacheMaxEntries == UNDEFINED_STATE_CACHE_MAX_ENTRIES
+                ? STATE_CACHE_MAX_ENTRIES.defaultValue()
+                : stateCacheMaxEntries;
+    }
+
+    /**
+     * Sets the max number of deserialized values of value and map states cached in front of RocksDB
+     * per keyed state backend, 0 disables the cache.
+     *
+     * @param stateCacheMaxEntries The max number of cached values.
+     */
+    public void setStateCacheMaxEntries(int stateCacheMaxEntries) {
+        checkArgument(stateCacheMaxEntries >= 0, "State cache max entries have to be no negative.");
+        this.stateCacheMaxEntries = stateCacheMaxEntries;
+    }
+
+    /**
+     * Gets whether the backends of a TaskManager share the upload threads and deduplicate uploads
+     * of identical sst files within a checkpoint.
+     */
+    public boolean isCheckpointTransferDeduplicationEnabled() {
+        return checkpointTransferDeduplication.getOrDefault(
+                RocksDBOptions.CHECKPOINT_TRANSFER_DEDUPLICATION.defaultValue());
+    }
+
+    /**
+     * Sets whether the backends of a TaskManager share the upload threads and deduplicate uploads
+     * of identical sst files within a checkpoint.
+     *
+     * @param checkpointTransferDeduplication True if uploads are deduplicated.
+     */
+    public void setCheckpointTransferDeduplication(boolean checkpointTransferDeduplication) {
+        this.checkpointTransferDeduplication =
+                TernaryBoolean.fromBoolean(checkpointTransferDeduplication);
+    }
+
     // ------------------------------------------------------------------------
     //  utilities
     // ------------------------------------------------------------------------
@@ -808,6 +876,10 @@ public class EmbeddedRocksDBStateBackend extends AbstractManagedMemoryStateBacke
                 + numberOfTransferThreads
                 + ", writeBatchSize="
                 + writeBatchSize
+                + ", stateCacheMaxEntries="
+                + stateCacheMaxEntries
+                + ", checkpointTransferDeduplication="
+                + checkpointTransferDeduplication
                 + '}';
     }
 
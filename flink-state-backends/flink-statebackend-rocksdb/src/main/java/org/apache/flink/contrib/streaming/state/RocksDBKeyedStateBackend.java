@@ -80,6 +80,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import java.io.File;
 import java.io.IOException;
@@ -228,6 +229,9 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 
     private final RocksDbTtlCompactFiltersManager ttlCompactFiltersManager;
 
+    /** Cache of deserialized value and map state values, {@code null} if caching is disabled. */
+    @Nullable private final RocksDBStateCache stateCache;
+
     public RocksDBKeyedStateBackend(
             ClassLoader userCodeClassLoader,
             File instanceBasePath,
@@ -253,7 +257,8 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
             PriorityQueueSetFactory priorityQueueFactory,
             RocksDbTtlCompactFiltersManager ttlCompactFiltersManager,
             InternalKeyContext<K> keyContext,
-            @Nonnegative long writeBatchSize) {
+            @Nonnegative long writeBatchSize,
+            @Nullable RocksDBStateCache stateCache) {
 
         super(
                 kvStateRegistry,
@@ -289,6 +294,7 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
         this.nativeMetricMonitor = nativeMetricMonitor;
         this.sharedRocksKeyBuilder = sharedRocksKeyBuilder;
         this.priorityQueueFactory = priorityQueueFactory;
+        this.stateCache = stateCache;
         if (priorityQueueFactory instanceof HeapPriorityQueueSetFactory) {
             this.heapPriorityQueuesManager =
                     new HeapPriorityQueuesManager(
@@ -304,6 +310,7 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
     @SuppressWarnings("unchecked")
     @Override
     public <N> Stream<K> getKeys(String state, N namespace) {
+        flushStateCache();
         RocksDbKvStateInfo columnInfo = kvStateInformation.get(state);
         if (columnInfo == null
                 || !(columnInfo.metaInfo instanceof RegisteredKeyValueStateBackendMetaInfo)) {
@@ -351,6 +358,7 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 
     @Override
     public <N> Stream<Tuple2<K, N>> getKeysAndNamespaces(String state) {
+        flushStateCache();
         RocksDbKvStateInfo columnInfo = kvStateInformation.get(state);
         if (columnInfo == null
                 || !(columnInfo.metaInfo instanceof RegisteredKeyValueStateBackendMetaInfo)) {
@@ -510,6 +518,27 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
         return readOptions;
     }
 
+    /**
+     * Returns the cache to be used by a value or map state of the given descriptor, or {@code null}
+     * if the state must not be cached. Queryable states are never cached, because they are read
+     * from RocksDB by other threads.
+     */
+    @Nullable
+    RocksDBStateCache getStateCache(StateDescriptor<?, ?> stateDesc) {
+        return stateDesc.isQueryable() ? null : stateCache;
+    }
+
+    /** Writes the values which are only held by the state cache to RocksDB. */
+    private void flushStateCache() {
+        if (stateCache != null) {
+            try {
+                stateCache.flush();
+            } catch (IOException | RocksDBException e) {
+                throw new FlinkRuntimeException("Error while flushing the state cache.", e);
+            }
+        }
+    }
+
     SerializedCompositeKeyBuilder<K> getSharedRocksKeyBuilder() {
         return sharedRocksKeyBuilder;
     }
@@ -541,6 +570,7 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
             throws Exception {
 
         // flush everything into db before taking a snapshot
+        flushStateCache();
         writeBatchWrapper.flush();
 
         return new SnapshotStrategyRunner<>(
@@ -556,6 +586,7 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
     public SavepointResources<K> savepoint() throws Exception {
 
         // flush everything into db before taking a snapshot
+        flushStateCache();
         writeBatchWrapper.flush();
 
         Map<String, HeapPriorityQueueSnapshotRestoreWrapper<?>> registeredPQStates;
@@ -833,6 +864,11 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
                             stateDesc.getClass(), this.getClass());
             throw new FlinkRuntimeException(message);
         }
+        if (stateCache != null) {
+            // a re-registered state may migrate its values or change its serializer, so cached
+            // values of the previous state object must neither be read nor written back later
+            stateCache.flushAndClear();
+        }
         Tuple2<ColumnFamilyHandle, RegisteredKeyValueStateBackendMetaInfo<N, SV>> registerResult =
                 tryRegisterKvStateInformation(
                         stateDesc, namespaceSerializer, snapshotTransformFactory);
@@ -847,6 +883,7 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
     @VisibleForTesting
     @Override
     public int numKeyValueStateEntries() {
+        flushStateCache();
         int count = 0;
 
         for (RocksDbKvStateInfo metaInfo : kvStateInformation.values()) {
@@ -20,6 +20,7 @@ package org.apache.flink.contrib.streaming.state;
 
 import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.JobID;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.contrib.streaming.state.restore.RocksDBFullRestoreOperation;
 import org.apache.flink.contrib.streaming.state.restore.RocksDBHeapTimersFullRestoreOperation;
@@ -43,6 +44,7 @@ import org.apache.flink.runtime.state.KeyedStateHandle;
 import org.apache.flink.runtime.state.LocalRecoveryConfig;
 import org.apache.flink.runtime.state.PriorityQueueSetFactory;
 import org.apache.flink.runtime.state.SerializedCompositeKeyBuilder;
+import org.apache.flink.runtime.state.SharedStateUploads;
 import org.apache.flink.runtime.state.StateHandleID;
 import org.apache.flink.runtime.state.StreamCompressionDecorator;
 import org.apache.flink.runtime.state.heap.HeapPriorityQueueSetFactory;
@@ -62,6 +64,7 @@ import org.rocksdb.DBOptions;
 import org.rocksdb.RocksDB;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import java.io.File;
 import java.io.IOException;
@@ -117,6 +120,9 @@ public class RocksDBKeyedStateBackendBuilder<K> extends AbstractKeyedStateBacken
     private int numberOfTransferingThreads;
     private long writeBatchSize =
             RocksDBConfigurableOptions.WRITE_BATCH_SIZE.defaultValue().getBytes();
+    private int stateCacheMaxEntries = RocksDBOptions.STATE_CACHE_MAX_ENTRIES.defaultValue();
+    @Nullable private SharedStateUploads sharedStateUploads;
+    @Nullable private JobID uploadDeduplicationJobId;
 
     private RocksDB injectedTestDB; // for testing
     private ColumnFamilyHandle injectedDefaultColumnFamilyHandle; // for testing
@@ -242,6 +248,26 @@ public class RocksDBKeyedStateBackendBuilder<K> extends AbstractKeyedStateBacken
         return this;
     }
 
+    RocksDBKeyedStateBackendBuilder<K> setStateCacheMaxEntries(int stateCacheMaxEntries) {
+        checkArgument(stateCacheMaxEntries >= 0, "State cache max entries should be non negative.");
+        this.stateCacheMaxEntries = stateCacheMaxEntries;
+        return this;
+    }
+
+    /**
+     * Sets the TaskManager-wide uploads through which the uploads of identical sst files are
+     * deduplicated among the backends of the given job, or null to not deduplicate uploads.
+     */
+    RocksDBKeyedStateBackendBuilder<K> setSharedStateUploads(
+            @Nullable SharedStateUploads sharedStateUploads, JobID jobId) {
+        Preconditions.checkState(
+                injectRocksDBStateUploader == null,
+                "sharedStateUploads can be set only when injectRocksDBStateUploader is null.");
+        this.sharedStateUploads = sharedStateUploads;
+        this.uploadDeduplicationJobId = Preconditions.checkNotNull(jobId);
+        return this;
+    }
+
     RocksDBKeyedStateBackendBuilder<K> setRocksDBStateUploader(
             RocksDBStateUploader rocksDBStateUploader) {
         Preconditions.checkState(
@@ -396,6 +422,16 @@ public class RocksDBKeyedStateBackendBuilder<K> extends AbstractKeyedStateBacken
         }
         InternalKeyContext<K> keyContext =
                 new InternalKeyContextImpl<>(keyGroupRange, numberOfKeyGroups);
+        RocksDBStateCache stateCache = null;
+        if (stateCacheMaxEntries > 0) {
+            stateCache =
+                    new RocksDBStateCache(
+                            db,
+                            optionsContainer.getWriteOptions(),
+                            writeBatchSize,
+                            stateCacheMaxEntries);
+            stateCache.registerMetrics(metricGroup);
+        }
         logger.info("Finished building RocksDB keyed state-backend at {}.", instanceBasePath);
         return new RocksDBKeyedStateBackend<>(
                 this.userCodeClassLoader,
@@ -422,7 +458,8 @@ public class RocksDBKeyedStateBackendBuilder<K> extends AbstractKeyedStateBacken
                 priorityQueueFactory,
                 ttlCompactFiltersManager,
                 keyContext,
-                writeBatchSize);
+                writeBatchSize,
+                stateCache);
     }
 
     private RocksDBRestoreOperation getRocksDBRestoreOperation(
@@ -462,7 +499,6 @@ public class RocksDBKeyedStateBackendBuilder<K> extends AbstractKeyedStateBacken
                     metricGroup,
                     restoreStateHandles,
                     ttlCompactFiltersManager,
-                    writeBatchSize,
                     optionsContainer.getWriteBufferManagerCapacity());
         } else if (priorityQueueStateType
                 == EmbeddedRocksDBStateBackend.PriorityQueueStateType.HEAP) {
@@ -514,9 +550,14 @@ public class RocksDBKeyedStateBackendBuilder<K> extends AbstractKeyedStateBacken
         RocksDBSnapshotStrategyBase<K, ?> checkpointSnapshotStrategy;
         if (enableIncrementalCheckpointing) {
             RocksDBStateUploader stateUploader =
-                    injectRocksDBStateUploader == null
-                            ? new RocksDBStateUploader(numberOfTransferingThreads)
-                            : injectRocksDBStateUploader;
+                    injectRocksDBStateUploader != null
+                            ? injectRocksDBStateUploader
+                            : sharedStateUploads != null
+                                    ? new RocksDBStateUploader(
+                                            numberOfTransferingThreads,
+                                            sharedStateUploads,
+                                            uploadDeduplicationJobId)
+                                    : new RocksDBStateUploader(numberOfTransferingThreads);
             checkpointSnapshotStrategy =
                     new RocksIncrementalSnapshotStrategy<>(
                             db,
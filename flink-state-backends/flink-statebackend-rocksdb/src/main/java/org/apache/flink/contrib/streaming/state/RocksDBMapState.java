@@ -49,7 +49,11 @@ import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import static org.apache.flink.util.Preconditions.checkArgument;
@@ -72,6 +76,9 @@ class RocksDBMapState<K, N, UK, UV> extends AbstractRocksDBState<K, N, Map<UK, U
 
     private final TypeSerializer<UV> userValueSerializer;
 
+    /** Cache of deserialized user values, {@code null} if this state is not cached. */
+    @Nullable private final RocksDBStateCache stateCache;
+
     /**
      * Creates a new {@code RocksDBMapState}.
      *
@@ -80,13 +87,15 @@ class RocksDBMapState<K, N, UK, UV> extends AbstractRocksDBState<K, N, Map<UK, U
      * @param valueSerializer The serializer for the state.
      * @param defaultValue The default value for the state.
      * @param backend The backend for which this state is bind to.
+     * @param stateCache The cache of deserialized user values, or null if the state is not cached.
      */
     private RocksDBMapState(
             ColumnFamilyHandle columnFamily,
             TypeSerializer<N> namespaceSerializer,
             TypeSerializer<Map<UK, UV>> valueSerializer,
             Map<UK, UV> defaultValue,
-            RocksDBKeyedStateBackend<K> backend) {
+            RocksDBKeyedStateBackend<K> backend,
+            @Nullable RocksDBStateCache stateCache) {
 
         super(columnFamily, namespaceSerializer, valueSerializer, defaultValue, backend);
 
@@ -96,6 +105,7 @@ class RocksDBMapState<K, N, UK, UV> extends AbstractRocksDBState<K, N, Map<UK, U
         MapSerializer<UK, UV> castedMapSerializer = (MapSerializer<UK, UV>) valueSerializer;
         this.userKeySerializer = castedMapSerializer.getKeySerializer();
         this.userValueSerializer = castedMapSerializer.getValueSerializer();
+        this.stateCache = stateCache;
     }
 
     @Override
@@ -121,11 +131,78 @@ class RocksDBMapState<K, N, UK, UV> extends AbstractRocksDBState<K, N, Map<UK, U
     public UV get(UK userKey) throws IOException, RocksDBException {
         byte[] rawKeyBytes =
                 serializeCurrentKeyWithGroupAndNamespacePlusUserKey(userKey, userKeySerializer);
+
+        if (stateCache != null) {
+            RocksDBStateCache.CacheEntry entry = stateCache.get(columnFamily, rawKeyBytes);
+            if (entry != null) {
+                return copyUserValue(entry.getValue());
+            }
+        }
+
         byte[] rawValueBytes = backend.db.get(columnFamily, rawKeyBytes);
 
-        return (rawValueBytes == null
-                ? null
-                : deserializeUserValue(dataInputView, rawValueBytes, userValueSerializer));
+        if (rawValueBytes == null) {
+            if (stateCache != null) {
+                stateCache.putAbsent(columnFamily, rawKeyBytes);
+            }
+            return null;
+        }
+        UV userValue = deserializeUserValue(dataInputView, rawValueBytes, userValueSerializer);
+        if (stateCache != null) {
+            stateCache.putPresent(columnFamily, rawKeyBytes, userValue);
+            return copyUserValue(userValue);
+        }
+        return userValue;
+    }
+
+    @Override
+    public Map<UK, UV> getAll(Collection<UK> userKeys) throws IOException, RocksDBException {
+        if (userKeys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<UK, UV> result = new HashMap<>(userKeys.size());
+        List<UK> userKeyList = new ArrayList<>(userKeys.size());
+        List<byte[]> rawKeys = new ArrayList<>(userKeys.size());
+        for (UK userKey : userKeys) {
+            byte[] rawKeyBytes =
+                    serializeCurrentKeyWithGroupAndNamespacePlusUserKey(userKey, userKeySerializer);
+            RocksDBStateCache.CacheEntry entry =
+                    stateCache != null ? stateCache.get(columnFamily, rawKeyBytes) : null;
+            if (entry == null) {
+                userKeyList.add(userKey);
+                rawKeys.add(rawKeyBytes);
+            } else if (entry.exists() && entry.getValue() != null) {
+                result.put(userKey, copyUserValue(entry.getValue()));
+            }
+        }
+
+        if (rawKeys.isEmpty()) {
+            return result;
+        }
+
+        List<byte[]> rawValues =
+                backend.db.multiGetAsList(
+                        Collections.nCopies(rawKeys.size(), columnFamily), rawKeys);
+
+        for (int i = 0; i < userKeyList.size(); i++) {
+            byte[] rawValueBytes = rawValues.get(i);
+            if (rawValueBytes != null) {
+                UV userValue =
+                        deserializeUserValue(dataInputView, rawValueBytes, userValueSerializer);
+                if (stateCache != null) {
+                    stateCache.putPresent(columnFamily, rawKeys.get(i), userValue);
+                    userValue = copyUserValue(userValue);
+                }
+                // null values are omitted like absent keys, see MapState#getAll
+                if (userValue != null) {
+                    result.put(userKeyList.get(i), userValue);
+                }
+            } else if (stateCache != null) {
+                stateCache.putAbsent(columnFamily, rawKeys.get(i));
+            }
+        }
+        return result;
     }
 
     @Override
@@ -136,6 +213,10 @@ class RocksDBMapState<K, N, UK, UV> extends AbstractRocksDBState<K, N, Map<UK, U
         byte[] rawValueBytes = serializeValueNullSensitive(userValue, userValueSerializer);
 
         backend.db.put(columnFamily, writeOptions, rawKeyBytes, rawValueBytes);
+
+        if (stateCache != null) {
+            stateCache.putPresent(columnFamily, rawKeyBytes, copyUserValue(userValue));
+        }
     }
 
     @Override
@@ -154,6 +235,9 @@ class RocksDBMapState<K, N, UK, UV> extends AbstractRocksDBState<K, N, Map<UK, U
                 byte[] rawValueBytes =
                         serializeValueNullSensitive(entry.getValue(), userValueSerializer);
                 writeBatchWrapper.put(columnFamily, rawKeyBytes, rawValueBytes);
+                if (stateCache != null) {
+                    stateCache.invalidate(columnFamily, rawKeyBytes);
+                }
             }
         }
     }
@@ -164,17 +248,37 @@ class RocksDBMapState<K, N, UK, UV> extends AbstractRocksDBState<K, N, Map<UK, U
                 serializeCurrentKeyWithGroupAndNamespacePlusUserKey(userKey, userKeySerializer);
 
         backend.db.delete(columnFamily, writeOptions, rawKeyBytes);
+
+        if (stateCache != null) {
+            stateCache.putAbsent(columnFamily, rawKeyBytes);
+        }
     }
 
     @Override
     public boolean contains(UK userKey) throws IOException, RocksDBException {
         byte[] rawKeyBytes =
                 serializeCurrentKeyWithGroupAndNamespacePlusUserKey(userKey, userKeySerializer);
+
+        if (stateCache != null) {
+            RocksDBStateCache.CacheEntry entry = stateCache.get(columnFamily, rawKeyBytes);
+            if (entry != null) {
+                return entry.exists();
+            }
+        }
+
         byte[] rawValueBytes = backend.db.get(columnFamily, rawKeyBytes);
 
+        if (rawValueBytes == null && stateCache != null) {
+            stateCache.putAbsent(columnFamily, rawKeyBytes);
+        }
         return (rawValueBytes != null);
     }
 
+    /** Copies a user value handed out by or to the cache, user values may be mutable. */
+    private UV copyUserValue(@Nullable UV userValue) {
+        return userValue == null ? null : userValueSerializer.copy(userValue);
+    }
+
     @Override
     public Iterable<Map.Entry<UK, UV>> entries() {
         return this::iterator;
@@ -295,6 +399,9 @@ class RocksDBMapState<K, N, UK, UV> extends AbstractRocksDBState<K, N, Map<UK, U
                     byte[] keyBytes = iterator.key();
                     if (startWithKeyPrefix(keyPrefixBytes, keyBytes)) {
                         rocksDBWriteBatchWrapper.remove(columnFamily, keyBytes);
+                        if (stateCache != null) {
+                            stateCache.invalidate(columnFamily, keyBytes);
+                        }
                     } else {
                         break;
                     }
@@ -471,6 +578,9 @@ class RocksDBMapState<K, N, UK, UV> extends AbstractRocksDBState<K, N, Map<UK, U
 
             try {
                 db.delete(columnFamily, writeOptions, rawKeyBytes);
+                if (stateCache != null) {
+                    stateCache.invalidate(columnFamily, rawKeyBytes);
+                }
             } catch (RocksDBException e) {
                 throw new FlinkRuntimeException("Error while removing data from RocksDB.", e);
             }
@@ -523,6 +633,9 @@ class RocksDBMapState<K, N, UK, UV> extends AbstractRocksDBState<K, N, Map<UK, U
                 rawValueBytes = serializeValueNullSensitive(value, valueSerializer);
 
                 db.put(columnFamily, writeOptions, rawKeyBytes, rawValueBytes);
+                if (stateCache != null) {
+                    stateCache.invalidate(columnFamily, rawKeyBytes);
+                }
             } catch (IOException | RocksDBException e) {
                 throw new FlinkRuntimeException("Error while putting data into RocksDB.", e);
             }
@@ -693,7 +806,8 @@ class RocksDBMapState<K, N, UK, UV> extends AbstractRocksDBState<K, N, Map<UK, U
                         registerResult.f1.getNamespaceSerializer(),
                         (TypeSerializer<Map<UK, UV>>) registerResult.f1.getStateSerializer(),
                         (Map<UK, UV>) stateDesc.getDefaultValue(),
-                        backend);
+                        backend,
+                        backend.getStateCache(stateDesc));
     }
 
     /**
@@ -63,6 +63,18 @@ public class RocksDBOptions {
                     .withDescription(
                             "The number of threads (per stateful operator) used to transfer (download and upload) files in RocksDBStateBackend.");
 
+    /**
+     * Whether the RocksDB state backends on a TaskManager share the upload threads and deduplicate
+     * uploads of identical sst files within a checkpoint.
+     */
+    @Documentation.Section(Documentation.Sections.EXPERT_ROCKSDB)
+    public static final ConfigOption<Boolean> CHECKPOINT_TRANSFER_DEDUPLICATION =
+            ConfigOptions.key("state.backend.rocksdb.checkpoint.transfer.deduplication")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription(
+                            "If true, the incremental checkpoints of all RocksDB state backends of a job on a TaskManager upload their files with one shared pool of transfer threads, and new sst files with identical content, as they occur after rescaling when several subtasks restore from the same state, are uploaded only once per checkpoint and referenced by all of these subtasks. Files are matched by their size and trailing bytes, and the content of a file is digested while it is uploaded, so only a new sst file which matches a file uploaded by another subtask is read once more to verify that its content is identical.");
+
     /** The predefined settings for RocksDB DBOptions and ColumnFamilyOptions by Flink community. */
     @Documentation.Section(Documentation.Sections.EXPERT_ROCKSDB)
     public static final ConfigOption<String> PREDEFINED_OPTIONS =
@@ -91,6 +103,19 @@ public class RocksDBOptions {
                                             + "The default options factory is %s, and it would read the configured options which provided in 'RocksDBConfigurableOptions'.",
                                     DefaultConfigurableOptionsFactory.class.getName()));
 
+    /** The maximum number of deserialized values cached in front of RocksDB per keyed backend. */
+    @Documentation.Section(Documentation.Sections.EXPERT_ROCKSDB)
+    public static final ConfigOption<Integer> STATE_CACHE_MAX_ENTRIES =
+            ConfigOptions.key("state.backend.rocksdb.state-cache.max-entries")
+                    .intType()
+                    .defaultValue(0)
+                    .withDescription(
+                            "The maximum number of deserialized values of value and map states which each "
+                                    + "keyed RocksDB state backend caches in front of RocksDB. Hot keys are then served "
+                                    + "without accessing RocksDB, and updates of value states are written to RocksDB "
+                                    + "only when they are evicted from the cache or a checkpoint is taken. "
+                                    + "Queryable states are not cached. A value of 0 disables the cache.");
+
     @Documentation.Section(Documentation.Sections.STATE_BACKEND_ROCKSDB)
     public static final ConfigOption<Boolean> USE_MANAGED_MEMORY =
             ConfigOptions.key("state.backend.rocksdb.memory.managed")
@@ -556,6 +556,39 @@ public class RocksDBStateBackend extends AbstractManagedMemoryStateBackend
         rocksDBStateBackend.setWriteBatchSize(writeBatchSize);
     }
 
+    /** Gets the max number of values cached in front of RocksDB per keyed state backend. */
+    public int getStateCacheMaxEntries() {
+        return rocksDBStateBackend.getStateCacheMaxEntries();
+    }
+
+    /**
+     * Sets the max number of deserialized values of value and map states cached in front of RocksDB
+     * per keyed state backend, 0 disables the cache.
+     *
+     * @param stateCacheMaxEntries The max number of cached values.
+     */
+    public void setStateCacheMaxEntries(int stateCacheMaxEntries) {
+        rocksDBStateBackend.setStateCacheMaxEntries(stateCacheMaxEntries);
+    }
+
+    /**
+     * Gets whether the backends of a TaskManager share the upload threads and deduplicate uploads
+     * of identical sst files within a checkpoint.
+     */
+    public boolean isCheckpointTransferDeduplicationEnabled() {
+        return rocksDBStateBackend.isCheckpointTransferDeduplicationEnabled();
+    }
+
+    /**
+     * Sets whether the backends of a TaskManager share the upload threads and deduplicate uploads
+     * of identical sst files within a checkpoint.
+     *
+     * @param checkpointTransferDeduplication True if uploads are deduplicated.
+     */
+    public void setCheckpointTransferDeduplication(boolean checkpointTransferDeduplication) {
+        rocksDBStateBackend.setCheckpointTransferDeduplication(checkpointTransferDeduplication);
+    }
+
     // ------------------------------------------------------------------------
     //  utilities
     // ------------------------------------------------------------------------
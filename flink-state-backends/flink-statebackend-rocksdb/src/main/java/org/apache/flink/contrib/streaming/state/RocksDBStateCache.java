@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.metrics.Gauge;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.util.Preconditions;
+
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteOptions;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size-bounded read-through cache of deserialized values of {@link RocksDBValueState} and {@link
+ * RocksDBMapState}, shared by all states of one {@link RocksDBKeyedStateBackend}. Entries are keyed
+ * by the column family and the serialized RocksDB key, so that a cached lookup skips the JNI call
+ * and the deserialization of the value. Keys which do not exist in RocksDB are cached as well.
+ *
+ * <p>Updates of value states are written back lazily: a dirty entry is written to RocksDB when it
+ * is evicted or when the cache is {@link #flush() flushed}, which the backend does before taking a
+ * snapshot and before reading the column families directly, e.g. when iterating the keys of a
+ * state. Map states write through and only use the cache for point lookups.
+ *
+ * <p>The least recently used entry is evicted first. Like the states, the cache is only accessed by
+ * the task thread and is not thread safe.
+ */
+final class RocksDBStateCache {
+
+    private final RocksDB db;
+
+    private final WriteOptions writeOptions;
+
+    private final long writeBatchSize;
+
+    private final int maxEntries;
+
+    /** The cached entries in access order, the least recently used entry comes first. */
+    private final LinkedHashMap<CacheKey, CacheEntry> entries;
+
+    /** Buffer to serialize dirty values into when they are written back. */
+    private final DataOutputSerializer writeBackOutputView = new DataOutputSerializer(128);
+
+    private long hitCount;
+
+    private long missCount;
+
+    RocksDBStateCache(
+            @Nonnull RocksDB db,
+            @Nonnull WriteOptions writeOptions,
+            @Nonnegative long writeBatchSize,
+            int maxEntries) {
+        Preconditions.checkArgument(maxEntries > 0, "The cache must hold at least one entry.");
+        this.db = db;
+        this.writeOptions = writeOptions;
+        this.writeBatchSize = writeBatchSize;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /** Returns the cached entry of the given key, or {@code null} if the key is not cached. */
+    @Nullable
+    CacheEntry get(ColumnFamilyHandle columnFamily, byte[] rawKeyBytes) {
+        CacheEntry entry = entries.get(new CacheKey(columnFamily, rawKeyBytes));
+        if (entry == null) {
+            missCount++;
+        } else {
+            hitCount++;
+        }
+        return entry;
+    }
+
+    /** Caches a value which is stored in RocksDB as it is. */
+    void putPresent(ColumnFamilyHandle columnFamily, byte[] rawKeyBytes, @Nullable Object value)
+            throws IOException, RocksDBException {
+        put(new CacheKey(columnFamily, rawKeyBytes), new CacheEntry(value, true, null));
+    }
+
+    /** Caches that the given key does not exist in RocksDB. */
+    void putAbsent(ColumnFamilyHandle columnFamily, byte[] rawKeyBytes)
+            throws IOException, RocksDBException {
+        put(new CacheKey(columnFamily, rawKeyBytes), new CacheEntry(null, false, null));
+    }
+
+    /**
+     * Caches a value which is not yet written to RocksDB. It is written with the given serializer
+     * once the entry is evicted or the cache is flushed.
+     */
+    <T> void putDirty(
+            ColumnFamilyHandle columnFamily,
+            byte[] rawKeyBytes,
+            @Nonnull T value,
+            TypeSerializer<T> serializer)
+            throws IOException, RocksDBException {
+        put(new CacheKey(columnFamily, rawKeyBytes), new CacheEntry(value, true, serializer));
+    }
+
+    /** Removes the given key from the cache, it must not be dirty. */
+    void invalidate(ColumnFamilyHandle columnFamily, byte[] rawKeyBytes) {
+        CacheEntry entry = entries.remove(new CacheKey(columnFamily, rawKeyBytes));
+        Preconditions.checkState(entry == null || !entry.isDirty(), "Invalidated a dirty entry.");
+    }
+
+    private void put(CacheKey key, CacheEntry entry) throws IOException, RocksDBException {
+        entries.put(key, entry);
+        if (entries.size() > maxEntries) {
+            Iterator<Map.Entry<CacheKey, CacheEntry>> iterator = entries.entrySet().iterator();
+            Map.Entry<CacheKey, CacheEntry> eldest = iterator.next();
+            iterator.remove();
+            if (eldest.getValue().isDirty()) {
+                db.put(
+                        eldest.getKey().columnFamily,
+                        writeOptions,
+                        eldest.getKey().rawKeyBytes,
+                        serializeDirtyValue(eldest.getValue()));
+            }
+        }
+    }
+
+    /** Writes all dirty entries to RocksDB, the entries stay cached. */
+    void flush() throws IOException, RocksDBException {
+        try (RocksDBWriteBatchWrapper writeBatchWrapper =
+                new RocksDBWriteBatchWrapper(db, writeOptions, writeBatchSize)) {
+            for (Map.Entry<CacheKey, CacheEntry> cached : entries.entrySet()) {
+                CacheEntry entry = cached.getValue();
+                if (entry.isDirty()) {
+                    writeBatchWrapper.put(
+                            cached.getKey().columnFamily,
+                            cached.getKey().rawKeyBytes,
+                            serializeDirtyValue(entry));
+                    entry.serializer = null;
+                }
+            }
+        }
+    }
+
+    /** Flushes and drops all entries. */
+    void flushAndClear() throws IOException, RocksDBException {
+        flush();
+        entries.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] serializeDirtyValue(CacheEntry entry) throws IOException {
+        writeBackOutputView.clear();
+        ((TypeSerializer<Object>) entry.serializer).serialize(entry.value, writeBackOutputView);
+        return writeBackOutputView.getCopyOfBuffer();
+    }
+
+    void registerMetrics(MetricGroup metricGroup) {
+        MetricGroup cacheGroup = metricGroup.addGroup("rocksdbStateCache");
+        cacheGroup.gauge("hitCount", (Gauge<Long>) () -> hitCount);
+        cacheGroup.gauge("missCount", (Gauge<Long>) () -> missCount);
+        cacheGroup.gauge("hitRate", (Gauge<Double>) this::getHitRate);
+        cacheGroup.gauge("size", (Gauge<Integer>) this::size);
+    }
+
+    @VisibleForTesting
+    double getHitRate() {
+        long hits = hitCount;
+        long lookups = hits + missCount;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    @VisibleForTesting
+    int size() {
+        return entries.size();
+    }
+
+    // ------------------------------------------------------------------------
+
+    /** A cached value, or a cached absent key. */
+    static final class CacheEntry {
+
+        @Nullable private final Object value;
+
+        private final boolean exists;
+
+        /** Serializer to write the value back with, {@code null} if the entry is not dirty. */
+        @Nullable private TypeSerializer<?> serializer;
+
+        private CacheEntry(
+                @Nullable Object value, boolean exists, @Nullable TypeSerializer<?> serializer) {
+            this.value = value;
+            this.exists = exists;
+            this.serializer = serializer;
+        }
+
+        /** Returns the cached value, the callers must not modify it. */
+        @SuppressWarnings("unchecked")
+        @Nullable
+        <T> T getValue() {
+            return (T) value;
+        }
+
+        /** Whether the key exists in the state, or does not exist in RocksDB otherwise. */
+        boolean exists() {
+            return exists;
+        }
+
+        private boolean isDirty() {
+            return serializer != null;
+        }
+    }
+
+    /** Column family and serialized key of a cached entry. */
+    private static final class CacheKey {
+
+        private final ColumnFamilyHandle columnFamily;
+
+        private final byte[] rawKeyBytes;
+
+        private final int hash;
+
+        private CacheKey(ColumnFamilyHandle columnFamily, byte[] rawKeyBytes) {
+            this.columnFamily = columnFamily;
+            this.rawKeyBytes = rawKeyBytes;
+            this.hash = 31 * System.identityHashCode(columnFamily) + Arrays.hashCode(rawKeyBytes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            CacheKey that = (CacheKey) o;
+            return columnFamily == that.columnFamily
+                    && Arrays.equals(rawKeyBytes, that.rawKeyBytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
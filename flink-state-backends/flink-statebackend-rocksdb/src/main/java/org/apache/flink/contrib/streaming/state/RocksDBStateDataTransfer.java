@@ -30,6 +30,9 @@ class RocksDBStateDataTransfer implements Closeable {
 
     protected final ExecutorService executorService;
 
+    /** Whether the executor service is owned by this instance and shut down on close. */
+    private final boolean ownsExecutorService;
+
     RocksDBStateDataTransfer(int threadNum) {
         if (threadNum > 1) {
             executorService =
@@ -38,10 +41,19 @@ class RocksDBStateDataTransfer implements Closeable {
         } else {
             executorService = newDirectExecutorService();
         }
+        ownsExecutorService = true;
+    }
+
+    /** Creates a data transfer that runs on the given executor service without owning it. */
+    RocksDBStateDataTransfer(ExecutorService sharedExecutorService) {
+        executorService = sharedExecutorService;
+        ownsExecutorService = false;
     }
 
     @Override
     public void close() {
-        executorService.shutdownNow();
+        if (ownsExecutorService) {
+            executorService.shutdownNow();
+        }
     }
 }
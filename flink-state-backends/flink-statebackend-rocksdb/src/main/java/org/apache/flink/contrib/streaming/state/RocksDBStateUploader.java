@@ -18,35 +18,86 @@
 
 package org.apache.flink.contrib.streaming.state;
 
+import org.apache.flink.api.common.JobID;
 import org.apache.flink.core.fs.CloseableRegistry;
 import org.apache.flink.runtime.state.CheckpointStreamFactory;
 import org.apache.flink.runtime.state.CheckpointedStateScope;
+import org.apache.flink.runtime.state.SharedStateUploads;
 import org.apache.flink.runtime.state.StateHandleID;
 import org.apache.flink.runtime.state.StreamStateHandle;
 import org.apache.flink.util.ExceptionUtils;
 import org.apache.flink.util.FlinkRuntimeException;
 import org.apache.flink.util.IOUtils;
+import org.apache.flink.util.StringUtils;
 import org.apache.flink.util.concurrent.FutureUtils;
 import org.apache.flink.util.function.CheckedSupplier;
+import org.apache.flink.util.function.FunctionUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Supplier;
 
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
 /** Help class for uploading RocksDB state files. */
 public class RocksDBStateUploader extends RocksDBStateDataTransfer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RocksDBStateUploader.class);
+
     private static final int READ_BUFFER_SIZE = 16 * 1024;
 
+    /**
+     * The number of trailing bytes of an sst file which identify it together with its size. The end
+     * of an sst file holds its footer, index and properties, including the unique id of the file.
+     */
+    private static final int FILE_KEY_TAIL_SIZE = 4 * 1024;
+
+    /**
+     * The TaskManager-wide uploads through which uploads of identical files are deduplicated, or
+     * null if this uploader does not deduplicate uploads.
+     */
+    @Nullable private final SharedStateUploads sharedStateUploads;
+
+    /** The job among whose backends uploads are deduplicated. */
+    @Nullable private final JobID jobId;
+
+    private boolean closed;
+
     public RocksDBStateUploader(int numberOfSnapshottingThreads) {
         super(numberOfSnapshottingThreads);
+        this.sharedStateUploads = null;
+        this.jobId = null;
+    }
+
+    /**
+     * Creates an uploader which runs on the upload threads of the given shared uploads, and uploads
+     * shared files with identical content only once per checkpoint among all uploaders of the given
+     * job.
+     */
+    public RocksDBStateUploader(
+            int numberOfSnapshottingThreads, SharedStateUploads sharedStateUploads, JobID jobId) {
+        super(sharedStateUploads.acquireExecutor(numberOfSnapshottingThreads));
+        this.sharedStateUploads = sharedStateUploads;
+        this.jobId = checkNotNull(jobId);
     }
 
     /**
@@ -62,10 +113,109 @@ public class RocksDBStateUploader extends RocksDBStateDataTransfer {
             CloseableRegistry closeableRegistry)
             throws Exception {
 
-        Map<StateHandleID, StreamStateHandle> handles = new HashMap<>();
+        return waitForUploads(
+                createUploadFutures(files, checkpointStreamFactory, closeableRegistry));
+    }
+
+    /**
+     * Starts uploading the files to checkpoint fileSystem without waiting for the uploads to
+     * complete. Files with shared scope may be referenced by several backends and are uploaded only
+     * once per checkpoint if this uploader deduplicates uploads.
+     *
+     * @param checkpointId The id of the checkpoint the files are uploaded for.
+     * @param files The files will be uploaded to checkpoint filesystem.
+     * @param sharedFiles Whether the files are shared state of the checkpoint.
+     * @param checkpointStreamFactory The checkpoint streamFactory used to create outputstream.
+     * @return The uploads of the files, see {@link #waitForUploads(Map)}.
+     */
+    public Map<StateHandleID, CompletableFuture<StreamStateHandle>> uploadFilesToCheckpointFsAsync(
+            long checkpointId,
+            @Nonnull Map<StateHandleID, Path> files,
+            boolean sharedFiles,
+            CheckpointStreamFactory checkpointStreamFactory,
+            CloseableRegistry closeableRegistry) {
+
+        if (!sharedFiles || sharedStateUploads == null) {
+            return createUploadFutures(files, checkpointStreamFactory, closeableRegistry);
+        }
 
         Map<StateHandleID, CompletableFuture<StreamStateHandle>> futures =
-                createUploadFutures(files, checkpointStreamFactory, closeableRegistry);
+                new HashMap<>(files.size());
+        for (Map.Entry<StateHandleID, Path> entry : files.entrySet()) {
+            final Path filePath = entry.getValue();
+            futures.put(
+                    entry.getKey(),
+                    CompletableFuture.supplyAsync(
+                                    CheckedSupplier.unchecked(() -> computeFileKey(filePath)),
+                                    executorService)
+                            .thenCompose(
+                                    fileKey ->
+                                            uploadOrReuse(
+                                                    checkpointId,
+                                                    fileKey,
+                                                    filePath,
+                                                    checkpointStreamFactory,
+                                                    closeableRegistry))
+                            .thenApply(SharedStateUploads.Upload::getHandle));
+        }
+        return futures;
+    }
+
+    /**
+     * Uploads the given file unless another uploader of the job uploads a file with the same key in
+     * the same checkpoint. The content of the first file with a key is digested while it is
+     * uploaded, so it is read only once. Any later file with that key is read once to compare its
+     * digest, and only uploaded if its content differs or the first upload failed.
+     */
+    private CompletableFuture<SharedStateUploads.Upload> uploadOrReuse(
+            long checkpointId,
+            String fileKey,
+            Path filePath,
+            CheckpointStreamFactory checkpointStreamFactory,
+            CloseableRegistry closeableRegistry) {
+        final CompletableFuture<SharedStateUploads.Upload> upload = new CompletableFuture<>();
+        final CompletableFuture<SharedStateUploads.Upload> otherUpload =
+                sharedStateUploads.registerUpload(jobId, checkpointId, fileKey, upload);
+        if (otherUpload == null) {
+            FutureUtils.forward(
+                    CompletableFuture.supplyAsync(
+                            CheckedSupplier.unchecked(
+                                    () ->
+                                            uploadAndDigest(
+                                                    filePath,
+                                                    checkpointStreamFactory,
+                                                    closeableRegistry)),
+                            executorService),
+                    upload);
+            return upload;
+        }
+
+        return otherUpload
+                .handle((other, failure) -> other)
+                .thenApplyAsync(
+                        FunctionUtils.uncheckedFunction(
+                                other ->
+                                        other != null
+                                                        && Arrays.equals(
+                                                                other.getContentDigest(),
+                                                                computeContentDigest(filePath))
+                                                ? other
+                                                : uploadAndDigest(
+                                                        filePath,
+                                                        checkpointStreamFactory,
+                                                        closeableRegistry)),
+                        executorService);
+    }
+
+    /**
+     * Waits for the given uploads to complete.
+     *
+     * @throws Exception Thrown if can not upload all the files.
+     */
+    public static Map<StateHandleID, StreamStateHandle> waitForUploads(
+            Map<StateHandleID, CompletableFuture<StreamStateHandle>> futures) throws Exception {
+
+        Map<StateHandleID, StreamStateHandle> handles = new HashMap<>();
 
         try {
             FutureUtils.waitForAll(futures.values()).get();
@@ -87,6 +237,46 @@ public class RocksDBStateUploader extends RocksDBStateDataTransfer {
         return handles;
     }
 
+    /** Discards the results of the given uploads once they complete. */
+    public static void discardUploads(Collection<CompletableFuture<StreamStateHandle>> futures) {
+        for (CompletableFuture<StreamStateHandle> future : futures) {
+            future.thenAccept(
+                    handle -> {
+                        try {
+                            handle.discardState();
+                        } catch (Exception e) {
+                            LOG.warn("Could not discard uploaded state {}.", handle, e);
+                        }
+                    });
+        }
+    }
+
+    /** Forgets the deduplicated uploads of all checkpoints up to the completed checkpoint. */
+    public void notifyCheckpointComplete(long completedCheckpointId) {
+        if (sharedStateUploads != null) {
+            sharedStateUploads.releaseUploadsUpTo(jobId, completedCheckpointId);
+        }
+    }
+
+    /** Forgets the deduplicated uploads of the aborted checkpoint. */
+    public void notifyCheckpointAborted(long abortedCheckpointId) {
+        if (sharedStateUploads != null) {
+            sharedStateUploads.releaseUploads(jobId, abortedCheckpointId);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        super.close();
+        if (sharedStateUploads != null) {
+            sharedStateUploads.releaseExecutor();
+        }
+    }
+
     private Map<StateHandleID, CompletableFuture<StreamStateHandle>> createUploadFutures(
             Map<StateHandleID, Path> files,
             CheckpointStreamFactory checkpointStreamFactory,
@@ -101,18 +291,39 @@ public class RocksDBStateUploader extends RocksDBStateDataTransfer {
                                     uploadLocalFileToCheckpointFs(
                                             entry.getValue(),
                                             checkpointStreamFactory,
-                                            closeableRegistry));
+                                            closeableRegistry,
+                                            null));
             futures.put(entry.getKey(), CompletableFuture.supplyAsync(supplier, executorService));
         }
 
         return futures;
     }
 
-    private StreamStateHandle uploadLocalFileToCheckpointFs(
+    private SharedStateUploads.Upload uploadAndDigest(
             Path filePath,
             CheckpointStreamFactory checkpointStreamFactory,
             CloseableRegistry closeableRegistry)
             throws IOException {
+        final MessageDigest digest = newContentDigest();
+        final StreamStateHandle handle =
+                uploadLocalFileToCheckpointFs(
+                        filePath, checkpointStreamFactory, closeableRegistry, digest);
+        if (handle == null) {
+            throw new IOException("The upload of " + filePath + " was cancelled.");
+        }
+        return new SharedStateUploads.Upload(handle, digest.digest());
+    }
+
+    /**
+     * Uploads the given file, updating the given digest, if any, with the content of the file while
+     * it is uploaded.
+     */
+    private StreamStateHandle uploadLocalFileToCheckpointFs(
+            Path filePath,
+            CheckpointStreamFactory checkpointStreamFactory,
+            CloseableRegistry closeableRegistry,
+            @Nullable MessageDigest digest)
+            throws IOException {
 
         InputStream inputStream = null;
         CheckpointStreamFactory.CheckpointStateOutputStream outputStream = null;
@@ -136,6 +347,9 @@ public class RocksDBStateUploader extends RocksDBStateDataTransfer {
                 }
 
                 outputStream.write(buffer, 0, numBytes);
+                if (digest != null) {
+                    digest.update(buffer, 0, numBytes);
+                }
             }
 
             StreamStateHandle result = null;
@@ -156,4 +370,47 @@ public class RocksDBStateUploader extends RocksDBStateDataTransfer {
             }
         }
     }
+
+    /**
+     * Computes a key which identifies the given sst file with high probability from its size and
+     * its trailing bytes, without reading the whole file. Files with the same key are compared by
+     * their content digest before an upload is shared.
+     */
+    private static String computeFileKey(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final ByteBuffer tail = ByteBuffer.allocate((int) Math.min(size, FILE_KEY_TAIL_SIZE));
+            long position = size - tail.capacity();
+            while (tail.hasRemaining()) {
+                int numBytes = channel.read(tail, position);
+                if (numBytes == -1) {
+                    throw new IOException("Unexpected end of " + file);
+                }
+                position += numBytes;
+            }
+            final MessageDigest digest = newContentDigest();
+            digest.update(tail.array());
+            return StringUtils.byteToHexString(digest.digest()) + '-' + size;
+        }
+    }
+
+    private static byte[] computeContentDigest(Path file) throws IOException {
+        final MessageDigest digest = newContentDigest();
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            final byte[] buffer = new byte[READ_BUFFER_SIZE];
+            int numBytes;
+            while ((numBytes = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, numBytes);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest newContentDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("Could not create the content digest.", e);
+        }
+    }
 }
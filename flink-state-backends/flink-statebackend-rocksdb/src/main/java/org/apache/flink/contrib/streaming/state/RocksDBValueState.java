@@ -24,13 +24,22 @@ import org.apache.flink.api.common.state.ValueState;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
+import org.apache.flink.runtime.state.SerializedCompositeKeyBuilder;
 import org.apache.flink.runtime.state.internal.InternalValueState;
 import org.apache.flink.util.FlinkRuntimeException;
 
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.RocksDBException;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * {@link ValueState} implementation that stores state in RocksDB.
@@ -42,6 +51,15 @@ import java.io.IOException;
 class RocksDBValueState<K, N, V> extends AbstractRocksDBState<K, N, V>
         implements InternalValueState<K, N, V> {
 
+    /** Cache of deserialized values, {@code null} if this state is not cached. */
+    @Nullable private final RocksDBStateCache stateCache;
+
+    /**
+     * Builder for the composite keys of multi-key lookups, created lazily and reused across lookups
+     * so that the serialization buffer is not reallocated for every key.
+     */
+    private SerializedCompositeKeyBuilder<K> multiGetKeyBuilder;
+
     /**
      * Creates a new {@code RocksDBValueState}.
      *
@@ -50,15 +68,18 @@ class RocksDBValueState<K, N, V> extends AbstractRocksDBState<K, N, V>
      * @param valueSerializer The serializer for the state.
      * @param defaultValue The default value for the state.
      * @param backend The backend for which this state is bind to.
+     * @param stateCache The cache of deserialized values, or null if the state is not cached.
      */
     private RocksDBValueState(
             ColumnFamilyHandle columnFamily,
             TypeSerializer<N> namespaceSerializer,
             TypeSerializer<V> valueSerializer,
             V defaultValue,
-            RocksDBKeyedStateBackend<K> backend) {
+            RocksDBKeyedStateBackend<K> backend,
+            @Nullable RocksDBStateCache stateCache) {
 
         super(columnFamily, namespaceSerializer, valueSerializer, defaultValue, backend);
+        this.stateCache = stateCache;
     }
 
     @Override
@@ -79,14 +100,89 @@ class RocksDBValueState<K, N, V> extends AbstractRocksDBState<K, N, V>
     @Override
     public V value() {
         try {
-            byte[] valueBytes =
-                    backend.db.get(columnFamily, serializeCurrentKeyWithGroupAndNamespace());
+            byte[] rawKeyBytes = serializeCurrentKeyWithGroupAndNamespace();
+
+            if (stateCache != null) {
+                RocksDBStateCache.CacheEntry entry = stateCache.get(columnFamily, rawKeyBytes);
+                if (entry != null) {
+                    return entry.exists()
+                            ? valueSerializer.copy(entry.getValue())
+                            : getDefaultValue();
+                }
+            }
+
+            byte[] valueBytes = backend.db.get(columnFamily, rawKeyBytes);
 
             if (valueBytes == null) {
+                if (stateCache != null) {
+                    stateCache.putAbsent(columnFamily, rawKeyBytes);
+                }
                 return getDefaultValue();
             }
             dataInputView.setBuffer(valueBytes);
-            return valueSerializer.deserialize(dataInputView);
+            V value = valueSerializer.deserialize(dataInputView);
+            if (stateCache != null) {
+                stateCache.putPresent(columnFamily, rawKeyBytes, value);
+                return valueSerializer.copy(value);
+            }
+            return value;
+        } catch (IOException | RocksDBException e) {
+            throw new FlinkRuntimeException("Error while retrieving data from RocksDB.", e);
+        }
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<K> keys) {
+        if (keys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        if (multiGetKeyBuilder == null) {
+            multiGetKeyBuilder =
+                    new SerializedCompositeKeyBuilder<>(
+                            backend.getKeySerializer(), backend.getKeyGroupPrefixBytes(), 32);
+        }
+
+        try {
+            Map<K, V> result = new HashMap<>(keys.size());
+            List<K> keyList = new ArrayList<>(keys.size());
+            List<byte[]> rawKeys = new ArrayList<>(keys.size());
+            for (K key : keys) {
+                byte[] rawKeyBytes =
+                        serializeKeyWithGroupAndCurrentNamespace(key, multiGetKeyBuilder);
+                RocksDBStateCache.CacheEntry entry =
+                        stateCache != null ? stateCache.get(columnFamily, rawKeyBytes) : null;
+                if (entry == null) {
+                    keyList.add(key);
+                    rawKeys.add(rawKeyBytes);
+                } else if (entry.exists()) {
+                    result.put(key, valueSerializer.copy(entry.getValue()));
+                }
+            }
+
+            if (rawKeys.isEmpty()) {
+                return result;
+            }
+
+            List<byte[]> rawValues =
+                    backend.db.multiGetAsList(
+                            Collections.nCopies(rawKeys.size(), columnFamily), rawKeys);
+
+            for (int i = 0; i < keyList.size(); i++) {
+                byte[] valueBytes = rawValues.get(i);
+                if (valueBytes != null) {
+                    dataInputView.setBuffer(valueBytes);
+                    V value = valueSerializer.deserialize(dataInputView);
+                    if (stateCache != null) {
+                        stateCache.putPresent(columnFamily, rawKeys.get(i), value);
+                        value = valueSerializer.copy(value);
+                    }
+                    result.put(keyList.get(i), value);
+                } else if (stateCache != null) {
+                    stateCache.putAbsent(columnFamily, rawKeys.get(i));
+                }
+            }
+            return result;
         } catch (IOException | RocksDBException e) {
             throw new FlinkRuntimeException("Error while retrieving data from RocksDB.", e);
         }
@@ -100,6 +196,15 @@ class RocksDBValueState<K, N, V> extends AbstractRocksDBState<K, N, V>
         }
 
         try {
+            if (stateCache != null) {
+                stateCache.putDirty(
+                        columnFamily,
+                        serializeCurrentKeyWithGroupAndNamespace(),
+                        valueSerializer.copy(value),
+                        valueSerializer);
+                return;
+            }
+
             backend.db.put(
                     columnFamily,
                     writeOptions,
@@ -110,6 +215,22 @@ class RocksDBValueState<K, N, V> extends AbstractRocksDBState<K, N, V>
         }
     }
 
+    @Override
+    public void clear() {
+        if (stateCache == null) {
+            super.clear();
+            return;
+        }
+
+        try {
+            byte[] rawKeyBytes = serializeCurrentKeyWithGroupAndNamespace();
+            backend.db.delete(columnFamily, writeOptions, rawKeyBytes);
+            stateCache.putAbsent(columnFamily, rawKeyBytes);
+        } catch (IOException | RocksDBException e) {
+            throw new FlinkRuntimeException("Error while removing entry from RocksDB", e);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     static <K, N, SV, S extends State, IS extends S> IS create(
             StateDescriptor<S, SV> stateDesc,
@@ -122,6 +243,7 @@ class RocksDBValueState<K, N, V> extends AbstractRocksDBState<K, N, V>
                         registerResult.f1.getNamespaceSerializer(),
                         registerResult.f1.getStateSerializer(),
                         stateDesc.getDefaultValue(),
-                        backend);
+                        backend,
+                        backend.getStateCache(stateDesc));
     }
 }
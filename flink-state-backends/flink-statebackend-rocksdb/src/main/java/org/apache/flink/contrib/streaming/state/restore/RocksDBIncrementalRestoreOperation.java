@@ -25,7 +25,6 @@ import org.apache.flink.contrib.streaming.state.RocksDBKeyedStateBackend.RocksDb
 import org.apache.flink.contrib.streaming.state.RocksDBNativeMetricOptions;
 import org.apache.flink.contrib.streaming.state.RocksDBOperationUtils;
 import org.apache.flink.contrib.streaming.state.RocksDBStateDownloader;
-import org.apache.flink.contrib.streaming.state.RocksDBWriteBatchWrapper;
 import org.apache.flink.contrib.streaming.state.RocksIteratorWrapper;
 import org.apache.flink.contrib.streaming.state.ttl.RocksDbTtlCompactFiltersManager;
 import org.apache.flink.core.fs.CloseableRegistry;
@@ -54,18 +53,22 @@ import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.ColumnFamilyOptions;
 import org.rocksdb.DBOptions;
+import org.rocksdb.EnvOptions;
+import org.rocksdb.IngestExternalFileOptions;
+import org.rocksdb.Options;
 import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
+import org.rocksdb.SstFileWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -99,7 +102,6 @@ public class RocksDBIncrementalRestoreOperation<K> implements RocksDBRestoreOper
     private final ClassLoader userCodeClassLoader;
     private long lastCompletedCheckpointId;
     private UUID backendUID;
-    private final long writeBatchSize;
 
     private boolean isKeySerializerCompatibilityChecked;
 
@@ -120,7 +122,6 @@ public class RocksDBIncrementalRestoreOperation<K> implements RocksDBRestoreOper
             MetricGroup metricGroup,
             @Nonnull Collection<KeyedStateHandle> restoreStateHandles,
             @Nonnull RocksDbTtlCompactFiltersManager ttlCompactFiltersManager,
-            @Nonnegative long writeBatchSize,
             Long writeBufferManagerCapacity) {
         this.rocksHandle =
                 new RocksDBHandle(
@@ -136,7 +137,6 @@ public class RocksDBIncrementalRestoreOperation<K> implements RocksDBRestoreOper
         this.restoredSstFiles = new TreeMap<>();
         this.lastCompletedCheckpointId = -1L;
         this.backendUID = UUID.randomUUID();
-        this.writeBatchSize = writeBatchSize;
         this.restoreStateHandles = restoreStateHandles;
         this.cancelStreamRegistry = cancelStreamRegistry;
         this.keyGroupRange = keyGroupRange;
@@ -275,9 +275,18 @@ public class RocksDBIncrementalRestoreOperation<K> implements RocksDBRestoreOper
     }
 
     /**
-     * Recovery from multi incremental states with rescaling. For rescaling, this method creates a
-     * temporary RocksDB instance for a key-groups shard. All contents from the temporary instance
-     * are copied into the real restore instance and then the temporary instance is discarded.
+     * Recovery from multi incremental states with rescaling. The instance of the handle with the
+     * largest overlap is used as it is and clipped to the target key-group range, without rewriting
+     * its records. For each other handle, this method creates a temporary RocksDB instance. The
+     * records of the temporary instance which belong to the target key-group range are rewritten
+     * once into new SST files which are ingested into the real restore instance, and then the
+     * temporary instance is discarded.
+     *
+     * <p>The SST files of the temporary instances cannot be ingested as they are, because the
+     * bundled RocksDB only ingests files written by an {@link SstFileWriter} and cannot import
+     * column families. So the restore of these handles still scales with the number of their
+     * records in the target range, but bypasses the memtable, WAL and compactions of the restored
+     * instance.
      */
     private void restoreWithRescaling(Collection<KeyedStateHandle> restoreStateHandles)
             throws Exception {
@@ -318,13 +327,17 @@ public class RocksDBIncrementalRestoreOperation<K> implements RocksDBRestoreOper
                             .getAbsoluteFile()
                             .toPath()
                             .resolve(UUID.randomUUID().toString());
+            Path temporarySstFilesPath =
+                    instanceBasePath
+                            .getAbsoluteFile()
+                            .toPath()
+                            .resolve(UUID.randomUUID().toString());
             try (RestoredDBInstance tmpRestoreDBInfo =
-                            restoreDBInstanceFromStateHandle(
-                                    (IncrementalRemoteKeyedStateHandle) rawStateHandle,
-                                    temporaryRestoreInstancePath);
-                    RocksDBWriteBatchWrapper writeBatchWrapper =
-                            new RocksDBWriteBatchWrapper(
-                                    this.rocksHandle.getDb(), writeBatchSize)) {
+                    restoreDBInstanceFromStateHandle(
+                            (IncrementalRemoteKeyedStateHandle) rawStateHandle,
+                            temporaryRestoreInstancePath)) {
+
+                Files.createDirectories(temporarySstFilesPath);
 
                 List<ColumnFamilyDescriptor> tmpColumnFamilyDescriptors =
                         tmpRestoreDBInfo.columnFamilyDescriptors;
@@ -334,42 +347,104 @@ public class RocksDBIncrementalRestoreOperation<K> implements RocksDBRestoreOper
                 // iterating only the requested descriptors automatically skips the default column
                 // family handle
                 for (int i = 0; i < tmpColumnFamilyDescriptors.size(); ++i) {
-                    ColumnFamilyHandle tmpColumnFamilyHandle = tmpColumnFamilyHandles.get(i);
-
                     ColumnFamilyHandle targetColumnFamilyHandle =
                             this.rocksHandle.getOrRegisterStateColumnFamilyHandle(
                                             null, tmpRestoreDBInfo.stateMetaInfoSnapshots.get(i))
                                     .columnFamilyHandle;
 
-                    try (RocksIteratorWrapper iterator =
-                            RocksDBOperationUtils.getRocksIterator(
-                                    tmpRestoreDBInfo.db,
-                                    tmpColumnFamilyHandle,
-                                    tmpRestoreDBInfo.readOptions)) {
-
-                        iterator.seek(startKeyGroupPrefixBytes);
-
-                        while (iterator.isValid()) {
-
-                            if (RocksDBIncrementalCheckpointUtils.beforeThePrefixBytes(
-                                    iterator.key(), stopKeyGroupPrefixBytes)) {
-                                writeBatchWrapper.put(
-                                        targetColumnFamilyHandle, iterator.key(), iterator.value());
-                            } else {
-                                // Since the iterator will visit the record according to the sorted
-                                // order,
-                                // we can just break here.
-                                break;
-                            }
-
-                            iterator.next();
-                        }
-                    } // releases native iterator resources
+                    rewriteAndIngestKeyGroupRange(
+                            tmpRestoreDBInfo,
+                            tmpColumnFamilyHandles.get(i),
+                            tmpColumnFamilyDescriptors.get(i).getOptions(),
+                            targetColumnFamilyHandle,
+                            startKeyGroupPrefixBytes,
+                            stopKeyGroupPrefixBytes,
+                            temporarySstFilesPath.resolve(String.valueOf(i)));
                 }
                 logger.info(
                         "Finished restoring from state handle: {} with rescaling.", rawStateHandle);
             } finally {
                 cleanUpPathQuietly(temporaryRestoreInstancePath);
+                cleanUpPathQuietly(temporarySstFilesPath);
+            }
+        }
+    }
+
+    /**
+     * Rewrites the entries of a column family of the temporary instance which fall into [startKey,
+     * stopKey) into SST files and ingests them into the target column family. The iterator returns
+     * the entries in sorted order, so they can be passed to a {@link SstFileWriter} as they are,
+     * and ingesting the files bypasses the memtable, WAL and compactions of the target instance. As
+     * the key-group ranges of the restored handles are disjoint, the ingested files do not overlap
+     * with each other.
+     */
+    private void rewriteAndIngestKeyGroupRange(
+            RestoredDBInstance tmpRestoreDBInfo,
+            ColumnFamilyHandle tmpColumnFamilyHandle,
+            ColumnFamilyOptions columnFamilyOptions,
+            ColumnFamilyHandle targetColumnFamilyHandle,
+            byte[] startKeyGroupPrefixBytes,
+            byte[] stopKeyGroupPrefixBytes,
+            Path sstFilePathPrefix)
+            throws RocksDBException {
+
+        final List<String> sstFiles = new ArrayList<>();
+
+        try (EnvOptions envOptions = new EnvOptions();
+                Options sstFileOptions =
+                        new Options(this.rocksHandle.getDbOptions(), columnFamilyOptions);
+                RocksIteratorWrapper iterator =
+                        RocksDBOperationUtils.getRocksIterator(
+                                tmpRestoreDBInfo.db,
+                                tmpColumnFamilyHandle,
+                                tmpRestoreDBInfo.readOptions)) {
+
+            final long targetFileSize = sstFileOptions.targetFileSizeBase();
+            SstFileWriter sstFileWriter = null;
+            long writtenBytes = 0L;
+            try {
+                iterator.seek(startKeyGroupPrefixBytes);
+
+                while (iterator.isValid()
+                        && RocksDBIncrementalCheckpointUtils.beforeThePrefixBytes(
+                                iterator.key(), stopKeyGroupPrefixBytes)) {
+
+                    if (sstFileWriter == null) {
+                        String sstFile = sstFilePathPrefix + "-" + sstFiles.size() + ".sst";
+                        sstFileWriter = new SstFileWriter(envOptions, sstFileOptions);
+                        sstFileWriter.open(sstFile);
+                        sstFiles.add(sstFile);
+                        writtenBytes = 0L;
+                    }
+
+                    byte[] key = iterator.key();
+                    byte[] value = iterator.value();
+                    sstFileWriter.put(key, value);
+                    writtenBytes += key.length + value.length;
+
+                    if (writtenBytes >= targetFileSize) {
+                        sstFileWriter.finish();
+                        sstFileWriter.close();
+                        sstFileWriter = null;
+                    }
+
+                    iterator.next();
+                }
+
+                if (sstFileWriter != null) {
+                    sstFileWriter.finish();
+                }
+            } finally {
+                IOUtils.closeQuietly(sstFileWriter);
+            }
+        } // releases native iterator resources
+
+        if (!sstFiles.isEmpty()) {
+            try (IngestExternalFileOptions ingestOptions = new IngestExternalFileOptions()) {
+                ingestOptions.setMoveFiles(true);
+                this.rocksHandle
+                        .getDb()
+                        .ingestExternalFile(targetColumnFamilyHandle, sstFiles, ingestOptions);
             }
         }
     }
@@ -388,8 +463,7 @@ public class RocksDBIncrementalRestoreOperation<K> implements RocksDBRestoreOper
                     this.rocksHandle.getColumnFamilyHandles(),
                     keyGroupRange,
                     initialHandle.getKeyGroupRange(),
-                    keyGroupPrefixBytes,
-                    writeBatchSize);
+                    keyGroupPrefixBytes);
         } catch (RocksDBException e) {
             String errMsg = "Failed to clip DB after initialization.";
             logger.error(errMsg, e);
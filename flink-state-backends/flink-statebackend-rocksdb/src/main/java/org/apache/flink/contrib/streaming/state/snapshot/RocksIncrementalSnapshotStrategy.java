@@ -64,6 +64,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -71,6 +72,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static org.apache.flink.contrib.streaming.state.snapshot.RocksSnapshotUtil.SST_FILE_SUFFIX;
 
@@ -199,6 +201,7 @@ public class RocksIncrementalSnapshotStrategy<K>
                 lastCompletedCheckpointId = completedCheckpointId;
             }
         }
+        stateUploader.notifyCheckpointComplete(completedCheckpointId);
     }
 
     @Override
@@ -206,6 +209,7 @@ public class RocksIncrementalSnapshotStrategy<K>
         synchronized (materializedSstFiles) {
             materializedSstFiles.keySet().remove(abortedCheckpointId);
         }
+        stateUploader.notifyCheckpointAborted(abortedCheckpointId);
     }
 
     @Override
@@ -347,9 +351,17 @@ public class RocksIncrementalSnapshotStrategy<K>
             final Map<StateHandleID, StreamStateHandle> sstFiles = new HashMap<>();
             // Handles to the misc files in the current snapshot will go here
             final Map<StateHandleID, StreamStateHandle> miscFiles = new HashMap<>();
+            // Uploads of the new sst files and the misc files in flight will go here
+            final Map<StateHandleID, CompletableFuture<StreamStateHandle>> sstFileUploads =
+                    new HashMap<>();
+            final Map<StateHandleID, CompletableFuture<StreamStateHandle>> miscFileUploads =
+                    new HashMap<>();
 
             try {
 
+                // the files are uploaded while the meta data is written
+                startUploads(sstFiles, sstFileUploads, miscFileUploads, snapshotCloseableRegistry);
+
                 metaStateHandle = materializeMetaData(snapshotCloseableRegistry);
 
                 // Sanity checks - they should never fail
@@ -358,7 +370,8 @@ public class RocksIncrementalSnapshotStrategy<K>
                         metaStateHandle.getJobManagerOwnedSnapshot(),
                         "Metadata for job manager was not properly created.");
 
-                uploadSstFiles(sstFiles, miscFiles, snapshotCloseableRegistry);
+                sstFiles.putAll(RocksDBStateUploader.waitForUploads(sstFileUploads));
+                miscFiles.putAll(RocksDBStateUploader.waitForUploads(miscFileUploads));
 
                 synchronized (materializedSstFiles) {
                     materializedSstFiles.put(checkpointId, sstFiles.keySet());
@@ -400,12 +413,11 @@ public class RocksIncrementalSnapshotStrategy<K>
                 return snapshotResult;
             } finally {
                 if (!completed) {
-                    final List<StateObject> statesToDiscard =
-                            new ArrayList<>(1 + miscFiles.size() + sstFiles.size());
-                    statesToDiscard.add(metaStateHandle);
-                    statesToDiscard.addAll(miscFiles.values());
-                    statesToDiscard.addAll(sstFiles.values());
-                    cleanupIncompleteSnapshot(statesToDiscard);
+                    // the uploaded files are discarded once their uploads complete, the other
+                    // sst files are placeholders
+                    RocksDBStateUploader.discardUploads(sstFileUploads.values());
+                    RocksDBStateUploader.discardUploads(miscFileUploads.values());
+                    cleanupIncompleteSnapshot(Collections.singletonList(metaStateHandle));
                 }
             }
         }
@@ -431,9 +443,10 @@ public class RocksIncrementalSnapshotStrategy<K>
             }
         }
 
-        private void uploadSstFiles(
+        private void startUploads(
                 @Nonnull Map<StateHandleID, StreamStateHandle> sstFiles,
-                @Nonnull Map<StateHandleID, StreamStateHandle> miscFiles,
+                @Nonnull Map<StateHandleID, CompletableFuture<StreamStateHandle>> sstFileUploads,
+                @Nonnull Map<StateHandleID, CompletableFuture<StreamStateHandle>> miscFileUploads,
                 @Nonnull CloseableRegistry snapshotCloseableRegistry)
                 throws Exception {
 
@@ -447,12 +460,20 @@ public class RocksIncrementalSnapshotStrategy<K>
             if (files != null) {
                 createUploadFilePaths(files, sstFiles, sstFilePaths, miscFilePaths);
 
-                sstFiles.putAll(
-                        stateUploader.uploadFilesToCheckpointFs(
-                                sstFilePaths, checkpointStreamFactory, snapshotCloseableRegistry));
-                miscFiles.putAll(
-                        stateUploader.uploadFilesToCheckpointFs(
-                                miscFilePaths, checkpointStreamFactory, snapshotCloseableRegistry));
+                sstFileUploads.putAll(
+                        stateUploader.uploadFilesToCheckpointFsAsync(
+                                checkpointId,
+                                sstFilePaths,
+                                true,
+                                checkpointStreamFactory,
+                                snapshotCloseableRegistry));
+                miscFileUploads.putAll(
+                        stateUploader.uploadFilesToCheckpointFsAsync(
+                                checkpointId,
+                                miscFilePaths,
+                                false,
+                                checkpointStreamFactory,
+                                snapshotCloseableRegistry));
             }
         }
 
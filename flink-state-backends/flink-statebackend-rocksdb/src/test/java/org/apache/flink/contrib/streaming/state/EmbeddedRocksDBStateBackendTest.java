@@ -31,6 +31,8 @@ import org.apache.flink.runtime.state.CheckpointStorage;
 import org.apache.flink.runtime.state.CheckpointableKeyedStateBackend;
 import org.apache.flink.runtime.state.ConfigurableStateBackend;
 import org.apache.flink.runtime.state.IncrementalRemoteKeyedStateHandle;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
 import org.apache.flink.runtime.state.KeyedStateHandle;
 import org.apache.flink.runtime.state.SharedStateRegistry;
 import org.apache.flink.runtime.state.SnapshotResult;
@@ -610,6 +612,69 @@ public class EmbeddedRocksDBStateBackendTest
         }
     }
 
+    @Test
+    public void testRescalingRestoreBypassesMemTable() throws Exception {
+        if (!enableIncrementalCheckpointing) {
+            return;
+        }
+        ValueStateDescriptor<String> kvId = new ValueStateDescriptor<>("id", String.class, null);
+        kvId.initializeSerializerUnlessSet(new ExecutionConfig());
+
+        List<KeyedStateHandle> handles = new ArrayList<>();
+        for (KeyGroupRange range :
+                Arrays.asList(new KeyGroupRange(0, 4), new KeyGroupRange(5, 9))) {
+            CheckpointableKeyedStateBackend<Integer> backend =
+                    createKeyedBackend(IntSerializer.INSTANCE, 10, range, env);
+            try {
+                ValueState<String> state =
+                        backend.getPartitionedState(
+                                VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+                for (int key = 0; key < 100; key++) {
+                    if (range.contains(KeyGroupRangeAssignment.assignToKeyGroup(key, 10))) {
+                        backend.setCurrentKey(key);
+                        state.update("Hello-" + key);
+                    }
+                }
+                RunnableFuture<SnapshotResult<KeyedStateHandle>> snapshot =
+                        backend.snapshot(
+                                1L,
+                                1L,
+                                createStreamFactory(),
+                                CheckpointOptions.forCheckpointWithDefaultLocation());
+                snapshot.run();
+                handles.add(snapshot.get().getJobManagerOwnedSnapshot());
+            } finally {
+                IOUtils.closeQuietly(backend);
+                backend.dispose();
+            }
+        }
+
+        RocksDBKeyedStateBackend<Integer> backend =
+                (RocksDBKeyedStateBackend<Integer>)
+                        restoreKeyedBackend(
+                                IntSerializer.INSTANCE, 10, new KeyGroupRange(0, 9), handles, env);
+        try {
+            // the restored records were ingested as files instead of being written into the
+            // memtable
+            assertEquals(
+                    0L,
+                    backend.db.getLongProperty(
+                            backend.getColumnFamilyHandle("id"),
+                            "rocksdb.num-entries-active-mem-table"));
+
+            ValueState<String> state =
+                    backend.getPartitionedState(
+                            VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+            for (int key = 0; key < 100; key++) {
+                backend.setCurrentKey(key);
+                assertEquals("Hello-" + key, state.value());
+            }
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+    }
+
     private void checkRemove(IncrementalRemoteKeyedStateHandle remove, SharedStateRegistry registry)
             throws Exception {
         for (StateHandleID id : remove.getSharedState().keySet()) {
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.core.memory.DataInputDeserializer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDB;
+import org.rocksdb.WriteOptions;
+
+import static org.apache.flink.contrib.streaming.state.RocksDBConfigurableOptions.WRITE_BATCH_SIZE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for {@link RocksDBStateCache}. */
+public class RocksDBStateCacheTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testLookupsAndHitRate() throws Exception {
+        try (RocksDB db = RocksDB.open(folder.newFolder().getAbsolutePath());
+                WriteOptions options = new WriteOptions().setDisableWAL(true);
+                ColumnFamilyHandle handle =
+                        db.createColumnFamily(new ColumnFamilyDescriptor("test".getBytes()))) {
+            RocksDBStateCache cache = createCache(db, options, 10);
+
+            assertNull(cache.get(handle, key(1)));
+            cache.putPresent(handle, key(1), "one");
+            cache.putAbsent(handle, key(2));
+
+            RocksDBStateCache.CacheEntry present = cache.get(handle, key(1));
+            assertNotNull(present);
+            assertTrue(present.exists());
+            assertEquals("one", present.getValue());
+
+            RocksDBStateCache.CacheEntry absent = cache.get(handle, key(2));
+            assertNotNull(absent);
+            assertFalse(absent.exists());
+
+            cache.invalidate(handle, key(1));
+            assertNull(cache.get(handle, key(1)));
+
+            assertEquals(0.5, cache.getHitRate(), 0.0);
+            assertEquals(1, cache.size());
+        }
+    }
+
+    @Test
+    public void testDirtyEntriesAreWrittenBackOnEviction() throws Exception {
+        try (RocksDB db = RocksDB.open(folder.newFolder().getAbsolutePath());
+                WriteOptions options = new WriteOptions().setDisableWAL(true);
+                ColumnFamilyHandle handle =
+                        db.createColumnFamily(new ColumnFamilyDescriptor("test".getBytes()))) {
+            RocksDBStateCache cache = createCache(db, options, 2);
+
+            cache.putDirty(handle, key(1), "one", StringSerializer.INSTANCE);
+            cache.putDirty(handle, key(2), "two", StringSerializer.INSTANCE);
+            assertNull(db.get(handle, key(1)));
+
+            // key 1 becomes the most recently used entry, so key 2 is evicted
+            assertNotNull(cache.get(handle, key(1)));
+            cache.putPresent(handle, key(3), "three");
+
+            assertEquals(2, cache.size());
+            assertNull(cache.get(handle, key(2)));
+            assertEquals("two", deserialize(db.get(handle, key(2))));
+            assertNull(db.get(handle, key(1)));
+        }
+    }
+
+    @Test
+    public void testFlushWritesDirtyEntriesAndKeepsThem() throws Exception {
+        try (RocksDB db = RocksDB.open(folder.newFolder().getAbsolutePath());
+                WriteOptions options = new WriteOptions().setDisableWAL(true);
+                ColumnFamilyHandle handle =
+                        db.createColumnFamily(new ColumnFamilyDescriptor("test".getBytes()))) {
+            RocksDBStateCache cache = createCache(db, options, 10);
+
+            for (int i = 0; i < 5; i++) {
+                cache.putDirty(handle, key(i), "value-" + i, StringSerializer.INSTANCE);
+            }
+            cache.flush();
+
+            for (int i = 0; i < 5; i++) {
+                assertEquals("value-" + i, deserialize(db.get(handle, key(i))));
+                assertNotNull(cache.get(handle, key(i)));
+            }
+
+            // flushed entries are clean and can be invalidated
+            cache.invalidate(handle, key(0));
+
+            cache.flushAndClear();
+            assertEquals(0, cache.size());
+        }
+    }
+
+    private static RocksDBStateCache createCache(RocksDB db, WriteOptions options, int maxEntries) {
+        return new RocksDBStateCache(
+                db, options, WRITE_BATCH_SIZE.defaultValue().getBytes(), maxEntries);
+    }
+
+    private static byte[] key(int i) {
+        return ("key:" + i).getBytes();
+    }
+
+    private static String deserialize(byte[] bytes) throws Exception {
+        return StringSerializer.INSTANCE.deserialize(new DataInputDeserializer(bytes));
+    }
+}
@@ -18,11 +18,13 @@
 
 package org.apache.flink.contrib.streaming.state;
 
+import org.apache.flink.api.common.JobID;
 import org.apache.flink.core.fs.CloseableRegistry;
 import org.apache.flink.core.fs.FSDataInputStream;
 import org.apache.flink.core.fs.FileSystem;
 import org.apache.flink.runtime.state.CheckpointStreamFactory;
 import org.apache.flink.runtime.state.CheckpointedStateScope;
+import org.apache.flink.runtime.state.SharedStateUploads;
 import org.apache.flink.runtime.state.StateHandleID;
 import org.apache.flink.runtime.state.StreamStateHandle;
 import org.apache.flink.runtime.state.filesystem.FsCheckpointStreamFactory;
@@ -41,6 +43,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -48,6 +52,7 @@ import java.util.concurrent.ThreadLocalRandom;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.fail;
 
 /** Test class for {@link RocksDBStateUploader}. */
@@ -119,6 +124,83 @@ public class RocksDBStateUploaderTest extends TestLogger {
         }
     }
 
+    /**
+     * Test that identical shared files are uploaded once per checkpoint by the uploaders of the
+     * same job.
+     */
+    @Test
+    public void testDeduplicatedUploadAcrossUploaders() throws Exception {
+        File checkpointSharedFolder = temporaryFolder.newFolder("shared");
+        org.apache.flink.core.fs.Path checkpointSharedDirectory =
+                org.apache.flink.core.fs.Path.fromLocalFile(checkpointSharedFolder);
+        org.apache.flink.core.fs.Path checkpointPrivateDirectory =
+                org.apache.flink.core.fs.Path.fromLocalFile(temporaryFolder.newFolder("private"));
+        FsCheckpointStreamFactory checkpointStreamFactory =
+                new FsCheckpointStreamFactory(
+                        checkpointPrivateDirectory.getFileSystem(),
+                        checkpointPrivateDirectory,
+                        checkpointSharedDirectory,
+                        1024,
+                        4096);
+
+        File file = temporaryFolder.newFile("1.sst");
+        generateRandomFileContent(file.getPath(), 8192);
+        File copy = temporaryFolder.newFile("2.sst");
+        Files.copy(file.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        // same size and trailing bytes, but different content
+        File modified = temporaryFolder.newFile("3.sst");
+        byte[] content = Files.readAllBytes(file.toPath());
+        content[0]++;
+        Files.write(modified.toPath(), content);
+
+        JobID jobId = new JobID();
+        try (SharedStateUploads sharedStateUploads = new SharedStateUploads();
+                RocksDBStateUploader firstUploader =
+                        new RocksDBStateUploader(2, sharedStateUploads, jobId);
+                RocksDBStateUploader secondUploader =
+                        new RocksDBStateUploader(2, sharedStateUploads, jobId)) {
+            StreamStateHandle firstHandle =
+                    uploadSharedFile(firstUploader, 1L, file, checkpointStreamFactory);
+            StreamStateHandle secondHandle =
+                    uploadSharedFile(secondUploader, 1L, copy, checkpointStreamFactory);
+            assertEquals(firstHandle, secondHandle);
+            assertStateContentEqual(copy.toPath(), secondHandle.openInputStream());
+            assertEquals(1, checkpointSharedFolder.list().length);
+
+            StreamStateHandle modifiedHandle =
+                    uploadSharedFile(secondUploader, 1L, modified, checkpointStreamFactory);
+            assertNotEquals(firstHandle, modifiedHandle);
+            assertStateContentEqual(modified.toPath(), modifiedHandle.openInputStream());
+            assertEquals(2, checkpointSharedFolder.list().length);
+
+            // uploads are not shared across checkpoints
+            StreamStateHandle nextHandle =
+                    uploadSharedFile(secondUploader, 2L, copy, checkpointStreamFactory);
+            assertNotEquals(firstHandle, nextHandle);
+            assertEquals(3, checkpointSharedFolder.list().length);
+
+            firstUploader.notifyCheckpointComplete(2L);
+            assertEquals(0, sharedStateUploads.getNumUploads());
+        }
+    }
+
+    private StreamStateHandle uploadSharedFile(
+            RocksDBStateUploader uploader,
+            long checkpointId,
+            File file,
+            CheckpointStreamFactory checkpointStreamFactory)
+            throws Exception {
+        StateHandleID stateHandleID = new StateHandleID(file.getName());
+        return RocksDBStateUploader.waitForUploads(
+                        uploader.uploadFilesToCheckpointFsAsync(
+                                checkpointId,
+                                Collections.singletonMap(stateHandleID, file.toPath()),
+                                true,
+                                checkpointStreamFactory,
+                                new CloseableRegistry()))
+                .get(stateHandleID);
+    }
+
     private CheckpointStreamFactory.CheckpointStateOutputStream
             createFailingCheckpointStateOutputStream(IOException failureException) {
         return new CheckpointStreamFactory.CheckpointStateOutputStream() {
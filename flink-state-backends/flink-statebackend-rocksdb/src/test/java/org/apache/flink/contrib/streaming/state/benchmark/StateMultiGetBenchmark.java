@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state.benchmark;
+
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.runtime.state.KeyedStateBackend;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.internal.InternalValueState;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.apache.flink.contrib.streaming.state.benchmark.StateBackendBenchmarkUtils.cleanUp;
+import static org.apache.flink.contrib.streaming.state.benchmark.StateBackendBenchmarkUtils.createKeyedStateBackend;
+import static org.apache.flink.contrib.streaming.state.benchmark.StateBackendBenchmarkUtils.getMapState;
+import static org.apache.flink.contrib.streaming.state.benchmark.StateBackendBenchmarkUtils.getValueState;
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * Benchmark comparing batched multi-key lookups of keyed state with looking up the same keys one by
+ * one. Every operation looks up a batch of distinct randomly chosen keys, of which about a quarter
+ * do not exist in the state.
+ */
+public class StateMultiGetBenchmark {
+
+    private final StateBackendBenchmarkUtils.StateBackendType backendType;
+
+    private final int numberOfKeys;
+
+    private final int batchSize;
+
+    private final Random random = new Random(42L);
+
+    private KeyedStateBackend<Long> backend;
+
+    private MapState<Long, Double> mapState;
+
+    private InternalValueState<Long, VoidNamespace, Long> valueState;
+
+    private List<Long> batch;
+
+    public StateMultiGetBenchmark(
+            StateBackendBenchmarkUtils.StateBackendType backendType,
+            int numberOfKeys,
+            int batchSize) {
+        checkArgument(batchSize > 0 && batchSize <= numberOfKeys);
+        this.backendType = backendType;
+        this.numberOfKeys = numberOfKeys;
+        this.batchSize = batchSize;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        backend = createKeyedStateBackend(backendType);
+        mapState =
+                getMapState(
+                        backend, new MapStateDescriptor<>("mapState", Long.class, Double.class));
+        ValueState<Long> userValueState =
+                getValueState(backend, new ValueStateDescriptor<>("valueState", Long.class));
+        valueState = (InternalValueState<Long, VoidNamespace, Long>) userValueState;
+
+        backend.setCurrentKey(0L);
+        for (long i = 0; i < numberOfKeys; i++) {
+            if (i % 4 != 3) {
+                mapState.put(i, i * 0.5);
+            }
+        }
+        for (long i = 0; i < numberOfKeys; i++) {
+            if (i % 4 != 3) {
+                backend.setCurrentKey(i);
+                valueState.update(i);
+            }
+        }
+        backend.setCurrentKey(0L);
+
+        batch = new ArrayList<>(batchSize);
+        nextBatch();
+    }
+
+    /** Picks the distinct keys looked up by the next operation. */
+    public void nextBatch() {
+        Set<Long> keys = new LinkedHashSet<>(batchSize);
+        while (keys.size() < batchSize) {
+            keys.add((long) random.nextInt(numberOfKeys));
+        }
+        batch.clear();
+        batch.addAll(keys);
+    }
+
+    public Map<Long, Double> mapStateGetAll() throws Exception {
+        return mapState.getAll(batch);
+    }
+
+    public int mapStateGetOneByOne() throws Exception {
+        int found = 0;
+        for (Long key : batch) {
+            if (mapState.get(key) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    public Map<Long, Long> valueStateGetAll() throws Exception {
+        return valueState.getAll(batch);
+    }
+
+    public int valueStateGetOneByOne() throws Exception {
+        int found = 0;
+        for (Long key : batch) {
+            backend.setCurrentKey(key);
+            if (valueState.value() != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    public void teardown() throws Exception {
+        cleanUp(backend);
+    }
+}
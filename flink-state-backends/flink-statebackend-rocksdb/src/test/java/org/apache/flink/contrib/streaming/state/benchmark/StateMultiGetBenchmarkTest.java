@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state.benchmark;
+
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import static org.junit.Assert.assertEquals;
+
+/** Test for {@link StateMultiGetBenchmark}. */
+@RunWith(Parameterized.class)
+public class StateMultiGetBenchmarkTest extends TestLogger {
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object> data() {
+        return Arrays.asList(
+                StateBackendBenchmarkUtils.StateBackendType.HEAP,
+                StateBackendBenchmarkUtils.StateBackendType.ROCKSDB);
+    }
+
+    @Parameterized.Parameter public StateBackendBenchmarkUtils.StateBackendType backendType;
+
+    @Test
+    public void testMultiGetReturnsSameValuesAsSingleGets() throws Exception {
+        StateMultiGetBenchmark benchmark = new StateMultiGetBenchmark(backendType, 1000, 100);
+        benchmark.setup();
+        try {
+            for (int i = 0; i < 10; i++) {
+                benchmark.nextBatch();
+                assertEquals(benchmark.mapStateGetOneByOne(), benchmark.mapStateGetAll().size());
+                assertEquals(
+                        benchmark.valueStateGetOneByOne(), benchmark.valueStateGetAll().size());
+            }
+        } finally {
+            benchmark.teardown();
+        }
+    }
+}
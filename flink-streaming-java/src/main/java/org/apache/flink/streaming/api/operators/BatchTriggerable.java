@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.annotation.Internal;
+
+/**
+ * A {@link Triggerable} that receives the event-time timers firing for a watermark in batches of
+ * timers that share the same key.
+ *
+ * <p>When the trigger target of an {@link InternalTimerServiceImpl} implements this interface, the
+ * timer service drains the event-time timers up to the watermark one key-group at a time, groups
+ * them by key and calls {@link #onEventTimers(Iterable)} once per key instead of calling {@link
+ * #onEventTime(InternalTimer)} once per timer. The timers of a key-group are fired before the
+ * timers of the next key-group are drained, so only a bounded number of timers is held in memory.
+ * This saves setting the current key for every timer. In exchange, timers of different keys are no
+ * longer fired in global timestamp order; the timers of one key are still handed over in timestamp
+ * order.
+ *
+ * @param <K> Type of the keys to which timers are scoped.
+ * @param <N> Type of the namespace to which timers are scoped.
+ */
+@Internal
+public interface BatchTriggerable<K, N> extends Triggerable<K, N> {
+
+    /**
+     * Invoked with event-time timers of one key that fire for the current watermark. The current
+     * key is set to the key of the timers before the call. The timers of a key may be split over
+     * several calls.
+     *
+     * <p>The timers are removed from the timer service as they are iterated over. A timer that is
+     * deleted from within the callback before the iteration reaches it is skipped, like it would
+     * not fire with {@link #onEventTime(InternalTimer)}. Registering an iterated timer again from
+     * within the callback makes it fire again if its timestamp is not after the watermark. The
+     * given timers must be iterated over completely and only once.
+     *
+     * @param timers the firing timers of the current key, in timestamp order.
+     */
+    void onEventTimers(Iterable<InternalTimer<K, N>> timers) throws Exception;
+}
@@ -30,9 +30,16 @@ import org.apache.flink.util.FlinkRuntimeException;
 import org.apache.flink.util.Preconditions;
 import org.apache.flink.util.function.BiConsumerWithException;
 
+import javax.annotation.Nullable;
+
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.ScheduledFuture;
 
@@ -42,6 +49,12 @@ import static org.apache.flink.util.Preconditions.checkNotNull;
 /** {@link InternalTimerService} that stores timers on the Java heap. */
 public class InternalTimerServiceImpl<K, N> implements InternalTimerService<N> {
 
+    /**
+     * The maximum number of event-time timers that are drained from the queue before they are
+     * handed to a {@link BatchTriggerable}.
+     */
+    @VisibleForTesting static final int MAX_EVENT_TIME_TIMER_BATCH_SIZE = 1024;
+
     private final ProcessingTimeService processingTimeService;
 
     private final KeyContext keyContext;
@@ -88,6 +101,13 @@ public class InternalTimerServiceImpl<K, N> implements InternalTimerService<N> {
     /** The restored timers snapshot, if any. */
     private InternalTimersSnapshot<K, N> restoredTimersSnapshot;
 
+    /**
+     * The event-time timers of the current batch that were drained from the queue but not yet
+     * handed to the {@link BatchTriggerable}, or {@code null} if timers are not fired in batches
+     * right now.
+     */
+    @Nullable private Set<TimerHeapInternalTimer<K, N>> pendingEventTimeTimers;
+
     InternalTimerServiceImpl(
             KeyGroupRange localKeyGroupRange,
             KeyContext keyContext,
@@ -230,8 +250,12 @@ public class InternalTimerServiceImpl<K, N> implements InternalTimerService<N> {
 
     @Override
     public void registerEventTimeTimer(N namespace, long time) {
-        eventTimeTimersQueue.add(
-                new TimerHeapInternalTimer<>(time, (K) keyContext.getCurrentKey(), namespace));
+        final TimerHeapInternalTimer<K, N> timer =
+                new TimerHeapInternalTimer<>(time, (K) keyContext.getCurrentKey(), namespace);
+        // a timer that is about to fire in the current batch must not be queued a second time
+        if (pendingEventTimeTimers == null || !pendingEventTimeTimers.contains(timer)) {
+            eventTimeTimersQueue.add(timer);
+        }
     }
 
     @Override
@@ -242,8 +266,12 @@ public class InternalTimerServiceImpl<K, N> implements InternalTimerService<N> {
 
     @Override
     public void deleteEventTimeTimer(N namespace, long time) {
-        eventTimeTimersQueue.remove(
-                new TimerHeapInternalTimer<>(time, (K) keyContext.getCurrentKey(), namespace));
+        final TimerHeapInternalTimer<K, N> timer =
+                new TimerHeapInternalTimer<>(time, (K) keyContext.getCurrentKey(), namespace);
+        if (pendingEventTimeTimers != null) {
+            pendingEventTimeTimers.remove(timer);
+        }
+        eventTimeTimersQueue.remove(timer);
     }
 
     @Override
@@ -294,6 +322,11 @@ public class InternalTimerServiceImpl<K, N> implements InternalTimerService<N> {
     public void advanceWatermark(long time) throws Exception {
         currentWatermark = time;
 
+        if (triggerTarget instanceof BatchTriggerable) {
+            advanceWatermarkInBatches((BatchTriggerable<K, N>) triggerTarget, time);
+            return;
+        }
+
         InternalTimer<K, N> timer;
 
         while ((timer = eventTimeTimersQueue.peek()) != null && timer.getTimestamp() <= time) {
@@ -303,6 +336,52 @@ public class InternalTimerServiceImpl<K, N> implements InternalTimerService<N> {
         }
     }
 
+    /**
+     * Fires the event-time timers up to the given watermark in batches. Each batch drains the
+     * qualifying timers of one key-group from the queue, or of the whole queue if it is not
+     * partitioned by key-group, but at most {@link #MAX_EVENT_TIME_TIMER_BATCH_SIZE} timers. The
+     * timers of a batch are grouped by key and handed to the target once per key before the next
+     * batch is drained. Timers registered by the target for a timestamp up to the watermark are
+     * fired in a later batch.
+     */
+    private void advanceWatermarkInBatches(BatchTriggerable<K, N> batchTarget, long time)
+            throws Exception {
+        final Map<K, List<TimerHeapInternalTimer<K, N>>> timersByKey = new LinkedHashMap<>();
+        final Set<TimerHeapInternalTimer<K, N>> pendingTimers = new HashSet<>();
+        pendingEventTimeTimers = pendingTimers;
+        try {
+            while (eventTimeTimersQueue.pollWhile(
+                            timer ->
+                                    timer.getTimestamp() <= time
+                                            && pendingTimers.size()
+                                                    < MAX_EVENT_TIME_TIMER_BATCH_SIZE,
+                            timer -> {
+                                pendingTimers.add(timer);
+                                timersByKey
+                                        .computeIfAbsent(timer.getKey(), k -> new ArrayList<>())
+                                        .add(timer);
+                            })
+                    > 0) {
+                for (Map.Entry<K, List<TimerHeapInternalTimer<K, N>>> keyTimers :
+                        timersByKey.entrySet()) {
+                    final List<TimerHeapInternalTimer<K, N>> timers = keyTimers.getValue();
+                    // skip the keys whose timers were all deleted by a previous callback
+                    if (timers.stream().anyMatch(pendingTimers::contains)) {
+                        keyContext.setCurrentKey(keyTimers.getKey());
+                        batchTarget.onEventTimers(
+                                () ->
+                                        new PendingTimersIterator<>(
+                                                timers.iterator(), pendingTimers));
+                    }
+                }
+                timersByKey.clear();
+                pendingTimers.clear();
+            }
+        } finally {
+            pendingEventTimeTimers = null;
+        }
+    }
+
     /**
      * Snapshots the timers (both processing and event time ones) for a given {@code keyGroupIdx}.
      *
@@ -425,4 +504,47 @@ public class InternalTimerServiceImpl<K, N> implements InternalTimerService<N> {
         }
         return result;
     }
+
+    /**
+     * Iterates over the timers of a key that are still pending and removes them from the pending
+     * timers as they are handed out, so that a timer deleted by the target before it is reached is
+     * skipped.
+     */
+    private static final class PendingTimersIterator<K, N>
+            implements Iterator<InternalTimer<K, N>> {
+
+        private final Iterator<TimerHeapInternalTimer<K, N>> timers;
+
+        private final Set<TimerHeapInternalTimer<K, N>> pendingTimers;
+
+        @Nullable private TimerHeapInternalTimer<K, N> next;
+
+        private PendingTimersIterator(
+                Iterator<TimerHeapInternalTimer<K, N>> timers,
+                Set<TimerHeapInternalTimer<K, N>> pendingTimers) {
+            this.timers = timers;
+            this.pendingTimers = pendingTimers;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && timers.hasNext()) {
+                final TimerHeapInternalTimer<K, N> timer = timers.next();
+                if (pendingTimers.remove(timer)) {
+                    next = timer;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public InternalTimer<K, N> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final InternalTimer<K, N> timer = next;
+            next = null;
+            return timer;
+        }
+    }
 }
@@ -24,10 +24,18 @@ import org.apache.flink.api.common.state.ValueState;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.runtime.state.internal.InternalValueState;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
 /** A {@link ValueState} which keeps value for a single key at a time. */
 class BatchExecutionKeyValueState<K, N, T> extends AbstractBatchExecutionKeyState<K, N, T>
         implements InternalValueState<K, N, T> {
 
+    private Supplier<K> currentKeySupplier = () -> null;
+
     BatchExecutionKeyValueState(
             T defaultValue,
             TypeSerializer<K> keySerializer,
@@ -46,6 +54,27 @@ class BatchExecutionKeyValueState<K, N, T> extends AbstractBatchExecutionKeyStat
         setCurrentNamespaceValue(value);
     }
 
+    /** Only the values of the current key are kept, so only the current key can have a value. */
+    @Override
+    public Map<K, T> getAll(Collection<K> keys) {
+        Map<K, T> result = new HashMap<>();
+        T value = getCurrentNamespaceValue();
+        if (value != null) {
+            K currentKey = currentKeySupplier.get();
+            for (K key : keys) {
+                if (Objects.equals(key, currentKey)) {
+                    result.put(key, value);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    void setCurrentKeySupplier(Supplier<K> currentKeySupplier) {
+        this.currentKeySupplier = currentKeySupplier;
+    }
+
     @SuppressWarnings("unchecked")
     static <T, K, N, SV, S extends State, IS extends S> IS create(
             TypeSerializer<K> keySerializer,
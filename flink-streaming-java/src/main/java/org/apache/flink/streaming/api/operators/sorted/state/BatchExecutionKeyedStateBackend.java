@@ -222,6 +222,7 @@ public class BatchExecutionKeyedStateBackend<K> implements CheckpointableKeyedSt
         return createState(namespaceSerializer, stateDesc);
     }
 
+    @SuppressWarnings("unchecked")
     private <N, SV, S extends State, IS extends S> IS createState(
             @Nonnull TypeSerializer<N> namespaceSerializer,
             @Nonnull StateDescriptor<S, SV> stateDesc)
@@ -234,7 +235,12 @@ public class BatchExecutionKeyedStateBackend<K> implements CheckpointableKeyedSt
                             stateDesc.getClass(), this.getClass());
             throw new FlinkRuntimeException(message);
         }
-        return stateFactory.createState(keySerializer, namespaceSerializer, stateDesc);
+        IS state = stateFactory.createState(keySerializer, namespaceSerializer, stateDesc);
+        if (state instanceof BatchExecutionKeyValueState) {
+            ((BatchExecutionKeyValueState<K, ?, ?>) state)
+                    .setCurrentKeySupplier(this::getCurrentKey);
+        }
+        return state;
     }
 
     @Nonnull
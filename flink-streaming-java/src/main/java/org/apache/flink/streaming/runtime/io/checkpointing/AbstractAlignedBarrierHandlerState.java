@@ -57,10 +57,7 @@ abstract class AbstractAlignedBarrierHandlerState implements BarrierHandlerState
             boolean markChannelBlocked)
             throws IOException, CheckpointException {
         checkState(!checkpointBarrier.getCheckpointOptions().isUnalignedCheckpoint());
-        if (checkpointBarrier
-                .getCheckpointOptions()
-                .getBlockedJobVertexIdsForRescaling()
-                .contains(controller.getJobVertex().getID().toHexString())) {
+        if (controller.isBlockedForRescaling(checkpointBarrier)) {
             markChannelBlocked = true;
         }
 
@@ -78,15 +75,7 @@ abstract class AbstractAlignedBarrierHandlerState implements BarrierHandlerState
     protected WaitingForFirstBarrier triggerGlobalCheckpoint(
             Controller controller, CheckpointBarrier checkpointBarrier) throws IOException {
         controller.triggerGlobalCheckpoint(checkpointBarrier);
-        boolean unblockChannels = true;
-        if (checkpointBarrier
-                .getCheckpointOptions()
-                .getBlockedJobVertexIdsForRescaling()
-                .contains(controller.getJobVertex().getID().toHexString())) {
-            unblockChannels = false;
-        }
-
-        if (unblockChannels) {
+        if (!controller.isBlockedForRescaling(checkpointBarrier)) {
             state.unblockAllChannels();
         }
         return new WaitingForFirstBarrier(state.getInputs());
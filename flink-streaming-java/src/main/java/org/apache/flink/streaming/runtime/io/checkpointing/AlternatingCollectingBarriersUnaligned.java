@@ -71,15 +71,20 @@ final class AlternatingCollectingBarriersUnaligned implements BarrierHandlerStat
             channelState.blockChannel(channelInfo);
         }
 
+        final boolean blockedForRescaling = controller.isBlockedForRescaling(checkpointBarrier);
+        if (blockedForRescaling) {
+            channelState.blockChannel(channelInfo);
+        }
+
         if (controller.allBarriersReceived()) {
-            return finishCheckpoint(checkpointBarrier.getId());
+            return finishCheckpoint(checkpointBarrier.getId(), blockedForRescaling);
         }
         return this;
     }
 
     @Override
     public BarrierHandlerState abort(long cancelledId) throws IOException {
-        return finishCheckpoint(cancelledId);
+        return finishCheckpoint(cancelledId, false);
     }
 
     @Override
@@ -92,20 +97,29 @@ final class AlternatingCollectingBarriersUnaligned implements BarrierHandlerStat
             checkState(
                     controller.getPendingCheckpointBarrier() != null,
                     "At least one barrier received in unaligned collecting barrier state.");
-            return finishCheckpoint(controller.getPendingCheckpointBarrier().getId());
+            final CheckpointBarrier pendingBarrier = controller.getPendingCheckpointBarrier();
+            return finishCheckpoint(
+                    pendingBarrier.getId(), controller.isBlockedForRescaling(pendingBarrier));
         }
         return this;
     }
 
-    private BarrierHandlerState finishCheckpoint(long cancelledId) throws IOException {
+    private BarrierHandlerState finishCheckpoint(long cancelledId, boolean keepChannelsBlocked)
+            throws IOException {
         for (CheckpointableInput input : channelState.getInputs()) {
             input.checkpointStopped(cancelledId);
         }
-        channelState.unblockAllChannels();
+        final ChannelState nextState;
+        if (keepChannelsBlocked) {
+            nextState = channelState.emptyStateKeepingChannelsBlocked();
+        } else {
+            channelState.unblockAllChannels();
+            nextState = channelState.emptyState();
+        }
         if (alternating) {
-            return new AlternatingWaitingForFirstBarrier(channelState.emptyState());
+            return new AlternatingWaitingForFirstBarrier(nextState);
         } else {
-            return new AlternatingWaitingForFirstBarrierUnaligned(false, channelState.emptyState());
+            return new AlternatingWaitingForFirstBarrierUnaligned(false, nextState);
         }
     }
 }
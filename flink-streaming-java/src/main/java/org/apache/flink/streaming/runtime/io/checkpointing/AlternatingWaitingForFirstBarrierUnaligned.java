@@ -70,6 +70,13 @@ final class AlternatingWaitingForFirstBarrierUnaligned implements BarrierHandler
             channelState.blockChannel(channelInfo);
         }
 
+        // the upstream tasks of a rescaled task stop consuming once they forwarded the barrier of
+        // the rescale snapshot, also if the snapshot is unaligned
+        final boolean blockedForRescaling = controller.isBlockedForRescaling(checkpointBarrier);
+        if (blockedForRescaling) {
+            channelState.blockChannel(channelInfo);
+        }
+
         CheckpointBarrier unalignedBarrier = checkpointBarrier.asUnaligned();
         controller.initInputsCheckpoint(unalignedBarrier);
         for (CheckpointableInput input : channelState.getInputs()) {
@@ -80,14 +87,14 @@ final class AlternatingWaitingForFirstBarrierUnaligned implements BarrierHandler
             for (CheckpointableInput input : channelState.getInputs()) {
                 input.checkpointStopped(unalignedBarrier.getId());
             }
-            return stopCheckpoint();
+            return stopCheckpoint(blockedForRescaling);
         }
         return new AlternatingCollectingBarriersUnaligned(alternating, channelState);
     }
 
     @Override
     public BarrierHandlerState abort(long cancelledId) throws IOException {
-        return stopCheckpoint();
+        return stopCheckpoint(false);
     }
 
     @Override
@@ -100,12 +107,18 @@ final class AlternatingWaitingForFirstBarrierUnaligned implements BarrierHandler
         return this;
     }
 
-    private BarrierHandlerState stopCheckpoint() throws IOException {
-        channelState.unblockAllChannels();
+    private BarrierHandlerState stopCheckpoint(boolean keepChannelsBlocked) throws IOException {
+        final ChannelState nextState;
+        if (keepChannelsBlocked) {
+            nextState = channelState.emptyStateKeepingChannelsBlocked();
+        } else {
+            channelState.unblockAllChannels();
+            nextState = channelState.emptyState();
+        }
         if (alternating) {
-            return new AlternatingWaitingForFirstBarrier(channelState.emptyState());
+            return new AlternatingWaitingForFirstBarrier(nextState);
         } else {
-            return new AlternatingWaitingForFirstBarrierUnaligned(false, channelState.emptyState());
+            return new AlternatingWaitingForFirstBarrierUnaligned(false, nextState);
         }
     }
 }
@@ -19,6 +19,7 @@
 package org.apache.flink.streaming.runtime.io.checkpointing;
 
 import org.apache.flink.runtime.checkpoint.CheckpointException;
+import org.apache.flink.runtime.checkpoint.CheckpointOptions;
 import org.apache.flink.runtime.checkpoint.channel.InputChannelInfo;
 import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
 import org.apache.flink.runtime.jobgraph.JobVertex;
@@ -77,5 +78,16 @@ interface BarrierHandlerState {
         boolean isTimedOut(CheckpointBarrier barrier);
 
         JobVertex getJobVertex();
+
+        /**
+         * Checks whether the given barrier belongs to a rescale snapshot for which this task is one
+         * of the upstream tasks that have to stay blocked until the rescaling completes.
+         */
+        default boolean isBlockedForRescaling(CheckpointBarrier checkpointBarrier) {
+            final CheckpointOptions options = checkpointBarrier.getCheckpointOptions();
+            return options.isRescaling()
+                    && options.getBlockedJobVertexIdsForRescaling()
+                            .contains(getJobVertex().getID().toHexString());
+        }
     }
 }
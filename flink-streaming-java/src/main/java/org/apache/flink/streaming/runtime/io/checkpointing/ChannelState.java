@@ -90,6 +90,14 @@ final class ChannelState {
         this.sequenceNumberInAnnouncedChannels.remove(channelInfo);
     }
 
+    /**
+     * Returns an empty state which no longer tracks the currently blocked channels. They stay
+     * blocked until the rescaling of the downstream task, for which they were blocked, completes.
+     */
+    public ChannelState emptyStateKeepingChannelsBlocked() {
+        return new ChannelState(inputs);
+    }
+
     public ChannelState emptyState() {
         checkState(
                 blockedChannels.isEmpty(),
@@ -52,12 +52,12 @@ import org.apache.flink.runtime.state.internal.InternalAppendingState;
 import org.apache.flink.runtime.state.internal.InternalListState;
 import org.apache.flink.runtime.state.internal.InternalMergingState;
 import org.apache.flink.streaming.api.operators.AbstractUdfStreamOperator;
+import org.apache.flink.streaming.api.operators.BatchTriggerable;
 import org.apache.flink.streaming.api.operators.ChainingStrategy;
 import org.apache.flink.streaming.api.operators.InternalTimer;
 import org.apache.flink.streaming.api.operators.InternalTimerService;
 import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
 import org.apache.flink.streaming.api.operators.TimestampedCollector;
-import org.apache.flink.streaming.api.operators.Triggerable;
 import org.apache.flink.streaming.api.windowing.assigners.BaseAlignedWindowAssigner;
 import org.apache.flink.streaming.api.windowing.assigners.MergingWindowAssigner;
 import org.apache.flink.streaming.api.windowing.assigners.WindowAssigner;
@@ -97,7 +97,7 @@ import static org.apache.flink.util.Preconditions.checkNotNull;
 @Internal
 public class WindowOperator<K, IN, ACC, OUT, W extends Window>
         extends AbstractUdfStreamOperator<OUT, InternalWindowFunction<ACC, OUT, K, W>>
-        implements OneInputStreamOperator<IN, OUT>, Triggerable<K, W> {
+        implements OneInputStreamOperator<IN, OUT>, BatchTriggerable<K, W> {
 
     private static final long serialVersionUID = 1L;
 
@@ -493,6 +493,17 @@ public class WindowOperator<K, IN, ACC, OUT, W extends Window>
         }
     }
 
+    /**
+     * Fires the event-time timers of the current key one after the other. The timer service sets
+     * the key only once for all of them.
+     */
+    @Override
+    public void onEventTimers(Iterable<InternalTimer<K, W>> timers) throws Exception {
+        for (InternalTimer<K, W> timer : timers) {
+            onEventTime(timer);
+        }
+    }
+
     @Override
     public void onProcessingTime(InternalTimer<K, W> timer) throws Exception {
         triggerContext.key = timer.getKey();
@@ -26,6 +26,7 @@ import org.apache.flink.runtime.checkpoint.CheckpointMetricsBuilder;
 import org.apache.flink.runtime.checkpoint.TaskStateSnapshot;
 import org.apache.flink.runtime.execution.Environment;
 import org.apache.flink.runtime.jobgraph.OperatorID;
+import org.apache.flink.runtime.state.CheckpointStreamFactory;
 import org.apache.flink.streaming.api.operators.OperatorSnapshotFinalizer;
 import org.apache.flink.streaming.api.operators.OperatorSnapshotFutures;
 import org.apache.flink.util.ExceptionUtils;
@@ -33,7 +34,10 @@ import org.apache.flink.util.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import java.io.Closeable;
+import java.io.IOException;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
@@ -56,6 +60,9 @@ final class AsyncCheckpointRunnable implements Runnable, Closeable {
     private final boolean isTaskFinished;
     private final Supplier<Boolean> isTaskRunning;
     private final Environment taskEnvironment;
+    /** The factory whose merged files are closed once all state is written, if any. */
+    @Nullable private final CheckpointStreamFactory checkpointStreamFactory;
+
     private final CompletableFuture<Void> finishedFuture = new CompletableFuture<>();
 
     public boolean isRunning() {
@@ -87,7 +94,8 @@ final class AsyncCheckpointRunnable implements Runnable, Closeable {
             AsyncExceptionHandler asyncExceptionHandler,
             boolean isTaskDeployedAsFinished,
             boolean isTaskFinished,
-            Supplier<Boolean> isTaskRunning) {
+            Supplier<Boolean> isTaskRunning,
+            @Nullable CheckpointStreamFactory checkpointStreamFactory) {
 
         this.operatorSnapshotsInProgress = checkNotNull(operatorSnapshotsInProgress);
         this.checkpointMetaData = checkNotNull(checkpointMetaData);
@@ -100,6 +108,7 @@ final class AsyncCheckpointRunnable implements Runnable, Closeable {
         this.isTaskDeployedAsFinished = isTaskDeployedAsFinished;
         this.isTaskFinished = isTaskFinished;
         this.isTaskRunning = isTaskRunning;
+        this.checkpointStreamFactory = checkpointStreamFactory;
     }
 
     @Override
@@ -123,6 +132,9 @@ final class AsyncCheckpointRunnable implements Runnable, Closeable {
                                     0L)
                             : finalizeNonFinishedSnapshots();
 
+            // the state in merged files is only readable once the files are closed
+            closeMergedFiles();
+
             final long asyncEndNanos = System.nanoTime();
             final long asyncDurationMillis = (asyncEndNanos - asyncConstructionNanos) / 1_000_000L;
 
@@ -376,12 +388,26 @@ final class AsyncCheckpointRunnable implements Runnable, Closeable {
             }
         }
 
+        try {
+            if (checkpointStreamFactory != null) {
+                checkpointStreamFactory.abortMergedFiles();
+            }
+        } catch (Exception closeException) {
+            exception = ExceptionUtils.firstOrSuppressed(closeException, exception);
+        }
+
         if (null != exception) {
             throw exception;
         }
         return stateSize;
     }
 
+    private void closeMergedFiles() throws IOException {
+        if (checkpointStreamFactory != null) {
+            checkpointStreamFactory.closeMergedFiles();
+        }
+    }
+
     private void logFailedCleanupAttempt() {
         LOG.debug(
                 "{} - asynchronous checkpointing operation for checkpoint {} has "
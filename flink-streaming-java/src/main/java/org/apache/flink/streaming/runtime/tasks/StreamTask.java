@@ -135,8 +135,11 @@ import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static org.apache.flink.configuration.TaskManagerOptions.BUFFER_DEBLOAT_PERIOD;
 import static org.apache.flink.util.ExceptionUtils.firstOrSuppressed;
@@ -198,6 +201,8 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
     /** The logger used by the StreamTask and its subclasses. */
     protected static final Logger LOG = LoggerFactory.getLogger(StreamTask.class);
 
+    private static final long CHANNEL_IO_THREAD_KEEP_ALIVE_SECONDS = 10L;
+
     // ------------------------------------------------------------------------
 
     /**
@@ -280,7 +285,7 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
     final MailboxExecutor mainMailboxExecutor;
 
     /** TODO it might be replaced by the global IO executor on TaskManager level future. */
-    private ExecutorService channelIOExecutor;
+    private final ExecutorService channelIOExecutor;
 
     // ========================================================
     //  Final  checkpoint / savepoint
@@ -422,9 +427,7 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
         }
 
         this.systemTimerService = createTimerService("System Time Trigger for " + getName());
-        this.channelIOExecutor =
-                Executors.newSingleThreadExecutor(
-                        new ExecutorThreadFactory("channel-state-unspilling"));
+        this.channelIOExecutor = createChannelIOExecutor();
 
         injectChannelStateWriterIntoChannels();
 
@@ -722,10 +725,6 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
                 allGatesRecoveredFuture.isDone(),
                 "Mailbox loop interrupted before recovery was finished.");
 
-        // we recovered all the gates, we can close the channel IO executor as it is no longer
-        // needed
-        channelIOExecutor.shutdown();
-
         isRunning = true;
     }
 
@@ -746,13 +745,14 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
         } catch (IOException | InterruptedException e) {
             throw new RuntimeException(e);
         }
-        channelIOExecutor.shutdown();
-        channelIOExecutor =
-                Executors.newSingleThreadExecutor(
-                        new ExecutorThreadFactory("channel-state-unspilling"));
 
         injectChannelStateWriterIntoRecoveredChannels(inputGates);
 
+        if (bufferDebloater != null) {
+            mainMailboxExecutor.execute(
+                    bufferDebloater::onInputGatesUpdated, "Buffer debloater gates update");
+        }
+
         channelIOExecutor.execute(
                 () -> {
                     try {
@@ -785,12 +785,29 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
         CompletableFuture.allOf(recoverGateCompletionFutures)
                 .thenRun(
                         () -> {
-                            channelIOExecutor.shutdown();
                             isRunning = true;
                             recoverGateFuture.complete(null);
                         });
     }
 
+    /**
+     * Creates the executor which reads the channel state on recovery. It is kept for the lifetime
+     * of the task, so that it can be reused if the gates are recovered again, but its thread only
+     * lives while there is channel state to read.
+     */
+    private static ExecutorService createChannelIOExecutor() {
+        ThreadPoolExecutor executor =
+                new ThreadPoolExecutor(
+                        1,
+                        1,
+                        CHANNEL_IO_THREAD_KEEP_ALIVE_SECONDS,
+                        TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<>(),
+                        new ExecutorThreadFactory("channel-state-unspilling"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     private CompletableFuture<Void> restoreGates() throws Exception {
         SequentialChannelStateReader reader =
                 getEnvironment().getTaskStateManager().getSequentialChannelStateReader();
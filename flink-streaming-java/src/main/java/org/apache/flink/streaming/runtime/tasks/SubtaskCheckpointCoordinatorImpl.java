@@ -31,9 +31,12 @@ import org.apache.flink.runtime.io.network.api.CancelCheckpointMarker;
 import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
 import org.apache.flink.runtime.jobgraph.JobVertex;
 import org.apache.flink.runtime.jobgraph.OperatorID;
+import org.apache.flink.runtime.state.CheckpointIOScheduler;
 import org.apache.flink.runtime.state.CheckpointStorageLocationReference;
 import org.apache.flink.runtime.state.CheckpointStorageWorkerView;
 import org.apache.flink.runtime.state.CheckpointStreamFactory;
+import org.apache.flink.runtime.state.filesystem.FsCheckpointStorageAccess;
+import org.apache.flink.runtime.state.filesystem.MergingCheckpointFilePools;
 import org.apache.flink.streaming.api.operators.OperatorSnapshotFutures;
 import org.apache.flink.util.FlinkRuntimeException;
 import org.apache.flink.util.IOUtils;
@@ -42,6 +45,7 @@ import org.apache.flink.util.function.BiFunctionWithException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 
 import java.io.IOException;
@@ -174,8 +178,10 @@ class SubtaskCheckpointCoordinatorImpl implements SubtaskCheckpointCoordinator {
             ChannelStateWriter channelStateWriter,
             boolean enableCheckpointAfterTasksFinished)
             throws IOException {
+        shareMergedFiles(checkNotNull(checkpointStorage), env);
         this.checkpointStorage =
-                new CachingCheckpointStorageWorkerView(checkNotNull(checkpointStorage));
+                new CachingCheckpointStorageWorkerView(
+                        limitCheckpointIO(checkNotNull(checkpointStorage), env));
         this.taskName = checkNotNull(taskName);
         this.checkpoints = new HashMap<>();
         this.lock = new Object();
@@ -197,11 +203,37 @@ class SubtaskCheckpointCoordinatorImpl implements SubtaskCheckpointCoordinator {
             String taskName, CheckpointStorageWorkerView checkpointStorage, Environment env) {
         ChannelStateWriterImpl writer =
                 new ChannelStateWriterImpl(
-                        taskName, env.getTaskInfo().getIndexOfThisSubtask(), checkpointStorage);
+                        // the size of the state in memory is limited per stream
+                        checkpointStorage instanceof FsCheckpointStorageAccess
+                                ? env.getJobID()
+                                : null,
+                        taskName,
+                        env.getTaskInfo().getIndexOfThisSubtask(),
+                        checkpointStorage,
+                        env.getTaskStateManager().getChannelStateWriterPool(),
+                        env.getTaskStateManager().getCheckpointIOScheduler());
         writer.open();
         return writer;
     }
 
+    /**
+     * Lets the exclusive checkpoint state of this task be merged into the same files as the state
+     * of the other tasks of this TaskManager.
+     */
+    private static void shareMergedFiles(
+            CheckpointStorageWorkerView checkpointStorage, Environment env) {
+        MergingCheckpointFilePools filePools = env.getTaskStateManager().getCheckpointFilePools();
+        if (filePools != null && checkpointStorage instanceof FsCheckpointStorageAccess) {
+            ((FsCheckpointStorageAccess) checkpointStorage).setMergingFilePools(filePools);
+        }
+    }
+
+    private static CheckpointStorageWorkerView limitCheckpointIO(
+            CheckpointStorageWorkerView checkpointStorage, Environment env) {
+        CheckpointIOScheduler ioScheduler = env.getTaskStateManager().getCheckpointIOScheduler();
+        return ioScheduler == null ? checkpointStorage : ioScheduler.wrap(checkpointStorage);
+    }
+
     @Override
     public void abortCheckpointOnBarrier(
             long checkpointId, CheckpointException cause, OperatorChain<?, ?> operatorChain)
@@ -251,7 +283,22 @@ class SubtaskCheckpointCoordinatorImpl implements SubtaskCheckpointCoordinator {
 
         operatorChain.broadcastEvent(
                 new CheckpointBarrier(metadata.getCheckpointId(), metadata.getTimestamp(), options),
-                options.isUnalignedCheckpoint());
+                options.isUnalignedCheckpoint() && !isBlockedForRescaling(options));
+    }
+
+    /**
+     * Checks whether this task is one of the upstream tasks that stay blocked for the given rescale
+     * snapshot. These tasks do not persist their output, so their barrier must not overtake the
+     * in-flight data, which is persisted by the rescaled tasks instead. All other tasks keep
+     * sending unaligned barriers as priority events.
+     */
+    private boolean isBlockedForRescaling(CheckpointOptions options) {
+        if (!options.isRescaling()) {
+            return false;
+        }
+        String jobVertexId = env.getJobVertexId().toHexString();
+        return options.getBlockedJobVertexIdsForRescaling().contains(jobVertexId)
+                && !jobVertexId.equals(options.getRescaledJobVertexId());
     }
 
     @Override
@@ -326,21 +373,37 @@ class SubtaskCheckpointCoordinatorImpl implements SubtaskCheckpointCoordinator {
 
         Map<OperatorID, OperatorSnapshotFutures> snapshotFutures =
                 new HashMap<>(operatorChain.getNumberOfOperators());
+        CheckpointStreamFactory storage = null;
         try {
+            storage =
+                    checkpointStorage.resolveCheckpointStorageLocation(
+                            metadata.getCheckpointId(), options);
             if (takeSnapshotSync(
-                    snapshotFutures, metadata, metrics, options, operatorChain, isRunning)) {
+                    snapshotFutures,
+                    metadata,
+                    metrics,
+                    options,
+                    operatorChain,
+                    storage,
+                    isRunning)) {
                 finishAndReportAsync(
                         snapshotFutures,
                         metadata,
                         metrics,
                         operatorChain.isTaskDeployedAsFinished(),
                         isTaskFinished,
+                        storage,
                         isRunning);
             } else {
-                cleanup(snapshotFutures, metadata, metrics, new Exception("Checkpoint declined"));
+                cleanup(
+                        snapshotFutures,
+                        metadata,
+                        metrics,
+                        storage,
+                        new Exception("Checkpoint declined"));
             }
         } catch (Exception ex) {
-            cleanup(snapshotFutures, metadata, metrics, ex);
+            cleanup(snapshotFutures, metadata, metrics, storage, ex);
             throw ex;
         }
     }
@@ -516,6 +579,7 @@ class SubtaskCheckpointCoordinatorImpl implements SubtaskCheckpointCoordinator {
             Map<OperatorID, OperatorSnapshotFutures> operatorSnapshotsInProgress,
             CheckpointMetaData metadata,
             CheckpointMetricsBuilder metrics,
+            @Nullable CheckpointStreamFactory storage,
             Exception ex) {
 
         channelStateWriter.abort(metadata.getCheckpointId(), ex, true);
@@ -529,6 +593,13 @@ class SubtaskCheckpointCoordinatorImpl implements SubtaskCheckpointCoordinator {
                 }
             }
         }
+        if (storage != null) {
+            try {
+                storage.abortMergedFiles();
+            } catch (Exception e) {
+                LOG.warn("Could not release the merged files of the checkpoint storage.", e);
+            }
+        }
 
         if (LOG.isDebugEnabled()) {
             LOG.debug(
@@ -564,6 +635,25 @@ class SubtaskCheckpointCoordinatorImpl implements SubtaskCheckpointCoordinator {
             boolean isTaskFinished,
             Supplier<Boolean> isRunning)
             throws IOException {
+        finishAndReportAsync(
+                snapshotFutures,
+                metadata,
+                metrics,
+                isTaskDeployedAsFinished,
+                isTaskFinished,
+                null,
+                isRunning);
+    }
+
+    private void finishAndReportAsync(
+            Map<OperatorID, OperatorSnapshotFutures> snapshotFutures,
+            CheckpointMetaData metadata,
+            CheckpointMetricsBuilder metrics,
+            boolean isTaskDeployedAsFinished,
+            boolean isTaskFinished,
+            @Nullable CheckpointStreamFactory storage,
+            Supplier<Boolean> isRunning)
+            throws IOException {
         AsyncCheckpointRunnable asyncCheckpointRunnable =
                 new AsyncCheckpointRunnable(
                         snapshotFutures,
@@ -576,7 +666,8 @@ class SubtaskCheckpointCoordinatorImpl implements SubtaskCheckpointCoordinator {
                         asyncExceptionHandler,
                         isTaskDeployedAsFinished,
                         isTaskFinished,
-                        isRunning);
+                        isRunning,
+                        storage);
 
         registerAsyncCheckpointRunnable(
                 asyncCheckpointRunnable.getCheckpointId(), asyncCheckpointRunnable);
@@ -597,6 +688,7 @@ class SubtaskCheckpointCoordinatorImpl implements SubtaskCheckpointCoordinator {
             CheckpointMetricsBuilder checkpointMetrics,
             CheckpointOptions checkpointOptions,
             OperatorChain<?, ?> operatorChain,
+            CheckpointStreamFactory storage,
             Supplier<Boolean> isRunning)
             throws Exception {
 
@@ -612,10 +704,6 @@ class SubtaskCheckpointCoordinatorImpl implements SubtaskCheckpointCoordinator {
                         ? channelStateWriter.getAndRemoveWriteResult(checkpointId)
                         : ChannelStateWriteResult.EMPTY;
 
-        CheckpointStreamFactory storage =
-                checkpointStorage.resolveCheckpointStorageLocation(
-                        checkpointId, checkpointOptions.getTargetLocation());
-
         try {
             operatorChain.snapshotState(
                     operatorSnapshotsInProgress,
@@ -687,6 +775,21 @@ class SubtaskCheckpointCoordinatorImpl implements SubtaskCheckpointCoordinator {
                     });
         }
 
+        @Override
+        public CheckpointStreamFactory resolveCheckpointStorageLocation(
+                long checkpointId, CheckpointOptions checkpointOptions) {
+            return cache.computeIfAbsent(
+                    checkpointId,
+                    id -> {
+                        try {
+                            return delegate.resolveCheckpointStorageLocation(
+                                    checkpointId, checkpointOptions);
+                        } catch (IOException e) {
+                            throw new FlinkRuntimeException(e);
+                        }
+                    });
+        }
+
         @Override
         public CheckpointStreamFactory.CheckpointStateOutputStream createTaskOwnedStateStream()
                 throws IOException {
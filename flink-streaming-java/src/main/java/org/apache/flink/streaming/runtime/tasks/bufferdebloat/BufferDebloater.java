@@ -23,6 +23,7 @@ import org.apache.flink.configuration.Configuration;
 import org.apache.flink.configuration.TaskManagerOptions;
 import org.apache.flink.runtime.io.network.partition.consumer.IndexedInputGate;
 
+import java.io.IOException;
 import java.time.Duration;
 
 import static org.apache.flink.configuration.TaskManagerOptions.BUFFER_DEBLOAT_TARGET;
@@ -42,7 +43,10 @@ public class BufferDebloater {
     private final long minBufferSize;
     private final double bufferDebloatThresholdFactor;
 
-    private int lastBufferSize;
+    /** Only written by the task thread, but also read by the metric reporters. */
+    private volatile int lastBufferSize;
+
+    private long lastThroughput;
     private Duration lastEstimatedTimeToConsumeBuffers = Duration.ZERO;
 
     public BufferDebloater(Configuration taskConfig, IndexedInputGate[] inputGates) {
@@ -66,6 +70,7 @@ public class BufferDebloater {
     }
 
     public void recalculateBufferSize(long currentThroughput) {
+        lastThroughput = currentThroughput;
         long desiredTotalBufferSizeInBytes =
                 (currentThroughput * targetTotalBufferSize.toMillis()) / MILLIS_IN_SECOND;
 
@@ -99,6 +104,48 @@ public class BufferDebloater {
         }
     }
 
+    /**
+     * Notifies the debloater that the underlying input gates were recreated, e.g. after the
+     * upstream was rescaled. New gates start with the maximum buffer size, so the last announced
+     * size is reset to make sure the next calculated size is announced to them.
+     *
+     * <p>The number of buffers needed to hold the target amount of in-flight data at the last
+     * observed throughput is split among the gates by their number of channels and announced to
+     * them, so that they size their floating buffers for the new set of channels.
+     *
+     * <p>Must be called from the task thread.
+     */
+    public void onInputGatesUpdated() throws IOException {
+        lastBufferSize = (int) maxBufferSize;
+        if (lastThroughput <= 0) {
+            return;
+        }
+
+        long desiredTotalBufferSizeInBytes =
+                (lastThroughput * targetTotalBufferSize.toMillis()) / MILLIS_IN_SECOND;
+        long totalNumberOfChannels = 0;
+        for (IndexedInputGate inputGate : inputGates) {
+            totalNumberOfChannels += inputGate.getNumberOfInputChannels();
+        }
+        if (totalNumberOfChannels == 0) {
+            return;
+        }
+        for (IndexedInputGate inputGate : inputGates) {
+            if (!inputGate.isFinished()) {
+                long gateBufferSizeInBytes =
+                        desiredTotalBufferSizeInBytes
+                                * inputGate.getNumberOfInputChannels()
+                                / totalNumberOfChannels;
+                inputGate.announceDesiredBuffers(
+                        (int)
+                                Math.min(
+                                        Integer.MAX_VALUE,
+                                        (gateBufferSizeInBytes + maxBufferSize - 1)
+                                                / maxBufferSize));
+            }
+        }
+    }
+
     @VisibleForTesting
     boolean skipUpdate(int newSize) {
         if (newSize == lastBufferSize) {
@@ -41,8 +41,10 @@ import org.mockito.stubbing.Answer;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -446,6 +448,199 @@ public class InternalTimerServiceImplTest {
         assertEquals(0, timerService.numEventTimeTimers());
     }
 
+    /**
+     * Verifies that a {@link BatchTriggerable} gets the firing timers grouped by key and that
+     * timers deleted or registered by a callback are honored.
+     */
+    @Test
+    public void testBatchFireEventTimeTimers() throws Exception {
+        TestKeyContext keyContext = new TestKeyContext();
+        List<List<InternalTimer<Integer, String>>> firedBatches = new ArrayList<>();
+
+        // get two different keys
+        int key1 = getKeyInKeyGroupRange(testKeyGroupRange, maxParallelism);
+        int key2 = getKeyInKeyGroupRange(testKeyGroupRange, maxParallelism);
+        while (key2 == key1) {
+            key2 = getKeyInKeyGroupRange(testKeyGroupRange, maxParallelism);
+        }
+        final int[] keys = {key1, key2};
+
+        TestProcessingTimeService processingTimeService = new TestProcessingTimeService();
+        InternalTimerServiceImpl<Integer, String> timerService =
+                createInternalTimerService(
+                        testKeyGroupRange,
+                        keyContext,
+                        processingTimeService,
+                        IntSerializer.INSTANCE,
+                        StringSerializer.INSTANCE,
+                        createQueueFactory());
+        timerService.startTimerService(
+                IntSerializer.INSTANCE,
+                StringSerializer.INSTANCE,
+                new BatchTriggerable<Integer, String>() {
+                    @Override
+                    public void onEventTimers(Iterable<InternalTimer<Integer, String>> timers) {
+                        List<InternalTimer<Integer, String>> batch = new ArrayList<>();
+                        for (InternalTimer<Integer, String> timer : timers) {
+                            assertEquals(keyContext.getCurrentKey(), timer.getKey());
+                            batch.add(timer);
+                        }
+                        if (firedBatches.isEmpty()) {
+                            int currentKey = (Integer) keyContext.getCurrentKey();
+                            int otherKey = currentKey == keys[0] ? keys[1] : keys[0];
+                            keyContext.setCurrentKey(otherKey);
+                            timerService.deleteEventTimeTimer("b", 8);
+                            keyContext.setCurrentKey(currentKey);
+                            timerService.registerEventTimeTimer("d", 9);
+                        }
+                        firedBatches.add(batch);
+                    }
+
+                    @Override
+                    public void onEventTime(InternalTimer<Integer, String> timer) {
+                        Assert.fail("Timers should be fired in batches.");
+                    }
+
+                    @Override
+                    public void onProcessingTime(InternalTimer<Integer, String> timer) {}
+                });
+
+        for (int key : keys) {
+            keyContext.setCurrentKey(key);
+            timerService.registerEventTimeTimer("b", 8);
+            timerService.registerEventTimeTimer("a", 5);
+        }
+        keyContext.setCurrentKey(key1);
+        timerService.registerEventTimeTimer("c", 20);
+
+        timerService.advanceWatermark(10);
+
+        assertEquals(3, firedBatches.size());
+        int firstKey = firedBatches.get(0).get(0).getKey();
+        int secondKey = firstKey == key1 ? key2 : key1;
+        assertEquals(
+                Arrays.asList(
+                        new TimerHeapInternalTimer<>(5, firstKey, "a"),
+                        new TimerHeapInternalTimer<>(8, firstKey, "b")),
+                firedBatches.get(0));
+        assertEquals(
+                Collections.singletonList(new TimerHeapInternalTimer<>(5, secondKey, "a")),
+                firedBatches.get(1));
+        assertEquals(
+                Collections.singletonList(new TimerHeapInternalTimer<>(9, firstKey, "d")),
+                firedBatches.get(2));
+
+        assertEquals(1, timerService.numEventTimeTimers());
+        assertEquals(1, timerService.numEventTimeTimers("c"));
+    }
+
+    /**
+     * Verifies that a timer of a batch which an earlier timer of the same key deletes does not
+     * fire.
+     */
+    @Test
+    public void testBatchFireSkipsTimersDeletedWithinBatch() throws Exception {
+        TestKeyContext keyContext = new TestKeyContext();
+        List<InternalTimer<Integer, String>> firedTimers = new ArrayList<>();
+        int key = getKeyInKeyGroupRange(testKeyGroupRange, maxParallelism);
+
+        InternalTimerServiceImpl<Integer, String> timerService =
+                createInternalTimerService(
+                        testKeyGroupRange,
+                        keyContext,
+                        new TestProcessingTimeService(),
+                        IntSerializer.INSTANCE,
+                        StringSerializer.INSTANCE,
+                        createQueueFactory());
+        timerService.startTimerService(
+                IntSerializer.INSTANCE,
+                StringSerializer.INSTANCE,
+                new BatchTriggerable<Integer, String>() {
+                    @Override
+                    public void onEventTimers(Iterable<InternalTimer<Integer, String>> timers) {
+                        for (InternalTimer<Integer, String> timer : timers) {
+                            firedTimers.add(timer);
+                            if (timer.getNamespace().equals("a")) {
+                                timerService.deleteEventTimeTimer("b", 8);
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void onEventTime(InternalTimer<Integer, String> timer) {
+                        Assert.fail("Timers should be fired in batches.");
+                    }
+
+                    @Override
+                    public void onProcessingTime(InternalTimer<Integer, String> timer) {}
+                });
+
+        keyContext.setCurrentKey(key);
+        timerService.registerEventTimeTimer("a", 5);
+        timerService.registerEventTimeTimer("b", 8);
+        timerService.registerEventTimeTimer("c", 9);
+
+        timerService.advanceWatermark(10);
+
+        assertEquals(
+                Arrays.asList(
+                        new TimerHeapInternalTimer<>(5, key, "a"),
+                        new TimerHeapInternalTimer<>(9, key, "c")),
+                firedTimers);
+        assertEquals(0, timerService.numEventTimeTimers());
+    }
+
+    /** Verifies that the number of timers which are drained before they are fired is bounded. */
+    @Test
+    public void testBatchFireBoundsBatchSize() throws Exception {
+        TestKeyContext keyContext = new TestKeyContext();
+        List<Integer> batchSizes = new ArrayList<>();
+        int key = getKeyInKeyGroupRange(testKeyGroupRange, maxParallelism);
+
+        InternalTimerServiceImpl<Integer, String> timerService =
+                createInternalTimerService(
+                        testKeyGroupRange,
+                        keyContext,
+                        new TestProcessingTimeService(),
+                        IntSerializer.INSTANCE,
+                        StringSerializer.INSTANCE,
+                        createQueueFactory());
+        timerService.startTimerService(
+                IntSerializer.INSTANCE,
+                StringSerializer.INSTANCE,
+                new BatchTriggerable<Integer, String>() {
+                    @Override
+                    public void onEventTimers(Iterable<InternalTimer<Integer, String>> timers) {
+                        int batchSize = 0;
+                        for (InternalTimer<Integer, String> ignored : timers) {
+                            batchSize++;
+                        }
+                        batchSizes.add(batchSize);
+                    }
+
+                    @Override
+                    public void onEventTime(InternalTimer<Integer, String> timer) {
+                        Assert.fail("Timers should be fired in batches.");
+                    }
+
+                    @Override
+                    public void onProcessingTime(InternalTimer<Integer, String> timer) {}
+                });
+
+        final int numTimers = InternalTimerServiceImpl.MAX_EVENT_TIME_TIMER_BATCH_SIZE + 1;
+        keyContext.setCurrentKey(key);
+        for (int i = 0; i < numTimers; i++) {
+            timerService.registerEventTimeTimer("ns", i);
+        }
+
+        timerService.advanceWatermark(numTimers);
+
+        assertEquals(
+                Arrays.asList(InternalTimerServiceImpl.MAX_EVENT_TIME_TIMER_BATCH_SIZE, 1),
+                batchSizes);
+        assertEquals(0, timerService.numEventTimeTimers());
+    }
+
     /** This also verifies that we don't have leakage between keys/namespaces. */
     @Test
     public void testSetAndFireProcessingTimeTimers() throws Exception {
@@ -41,6 +41,7 @@ import org.apache.flink.runtime.state.VoidNamespaceSerializer;
 import org.apache.flink.runtime.state.internal.InternalAggregatingState;
 import org.apache.flink.runtime.state.internal.InternalListState;
 import org.apache.flink.runtime.state.internal.InternalReducingState;
+import org.apache.flink.runtime.state.internal.InternalValueState;
 import org.apache.flink.util.TestLogger;
 
 import org.junit.Rule;
@@ -1394,6 +1395,61 @@ public class BatchExecutionStateBackendTest extends TestLogger {
         backend.dispose();
     }
 
+    /**
+     * Verify that a multi-key lookup of a {@code ValueState} only finds the current key, whose
+     * value is the only one kept, and does not return default values.
+     */
+    @Test
+    public void testValueStateGetAll() throws Exception {
+        CheckpointableKeyedStateBackend<Integer> backend =
+                createKeyedBackend(IntSerializer.INSTANCE);
+
+        ValueStateDescriptor<String> kvId = new ValueStateDescriptor<>("id", String.class, "Hello");
+
+        @SuppressWarnings("unchecked")
+        InternalValueState<Integer, VoidNamespace, String> state =
+                (InternalValueState<Integer, VoidNamespace, String>)
+                        backend.getPartitionedState(
+                                VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+
+        backend.setCurrentKey(1);
+        assertTrue(state.getAll(asList(1, 2)).isEmpty());
+
+        state.update("Ciao");
+        assertEquals(Collections.singletonMap(1, "Ciao"), state.getAll(asList(0, 1, 2)));
+        assertTrue(state.getAll(asList(0, 2)).isEmpty());
+        assertEquals(Integer.valueOf(1), backend.getCurrentKey());
+
+        backend.setCurrentKey(2);
+        assertTrue(state.getAll(asList(1, 2)).isEmpty());
+
+        backend.dispose();
+    }
+
+    /** Verify that a multi-key lookup of a {@code MapState} omits absent keys and null values. */
+    @Test
+    public void testMapStateGetAll() throws Exception {
+        CheckpointableKeyedStateBackend<Integer> backend =
+                createKeyedBackend(IntSerializer.INSTANCE);
+
+        MapStateDescriptor<String, String> kvId =
+                new MapStateDescriptor<>("id", String.class, String.class);
+
+        MapState<String, String> state =
+                backend.getPartitionedState(
+                        VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+
+        backend.setCurrentKey(1);
+        state.put("Ciao", "Hello");
+        state.put("Bello", null);
+
+        assertEquals(
+                Collections.singletonMap("Ciao", "Hello"),
+                state.getAll(asList("Ciao", "Bello", "Nice")));
+
+        backend.dispose();
+    }
+
     private static class AppendingReduce implements ReduceFunction<String> {
         @Override
         public String reduce(String value1, String value2) throws Exception {
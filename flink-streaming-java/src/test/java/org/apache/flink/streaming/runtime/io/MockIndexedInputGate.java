@@ -133,4 +133,7 @@ public class MockIndexedInputGate extends IndexedInputGate {
 
     @Override
     public void announceBufferSize(int bufferSize) {}
+
+    @Override
+    public void announceDesiredBuffers(int numBuffers) {}
 }
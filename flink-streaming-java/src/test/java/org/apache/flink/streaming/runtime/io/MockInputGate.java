@@ -171,6 +171,9 @@ public class MockInputGate extends IndexedInputGate {
     @Override
     public void announceBufferSize(int bufferSize) {}
 
+    @Override
+    public void announceDesiredBuffers(int numBuffers) {}
+
     public Set<Integer> getBlockedChannels() {
         return blockedChannels;
     }
@@ -249,6 +249,9 @@ public class AlignedCheckpointsMassiveRandomTest {
         @Override
         public void announceBufferSize(int bufferSize) {}
 
+        @Override
+        public void announceDesiredBuffers(int numBuffers) {}
+
         public void acknowledgeAllRecordsProcessed(InputChannelInfo channelInfo)
                 throws IOException {}
 
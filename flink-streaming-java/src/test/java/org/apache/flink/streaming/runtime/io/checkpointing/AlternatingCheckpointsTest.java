@@ -34,6 +34,7 @@ import org.apache.flink.runtime.io.network.partition.consumer.RemoteInputChannel
 import org.apache.flink.runtime.io.network.partition.consumer.SingleInputGate;
 import org.apache.flink.runtime.io.network.partition.consumer.SingleInputGateBuilder;
 import org.apache.flink.runtime.io.network.partition.consumer.TestInputChannel;
+import org.apache.flink.runtime.jobgraph.JobVertex;
 import org.apache.flink.runtime.mailbox.SyncMailboxExecutor;
 import org.apache.flink.streaming.runtime.io.checkpointing.CheckpointBarrierHandler.Cancellable;
 import org.apache.flink.streaming.util.TestCheckpointedInputGateBuilder;
@@ -1116,6 +1117,44 @@ public class AlternatingCheckpointsTest {
                 equalTo(bytesProcessedDuringAlignment));
     }
 
+    @Test
+    public void testUnalignedRescaleSnapshotKeepsChannelsOfBlockedTasksBlocked() throws Exception {
+        JobVertex rescaled = new JobVertex("rescaled");
+        JobVertex blocked = new JobVertex("blocked");
+        CheckpointOptions options =
+                CheckpointOptions.forConfig(
+                        SAVEPOINT,
+                        getDefault(),
+                        true,
+                        true,
+                        0,
+                        "rescale-"
+                                + rescaled.getID().toHexString()
+                                + "=2:"
+                                + blocked.getID().toHexString());
+
+        SingleInputGate inputGate = new SingleInputGateBuilder().setNumberOfChannels(2).build();
+        TestInputChannel[] channels = {
+            new TestInputChannel(inputGate, 0), new TestInputChannel(inputGate, 1)
+        };
+        inputGate.setInputChannels(channels);
+        ValidatingCheckpointHandler target = new ValidatingCheckpointHandler();
+        SingleCheckpointBarrierHandler barrierHandler =
+                getTestBarrierHandlerFactory(target).withJobVertex(blocked).create(inputGate);
+
+        CheckpointBarrier barrier = new CheckpointBarrier(1, clock.relativeTimeMillis(), options);
+        for (int channel = 0; channel < channels.length; channel++) {
+            // emulate the blocking of the channels by the barriers sent in order by the upstream
+            channels[channel].setBlocked(true);
+            barrierHandler.processBarrier(barrier, new InputChannelInfo(0, channel), false);
+        }
+
+        assertThat(target.getTriggeredCheckpointCounter(), equalTo(1L));
+        assertFalse(barrierHandler.isCheckpointPending());
+        assertTrue(channels[0].isBlocked());
+        assertTrue(channels[1].isBlocked());
+    }
+
     @Test
     public void testPreviousHandlerReset() throws Exception {
         SingleInputGate inputGate = new SingleInputGateBuilder().setNumberOfChannels(2).build();
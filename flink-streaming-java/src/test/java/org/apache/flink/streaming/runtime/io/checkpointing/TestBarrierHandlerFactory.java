@@ -21,12 +21,15 @@ package org.apache.flink.streaming.runtime.io.checkpointing;
 import org.apache.flink.runtime.checkpoint.channel.ChannelStateWriter;
 import org.apache.flink.runtime.checkpoint.channel.RecordingChannelStateWriter;
 import org.apache.flink.runtime.io.network.partition.consumer.SingleInputGate;
+import org.apache.flink.runtime.jobgraph.JobVertex;
 import org.apache.flink.runtime.jobgraph.tasks.AbstractInvokable;
 import org.apache.flink.streaming.runtime.io.checkpointing.CheckpointBarrierHandler.Cancellable;
 import org.apache.flink.streaming.runtime.tasks.TestSubtaskCheckpointCoordinator;
 import org.apache.flink.util.clock.Clock;
 import org.apache.flink.util.clock.SystemClock;
 
+import javax.annotation.Nullable;
+
 import java.time.Duration;
 import java.util.concurrent.Callable;
 import java.util.function.BiFunction;
@@ -38,6 +41,7 @@ public class TestBarrierHandlerFactory {
             (callable, delay) -> () -> {};
     private Clock clock = SystemClock.getInstance();
     private boolean enableCheckpointsAfterTasksFinish = true;
+    @Nullable private JobVertex jobVertex;
 
     private TestBarrierHandlerFactory(AbstractInvokable target) {
         this.target = target;
@@ -63,6 +67,11 @@ public class TestBarrierHandlerFactory {
         return this;
     }
 
+    public TestBarrierHandlerFactory withJobVertex(JobVertex jobVertex) {
+        this.jobVertex = jobVertex;
+        return this;
+    }
+
     public SingleCheckpointBarrierHandler create(SingleInputGate inputGate) {
         return create(inputGate, new RecordingChannelStateWriter());
     }
@@ -73,7 +82,12 @@ public class TestBarrierHandlerFactory {
         return SingleCheckpointBarrierHandler.alternating(
                 taskName,
                 target,
-                new TestSubtaskCheckpointCoordinator(stateWriter),
+                new TestSubtaskCheckpointCoordinator(stateWriter) {
+                    @Override
+                    public JobVertex getJobVertex() {
+                        return jobVertex;
+                    }
+                },
                 clock,
                 inputGate.getNumberOfInputChannels(),
                 actionRegistration,
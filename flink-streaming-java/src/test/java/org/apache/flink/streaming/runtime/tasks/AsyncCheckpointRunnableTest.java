@@ -60,7 +60,8 @@ public class AsyncCheckpointRunnableTest {
                         (msg, ex) -> {},
                         false,
                         false,
-                        () -> true)
+                        () -> true,
+                        null)
                 .close();
         assertEquals(
                 checkpointId,
@@ -167,7 +168,8 @@ public class AsyncCheckpointRunnableTest {
                 (msg, ex) -> {},
                 isTaskDeployedAsFinished,
                 false,
-                () -> isTaskRunning);
+                () -> isTaskRunning,
+                null);
     }
 
     private static class TestEnvironment extends StreamMockEnvironment {
@@ -129,7 +129,8 @@ public class LocalStateForwardingTest extends TestLogger {
                         testStreamTask,
                         false,
                         false,
-                        () -> true);
+                        () -> true,
+                        null);
 
         checkpointMetrics.setAlignmentDurationNanos(0L);
         checkpointMetrics.setBytesProcessedDuringAlignment(0L);
@@ -38,6 +38,7 @@ import org.apache.flink.runtime.io.network.api.writer.NonRecordWriter;
 import org.apache.flink.runtime.io.network.api.writer.RecordOrEventCollectingResultPartitionWriter;
 import org.apache.flink.runtime.io.network.api.writer.ResultPartitionWriter;
 import org.apache.flink.runtime.io.network.buffer.BufferBuilderTestUtils;
+import org.apache.flink.runtime.jobgraph.JobVertexID;
 import org.apache.flink.runtime.jobgraph.OperatorID;
 import org.apache.flink.runtime.operators.testutils.DummyEnvironment;
 import org.apache.flink.runtime.operators.testutils.MockEnvironment;
@@ -229,6 +230,58 @@ public class SubtaskCheckpointCoordinatorTest {
         }
     }
 
+    @Test
+    public void testRescaleBarrierIsOnlySentInOrderByBlockedTasks() throws Exception {
+        JobVertexID rescaled = new JobVertexID();
+        JobVertexID blocked = new JobVertexID();
+        CheckpointOptions options =
+                CheckpointOptions.forConfig(
+                        SAVEPOINT,
+                        CheckpointStorageLocationReference.getDefault(),
+                        true,
+                        true,
+                        10,
+                        "rescale-"
+                                + rescaled.toHexString()
+                                + "=2:"
+                                + rescaled.toHexString()
+                                + ","
+                                + blocked.toHexString());
+
+        assertEquals(false, sendsPriorityBarrier(blocked, options));
+        assertEquals(true, sendsPriorityBarrier(rescaled, options));
+        assertEquals(true, sendsPriorityBarrier(new JobVertexID(), options));
+    }
+
+    private static boolean sendsPriorityBarrier(JobVertexID jobVertexId, CheckpointOptions options)
+            throws Exception {
+        MockEnvironment mockEnvironment =
+                MockEnvironment.builder().setJobVertexID(jobVertexId).build();
+        try (SubtaskCheckpointCoordinator coordinator =
+                new MockSubtaskCheckpointCoordinatorBuilder()
+                        .setUnalignedCheckpointEnabled(true)
+                        .setEnvironment(mockEnvironment)
+                        .build()) {
+            AtomicReference<Boolean> broadcastedPriorityEvent = new AtomicReference<>(null);
+            final OperatorChain<?, ?> operatorChain =
+                    new RegularOperatorChain(
+                            new MockStreamTaskBuilder(mockEnvironment).build(),
+                            new NonRecordWriter<>()) {
+                        @Override
+                        public void broadcastEvent(AbstractEvent event, boolean isPriorityEvent)
+                                throws IOException {
+                            super.broadcastEvent(event, isPriorityEvent);
+                            broadcastedPriorityEvent.set(isPriorityEvent);
+                        }
+                    };
+
+            coordinator.sendCheckpointOnBarrier(
+                    new CheckpointMetaData(0, 0), options, operatorChain);
+
+            return broadcastedPriorityEvent.get();
+        }
+    }
+
     @Test
     public void testSkipChannelStateForSavepoints() throws Exception {
         try (SubtaskCheckpointCoordinator coordinator =
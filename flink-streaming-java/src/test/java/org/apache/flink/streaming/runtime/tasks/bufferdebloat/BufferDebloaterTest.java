@@ -25,6 +25,7 @@ import org.apache.flink.util.TestLogger;
 
 import org.junit.Test;
 
+import java.io.IOException;
 import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
@@ -215,6 +216,44 @@ public class BufferDebloaterTest extends TestLogger {
         bufferDebloater.recalculateBufferSize(40);
     }
 
+    @Test
+    public void testAnnounceBufferSizeAfterInputGatesUpdated() throws IOException {
+        BufferDebloater bufferDebloater =
+                testBufferDebloater()
+                        .withDebloatTarget(1000)
+                        .withBufferSize(50, 1100)
+                        .withNumberOfBuffersInUse(singletonList(1))
+                        .withThroughput(500)
+                        .expectBufferSize(500);
+
+        // The same size is not announced again to the gates.
+        assertTrue(bufferDebloater.skipUpdate(500));
+
+        // Recreated gates start with the max buffer size, so the size has to be announced again.
+        bufferDebloater.onInputGatesUpdated();
+        assertThat(bufferDebloater.getLastBufferSize(), is(1100));
+        assertFalse(bufferDebloater.skipUpdate(500));
+    }
+
+    @Test
+    public void testAnnounceDesiredBuffersAfterInputGatesUpdated() throws IOException {
+        BufferDebloaterTestBuilder builder =
+                testBufferDebloater()
+                        .withDebloatTarget(1000)
+                        .withBufferSize(50, 1100)
+                        .withNumberOfBuffersInUse(asList(1, 1))
+                        .withThroughput(10000);
+        BufferDebloater bufferDebloater = builder.expectBufferSize(-1);
+        TestBufferSizeInputGate[] inputGates = builder.inputGates;
+
+        bufferDebloater.onInputGatesUpdated();
+
+        // 10000 bytes in flight are split among the gates, i.e. 5 buffers of 1100 bytes each.
+        for (TestBufferSizeInputGate inputGate : inputGates) {
+            assertThat(inputGate.lastDesiredBuffers, is(5));
+        }
+    }
+
     @Test
     public void testSkipUpdate() {
         int maxBufferSize = 32768;
@@ -262,6 +301,7 @@ public class BufferDebloaterTest extends TestLogger {
 
     private static class TestBufferSizeInputGate extends MockInputGate {
         private int lastBufferSize = -1;
+        private int lastDesiredBuffers = -1;
         private final int bufferInUseCount;
 
         public TestBufferSizeInputGate(int bufferInUseCount) {
@@ -281,6 +321,11 @@ public class BufferDebloaterTest extends TestLogger {
             assertThat(bufferSize, is(not(lastBufferSize)));
             lastBufferSize = bufferSize;
         }
+
+        @Override
+        public void announceDesiredBuffers(int numBuffers) {
+            lastDesiredBuffers = numBuffers;
+        }
     }
 
     public static BufferDebloaterTestBuilder testBufferDebloater() {
@@ -294,6 +339,7 @@ public class BufferDebloaterTest extends TestLogger {
         private long maxBufferSize;
         private int debloatTarget;
         private int thresholdPercentages = BUFFER_DEBLOAT_THRESHOLD_PERCENTAGES.defaultValue();
+        private TestBufferSizeInputGate[] inputGates;
 
         public BufferDebloaterTestBuilder withNumberOfBuffersInUse(
                 List<Integer> numberOfBuffersInUse) {
@@ -324,7 +370,7 @@ public class BufferDebloaterTest extends TestLogger {
 
         public BufferDebloater expectBufferSize(int expectedBufferSize) {
             int numberOfGates = numberOfBuffersInUse.size();
-            TestBufferSizeInputGate[] inputGates = new TestBufferSizeInputGate[numberOfGates];
+            inputGates = new TestBufferSizeInputGate[numberOfGates];
             for (int i = 0; i < numberOfGates; i++) {
                 inputGates[i] = new TestBufferSizeInputGate(numberOfBuffersInUse.get(i));
             }